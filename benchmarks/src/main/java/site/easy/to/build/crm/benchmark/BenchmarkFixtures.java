@@ -0,0 +1,141 @@
+package site.easy.to.build.crm.benchmark;
+
+import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
+import site.easy.to.build.crm.dto.statement.TransactionDTO;
+import site.easy.to.build.crm.entity.HistoricalTransaction;
+import site.easy.to.build.crm.entity.UnifiedTransaction;
+
+import java.lang.reflect.Field;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Synthetic, seeded fixtures for the benchmarks (same seed = same data every run).
+ */
+public final class BenchmarkFixtures {
+
+    public static final long SEED = 20240101L;
+    public static final LocalDate PERIOD_START = LocalDate.of(2024, 1, 1);
+    public static final LocalDate PERIOD_END = LocalDate.of(2024, 12, 31);
+
+    private static final int[] FREQUENCIES = {1, 1, 1, 1, 3, 6, 12};
+    private static final String[] TRANSACTION_TYPES = {
+        "incoming_payment", "rent_received", "payment_to_beneficiary", "payment_to_agency",
+        "commission_payment", "payment_to_contractor", "expense", "maintenance"
+    };
+    private static final String[] CATEGORIES = {
+        "rent", "Owner", "owner_payment", "Commission", "Council", "Contractor", "service_charge", "Other"
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    public static List<LeaseMasterDTO> leases(int count) {
+        Random random = new Random(SEED);
+        List<LeaseMasterDTO> leases = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate start = PERIOD_START.minusMonths(random.nextInt(36)).plusDays(random.nextInt(28));
+            LocalDate end = random.nextInt(3) == 0 ? start.plusMonths(6 + random.nextInt(30)).minusDays(random.nextInt(20)) : null;
+            LeaseMasterDTO lease = new LeaseMasterDTO((long) i + 1, "LEASE-" + (i + 1), (long) (i / 3) + 1,
+                "Flat " + (i + 1) + ", Block " + (i / 3 + 1), (i + 1) + " High Street", (long) i + 1000,
+                "Tenant " + (i + 1), start, end, rent(random), "Monthly");
+            int frequency = FREQUENCIES[random.nextInt(FREQUENCIES.length)];
+            lease.setFrequencyMonths(frequency);
+            lease.setPaymentDay(random.nextInt(4) == 0 ? 1 + random.nextInt(28) : null);
+            lease.setIsBlockProperty(random.nextInt(20) == 0);
+            leases.add(lease);
+        }
+        return leases;
+    }
+
+    public static List<TransactionDTO> transactions(List<LeaseMasterDTO> leases, int perLease) {
+        Random random = new Random(SEED + 1);
+        List<TransactionDTO> transactions = new ArrayList<>(leases.size() * perLease);
+        long id = 1;
+        for (LeaseMasterDTO lease : leases) {
+            for (int i = 0; i < perLease; i++) {
+                LocalDate date = PERIOD_START.plusDays(random.nextInt(365));
+                TransactionDTO tx = new TransactionDTO(id++, date, lease.getLeaseId(), lease.getPropertyId(),
+                    lease.getCustomerId(), "rent", "incoming_payment", lease.getMonthlyRent(),
+                    "Rent " + date, lease.getStartDate(), lease.getEndDate(), lease.getMonthlyRent());
+                tx.setLeaseReference(lease.getLeaseReference());
+                tx.setPropertyName(lease.getPropertyName());
+                transactions.add(tx);
+            }
+        }
+        return transactions;
+    }
+
+    public static List<UnifiedTransaction> unifiedTransactions(int count) {
+        Random random = new Random(SEED + 2);
+        List<UnifiedTransaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            UnifiedTransaction tx = new UnifiedTransaction();
+            tx.setId((long) i + 1);
+            String type = TRANSACTION_TYPES[random.nextInt(TRANSACTION_TYPES.length)];
+            tx.setTransactionType(type);
+            tx.setFlowDirection(type.startsWith("incoming") || type.startsWith("rent")
+                ? UnifiedTransaction.FlowDirection.INCOMING : UnifiedTransaction.FlowDirection.OUTGOING);
+            tx.setCategory(CATEGORIES[random.nextInt(CATEGORIES.length)]);
+            tx.setDescription(random.nextInt(10) == 0 ? "Payment to J Smith (beneficiary)" : "Block property service charge " + i);
+            tx.setAmount(rent(random));
+            tx.setTransactionDate(PERIOD_START.plusDays(random.nextInt(365)));
+            transactions.add(tx);
+        }
+        return transactions;
+    }
+
+    /**
+     * CSV lines in the historical import layout, some with quoted commas.
+     */
+    public static List<String> csvLines(int count) {
+        Random random = new Random(SEED + 3);
+        List<String> lines = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            LocalDate date = PERIOD_START.plusDays(random.nextInt(365));
+            String description = random.nextBoolean()
+                ? "\"Rent payment, Flat " + (i % 40 + 1) + "\""
+                : "Rent payment Flat " + (i % 40 + 1);
+            lines.add(date + "," + rent(random) + "," + description + ",payment,rent,"
+                + "\"Flat " + (i % 40 + 1) + ", High Street\",tenant" + (i % 200) + "@example.com,REF" + i + ",,owner");
+        }
+        return lines;
+    }
+
+    public static List<HistoricalTransaction> historicalTransactions(int count) {
+        Random random = new Random(SEED + 4);
+        HistoricalTransaction.TransactionType[] types = HistoricalTransaction.TransactionType.values();
+        List<HistoricalTransaction> transactions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HistoricalTransaction tx = new HistoricalTransaction();
+            tx.setTransactionDate(PERIOD_START.plusDays(random.nextInt(365)));
+            tx.setAmount(rent(random));
+            tx.setDescription("Rent payment Flat " + (i % 40 + 1));
+            tx.setTransactionType(types[random.nextInt(types.length)]);
+            transactions.add(tx);
+        }
+        return transactions;
+    }
+
+    /**
+     * Set a field on a bean that is normally injected by Spring.
+     */
+    public static void inject(Object target, String fieldName, Object value) {
+        try {
+            Field field = target.getClass().getDeclaredField(fieldName);
+            field.setAccessible(true);
+            field.set(target, value);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot inject " + fieldName + " into " + target.getClass().getSimpleName(), e);
+        }
+    }
+
+    private static BigDecimal rent(Random random) {
+        return BigDecimal.valueOf(450 + random.nextInt(2500)).add(
+            BigDecimal.valueOf(random.nextInt(100)).divide(BigDecimal.valueOf(100), 2, RoundingMode.UNNECESSARY));
+    }
+}
@@ -0,0 +1,44 @@
+package site.easy.to.build.crm.service.financial;
+
+import org.openjdk.jmh.annotations.*;
+import site.easy.to.build.crm.benchmark.BenchmarkFixtures;
+import site.easy.to.build.crm.entity.UnifiedTransaction;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PropertyFinancialSummaryService classifiers over a mixed batch of unified transactions.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TransactionClassificationBenchmark {
+
+    @Param({"10000"})
+    public int transactionCount;
+
+    private List<UnifiedTransaction> transactions;
+    private PropertyFinancialSummaryService summaryService;
+
+    @Setup
+    public void setup() {
+        transactions = BenchmarkFixtures.unifiedTransactions(transactionCount);
+        summaryService = new PropertyFinancialSummaryService();
+    }
+
+    @Benchmark
+    public int[] classifyAll() {
+        int[] counts = new int[4];
+        for (UnifiedTransaction tx : transactions) {
+            if (summaryService.isRentTransaction(tx)) counts[0]++;
+            else if (summaryService.isCommissionTransaction(tx)) counts[1]++;
+            else if (summaryService.isExpenseTransaction(tx)) counts[2]++;
+            if (summaryService.isBlockPropertyTransaction(tx)) counts[3]++;
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,58 @@
+package site.easy.to.build.crm.service.statement;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import site.easy.to.build.crm.benchmark.BenchmarkFixtures;
+import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
+import site.easy.to.build.crm.service.invoice.RentSchedule;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rent due per lease for a year of monthly statement periods: the RentSchedule used by the
+ * statement generators (prorated final cycles) and the cycle-count path of StatementDataExtractService.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RentDueBenchmark {
+
+    @Param({"100", "1000"})
+    public int leaseCount;
+
+    private List<LeaseMasterDTO> leases;
+    private StatementDataExtractService extractService;
+
+    @Setup
+    public void setup() {
+        leases = BenchmarkFixtures.leases(leaseCount);
+        extractService = new StatementDataExtractService();
+    }
+
+    @Benchmark
+    public void scheduleRentDuePerMonth(Blackhole blackhole) {
+        for (LeaseMasterDTO lease : leases) {
+            RentSchedule schedule = RentSchedule.build(lease.getStartDate(), lease.getEndDate(), lease.getMonthlyRent(),
+                lease.getFrequencyMonths(), lease.getPaymentDay(), BenchmarkFixtures.PERIOD_END);
+            for (LocalDate month = BenchmarkFixtures.PERIOD_START; month.isBefore(BenchmarkFixtures.PERIOD_END); month = month.plusMonths(1)) {
+                blackhole.consume(schedule.rentDueBetween(month, month.plusMonths(1).minusDays(1)));
+            }
+        }
+    }
+
+    @Benchmark
+    public BigDecimal cycleCountRentDueForYear() {
+        BigDecimal total = BigDecimal.ZERO;
+        for (LeaseMasterDTO lease : leases) {
+            total = total.add(extractService.calculateRentDueInPeriod(lease.getStartDate(), BenchmarkFixtures.PERIOD_START,
+                BenchmarkFixtures.PERIOD_END, lease.getMonthlyRent(), lease.getFrequencyMonths()));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,78 @@
+package site.easy.to.build.crm.service.statement;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.openjdk.jmh.annotations.*;
+import site.easy.to.build.crm.benchmark.BenchmarkFixtures;
+import site.easy.to.build.crm.config.CommissionConfig;
+import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
+import site.easy.to.build.crm.dto.statement.TransactionDTO;
+import site.easy.to.build.crm.service.invoice.RentScheduleEngine;
+import site.easy.to.build.crm.service.metrics.PipelineMetrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Building and writing the statement data sheets (LEASE_MASTER, TRANSACTIONS, RENT_DUE)
+ * with in-memory XSSF, streaming SXSSF, and SXSSF with cached formula results (production path).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 5, time = 3)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx1g"})
+public class StatementSheetBenchmark {
+
+    @Param({"XSSF", "SXSSF", "SXSSF_FORMULA_CACHE"})
+    public String workbookType;
+
+    @Param({"50", "500"})
+    public int leaseCount;
+
+    private List<LeaseMasterDTO> leases;
+    private List<TransactionDTO> transactions;
+    private ExcelStatementGeneratorService generator;
+
+    @Setup
+    public void setup() {
+        leases = BenchmarkFixtures.leases(leaseCount);
+        transactions = BenchmarkFixtures.transactions(leases, 12);
+        generator = new ExcelStatementGeneratorService();
+        BenchmarkFixtures.inject(generator, "rentScheduleEngine", new RentScheduleEngine());
+        BenchmarkFixtures.inject(generator, "commissionConfig", new CommissionConfig());
+        BenchmarkFixtures.inject(generator, "pipelineMetrics", new PipelineMetrics(new SimpleMeterRegistry()));
+    }
+
+    @Benchmark
+    public int buildAndWrite() throws IOException {
+        Workbook workbook = newWorkbook();
+        try {
+            generator.writeDataSheets(workbook, leases, transactions,
+                BenchmarkFixtures.PERIOD_START, BenchmarkFixtures.PERIOD_END);
+            workbook.write(OutputStream.nullOutputStream());
+            return workbook.getNumberOfSheets();
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            workbook.close();
+        }
+    }
+
+    private Workbook newWorkbook() {
+        switch (workbookType) {
+            case "XSSF":
+                return new XSSFWorkbook();
+            case "SXSSF":
+                return new SXSSFWorkbook(20);
+            default:
+                return new FormulaStampingWorkbook(20);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package site.easy.to.build.crm.service.transaction;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import site.easy.to.build.crm.benchmark.BenchmarkFixtures;
+import site.easy.to.build.crm.entity.HistoricalTransaction;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Historical import inner loop: CSV line parsing and in-paste duplicate fingerprints.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvImportBenchmark {
+
+    @Param({"10000"})
+    public int lineCount;
+
+    private List<String> lines;
+    private List<HistoricalTransaction> transactions;
+
+    @Setup
+    public void setup() {
+        lines = BenchmarkFixtures.csvLines(lineCount);
+        transactions = BenchmarkFixtures.historicalTransactions(lineCount);
+    }
+
+    @Benchmark
+    public void parseCsvLines(Blackhole blackhole) {
+        for (String line : lines) {
+            blackhole.consume(HistoricalTransactionImportService.parseCsvLine(line));
+        }
+    }
+
+    @Benchmark
+    public int fingerprintDuplicates() {
+        Set<String> seen = new HashSet<>();
+        for (HistoricalTransaction transaction : transactions) {
+            seen.add(HistoricalTransactionImportService.generateTransactionFingerprint(transaction));
+        }
+        return seen.size();
+    }
+}
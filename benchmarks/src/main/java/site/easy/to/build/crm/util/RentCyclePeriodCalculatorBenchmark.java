@@ -0,0 +1,43 @@
+package site.easy.to.build.crm.util;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Splitting statement ranges into rent-cycle periods (sheet names included).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RentCyclePeriodCalculatorBenchmark {
+
+    @Param({"1", "3", "10"})
+    public int years;
+
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup
+    public void setup() {
+        from = LocalDate.of(2024, 1, 22);
+        to = from.plusYears(years).minusDays(1);
+    }
+
+    @Benchmark
+    public void monthlyPeriodsWithSheetNames(Blackhole blackhole) {
+        for (RentCyclePeriodCalculator.RentCyclePeriod period : RentCyclePeriodCalculator.calculateMonthlyPeriods(from, to)) {
+            blackhole.consume(period.getSheetName());
+        }
+    }
+
+    @Benchmark
+    public String periodDescription() {
+        return RentCyclePeriodCalculator.getPeriodDescription(from, to);
+    }
+}
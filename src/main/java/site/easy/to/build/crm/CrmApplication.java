@@ -13,7 +13,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import site.easy.to.build.crm.google.service.GoogleTokenRefreshScheduler;
 import site.easy.to.build.crm.util.MemoryDiagnostics;
 
-import site.easy.to.build.crm.service.transaction.UnifiedTransactionRebuildService;
+import site.easy.to.build.crm.service.transaction.UnifiedRebuildStartupService;
 
 import javax.sql.DataSource;
 import java.sql.Connection;
@@ -44,7 +44,7 @@ public class CrmApplication extends SpringBootServletInitializer {
     @Bean
     CommandLineRunner init(@Autowired(required = false) GoogleTokenRefreshScheduler tokenRefreshScheduler,
                            @Autowired DataSource dataSource,
-                           @Autowired UnifiedTransactionRebuildService rebuildService) {
+                           @Autowired UnifiedRebuildStartupService rebuildStartupService) {
         return args -> {
             MemoryDiagnostics.logMemoryUsage("CommandLineRunner init - Start");
 
@@ -75,19 +75,19 @@ public class CrmApplication extends SpringBootServletInitializer {
                 System.out.println("DIAGNOSTIC ERROR: " + e.getMessage());
             }
 
-            // ONE-TIME: Rebuild unified_allocations (table is empty, causing zero rent in Option C statements)
+            // Rebuild unified_transactions + unified_allocations only if the source data changed
             System.out.println("========================================");
-            System.out.println("REBUILDING unified_transactions + unified_allocations...");
+            System.out.println("CHECKING unified_transactions + unified_allocations...");
             System.out.println("========================================");
             try {
-                java.util.Map<String, Object> rebuildResult = rebuildService.rebuildComplete();
-                System.out.println("REBUILD RESULT: " + rebuildResult);
-                System.out.println("REBUILD STATUS: " + rebuildResult.get("status"));
-                System.out.println("Historical records: " + rebuildResult.get("historicalRecordsInserted"));
-                System.out.println("PayProp records: " + rebuildResult.get("paypropRecordsInserted"));
-                System.out.println("Synced allocations: " + rebuildResult.get("syncedAllocations"));
+                java.util.Map<String, Object> reconcileResult = rebuildStartupService.reconcileOnStartup();
+                System.out.println("UNIFIED DATA PLAN: " + reconcileResult.get("plan"));
+                System.out.println("Changed tables: " + reconcileResult.get("changedTables"));
+                if (reconcileResult.containsKey("incrementalResult")) {
+                    System.out.println("INCREMENTAL RESULT: " + reconcileResult.get("incrementalResult"));
+                }
             } catch (Exception e) {
-                System.out.println("REBUILD FAILED: " + e.getMessage());
+                System.out.println("REBUILD CHECK FAILED: " + e.getMessage());
                 e.printStackTrace();
             }
             System.out.println("========================================");
@@ -1,6 +1,5 @@
 package site.easy.to.build.crm.config;
 
-import com.google.common.util.concurrent.RateLimiter;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -8,6 +7,7 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.scheduling.annotation.EnableAsync;
 import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.core.task.TaskExecutor;
+import site.easy.to.build.crm.service.io.IntervalRateLimiter;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -63,11 +63,11 @@ public class TicketSyncConfig {
     }
     
     /**
-     * Rate limiter for PayProp API calls
+     * Rate limiter for PayProp API calls (lock-free, so waiting callers never pin a virtual thread)
      */
     @Bean("payPropTicketRateLimiter")
-    public RateLimiter payPropTicketRateLimiter() {
-        RateLimiter limiter = RateLimiter.create(rateLimitPerSecond);
+    public IntervalRateLimiter payPropTicketRateLimiter() {
+        IntervalRateLimiter limiter = IntervalRateLimiter.create(rateLimitPerSecond);
         log.info("🚦 PayProp ticket rate limiter configured: {} requests/second", rateLimitPerSecond);
         return limiter;
     }
@@ -0,0 +1,228 @@
+package site.easy.to.build.crm.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+
+/**
+ * Worker Pool Configuration
+ * Bounded thread pools for CPU/DB heavy background jobs (analytics, batch generation).
+ * Each job gets its own pool so one long-running job cannot starve another.
+ * Blocking Google and PayProp calls run on OutboundIo instead.
+ */
+@Configuration
+public class WorkerPoolConfig {
+
+    private static final Logger log = LoggerFactory.getLogger(WorkerPoolConfig.class);
+
+    @Value("${portfolio.analytics.workers:4}")
+    private int portfolioAnalyticsWorkers;
+
+    @Value("${portfolio.analytics.queue:500}")
+    private int portfolioAnalyticsQueue;
+
+    @Value("${pdf.rendering.workers:3}")
+    private int pdfRenderingWorkers;
+
+    @Value("${pdf.rendering.queue:200}")
+    private int pdfRenderingQueue;
+
+    @Value("${statements.bulk.workers:2}")
+    private int statementRunWorkers;
+
+    @Value("${statements.bulk.queue:100}")
+    private int statementRunQueue;
+
+    @Value("${payprop.webhook.inbox.workers:3}")
+    private int webhookInboxWorkers;
+
+    @Value("${payprop.raw-import.workers:3}")
+    private int rawImportWorkers;
+
+    /**
+     * Pool used by PortfolioAnalyticsEngine to compute portfolios in parallel.
+     * Work is in-memory only, so the pool is sized to CPU rather than to the Hikari pool.
+     */
+    @Bean("portfolioAnalyticsExecutor")
+    public TaskExecutor portfolioAnalyticsExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(portfolioAnalyticsWorkers);
+        executor.setMaxPoolSize(portfolioAnalyticsWorkers);
+        executor.setQueueCapacity(portfolioAnalyticsQueue);
+        executor.setThreadNamePrefix("PortfolioAnalytics-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("🔧 Portfolio analytics executor configured: workers={}, queue={}",
+            portfolioAnalyticsWorkers, portfolioAnalyticsQueue);
+
+        return executor;
+    }
+
+    /**
+     * Pool used by PdfRenderingService for html2pdf conversion.
+     * Bounds the number of concurrent conversions (each holds a full PDF in memory).
+     */
+    @Bean("pdfRenderingExecutor")
+    public TaskExecutor pdfRenderingExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(pdfRenderingWorkers);
+        executor.setMaxPoolSize(pdfRenderingWorkers);
+        executor.setQueueCapacity(pdfRenderingQueue);
+        executor.setThreadNamePrefix("PdfRender-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("🔧 PDF rendering executor configured: workers={}, queue={}",
+            pdfRenderingWorkers, pdfRenderingQueue);
+
+        return executor;
+    }
+
+    /**
+     * Pool used by MonthEndStatementRunService to render owner workbooks.
+     * Each worker holds a DB connection and a streaming workbook while it renders, so keep it small.
+     */
+    @Bean("statementRunExecutor")
+    public TaskExecutor statementRunExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(statementRunWorkers);
+        executor.setMaxPoolSize(statementRunWorkers);
+        executor.setQueueCapacity(statementRunQueue);
+        executor.setThreadNamePrefix("StatementRun-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("🔧 Statement run executor configured: workers={}, queue={}",
+            statementRunWorkers, statementRunQueue);
+
+        return executor;
+    }
+
+    /**
+     * Pool used by PayPropWebhookInboxService to apply queued webhook events, one entity per task.
+     * Every worker holds a DB connection while it applies an event, so keep it below the Hikari pool.
+     * The drainer waits for each batch, so the queue only needs to hold one batch of lanes.
+     */
+    @Bean("webhookInboxExecutor")
+    public TaskExecutor webhookInboxExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(webhookInboxWorkers);
+        executor.setMaxPoolSize(webhookInboxWorkers);
+        executor.setQueueCapacity(500);
+        executor.setThreadNamePrefix("WebhookInbox-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("🔧 Webhook inbox executor configured: workers={}", webhookInboxWorkers);
+
+        return executor;
+    }
+
+    /**
+     * Pool used by PayPropRawImportOrchestrator to run independent endpoint imports in parallel.
+     * Imports mostly wait on the PayProp API, whose request rate is shared by all of them, so a
+     * few workers are enough. Each import can hold two DB connections at once, so keep workers
+     * well below the Hikari pool.
+     */
+    @Bean("rawImportExecutor")
+    public TaskExecutor rawImportExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(rawImportWorkers);
+        executor.setMaxPoolSize(rawImportWorkers);
+        executor.setQueueCapacity(50);
+        executor.setThreadNamePrefix("RawImport-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("🔧 Raw import executor configured: workers={}", rawImportWorkers);
+
+        return executor;
+    }
+
+    /**
+     * Single worker for unified_transactions rebuilds (startup, PayProp sync and import events).
+     * Full and incremental rebuilds rewrite the same rows, so they run one at a time, in the
+     * order they were requested. Rebuild requests are rare; if the queue is ever full the request
+     * is dropped with a warning rather than run on the caller's thread next to the running one.
+     */
+    @Bean("unifiedRebuildExecutor")
+    public TaskExecutor unifiedRebuildExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(100);
+        executor.setThreadNamePrefix("UnifiedRebuild-");
+        executor.setRejectedExecutionHandler((task, pool) -> {
+            log.warn("⚠️ Unified rebuild queue full, dropping rebuild request");
+            // Anyone waiting on the dropped request gets a CancellationException instead of hanging
+            if (task instanceof Future<?> future) {
+                future.cancel(false);
+            }
+        });
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(60);
+        executor.initialize();
+
+        log.info("🔧 Unified rebuild executor configured: single worker");
+
+        return executor;
+    }
+
+    /**
+     * Single worker for lifecycle engine runs started outside the scheduler (the startup
+     * catch-up run), so they do not hold up application startup. The engine itself skips a
+     * run while another is in progress.
+     */
+    @Bean("lifecycleEngineExecutor")
+    public TaskExecutor lifecycleEngineExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("LifecycleEngine-");
+        executor.setWaitForTasksToCompleteOnShutdown(true);
+        executor.setAwaitTerminationSeconds(30);
+        executor.initialize();
+
+        log.info("🔧 Lifecycle engine executor configured: single worker");
+
+        return executor;
+    }
+
+    /**
+     * Single worker for the opt-in legacy file_data to blob store migration, which walks the
+     * file table one row at a time and should not compete with requests for connections.
+     */
+    @Bean("fileBlobMigrationExecutor")
+    public TaskExecutor fileBlobMigrationExecutor() {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(1);
+        executor.setMaxPoolSize(1);
+        executor.setQueueCapacity(10);
+        executor.setThreadNamePrefix("FileBlobMigration-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+
+        log.info("🔧 File blob migration executor configured: single worker");
+
+        return executor;
+    }
+}
@@ -7,7 +7,9 @@ import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.util.Pair;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -102,18 +104,32 @@ public class ContractController {
             return "error/access-denied";
         }
 
-        List<File> files = contract.getFiles();
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        // Content is linked, not embedded: /employee/contract/{id}/files/{fileId} streams it
+        List<File> attachments = contract.getFiles();
         model.addAttribute("contract", contract);
         model.addAttribute("attachments", attachments);
         return "contract/show-details";
     }
 
+    @GetMapping("/{contractId}/files/{fileId}")
+    public ResponseEntity<Resource> showFile(@PathVariable("contractId") int contractId, @PathVariable("fileId") int fileId,
+                                             Authentication authentication) {
+        Contract contract = contractService.findByContractId(contractId);
+        int userId = authenticationUtils.getLoggedInUserId(authentication);
+        User loggedInUser = userService.findById(Long.valueOf(userId));
+        if (contract == null || loggedInUser.isInactiveUser()) {
+            return ResponseEntity.notFound().build();
+        }
+        if (!AuthorizationUtil.checkIfUserAuthorized(contract.getUser(), loggedInUser) && !AuthorizationUtil.hasRole(authentication, "ROLE_MANAGER")) {
+            return ResponseEntity.status(403).build();
+        }
+        return contract.getFiles().stream()
+                .filter(file -> file.getFileId() == fileId)
+                .findFirst()
+                .map(fileUtil::contentResponse)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/manager/show-all")
     public String getAllContracts(Model model) {
         List<Contract> contracts = contractService.findAll();
@@ -289,12 +305,7 @@ public class ContractController {
 
         List<File> files = contract.getFiles();
 
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        List<Attachment> attachments = fileUtil.toAttachments(files);
 
         List<GoogleDriveFolder> folders = null;
 
@@ -357,12 +368,7 @@ public class ContractController {
 
             List<File> tempFiles = originalContract.getFiles();
 
-            List<Attachment> attachments = new ArrayList<>();
-            for (File file : tempFiles) {
-                String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-                Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-                attachments.add(attachment);
-            }
+            List<Attachment> attachments = fileUtil.toAttachments(tempFiles);
 
             List<GoogleDriveFolder> folders = null;
 
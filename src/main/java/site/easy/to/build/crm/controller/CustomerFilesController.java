@@ -1,8 +1,13 @@
 package site.easy.to.build.crm.controller;
 
-import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Controller;
@@ -19,13 +24,17 @@ import site.easy.to.build.crm.entity.Property;
 import site.easy.to.build.crm.repository.GoogleDriveFileRepository;
 import site.easy.to.build.crm.service.assignment.CustomerPropertyAssignmentService;
 import site.easy.to.build.crm.service.customer.CustomerService;
+import site.easy.to.build.crm.service.drive.CustomerDocumentIndexService;
+import site.easy.to.build.crm.service.drive.CustomerDocumentPage;
 import site.easy.to.build.crm.service.drive.CustomerDriveOrganizationService;
+import site.easy.to.build.crm.service.drive.DriveFileCache;
 import site.easy.to.build.crm.service.drive.SharedDriveFileService;
 import site.easy.to.build.crm.service.payprop.PayPropSyncOrchestrator;
 import site.easy.to.build.crm.service.sheets.GoogleSheetsStatementService;
 import site.easy.to.build.crm.util.AuthenticationUtils;
 
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDate;
 import java.util.*;
 import java.util.stream.Collectors;
@@ -42,6 +51,8 @@ public class CustomerFilesController {
     private final AuthenticationUtils authenticationUtils;
     private final GoogleDriveFileRepository googleDriveFileRepository;
     private final CustomerPropertyAssignmentService assignmentService;
+    private final DriveFileCache driveFileCache;
+    private final CustomerDocumentIndexService documentIndexService;
 
     @Autowired
     public CustomerFilesController(CustomerService customerService,
@@ -51,7 +62,9 @@ public class CustomerFilesController {
                                  GoogleSheetsStatementService googleSheetsStatementService,
                                  AuthenticationUtils authenticationUtils,
                                  GoogleDriveFileRepository googleDriveFileRepository,
-                                 CustomerPropertyAssignmentService assignmentService) {
+                                 CustomerPropertyAssignmentService assignmentService,
+                                 DriveFileCache driveFileCache,
+                                 CustomerDocumentIndexService documentIndexService) {
         this.customerService = customerService;
         this.customerDriveOrganizationService = customerDriveOrganizationService;
         this.sharedDriveFileService = sharedDriveFileService;
@@ -60,13 +73,18 @@ public class CustomerFilesController {
         this.authenticationUtils = authenticationUtils;
         this.googleDriveFileRepository = googleDriveFileRepository;
         this.assignmentService = assignmentService;
+        this.driveFileCache = driveFileCache;
+        this.documentIndexService = documentIndexService;
     }
 
     /**
      * Display customer files dashboard
      */
     @GetMapping("/{customerId}")
-    public String customerFilesDashboard(@PathVariable Long customerId, Model model, Authentication authentication) {
+    public String customerFilesDashboard(@PathVariable Long customerId,
+                                       @RequestParam(defaultValue = "0") int page,
+                                       @RequestParam(required = false) Integer size,
+                                       Model model, Authentication authentication) {
         try {
             OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
             Customer customer = customerService.findByCustomerId(customerId);
@@ -75,13 +93,10 @@ public class CustomerFilesController {
                 return "redirect:/customer/all-customers";
             }
 
-            // Get customer files by category
-            Map<String, List<GoogleDriveFile>> filesByCategory = getCustomerFilesByCategory(customer, oAuthUser);
-
-            // Get all files (flatten the category map)
-            List<GoogleDriveFile> allFiles = filesByCategory.values().stream()
-                .flatMap(List::stream)
-                .collect(java.util.stream.Collectors.toList());
+            // One page of the customer's own and property files, grouped by category
+            CustomerDocumentPage documentPage = documentIndexService.findVisibleDocuments(customerId, null, page, size);
+            Map<String, List<GoogleDriveFile>> filesByCategory = documentPage.getFilesByCategory();
+            List<GoogleDriveFile> allFiles = documentPage.getFiles();
 
             // Get folder structure (optional - may not be needed if using Shared Drive)
             CustomerDriveOrganizationService.CustomerFolderStructure folderStructure = null;
@@ -95,6 +110,8 @@ public class CustomerFilesController {
             model.addAttribute("customer", customer);
             model.addAttribute("filesByCategory", filesByCategory);
             model.addAttribute("allFiles", allFiles);
+            model.addAttribute("categoryCounts", documentPage.getCategoryCounts());
+            model.addAttribute("documentPage", documentPage);
             model.addAttribute("folderStructure", folderStructure);
             model.addAttribute("canGenerateStatements", canGenerateStatements(customer));
 
@@ -403,12 +420,15 @@ public class CustomerFilesController {
     }
 
     /**
-     * Get customer files by category (for AJAX requests)
+     * Get customer files by category (for AJAX requests), one page at a time.
+     * X-Total-Count and X-Total-Pages give the totals for the whole listing.
      */
     @GetMapping("/{customerId}/api/files")
     @ResponseBody
     public ResponseEntity<Map<String, List<GoogleDriveFile>>> getCustomerFilesApi(@PathVariable Long customerId,
                                                                                  @RequestParam(required = false) String category,
+                                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                                 @RequestParam(required = false) Integer size,
                                                                                  Authentication authentication) {
         try {
             OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
@@ -418,14 +438,18 @@ public class CustomerFilesController {
                 return ResponseEntity.badRequest().body(Map.of());
             }
             
-            Map<String, List<GoogleDriveFile>> filesByCategory = getCustomerFilesByCategory(customer, oAuthUser);
-            
+            // Pages are capped (customer.documents.max-page-size); a category filter keeps the response to that category
+            CustomerDocumentPage documentPage = documentIndexService.findVisibleDocuments(customerId, category, page, size);
+            Map<String, List<GoogleDriveFile>> filesByCategory = documentPage.getFilesByCategory();
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .header("X-Total-Count", String.valueOf(documentPage.getTotalFiles()))
+                .header("X-Total-Pages", String.valueOf(documentPage.getTotalPages()));
+
             if (category != null) {
-                List<GoogleDriveFile> categoryFiles = filesByCategory.get(category);
-                return ResponseEntity.ok(Map.of(category, categoryFiles != null ? categoryFiles : List.of()));
+                return response.body(Map.of(category, filesByCategory.getOrDefault(category, List.of())));
             }
             
-            return ResponseEntity.ok(filesByCategory);
+            return response.body(filesByCategory);
             
         } catch (Exception e) {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of());
@@ -436,7 +460,9 @@ public class CustomerFilesController {
      * Customer portal - view own files (for tenant/owner portals)
      */
     @GetMapping("/portal/my-files")
-    public String customerPortalFiles(Model model, Authentication authentication) {
+    public String customerPortalFiles(@RequestParam(defaultValue = "0") int page,
+                                      @RequestParam(required = false) Integer size,
+                                      Model model, Authentication authentication) {
         try {
             // This would be used in customer portals where customers log in
             // You'd need to get the customer from the customer authentication
@@ -447,11 +473,14 @@ public class CustomerFilesController {
             }
             
             // Get files based on customer access level
+            // Tenants only own files; owners also see the files of their properties
             CustomerType accessLevel = customer.getCustomerType();
-            List<GoogleDriveFile> accessibleFiles = customerDriveOrganizationService.getCustomerFiles(customer, null, accessLevel);
+            CustomerDocumentPage documentPage = documentIndexService.findVisibleDocuments(
+                customer.getCustomerId(), null, page, size, accessLevel == CustomerType.PROPERTY_OWNER);
             
             model.addAttribute("customer", customer);
-            model.addAttribute("files", accessibleFiles);
+            model.addAttribute("files", documentPage.getFiles());
+            model.addAttribute("documentPage", documentPage);
             model.addAttribute("accessLevel", accessLevel);
             
             return "customer-portal/my-files";
@@ -463,47 +492,6 @@ public class CustomerFilesController {
     }
 
     // Helper methods
-    private Map<String, List<GoogleDriveFile>> getCustomerFilesByCategory(Customer customer, OAuthUser oAuthUser) {
-        System.out.println("📂 Loading files for customer: " + customer.getCustomerId() + " (" + customer.getName() + ")");
-
-        // Get all properties owned by this customer
-        List<Property> customerProperties = assignmentService.getPropertiesForCustomer(customer.getCustomerId(), AssignmentType.OWNER);
-        System.out.println("📋 Found " + customerProperties.size() + " properties for customer");
-
-        // Collect all files from all customer properties
-        Map<String, List<GoogleDriveFile>> filesByCategory = new java.util.HashMap<>();
-
-        for (Property property : customerProperties) {
-            System.out.println("  📁 Loading files for property: " + property.getId() + " - " + property.getPropertyName());
-
-            // Get files for this property from the Shared Drive (via google_drive_file table)
-            List<GoogleDriveFile> propertyFiles = googleDriveFileRepository.findByPropertyIdAndIsActiveTrue(property.getId());
-            System.out.println("    ✅ Found " + propertyFiles.size() + " files");
-
-            // Group files by category
-            for (GoogleDriveFile file : propertyFiles) {
-                String category = file.getFileCategory() != null ? file.getFileCategory() : "Uncategorized";
-                filesByCategory.computeIfAbsent(category, k -> new java.util.ArrayList<>()).add(file);
-            }
-        }
-
-        // Also get files directly associated with the customer (not property-specific)
-        List<GoogleDriveFile> customerFiles = googleDriveFileRepository.findByCustomerIdAndIsActiveTrue(customer.getCustomerId().intValue());
-        System.out.println("  📄 Found " + customerFiles.size() + " customer-level files");
-
-        for (GoogleDriveFile file : customerFiles) {
-            String category = file.getFileCategory() != null ? file.getFileCategory() : "Uncategorized";
-            filesByCategory.computeIfAbsent(category, k -> new java.util.ArrayList<>()).add(file);
-        }
-
-        System.out.println("✅ Total files across " + filesByCategory.size() + " categories");
-        filesByCategory.forEach((cat, files) ->
-            System.out.println("  - " + cat + ": " + files.size() + " files")
-        );
-
-        return filesByCategory;
-    }
-
     private boolean canGenerateStatements(Customer customer) {
         return customer.getCustomerType() == CustomerType.PROPERTY_OWNER || 
                customer.getCustomerType() == CustomerType.TENANT;
@@ -517,43 +505,24 @@ public class CustomerFilesController {
 
     /**
      * Proxy file view through application (NEW - for inline viewing without Google auth)
+     * Served from the local Drive file cache, so PDF viewers get byte ranges and repeat
+     * views are answered with 304 Not Modified
      */
     @GetMapping("/proxy/view/{fileId}")
-    public void proxyFileView(@PathVariable String fileId,
-                              HttpServletResponse response,
-                              Authentication authentication) {
+    public ResponseEntity<Resource> proxyFileView(@PathVariable String fileId,
+                                                  Authentication authentication) {
         try {
             OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
 
             System.out.println("👁️ [Customer Files] Proxying file view: " + fileId);
 
-            // Get file metadata
-            Map<String, Object> metadata = sharedDriveFileService.getFileMetadata(fileId);
-            String fileName = (String) metadata.get("name");
-            String mimeType = (String) metadata.get("mimeType");
-            Long fileSize = (Long) metadata.get("size");
-
-            // Set response headers for inline viewing
-            response.setContentType(mimeType != null ? mimeType : "application/octet-stream");
-            response.setHeader("Content-Disposition", "inline; filename=\"" + fileName + "\"");
-            if (fileSize != null) {
-                response.setContentLengthLong(fileSize);
-            }
-
-            // Stream file content directly to response using service account
-            sharedDriveFileService.downloadFileContent(fileId, response.getOutputStream());
-            response.getOutputStream().flush();
-
-            System.out.println("✅ [Customer Files] Successfully proxied view for: " + fileName);
+            DriveFileCache.CachedDriveFile file = driveFileCache.get(fileId);
+            return proxyResponse(file, ContentDisposition.inline());
 
         } catch (Exception e) {
             System.err.println("❌ Error proxying file view: " + e.getMessage());
             e.printStackTrace();
-            try {
-                response.sendError(500, "Error viewing file: " + e.getMessage());
-            } catch (IOException ioException) {
-                // Already committed, can't send error
-            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
 
@@ -561,41 +530,39 @@ public class CustomerFilesController {
      * Proxy file download through application (NEW - bypasses Google authentication)
      */
     @GetMapping("/proxy/download/{fileId}")
-    public void proxyFileDownload(@PathVariable String fileId,
-                                  HttpServletResponse response,
-                                  Authentication authentication) {
+    public ResponseEntity<Resource> proxyFileDownload(@PathVariable String fileId,
+                                                      Authentication authentication) {
         try {
             OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
 
             System.out.println("📥 [Customer Files] Proxying file download: " + fileId);
 
-            // Get file metadata for proper HTTP headers
-            Map<String, Object> metadata = sharedDriveFileService.getFileMetadata(fileId);
-            String fileName = (String) metadata.get("name");
-            String mimeType = (String) metadata.get("mimeType");
-            Long fileSize = (Long) metadata.get("size");
-
-            // Set response headers
-            response.setContentType(mimeType != null ? mimeType : "application/octet-stream");
-            response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
-            if (fileSize != null) {
-                response.setContentLengthLong(fileSize);
-            }
-
-            // Stream file content directly to response using service account
-            sharedDriveFileService.downloadFileContent(fileId, response.getOutputStream());
-            response.getOutputStream().flush();
-
-            System.out.println("✅ [Customer Files] Successfully proxied file: " + fileName);
+            DriveFileCache.CachedDriveFile file = driveFileCache.get(fileId);
+            return proxyResponse(file, ContentDisposition.attachment());
 
         } catch (Exception e) {
             System.err.println("❌ Error proxying file download: " + e.getMessage());
             e.printStackTrace();
-            try {
-                response.sendError(500, "Error downloading file: " + e.getMessage());
-            } catch (IOException ioException) {
-                // Already committed, can't send error
-            }
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+
+    /**
+     * Response for a cached Drive file. Spring answers If-None-Match / If-Modified-Since
+     * with 304 and Range requests with 206 partial content for Resource bodies.
+     */
+    private ResponseEntity<Resource> proxyResponse(DriveFileCache.CachedDriveFile file,
+                                                   ContentDisposition.Builder disposition) {
+        String mimeType = file.getInfo().getMimeType();
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .contentType(mimeType != null ? MediaType.parseMediaType(mimeType) : MediaType.APPLICATION_OCTET_STREAM)
+            .header(HttpHeaders.CONTENT_DISPOSITION,
+                disposition.filename(file.getInfo().getName(), StandardCharsets.UTF_8).build().toString())
+            .cacheControl(CacheControl.noCache().cachePrivate())
+            .eTag(file.getETag());
+        if (file.getInfo().getModifiedTime() != null) {
+            response.lastModified(file.getInfo().getModifiedTime());
         }
+        return response.body(new FileSystemResource(file.getPath()));
     }
-}
\ No newline at end of file
+}
@@ -8,7 +8,6 @@ import org.springframework.validation.BindingResult;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
 import site.easy.to.build.crm.entity.*;
-import site.easy.to.build.crm.google.model.gmail.Attachment;
 import site.easy.to.build.crm.service.contract.ContractService;
 import site.easy.to.build.crm.service.customer.CustomerLoginInfoService;
 import site.easy.to.build.crm.service.customer.CustomerService;
@@ -19,11 +18,12 @@ import site.easy.to.build.crm.service.user.UserService;
 import site.easy.to.build.crm.service.financial.UnifiedFinancialDataService;
 import site.easy.to.build.crm.service.property.PropertyService;
 import site.easy.to.build.crm.util.AuthenticationUtils;
+import site.easy.to.build.crm.util.FileUtil;
+import org.springframework.core.io.Resource;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
 
 import java.util.ArrayList;
-import java.util.Base64;
 import java.util.List;
 import java.util.Objects;
 import java.util.Map;
@@ -42,8 +42,9 @@ public class CustomerProfileController {
     private final FileService fileService;
     private final UnifiedFinancialDataService unifiedFinancialDataService;
     private final PropertyService propertyService;
+    private final FileUtil fileUtil;
 
-    public CustomerProfileController(CustomerService customerService, AuthenticationUtils authenticationUtils, CustomerLoginInfoService customerLoginInfoService, UserService userService, TicketService ticketService, ContractService contractService, LeadService leadService, FileService fileService, UnifiedFinancialDataService unifiedFinancialDataService, PropertyService propertyService) {
+    public CustomerProfileController(CustomerService customerService, AuthenticationUtils authenticationUtils, CustomerLoginInfoService customerLoginInfoService, UserService userService, TicketService ticketService, ContractService contractService, LeadService leadService, FileService fileService, UnifiedFinancialDataService unifiedFinancialDataService, PropertyService propertyService, FileUtil fileUtil) {
         this.customerService = customerService;
         this.authenticationUtils = authenticationUtils;
         this.customerLoginInfoService = customerLoginInfoService;
@@ -54,6 +55,7 @@ public class CustomerProfileController {
         this.fileService = fileService;
         this.unifiedFinancialDataService = unifiedFinancialDataService;
         this.propertyService = propertyService;
+        this.fileUtil = fileUtil;
     }
 
     @GetMapping("/profile")
@@ -154,17 +156,21 @@ public class CustomerProfileController {
             return "error/not-found";
         }
 
-        List<File> files = lead.getFiles();
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        // Content is linked, not embedded: /customer/lead/{id}/files/{fileId} streams it
+        List<File> attachments = lead.getFiles();
         model.addAttribute("lead",lead);
         model.addAttribute("attachments",attachments);
         return "customer-info/lead-detail";
     }
+
+    @GetMapping("/lead/{id}/files/{fileId}")
+    public ResponseEntity<Resource> showLeadFile(@PathVariable("id") int id, @PathVariable("fileId") int fileId) {
+        Lead lead = leadService.findByLeadId(id);
+        if (lead == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return fileContent(lead.getFiles(), fileId);
+    }
     @GetMapping("/contract/{id}")
     public String showContractDetails(@PathVariable("id") int id, Model model) {
         Contract contract = contractService.findByContractId(id);
@@ -173,18 +179,30 @@ public class CustomerProfileController {
             return "error/not-found";
         }
 
-        List<File> files = contract.getFiles();
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        // Content is linked, not embedded: /customer/contract/{id}/files/{fileId} streams it
+        List<File> attachments = contract.getFiles();
         model.addAttribute("contract",contract);
         model.addAttribute("attachments",attachments);
         return "customer-info/contract-detail";
     }
 
+    @GetMapping("/contract/{id}/files/{fileId}")
+    public ResponseEntity<Resource> showContractFile(@PathVariable("id") int id, @PathVariable("fileId") int fileId) {
+        Contract contract = contractService.findByContractId(id);
+        if (contract == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return fileContent(contract.getFiles(), fileId);
+    }
+
+    private ResponseEntity<Resource> fileContent(List<File> files, int fileId) {
+        return files.stream()
+                .filter(file -> file.getFileId() == fileId)
+                .findFirst()
+                .map(fileUtil::contentResponse)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     /**
      * Get financial summary for customer's properties
      * GET /customer/my-properties/financial
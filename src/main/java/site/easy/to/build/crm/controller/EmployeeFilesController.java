@@ -9,6 +9,8 @@ import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
+import site.easy.to.build.crm.service.drive.CustomerDocumentIndexService;
+import site.easy.to.build.crm.service.drive.CustomerDocumentPage;
 import site.easy.to.build.crm.service.drive.SharedDriveFileService;
 import site.easy.to.build.crm.service.customer.CustomerService;
 
@@ -31,12 +33,15 @@ public class EmployeeFilesController {
 
     private final SharedDriveFileService sharedDriveFileService;
     private final CustomerService customerService;
+    private final CustomerDocumentIndexService documentIndexService;
 
     @Autowired
     public EmployeeFilesController(SharedDriveFileService sharedDriveFileService,
-                                   CustomerService customerService) {
+                                   CustomerService customerService,
+                                   CustomerDocumentIndexService documentIndexService) {
         this.sharedDriveFileService = sharedDriveFileService;
         this.customerService = customerService;
+        this.documentIndexService = documentIndexService;
     }
 
     /**
@@ -87,6 +92,42 @@ public class EmployeeFilesController {
         }
     }
 
+    /**
+     * Documents visible to a customer (own files plus their properties' files), one page at a time
+     */
+    @GetMapping("/customer/{customerId}/documents")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> customerDocuments(@PathVariable Long customerId,
+                                                                 @RequestParam(required = false) String category,
+                                                                 @RequestParam(defaultValue = "0") int page,
+                                                                 @RequestParam(required = false) Integer size,
+                                                                 Authentication authentication) {
+        try {
+            ensureEmployeeAccess(authentication);
+
+            CustomerDocumentPage documents = documentIndexService.findVisibleDocuments(customerId, category, page, size);
+
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", true);
+            response.put("customerId", customerId);
+            response.put("filesByCategory", documents.getFilesByCategory());
+            response.put("categoryCounts", documents.getCategoryCounts());
+            response.put("page", documents.getPage());
+            response.put("size", documents.getSize());
+            response.put("totalFiles", documents.getTotalFiles());
+            response.put("totalPages", documents.getTotalPages());
+
+            return ResponseEntity.ok(response);
+
+        } catch (Exception e) {
+            System.err.println("❌ Error loading customer documents: " + e.getMessage());
+            return ResponseEntity.status(500).body(Map.of(
+                "success", false,
+                "error", "Error loading customer documents: " + e.getMessage()
+            ));
+        }
+    }
+
     /**
      * Browse property subfolders (EICR, EPC, Insurance, etc.)
      */
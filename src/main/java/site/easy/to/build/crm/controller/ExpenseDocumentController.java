@@ -9,6 +9,9 @@ import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
@@ -29,6 +32,8 @@ import java.time.format.DateTimeFormatter;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Controller for expense document management.
@@ -88,6 +93,27 @@ public class ExpenseDocumentController {
         }
     }
 
+    /**
+     * Download expense invoice PDFs for several transactions as one ZIP.
+     */
+    @GetMapping("/invoice/pdf/zip")
+    public void downloadExpenseInvoicePdfZip(@RequestParam List<Long> transactionIds, Authentication authentication,
+                                             HttpServletResponse response) throws IOException {
+
+        log.info("Generating expense invoice PDF ZIP for {} transactions", transactionIds.size());
+
+        if (!canAccessTransactions(transactionIds, authentication)) {
+            log.warn("Expense invoice ZIP denied for {}: transactions outside the user's properties",
+                authentication != null ? authentication.getName() : "anonymous");
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access denied");
+            return;
+        }
+
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"ExpenseInvoices.zip\"");
+        expenseInvoiceService.exportToPdfZip(transactionIds, response.getOutputStream());
+    }
+
     /**
      * View expense invoice PDF inline (for preview).
      */
@@ -347,6 +373,58 @@ public class ExpenseDocumentController {
 
     // ===== HELPER METHODS =====
 
+    /**
+     * Staff can access every transaction; property owners only those on their own properties,
+     * delegated users and managers only those on the properties of the owner they manage.
+     */
+    private boolean canAccessTransactions(List<Long> transactionIds, Authentication authentication) {
+        if (authentication == null) {
+            return false;
+        }
+        for (GrantedAuthority authority : authentication.getAuthorities()) {
+            String auth = authority.getAuthority();
+            if ("ROLE_MANAGER".equals(auth) || "ROLE_EMPLOYEE".equals(auth) || "ROLE_ADMIN".equals(auth)) {
+                return true;
+            }
+        }
+
+        Customer customer = getCurrentCustomer(authentication);
+        if (customer == null) {
+            return false;
+        }
+        Long ownerId = null;
+        if (customer.getCustomerType() == CustomerType.PROPERTY_OWNER) {
+            ownerId = customer.getCustomerId();
+        } else if ((customer.getCustomerType() == CustomerType.DELEGATED_USER
+                || customer.getCustomerType() == CustomerType.MANAGER) && customer.getManagesOwner() != null) {
+            ownerId = customer.getManagesOwner().getCustomerId();
+        }
+        if (ownerId == null) {
+            return false;
+        }
+
+        Set<Long> ownerPropertyIds = propertyService.getPropertiesByOwner(ownerId).stream()
+                .map(Property::getId)
+                .collect(Collectors.toSet());
+        List<UnifiedTransaction> transactions = unifiedTransactionRepository.findAllById(transactionIds);
+        return transactions.size() == Set.copyOf(transactionIds).size()
+                && transactions.stream().allMatch(t -> ownerPropertyIds.contains(t.getPropertyId()));
+    }
+
+    /**
+     * Get the logged-in customer (portal login or Google account) by email.
+     */
+    private Customer getCurrentCustomer(Authentication authentication) {
+        Object principal = authentication.getPrincipal();
+        String email = null;
+        if (principal instanceof OAuth2User) {
+            email = ((OAuth2User) principal).getAttribute("email");
+        } else if (principal instanceof UserDetails) {
+            email = ((UserDetails) principal).getUsername();
+        }
+        return email != null ? customerService.findByEmail(email) : null;
+    }
+
     /**
      * Get current user ID from authentication.
      */
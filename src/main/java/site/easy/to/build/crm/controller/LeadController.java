@@ -7,6 +7,7 @@ import jakarta.annotation.Nullable;
 import jakarta.persistence.EntityManager;
 import org.springframework.beans.BeanUtils;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.Resource;
 import org.springframework.data.util.Pair;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
@@ -114,13 +115,8 @@ public class LeadController {
 
         EventDisplay eventDisplay = null;
         String eventId = lead.getMeetingId();
-        List<File> files = fileService.findByLeadId(id);
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        // Content is linked, not embedded: /employee/lead/{id}/files/{fileId} streams it
+        List<File> attachments = fileService.findByLeadId(id);
         if (!(authentication instanceof UsernamePasswordAuthenticationToken) && eventId != null && !eventId.isEmpty() && googleCalendarApiService != null) {
             OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
             try {
@@ -143,6 +139,25 @@ public class LeadController {
         return "lead/show-details";
     }
 
+    @GetMapping("/{leadId}/files/{fileId}")
+    public ResponseEntity<Resource> showFile(@PathVariable("leadId") int leadId, @PathVariable("fileId") int fileId,
+                                             Authentication authentication) {
+        int userId = authenticationUtils.getLoggedInUserId(authentication);
+        User loggedInUser = userService.findById(Long.valueOf(userId));
+        Lead lead = leadService.findByLeadId(leadId);
+        if (loggedInUser.isInactiveUser() || lead == null) {
+            return ResponseEntity.notFound().build();
+        }
+        if(!AuthorizationUtil.hasRole(authentication, "ROLE_MANAGER") && !AuthorizationUtil.checkIfUserAuthorized(lead.getEmployee(),loggedInUser)) {
+            return ResponseEntity.status(403).build();
+        }
+        return fileService.findByLeadId(leadId).stream()
+                .filter(file -> file.getFileId() == fileId)
+                .findFirst()
+                .map(fileUtil::contentResponse)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
     @GetMapping("/assigned-leads")
     public String showAssignedEmployeeLeads(Authentication authentication, Model model) {
         int userId = authenticationUtils.getLoggedInUserId(authentication);
@@ -287,12 +302,7 @@ public class LeadController {
 
         List<File> files = lead.getFiles();
 
-        List<Attachment> attachments = new ArrayList<>();
-        for (File file : files) {
-            String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-            Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-            attachments.add(attachment);
-        }
+        List<Attachment> attachments = fileUtil.toAttachments(files);
 
         List<GoogleDriveFolder> folders = null;
 
@@ -390,12 +400,7 @@ public class LeadController {
             lead.setCustomer(tempLead.getCustomer());
             List<File> filesArray = tempLead.getFiles();
 
-            List<Attachment> attachments = new ArrayList<>();
-            for (File file : filesArray) {
-                String base64Data = Base64.getEncoder().encodeToString(file.getFileData());
-                Attachment attachment = new Attachment(file.getFileName(), base64Data, file.getFileType());
-                attachments.add(attachment);
-            }
+            List<Attachment> attachments = fileUtil.toAttachments(filesArray);
 
             List<GoogleDriveFolder> folders = null;
 
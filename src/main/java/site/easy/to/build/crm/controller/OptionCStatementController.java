@@ -13,6 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 import site.easy.to.build.crm.service.statement.ExcelStatementGeneratorService;
+import site.easy.to.build.crm.service.statement.MonthEndStatementRunService;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
@@ -36,6 +37,8 @@ import java.time.format.DateTimeFormatter;
  * Endpoints:
  * - GET /api/statements/option-c/owner/{customerId}/excel - Statement for specific customer
  * - GET /api/statements/option-c/all/excel - Statement for all customers
+ * - POST /api/statements/option-c/month-end/run - Start month-end run (one file per owner)
+ * - GET /api/statements/option-c/month-end/status - Progress of the current/last month-end run
  * - GET /api/statements/option-c/health - Health check
  */
 @RestController
@@ -47,6 +50,9 @@ public class OptionCStatementController {
     @Autowired
     private ExcelStatementGeneratorService excelGenerator;
 
+    @Autowired
+    private MonthEndStatementRunService monthEndRunService;
+
     /**
      * Log current memory usage for debugging
      */
@@ -334,6 +340,52 @@ public class OptionCStatementController {
         return generateOwnerStatement(customerId, startDate, endDate, periodStartDay, statementFrequency);
     }
 
+    /**
+     * Start the month-end run: one statement file per property owner, written to the server's
+     * statement run directory. Runs in the background; poll /month-end/status for progress.
+     * Re-running the same period resumes where a previous run stopped unless force=true.
+     *
+     * Example: POST /api/statements/option-c/month-end/run?periodStart=2025-01-01&periodEnd=2025-01-31&zip=true
+     *
+     * @param periodStart Statement period start (default: first day of last month)
+     * @param periodEnd Statement period end (default: last day of last month)
+     * @param zip Zip the run directory when done
+     * @param force Regenerate every owner, ignoring the previous run's manifest
+     * @return 202 with the run status, or 409 if a run is already in progress
+     */
+    @PostMapping("/month-end/run")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<?> startMonthEndRun(
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodStart,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate periodEnd,
+            @RequestParam(defaultValue = "false") boolean zip,
+            @RequestParam(defaultValue = "false") boolean force) {
+
+        LocalDate lastMonth = LocalDate.now().minusMonths(1);
+        LocalDate start = periodStart != null ? periodStart : lastMonth.withDayOfMonth(1);
+        LocalDate end = periodEnd != null ? periodEnd : lastMonth.withDayOfMonth(lastMonth.lengthOfMonth());
+
+        try {
+            return ResponseEntity.accepted().body(monthEndRunService.startRun(start, end, zip, force));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(monthEndRunService.getStatus());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Progress of the month-end run in progress, or the result of the last one.
+     *
+     * Example: GET /api/statements/option-c/month-end/status
+     */
+    @GetMapping("/month-end/status")
+    @PreAuthorize("hasAnyRole('ADMIN', 'MANAGER')")
+    public ResponseEntity<MonthEndStatementRunService.RunReport> monthEndRunStatus() {
+        MonthEndStatementRunService.RunReport report = monthEndRunService.getStatus();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
     /**
      * Health check endpoint for Option C statement generation
      *
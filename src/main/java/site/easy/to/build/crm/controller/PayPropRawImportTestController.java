@@ -6,6 +6,7 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.http.ResponseEntity;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import site.easy.to.build.crm.service.payprop.raw.PayPropRawImportGraph;
 import site.easy.to.build.crm.service.payprop.raw.PayPropRawImportOrchestrator;
 import site.easy.to.build.crm.service.payprop.raw.PayPropRawImportOrchestrator.PayPropRawImportOrchestrationResult;
 import site.easy.to.build.crm.service.payprop.raw.PayPropRawPropertiesImportService;
@@ -15,6 +16,7 @@ import site.easy.to.build.crm.service.payprop.business.PropertyRentCalculationSe
 import site.easy.to.build.crm.service.payprop.business.PropertyRentCalculationResult;
 
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 /**
@@ -61,6 +63,7 @@ public class PayPropRawImportTestController {
             response.put("duration_seconds", result.getDuration().getSeconds());
             response.put("import_results", result.getImportResults());
             response.put("rent_calculation", result.getRentCalculationResult());
+            response.put("graph", graphRunSummary(result.getGraphRun()));
             
             if (result.isSuccess()) {
                 response.put("message", "✅ £995 vs £1,075 mystery SOLVED! Check logs for details.");
@@ -81,6 +84,39 @@ public class PayPropRawImportTestController {
         }
     }
     
+    /**
+     * Rerun only the endpoints that failed (or were skipped) in the last complete import
+     */
+    @PostMapping("/resume")
+    public ResponseEntity<Map<String, Object>> resumeFailedImport() {
+        log.info("🧪 TESTING: Resuming failed PayProp raw import");
+        
+        try {
+            PayPropRawImportOrchestrationResult result = orchestrator.resumeFailedImport();
+            
+            Map<String, Object> response = new HashMap<>();
+            response.put("success", result.isSuccess());
+            response.put("summary", result.getSummary());
+            response.put("duration_seconds", result.getDuration().getSeconds());
+            response.put("import_results", result.getImportResults());
+            response.put("graph", graphRunSummary(result.getGraphRun()));
+            
+            if (result.isSuccess()) {
+                return ResponseEntity.ok(response);
+            } else {
+                response.put("error", result.getErrorMessage());
+                return ResponseEntity.internalServerError().body(response);
+            }
+            
+        } catch (Exception e) {
+            log.error("❌ TEST EXCEPTION: Resume of raw import failed", e);
+            Map<String, Object> errorResponse = new HashMap<>();
+            errorResponse.put("success", false);
+            errorResponse.put("error", e.getMessage());
+            return ResponseEntity.internalServerError().body(errorResponse);
+        }
+    }
+    
     /**
      * Test raw data import only (no business logic)
      */
@@ -234,12 +270,14 @@ public class PayPropRawImportTestController {
             response.put("message", "Raw import system is ready for testing");
             response.put("endpoints", Map.of(
                 "complete", "POST /test/payprop-raw/complete - Full end-to-end test",
+                "resume", "POST /test/payprop-raw/resume - Rerun failed endpoints of the last import",
                 "raw-only", "POST /test/payprop-raw/raw-only - Import raw data only", 
                 "business-logic", "POST /test/payprop-raw/business-logic-only - Calculate rent decisions",
                 "properties", "POST /test/payprop-raw/properties - Import properties (£995)",
                 "invoices", "POST /test/payprop-raw/invoices - Import invoices (£1,075)"
             ));
             response.put("ready", true);
+            response.put("last_graph_run", graphRunSummary(orchestrator.getLastGraphRun()));
             
             return ResponseEntity.ok(response);
             
@@ -250,4 +288,27 @@ public class PayPropRawImportTestController {
             return ResponseEntity.internalServerError().body(response);
         }
     }
-}
\ No newline at end of file
+    
+    /**
+     * Per-endpoint status and timings of a raw import graph run
+     */
+    private Map<String, Object> graphRunSummary(PayPropRawImportGraph.GraphRun graphRun) {
+        if (graphRun == null) {
+            return null;
+        }
+        Map<String, Object> endpoints = new LinkedHashMap<>();
+        for (PayPropRawImportGraph.NodeRun run : graphRun.getNodeRuns().values()) {
+            endpoints.put(run.getName(), Map.of(
+                "status", run.getStatus().name(),
+                "started_at_ms", run.getStartedAtMillis(),
+                "duration_ms", run.getDurationMillis()));
+        }
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("endpoints", endpoints);
+        summary.put("wall_clock_ms", graphRun.getWallClockMillis());
+        summary.put("sequential_ms", graphRun.getSequentialMillis());
+        summary.put("critical_path", graphRun.getCriticalPath());
+        summary.put("critical_path_ms", graphRun.getCriticalPathMillis());
+        return summary;
+    }
+}
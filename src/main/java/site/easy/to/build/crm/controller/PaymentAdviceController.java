@@ -1,5 +1,6 @@
 package site.easy.to.build.crm.controller;
 
+import jakarta.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,10 +19,14 @@ import site.easy.to.build.crm.entity.Customer;
 import site.easy.to.build.crm.entity.CustomerType;
 import site.easy.to.build.crm.entity.PaymentBatch;
 import site.easy.to.build.crm.repository.CustomerRepository;
+import site.easy.to.build.crm.repository.PaymentBatchRepository;
 import site.easy.to.build.crm.service.payment.PaymentAdviceService;
 
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 /**
  * Controller for Payment Advice generation and viewing.
@@ -39,6 +44,9 @@ public class PaymentAdviceController {
     @Autowired
     private CustomerRepository customerRepository;
 
+    @Autowired
+    private PaymentBatchRepository paymentBatchRepository;
+
     /**
      * List available payment batches for selection.
      * Respects user access: delegated users only see their assigned owner.
@@ -128,19 +136,7 @@ public class PaymentAdviceController {
      * - Delegated User/Manager: Only their assigned owner
      */
     private List<Customer> getAccessibleOwners(Customer currentUser, Authentication authentication) {
-        // Check if user is admin/employee (has ROLE_MANAGER or ROLE_EMPLOYEE)
-        boolean isStaff = false;
-        if (authentication != null) {
-            for (GrantedAuthority authority : authentication.getAuthorities()) {
-                String auth = authority.getAuthority();
-                if ("ROLE_MANAGER".equals(auth) || "ROLE_EMPLOYEE".equals(auth) || "ROLE_ADMIN".equals(auth)) {
-                    isStaff = true;
-                    break;
-                }
-            }
-        }
-
-        if (isStaff) {
+        if (isStaff(authentication)) {
             // Staff can see all property owners
             log.info("Staff user - showing all property owners");
             return customerRepository.findByCustomerType(CustomerType.PROPERTY_OWNER);
@@ -177,6 +173,21 @@ public class PaymentAdviceController {
         return List.of();
     }
 
+    /**
+     * Check if user is admin/employee (has ROLE_MANAGER, ROLE_EMPLOYEE or ROLE_ADMIN).
+     */
+    private boolean isStaff(Authentication authentication) {
+        if (authentication != null) {
+            for (GrantedAuthority authority : authentication.getAuthorities()) {
+                String auth = authority.getAuthority();
+                if ("ROLE_MANAGER".equals(auth) || "ROLE_EMPLOYEE".equals(auth) || "ROLE_ADMIN".equals(auth)) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
     /**
      * View a single payment advice for a batch.
      */
@@ -226,6 +237,57 @@ public class PaymentAdviceController {
         }
     }
 
+    /**
+     * Export several payment advices as a ZIP of PDFs.
+     * Either pass batchIds explicitly or an ownerId to export every batch for that owner.
+     * The ZIP is streamed to the response while documents are still rendering.
+     */
+    @GetMapping("/pdf/zip")
+    public void exportPdfZip(
+            @RequestParam(required = false) List<String> batchIds,
+            @RequestParam(required = false) Long ownerId,
+            Authentication authentication,
+            HttpServletResponse response) throws IOException {
+
+        // Only staff may export batches of any owner; others are limited to their accessible owners
+        if (!isStaff(authentication)) {
+            Customer currentUser = getCurrentCustomer(authentication);
+            Set<Long> accessibleOwnerIds = getAccessibleOwners(currentUser, authentication).stream()
+                .map(owner -> owner.getCustomerId().longValue())
+                .collect(Collectors.toSet());
+            boolean allowed = ownerId == null || accessibleOwnerIds.contains(ownerId);
+            if (allowed && batchIds != null) {
+                allowed = batchIds.stream().allMatch(batchId -> paymentBatchRepository.findByBatchId(batchId)
+                    .map(batch -> accessibleOwnerIds.contains(batch.getBeneficiaryId()))
+                    .orElse(false));
+            }
+            if (!allowed) {
+                log.warn("User {} attempted to export payment advices (owner: {}, batches: {}) without permission",
+                    currentUser != null ? currentUser.getCustomerId() : "unknown", ownerId, batchIds);
+                response.sendError(HttpServletResponse.SC_FORBIDDEN, "Access denied");
+                return;
+            }
+        }
+
+        List<String> ids = batchIds != null ? batchIds : new ArrayList<>();
+        if (ids.isEmpty() && ownerId != null) {
+            for (PaymentBatch batch : paymentAdviceService.getBatchesForOwner(ownerId)) {
+                ids.add(batch.getBatchId());
+            }
+        }
+        if (ids.isEmpty()) {
+            response.sendError(HttpServletResponse.SC_BAD_REQUEST, "No payment batches selected");
+            return;
+        }
+
+        log.info("Exporting PDF ZIP for {} batches (owner: {})", ids.size(), ownerId);
+
+        String filename = ownerId != null ? "PaymentAdvices_" + ownerId + ".zip" : "PaymentAdvices.zip";
+        response.setContentType("application/zip");
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"");
+        paymentAdviceService.exportToPdfZip(ids, response.getOutputStream());
+    }
+
     /**
      * Export payment advice as Excel.
      */
@@ -42,9 +42,10 @@ public class TenantCustomerLinkController {
             Map<String, Object> response = new HashMap<>();
             response.put("success", true);
             response.put("status", status);
-            response.put("message", String.format("%d tenants unlinked (%d can be linked, %d no match)",
+            response.put("message", String.format("%d tenants unlinked (%d can be linked, %d ambiguous, %d no match)",
                 status.get("unlinked"),
                 status.get("unlinkedWithMatchAvailable"),
+                status.get("unlinkedAmbiguous"),
                 status.get("unlinkedWithNoMatch")));
 
             return ResponseEntity.ok(response);
@@ -77,9 +78,12 @@ public class TenantCustomerLinkController {
                 "newlyLinked", result.getNewlyLinked(),
                 "alreadyLinked", result.getAlreadyLinked(),
                 "noMatch", result.getNoMatchingCustomer(),
+                "ambiguous", result.getAmbiguous(),
                 "errors", result.getErrors(),
                 "durationMs", result.getDurationMs()
             ));
+            response.put("unmatchedPayPropIds", result.getUnmatchedPayPropIds());
+            response.put("ambiguousPayPropIds", result.getAmbiguousPayPropIds());
 
             if (result.isSuccess()) {
                 log.info("✅ Linking completed successfully: {}", result.getSummary());
@@ -27,6 +27,7 @@ import site.easy.to.build.crm.util.*;
 import site.easy.to.build.crm.service.contractor.ContractorBidService;
 import site.easy.to.build.crm.service.payprop.PayPropMaintenanceSyncService;
 import site.easy.to.build.crm.service.payprop.PayPropMaintenanceCategoryService;
+import site.easy.to.build.crm.service.payprop.PayPropTicketMessageService;
 import site.easy.to.build.crm.repository.PaymentCategoryRepository;
 
 import java.io.IOException;
@@ -67,6 +68,9 @@ public class TicketController {
     @Autowired
     private PaymentCategoryRepository paymentCategoryRepository;
 
+    @Autowired
+    private PayPropTicketMessageService ticketMessageService;
+
     // Update constructor to include PropertyService
     @Autowired
     public TicketController(TicketService ticketService, AuthenticationUtils authenticationUtils, 
@@ -140,6 +144,7 @@ public class TicketController {
             System.out.println("   - Ticket manager: " + (ticket.getManager() != null ? ticket.getManager().getUsername() : "NULL"));
 
             model.addAttribute("ticket", ticket);
+            model.addAttribute("ticketMessages", ticketMessageService.getMessages(ticket));
             System.out.println("✅ Step 5: Model prepared");
 
             System.out.println("🔍 Step 6: Returning template view...");
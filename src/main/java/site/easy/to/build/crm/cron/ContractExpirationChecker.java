@@ -1,62 +1,36 @@
 package site.easy.to.build.crm.cron;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
-import site.easy.to.build.crm.entity.Contract;
-import site.easy.to.build.crm.service.contract.ContractService;
+import site.easy.to.build.crm.service.lifecycle.LifecycleEngineService;
 
 import java.time.LocalDate;
-import java.util.List;
 
+/**
+ * Nightly run of the lifecycle engine: contract expiry, lease end, instruction close and
+ * overdue vacancy tasks are applied from its due-date queue.
+ */
 @Component
 public class ContractExpirationChecker {
 
-    private final ContractService contractService;
+    private static final Logger log = LoggerFactory.getLogger(ContractExpirationChecker.class);
+
+    private final LifecycleEngineService lifecycleEngineService;
 
     @Autowired
-    public ContractExpirationChecker(ContractService contractService) {
-        this.contractService = contractService;
+    public ContractExpirationChecker(LifecycleEngineService lifecycleEngineService) {
+        this.lifecycleEngineService = lifecycleEngineService;
     }
 
-    @Scheduled(cron = "0 0 0 * * *") // Daily at midnight
-    public void scheduleContractExpirationCheck() { // ✅ No parameters
-        System.out.println("🔍 Starting daily contract expiration check...");
-        
-        LocalDate currentDate = LocalDate.now();
-        List<Contract> allContracts = contractService.findAll();
-        
-        int checkedCount = 0;
-        int expiredCount = 0;
-        int validCount = 0;
-        
-        for (Contract contract : allContracts) {
-            // Only check active contracts
-            if (!"active".equals(contract.getStatus())) {
-                continue;
-            }
-            
-            checkedCount++;
-            LocalDate endDate = LocalDate.parse(contract.getEndDate());
-            
-            if (currentDate.isAfter(endDate)) {
-                // Contract has expired - update status
-                contract.setStatus("expired");
-                contractService.save(contract);
-                expiredCount++;
-                
-                System.out.println("❌ Contract expired: " + contract.getContractId() + 
-                    " (Subject: " + contract.getSubject() + ", End Date: " + endDate + ")");
-            } else {
-                validCount++;
-                System.out.println("✅ Contract still valid: " + contract.getContractId() + 
-                    " (Expires: " + endDate + ")");
-            }
-        }
-        
-        System.out.println("📊 Contract expiration check completed:");
-        System.out.println("   Total active contracts checked: " + checkedCount);
-        System.out.println("   Contracts expired: " + expiredCount);
-        System.out.println("   Contracts still valid: " + validCount);
+    @Scheduled(cron = "${lifecycle.engine.cron:0 0 0 * * *}") // Daily at midnight
+    public void scheduleContractExpirationCheck() {
+        log.info("🔍 Starting daily lifecycle transitions run...");
+
+        int applied = lifecycleEngineService.run(LocalDate.now());
+
+        log.info("📊 Lifecycle transitions run completed: {} transitions applied", applied);
     }
-}
\ No newline at end of file
+}
@@ -4,13 +4,19 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import site.easy.to.build.crm.customValidations.FutureDate;
 import site.easy.to.build.crm.customValidations.contract.StartDateBeforeEndDate;
+import site.easy.to.build.crm.service.lifecycle.LifecycleScheduleEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "trigger_contract")
+@Table(name = "trigger_contract",
+    indexes = {
+        @Index(name = "idx_contract_status_end_date", columnList = "status, end_date")
+    }
+)
+@EntityListeners(LifecycleScheduleEntityListener.class)
 @StartDateBeforeEndDate
 public class Contract {
     @Id
@@ -16,9 +16,11 @@ import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.Map;
 import java.util.HashMap;
+import site.easy.to.build.crm.service.property.PropertyAccessScopeEntityListener;
 
 @Entity
 @Table(name = "customers")
+@EntityListeners(PropertyAccessScopeEntityListener.class)
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "customerId")
 public class Customer {
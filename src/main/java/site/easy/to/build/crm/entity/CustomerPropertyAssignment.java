@@ -4,9 +4,11 @@ import jakarta.persistence.*;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import site.easy.to.build.crm.service.property.PropertyAccessScopeEntityListener;
 
 @Entity
 @Table(name = "customer_property_assignments")
+@EntityListeners(PropertyAccessScopeEntityListener.class)
 public class CustomerPropertyAssignment {
     
     @Id
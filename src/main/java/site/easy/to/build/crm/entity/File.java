@@ -13,8 +13,20 @@ public class File {
     @Column(name = "file_name")
     private String fileName;
 
-    @Lob
-    @Column(name = "file_data")
+    /**
+     * SHA-256 of the content in the BlobStore. Null for rows whose bytes are still in the
+     * legacy file_data column (not mapped any more, read over JDBC by FileServiceImpl).
+     */
+    @Column(name = "content_hash", length = 64)
+    private String contentHash;
+
+    @Column(name = "file_size")
+    private Long fileSize;
+
+    /**
+     * Bytes of a file on its way to Google Drive; never persisted.
+     */
+    @Transient
     private byte[] fileData;
 
     @Column(name = "file_type")
@@ -31,16 +43,14 @@ public class File {
     public File() {
     }
 
-    public File(String fileName, byte[] fileData, String fileType, Lead lead) {
+    public File(String fileName, String fileType, Lead lead) {
         this.fileName = fileName;
-        this.fileData = fileData;
         this.fileType = fileType;
         this.lead = lead;
     }
 
-    public File(String fileName, byte[] fileData, String fileType, Contract contract) {
+    public File(String fileName, String fileType, Contract contract) {
         this.fileName = fileName;
-        this.fileData = fileData;
         this.fileType = fileType;
         this.contract = contract;
     }
@@ -75,6 +85,22 @@ public class File {
         this.fileData = fileData;
     }
 
+    public String getContentHash() {
+        return contentHash;
+    }
+
+    public void setContentHash(String contentHash) {
+        this.contentHash = contentHash;
+    }
+
+    public Long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(Long fileSize) {
+        this.fileSize = fileSize;
+    }
+
     public String getFileType() {
         return fileType;
     }
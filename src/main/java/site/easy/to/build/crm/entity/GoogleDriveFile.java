@@ -4,7 +4,11 @@ import jakarta.persistence.*;
 import java.time.LocalDateTime;
 
 @Entity
-@Table(name = "google_drive_file")
+@Table(name = "google_drive_file",
+    indexes = {
+        @Index(name = "idx_gdf_customer_active_category", columnList = "customer_id, is_active, file_category"),
+        @Index(name = "idx_gdf_property_active_category", columnList = "property_id, is_active, file_category")
+    })
 public class GoogleDriveFile {
 
     @Id
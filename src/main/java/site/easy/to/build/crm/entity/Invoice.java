@@ -7,6 +7,8 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import site.easy.to.build.crm.service.payprop.LeaseResolutionIndexEntityListener;
+import site.easy.to.build.crm.service.lifecycle.LifecycleScheduleEntityListener;
 
 /**
  * Invoice Entity - Local Invoice Instructions with PayProp Sync Capability
@@ -15,7 +17,12 @@ import java.time.LocalDateTime;
  * and optionally synced to PayProp. Follows the same patterns as Customer and Property entities.
  */
 @Entity
-@Table(name = "invoices")
+@Table(name = "invoices",
+    indexes = {
+        @Index(name = "idx_invoices_end_date", columnList = "end_date")
+    }
+)
+@EntityListeners({LeaseResolutionIndexEntityListener.class, LifecycleScheduleEntityListener.class})
 public class Invoice {
     
     @Id
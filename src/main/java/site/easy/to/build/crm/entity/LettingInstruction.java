@@ -5,6 +5,7 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.DecimalMin;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import site.easy.to.build.crm.service.lifecycle.LifecycleScheduleEntityListener;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -29,7 +30,12 @@ import java.util.List;
  * Evolution: INSTRUCTION_RECEIVED → PREPARING → ADVERTISING → VIEWINGS_IN_PROGRESS → OFFER_MADE → ACTIVE_LEASE → CLOSED
  */
 @Entity
-@Table(name = "letting_instructions")
+@Table(name = "letting_instructions",
+    indexes = {
+        @Index(name = "idx_letting_status_lease_end", columnList = "status, lease_end_date")
+    }
+)
+@EntityListeners(LifecycleScheduleEntityListener.class)
 public class LettingInstruction {
 
     @Id
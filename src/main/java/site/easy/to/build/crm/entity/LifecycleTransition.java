@@ -0,0 +1,79 @@
+package site.easy.to.build.crm.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * LifecycleTransition - One queued time-driven state change
+ *
+ * Rows are written and applied set-based by LifecycleEngineService; the entity exists so the
+ * table and its indexes are managed with the rest of the schema. There is at most one row per
+ * entity and transition type; moving the entity's date reschedules it.
+ *
+ * Status:
+ * - PENDING: waiting for due_date
+ * - APPLIED: state change applied and event published
+ * - SKIPPED: entity no longer qualified when the transition fell due
+ */
+@Entity
+@Table(name = "lifecycle_transitions",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_lifecycle_type_entity", columnNames = {"transition_type", "entity_id"})
+    },
+    indexes = {
+        @Index(name = "idx_lifecycle_type_status_due", columnList = "transition_type, status, due_date")
+    }
+)
+public class LifecycleTransition {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_APPLIED = "APPLIED";
+    public static final String STATUS_SKIPPED = "SKIPPED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "transition_type", nullable = false, length = 40)
+    private LifecycleTransitionType transitionType;
+
+    @Column(name = "entity_id", nullable = false)
+    private Long entityId;
+
+    @Column(name = "due_date", nullable = false)
+    private LocalDate dueDate;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "scheduled_at", nullable = false)
+    private LocalDateTime scheduledAt;
+
+    @Column(name = "applied_at")
+    private LocalDateTime appliedAt;
+
+    public LifecycleTransition() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public LifecycleTransitionType getTransitionType() { return transitionType; }
+    public void setTransitionType(LifecycleTransitionType transitionType) { this.transitionType = transitionType; }
+
+    public Long getEntityId() { return entityId; }
+    public void setEntityId(Long entityId) { this.entityId = entityId; }
+
+    public LocalDate getDueDate() { return dueDate; }
+    public void setDueDate(LocalDate dueDate) { this.dueDate = dueDate; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public LocalDateTime getScheduledAt() { return scheduledAt; }
+    public void setScheduledAt(LocalDateTime scheduledAt) { this.scheduledAt = scheduledAt; }
+
+    public LocalDateTime getAppliedAt() { return appliedAt; }
+    public void setAppliedAt(LocalDateTime appliedAt) { this.appliedAt = appliedAt; }
+}
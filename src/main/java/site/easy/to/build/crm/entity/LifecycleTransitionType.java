@@ -0,0 +1,31 @@
+package site.easy.to.build.crm.entity;
+
+/**
+ * LifecycleTransitionType - Time-driven state changes queued by the lifecycle engine
+ *
+ * Each type belongs to one source entity and falls due the day after that entity's date:
+ * - CONTRACT_EXPIRED: active contract past its end date, marked expired
+ * - LEASE_ENDED: lease (invoice) past its end date, announced for follow-up work
+ * - INSTRUCTION_LEASE_ENDED: letting instruction whose lease has ended, closed
+ * - VACANCY_TASK_OVERDUE: open vacancy task past its due date, announced for follow-up work
+ */
+public enum LifecycleTransitionType {
+
+    CONTRACT_EXPIRED("Contract Expired"),
+
+    LEASE_ENDED("Lease Ended"),
+
+    INSTRUCTION_LEASE_ENDED("Instruction Lease Ended"),
+
+    VACANCY_TASK_OVERDUE("Vacancy Task Overdue");
+
+    private final String displayName;
+
+    LifecycleTransitionType(String displayName) {
+        this.displayName = displayName;
+    }
+
+    public String getDisplayName() {
+        return displayName;
+    }
+}
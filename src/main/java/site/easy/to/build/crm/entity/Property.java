@@ -10,9 +10,11 @@ import com.fasterxml.jackson.annotation.ObjectIdGenerators;
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import site.easy.to.build.crm.service.property.PropertyAccessScopeEntityListener;
 
 @Entity
 @Table(name = "properties")
+@EntityListeners(PropertyAccessScopeEntityListener.class)
 @JsonIdentityInfo(generator = ObjectIdGenerators.PropertyGenerator.class, property = "id")
 @JsonIgnoreProperties({"hibernateLazyInitializer", "handler"})
 public class Property {
@@ -4,6 +4,7 @@ import com.fasterxml.jackson.annotation.JsonIgnore;
 import jakarta.persistence.*;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
+import site.easy.to.build.crm.service.lifecycle.LifecycleScheduleEntityListener;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
@@ -13,7 +14,12 @@ import java.time.LocalDateTime;
  * Tracks actions needed when a property becomes vacant (inspections, repairs, marketing, etc.)
  */
 @Entity
-@Table(name = "property_vacancy_tasks")
+@Table(name = "property_vacancy_tasks",
+    indexes = {
+        @Index(name = "idx_vacancy_task_status_due", columnList = "status, due_date")
+    }
+)
+@EntityListeners(LifecycleScheduleEntityListener.class)
 public class PropertyVacancyTask {
 
     @Id
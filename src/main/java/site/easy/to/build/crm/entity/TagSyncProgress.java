@@ -0,0 +1,110 @@
+package site.easy.to.build.crm.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * TagSyncProgress - Progress of one unit in a PayProp tag membership run
+ *
+ * PayPropTagSyncPipeline writes a PENDING row per unit (a portfolio with its blocks, or a
+ * standalone block) when a run starts and completes it once all of the unit's tag calls are
+ * done. A run that still has PENDING or FAILED rows is resumed by the next run, which skips
+ * the units already COMPLETED; attempts counts how many runs have applied the unit.
+ */
+@Entity
+@Table(name = "payprop_tag_sync_progress",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_tag_sync_run_unit", columnNames = {"run_id", "unit_key"})
+    },
+    indexes = {
+        @Index(name = "idx_tag_sync_started", columnList = "started_at")
+    }
+)
+public class TagSyncProgress {
+
+    public static final String STATUS_PENDING = "PENDING";
+    public static final String STATUS_COMPLETED = "COMPLETED";
+    public static final String STATUS_FAILED = "FAILED";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "run_id", nullable = false, length = 36)
+    private String runId;
+
+    @Column(name = "unit_key", nullable = false, length = 60)
+    private String unitKey;
+
+    @Column(name = "portfolio_id")
+    private Long portfolioId;
+
+    @Column(name = "status", nullable = false, length = 20)
+    private String status = STATUS_PENDING;
+
+    @Column(name = "attempts")
+    private Integer attempts = 0;
+
+    @Column(name = "tags_added")
+    private Integer tagsAdded = 0;
+
+    @Column(name = "tags_removed")
+    private Integer tagsRemoved = 0;
+
+    @Column(name = "failed_calls")
+    private Integer failedCalls = 0;
+
+    @Column(name = "last_error", columnDefinition = "TEXT")
+    private String lastError;
+
+    @Column(name = "started_at", nullable = false)
+    private LocalDateTime startedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public TagSyncProgress() {}
+
+    public TagSyncProgress(String runId, String unitKey, Long portfolioId, LocalDateTime startedAt) {
+        this.runId = runId;
+        this.unitKey = unitKey;
+        this.portfolioId = portfolioId;
+        this.startedAt = startedAt;
+    }
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public String getRunId() { return runId; }
+    public void setRunId(String runId) { this.runId = runId; }
+
+    public String getUnitKey() { return unitKey; }
+    public void setUnitKey(String unitKey) { this.unitKey = unitKey; }
+
+    public Long getPortfolioId() { return portfolioId; }
+    public void setPortfolioId(Long portfolioId) { this.portfolioId = portfolioId; }
+
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+
+    public int getAttempts() { return attempts != null ? attempts : 0; }
+    public void setAttempts(Integer attempts) { this.attempts = attempts; }
+
+    public Integer getTagsAdded() { return tagsAdded; }
+    public void setTagsAdded(Integer tagsAdded) { this.tagsAdded = tagsAdded; }
+
+    public Integer getTagsRemoved() { return tagsRemoved; }
+    public void setTagsRemoved(Integer tagsRemoved) { this.tagsRemoved = tagsRemoved; }
+
+    public Integer getFailedCalls() { return failedCalls; }
+    public void setFailedCalls(Integer failedCalls) { this.failedCalls = failedCalls; }
+
+    public String getLastError() { return lastError; }
+    public void setLastError(String lastError) { this.lastError = lastError; }
+
+    public LocalDateTime getStartedAt() { return startedAt; }
+    public void setStartedAt(LocalDateTime startedAt) { this.startedAt = startedAt; }
+
+    public LocalDateTime getCompletedAt() { return completedAt; }
+    public void setCompletedAt(LocalDateTime completedAt) { this.completedAt = completedAt; }
+}
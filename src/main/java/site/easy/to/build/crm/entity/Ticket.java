@@ -10,7 +10,11 @@ import java.time.LocalDateTime;
 import java.util.List;
 
 @Entity
-@Table(name = "trigger_ticket")
+@Table(name = "trigger_ticket",
+    indexes = {
+        @Index(name = "idx_ticket_payprop_ticket_id", columnList = "pay_prop_ticket_id")
+    }
+)
 public class Ticket {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
@@ -59,6 +63,13 @@ public class Ticket {
     @Column(name = "pay_prop_last_sync")
     private LocalDateTime payPropLastSync;
 
+    // PayProp modification time and message count as of the last sync (change detection)
+    @Column(name = "pay_prop_modified_at")
+    private LocalDateTime payPropModifiedAt;
+
+    @Column(name = "pay_prop_message_count")
+    private Integer payPropMessageCount;
+
     // ===== CONTRACTOR MANAGEMENT FIELDS =====
     
     @Column(name = "selected_contractor_id")
@@ -214,6 +225,12 @@ public class Ticket {
     public LocalDateTime getPayPropLastSync() { return payPropLastSync; }
     public void setPayPropLastSync(LocalDateTime payPropLastSync) { this.payPropLastSync = payPropLastSync; }
 
+    public LocalDateTime getPayPropModifiedAt() { return payPropModifiedAt; }
+    public void setPayPropModifiedAt(LocalDateTime payPropModifiedAt) { this.payPropModifiedAt = payPropModifiedAt; }
+
+    public Integer getPayPropMessageCount() { return payPropMessageCount; }
+    public void setPayPropMessageCount(Integer payPropMessageCount) { this.payPropMessageCount = payPropMessageCount; }
+
     // ===== CONTRACTOR MANAGEMENT GETTERS AND SETTERS =====
     
     public Long getSelectedContractorId() { return selectedContractorId; }
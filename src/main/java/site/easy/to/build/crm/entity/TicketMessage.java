@@ -0,0 +1,79 @@
+package site.easy.to.build.crm.entity;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * TicketMessage - A message on a maintenance ticket
+ *
+ * Messages imported from PayProp carry their PayProp message id, which is unique, so
+ * repeated syncs and webhook deliveries store each message once.
+ */
+@Entity
+@Table(name = "ticket_messages",
+    uniqueConstraints = {
+        @UniqueConstraint(name = "uk_ticket_message_payprop_id", columnNames = {"payprop_message_id"})
+    },
+    indexes = {
+        @Index(name = "idx_ticket_message_ticket", columnList = "ticket_id, message_date")
+    }
+)
+public class TicketMessage {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "ticket_id", nullable = false)
+    @JsonIgnore
+    private Ticket ticket;
+
+    @Column(name = "payprop_message_id", length = 50)
+    private String payPropMessageId;
+
+    @Column(name = "author_type", length = 20)
+    private String authorType; // tenant, agency
+
+    @Column(name = "message", columnDefinition = "TEXT", nullable = false)
+    private String message;
+
+    @Column(name = "is_private")
+    private Boolean isPrivate = false;
+
+    /**
+     * When the message was written (PayProp created_at), else when it was imported
+     */
+    @Column(name = "message_date", nullable = false)
+    private LocalDateTime messageDate;
+
+    @Column(name = "imported_at", nullable = false)
+    private LocalDateTime importedAt;
+
+    public TicketMessage() {}
+
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+
+    public Ticket getTicket() { return ticket; }
+    public void setTicket(Ticket ticket) { this.ticket = ticket; }
+
+    public String getPayPropMessageId() { return payPropMessageId; }
+    public void setPayPropMessageId(String payPropMessageId) { this.payPropMessageId = payPropMessageId; }
+
+    public String getAuthorType() { return authorType; }
+    public void setAuthorType(String authorType) { this.authorType = authorType; }
+
+    public String getMessage() { return message; }
+    public void setMessage(String message) { this.message = message; }
+
+    public Boolean getIsPrivate() { return isPrivate; }
+    public void setIsPrivate(Boolean isPrivate) { this.isPrivate = isPrivate; }
+
+    public LocalDateTime getMessageDate() { return messageDate; }
+    public void setMessageDate(LocalDateTime messageDate) { this.messageDate = messageDate; }
+
+    public LocalDateTime getImportedAt() { return importedAt; }
+    public void setImportedAt(LocalDateTime importedAt) { this.importedAt = importedAt; }
+}
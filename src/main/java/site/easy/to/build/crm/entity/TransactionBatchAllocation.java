@@ -118,6 +118,10 @@ public class TransactionBatchAllocation {
     @Column(name = "created_by")
     private Long createdBy;
 
+    // Change marker for the unified rebuild watermark (see UnifiedDataWatermarkService)
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
     // ===== CONSTRUCTORS =====
 
     public TransactionBatchAllocation() {
@@ -187,6 +191,12 @@ public class TransactionBatchAllocation {
         if (createdAt == null) {
             createdAt = LocalDateTime.now();
         }
+        updatedAt = LocalDateTime.now();
+    }
+
+    @PreUpdate
+    protected void onUpdate() {
+        updatedAt = LocalDateTime.now();
     }
 
     // ===== BUSINESS METHODS =====
@@ -311,6 +321,10 @@ public class TransactionBatchAllocation {
         this.createdBy = createdBy;
     }
 
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
     @Override
     public String toString() {
         return "TransactionBatchAllocation{" +
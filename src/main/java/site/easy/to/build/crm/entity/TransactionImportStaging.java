@@ -10,9 +10,21 @@ import java.time.LocalDateTime;
  * Holds parsed transactions for review before committing to historical_transactions
  */
 @Entity
-@Table(name = "transaction_import_staging")
+@Table(name = "transaction_import_staging",
+    indexes = {
+        @Index(name = "idx_staging_batch_status", columnList = "batch_id, status")
+    }
+)
 public class TransactionImportStaging {
 
+    public static final String STATUS_PENDING_REVIEW = "PENDING_REVIEW";
+    public static final String STATUS_APPROVED = "APPROVED";
+    public static final String STATUS_REJECTED = "REJECTED";
+    public static final String STATUS_AMBIGUOUS_PROPERTY = "AMBIGUOUS_PROPERTY";
+    public static final String STATUS_AMBIGUOUS_CUSTOMER = "AMBIGUOUS_CUSTOMER";
+    public static final String STATUS_DUPLICATE = "DUPLICATE";
+    public static final String STATUS_IMPORTED = "IMPORTED";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -66,7 +78,7 @@ public class TransactionImportStaging {
 
     // Review status
     @Column(name = "status", length = 50)
-    private String status; // PENDING_REVIEW, APPROVED, REJECTED, AMBIGUOUS_PROPERTY, AMBIGUOUS_CUSTOMER, DUPLICATE
+    private String status; // PENDING_REVIEW, APPROVED, REJECTED, AMBIGUOUS_PROPERTY, AMBIGUOUS_CUSTOMER, DUPLICATE, IMPORTED
 
     @Column(name = "is_duplicate")
     private Boolean isDuplicate = false;
@@ -0,0 +1,104 @@
+package site.easy.to.build.crm.entity;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * TransactionStagingBatch - Running status counters for one staging batch
+ *
+ * TransactionStagingService adjusts these counters by the number of rows each bulk status
+ * change moves, so a batch summary is a primary key lookup instead of counting the batch.
+ * Classifying a batch recounts it from transaction_import_staging.
+ */
+@Entity
+@Table(name = "transaction_import_staging_batches")
+public class TransactionStagingBatch {
+
+    @Id
+    @Column(name = "batch_id", length = 100)
+    private String batchId;
+
+    @Column(name = "total_records", nullable = false)
+    private long totalRecords;
+
+    @Column(name = "pending_review", nullable = false)
+    private long pendingReview;
+
+    @Column(name = "approved", nullable = false)
+    private long approved;
+
+    @Column(name = "rejected", nullable = false)
+    private long rejected;
+
+    @Column(name = "ambiguous_property", nullable = false)
+    private long ambiguousProperty;
+
+    @Column(name = "ambiguous_customer", nullable = false)
+    private long ambiguousCustomer;
+
+    @Column(name = "duplicates", nullable = false)
+    private long duplicates;
+
+    @Column(name = "imported", nullable = false)
+    private long imported;
+
+    @Column(name = "classified_at")
+    private LocalDateTime classifiedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public TransactionStagingBatch() {}
+
+    /**
+     * Counter column for a staging status, or null for statuses that are only counted in the total.
+     */
+    public static String counterColumn(String status) {
+        if (status == null) {
+            return null;
+        }
+        switch (status) {
+            case TransactionImportStaging.STATUS_PENDING_REVIEW: return "pending_review";
+            case TransactionImportStaging.STATUS_APPROVED: return "approved";
+            case TransactionImportStaging.STATUS_REJECTED: return "rejected";
+            case TransactionImportStaging.STATUS_AMBIGUOUS_PROPERTY: return "ambiguous_property";
+            case TransactionImportStaging.STATUS_AMBIGUOUS_CUSTOMER: return "ambiguous_customer";
+            case TransactionImportStaging.STATUS_DUPLICATE: return "duplicates";
+            case TransactionImportStaging.STATUS_IMPORTED: return "imported";
+            default: return null;
+        }
+    }
+
+    public String getBatchId() { return batchId; }
+    public void setBatchId(String batchId) { this.batchId = batchId; }
+
+    public long getTotalRecords() { return totalRecords; }
+    public void setTotalRecords(long totalRecords) { this.totalRecords = totalRecords; }
+
+    public long getPendingReview() { return pendingReview; }
+    public void setPendingReview(long pendingReview) { this.pendingReview = pendingReview; }
+
+    public long getApproved() { return approved; }
+    public void setApproved(long approved) { this.approved = approved; }
+
+    public long getRejected() { return rejected; }
+    public void setRejected(long rejected) { this.rejected = rejected; }
+
+    public long getAmbiguousProperty() { return ambiguousProperty; }
+    public void setAmbiguousProperty(long ambiguousProperty) { this.ambiguousProperty = ambiguousProperty; }
+
+    public long getAmbiguousCustomer() { return ambiguousCustomer; }
+    public void setAmbiguousCustomer(long ambiguousCustomer) { this.ambiguousCustomer = ambiguousCustomer; }
+
+    public long getDuplicates() { return duplicates; }
+    public void setDuplicates(long duplicates) { this.duplicates = duplicates; }
+
+    public long getImported() { return imported; }
+    public void setImported(long imported) { this.imported = imported; }
+
+    public LocalDateTime getClassifiedAt() { return classifiedAt; }
+    public void setClassifiedAt(LocalDateTime classifiedAt) { this.classifiedAt = classifiedAt; }
+
+    public LocalDateTime getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(LocalDateTime updatedAt) { this.updatedAt = updatedAt; }
+}
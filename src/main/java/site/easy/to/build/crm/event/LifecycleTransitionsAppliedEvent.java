@@ -0,0 +1,54 @@
+package site.easy.to.build.crm.event;
+
+import org.springframework.context.ApplicationEvent;
+import site.easy.to.build.crm.entity.LifecycleTransitionType;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Event fired after the lifecycle engine applied a set of due transitions of one type.
+ * Published after the state changes are committed, for follow-up work (notifications,
+ * vacancy tasks, re-letting).
+ */
+public class LifecycleTransitionsAppliedEvent extends ApplicationEvent {
+
+    private final LifecycleTransitionType transitionType;
+    private final List<Long> entityIds;
+    private final LocalDate runDate;
+    private final int lateCount;
+
+    public LifecycleTransitionsAppliedEvent(Object source, LifecycleTransitionType transitionType,
+                                            List<Long> entityIds, LocalDate runDate, int lateCount) {
+        super(source);
+        this.transitionType = transitionType;
+        this.entityIds = List.copyOf(entityIds);
+        this.runDate = runDate;
+        this.lateCount = lateCount;
+    }
+
+    public LifecycleTransitionType getTransitionType() {
+        return transitionType;
+    }
+
+    public List<Long> getEntityIds() {
+        return entityIds;
+    }
+
+    public LocalDate getRunDate() {
+        return runDate;
+    }
+
+    /**
+     * Transitions that fell due before the run date, i.e. missed while the engine was not running.
+     */
+    public int getLateCount() {
+        return lateCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("LifecycleTransitionsAppliedEvent[type=%s, entities=%d, late=%d, runDate=%s]",
+                transitionType, entityIds.size(), lateCount, runDate);
+    }
+}
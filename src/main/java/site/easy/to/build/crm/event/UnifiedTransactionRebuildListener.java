@@ -16,6 +16,8 @@ import java.util.Map;
  * when historical data is imported or PayProp data is synced.
  *
  * This ensures the unified view stays synchronized with source tables.
+ * Rebuilds run on the single-worker unifiedRebuildExecutor, so a full rebuild and an
+ * incremental one never rewrite unified_transactions at the same time.
  */
 @Component
 public class UnifiedTransactionRebuildListener {
@@ -30,7 +32,7 @@ public class UnifiedTransactionRebuildListener {
      * Uses incremental rebuild to only process recent changes for performance.
      */
     @EventListener
-    @Async
+    @Async("unifiedRebuildExecutor")
     public void handleHistoricalDataImported(HistoricalDataImportedEvent event) {
         log.info("📥 Historical data import detected: {} records from {}",
                 event.getRecordsImported(), event.getDataSource());
@@ -61,7 +63,7 @@ public class UnifiedTransactionRebuildListener {
      * For incremental syncs, triggers incremental rebuild for performance.
      */
     @EventListener
-    @Async
+    @Async("unifiedRebuildExecutor")
     public void handlePayPropDataSynced(PayPropDataSyncedEvent event) {
         log.info("🔔 REBUILD LISTENER: Received PayPropDataSyncedEvent - success={}, type={}",
                 event.isSuccess(), event.getSyncType());
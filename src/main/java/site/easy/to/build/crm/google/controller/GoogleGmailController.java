@@ -44,8 +44,6 @@ import site.easy.to.build.crm.service.document.DocumentTemplateService;
 import site.easy.to.build.crm.service.google.GoogleServiceAccountService;
 import site.easy.to.build.crm.service.user.UserService;
 import site.easy.to.build.crm.util.AuthenticationUtils;
-import site.easy.to.build.crm.google.util.PageTokenManager;
-import site.easy.to.build.crm.util.SessionUtils;
 
 import java.io.IOException;
 import java.net.SocketTimeoutException;
@@ -631,22 +629,9 @@ public class GoogleGmailController {
         int maxResult = 10;
         OAuthUser oAuthUser = authenticationUtils.getOAuthUserFromAuthentication(authentication);
 
-        // Retrieve or create a new PageTokenManager
-        PageTokenManager pageTokenManager = Optional.ofNullable(SessionUtils.getSessionAttribute(session, "pageTokenManager", PageTokenManager.class))
-                .orElseGet(PageTokenManager::new);
-
-        String pageToken = null;
-        if (page != 1) {
-            pageToken = gmailEmailService.getPageTokenForPage(pageTokenManager, page, oAuthUser, maxResult, label);
-        }
-        EmailPage emailsPerPage = gmailEmailService.getEmailsPerPage(oAuthUser, maxResult, pageToken, label);
-
-        // Update the PageTokenManager with the nextPageToken
-        Optional.ofNullable(emailsPerPage.getNextPageToken())
-                .ifPresent(nextPageToken -> {
-                    pageTokenManager.setPageToken(page + 1, nextPageToken);
-                    session.setAttribute("pageTokenManager", pageTokenManager);
-                });
+        // Page tokens are cached per user by GmailEmailService (with readahead of later pages)
+        String pageToken = gmailEmailService.getPageTokenForPage(oAuthUser, page, maxResult, label);
+        EmailPage emailsPerPage = gmailEmailService.getEmailsPerPage(oAuthUser, maxResult, pageToken, label, page);
         emailsPerPage.setPage(page);
         return emailsPerPage;
     }
@@ -11,6 +11,7 @@ public class GmailApiMessage {
     private static final Pattern EMAIL_PATTERN = Pattern.compile("(.*?)<(.*?)>");
     private String id;
     private String threadId;
+    private String historyId;
     private String snippet;
     private long internalDate;
     private List<String> labelIds;
@@ -33,6 +34,14 @@ public class GmailApiMessage {
         this.threadId = threadId;
     }
 
+    public String getHistoryId() {
+        return historyId;
+    }
+
+    public void setHistoryId(String historyId) {
+        this.historyId = historyId;
+    }
+
     public String getSnippet() {
         return snippet;
     }
@@ -1,50 +1,96 @@
 package site.easy.to.build.crm.google.service.gmail;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import site.easy.to.build.crm.entity.OAuthUser;
 import site.easy.to.build.crm.google.model.gmail.EmailPage;
 import site.easy.to.build.crm.google.util.PageTokenManager;
 import site.easy.to.build.crm.google.model.gmail.*;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
 
 import java.io.IOException;
 import java.security.GeneralSecurityException;
 import java.util.ArrayList;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 @Service
 public class GmailEmailService {
+    private static final Logger log = LoggerFactory.getLogger(GmailEmailService.class);
+
     private final GoogleGmailApiService googleGmailApiService;
+    private final OutboundIo outboundIo;
+    private final int readaheadPages;
+    private final long pageTokenTtlNanos;
+
+    // Page tokens per user, label and page size, shared across the user's sessions
+    private final Map<String, UserPageTokens> pageTokens = new ConcurrentHashMap<>();
 
     @Autowired
-    public GmailEmailService(GoogleGmailApiService googleGmailApiService) {
+    public GmailEmailService(GoogleGmailApiService googleGmailApiService,
+                             OutboundIo outboundIo,
+                             @Value("${gmail.page-token.readahead:5}") int readaheadPages,
+                             @Value("${gmail.page-token.ttl-seconds:600}") long pageTokenTtlSeconds) {
         this.googleGmailApiService = googleGmailApiService;
+        this.outboundIo = outboundIo;
+        this.readaheadPages = readaheadPages;
+        this.pageTokenTtlNanos = TimeUnit.SECONDS.toNanos(pageTokenTtlSeconds);
     }
 
-    public String getPageTokenForPage(PageTokenManager pageTokenManager, int page, OAuthUser oAuthUser, int maxResult, String label)
+    /**
+     * Token for the given page (null for page 1). Unknown pages are reached from the closest
+     * earlier known page with token-only list calls, so no messages are read on the way.
+     */
+    public String getPageTokenForPage(OAuthUser oAuthUser, int page, int maxResult, String label)
             throws GeneralSecurityException, IOException {
+        if (page <= 1) {
+            return null;
+        }
+        PageTokenManager pageTokenManager = tokensFor(oAuthUser, maxResult, label).tokens;
 
         String pageToken = pageTokenManager.getPageToken(page);
-        if (pageToken == null) {
-            Integer closestPageNumber = pageTokenManager.findClosestPageNumber(page);
-            if (closestPageNumber != null) {
-                pageToken = pageTokenManager.getPageToken(closestPageNumber);
-                EmailPage emailsPerPage = googleGmailApiService.listAndReadEmails(oAuthUser, maxResult, pageToken, label);
-
-                // Navigate to the desired page
-                int steps = page - closestPageNumber - 1;
-                for (int i = 0; i < Math.abs(steps); i++) {
-                    emailsPerPage = googleGmailApiService.listAndReadEmails(oAuthUser, maxResult, emailsPerPage.getNextPageToken(), label);
-                }
-                pageToken = emailsPerPage.getNextPageToken();
-            } else {
-                // Return null for the first page
+        if (pageToken != null) {
+            return pageToken;
+        }
+        Integer closestPageNumber = pageTokenManager.findClosestPreviousPageNumber(page);
+        int currentPage = closestPageNumber != null ? closestPageNumber : 1;
+        pageToken = closestPageNumber != null ? pageTokenManager.getPageToken(closestPageNumber) : null;
+
+        // Navigate to the desired page
+        while (currentPage < page) {
+            pageToken = googleGmailApiService.getNextPageToken(oAuthUser, maxResult, pageToken, label);
+            if (pageToken == null) {
+                // Past the last page: show the first one
                 return null;
             }
+            currentPage++;
+            pageTokenManager.setPageToken(currentPage, pageToken);
         }
         return pageToken;
     }
 
+    /**
+     * Read one page and remember the token of the next, then read ahead the tokens of the
+     * following pages in the background.
+     */
+    public EmailPage getEmailsPerPage(OAuthUser oAuthUser, int maxResult, String pageToken, String label, int page) {
+        EmailPage emailsPerPage = getEmailsPerPage(oAuthUser, maxResult, pageToken, label);
+        String nextPageToken = emailsPerPage.getNextPageToken();
+        if (nextPageToken != null) {
+            UserPageTokens userPageTokens = tokensFor(oAuthUser, maxResult, label);
+            userPageTokens.tokens.setPageToken(page + 1, nextPageToken);
+            readAhead(oAuthUser, maxResult, label, userPageTokens, page + 1, nextPageToken);
+        }
+        return emailsPerPage;
+    }
+
     public EmailPage getEmailsPerPage(OAuthUser oAuthUser, int maxResult, String pageToken, String label) {
         EmailPage emailsPerPage;
         try {
@@ -56,6 +102,63 @@ public class GmailEmailService {
         return emailsPerPage;
     }
 
+    /**
+     * Forget the user's page tokens (page boundaries move when messages are removed).
+     */
+    public void invalidatePageTokens(OAuthUser oAuthUser) {
+        String prefix = oAuthUser.getId() + ":";
+        pageTokens.keySet().removeIf(key -> key.startsWith(prefix));
+    }
+
+    private void readAhead(OAuthUser oAuthUser, int maxResult, String label, UserPageTokens userPageTokens,
+                           int fromPage, String fromToken) {
+        if (readaheadPages <= 0 || userPageTokens.tokens.getPageToken(fromPage + readaheadPages) != null
+                || !userPageTokens.readaheadRunning.compareAndSet(false, true)) {
+            return;
+        }
+        // Best effort: skipped when Gmail calls are already at their cap
+        boolean submitted = outboundIo.trySubmit(OutboundIntegration.GMAIL, () -> {
+            try {
+                String pageToken = fromToken;
+                for (int page = fromPage + 1; page <= fromPage + readaheadPages; page++) {
+                    String known = userPageTokens.tokens.getPageToken(page);
+                    if (known == null) {
+                        known = googleGmailApiService.getNextPageToken(oAuthUser, maxResult, pageToken, label);
+                        if (known == null) {
+                            break;
+                        }
+                        userPageTokens.tokens.setPageToken(page, known);
+                    }
+                    pageToken = known;
+                }
+            } catch (IOException | GeneralSecurityException | RuntimeException e) {
+                log.debug("Gmail page-token readahead stopped for user {}: {}", oAuthUser.getId(), e.getMessage());
+            } finally {
+                userPageTokens.readaheadRunning.set(false);
+            }
+        });
+        if (!submitted) {
+            userPageTokens.readaheadRunning.set(false);
+        }
+    }
+
+    private UserPageTokens tokensFor(OAuthUser oAuthUser, int maxResult, String label) {
+        String key = oAuthUser.getId() + ":" + label + ":" + maxResult;
+        long now = System.nanoTime();
+        return pageTokens.compute(key, (k, existing) ->
+                existing != null && now - existing.createdAt < pageTokenTtlNanos ? existing : new UserPageTokens(now));
+    }
+
+    private static final class UserPageTokens {
+        final PageTokenManager tokens = new PageTokenManager();
+        final AtomicBoolean readaheadRunning = new AtomicBoolean();
+        final long createdAt;
+
+        UserPageTokens(long createdAt) {
+            this.createdAt = createdAt;
+        }
+    }
+
     public int getEmailsCountInInbox(OAuthUser oAuthUser, String query) throws IOException, GeneralSecurityException {
         return googleGmailApiService.getEmailsCount(oAuthUser,query);
     }
@@ -63,6 +166,7 @@ public class GmailEmailService {
     public void deleteEmail(OAuthUser oAuthUser, String emailId, RedirectAttributes redirectAttributes) {
         try {
             googleGmailApiService.deleteEmail(oAuthUser, emailId);
+            invalidatePageTokens(oAuthUser);
             redirectAttributes.addFlashAttribute("success", "Email successfully deleted.");
         } catch (IOException | GeneralSecurityException e) {
             redirectAttributes.addFlashAttribute("error", "An error occurred while deleting the email: " + e.getMessage());
@@ -19,6 +19,9 @@ public interface GoogleGmailApiService {
 
     public EmailPage listAndReadEmails(OAuthUser oAuthUser, int maxResults, String pageToken, String label) throws IOException, GeneralSecurityException;
 
+    // Token of the page after pageToken, without reading any messages (used to reach later pages)
+    public String getNextPageToken(OAuthUser oAuthUser, int maxResults, String pageToken, String label) throws IOException, GeneralSecurityException;
+
     public int getEmailsCount(OAuthUser oAuthUser, String query) throws IOException, GeneralSecurityException;
 
     void deleteEmail(OAuthUser oAuthUser, String emailId) throws IOException, GeneralSecurityException;
@@ -6,29 +6,48 @@ import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
 import jakarta.mail.MessagingException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import site.easy.to.build.crm.entity.OAuthUser;
 import site.easy.to.build.crm.google.model.gmail.*;
 import site.easy.to.build.crm.google.util.GoogleApiHelper;
 import site.easy.to.build.crm.google.util.GsonUtil;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
 import site.easy.to.build.crm.service.user.OAuthUserService;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Type;
 import java.security.GeneralSecurityException;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 
 
 @Service
 public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
 
+    private static final Logger log = LoggerFactory.getLogger(GoogleGmailApiServiceImpl.class);
+
     private static final String GMAIL_API_BASE_URL = "https://www.googleapis.com/gmail/v1/users/me";
 
+    private static final int MAX_CACHED_METADATA = 5_000;
+
     private final OAuthUserService oAuthUserService;
+    private final OutboundIo outboundIo;
+    private final long metadataTtlNanos;
+
+    // List-view metadata per user and message id, with the message historyId it was built from
+    private final Map<String, CachedMetadata> metadataCache = new ConcurrentHashMap<>();
 
-    public GoogleGmailApiServiceImpl(OAuthUserService oAuthUserService) {
+    public GoogleGmailApiServiceImpl(OAuthUserService oAuthUserService,
+                                     OutboundIo outboundIo,
+                                     @Value("${gmail.metadata-cache.ttl-seconds:120}") long metadataTtlSeconds) {
         this.oAuthUserService = oAuthUserService;
+        this.outboundIo = outboundIo;
+        this.metadataTtlNanos = TimeUnit.SECONDS.toNanos(metadataTtlSeconds);
     }
 
     @Override
@@ -92,6 +111,18 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
         return getEmailsByQueryParameters(oAuthUser, maxResults, pageToken, queryParameters);
     }
 
+    @Override
+    public String getNextPageToken(OAuthUser oAuthUser, int maxResults, String pageToken, String label) throws IOException, GeneralSecurityException {
+        String accessToken = oAuthUserService.refreshAccessTokenIfNeeded(oAuthUser);
+        HttpRequestFactory httpRequestFactory = GoogleApiHelper.createRequestFactory(accessToken);
+
+        // Same list call as the page itself, but only the token comes back
+        Map<String, String> queryParameters = buildEmailListQueryParameters(maxResults, pageToken, label, null);
+        queryParameters.put("fields", "nextPageToken");
+        JsonObject jsonResponse = executeRequest(httpRequestFactory, buildListUrl(queryParameters));
+        return jsonResponse.has("nextPageToken") ? jsonResponse.get("nextPageToken").getAsString() : null;
+    }
+
     // FIXED: Added missing getEmailsPage method implementation
     @Override
     public EmailPage getEmailsPage(OAuthUser oAuthUser, String labelName, int page, int pageSize) throws IOException, GeneralSecurityException {
@@ -151,6 +182,7 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
         // Create and execute a DELETE request
         HttpRequest deleteRequest = httpRequestFactory.buildDeleteRequest(deleteUrl);
         deleteRequest.execute();
+        metadataCache.remove(metadataKey(oAuthUser, emailId));
     }
 
     @Override
@@ -235,6 +267,10 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
         String accessToken = oAuthUserService.refreshAccessTokenIfNeeded(oAuthUser);
         HttpRequestFactory httpRequestFactory = GoogleApiHelper.createRequestFactory(accessToken);
 
+        return fetchDraft(httpRequestFactory, draftId, accessToken);
+    }
+
+    private GmailEmailInfo fetchDraft(HttpRequestFactory httpRequestFactory, String draftId, String accessToken) throws IOException {
         GenericUrl getDraftUrl = new GenericUrl(GMAIL_API_BASE_URL + "/drafts/" + draftId);
         JsonObject jsonResponse = executeRequest(httpRequestFactory, getDraftUrl);
         GmailApiMessage message = GsonUtil.fromJson(jsonResponse.getAsJsonObject("message"), GmailApiMessage.class);
@@ -257,7 +293,16 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
     public GmailEmailInfo getEmailDetails(OAuthUser oAuthUser, String emailId) throws GeneralSecurityException, IOException {
         String accessToken = oAuthUserService.refreshAccessTokenIfNeeded(oAuthUser);
         HttpRequestFactory httpRequestFactory = GoogleApiHelper.createRequestFactory(accessToken);
-        return fetchEmailInfo(httpRequestFactory,emailId,accessToken);
+        GenericUrl emailUrl = GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + "/messages/" + emailId, null);
+        GmailApiMessage message = GsonUtil.fromJson(executeRequest(httpRequestFactory, emailUrl), GmailApiMessage.class);
+
+        // Opening a message is a free freshness check for its list-view entry
+        String key = metadataKey(oAuthUser, emailId);
+        CachedMetadata cached = metadataCache.get(key);
+        if (cached != null && !Objects.equals(cached.historyId, message.getHistoryId())) {
+            metadataCache.put(key, new CachedMetadata(buildEmailMetadata(message), message.getHistoryId(), System.nanoTime()));
+        }
+        return buildEmailInfo(message, accessToken);
     }
 
     @Override
@@ -277,6 +322,7 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
 
         HttpRequest request = httpRequestFactory.buildPostRequest(modifyUrl, httpContent);
         request.execute();
+        metadataCache.remove(metadataKey(oAuthUser, emailId));
     }
     private GmailEmailInfo fetchEmailInfo(HttpRequestFactory httpRequestFactory, String emailId, String accessToken) throws IOException {
         GenericUrl emailUrl = GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + "/messages/" + emailId, null);
@@ -291,7 +337,7 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
      * Fetches email metadata only (no body, no attachments) to reduce memory usage
      * Used for email list pages to prevent OutOfMemoryError
      */
-    private GmailEmailInfo fetchEmailMetadata(HttpRequestFactory httpRequestFactory, String emailId, String accessToken) throws IOException {
+    private GmailEmailInfo fetchEmailMetadata(OAuthUser oAuthUser, HttpRequestFactory httpRequestFactory, String emailId) throws IOException {
         // Use format=metadata to get only headers without body/attachments
         Map<String, String> params = new HashMap<>();
         params.put("format", "metadata");
@@ -302,7 +348,13 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
 
         GmailApiMessage message = GsonUtil.fromJson(jsonResponse, GmailApiMessage.class);
 
-        return buildEmailMetadata(message);
+        GmailEmailInfo emailInfo = buildEmailMetadata(message);
+        if (metadataCache.size() >= MAX_CACHED_METADATA) {
+            log.debug("Gmail metadata cache full - clearing");
+            metadataCache.clear();
+        }
+        metadataCache.put(metadataKey(oAuthUser, emailId), new CachedMetadata(emailInfo, message.getHistoryId(), System.nanoTime()));
+        return emailInfo;
     }
 
     /**
@@ -360,50 +412,70 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
         String accessToken = oAuthUserService.refreshAccessTokenIfNeeded(oAuthUser);
         HttpRequestFactory httpRequestFactory = GoogleApiHelper.createRequestFactory(accessToken);
 
-        List<GoogleGmailEmail> emails = fetchEmails(httpRequestFactory, queryParameters);
+        // One list call per page: the ids and the next page token come from the same response
+        JsonObject listResponse = executeRequest(httpRequestFactory, buildListUrl(queryParameters));
+        List<GoogleGmailEmail> emails = parseListedEmails(listResponse, isDraftList(queryParameters));
         if(emails==null) {
             return new EmailPage();
         }
 
         // 🔧 MEMORY FIX: Use metadata format to avoid loading full email bodies and attachments
         // This prevents OutOfMemoryError when paginating through emails
-        List<GmailEmailInfo> emailsInformation = emails.stream()
-                .map(email -> {
-                    try {
-                        return (email.getThreadId() != null) ? fetchEmailMetadata(httpRequestFactory, email.getId(), accessToken) : getDraft(oAuthUser,email.getId());
-                    } catch (IOException | GeneralSecurityException e) {
-                        throw new RuntimeException(e);
-                    }
-                })
-                .collect(Collectors.toList());
+        // Uncached messages are fetched concurrently through OutboundIo (Gmail cap); page order is kept
+        GmailEmailInfo[] emailsInformation = new GmailEmailInfo[emails.size()];
+        List<Integer> misses = new ArrayList<>();
+        for (int i = 0; i < emails.size(); i++) {
+            GoogleGmailEmail email = emails.get(i);
+            GmailEmailInfo cached = email.getThreadId() == null ? null : getCachedMetadata(oAuthUser, email.getId());
+            if (cached != null) {
+                emailsInformation[i] = cached;
+            } else {
+                misses.add(i);
+            }
+        }
+
+        List<GmailEmailInfo> fetched = outboundIo.fanOut(OutboundIntegration.GMAIL, misses, null, i -> {
+            GoogleGmailEmail email = emails.get(i);
+            return email.getThreadId() == null
+                    ? fetchDraft(httpRequestFactory, email.getId(), accessToken)
+                    : fetchEmailMetadata(oAuthUser, httpRequestFactory, email.getId());
+        });
+        for (int m = 0; m < misses.size(); m++) {
+            emailsInformation[misses.get(m)] = fetched.get(m);
+        }
 
         EmailPage emailsPerPage = new EmailPage();
-        emailsPerPage.setEmails(emailsInformation);
-        emailsPerPage.setNextPageToken(getNextPageToken(httpRequestFactory, queryParameters));
+        emailsPerPage.setEmails(Arrays.asList(emailsInformation));
+        emailsPerPage.setNextPageToken(listResponse.has("nextPageToken") ? listResponse.get("nextPageToken").getAsString() : null);
 
         return emailsPerPage;
     }
 
-    private List<GoogleGmailEmail> fetchEmails(HttpRequestFactory httpRequestFactory, Map<String, String> queryParameters) throws IOException {
-        GenericUrl listUrl;
-        boolean isDraft = false;
-        if(queryParameters.containsKey("labelIds") && queryParameters.get("labelIds").equals("DRAFT")){
-            listUrl = GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + "/drafts", queryParameters);
-            isDraft = true;
-        }else {
-            listUrl = GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + "/messages", queryParameters);
-        }
-        JsonObject jsonResponse = executeRequest(httpRequestFactory, listUrl);
+    private boolean isDraftList(Map<String, String> queryParameters) {
+        return "DRAFT".equals(queryParameters.get("labelIds"));
+    }
+
+    private GenericUrl buildListUrl(Map<String, String> queryParameters) {
+        String resource = isDraftList(queryParameters) ? "/drafts" : "/messages";
+        return GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + resource, queryParameters);
+    }
 
+    private List<GoogleGmailEmail> parseListedEmails(JsonObject jsonResponse, boolean isDraft) {
         JsonArray messagesArray = (isDraft) ? jsonResponse.getAsJsonArray("drafts") : jsonResponse.getAsJsonArray("messages");
         Type emailListType = new TypeToken<List<GoogleGmailEmail>>() {}.getType();
         return GsonUtil.fromJson(messagesArray, emailListType);
     }
 
-    private String getNextPageToken(HttpRequestFactory httpRequestFactory, Map<String, String> queryParameters) throws IOException {
-        GenericUrl listUrl = GoogleApiHelper.buildGenericUrl(GMAIL_API_BASE_URL + "/messages", queryParameters);
-        JsonObject jsonResponse = executeRequest(httpRequestFactory, listUrl);
-        return jsonResponse.has("nextPageToken") ? jsonResponse.get("nextPageToken").getAsString() : null;
+    private GmailEmailInfo getCachedMetadata(OAuthUser oAuthUser, String emailId) {
+        CachedMetadata cached = metadataCache.get(metadataKey(oAuthUser, emailId));
+        if (cached == null || System.nanoTime() - cached.cachedAt >= metadataTtlNanos) {
+            return null;
+        }
+        return cached.emailInfo;
+    }
+
+    private String metadataKey(OAuthUser oAuthUser, String emailId) {
+        return oAuthUser.getId() + ":" + emailId;
     }
     private JsonObject executeRequest(HttpRequestFactory httpRequestFactory, GenericUrl url) throws IOException {
         HttpRequest request = httpRequestFactory.buildGetRequest(url);
@@ -466,4 +538,16 @@ public class GoogleGmailApiServiceImpl implements GoogleGmailApiService {
         }
         return attachments;
     }
-}
\ No newline at end of file
+
+    private static final class CachedMetadata {
+        final GmailEmailInfo emailInfo;
+        final String historyId;
+        final long cachedAt;
+
+        CachedMetadata(GmailEmailInfo emailInfo, String historyId, long cachedAt) {
+            this.emailInfo = emailInfo;
+            this.historyId = historyId;
+            this.cachedAt = cachedAt;
+        }
+    }
+}
@@ -1,13 +1,14 @@
 package site.easy.to.build.crm.google.util;
 
-import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class PageTokenManager {
     private final Map<Integer, String> pageTokens;
 
     public PageTokenManager() {
-        pageTokens = new HashMap<>();
+        // Written by page-token readahead while requests read it
+        pageTokens = new ConcurrentHashMap<>();
     }
 
     public String getPageToken(Integer pageNumber) {
@@ -35,4 +36,22 @@ public class PageTokenManager {
 
         return closestPageNumber;
     }
-}
\ No newline at end of file
+
+    /**
+     * Highest known page at or before pageNumber - tokens only lead forward, so this is
+     * where a walk to pageNumber has to start. Null when no such page is known.
+     */
+    public Integer findClosestPreviousPageNumber(Integer pageNumber) {
+        Integer closestPageNumber = null;
+        for (Integer key : pageTokens.keySet()) {
+            if (key <= pageNumber && (closestPageNumber == null || key > closestPageNumber)) {
+                closestPageNumber = key;
+            }
+        }
+        return closestPageNumber;
+    }
+
+    public int size() {
+        return pageTokens.size();
+    }
+}
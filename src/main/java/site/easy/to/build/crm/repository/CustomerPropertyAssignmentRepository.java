@@ -9,6 +9,7 @@ import site.easy.to.build.crm.entity.AssignmentType;
 
 import java.util.List;
 import java.util.Optional;
+import java.time.LocalDate;
 
 @Repository
 public interface CustomerPropertyAssignmentRepository extends JpaRepository<CustomerPropertyAssignment, Long> {
@@ -87,4 +88,21 @@ public interface CustomerPropertyAssignmentRepository extends JpaRepository<Cust
     List<CustomerPropertyAssignment> findByPropertyIdsAndAssignmentTypeWithDetails(
             @Param("propertyIds") List<Long> propertyIds,
             @Param("assignmentType") AssignmentType assignmentType);
-}
\ No newline at end of file
+
+    // Property IDs with an assignment of the given type active on the given date (bulk occupancy check)
+    @Query("SELECT DISTINCT cpa.property.id FROM CustomerPropertyAssignment cpa " +
+           "WHERE cpa.assignmentType = :assignmentType " +
+           "AND cpa.customer IS NOT NULL " +
+           "AND (cpa.endDate IS NULL OR cpa.endDate > :asOfDate) " +
+           "AND (cpa.startDate IS NULL OR cpa.startDate <= :asOfDate)")
+    List<Long> findPropertyIdsWithActiveAssignment(@Param("assignmentType") AssignmentType assignmentType,
+                                                   @Param("asOfDate") LocalDate asOfDate);
+
+    // [propertyId, latest end date] of assignments of the given type that ended on or before the date (bulk vacancy length)
+    @Query("SELECT cpa.property.id, MAX(cpa.endDate) FROM CustomerPropertyAssignment cpa " +
+           "WHERE cpa.assignmentType = :assignmentType " +
+           "AND cpa.endDate IS NOT NULL AND cpa.endDate <= :asOfDate " +
+           "GROUP BY cpa.property.id")
+    List<Object[]> findLastEndDateByProperty(@Param("assignmentType") AssignmentType assignmentType,
+                                             @Param("asOfDate") LocalDate asOfDate);
+}
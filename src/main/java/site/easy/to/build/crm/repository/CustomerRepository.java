@@ -8,6 +8,7 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import site.easy.to.build.crm.entity.Customer;
 import site.easy.to.build.crm.entity.CustomerType;
+import site.easy.to.build.crm.entity.User;
 
 import java.time.LocalDate;
 import java.util.List;
@@ -23,6 +24,13 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     List<Customer> findByUserId(Long userId);
     List<Customer> findByUserIdOrderByCreatedAtDesc(Long userId, Pageable pageable);
     long countByUserId(Long userId);
+
+    // Users that own customers, in customer order (default assignees for imported records)
+    @Query("SELECT c.user FROM Customer c WHERE c.user IS NOT NULL ORDER BY c.customerId")
+    List<User> findCustomerUsers(Pageable pageable);
+
+    @Query("SELECT c.user FROM Customer c JOIN c.user u JOIN u.roles r WHERE r.name = :roleName ORDER BY c.customerId")
+    List<User> findCustomerUsersWithRole(@Param("roleName") String roleName, Pageable pageable);
     List<Customer> findByIsPropertyOwner(Boolean isPropertyOwner);
     List<Customer> findByIsTenant(Boolean isTenant);
     List<Customer> findByIsContractor(Boolean isContractor);
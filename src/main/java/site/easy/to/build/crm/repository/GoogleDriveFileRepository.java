@@ -1,7 +1,12 @@
 package site.easy.to.build.crm.repository;
 
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import site.easy.to.build.crm.entity.AssignmentType;
 import site.easy.to.build.crm.entity.GoogleDriveFile;
 
 import java.util.List;
@@ -99,4 +104,41 @@ public interface GoogleDriveFileRepository extends JpaRepository<GoogleDriveFile
      * Find files by property ID and Google Drive folder ID
      */
     List<GoogleDriveFile> findByPropertyIdAndGoogleDriveFolderId(Long propertyId, String folderId);
-}
\ No newline at end of file
+
+    // ===== DOCUMENT INDEX (CustomerDocumentIndexService) =====
+
+    /**
+     * Active files visible to a customer - their own plus those of properties assigned to them
+     * with the given type - optionally in one category (null category = 'Uncategorized'),
+     * ordered by category then newest first
+     */
+    @Query(value = "SELECT f FROM GoogleDriveFile f WHERE f.isActive = true " +
+           "AND (f.customerId = :customerId OR f.propertyId IN (" +
+           "  SELECT a.property.id FROM CustomerPropertyAssignment a " +
+           "  WHERE a.customer.customerId = :assignedCustomerId AND a.assignmentType = :assignmentType)) " +
+           "AND (:category IS NULL OR COALESCE(f.fileCategory, 'Uncategorized') = :category) " +
+           "ORDER BY COALESCE(f.fileCategory, 'Uncategorized'), f.createdAt DESC, f.id DESC",
+           countQuery = "SELECT COUNT(f) FROM GoogleDriveFile f WHERE f.isActive = true " +
+           "AND (f.customerId = :customerId OR f.propertyId IN (" +
+           "  SELECT a.property.id FROM CustomerPropertyAssignment a " +
+           "  WHERE a.customer.customerId = :assignedCustomerId AND a.assignmentType = :assignmentType)) " +
+           "AND (:category IS NULL OR COALESCE(f.fileCategory, 'Uncategorized') = :category)")
+    Page<GoogleDriveFile> findVisibleToCustomer(@Param("customerId") Integer customerId,
+                                                @Param("assignedCustomerId") Long assignedCustomerId,
+                                                @Param("assignmentType") AssignmentType assignmentType,
+                                                @Param("category") String category,
+                                                Pageable pageable);
+
+    /**
+     * Per-category counts for findVisibleToCustomer: rows of [category, count]
+     */
+    @Query("SELECT COALESCE(f.fileCategory, 'Uncategorized'), COUNT(f) FROM GoogleDriveFile f WHERE f.isActive = true " +
+           "AND (f.customerId = :customerId OR f.propertyId IN (" +
+           "  SELECT a.property.id FROM CustomerPropertyAssignment a " +
+           "  WHERE a.customer.customerId = :assignedCustomerId AND a.assignmentType = :assignmentType)) " +
+           "GROUP BY COALESCE(f.fileCategory, 'Uncategorized') " +
+           "ORDER BY COALESCE(f.fileCategory, 'Uncategorized')")
+    List<Object[]> countVisibleToCustomerByCategory(@Param("customerId") Integer customerId,
+                                                    @Param("assignedCustomerId") Long assignedCustomerId,
+                                                    @Param("assignmentType") AssignmentType assignmentType);
+}
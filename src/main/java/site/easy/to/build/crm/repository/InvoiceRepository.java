@@ -15,6 +15,7 @@ import site.easy.to.build.crm.entity.Invoice.InvoiceFrequency;
 import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Collection;
 
 /**
  * Invoice Repository - Data access layer for invoice management
@@ -341,6 +342,13 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
      */
     @Query("SELECT i FROM Invoice i")
     List<Invoice> findAllIncludingDeleted();
+
+    /**
+     * All invoices including deleted ones, with property and customer loaded
+     * Used to build the in-memory lease resolution index in one query
+     */
+    @Query("SELECT i FROM Invoice i JOIN FETCH i.property LEFT JOIN FETCH i.customer")
+    List<Invoice> findAllForLeaseResolution();
     
     // ===== UTILITY METHODS =====
     
@@ -401,4 +409,18 @@ public interface InvoiceRepository extends JpaRepository<Invoice, Long> {
            "AND i.deletedAt IS NULL " +
            "ORDER BY i.startDate, i.leaseReference")
     List<Invoice> findAllLeasesByProperty(@Param("property") Property property);
-}
\ No newline at end of file
+
+    /**
+     * Find all invoices for a set of properties that overlap with a date range
+     * Bulk variant of findByPropertyIdAndDateRange used by portfolio analytics
+     */
+    @Query("SELECT i FROM Invoice i WHERE i.property.id IN :propertyIds " +
+           "AND i.startDate <= :endDate " +
+           "AND (i.endDate IS NULL OR i.endDate >= :startDate) " +
+           "AND i.deletedAt IS NULL")
+    List<Invoice> findByPropertyIdsAndDateRange(
+        @Param("propertyIds") Collection<Long> propertyIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+}
@@ -11,6 +11,7 @@ import site.easy.to.build.crm.entity.PortfolioType;
 import site.easy.to.build.crm.entity.SyncStatus;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -42,6 +43,7 @@ public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
     
     // PayProp synchronization queries
     List<Portfolio> findBySyncStatus(SyncStatus syncStatus);
+    List<Portfolio> findBySyncStatusIn(Collection<SyncStatus> syncStatuses);
     List<Portfolio> findByPayPropTagsIsNotNull();
     List<Portfolio> findByPayPropTagsIsNull();
     
@@ -14,6 +14,7 @@ import site.easy.to.build.crm.entity.SyncStatus;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.Collection;
 
 @Repository
 public interface PropertyPortfolioAssignmentRepository extends JpaRepository<PropertyPortfolioAssignment, Long> {
@@ -161,4 +162,12 @@ public interface PropertyPortfolioAssignmentRepository extends JpaRepository<Pro
            "WHERE ppa.isActive = false OR ppa.assignmentType = 'ARCHIVED' " +
            "ORDER BY ppa.updatedAt")
     List<PropertyPortfolioAssignment> findAssignmentsForCleanup();
-}
\ No newline at end of file
+
+    // ===== BULK ANALYTICS QUERIES =====
+
+    // Active (portfolioId, property) pairs for many portfolios in one round trip
+    @Query("SELECT ppa.portfolio.id, ppa.property FROM PropertyPortfolioAssignment ppa " +
+           "WHERE ppa.isActive = true AND ppa.portfolio.id IN :portfolioIds " +
+           "ORDER BY ppa.assignmentType, ppa.displayOrder, ppa.property.propertyName")
+    List<Object[]> findActivePropertiesForPortfolios(@Param("portfolioIds") Collection<Long> portfolioIds);
+}
@@ -0,0 +1,15 @@
+package site.easy.to.build.crm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import site.easy.to.build.crm.entity.TagSyncProgress;
+
+import java.util.List;
+
+@Repository
+public interface TagSyncProgressRepository extends JpaRepository<TagSyncProgress, Long> {
+
+    TagSyncProgress findFirstByOrderByStartedAtDescIdDesc();
+
+    List<TagSyncProgress> findByRunId(String runId);
+}
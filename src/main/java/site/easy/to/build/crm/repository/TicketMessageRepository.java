@@ -0,0 +1,23 @@
+package site.easy.to.build.crm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import site.easy.to.build.crm.entity.Ticket;
+import site.easy.to.build.crm.entity.TicketMessage;
+
+import java.util.List;
+
+@Repository
+public interface TicketMessageRepository extends JpaRepository<TicketMessage, Long> {
+
+    List<TicketMessage> findByTicketOrderByMessageDateAscIdAsc(Ticket ticket);
+
+    @Query("SELECT m.payPropMessageId FROM TicketMessage m WHERE m.ticket = :ticket AND m.payPropMessageId IS NOT NULL")
+    List<String> findPayPropMessageIdsByTicket(@Param("ticket") Ticket ticket);
+
+    boolean existsByPayPropMessageId(String payPropMessageId);
+
+    long countByTicket(Ticket ticket);
+}
@@ -2,12 +2,14 @@ package site.easy.to.build.crm.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 import site.easy.to.build.crm.entity.Customer;
 import site.easy.to.build.crm.entity.Ticket;
 
+import java.time.LocalDateTime;
 import java.util.List;
 
 @Repository
@@ -74,4 +76,19 @@ public interface TicketRepository extends JpaRepository<Ticket, Integer> {
 
     Ticket findByPayPropTicketId(String payPropTicketId);
 
+    /**
+     * Sync state of every PayProp ticket: [payPropTicketId, ticketId, payPropModifiedAt, payPropMessageCount]
+     */
+    @Query("SELECT t.payPropTicketId, t.ticketId, t.payPropModifiedAt, t.payPropMessageCount " +
+           "FROM Ticket t WHERE t.payPropTicketId IS NOT NULL")
+    List<Object[]> findPayPropSyncState();
+
+    @Modifying
+    @Query("UPDATE Ticket t SET t.payPropModifiedAt = :modifiedAt, t.payPropMessageCount = :messageCount, " +
+           "t.payPropLastSync = :syncedAt WHERE t.ticketId = :ticketId")
+    int updatePayPropSyncState(@Param("ticketId") int ticketId,
+                               @Param("modifiedAt") LocalDateTime modifiedAt,
+                               @Param("messageCount") Integer messageCount,
+                               @Param("syncedAt") LocalDateTime syncedAt);
+
 }
\ No newline at end of file
@@ -0,0 +1,9 @@
+package site.easy.to.build.crm.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import site.easy.to.build.crm.entity.TransactionStagingBatch;
+
+@Repository
+public interface TransactionStagingBatchRepository extends JpaRepository<TransactionStagingBatch, String> {
+}
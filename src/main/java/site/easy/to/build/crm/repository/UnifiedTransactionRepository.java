@@ -1,5 +1,6 @@
 package site.easy.to.build.crm.repository;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -8,6 +9,7 @@ import site.easy.to.build.crm.entity.UnifiedTransaction;
 
 import java.time.LocalDate;
 import java.util.List;
+import java.util.Collection;
 
 @Repository
 public interface UnifiedTransactionRepository extends JpaRepository<UnifiedTransaction, Long> {
@@ -229,6 +231,47 @@ public interface UnifiedTransactionRepository extends JpaRepository<UnifiedTrans
         @Param("flowDirection") UnifiedTransaction.FlowDirection flowDirection
     );
 
+    /**
+     * Same as findByCustomerOwnedPropertiesAndDateRange, for a PropertyAccessScope resolved once
+     * (bound property ids/names instead of re-running the assignment subqueries)
+     */
+    @Query("""
+        SELECT ut FROM UnifiedTransaction ut
+        WHERE (
+            ut.propertyId IN :propertyIds
+            OR (ut.paypropDataSource = 'INCOMING_PAYMENT' AND ut.propertyName IN :propertyNames)
+        )
+        AND ut.transactionDate BETWEEN :startDate AND :endDate
+        ORDER BY ut.transactionDate, ut.id
+    """)
+    List<UnifiedTransaction> findByPropertyScopeAndDateRange(
+        @Param("propertyIds") Collection<Long> propertyIds,
+        @Param("propertyNames") Collection<String> propertyNames,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate
+    );
+
+    /**
+     * Same as findByCustomerOwnedPropertiesAndDateRangeAndFlowDirection, for a resolved PropertyAccessScope
+     */
+    @Query("""
+        SELECT ut FROM UnifiedTransaction ut
+        WHERE (
+            ut.propertyId IN :propertyIds
+            OR (ut.paypropDataSource = 'INCOMING_PAYMENT' AND ut.propertyName IN :propertyNames)
+        )
+        AND ut.transactionDate BETWEEN :startDate AND :endDate
+        AND ut.flowDirection = :flowDirection
+        ORDER BY ut.transactionDate, ut.id
+    """)
+    List<UnifiedTransaction> findByPropertyScopeAndDateRangeAndFlowDirection(
+        @Param("propertyIds") Collection<Long> propertyIds,
+        @Param("propertyNames") Collection<String> propertyNames,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        @Param("flowDirection") UnifiedTransaction.FlowDirection flowDirection
+    );
+
     /**
      * Get transaction count by source system (for rebuild verification)
      */
@@ -550,4 +593,39 @@ public interface UnifiedTransactionRepository extends JpaRepository<UnifiedTrans
         ORDER BY ut.transaction_date, ut.id
     """, nativeQuery = true)
     List<UnifiedTransaction> findAllDisbursementsToBlockProperties();
+
+    /**
+     * Keyset-paged scan of transactions in a date range (id > afterId, ordered by id).
+     * Used by bulk aggregations that must visit every row without holding them all in memory.
+     */
+    @Query("""
+        SELECT ut FROM UnifiedTransaction ut
+        WHERE ut.id > :afterId
+          AND ut.transactionDate BETWEEN :startDate AND :endDate
+        ORDER BY ut.id
+    """)
+    List<UnifiedTransaction> findPageInDateRangeAfterId(
+        @Param("afterId") Long afterId,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable
+    );
+
+    /**
+     * Keyset-paged scan of transactions in a date range restricted to a set of properties.
+     */
+    @Query("""
+        SELECT ut FROM UnifiedTransaction ut
+        WHERE ut.id > :afterId
+          AND ut.propertyId IN :propertyIds
+          AND ut.transactionDate BETWEEN :startDate AND :endDate
+        ORDER BY ut.id
+    """)
+    List<UnifiedTransaction> findPageForPropertiesInDateRangeAfterId(
+        @Param("afterId") Long afterId,
+        @Param("propertyIds") Collection<Long> propertyIds,
+        @Param("startDate") LocalDate startDate,
+        @Param("endDate") LocalDate endDate,
+        Pageable pageable
+    );
 }
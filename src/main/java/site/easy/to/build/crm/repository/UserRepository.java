@@ -20,6 +20,8 @@ public interface UserRepository extends JpaRepository<User, Integer> {
 
     public List<User> findAll();
 
+    public User findFirstByOrderByIdAsc();
+
     public User findByToken(String token);
 
     long count();
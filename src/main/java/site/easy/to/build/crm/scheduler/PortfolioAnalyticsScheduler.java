@@ -1,10 +1,13 @@
 // PortfolioAnalyticsScheduler.java - Automatically calculates portfolio analytics
 package site.easy.to.build.crm.scheduler;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Component;
 import site.easy.to.build.crm.entity.Portfolio;
+import site.easy.to.build.crm.service.portfolio.PortfolioAnalyticsEngine;
 import site.easy.to.build.crm.service.portfolio.PortfolioService;
 
 import java.time.LocalDate;
@@ -13,43 +16,41 @@ import java.util.List;
 @Component
 public class PortfolioAnalyticsScheduler {
 
+    private static final Logger log = LoggerFactory.getLogger(PortfolioAnalyticsScheduler.class);
+
     private final PortfolioService portfolioService;
+    private final PortfolioAnalyticsEngine portfolioAnalyticsEngine;
 
     @Autowired
-    public PortfolioAnalyticsScheduler(PortfolioService portfolioService) {
+    public PortfolioAnalyticsScheduler(PortfolioService portfolioService,
+                                       PortfolioAnalyticsEngine portfolioAnalyticsEngine) {
         this.portfolioService = portfolioService;
+        this.portfolioAnalyticsEngine = portfolioAnalyticsEngine;
     }
 
     /**
      * Calculate analytics for all active portfolios daily at 2 AM
+     * Aggregates are bulk-loaded once and portfolios computed in parallel by PortfolioAnalyticsEngine
      */
     @Scheduled(cron = "0 0 2 * * ?")
     public void calculateDailyPortfolioAnalytics() {
         try {
-            System.out.println("Starting daily portfolio analytics calculation...");
+            log.info("📊 Starting daily portfolio analytics calculation...");
             
-            List<Portfolio> activePortfolios = portfolioService.findAll();
+            // Default 12-month window, matching PortfolioService.calculatePortfolioAnalytics
             LocalDate today = LocalDate.now();
+            PortfolioAnalyticsEngine.RunResult result =
+                portfolioAnalyticsEngine.calculateAllPortfolios(today.minusYears(1), today);
             
-            int successCount = 0;
-            int errorCount = 0;
-            
-            for (Portfolio portfolio : activePortfolios) {
-                try {
-                    portfolioService.calculatePortfolioAnalytics(portfolio.getId(), today);
-                    successCount++;
-                } catch (Exception e) {
-                    System.err.println("Failed to calculate analytics for portfolio " + 
-                        portfolio.getId() + ": " + e.getMessage());
-                    errorCount++;
-                }
+            if (!result.getFailed().isEmpty()) {
+                log.warn("⚠️ Failed to calculate analytics for portfolios: {}", result.getFailed());
             }
             
-            System.out.println("Portfolio analytics calculation completed. Success: " + 
-                successCount + ", Errors: " + errorCount);
+            log.info("✅ Portfolio analytics calculation completed. Success: {}, Errors: {}, Duration: {}ms",
+                result.getSucceeded(), result.getFailed().size(), result.getDurationMs());
                 
         } catch (Exception e) {
-            System.err.println("Error in portfolio analytics scheduler: " + e.getMessage());
+            log.error("❌ Error in portfolio analytics scheduler: {}", e.getMessage(), e);
         }
     }
 
@@ -62,12 +63,12 @@ public class PortfolioAnalyticsScheduler {
             List<Portfolio> portfoliosNeedingSync = portfolioService.findPortfoliosNeedingSync();
             
             if (!portfoliosNeedingSync.isEmpty()) {
-                System.out.println("Auto-syncing " + portfoliosNeedingSync.size() + " portfolios with PayProp...");
+                log.info("🔄 Auto-syncing {} portfolios with PayProp...", portfoliosNeedingSync.size());
                 portfolioService.syncAllPortfoliosWithPayProp(1L); // System user
             }
             
         } catch (Exception e) {
-            System.err.println("Error in portfolio auto-sync: " + e.getMessage());
+            log.error("❌ Error in portfolio auto-sync: {}", e.getMessage(), e);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,276 @@
+package site.easy.to.build.crm.service.document;
+
+import com.itextpdf.html2pdf.ConverterProperties;
+import com.itextpdf.html2pdf.HtmlConverter;
+import com.itextpdf.html2pdf.resolver.font.DefaultFontProvider;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.thymeleaf.context.Context;
+import org.thymeleaf.spring6.SpringTemplateEngine;
+import org.thymeleaf.templatemode.TemplateMode;
+import org.thymeleaf.templateresolver.ClassLoaderTemplateResolver;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Shared PDF rendering service for generated documents (payment advices, expense invoices,
+ * service charge statements).
+ *
+ * - Templates live in templates/pdf/ and are parsed once and cached by a dedicated
+ *   Thymeleaf engine (SpEL compiler enabled), independent of spring.thymeleaf.cache
+ * - ConverterProperties and the html2pdf font provider are built once per rendering thread
+ *   instead of once per document (font discovery is the expensive part of a conversion)
+ * - Conversions run on the bounded pdfRenderingExecutor pool
+ * - renderZip() pipelines model loading (caller thread) with parallel rendering and writes
+ *   the results to a ZIP stream in request order
+ */
+@Service
+public class PdfRenderingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PdfRenderingService.class);
+
+    private static final String TEMPLATE_PREFIX = "templates/pdf/";
+
+    private final SpringTemplateEngine templateEngine;
+    private final TaskExecutor executor;
+    private final int maxInFlight;
+
+    // FontProvider keeps per-instance selector caches, so share per thread rather than globally
+    private final ThreadLocal<ConverterProperties> converterProperties =
+        ThreadLocal.withInitial(PdfRenderingService::createConverterProperties);
+
+    /**
+     * @param maxInFlight documents converted concurrently by one renderZip call (bounds memory
+     *                    held by rendered PDFs); 0 uses twice the number of processors
+     */
+    public PdfRenderingService(@Qualifier("pdfRenderingExecutor") TaskExecutor executor,
+                               @Value("${pdf.rendering.max-in-flight:0}") int maxInFlight) {
+        this.executor = executor;
+        this.templateEngine = createTemplateEngine();
+        this.maxInFlight = maxInFlight > 0 ? maxInFlight : Math.max(2, Runtime.getRuntime().availableProcessors() * 2);
+    }
+
+    // ===== SINGLE DOCUMENT =====
+
+    /**
+     * Render a template under templates/pdf/ to HTML.
+     * A shared {@code fmt} helper is always available to templates (see {@link Formats}).
+     */
+    public String renderHtml(String template, Map<String, Object> variables) {
+        Context context = new Context(Locale.UK);
+        context.setVariable("fmt", Formats.INSTANCE);
+        context.setVariables(variables);
+        return templateEngine.process(template, context);
+    }
+
+    /**
+     * Render a template to PDF on the rendering pool and wait for the result.
+     */
+    public byte[] renderPdf(String template, Map<String, Object> variables) throws IOException {
+        String html = renderHtml(template, variables);
+        try {
+            return CompletableFuture.supplyAsync(() -> convert(html), executor).join();
+        } catch (CompletionException e) {
+            throw unwrap(e);
+        }
+    }
+
+    /**
+     * Convert HTML to PDF on the current thread using the thread's cached ConverterProperties.
+     */
+    public byte[] convert(String html) {
+        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            HtmlConverter.convertToPdf(html, outputStream, converterProperties.get());
+            return outputStream.toByteArray();
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    // ===== BATCH =====
+
+    /**
+     * Render many documents in one pass into a ZIP stream.
+     * Models are loaded on the caller thread (so repository/lazy access stays in the caller's
+     * context) while up to maxInFlight documents are converted concurrently on the pool.
+     * Entries are written in request order. A document that fails is skipped and logged;
+     * the ZIP still completes with the remaining documents.
+     *
+     * @return number of documents written
+     */
+    public int renderZip(List<PdfJob> jobs, OutputStream out) throws IOException {
+        long start = System.currentTimeMillis();
+        Set<String> usedNames = ConcurrentHashMap.newKeySet();
+        Deque<PendingEntry> inFlight = new ArrayDeque<>();
+        int written = 0;
+
+        try (ZipOutputStream zip = new ZipOutputStream(out, StandardCharsets.UTF_8)) {
+            for (PdfJob job : jobs) {
+                String html;
+                try {
+                    html = renderHtml(job.getTemplate(), job.getModelLoader().load());
+                } catch (Exception e) {
+                    log.error("Skipping PDF {}: failed to build model: {}", job.getFileName(), e.getMessage());
+                    continue;
+                }
+                inFlight.add(new PendingEntry(uniqueName(job.getFileName(), usedNames),
+                    CompletableFuture.supplyAsync(() -> convert(html), executor)));
+
+                if (inFlight.size() >= maxInFlight) {
+                    written += writeEntry(zip, inFlight.poll());
+                }
+            }
+            while (!inFlight.isEmpty()) {
+                written += writeEntry(zip, inFlight.poll());
+            }
+            zip.finish();
+        }
+
+        log.info("Rendered {} of {} PDFs into ZIP in {} ms", written, jobs.size(), System.currentTimeMillis() - start);
+        return written;
+    }
+
+    private int writeEntry(ZipOutputStream zip, PendingEntry entry) throws IOException {
+        byte[] pdf;
+        try {
+            pdf = entry.future.join();
+        } catch (CompletionException e) {
+            log.error("Skipping PDF {}: conversion failed: {}", entry.fileName, e.getCause() != null ? e.getCause().getMessage() : e.getMessage());
+            return 0;
+        }
+        zip.putNextEntry(new ZipEntry(entry.fileName));
+        zip.write(pdf);
+        zip.closeEntry();
+        return 1;
+    }
+
+    private String uniqueName(String fileName, Set<String> usedNames) {
+        String name = fileName.endsWith(".pdf") ? fileName : fileName + ".pdf";
+        String base = name.substring(0, name.length() - 4);
+        int counter = 2;
+        while (!usedNames.add(name)) {
+            name = base + "_" + counter++ + ".pdf";
+        }
+        return name;
+    }
+
+    // ===== SETUP =====
+
+    private static SpringTemplateEngine createTemplateEngine() {
+        ClassLoaderTemplateResolver resolver = new ClassLoaderTemplateResolver();
+        resolver.setPrefix(TEMPLATE_PREFIX);
+        resolver.setSuffix(".html");
+        resolver.setTemplateMode(TemplateMode.HTML);
+        resolver.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        resolver.setCacheable(true);
+
+        SpringTemplateEngine engine = new SpringTemplateEngine();
+        engine.setTemplateResolver(resolver);
+        engine.setEnableSpringELCompiler(true);
+        return engine;
+    }
+
+    private static ConverterProperties createConverterProperties() {
+        ConverterProperties properties = new ConverterProperties();
+        properties.setFontProvider(new DefaultFontProvider());
+        return properties;
+    }
+
+    private static IOException unwrap(CompletionException e) {
+        Throwable cause = e.getCause() != null ? e.getCause() : e;
+        if (cause instanceof IOException) {
+            return (IOException) cause;
+        }
+        return new IOException("Failed to generate PDF: " + cause.getMessage(), cause);
+    }
+
+    // ===== TYPES =====
+
+    /**
+     * Loads the template model for one document. May throw; the document is then skipped.
+     */
+    @FunctionalInterface
+    public interface ModelLoader {
+        Map<String, Object> load() throws Exception;
+    }
+
+    /**
+     * One document in a batch render.
+     */
+    public static class PdfJob {
+        private final String fileName;
+        private final String template;
+        private final ModelLoader modelLoader;
+
+        public PdfJob(String fileName, String template, ModelLoader modelLoader) {
+            this.fileName = fileName;
+            this.template = template;
+            this.modelLoader = modelLoader;
+        }
+
+        public String getFileName() { return fileName; }
+        public String getTemplate() { return template; }
+        public ModelLoader getModelLoader() { return modelLoader; }
+    }
+
+    private static class PendingEntry {
+        private final String fileName;
+        private final CompletableFuture<byte[]> future;
+
+        PendingEntry(String fileName, CompletableFuture<byte[]> future) {
+            this.fileName = fileName;
+            this.future = future;
+        }
+    }
+
+    /**
+     * Formatting helpers exposed to PDF templates as {@code fmt}.
+     * Output matches the previous hand-built HTML (GBP with grouping, empty string for nulls).
+     */
+    public static final class Formats {
+        static final Formats INSTANCE = new Formats();
+
+        private final Map<String, DateTimeFormatter> formatters = new ConcurrentHashMap<>();
+
+        private Formats() {}
+
+        public String currency(BigDecimal amount) {
+            if (amount == null) return "£0.00";
+            return String.format("£%,.2f", amount);
+        }
+
+        public String date(LocalDate date, String pattern) {
+            if (date == null) return "";
+            return date.format(formatters.computeIfAbsent(pattern, DateTimeFormatter::ofPattern));
+        }
+
+        public boolean isNegative(BigDecimal amount) {
+            return amount != null && amount.compareTo(BigDecimal.ZERO) < 0;
+        }
+
+        public boolean isPositive(BigDecimal amount) {
+            return amount != null && amount.compareTo(BigDecimal.ZERO) > 0;
+        }
+
+        public List<String> lines(String text) {
+            if (text == null) return Collections.emptyList();
+            return Arrays.asList(text.split("\n", -1));
+        }
+    }
+}
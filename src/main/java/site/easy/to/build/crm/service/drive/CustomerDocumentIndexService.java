@@ -0,0 +1,90 @@
+package site.easy.to.build.crm.service.drive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.entity.AssignmentType;
+import site.easy.to.build.crm.entity.GoogleDriveFile;
+import site.easy.to.build.crm.repository.GoogleDriveFileRepository;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Customer Document Index
+ *
+ * Answers "active documents visible to customer X, grouped by category, paged" straight from
+ * google_drive_file: the customer's own files plus the files of every property they own,
+ * resolved with an assignment subquery instead of one query per property. A listing costs
+ * two indexed queries (the page and the per-category counts) however many properties the
+ * customer owns.
+ *
+ * Shared by the customer files dashboard, the employee files API and the customer portal.
+ */
+@Service
+public class CustomerDocumentIndexService {
+
+    private static final Logger log = LoggerFactory.getLogger(CustomerDocumentIndexService.class);
+
+    private final GoogleDriveFileRepository googleDriveFileRepository;
+    private final int defaultPageSize;
+    private final int maxPageSize;
+
+    public CustomerDocumentIndexService(GoogleDriveFileRepository googleDriveFileRepository,
+                                        @Value("${customer.documents.page-size:100}") int defaultPageSize,
+                                        @Value("${customer.documents.max-page-size:500}") int maxPageSize) {
+        this.googleDriveFileRepository = googleDriveFileRepository;
+        this.defaultPageSize = defaultPageSize;
+        this.maxPageSize = maxPageSize;
+    }
+
+    /**
+     * A page of the customer's visible documents, optionally in one category
+     * ("Uncategorized" selects files without a category).
+     *
+     * @param size page size, or null for customer.documents.page-size
+     */
+    public CustomerDocumentPage findVisibleDocuments(Long customerId, String category, int page, Integer size) {
+        return findVisibleDocuments(customerId, category, page, size, true);
+    }
+
+    /**
+     * As above; with includePropertyFiles=false only the customer's own files are listed
+     * (tenants and other non-owners in the customer portal).
+     */
+    public CustomerDocumentPage findVisibleDocuments(Long customerId, String category, int page, Integer size,
+                                                     boolean includePropertyFiles) {
+        // No assignment has a null type, so the property subquery then matches nothing
+        AssignmentType propertyAccess = includePropertyFiles ? AssignmentType.OWNER : null;
+        int pageSize = size == null || size <= 0 ? defaultPageSize : Math.min(size, maxPageSize);
+        int pageNumber = Math.max(page, 0);
+        String categoryFilter = category == null || category.isBlank() ? null : category;
+
+        Page<GoogleDriveFile> files = googleDriveFileRepository.findVisibleToCustomer(
+            customerId.intValue(), customerId, propertyAccess, categoryFilter, PageRequest.of(pageNumber, pageSize));
+        Map<String, Long> counts = countByCategory(customerId, propertyAccess);
+
+        log.debug("Document index for customer {}: page {} ({} of {} files, {} categories)",
+            customerId, pageNumber, files.getNumberOfElements(), files.getTotalElements(), counts.size());
+        return new CustomerDocumentPage(files.getContent(), counts, pageNumber, pageSize, files.getTotalElements());
+    }
+
+    /**
+     * Visible document count per category.
+     */
+    public Map<String, Long> countByCategory(Long customerId) {
+        return countByCategory(customerId, AssignmentType.OWNER);
+    }
+
+    private Map<String, Long> countByCategory(Long customerId, AssignmentType propertyAccess) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (Object[] row : googleDriveFileRepository.countVisibleToCustomerByCategory(
+                customerId.intValue(), customerId, propertyAccess)) {
+            counts.put((String) row[0], ((Number) row[1]).longValue());
+        }
+        return counts;
+    }
+}
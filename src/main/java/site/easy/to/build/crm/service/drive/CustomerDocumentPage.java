@@ -0,0 +1,62 @@
+package site.easy.to.build.crm.service.drive;
+
+import site.easy.to.build.crm.entity.GoogleDriveFile;
+
+import java.util.*;
+
+/**
+ * One page of a customer's visible documents, grouped by category, plus the document count
+ * of every category (not just those on this page).
+ */
+public final class CustomerDocumentPage {
+
+    public static final String UNCATEGORIZED = "Uncategorized";
+
+    private final List<GoogleDriveFile> files;
+    private final Map<String, Long> categoryCounts;
+    private final int page;
+    private final int size;
+    private final long totalFiles;
+
+    public CustomerDocumentPage(List<GoogleDriveFile> files, Map<String, Long> categoryCounts,
+                                int page, int size, long totalFiles) {
+        this.files = List.copyOf(files);
+        this.categoryCounts = Collections.unmodifiableMap(new LinkedHashMap<>(categoryCounts));
+        this.page = page;
+        this.size = size;
+        this.totalFiles = totalFiles;
+    }
+
+    public List<GoogleDriveFile> getFiles() { return files; }
+    public Map<String, Long> getCategoryCounts() { return categoryCounts; }
+    public int getPage() { return page; }
+    public int getSize() { return size; }
+    public long getTotalFiles() { return totalFiles; }
+
+    public int getTotalPages() {
+        return size == 0 ? 0 : (int) ((totalFiles + size - 1) / size);
+    }
+
+    public boolean hasNext() {
+        return page + 1 < getTotalPages();
+    }
+
+    public boolean hasPrevious() {
+        return page > 0;
+    }
+
+    /**
+     * This page's files by category, in the order the index returns them.
+     */
+    public Map<String, List<GoogleDriveFile>> getFilesByCategory() {
+        Map<String, List<GoogleDriveFile>> grouped = new LinkedHashMap<>();
+        for (GoogleDriveFile file : files) {
+            grouped.computeIfAbsent(categoryOf(file), k -> new ArrayList<>()).add(file);
+        }
+        return grouped;
+    }
+
+    public static String categoryOf(GoogleDriveFile file) {
+        return file.getFileCategory() != null ? file.getFileCategory() : UNCATEGORIZED;
+    }
+}
@@ -0,0 +1,287 @@
+package site.easy.to.build.crm.service.drive;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Drive File Cache
+ *
+ * Bounded on-disk cache of files served by the Drive proxy endpoints. Blobs are content
+ * addressed - named by a hash of the Drive MD5 (or file id + version when Drive has no MD5) -
+ * so an edited file gets a new blob and identical files share one. Serving from a local file
+ * lets the controller answer Range and conditional requests without touching Drive.
+ *
+ * - Metadata is cached per file id for drive.proxy-cache.metadata-ttl-seconds, which bounds
+ *   how long an edited file can still be served at its old version
+ * - Concurrent requests for the same content share one download (single flight)
+ * - Least recently used blobs are deleted once the total passes drive.proxy-cache.max-bytes;
+ *   blobs handed out within drive.proxy-cache.eviction-grace-seconds are kept, since the
+ *   response streaming them may not have opened the file yet (the cache can run over budget
+ *   until they age out)
+ * - Blobs survive restarts; the index is rebuilt from the cache directory on startup
+ */
+@Service
+public class DriveFileCache {
+
+    private static final Logger log = LoggerFactory.getLogger(DriveFileCache.class);
+
+    private static final String TEMP_SUFFIX = ".part";
+
+    private final DriveFileSource source;
+    private final Path directory;
+    private final long maxBytes;
+    private final long metadataTtlNanos;
+    private final long evictionGraceNanos;
+
+    private final Map<String, CachedMetadata> metadata = new ConcurrentHashMap<>();
+    private final Map<String, Blob> blobs = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Blob>> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong totalBytes = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+
+    public DriveFileCache(DriveFileSource source,
+                          @Value("${drive.proxy-cache.dir:${java.io.tmpdir}/crm-drive-cache}") String directory,
+                          @Value("${drive.proxy-cache.max-bytes:536870912}") long maxBytes,
+                          @Value("${drive.proxy-cache.metadata-ttl-seconds:60}") long metadataTtlSeconds,
+                          @Value("${drive.proxy-cache.eviction-grace-seconds:30}") long evictionGraceSeconds) throws IOException {
+        this.source = source;
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        this.metadataTtlNanos = TimeUnit.SECONDS.toNanos(metadataTtlSeconds);
+        this.evictionGraceNanos = TimeUnit.SECONDS.toNanos(evictionGraceSeconds);
+        Files.createDirectories(this.directory);
+        loadExistingBlobs();
+    }
+
+    /**
+     * Local copy of the file's current content, downloading it if not cached.
+     */
+    public CachedDriveFile get(String fileId) throws IOException, GeneralSecurityException {
+        DriveFileInfo info = getInfo(fileId);
+        String blobName = blobName(info.getContentKey());
+
+        Blob blob = blobs.get(blobName);
+        if (blob != null && Files.exists(blob.path)) {
+            blob.lastAccess = System.nanoTime();
+            return new CachedDriveFile(info, blob.path, blobName);
+        }
+
+        CompletableFuture<Blob> download = new CompletableFuture<>();
+        CompletableFuture<Blob> existing = inFlight.putIfAbsent(blobName, download);
+        if (existing != null) {
+            Blob shared = await(existing);
+            shared.lastAccess = System.nanoTime();
+            return new CachedDriveFile(info, shared.path, blobName);
+        }
+        try {
+            // Another request may have finished this download since the lookup above
+            Blob fetched = blobs.get(blobName);
+            if (fetched == null || !Files.exists(fetched.path)) {
+                fetched = fetch(info, blobName);
+            } else {
+                fetched.lastAccess = System.nanoTime();
+            }
+            download.complete(fetched);
+            return new CachedDriveFile(info, fetched.path, blobName);
+        } catch (IOException | GeneralSecurityException | RuntimeException e) {
+            download.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(blobName, download);
+        }
+    }
+
+    /**
+     * Drop cached metadata so the next request checks Drive for a new version.
+     */
+    public void invalidate(String fileId) {
+        metadata.remove(fileId);
+    }
+
+    public long getTotalBytes() {
+        return totalBytes.get();
+    }
+
+    public int getBlobCount() {
+        return blobs.size();
+    }
+
+    /**
+     * Number of downloads from Drive since startup.
+     */
+    public long getDownloadCount() {
+        return downloads.get();
+    }
+
+    private DriveFileInfo getInfo(String fileId) throws IOException, GeneralSecurityException {
+        long now = System.nanoTime();
+        CachedMetadata cached = metadata.get(fileId);
+        if (cached != null && now - cached.loadedAt < metadataTtlNanos) {
+            return cached.info;
+        }
+        DriveFileInfo info = source.getFileInfo(fileId);
+        metadata.put(fileId, new CachedMetadata(info, now));
+        return info;
+    }
+
+    private Blob fetch(DriveFileInfo info, String blobName) throws IOException, GeneralSecurityException {
+        Path target = directory.resolve(blobName);
+        Path temp = Files.createTempFile(directory, blobName, TEMP_SUFFIX);
+        long started = System.nanoTime();
+        try {
+            try (OutputStream out = Files.newOutputStream(temp)) {
+                source.download(info.getFileId(), out);
+            }
+            Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+        downloads.incrementAndGet();
+
+        Blob blob = new Blob(target, Files.size(target));
+        Blob previous = blobs.put(blobName, blob);
+        totalBytes.addAndGet(blob.size - (previous != null ? previous.size : 0));
+        log.info("📥 Cached Drive file {} ({} bytes) in {}ms",
+            info.getFileId(), blob.size, TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+        evict(blobName);
+        return blob;
+    }
+
+    /**
+     * Delete least recently used blobs until the cache fits, keeping the one just added and any
+     * handed out within the eviction grace period.
+     */
+    private synchronized void evict(String keep) {
+        if (totalBytes.get() <= maxBytes) {
+            return;
+        }
+        // Snapshot access times, they keep changing while we sort
+        Map<String, Long> accessed = new HashMap<>();
+        blobs.forEach((name, blob) -> accessed.put(name, blob.lastAccess));
+        List<Map.Entry<String, Blob>> byAccess = new ArrayList<>(blobs.entrySet());
+        byAccess.removeIf(entry -> !accessed.containsKey(entry.getKey()));
+        byAccess.sort(Comparator.comparingLong(entry -> accessed.get(entry.getKey())));
+        long now = System.nanoTime();
+        for (Map.Entry<String, Blob> entry : byAccess) {
+            if (totalBytes.get() <= maxBytes) {
+                break;
+            }
+            // Handed out recently: the response may not have opened the file yet
+            if (now - entry.getValue().lastAccess < evictionGraceNanos) {
+                continue;
+            }
+            if (entry.getKey().equals(keep) || !blobs.remove(entry.getKey(), entry.getValue())) {
+                continue;
+            }
+            totalBytes.addAndGet(-entry.getValue().size);
+            try {
+                Files.deleteIfExists(entry.getValue().path);
+            } catch (IOException e) {
+                log.warn("⚠️ Could not delete cached Drive file {}: {}", entry.getValue().path, e.getMessage());
+            }
+        }
+    }
+
+    private void loadExistingBlobs() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(Files::isRegularFile).forEach(path -> {
+                try {
+                    if (path.getFileName().toString().endsWith(TEMP_SUFFIX)) {
+                        Files.deleteIfExists(path);
+                        return;
+                    }
+                    Blob blob = new Blob(path, Files.size(path));
+                    blobs.put(path.getFileName().toString(), blob);
+                    totalBytes.addAndGet(blob.size);
+                } catch (IOException e) {
+                    log.warn("⚠️ Skipping cached Drive file {}: {}", path, e.getMessage());
+                }
+            });
+        }
+        if (!blobs.isEmpty()) {
+            log.info("📁 Drive file cache: {} files, {} bytes in {}", blobs.size(), totalBytes.get(), directory);
+        }
+        evict(null);
+    }
+
+    private static Blob await(CompletableFuture<Blob> download) throws IOException, GeneralSecurityException {
+        try {
+            return download.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while waiting for Drive download", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) throw (IOException) cause;
+            if (cause instanceof GeneralSecurityException) throw (GeneralSecurityException) cause;
+            if (cause instanceof RuntimeException) throw (RuntimeException) cause;
+            throw new IOException("Drive download failed", cause);
+        }
+    }
+
+    static String blobName(String contentKey) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(contentKey.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    /**
+     * A cached file: Drive metadata plus the local copy. The ETag is the content address.
+     */
+    public static final class CachedDriveFile {
+        private final DriveFileInfo info;
+        private final Path path;
+        private final String etag;
+
+        CachedDriveFile(DriveFileInfo info, Path path, String etag) {
+            this.info = info;
+            this.path = path;
+            this.etag = etag;
+        }
+
+        public DriveFileInfo getInfo() { return info; }
+        public Path getPath() { return path; }
+        public String getETag() { return etag; }
+    }
+
+    private static final class Blob {
+        final Path path;
+        final long size;
+        volatile long lastAccess = System.nanoTime();
+
+        Blob(Path path, long size) {
+            this.path = path;
+            this.size = size;
+        }
+    }
+
+    private static final class CachedMetadata {
+        final DriveFileInfo info;
+        final long loadedAt;
+
+        CachedMetadata(DriveFileInfo info, long loadedAt) {
+            this.info = info;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
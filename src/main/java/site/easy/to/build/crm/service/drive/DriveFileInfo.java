@@ -0,0 +1,45 @@
+package site.easy.to.build.crm.service.drive;
+
+/**
+ * Drive metadata needed to serve and cache a proxied file.
+ */
+public final class DriveFileInfo {
+
+    private final String fileId;
+    private final String name;
+    private final String mimeType;
+    private final Long size;
+    private final Long modifiedTime;
+    private final String md5Checksum;
+    private final Long version;
+
+    public DriveFileInfo(String fileId, String name, String mimeType, Long size,
+                         Long modifiedTime, String md5Checksum, Long version) {
+        this.fileId = fileId;
+        this.name = name;
+        this.mimeType = mimeType;
+        this.size = size;
+        this.modifiedTime = modifiedTime;
+        this.md5Checksum = md5Checksum;
+        this.version = version;
+    }
+
+    public String getFileId() { return fileId; }
+    public String getName() { return name; }
+    public String getMimeType() { return mimeType; }
+    public Long getSize() { return size; }
+    public Long getModifiedTime() { return modifiedTime; }
+    public String getMd5Checksum() { return md5Checksum; }
+    public Long getVersion() { return version; }
+
+    /**
+     * Identifies the bytes: the MD5 when Drive has one (identical files share it), otherwise
+     * the file id at its current version or modification time.
+     */
+    public String getContentKey() {
+        if (md5Checksum != null && !md5Checksum.isEmpty()) {
+            return "md5:" + md5Checksum;
+        }
+        return "file:" + fileId + "@" + (version != null ? "v" + version : "t" + modifiedTime);
+    }
+}
@@ -0,0 +1,16 @@
+package site.easy.to.build.crm.service.drive;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.GeneralSecurityException;
+
+/**
+ * Where proxied Drive files come from: metadata (including the content checksum) and the
+ * file bytes. Implemented by SharedDriveFileService; tests use a local fake.
+ */
+public interface DriveFileSource {
+
+    DriveFileInfo getFileInfo(String fileId) throws IOException, GeneralSecurityException;
+
+    void download(String fileId, OutputStream outputStream) throws IOException, GeneralSecurityException;
+}
@@ -19,16 +19,20 @@ import site.easy.to.build.crm.service.property.PropertyService;
 import site.easy.to.build.crm.service.customer.CustomerService;
 import site.easy.to.build.crm.service.assignment.CustomerPropertyAssignmentService;
 import site.easy.to.build.crm.repository.InvoiceRepository;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
-public class SharedDriveFileService {
+public class SharedDriveFileService implements DriveFileSource {
 
     @Value("${GOOGLE_SERVICE_ACCOUNT_KEY:}")
     private String serviceAccountKey;
@@ -37,21 +41,27 @@ public class SharedDriveFileService {
     private final CustomerService customerService;
     private final CustomerPropertyAssignmentService assignmentService;
     private final InvoiceRepository invoiceRepository;
+    private final OutboundIo outboundIo;
 
     public SharedDriveFileService(PropertyService propertyService,
                                   CustomerService customerService,
                                   CustomerPropertyAssignmentService assignmentService,
-                                  InvoiceRepository invoiceRepository) {
+                                  InvoiceRepository invoiceRepository,
+                                  OutboundIo outboundIo) {
         this.propertyService = propertyService;
         this.customerService = customerService;
         this.assignmentService = assignmentService;
         this.invoiceRepository = invoiceRepository;
+        this.outboundIo = outboundIo;
     }
 
     // Shared Drive ID for CRM property documents
     private static final String SHARED_DRIVE_ID = "0ADaFlidiFrFDUk9PVA";
     private static final String SHARED_DRIVE_DOCUMENTS_FOLDER = "Property-Documents";
 
+    // Budget for resolving every property folder of a listing (one Drive lookup per folder)
+    private static final Duration PROPERTY_LISTING_DEADLINE = Duration.ofMinutes(5);
+
     // Property-level document folders (directly under property folder)
     private static final List<String> PROPERTY_DOCUMENT_SUBFOLDERS = Arrays.asList(
         "EICR",
@@ -230,7 +240,7 @@ public class SharedDriveFileService {
         Drive driveService = createDriveService();
         File file = driveService.files().get(fileId)
             .setSupportsAllDrives(true)
-            .setFields("name, size, mimeType, createdTime, modifiedTime")
+            .setFields("name, size, mimeType, createdTime, modifiedTime, md5Checksum, version")
             .execute();
 
         Map<String, Object> metadata = new HashMap<>();
@@ -239,10 +249,38 @@ public class SharedDriveFileService {
         metadata.put("mimeType", file.getMimeType());
         metadata.put("createdTime", file.getCreatedTime());
         metadata.put("modifiedTime", file.getModifiedTime());
+        metadata.put("md5Checksum", file.getMd5Checksum());
+        metadata.put("version", file.getVersion());
 
         return metadata;
     }
 
+    /**
+     * File metadata for the proxy cache (DriveFileSource)
+     */
+    @Override
+    public DriveFileInfo getFileInfo(String fileId) throws IOException, GeneralSecurityException {
+        Map<String, Object> metadata = getFileMetadata(fileId);
+        com.google.api.client.util.DateTime modifiedTime =
+            (com.google.api.client.util.DateTime) metadata.get("modifiedTime");
+        return new DriveFileInfo(
+            fileId,
+            (String) metadata.get("name"),
+            (String) metadata.get("mimeType"),
+            (Long) metadata.get("size"),
+            modifiedTime != null ? modifiedTime.getValue() : null,
+            (String) metadata.get("md5Checksum"),
+            (Long) metadata.get("version"));
+    }
+
+    /**
+     * File content for the proxy cache (DriveFileSource)
+     */
+    @Override
+    public void download(String fileId, java.io.OutputStream outputStream) throws IOException, GeneralSecurityException {
+        downloadFileContent(fileId, outputStream);
+    }
+
     // Helper methods
 
     private boolean hasServiceAccount() {
@@ -626,9 +664,8 @@ public class SharedDriveFileService {
         Drive driveService = createDriveService();
         String internalFolderId = getOrCreateInternalFolder(driveService);
 
-        List<Map<String, Object>> folders = new ArrayList<>();
-
-        for (String subfolderName : INTERNAL_SUBFOLDERS) {
+        // One lookup per subfolder, made concurrently
+        List<Map<String, Object>> folders = outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, INTERNAL_SUBFOLDERS, null, subfolderName -> {
             // Check if subfolder exists
             String query = String.format(
                 "name='%s' and parents in '%s' and trashed=false and mimeType='application/vnd.google-apps.folder'",
@@ -652,8 +689,8 @@ public class SharedDriveFileService {
             folderInfo.put("id", subfolderId);
             folderInfo.put("exists", subfolderId != null);
 
-            folders.add(folderInfo);
-        }
+            return folderInfo;
+        });
 
         System.out.println("📁 [Employee] Listed " + INTERNAL_SUBFOLDERS.size() + " internal folders");
         return folders;
@@ -855,7 +892,11 @@ public class SharedDriveFileService {
      * NO customer folder layer!
      */
     private String getOrCreatePropertyFolderDirect(Drive driveService, String propertyFolderName) throws IOException {
-        String documentsFolderId = getDocumentsFolderId(driveService);
+        return getOrCreatePropertyFolderDirect(driveService, getDocumentsFolderId(driveService), propertyFolderName);
+    }
+
+    private String getOrCreatePropertyFolderDirect(Drive driveService, String documentsFolderId, String propertyFolderName)
+            throws IOException {
         System.out.println("🔍 Looking for property folder '" + propertyFolderName + "' in Property-Documents folder: " + documentsFolderId);
 
         // Search for existing property folder
@@ -885,6 +926,28 @@ public class SharedDriveFileService {
         return createFolderInParent(driveService, propertyFolderName, documentsFolderId);
     }
 
+    /**
+     * Property folder id per folder name, resolved concurrently. Each name is looked up once,
+     * so properties sharing a folder name cannot create it twice.
+     */
+    private Map<String, String> getOrCreatePropertyFoldersDirect(Drive driveService, List<Property> properties)
+            throws IOException {
+        String documentsFolderId = getDocumentsFolderId(driveService);
+        List<String> folderNames = properties.stream()
+            .map(this::generatePropertyFolderName)
+            .distinct()
+            .collect(Collectors.toList());
+
+        List<String> folderIds = outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, folderNames, PROPERTY_LISTING_DEADLINE,
+            folderName -> getOrCreatePropertyFolderDirect(driveService, documentsFolderId, folderName));
+
+        Map<String, String> folderIdByName = new HashMap<>();
+        for (int i = 0; i < folderNames.size(); i++) {
+            folderIdByName.put(folderNames.get(i), folderIds.get(i));
+        }
+        return folderIdByName;
+    }
+
     /**
      * List all properties with folders (for both employees and property owners)
      */
@@ -895,11 +958,12 @@ public class SharedDriveFileService {
 
         List<Property> allProperties = propertyService.findAll();
         Drive driveService = createDriveService();
+        Map<String, String> folderIdByName = getOrCreatePropertyFoldersDirect(driveService, allProperties);
         List<Map<String, Object>> propertyFolders = new ArrayList<>();
 
         for (Property property : allProperties) {
             String propertyFolderName = generatePropertyFolderName(property);
-            String propertyFolderId = getOrCreatePropertyFolderDirect(driveService, propertyFolderName);
+            String propertyFolderId = folderIdByName.get(propertyFolderName);
 
             Map<String, Object> folderInfo = new HashMap<>();
             folderInfo.put("id", property.getId());
@@ -925,11 +989,12 @@ public class SharedDriveFileService {
 
         List<Property> customerProperties = propertyService.findPropertiesAccessibleByCustomer(customerId);
         Drive driveService = createDriveService();
+        Map<String, String> folderIdByName = getOrCreatePropertyFoldersDirect(driveService, customerProperties);
         List<Map<String, Object>> propertyFolders = new ArrayList<>();
 
         for (Property property : customerProperties) {
             String propertyFolderName = generatePropertyFolderName(property);
-            String propertyFolderId = getOrCreatePropertyFolderDirect(driveService, propertyFolderName);
+            String propertyFolderId = folderIdByName.get(propertyFolderName);
 
             Map<String, Object> folderInfo = new HashMap<>();
             folderInfo.put("id", property.getId());
@@ -967,9 +1032,7 @@ public class SharedDriveFileService {
         String propertyFolderName = generatePropertyFolderName(property);
         String propertyFolderId = getOrCreatePropertyFolderDirect(driveService, propertyFolderName);
 
-        List<Map<String, Object>> subfolders = new ArrayList<>();
-
-        for (String subfolderName : PROPERTY_DOCUMENT_SUBFOLDERS) {
+        List<Map<String, Object>> subfolders = outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, PROPERTY_DOCUMENT_SUBFOLDERS, null, subfolderName -> {
             String subfolderId = getOrCreateSubfolder(driveService, propertyFolderId, subfolderName);
 
             Map<String, Object> folderInfo = new HashMap<>();
@@ -978,8 +1041,8 @@ public class SharedDriveFileService {
             folderInfo.put("type", "property-subfolder");
             folderInfo.put("description", getPropertySubfolderDescription(subfolderName));
 
-            subfolders.add(folderInfo);
-        }
+            return folderInfo;
+        });
 
         System.out.println("📁 Found " + subfolders.size() + " property-level subfolders for " + property.getPropertyName());
         return subfolders;
@@ -1130,11 +1193,23 @@ public class SharedDriveFileService {
         String propertyFolderName = generatePropertyFolderName(property);
         String propertyFolderId = getOrCreatePropertyFolderDirect(driveService, propertyFolderName);
 
+        // Tenant folders (and their document subfolders) are resolved concurrently, once per name
+        List<String> tenantFolderNames = leases.stream()
+            .map(this::generateTenantFolderName)
+            .distinct()
+            .collect(Collectors.toList());
+        List<String> tenantFolderIds = outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, tenantFolderNames, PROPERTY_LISTING_DEADLINE,
+            tenantFolderName -> getOrCreateTenantFolder(driveService, propertyFolderId, tenantFolderName));
+        Map<String, String> tenantFolderIdByName = new HashMap<>();
+        for (int i = 0; i < tenantFolderNames.size(); i++) {
+            tenantFolderIdByName.put(tenantFolderNames.get(i), tenantFolderIds.get(i));
+        }
+
         List<Map<String, Object>> tenants = new ArrayList<>();
 
         for (Invoice lease : leases) {
             String tenantFolderName = generateTenantFolderName(lease);
-            String tenantFolderId = getOrCreateTenantFolder(driveService, propertyFolderId, tenantFolderName);
+            String tenantFolderId = tenantFolderIdByName.get(tenantFolderName);
 
             Map<String, Object> tenantInfo = new HashMap<>();
             tenantInfo.put("leaseId", lease.getId());
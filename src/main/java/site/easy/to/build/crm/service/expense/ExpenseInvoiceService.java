@@ -1,7 +1,5 @@
 package site.easy.to.build.crm.service.expense;
 
-import com.itextpdf.html2pdf.ConverterProperties;
-import com.itextpdf.html2pdf.HtmlConverter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,15 +9,18 @@ import site.easy.to.build.crm.dto.expense.ExpenseInvoiceDTO.ExpenseLineItemDTO;
 import site.easy.to.build.crm.dto.expense.ExpenseInvoiceDTO.InvoiceSourceType;
 import site.easy.to.build.crm.entity.*;
 import site.easy.to.build.crm.repository.*;
+import site.easy.to.build.crm.service.document.PdfRenderingService;
 import site.easy.to.build.crm.service.portfolio.PortfolioBlockService;
 
 import org.springframework.core.env.Environment;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
 
 /**
  * Service for generating expense invoice PDFs.
@@ -30,6 +31,8 @@ public class ExpenseInvoiceService {
 
     private static final Logger log = LoggerFactory.getLogger(ExpenseInvoiceService.class);
 
+    private static final String PDF_TEMPLATE = "expense-invoice";
+
     @Autowired
     private UnifiedTransactionRepository unifiedTransactionRepository;
 
@@ -57,6 +60,9 @@ public class ExpenseInvoiceService {
     @Autowired
     private Environment environment;
 
+    @Autowired
+    private PdfRenderingService pdfRenderingService;
+
     /**
      * Generate an expense invoice DTO from a unified transaction.
      *
@@ -361,14 +367,10 @@ public class ExpenseInvoiceService {
      * @return byte array containing the PDF file
      */
     public byte[] exportToPdf(ExpenseInvoiceDTO invoice) throws IOException {
-        String htmlContent = generatePdfHtml(invoice);
-
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ConverterProperties properties = new ConverterProperties();
-            HtmlConverter.convertToPdf(htmlContent, outputStream, properties);
-
+        try {
+            byte[] pdf = pdfRenderingService.renderPdf(PDF_TEMPLATE, Map.of("invoice", invoice));
             log.info("PDF export complete for invoice: {}", invoice.getInvoiceNumber());
-            return outputStream.toByteArray();
+            return pdf;
         } catch (Exception e) {
             log.error("Error generating PDF for invoice {}: {}", invoice.getInvoiceNumber(), e.getMessage(), e);
             throw new IOException("Failed to generate PDF: " + e.getMessage(), e);
@@ -376,155 +378,25 @@ public class ExpenseInvoiceService {
     }
 
     /**
-     * Generate HTML content for PDF conversion.
+     * Export many expense invoices as one ZIP of PDFs.
+     * Invoices are built in order while PDFs are converted in parallel on the rendering pool.
+     *
+     * @param transactionIds The unified transaction IDs
+     * @param out Stream the ZIP is written to
+     * @return number of PDFs written
      */
-    private String generatePdfHtml(ExpenseInvoiceDTO invoice) {
-        StringBuilder html = new StringBuilder();
-        DateTimeFormatter dateFormat = DateTimeFormatter.ofPattern("dd MMM yyyy");
-
-        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"/><style>");
-        // CSS styles
-        html.append("body{font-family:Helvetica,Arial,sans-serif;font-size:10pt;margin:20px;color:#333}");
-        html.append(".header{background:#2c3e50;color:#fff;padding:20px;margin-bottom:20px}");
-        html.append(".header h1{margin:0 0 5px 0;font-size:24pt}");
-        html.append(".header-table{width:100%}.header-table td{vertical-align:top;padding:3px;color:#fff}");
-        html.append(".invoice-number{font-size:14pt;font-weight:bold;color:#ecf0f1}");
-        html.append(".info-section{display:flex;margin-bottom:20px}");
-        html.append(".info-box{flex:1;padding:15px;background:#f8f9fa;margin-right:10px;border-left:4px solid #3498db}");
-        html.append(".info-box:last-child{margin-right:0}");
-        html.append(".info-box h3{margin:0 0 10px 0;font-size:11pt;color:#2c3e50;text-transform:uppercase}");
-        html.append(".info-box p{margin:3px 0;font-size:9pt}");
-        html.append(".property-box{background:#e8f4fd;border-left-color:#2980b9}");
-        html.append("table{width:100%;border-collapse:collapse;margin-bottom:20px}");
-        html.append(".items-table th{background:#34495e;color:#fff;padding:10px;text-align:left;font-size:9pt}");
-        html.append(".items-table td{padding:10px;border-bottom:1px solid #ddd;font-size:9pt}");
-        html.append(".items-table tr:nth-child(even){background:#f8f9fa}");
-        html.append(".r{text-align:right}");
-        html.append(".totals-section{margin-top:20px;float:right;width:300px}");
-        html.append(".totals-table td{padding:8px;border:none}");
-        html.append(".totals-table .label{text-align:right;font-weight:bold;color:#7f8c8d}");
-        html.append(".totals-table .value{text-align:right;min-width:100px}");
-        html.append(".total-row{background:#2c3e50;color:#fff}");
-        html.append(".total-row td{padding:12px}");
-        html.append(".status-paid{display:inline-block;background:#27ae60;color:#fff;padding:5px 15px;border-radius:3px;font-weight:bold}");
-        html.append(".status-pending{display:inline-block;background:#f39c12;color:#fff;padding:5px 15px;border-radius:3px;font-weight:bold}");
-        html.append(".footer{clear:both;margin-top:40px;padding-top:20px;border-top:2px solid #eee;text-align:center;font-size:8pt;color:#95a5a6}");
-        html.append(".expense-badge{display:inline-block;background:#e74c3c;color:#fff;padding:3px 10px;border-radius:3px;font-size:8pt;margin-left:10px}");
-        html.append("</style></head><body>");
-
-        // Header
-        html.append("<div class=\"header\">");
-        html.append("<table class=\"header-table\"><tr>");
-        html.append("<td width=\"60%\">");
-        html.append("<h1>EXPENSE INVOICE</h1>");
-        html.append("<span class=\"expense-badge\">").append(escapeHtml(invoice.getExpenseCategory())).append("</span>");
-        html.append("</td>");
-        html.append("<td width=\"40%\" style=\"text-align:right\">");
-        html.append("<div class=\"invoice-number\">").append(escapeHtml(invoice.getInvoiceNumber())).append("</div>");
-        html.append("<div style=\"margin-top:10px\">Date: ").append(invoice.getInvoiceDate() != null ? invoice.getInvoiceDate().format(dateFormat) : "").append("</div>");
-        html.append("<div style=\"margin-top:5px\"><span class=\"status-").append(invoice.getStatus() != null ? invoice.getStatus().toLowerCase() : "paid").append("\">");
-        html.append(escapeHtml(invoice.getStatus() != null ? invoice.getStatus() : "PAID")).append("</span></div>");
-        html.append("</td></tr></table>");
-        html.append("</div>");
-
-        // Info sections (From/To/Property)
-        html.append("<table style=\"width:100%;margin-bottom:20px\"><tr>");
-
-        // From section - Use block property for block expenses, otherwise agency
-        html.append("<td width=\"33%\" style=\"vertical-align:top;padding-right:10px\">");
-        html.append("<div class=\"info-box\">");
-        html.append("<h3>From</h3>");
-
-        if (invoice.isBlockExpense() && invoice.getBlockPropertyName() != null) {
-            // Block service charge - show block property as the "From"
-            html.append("<p><strong>").append(escapeHtml(invoice.getBlockPropertyName())).append("</strong></p>");
-            if (invoice.getBlockPropertyAddress() != null) {
-                html.append("<p>").append(escapeHtml(invoice.getBlockPropertyAddress()).replace("\n", "<br/>")).append("</p>");
-            }
-            html.append("<p><em>Block Service Charge</em></p>");
-        } else {
-            // Regular expense - show agency
-            html.append("<p><strong>").append(escapeHtml(invoice.getAgencyName())).append("</strong></p>");
-            if (invoice.getAgencyAddress() != null) html.append("<p>").append(escapeHtml(invoice.getAgencyAddress()).replace("\n", "<br/>")).append("</p>");
-            if (invoice.getAgencyPhone() != null) html.append("<p>Tel: ").append(escapeHtml(invoice.getAgencyPhone())).append("</p>");
-            if (invoice.getAgencyEmail() != null) html.append("<p>").append(escapeHtml(invoice.getAgencyEmail())).append("</p>");
-        }
-        html.append("</div></td>");
-
-        // Owner (Bill To)
-        html.append("<td width=\"33%\" style=\"vertical-align:top;padding-right:10px\">");
-        html.append("<div class=\"info-box\">");
-        html.append("<h3>Bill To</h3>");
-        html.append("<p><strong>").append(escapeHtml(invoice.getOwnerName() != null ? invoice.getOwnerName() : "Property Owner")).append("</strong></p>");
-        if (invoice.getOwnerAddress() != null) html.append("<p>").append(escapeHtml(invoice.getOwnerAddress())).append("</p>");
-        if (invoice.getOwnerEmail() != null) html.append("<p>").append(escapeHtml(invoice.getOwnerEmail())).append("</p>");
-        html.append("</div></td>");
-
-        // Property
-        html.append("<td width=\"33%\" style=\"vertical-align:top\">");
-        html.append("<div class=\"info-box property-box\">");
-        html.append("<h3>Property</h3>");
-        html.append("<p><strong>").append(escapeHtml(invoice.getPropertyName() != null ? invoice.getPropertyName() : "N/A")).append("</strong></p>");
-        if (invoice.getPropertyAddress() != null) html.append("<p>").append(escapeHtml(invoice.getPropertyAddress())).append("</p>");
-        html.append("</div></td>");
-
-        html.append("</tr></table>");
-
-        // Transaction details
-        if (invoice.getTransactionDate() != null || invoice.getTransactionReference() != null) {
-            html.append("<div style=\"background:#f8f9fa;padding:10px;margin-bottom:20px;border-radius:3px\">");
-            html.append("<strong>Transaction Details:</strong> ");
-            if (invoice.getTransactionDate() != null) {
-                html.append("Date: ").append(invoice.getTransactionDate().format(dateFormat));
-            }
-            if (invoice.getTransactionReference() != null) {
-                html.append(" | Ref: ").append(escapeHtml(invoice.getTransactionReference()));
-            }
-            html.append("</div>");
+    public int exportToPdfZip(List<Long> transactionIds, OutputStream out) throws IOException {
+        log.info("Exporting {} expense invoices to PDF ZIP", transactionIds.size());
+
+        List<PdfRenderingService.PdfJob> jobs = new ArrayList<>();
+        for (Long transactionId : transactionIds) {
+            jobs.add(new PdfRenderingService.PdfJob(
+                "ExpenseInvoice_" + transactionId + ".pdf",
+                PDF_TEMPLATE,
+                () -> Map.of("invoice", generateExpenseInvoice(transactionId))));
         }
 
-        // Line items table
-        html.append("<table class=\"items-table\">");
-        html.append("<tr><th style=\"width:50%\">Description</th><th style=\"width:20%\">Category</th><th class=\"r\" style=\"width:15%\">Amount</th><th class=\"r\" style=\"width:15%\">Total</th></tr>");
-
-        for (ExpenseLineItemDTO item : invoice.getLineItems()) {
-            html.append("<tr>");
-            html.append("<td>").append(escapeHtml(item.getDescription() != null ? item.getDescription() : "")).append("</td>");
-            html.append("<td>").append(escapeHtml(item.getCategory() != null ? item.getCategory() : "")).append("</td>");
-            html.append("<td class=\"r\">").append(formatCurrency(item.getUnitPrice())).append("</td>");
-            html.append("<td class=\"r\">").append(formatCurrency(item.getLineTotal())).append("</td>");
-            html.append("</tr>");
-        }
-        html.append("</table>");
-
-        // Totals section
-        html.append("<div class=\"totals-section\">");
-        html.append("<table class=\"totals-table\">");
-        html.append("<tr><td class=\"label\">Subtotal:</td><td class=\"value\">").append(formatCurrency(invoice.getSubtotal())).append("</td></tr>");
-        if (invoice.getVatAmount() != null && invoice.getVatAmount().compareTo(BigDecimal.ZERO) > 0) {
-            html.append("<tr><td class=\"label\">VAT:</td><td class=\"value\">").append(formatCurrency(invoice.getVatAmount())).append("</td></tr>");
-        }
-        html.append("<tr class=\"total-row\"><td class=\"label\">TOTAL:</td><td class=\"value\" style=\"font-size:14pt\">").append(formatCurrency(invoice.getTotalAmount())).append("</td></tr>");
-        html.append("</table></div>");
-
-        // Clear float
-        html.append("<div style=\"clear:both\"></div>");
-
-        // Footer
-        html.append("<div class=\"footer\">");
-        html.append("<p>This expense has been charged to the property account.</p>");
-        if (invoice.getAgencyName() != null) {
-            html.append("<p>Generated by ").append(escapeHtml(invoice.getAgencyName()));
-            if (invoice.getAgencyRegistrationNumber() != null) {
-                html.append(" | Reg: ").append(escapeHtml(invoice.getAgencyRegistrationNumber()));
-            }
-            html.append("</p>");
-        }
-        html.append("</div>");
-
-        html.append("</body></html>");
-
-        return html.toString();
+        return pdfRenderingService.renderZip(jobs, out);
     }
 
     /**
@@ -580,24 +452,4 @@ public class ExpenseInvoiceService {
         }
         return address.toString();
     }
-
-    /**
-     * Escape HTML special characters.
-     */
-    private String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
-    }
-
-    /**
-     * Format amount as GBP currency.
-     */
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "£0.00";
-        return String.format("£%,.2f", amount);
-    }
 }
@@ -0,0 +1,43 @@
+package site.easy.to.build.crm.service.file;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.Instant;
+
+/**
+ * Content-addressed store for uploaded file bytes. Content is identified by its SHA-256, so
+ * storing the same bytes twice keeps one copy. Callers stream in and out; nothing here needs
+ * the whole file in memory.
+ */
+public interface BlobStore {
+
+    /**
+     * Store the stream's content (the stream is read to the end but not closed). Storing content
+     * that is already present marks it as modified now, so a sweep that started before the
+     * caller's file row commits does not delete it.
+     */
+    StoredBlob put(InputStream content) throws IOException;
+
+    /**
+     * Open stored content for reading; the caller closes the stream.
+     *
+     * @throws java.io.FileNotFoundException if nothing is stored under the hash
+     */
+    InputStream open(String hash) throws IOException;
+
+    boolean exists(String hash);
+
+    /**
+     * Remove stored content. Only call once no file row references the hash (FileServiceImpl
+     * does so from its grace-period sweep).
+     */
+    void delete(String hash) throws IOException;
+
+    /**
+     * Remove stored content unless it was stored or deduplicated to after the cutoff. The check
+     * and the delete are atomic with respect to put.
+     *
+     * @return true if the content was deleted
+     */
+    boolean deleteIfUnmodifiedSince(String hash, Instant cutoff) throws IOException;
+}
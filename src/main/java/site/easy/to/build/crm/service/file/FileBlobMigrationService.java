@@ -0,0 +1,115 @@
+package site.easy.to.build.crm.service.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Moves legacy file.file_data bytes into the BlobStore.
+ *
+ * Works in chunks of file.blob-store.migration-batch-size ids (walking file_id upwards) and
+ * migrates one row at a time, so only one file's bytes are in flight. Rows that fail are
+ * logged and left for the next run - their content stays readable from file_data.
+ *
+ * Opt-in on startup (file.blob-store.migrate-on-startup=true); the run goes to the
+ * single-worker fileBlobMigrationExecutor. Legacy rows are also migrated on first read.
+ */
+@Service
+public class FileBlobMigrationService {
+
+    private static final Logger log = LoggerFactory.getLogger(FileBlobMigrationService.class);
+
+    private final FileService fileService;
+    private final JdbcTemplate jdbcTemplate;
+    private final TaskExecutor executor;
+    private final int batchSize;
+    private final boolean migrateOnStartup;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    public FileBlobMigrationService(FileService fileService,
+                                    JdbcTemplate jdbcTemplate,
+                                    @Qualifier("fileBlobMigrationExecutor") TaskExecutor executor,
+                                    @Value("${file.blob-store.migration-batch-size:100}") int batchSize,
+                                    @Value("${file.blob-store.migrate-on-startup:false}") boolean migrateOnStartup) {
+        this.fileService = fileService;
+        this.jdbcTemplate = jdbcTemplate;
+        this.executor = executor;
+        this.batchSize = batchSize;
+        this.migrateOnStartup = migrateOnStartup;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void migrateOnStartup() {
+        if (!migrateOnStartup) {
+            return;
+        }
+        executor.execute(this::migrateAll);
+    }
+
+    /**
+     * Migrate every legacy row.
+     *
+     * @return number of rows migrated (0 if a migration is already running)
+     */
+    public int migrateAll() {
+        if (!running.compareAndSet(false, true)) {
+            log.info("⏭️ File blob migration already running");
+            return 0;
+        }
+        int migrated = 0;
+        int failed = 0;
+        try {
+            if (!hasLegacyColumn()) {
+                return 0;
+            }
+            int lastId = 0;
+            while (true) {
+                List<Integer> ids = jdbcTemplate.queryForList(
+                    "SELECT file_id FROM file WHERE file_id > ? AND content_hash IS NULL AND file_data IS NOT NULL " +
+                    "ORDER BY file_id LIMIT ?", Integer.class, lastId, batchSize);
+                if (ids.isEmpty()) {
+                    break;
+                }
+                for (Integer id : ids) {
+                    try {
+                        if (fileService.migrateLegacyContent(id)) {
+                            migrated++;
+                        }
+                    } catch (Exception e) {
+                        failed++;
+                        log.warn("⚠️ Could not move file {} to the blob store: {}", id, e.getMessage());
+                    }
+                }
+                lastId = ids.get(ids.size() - 1);
+                log.info("📦 File blob migration: {} moved, {} failed (up to file {})", migrated, failed, lastId);
+            }
+        } catch (Exception e) {
+            log.error("❌ File blob migration stopped: {}", e.getMessage(), e);
+        } finally {
+            running.set(false);
+        }
+        if (migrated > 0 || failed > 0) {
+            log.info("✅ File blob migration finished: {} moved, {} failed", migrated, failed);
+        }
+        return migrated;
+    }
+
+    /**
+     * Databases created after the move never had file_data.
+     */
+    private boolean hasLegacyColumn() {
+        Integer columns = jdbcTemplate.queryForObject(
+            "SELECT COUNT(*) FROM information_schema.columns " +
+            "WHERE table_schema = DATABASE() AND table_name = 'file' AND column_name = 'file_data'", Integer.class);
+        return columns != null && columns > 0;
+    }
+}
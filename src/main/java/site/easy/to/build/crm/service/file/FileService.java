@@ -2,6 +2,8 @@ package site.easy.to.build.crm.service.file;
 
 import site.easy.to.build.crm.entity.File;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.List;
 
 public interface FileService {
@@ -11,5 +13,27 @@ public interface FileService {
 
     public void save(File file);
 
+    /**
+     * Stream the content into the blob store and save the file row pointing at it.
+     */
+    public void saveContent(File file, InputStream content) throws IOException;
+
+    /**
+     * Open the file's content; rows still holding legacy file_data are migrated first.
+     */
+    public InputStream openContent(File file) throws IOException;
+
+    /**
+     * Content as base64, for the edit forms that round-trip existing attachments.
+     */
+    public String readBase64(File file) throws IOException;
+
+    /**
+     * Move one row's legacy file_data into the blob store.
+     *
+     * @return false if the row had nothing left to migrate
+     */
+    public boolean migrateLegacyContent(int fileId) throws IOException;
+
     public void delete(File file);
 }
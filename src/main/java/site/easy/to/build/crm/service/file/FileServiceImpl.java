@@ -1,18 +1,55 @@
 package site.easy.to.build.crm.service.file;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 import site.easy.to.build.crm.entity.File;
 import site.easy.to.build.crm.repository.FileRepository;
 
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Base64;
 import java.util.List;
 
+/**
+ * File rows hold metadata only; content lives in the BlobStore under its SHA-256 (content_hash).
+ * Rows created before the blob store keep their bytes in the unmapped file_data column until
+ * FileBlobMigrationService (or the first read) moves them out.
+ *
+ * Content is shared between identical uploads, so deleting a row only queues its hash in
+ * file_blob_gc. A periodic sweep deletes queued content still unreferenced after
+ * file.blob-store.gc-grace-hours: an upload that deduplicated to the same hash while the row
+ * was being deleted has committed its own row by then, so its content is kept. An upload that
+ * deduplicates while the sweep runs refreshes the blob's modification time, and the sweep only
+ * deletes blobs untouched for the grace period, so that upload's content is kept too.
+ */
 @Service
 public class FileServiceImpl implements FileService {
 
+    private static final Logger log = LoggerFactory.getLogger(FileServiceImpl.class);
+
     private final FileRepository fileRepository;
+    private final BlobStore blobStore;
+    private final JdbcTemplate jdbcTemplate;
+    private final int gcGraceHours;
+    private volatile boolean gcTableVerified;
 
-    public FileServiceImpl(FileRepository fileRepository) {
+    public FileServiceImpl(FileRepository fileRepository, BlobStore blobStore, JdbcTemplate jdbcTemplate,
+                           @Value("${file.blob-store.gc-grace-hours:24}") int gcGraceHours) {
         this.fileRepository = fileRepository;
+        this.blobStore = blobStore;
+        this.jdbcTemplate = jdbcTemplate;
+        this.gcGraceHours = gcGraceHours;
     }
 
     @Override
@@ -30,8 +67,127 @@ public class FileServiceImpl implements FileService {
         fileRepository.save(file);
     }
 
+    @Override
+    public void saveContent(File file, InputStream content) throws IOException {
+        StoredBlob blob = blobStore.put(content);
+        file.setContentHash(blob.getHash());
+        file.setFileSize(blob.getSize());
+        fileRepository.save(file);
+        log.debug("Stored file {} as {} ({} bytes{})", file.getFileName(), blob.getHash(), blob.getSize(),
+            blob.isDeduplicated() ? ", deduplicated" : "");
+    }
+
+    @Override
+    public InputStream openContent(File file) throws IOException {
+        if (file.getContentHash() == null) {
+            migrateLegacyContent(file.getFileId());
+            String hash = jdbcTemplate.query("SELECT content_hash FROM file WHERE file_id = ?",
+                rs -> rs.next() ? rs.getString(1) : null, file.getFileId());
+            if (hash == null) {
+                throw new FileNotFoundException("File " + file.getFileId() + " has no content");
+            }
+            file.setContentHash(hash);
+        }
+        return blobStore.open(file.getContentHash());
+    }
+
+    @Override
+    public String readBase64(File file) throws IOException {
+        ByteArrayOutputStream encoded = new ByteArrayOutputStream();
+        try (InputStream content = openContent(file);
+             OutputStream encoder = Base64.getEncoder().wrap(encoded)) {
+            content.transferTo(encoder);
+        }
+        return encoded.toString(StandardCharsets.US_ASCII);
+    }
+
+    @Override
+    public boolean migrateLegacyContent(int fileId) throws IOException {
+        StoredBlob blob;
+        try {
+            blob = jdbcTemplate.query(
+                "SELECT file_data FROM file WHERE file_id = ? AND content_hash IS NULL AND file_data IS NOT NULL",
+                rs -> {
+                    if (!rs.next()) {
+                        return null;
+                    }
+                    try (InputStream data = rs.getBinaryStream(1)) {
+                        return blobStore.put(data);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, fileId);
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        if (blob == null) {
+            return false;
+        }
+        // Only clear file_data if nobody migrated the row in the meantime
+        jdbcTemplate.update(
+            "UPDATE file SET content_hash = ?, file_size = ?, file_data = NULL WHERE file_id = ? AND content_hash IS NULL",
+            blob.getHash(), blob.getSize(), fileId);
+        return true;
+    }
+
     @Override
     public void delete(File file) {
         fileRepository.delete(file);
+        String hash = file.getContentHash();
+        if (hash == null) {
+            return;
+        }
+        // Queued in the same transaction as the row delete; a rolled-back delete queues nothing
+        ensureGcTable();
+        jdbcTemplate.update(
+            "INSERT INTO file_blob_gc (content_hash, queued_at) VALUES (?, NOW()) " +
+            "ON DUPLICATE KEY UPDATE queued_at = VALUES(queued_at)", hash);
+    }
+
+    /**
+     * Delete queued content that no file row references once its grace period has passed.
+     *
+     * @return number of blobs deleted
+     */
+    @Scheduled(cron = "${file.blob-store.gc-cron:0 15 4 * * ?}")
+    public int collectUnreferencedBlobs() {
+        ensureGcTable();
+        List<String> hashes = jdbcTemplate.queryForList(
+            "SELECT content_hash FROM file_blob_gc WHERE queued_at < NOW() - INTERVAL ? HOUR", String.class, gcGraceHours);
+        Instant cutoff = Instant.now().minus(gcGraceHours, ChronoUnit.HOURS);
+        int deleted = 0;
+        for (String hash : hashes) {
+            try {
+                if (fileRepository.countByContentHash(hash) == 0) {
+                    if (blobStore.deleteIfUnmodifiedSince(hash, cutoff)) {
+                        deleted++;
+                    } else if (blobStore.exists(hash)) {
+                        // Deduplicated to by a recent upload: keep it queued and check again next sweep
+                        continue;
+                    }
+                }
+                // A delete queued again since the query starts a new grace period
+                jdbcTemplate.update("DELETE FROM file_blob_gc WHERE content_hash = ? AND queued_at < NOW() - INTERVAL ? HOUR",
+                    hash, gcGraceHours);
+            } catch (IOException | RuntimeException e) {
+                log.warn("⚠️ Could not delete unreferenced blob {}: {}", hash, e.getMessage());
+            }
+        }
+        if (deleted > 0) {
+            log.info("🧹 Deleted {} unreferenced file blob(s)", deleted);
+        }
+        return deleted;
+    }
+
+    private void ensureGcTable() {
+        if (gcTableVerified) return;
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS file_blob_gc (
+                content_hash CHAR(64) PRIMARY KEY,
+                queued_at DATETIME NOT NULL,
+                KEY idx_file_blob_gc_queued (queued_at)
+            )
+        """);
+        gcTableVerified = true;
     }
 }
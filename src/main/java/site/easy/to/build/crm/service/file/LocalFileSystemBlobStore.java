@@ -0,0 +1,146 @@
+package site.easy.to.build.crm.service.file;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.util.HexFormat;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * BlobStore on the local filesystem (file.blob-store.type=local, the default).
+ *
+ * Content lives at {root}/{hash[0..2]}/{hash[2..4]}/{hash}. Writes go to a temp file while
+ * the hash is computed, then move into place atomically; if the hash is already present
+ * the temp file is dropped, which is how identical uploads share one copy.
+ *
+ * A deduplicated put touches the existing file's modification time, and the GC delete checks
+ * that time; both run under a per-hash lock stripe so a put cannot land between the check and
+ * the delete.
+ */
+@Service
+@ConditionalOnProperty(name = "file.blob-store.type", havingValue = "local", matchIfMissing = true)
+public class LocalFileSystemBlobStore implements BlobStore {
+
+    private static final Logger log = LoggerFactory.getLogger(LocalFileSystemBlobStore.class);
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final int LOCK_STRIPES = 64;
+
+    private final Path root;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+
+    public LocalFileSystemBlobStore(@Value("${file.blob-store.dir:./data/blobs}") String root) throws IOException {
+        this.root = Paths.get(root).toAbsolutePath();
+        Files.createDirectories(this.root);
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new ReentrantLock();
+        }
+        log.info("📁 File blob store at {}", this.root);
+    }
+
+    @Override
+    public StoredBlob put(InputStream content) throws IOException {
+        Path temp = Files.createTempFile(root, "upload", ".part");
+        try {
+            MessageDigest digest = sha256();
+            long size = 0;
+            try (OutputStream out = new DigestOutputStream(Files.newOutputStream(temp), digest)) {
+                byte[] buffer = new byte[BUFFER_SIZE];
+                int read;
+                while ((read = content.read(buffer)) != -1) {
+                    out.write(buffer, 0, read);
+                    size += read;
+                }
+            }
+            String hash = HexFormat.of().formatHex(digest.digest());
+            Path target = pathFor(hash);
+            ReentrantLock lock = lockFor(hash);
+            lock.lock();
+            try {
+                if (Files.exists(target)) {
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                    return new StoredBlob(hash, size, true);
+                }
+                Files.createDirectories(target.getParent());
+                try {
+                    Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+                } catch (FileAlreadyExistsException e) {
+                    // Same content stored concurrently by another instance
+                    Files.setLastModifiedTime(target, FileTime.from(Instant.now()));
+                    return new StoredBlob(hash, size, true);
+                }
+                return new StoredBlob(hash, size, false);
+            } finally {
+                lock.unlock();
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    @Override
+    public InputStream open(String hash) throws IOException {
+        Path path = pathFor(hash);
+        if (!Files.exists(path)) {
+            throw new FileNotFoundException("No blob stored for " + hash);
+        }
+        return Files.newInputStream(path);
+    }
+
+    @Override
+    public boolean exists(String hash) {
+        return Files.exists(pathFor(hash));
+    }
+
+    @Override
+    public void delete(String hash) throws IOException {
+        Files.deleteIfExists(pathFor(hash));
+    }
+
+    @Override
+    public boolean deleteIfUnmodifiedSince(String hash, Instant cutoff) throws IOException {
+        Path path = pathFor(hash);
+        ReentrantLock lock = lockFor(hash);
+        lock.lock();
+        try {
+            if (!Files.exists(path) || Files.getLastModifiedTime(path).toInstant().isAfter(cutoff)) {
+                return false;
+            }
+            return Files.deleteIfExists(path);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private ReentrantLock lockFor(String hash) {
+        return locks[Math.floorMod(hash.hashCode(), LOCK_STRIPES)];
+    }
+
+    private Path pathFor(String hash) {
+        if (hash == null || hash.length() != 64 || !hash.chars().allMatch(c -> Character.digit(c, 16) >= 0)) {
+            throw new IllegalArgumentException("Not a SHA-256 hash: " + hash);
+        }
+        return root.resolve(hash.substring(0, 2)).resolve(hash.substring(2, 4)).resolve(hash);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package site.easy.to.build.crm.service.file;
+
+/**
+ * Result of BlobStore.put: the content hash, its size, and whether the bytes were
+ * already stored.
+ */
+public final class StoredBlob {
+
+    private final String hash;
+    private final long size;
+    private final boolean deduplicated;
+
+    public StoredBlob(String hash, long size, boolean deduplicated) {
+        this.hash = hash;
+        this.size = size;
+        this.deduplicated = deduplicated;
+    }
+
+    public String getHash() { return hash; }
+    public long getSize() { return size; }
+    public boolean isDeduplicated() { return deduplicated; }
+}
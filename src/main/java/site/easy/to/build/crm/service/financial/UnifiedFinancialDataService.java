@@ -1,7 +1,6 @@
 package site.easy.to.build.crm.service.financial;
 
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -14,6 +13,8 @@ import site.easy.to.build.crm.repository.HistoricalTransactionRepository;
 import site.easy.to.build.crm.service.statements.PayPropTransactionService;
 import site.easy.to.build.crm.service.statements.StatementTransactionConverter;
 import site.easy.to.build.crm.service.invoice.RentCalculationService;
+import site.easy.to.build.crm.service.property.PropertyAccessScope;
+import site.easy.to.build.crm.service.property.PropertyAccessScopeService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -47,51 +48,35 @@ public class UnifiedFinancialDataService {
     private site.easy.to.build.crm.repository.UnifiedTransactionRepository unifiedTransactionRepository;
 
     @Autowired
-    private JdbcTemplate jdbcTemplate;
+    private PropertyAccessScopeService accessScopeService;
 
     /**
      * Resolve customer ID to the actual owner ID for querying transactions.
      * If customer is a DELEGATED_USER or MANAGER, returns their manages_owner_id.
-     * Otherwise, returns the customer ID itself.
+     * Otherwise, returns the customer ID itself. Resolved once and cached by PropertyAccessScopeService.
      *
      * @param customerId The customer ID
      * @return The owner ID to use for querying transactions
      */
     private Long resolveOwnerIdForCustomer(Long customerId) {
-        try {
-            System.out.println("🔍 [UnifiedFinancialDataService] Resolving owner ID for Customer: " + customerId);
-
-            // Check if this customer is a delegated user or manager
-            String sql = "SELECT customer_type, manages_owner_id FROM customers WHERE customer_id = ?";
-            List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, customerId);
-
-            if (result.isEmpty()) {
-                System.out.println("❌ [UnifiedFinancialDataService] Customer not found: " + customerId);
-                return customerId; // Return as-is if not found
-            }
-
-            Map<String, Object> customerData = result.get(0);
-            String customerType = (String) customerData.get("customer_type");
-            Object managesOwnerIdObj = customerData.get("manages_owner_id");
-
-            System.out.println("📊 [UnifiedFinancialDataService] Customer type: " + customerType + ", manages_owner_id: " + managesOwnerIdObj);
-
-            // If delegated user or manager with an assigned owner, return that owner's ID
-            if (("DELEGATED_USER".equals(customerType) || "MANAGER".equals(customerType)) && managesOwnerIdObj != null) {
-                Long managesOwnerId = ((Number) managesOwnerIdObj).longValue();
-                System.out.println("✅ [UnifiedFinancialDataService] Delegated user/manager - using owner ID: " + managesOwnerId);
-                return managesOwnerId;
-            }
-
-            // Otherwise, return the customer ID itself
-            System.out.println("✅ [UnifiedFinancialDataService] Regular owner - using customer ID: " + customerId);
-            return customerId;
+        return accessScopeService.resolveOwnerId(customerId);
+    }
 
-        } catch (Exception e) {
-            System.err.println("❌ [UnifiedFinancialDataService] Error resolving owner ID for customer " + customerId + ": " + e.getMessage());
-            e.printStackTrace();
-            return customerId; // Return as-is on error
+    /**
+     * The owner's unified transactions in the period (optionally one flow direction), using the
+     * cached property scope as bound lists instead of per-query assignment subqueries.
+     */
+    private List<UnifiedTransaction> findOwnerTransactions(Long ownerId, LocalDate startDate, LocalDate endDate,
+                                                           UnifiedTransaction.FlowDirection flowDirection) {
+        PropertyAccessScope scope = accessScopeService.getScope(ownerId);
+        if (scope.isEmpty()) {
+            return new ArrayList<>();
         }
+        return flowDirection != null
+            ? unifiedTransactionRepository.findByPropertyScopeAndDateRangeAndFlowDirection(
+                scope.getPropertyIds(), scope.getPropertyNames(), startDate, endDate, flowDirection)
+            : unifiedTransactionRepository.findByPropertyScopeAndDateRange(
+                scope.getPropertyIds(), scope.getPropertyNames(), startDate, endDate);
     }
 
     /**
@@ -338,12 +323,7 @@ public class UnifiedFinancialDataService {
             System.out.println("📊 Step 1: Querying unified_transactions for OUTGOING transactions...");
             log.info("📊 Step 1: Querying unified_transactions for OUTGOING transactions...");
             List<UnifiedTransaction> allTransactions =
-                unifiedTransactionRepository.findByCustomerOwnedPropertiesAndDateRangeAndFlowDirection(
-                    ownerId,
-                    startDate,
-                    endDate,
-                    UnifiedTransaction.FlowDirection.OUTGOING
-                );
+                findOwnerTransactions(ownerId, startDate, endDate, UnifiedTransaction.FlowDirection.OUTGOING);
 
             System.out.println("✅ Step 1 Complete: Found " + allTransactions.size() + " OUTGOING transactions");
             log.info("✅ Step 1 Complete: Found {} OUTGOING transactions", allTransactions.size());
@@ -496,11 +476,7 @@ public class UnifiedFinancialDataService {
             System.out.println("📊 Step 1: Querying unified_transactions for ALL transactions...");
             log.info("📊 Step 1: Querying unified_transactions for ALL transactions...");
             List<UnifiedTransaction> allTransactions =
-                unifiedTransactionRepository.findByCustomerOwnedPropertiesAndDateRange(
-                    ownerId,
-                    startDate,
-                    endDate
-                );
+                findOwnerTransactions(ownerId, startDate, endDate, null);
 
             System.out.println("✅ Step 1 Complete: Found " + allTransactions.size() + " total transactions");
             log.info("✅ Step 1 Complete: Found {} total transactions", allTransactions.size());
@@ -728,7 +704,7 @@ public class UnifiedFinancialDataService {
 
             // Get ALL transactions for this customer
             List<UnifiedTransaction> allTransactions =
-                unifiedTransactionRepository.findByCustomerOwnedPropertiesAndDateRange(ownerId, startDate, endDate);
+                findOwnerTransactions(ownerId, startDate, endDate, null);
 
             System.out.println("📋 Found " + allTransactions.size() + " total transactions");
 
@@ -33,6 +33,9 @@ public class RentCalculationService {
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Autowired
+    private RentScheduleEngine rentScheduleEngine;
+
     /**
      * Calculate rent due for a property during a statement period
      *
@@ -259,14 +262,7 @@ public class RentCalculationService {
     public BigDecimal calculateTotalRentDue(Long propertyId, LocalDate fromDate, LocalDate toDate) {
         List<Invoice> leases = invoiceRepository.findByPropertyIdAndDateRange(propertyId, fromDate, toDate);
 
-        BigDecimal totalDue = BigDecimal.ZERO;
-
-        for (Invoice lease : leases) {
-            BigDecimal leaseDue = calculateRentDueForLease(lease, fromDate, toDate);
-            totalDue = totalDue.add(leaseDue);
-
-            log.debug("Lease {} total due: £{}", lease.getId(), leaseDue);
-        }
+        BigDecimal totalDue = calculateTotalRentDue(leases, fromDate, toDate);
 
         log.info("Total rent due for property {} ({} to {}): £{}",
             propertyId, fromDate, toDate, totalDue);
@@ -275,132 +271,40 @@ public class RentCalculationService {
     }
 
     /**
-     * Calculate rent due for a single lease over a date range
-     * Uses billing cycles (payment date to payment date) rather than calendar months
+     * Calculate total rent due over a date range for leases that are already loaded
+     * Leases that do not overlap the range contribute £0, so callers may pass a superset
+     * (e.g. every lease of a property bulk-loaded once for several ranges)
      */
-    private BigDecimal calculateRentDueForLease(Invoice lease, LocalDate fromDate, LocalDate toDate) {
-        LocalDate tenancyStart = lease.getStartDate();
-        LocalDate tenancyEnd = lease.getEndDate();
-        BigDecimal monthlyRent = lease.getAmount();
-        Integer paymentDay = lease.getPaymentDay();
-
-        if (tenancyStart == null || monthlyRent == null) {
-            return BigDecimal.ZERO;
-        }
-
-        // Check if tenancy overlaps with the query period
-        if (!isTenancyActiveDuringPeriod(tenancyStart, tenancyEnd, fromDate, toDate)) {
-            return BigDecimal.ZERO;
-        }
-
+    public BigDecimal calculateTotalRentDue(Collection<Invoice> leases, LocalDate fromDate, LocalDate toDate) {
         BigDecimal totalDue = BigDecimal.ZERO;
-        int dueDay = (paymentDay != null && paymentDay > 0) ? paymentDay : tenancyStart.getDayOfMonth();
-
-        // Start from the first payment date on or after fromDate
-        LocalDate currentPaymentDate = findFirstPaymentDate(tenancyStart, dueDay, fromDate);
-
-        // Iterate through each payment date within the period
-        while (!currentPaymentDate.isAfter(toDate)) {
-            // Check if this payment is within the tenancy period
-            if (!currentPaymentDate.isBefore(tenancyStart)) {
-                // Calculate the billing period this payment covers (payment date to day before next payment)
-                LocalDate nextPaymentDate = getNextPaymentDate(currentPaymentDate, dueDay);
-                LocalDate billingPeriodEnd = nextPaymentDate.minusDays(1);
-
-                // If tenancy ends before billing period end, prorate
-                LocalDate effectiveEnd = billingPeriodEnd;
-                if (tenancyEnd != null && tenancyEnd.isBefore(effectiveEnd)) {
-                    effectiveEnd = tenancyEnd;
-                }
-
-                // RENT IN ADVANCE: Only charge if payment date has passed (is on or before toDate)
-                // Don't prorate based on query period - only prorate if tenancy ends mid-cycle
-                if (!currentPaymentDate.isAfter(toDate)) {
-                    BigDecimal paymentDue;
-
-                    // Check if tenancy ends before the full billing cycle completes
-                    if (tenancyEnd != null && tenancyEnd.isBefore(billingPeriodEnd)) {
-                        // PRORATE: Tenancy ends mid-cycle
-                        long daysInCharge = ChronoUnit.DAYS.between(currentPaymentDate, effectiveEnd) + 1;
-                        paymentDue = monthlyRent
-                            .multiply(BigDecimal.valueOf(daysInCharge))
-                            .divide(BigDecimal.valueOf(30), 2, RoundingMode.HALF_UP);
-                        log.debug("Payment {} - Prorated (lease ends {}): £{} ({} days / 30)",
-                            currentPaymentDate, tenancyEnd, paymentDue, daysInCharge);
-                    } else {
-                        // FULL MONTH: Payment date has arrived, charge full month
-                        paymentDue = monthlyRent;
-                        log.debug("Payment {} - Full month: £{}", currentPaymentDate, paymentDue);
-                    }
-
-                    totalDue = totalDue.add(paymentDue);
-                }
-            }
 
-            // Move to next payment date
-            currentPaymentDate = getNextPaymentDate(currentPaymentDate, dueDay);
+        for (Invoice lease : leases) {
+            BigDecimal leaseDue = calculateRentDueForLease(lease, fromDate, toDate);
+            totalDue = totalDue.add(leaseDue);
 
-            // Safety check: if we've passed the tenancy end or query end, stop
-            if (tenancyEnd != null && currentPaymentDate.isAfter(tenancyEnd)) {
-                break;
-            }
-            if (currentPaymentDate.isAfter(toDate.plusMonths(1))) {
-                break;
-            }
+            log.debug("Lease {} total due: £{}", lease.getId(), leaseDue);
         }
 
         return totalDue;
     }
 
     /**
-     * Find the first payment date on or after the given start date
+     * Calculate rent due for a single lease over a date range
+     * Reads the lease's precomputed RentSchedule: every cycle (of frequencyMonths, on the
+     * payment day) that falls due within the range, with the final cycle prorated if the
+     * tenancy ends mid-cycle. The final cycle is prorated by days occupied / days in that cycle
+     * (see RentSchedule.prorateFinalCycle), not by the 30-day month calculateProratedRent uses
      */
-    private LocalDate findFirstPaymentDate(LocalDate tenancyStart, int paymentDay, LocalDate fromDate) {
-        LocalDate searchDate = fromDate.isBefore(tenancyStart) ? tenancyStart : fromDate;
-
-        // Try current month
-        LocalDate paymentDate = getPaymentDateInMonth(searchDate.getYear(), searchDate.getMonthValue(), paymentDay);
-
-        if (paymentDate.isBefore(searchDate)) {
-            // Payment day already passed this month, use next month
-            paymentDate = getPaymentDateInMonth(
-                searchDate.plusMonths(1).getYear(),
-                searchDate.plusMonths(1).getMonthValue(),
-                paymentDay
-            );
-        }
-
-        // But cannot be before tenancy start
-        if (paymentDate.isBefore(tenancyStart)) {
-            // Use tenancy start date as first payment
-            return tenancyStart;
+    private BigDecimal calculateRentDueForLease(Invoice lease, LocalDate fromDate, LocalDate toDate) {
+        if (lease.getStartDate() == null || lease.getAmount() == null) {
+            return BigDecimal.ZERO;
         }
 
-        return paymentDate;
-    }
-
-    /**
-     * Get the payment date for a specific month
-     */
-    private LocalDate getPaymentDateInMonth(int year, int month, int dayOfMonth) {
-        try {
-            return LocalDate.of(year, month, dayOfMonth);
-        } catch (Exception e) {
-            // Invalid day (e.g., 31st in February), use last day of month
-            YearMonth ym = YearMonth.of(year, month);
-            return ym.atEndOfMonth();
+        // Check if tenancy overlaps with the query period
+        if (!isTenancyActiveDuringPeriod(lease.getStartDate(), lease.getEndDate(), fromDate, toDate)) {
+            return BigDecimal.ZERO;
         }
-    }
 
-    /**
-     * Get the next payment date after the given date
-     */
-    private LocalDate getNextPaymentDate(LocalDate currentDate, int paymentDay) {
-        YearMonth nextMonth = YearMonth.from(currentDate).plusMonths(1);
-        try {
-            return nextMonth.atDay(paymentDay);
-        } catch (Exception e) {
-            return nextMonth.atEndOfMonth();
-        }
+        return rentScheduleEngine.scheduleFor(lease, toDate).rentDueBetween(fromDate, toDate);
     }
 }
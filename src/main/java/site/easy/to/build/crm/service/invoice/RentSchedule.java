@@ -0,0 +1,279 @@
+package site.easy.to.build.crm.service.invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Precomputed rent-due calendar for one lease (RENT IN ADVANCE model).
+ *
+ * - The first charge is due on the lease start date (no proration for moving in mid-cycle)
+ * - Cycle k (k >= 1) is due in month (start month + k × frequencyMonths) on the payment day,
+ *   clamped to the month length (e.g. payment day 31 → 28/29 Feb, then back to 31 Mar)
+ * - Only the final cycle is prorated, when the lease ends before the cycle does
+ * - No charge is raised for a cycle that starts after the lease end date
+ *
+ * Cycle dates are computed in closed form, so locating the cycle for any date is O(1).
+ * Charges are stored in due-date order with prefix sums, so "rent due between A and B"
+ * is two binary searches and a subtraction.
+ *
+ * Instances are immutable and safe to share; RentScheduleEngine caches them per lease.
+ */
+public final class RentSchedule {
+
+    private static final RentSchedule EMPTY = new RentSchedule(null, new long[0],
+        new LocalDate[0], new BigDecimal[0], new boolean[0]);
+
+    private final LocalDate horizon;
+    private final long[] dueDays;
+    private final LocalDate[] periodEnds;
+    private final BigDecimal[] amounts;
+    private final boolean[] fullCycles;
+    private final BigDecimal[] prefixSums;
+
+    private RentSchedule(LocalDate horizon, long[] dueDays, LocalDate[] periodEnds,
+                         BigDecimal[] amounts, boolean[] fullCycles) {
+        this.horizon = horizon;
+        this.dueDays = dueDays;
+        this.periodEnds = periodEnds;
+        this.amounts = amounts;
+        this.fullCycles = fullCycles;
+        this.prefixSums = new BigDecimal[amounts.length + 1];
+        this.prefixSums[0] = BigDecimal.ZERO;
+        for (int i = 0; i < amounts.length; i++) {
+            prefixSums[i + 1] = prefixSums[i].add(amounts[i]);
+        }
+    }
+
+    public static RentSchedule empty() {
+        return EMPTY;
+    }
+
+    /**
+     * Build the schedule for a lease.
+     *
+     * @param leaseStart First cycle due date
+     * @param leaseEnd Lease end date (null for ongoing leases)
+     * @param cycleRent Rent per full cycle
+     * @param frequencyMonths Months per billing cycle (null/0 = monthly)
+     * @param paymentDay Day of month rent is due (null/0 = lease start day)
+     * @param horizon For ongoing leases, charges are generated up to this date
+     */
+    public static RentSchedule build(LocalDate leaseStart, LocalDate leaseEnd, BigDecimal cycleRent,
+                                     Integer frequencyMonths, Integer paymentDay, LocalDate horizon) {
+        if (leaseStart == null || cycleRent == null || (leaseEnd != null && leaseEnd.isBefore(leaseStart))) {
+            return EMPTY;
+        }
+
+        int cycleMonths = cycleMonths(frequencyMonths);
+        int dueDay = dueDay(leaseStart, paymentDay);
+        LocalDate lastDueDate = leaseEnd != null ? leaseEnd : horizon;
+        if (lastDueDate == null) {
+            throw new IllegalArgumentException("An ongoing lease needs a schedule horizon");
+        }
+
+        int count = (int) firstCycleOnOrAfter(leaseStart, dueDay, cycleMonths, lastDueDate.plusDays(1));
+        long[] dueDays = new long[count];
+        LocalDate[] periodEnds = new LocalDate[count];
+        BigDecimal[] amounts = new BigDecimal[count];
+        boolean[] fullCycles = new boolean[count];
+
+        LocalDate cycleStart = leaseStart;
+        for (int k = 0; k < count; k++) {
+            LocalDate cycleEnd = cycleStart(leaseStart, dueDay, cycleMonths, k + 1).minusDays(1);
+            dueDays[k] = cycleStart.toEpochDay();
+
+            if (leaseEnd != null && leaseEnd.isBefore(cycleEnd)) {
+                periodEnds[k] = leaseEnd;
+                amounts[k] = prorateFinalCycle(cycleRent, cycleMonths, cycleStart, cycleEnd, leaseEnd);
+                fullCycles[k] = false;
+            } else {
+                periodEnds[k] = cycleEnd;
+                amounts[k] = cycleRent;
+                fullCycles[k] = true;
+            }
+            cycleStart = cycleEnd.plusDays(1);
+        }
+
+        return new RentSchedule(leaseEnd != null ? null : horizon, dueDays, periodEnds, amounts, fullCycles);
+    }
+
+    // ===== CLOSED-FORM CYCLE ARITHMETIC =====
+
+    /**
+     * Due date of cycle k (0 = lease start).
+     */
+    public static LocalDate cycleStart(LocalDate leaseStart, int dueDay, int cycleMonths, long k) {
+        if (k <= 0) {
+            return leaseStart;
+        }
+        YearMonth month = YearMonth.from(leaseStart).plusMonths(k * cycleMonths);
+        return month.atDay(Math.min(dueDay, month.lengthOfMonth()));
+    }
+
+    /**
+     * Index of the first cycle due on or after the given date, i.e. the number of cycles
+     * due strictly before it.
+     */
+    public static long firstCycleOnOrAfter(LocalDate leaseStart, int dueDay, int cycleMonths, LocalDate date) {
+        if (!date.isAfter(leaseStart)) {
+            return 0;
+        }
+        long monthsElapsed = ChronoUnit.MONTHS.between(YearMonth.from(leaseStart), YearMonth.from(date));
+        long k = Math.max(1, monthsElapsed / cycleMonths);
+        // The estimate lands in or just before the date's month; at most one step either way
+        while (cycleStart(leaseStart, dueDay, cycleMonths, k).isBefore(date)) {
+            k++;
+        }
+        while (k > 1 && !cycleStart(leaseStart, dueDay, cycleMonths, k - 1).isBefore(date)) {
+            k--;
+        }
+        return k;
+    }
+
+    /**
+     * Count cycle due dates within [periodStart, periodEnd], ignoring cycles that start after leaseEnd.
+     */
+    public static long countCycleStarts(LocalDate leaseStart, int dueDay, int cycleMonths,
+                                        LocalDate periodStart, LocalDate periodEnd, LocalDate leaseEnd) {
+        LocalDate lastDate = (leaseEnd != null && leaseEnd.isBefore(periodEnd)) ? leaseEnd : periodEnd;
+        if (lastDate.isBefore(periodStart)) {
+            return 0;
+        }
+        return firstCycleOnOrAfter(leaseStart, dueDay, cycleMonths, lastDate.plusDays(1))
+            - firstCycleOnOrAfter(leaseStart, dueDay, cycleMonths, periodStart);
+    }
+
+    public static int cycleMonths(Integer frequencyMonths) {
+        return (frequencyMonths != null && frequencyMonths > 0) ? frequencyMonths : 1;
+    }
+
+    public static int dueDay(LocalDate leaseStart, Integer paymentDay) {
+        return (paymentDay != null && paymentDay > 0) ? paymentDay : leaseStart.getDayOfMonth();
+    }
+
+    /**
+     * Prorate the cycle in which the lease ends, rounded to pennies.
+     * Monthly cycles: cycleRent × days from cycleStart to leaseEnd / days from cycleStart to cycleEnd
+     * (both inclusive). The cycle runs to the day before the next due date, so a first cycle that
+     * starts off the payment day can be shorter or longer than a calendar month.
+     * Multi-month cycles: monthly rate = cycleRent / cycleMonths; whole months counted from
+     * cycleStart up to leaseEnd are charged at the monthly rate, and the remaining days up to
+     * leaseEnd at monthly rate × days / length of leaseEnd's calendar month.
+     */
+    static BigDecimal prorateFinalCycle(BigDecimal cycleRent, int cycleMonths, LocalDate cycleStart,
+                                        LocalDate cycleEnd, LocalDate leaseEnd) {
+        double prorated;
+        if (cycleMonths == 1) {
+            long totalCycleDays = ChronoUnit.DAYS.between(cycleStart, cycleEnd) + 1;
+            long leaseDays = ChronoUnit.DAYS.between(cycleStart, leaseEnd) + 1;
+            prorated = cycleRent.doubleValue() * leaseDays / totalCycleDays;
+        } else {
+            double monthlyRate = cycleRent.doubleValue() / cycleMonths;
+            long fullMonths = ChronoUnit.MONTHS.between(cycleStart, leaseEnd.plusDays(1));
+            LocalDate lastFullMonthEnd = cycleStart.plusMonths(fullMonths);
+            long remainingDays = ChronoUnit.DAYS.between(lastFullMonthEnd, leaseEnd) + 1;
+            prorated = (fullMonths * monthlyRate) + ((double) remainingDays / leaseEnd.lengthOfMonth() * monthlyRate);
+        }
+        return BigDecimal.valueOf(Math.round(prorated * 100.0) / 100.0);
+    }
+
+    // ===== QUERIES =====
+
+    /**
+     * Total rent falling due within [from, to] (inclusive).
+     */
+    public BigDecimal rentDueBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return BigDecimal.ZERO;
+        }
+        return prefixSums[upperBound(to)].subtract(prefixSums[lowerBound(from)]);
+    }
+
+    /**
+     * Number of charges falling due within [from, to] (inclusive).
+     */
+    public int countChargesBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return 0;
+        }
+        return upperBound(to) - lowerBound(from);
+    }
+
+    /**
+     * Charges falling due within [from, to] (inclusive), in due-date order.
+     */
+    public List<Charge> chargesBetween(LocalDate from, LocalDate to) {
+        if (from == null || to == null || to.isBefore(from)) {
+            return Collections.emptyList();
+        }
+        int first = lowerBound(from);
+        int last = upperBound(to);
+        List<Charge> charges = new ArrayList<>(last - first);
+        for (int i = first; i < last; i++) {
+            charges.add(charge(i));
+        }
+        return charges;
+    }
+
+    public List<Charge> getCharges() {
+        return chargesBetween(LocalDate.MIN, LocalDate.MAX);
+    }
+
+    public int size() {
+        return dueDays.length;
+    }
+
+    /**
+     * True if every charge due on or before the given date is in this schedule.
+     */
+    public boolean covers(LocalDate date) {
+        return horizon == null || !date.isAfter(horizon);
+    }
+
+    private Charge charge(int i) {
+        return new Charge(LocalDate.ofEpochDay(dueDays[i]), periodEnds[i], amounts[i], fullCycles[i]);
+    }
+
+    // First index with due date >= date
+    private int lowerBound(LocalDate date) {
+        return search(date.toEpochDay());
+    }
+
+    // First index with due date > date
+    private int upperBound(LocalDate date) {
+        return date.equals(LocalDate.MAX) ? dueDays.length : search(date.toEpochDay() + 1);
+    }
+
+    private int search(long epochDay) {
+        int index = Arrays.binarySearch(dueDays, epochDay);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    /**
+     * One rent charge: due date, the last day it covers and the amount.
+     */
+    public static final class Charge {
+        private final LocalDate dueDate;
+        private final LocalDate periodEnd;
+        private final BigDecimal amount;
+        private final boolean fullCycle;
+
+        Charge(LocalDate dueDate, LocalDate periodEnd, BigDecimal amount, boolean fullCycle) {
+            this.dueDate = dueDate;
+            this.periodEnd = periodEnd;
+            this.amount = amount;
+            this.fullCycle = fullCycle;
+        }
+
+        public LocalDate getDueDate() { return dueDate; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public BigDecimal getAmount() { return amount; }
+        public boolean isFullCycle() { return fullCycle; }
+    }
+}
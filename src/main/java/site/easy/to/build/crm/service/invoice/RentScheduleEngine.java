@@ -0,0 +1,129 @@
+package site.easy.to.build.crm.service.invoice;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
+import site.easy.to.build.crm.entity.Invoice;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Rent Schedule Engine
+ *
+ * Single source of truth for "how much rent falls due for this lease between A and B".
+ * Statement extraction, the XLSX/formula statement generators, RentCalculationService and
+ * LeaseBalanceCalculationService all read the same RentSchedule instead of each walking
+ * cycle dates themselves.
+ *
+ * Schedules are cached by the fields that define them (lease id, dates, rent, frequency,
+ * payment day), so an edited lease gets a new entry rather than a stale one.
+ * Ongoing leases are built to a rolling horizon and rebuilt when a query goes past it.
+ */
+@Service
+public class RentScheduleEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(RentScheduleEngine.class);
+
+    private static final int MAX_CACHED_SCHEDULES = 20_000;
+    private static final int ONGOING_LEASE_HORIZON_YEARS = 2;
+
+    private final ConcurrentHashMap<ScheduleKey, RentSchedule> schedules = new ConcurrentHashMap<>();
+
+    /**
+     * Schedule for a lease (Invoice), covering every charge due up to {@code until}.
+     */
+    public RentSchedule scheduleFor(Invoice lease, LocalDate until) {
+        return scheduleFor(lease.getId(), lease.getStartDate(), lease.getEndDate(), lease.getAmount(),
+            lease.getFrequencyMonths(), lease.getPaymentDay(), until);
+    }
+
+    /**
+     * Schedule for a statement lease row, covering every charge due up to {@code until}.
+     */
+    public RentSchedule scheduleFor(LeaseMasterDTO lease, LocalDate until) {
+        return scheduleFor(lease.getLeaseId(), lease.getStartDate(), lease.getEndDate(), lease.getMonthlyRent(),
+            lease.getFrequencyMonths(), lease.getPaymentDay(), until);
+    }
+
+    /**
+     * Schedule for explicit lease terms, covering every charge due up to {@code until}.
+     */
+    public RentSchedule scheduleFor(Long leaseId, LocalDate leaseStart, LocalDate leaseEnd, BigDecimal cycleRent,
+                                    Integer frequencyMonths, Integer paymentDay, LocalDate until) {
+        if (leaseStart == null || cycleRent == null) {
+            return RentSchedule.empty();
+        }
+
+        ScheduleKey key = new ScheduleKey(leaseId, leaseStart, leaseEnd, cycleRent,
+            RentSchedule.cycleMonths(frequencyMonths), RentSchedule.dueDay(leaseStart, paymentDay));
+
+        RentSchedule cached = schedules.get(key);
+        if (cached != null && (until == null || cached.covers(until))) {
+            return cached;
+        }
+
+        LocalDate horizon = null;
+        if (leaseEnd == null) {
+            LocalDate today = LocalDate.now();
+            LocalDate from = (until != null && until.isAfter(today)) ? until : today;
+            horizon = from.plusYears(ONGOING_LEASE_HORIZON_YEARS);
+        }
+
+        RentSchedule schedule = RentSchedule.build(leaseStart, leaseEnd, cycleRent, frequencyMonths, paymentDay, horizon);
+
+        if (schedules.size() >= MAX_CACHED_SCHEDULES) {
+            log.debug("Rent schedule cache reached {} entries - clearing", schedules.size());
+            schedules.clear();
+        }
+        schedules.put(key, schedule);
+        return schedule;
+    }
+
+    /**
+     * Drop all cached schedules (e.g. after a bulk lease import).
+     */
+    public void clear() {
+        schedules.clear();
+    }
+
+    private static final class ScheduleKey {
+        private final Long leaseId;
+        private final LocalDate leaseStart;
+        private final LocalDate leaseEnd;
+        private final BigDecimal cycleRent;
+        private final int cycleMonths;
+        private final int dueDay;
+
+        ScheduleKey(Long leaseId, LocalDate leaseStart, LocalDate leaseEnd, BigDecimal cycleRent,
+                    int cycleMonths, int dueDay) {
+            this.leaseId = leaseId;
+            this.leaseStart = leaseStart;
+            this.leaseEnd = leaseEnd;
+            this.cycleRent = cycleRent;
+            this.cycleMonths = cycleMonths;
+            this.dueDay = dueDay;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof ScheduleKey)) return false;
+            ScheduleKey that = (ScheduleKey) o;
+            return cycleMonths == that.cycleMonths
+                && dueDay == that.dueDay
+                && Objects.equals(leaseId, that.leaseId)
+                && leaseStart.equals(that.leaseStart)
+                && Objects.equals(leaseEnd, that.leaseEnd)
+                && cycleRent.equals(that.cycleRent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(leaseId, leaseStart, leaseEnd, cycleRent, cycleMonths, dueDay);
+        }
+    }
+}
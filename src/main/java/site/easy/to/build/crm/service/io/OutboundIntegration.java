@@ -0,0 +1,30 @@
+package site.easy.to.build.crm.service.io;
+
+/**
+ * External services whose blocking calls run on {@link OutboundIo}, each with its own
+ * concurrency cap (outbound.io.&lt;key&gt;.max-concurrency).
+ */
+public enum OutboundIntegration {
+
+    GOOGLE_DRIVE("google-drive", 8),
+    GMAIL("gmail", 8),
+    GOOGLE_CALENDAR("google-calendar", 4),
+    GOOGLE_SHEETS("google-sheets", 4),
+    PAYPROP("payprop", 4);
+
+    private final String key;
+    private final int defaultMaxConcurrency;
+
+    OutboundIntegration(String key, int defaultMaxConcurrency) {
+        this.key = key;
+        this.defaultMaxConcurrency = defaultMaxConcurrency;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int getDefaultMaxConcurrency() {
+        return defaultMaxConcurrency;
+    }
+}
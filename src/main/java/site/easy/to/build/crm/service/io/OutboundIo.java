@@ -0,0 +1,609 @@
+package site.easy.to.build.crm.service.io;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.service.payprop.bulkhead.PayPropCallPriority;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.lang.reflect.Method;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Outbound I/O
+ *
+ * Runs blocking calls to Google and PayProp off the request and worker threads:
+ * - {@link #fanOut} / {@link #open}: structured fan-out and fan-in. Every forked call finishes
+ *   (or is cancelled) before the scope returns; the first failure cancels the rest; a deadline
+ *   bounds the whole scope.
+ * - {@link #call}: one call with a deadline.
+ * - {@link #executor}: an Executor for CompletableFuture pipelines. execute() waits for a permit in
+ *   the submitting thread.
+ * - {@link #trySubmit}: best-effort background work, skipped when the integration is saturated.
+ *
+ * Each {@link OutboundIntegration} has its own cap (outbound.io.&lt;key&gt;.max-concurrency), so a
+ * burst of Drive calls cannot take all of the capacity Gmail needs. Calls are threads of a
+ * virtual-thread-per-task executor when the runtime has one (Java 21+), otherwise of a platform
+ * pool sized to the sum of the caps. Every running call holds a permit, so that pool never queues.
+ *
+ * Forked calls inherit the scope's deadline and the caller's PayProp call priority. A call that
+ * forks more calls of its own integration runs them inline instead of waiting for permits its
+ * siblings hold. Cancelling a scope interrupts its calls, which cancels their nested scopes.
+ */
+@Service
+public class OutboundIo {
+
+    private static final Logger log = LoggerFactory.getLogger(OutboundIo.class);
+
+    private static final long NO_DEADLINE = Long.MAX_VALUE;
+    private static final long CLOSE_GRACE_MS = 10_000;
+
+    /**
+     * Integration and deadline of the call running on this thread
+     */
+    private static final ThreadLocal<CallContext> CONTEXT = new ThreadLocal<>();
+
+    /**
+     * A blocking outbound call
+     */
+    @FunctionalInterface
+    public interface Call<T> {
+        T call() throws IOException;
+    }
+
+    /**
+     * A blocking outbound call for one item of a fan-out
+     */
+    @FunctionalInterface
+    public interface ItemCall<T, R> {
+        R call(T item) throws IOException;
+    }
+
+    private final Map<OutboundIntegration, Semaphore> permits = new EnumMap<>(OutboundIntegration.class);
+    private final Map<OutboundIntegration, Integer> caps = new EnumMap<>(OutboundIntegration.class);
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Duration defaultDeadline;
+
+    @Autowired
+    public OutboundIo(Environment environment) {
+        this(capsFrom(environment),
+            !"false".equalsIgnoreCase(environment.getProperty("outbound.io.virtual-threads", "auto")),
+            Duration.ofMillis(environment.getProperty("outbound.io.default-deadline-ms", Long.class, 60000L)));
+    }
+
+    OutboundIo(Map<OutboundIntegration, Integer> caps, boolean allowVirtualThreads, Duration defaultDeadline) {
+        int total = 0;
+        for (OutboundIntegration integration : OutboundIntegration.values()) {
+            int cap = Math.max(1, caps.getOrDefault(integration, integration.getDefaultMaxConcurrency()));
+            this.caps.put(integration, cap);
+            this.permits.put(integration, new Semaphore(cap, true));
+            total += cap;
+        }
+        ExecutorService virtual = allowVirtualThreads ? newVirtualThreadExecutor() : null;
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : newPlatformExecutor(total);
+        this.defaultDeadline = defaultDeadline;
+        log.info("🔧 Outbound I/O configured: {} threads, caps={}", virtualThreads ? "virtual" : "platform (" + total + ")",
+            this.caps);
+    }
+
+    private static Map<OutboundIntegration, Integer> capsFrom(Environment environment) {
+        Map<OutboundIntegration, Integer> caps = new EnumMap<>(OutboundIntegration.class);
+        for (OutboundIntegration integration : OutboundIntegration.values()) {
+            caps.put(integration, environment.getProperty("outbound.io." + integration.getKey() + ".max-concurrency",
+                Integer.class, integration.getDefaultMaxConcurrency()));
+        }
+        return caps;
+    }
+
+    /**
+     * Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("OutboundIo-", 0).factory()) when
+     * the runtime supports it. Looked up reflectively so the code builds and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Class<?> builderType = Class.forName("java.lang.Thread$Builder");
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            builder = builderType.getMethod("name", String.class, long.class).invoke(builder, "OutboundIo-", 0L);
+            ThreadFactory factory = (ThreadFactory) builderType.getMethod("factory").invoke(builder);
+            Method perTask = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) perTask.invoke(null, factory);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            // Java 17, or virtual threads still in preview
+            return null;
+        }
+    }
+
+    private static ExecutorService newPlatformExecutor(int threads) {
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(), runnable -> {
+                Thread thread = new Thread(runnable, "OutboundIo-" + counter.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    public int getMaxConcurrency(OutboundIntegration integration) {
+        return caps.get(integration);
+    }
+
+    public int getInFlight(OutboundIntegration integration) {
+        return caps.get(integration) - permits.get(integration).availablePermits();
+    }
+
+    // ===== STRUCTURED CALLS =====
+
+    /**
+     * Open a scope for calls to one integration. Use with try-with-resources; close() cancels and
+     * waits for anything still running.
+     *
+     * @param deadline budget for the whole scope, or null for the default; never beyond the
+     *                 deadline of the call this scope is opened in
+     */
+    public Scope open(OutboundIntegration integration, Duration deadline) {
+        long budget = (deadline != null ? deadline : defaultDeadline).toNanos();
+        long deadlineNanos = System.nanoTime() + budget;
+        CallContext parent = CONTEXT.get();
+        if (parent != null && parent.deadlineNanos - deadlineNanos < 0) {
+            deadlineNanos = parent.deadlineNanos;
+        }
+        return new Scope(integration, deadlineNanos, TimeUnit.NANOSECONDS.toMillis(budget));
+    }
+
+    /**
+     * Call the function for every item concurrently and return the results in item order.
+     * The first failure cancels the remaining calls and is rethrown.
+     */
+    public <T, R> List<R> fanOut(OutboundIntegration integration, Collection<? extends T> items, Duration deadline,
+                                 ItemCall<? super T, ? extends R> call) throws IOException {
+        try (Scope scope = open(integration, deadline)) {
+            List<Subtask<R>> subtasks = new ArrayList<>(items.size());
+            for (T item : items) {
+                Subtask<R> subtask = scope.fork(() -> call.call(item));
+                subtasks.add(subtask);
+            }
+            scope.join();
+            List<R> results = new ArrayList<>(subtasks.size());
+            for (Subtask<R> subtask : subtasks) {
+                results.add(subtask.get());
+            }
+            return results;
+        }
+    }
+
+    /**
+     * Make one call with a deadline.
+     */
+    public <T> T call(OutboundIntegration integration, Duration deadline, Call<T> call) throws IOException {
+        try (Scope scope = open(integration, deadline)) {
+            Subtask<T> subtask = scope.fork(call);
+            scope.join();
+            return subtask.get();
+        }
+    }
+
+    // ===== UNSTRUCTURED CALLS =====
+
+    /**
+     * Executor for CompletableFuture pipelines. execute() waits in the calling thread until the
+     * integration has a free permit (backpressure, like CallerRunsPolicy on the worker pools), and
+     * runs the task inline when called from a call of the same integration. Tasks have no deadline.
+     */
+    public Executor executor(OutboundIntegration integration) {
+        return task -> {
+            CallContext context = CONTEXT.get();
+            if (context != null && context.integration == integration) {
+                task.run();
+                return;
+            }
+            Semaphore semaphore = permits.get(integration);
+            try {
+                semaphore.acquire();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RejectedExecutionException("Interrupted waiting for a " + integration.getKey() + " permit", e);
+            }
+            dispatch(integration, semaphore, NO_DEADLINE, task);
+        };
+    }
+
+    /**
+     * Run background work if the integration has a free permit right now.
+     *
+     * @return false when the work was not scheduled
+     */
+    public boolean trySubmit(OutboundIntegration integration, Runnable task) {
+        Semaphore semaphore = permits.get(integration);
+        if (!semaphore.tryAcquire()) {
+            return false;
+        }
+        dispatch(integration, semaphore, NO_DEADLINE, task);
+        return true;
+    }
+
+    private void dispatch(OutboundIntegration integration, Semaphore semaphore, long deadlineNanos, Runnable task) {
+        PayPropCallPriority priority = PayPropCallPriority.current();
+        try {
+            executor.execute(() -> {
+                try {
+                    runInContext(integration, deadlineNanos, priority, task);
+                } finally {
+                    semaphore.release();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            semaphore.release();
+            throw e;
+        }
+    }
+
+    private static void runInContext(OutboundIntegration integration, long deadlineNanos, PayPropCallPriority priority,
+                                     Runnable task) {
+        CallContext previous = CONTEXT.get();
+        CONTEXT.set(new CallContext(integration, deadlineNanos));
+        try {
+            PayPropCallPriority.runAs(priority, task);
+        } finally {
+            if (previous == null) {
+                CONTEXT.remove();
+            } else {
+                CONTEXT.set(previous);
+            }
+        }
+    }
+
+    private static final class CallContext {
+        final OutboundIntegration integration;
+        final long deadlineNanos;
+
+        CallContext(OutboundIntegration integration, long deadlineNanos) {
+            this.integration = integration;
+            this.deadlineNanos = deadlineNanos;
+        }
+    }
+
+    /**
+     * Calls forked together: fork them, join() once, then read each subtask. Owned by the thread
+     * that opened it.
+     */
+    public final class Scope implements AutoCloseable {
+
+        private final OutboundIntegration integration;
+        private final long deadlineNanos;
+        private final long deadlineMillis;
+        private final PayPropCallPriority priority = PayPropCallPriority.current();
+        private final boolean inline;
+        private final Thread owner = Thread.currentThread();
+
+        private final Queue<Subtask<?>> subtasks = new ConcurrentLinkedQueue<>();
+        private final AtomicReference<Throwable> failure = new AtomicReference<>();
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition idle = lock.newCondition();
+        private int running;
+        private boolean closed;
+
+        private Scope(OutboundIntegration integration, long deadlineNanos, long deadlineMillis) {
+            this.integration = integration;
+            this.deadlineNanos = deadlineNanos;
+            this.deadlineMillis = deadlineMillis;
+            CallContext context = CONTEXT.get();
+            this.inline = context != null && context.integration == integration;
+        }
+
+        /**
+         * Start a call. Waits for a permit of the integration, at most until the deadline.
+         */
+        public <T> Subtask<T> fork(Call<T> call) throws IOException {
+            checkOwner();
+            Subtask<T> subtask = new Subtask<>(this, call);
+            subtasks.add(subtask);
+            if (failure.get() != null) {
+                subtask.skip();
+                return subtask;
+            }
+            if (inline) {
+                subtask.run();
+                return subtask;
+            }
+
+            Semaphore semaphore = permits.get(integration);
+            try {
+                if (!semaphore.tryAcquire(remainingNanos(), TimeUnit.NANOSECONDS)) {
+                    subtask.skip();
+                    cancelAll();
+                    throw new OutboundIoDeadlineException(integration, deadlineMillis);
+                }
+            } catch (InterruptedException e) {
+                subtask.skip();
+                cancelAll();
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted waiting for a " + integration.getKey() + " permit");
+            }
+            if (failure.get() != null) {
+                semaphore.release();
+                subtask.skip();
+                return subtask;
+            }
+
+            subtask.semaphore = semaphore;
+            lock.lock();
+            try {
+                running++;
+            } finally {
+                lock.unlock();
+            }
+            FutureTask<Void> future = new FutureTask<>(subtask::run, null) {
+                @Override
+                protected void done() {
+                    if (isCancelled()) {
+                        subtask.skip();
+                    }
+                }
+            };
+            subtask.future = future;
+            try {
+                executor.execute(future);
+            } catch (RejectedExecutionException e) {
+                subtask.skip();
+                throw new IOException("Outbound I/O is shut down", e);
+            }
+            return subtask;
+        }
+
+        /**
+         * Wait for every forked call. Rethrows the first failure; on deadline or interrupt the
+         * calls still running are cancelled.
+         */
+        public void join() throws IOException {
+            checkOwner();
+            for (Subtask<?> subtask : subtasks) {
+                FutureTask<Void> future = subtask.future;
+                if (future == null) {
+                    continue;
+                }
+                try {
+                    long remaining = remainingNanos();
+                    if (remaining <= 0 && !future.isDone()) {
+                        throw new TimeoutException();
+                    }
+                    future.get(Math.max(0, remaining), TimeUnit.NANOSECONDS);
+                } catch (CancellationException | ExecutionException e) {
+                    // Outcome is recorded on the subtask
+                } catch (TimeoutException e) {
+                    cancelAll();
+                    throw new OutboundIoDeadlineException(integration, deadlineMillis);
+                } catch (InterruptedException e) {
+                    cancelAll();
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException(integration.getKey() + " calls interrupted");
+                }
+            }
+            Throwable first = failure.get();
+            if (first != null) {
+                rethrow(first);
+            }
+        }
+
+        /**
+         * Cancel whatever is still running and wait (up to a short grace period) for it to stop.
+         */
+        @Override
+        public void close() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            boolean unfinished = subtasks.stream().anyMatch(subtask -> !subtask.isDone());
+            if (unfinished) {
+                cancelAll();
+            }
+            lock.lock();
+            try {
+                long wait = TimeUnit.MILLISECONDS.toNanos(CLOSE_GRACE_MS);
+                while (running > 0 && wait > 0) {
+                    wait = idle.awaitNanos(wait);
+                }
+                if (running > 0) {
+                    log.warn("⚠️ {} {} calls still running after their scope closed", running, integration.getKey());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void cancelAll() {
+            for (Subtask<?> subtask : subtasks) {
+                FutureTask<Void> future = subtask.future;
+                if (future != null) {
+                    future.cancel(true);
+                }
+            }
+        }
+
+        private void failed(Throwable error) {
+            if (failure.compareAndSet(null, error)) {
+                cancelAll();
+            }
+        }
+
+        private void finished() {
+            lock.lock();
+            try {
+                running--;
+                idle.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private long remainingNanos() {
+            return deadlineNanos - System.nanoTime();
+        }
+
+        private void checkOwner() {
+            if (Thread.currentThread() != owner) {
+                throw new IllegalStateException("Scope used outside the thread that opened it");
+            }
+        }
+    }
+
+    /**
+     * One forked call. Read with get() after the scope's join().
+     */
+    public static final class Subtask<T> {
+
+        private final Scope scope;
+        private final Call<T> call;
+        private final AtomicBoolean claimed = new AtomicBoolean();
+        private volatile FutureTask<Void> future;
+        private volatile Semaphore semaphore;
+        private volatile boolean done;
+        private volatile boolean cancelled;
+        private volatile T result;
+        private volatile Throwable error;
+
+        private Subtask(Scope scope, Call<T> call) {
+            this.scope = scope;
+            this.call = call;
+        }
+
+        private void run() {
+            if (!claimed.compareAndSet(false, true)) {
+                return;
+            }
+            CallContext previous = CONTEXT.get();
+            CONTEXT.set(new CallContext(scope.integration, scope.deadlineNanos));
+            try {
+                result = PayPropCallPriority.runAs(scope.priority, () -> {
+                    try {
+                        return call.call();
+                    } catch (IOException e) {
+                        throw new CallFailure(e);
+                    }
+                });
+            } catch (CallFailure e) {
+                fail(e.getCause());
+            } catch (RuntimeException | Error e) {
+                fail(e);
+            } finally {
+                if (previous == null) {
+                    CONTEXT.remove();
+                } else {
+                    CONTEXT.set(previous);
+                }
+                done = true;
+                release();
+            }
+        }
+
+        private void fail(Throwable e) {
+            error = e;
+            scope.failed(e);
+        }
+
+        /**
+         * Never ran: cancelled before starting, or forked after the scope failed.
+         */
+        private void skip() {
+            if (claimed.compareAndSet(false, true)) {
+                cancelled = true;
+                done = true;
+                release();
+            }
+        }
+
+        private void release() {
+            Semaphore held = semaphore;
+            if (held != null) {
+                semaphore = null;
+                held.release();
+                scope.finished();
+            }
+        }
+
+        boolean isDone() {
+            return done;
+        }
+
+        /**
+         * The call's result.
+         *
+         * @throws IllegalStateException when the call failed, was cancelled or has not finished
+         */
+        public T get() {
+            if (!done) {
+                throw new IllegalStateException("Subtask has not finished");
+            }
+            if (error != null || cancelled) {
+                throw new IllegalStateException("Subtask did not complete", error);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Carries a checked IOException out of PayPropCallPriority.runAs
+     */
+    private static final class CallFailure extends RuntimeException {
+        CallFailure(IOException cause) {
+            super(cause);
+        }
+    }
+
+    private static void rethrow(Throwable error) throws IOException {
+        if (error instanceof IOException) {
+            throw (IOException) error;
+        }
+        if (error instanceof RuntimeException) {
+            throw (RuntimeException) error;
+        }
+        if (error instanceof Error) {
+            throw (Error) error;
+        }
+        throw new IOException(error);
+    }
+}
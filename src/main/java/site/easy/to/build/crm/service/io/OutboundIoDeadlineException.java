@@ -0,0 +1,23 @@
+package site.easy.to.build.crm.service.io;
+
+import java.io.InterruptedIOException;
+
+/**
+ * Outbound calls did not finish before their deadline. The calls still running were cancelled.
+ *
+ * An InterruptedIOException like a socket timeout, so callers that already handle IOException
+ * need no extra catch.
+ */
+public class OutboundIoDeadlineException extends InterruptedIOException {
+
+    private final OutboundIntegration integration;
+
+    public OutboundIoDeadlineException(OutboundIntegration integration, long deadlineMillis) {
+        super(integration.getKey() + " calls did not finish within " + deadlineMillis + "ms");
+        this.integration = integration;
+    }
+
+    public OutboundIntegration getIntegration() {
+        return integration;
+    }
+}
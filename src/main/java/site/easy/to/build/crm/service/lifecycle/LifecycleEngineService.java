@@ -0,0 +1,285 @@
+package site.easy.to.build.crm.service.lifecycle;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import site.easy.to.build.crm.entity.LifecycleTransitionType;
+import site.easy.to.build.crm.event.HistoricalDataImportedEvent;
+import site.easy.to.build.crm.event.LifecycleTransitionsAppliedEvent;
+import site.easy.to.build.crm.event.PayPropDataSyncedEvent;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Lifecycle Engine
+ *
+ * Keeps a due-date queue (lifecycle_transitions) of time-driven state changes - contract
+ * expiry, lease end, instruction close, overdue vacancy tasks - and applies the due ones in
+ * set-based batches. Nightly work is a windowed plan plus the transitions actually due, both
+ * read through date indexes, instead of a pass over every contract.
+ *
+ * The queue is kept current by:
+ * - LifecycleScheduleEntityListener for JPA writes (planned after commit)
+ * - a full replan of leases after PayProp syncs and historical imports (JDBC writes)
+ * - a full plan on startup, then a rolling lifecycle.engine.horizon-days window each night
+ *
+ * A run applies everything due on or before today, so transitions missed while the
+ * application was down are caught up (and reported as late) by the next run.
+ */
+@Service
+public class LifecycleEngineService {
+
+    private static final Logger log = LoggerFactory.getLogger(LifecycleEngineService.class);
+
+    private static final Object PENDING_SCHEDULE_KEY = new Object();
+
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final TaskExecutor executor;
+    private final int horizonDays;
+    private final int batchSize;
+    private final boolean runOnStartup;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private volatile LocalDate plannedThrough;
+
+    public LifecycleEngineService(JdbcTemplate jdbcTemplate,
+                                  ApplicationEventPublisher eventPublisher,
+                                  PlatformTransactionManager transactionManager,
+                                  @Qualifier("lifecycleEngineExecutor") TaskExecutor executor,
+                                  @Value("${lifecycle.engine.horizon-days:35}") int horizonDays,
+                                  @Value("${lifecycle.engine.batch-size:500}") int batchSize,
+                                  @Value("${lifecycle.engine.run-on-startup:true}") boolean runOnStartup) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Also used after commit, where the finished transaction is still bound
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = executor;
+        this.horizonDays = horizonDays;
+        this.batchSize = batchSize;
+        this.runOnStartup = runOnStartup;
+    }
+
+    @PostConstruct
+    void registerEntityListener() {
+        LifecycleScheduleEntityListener.register(this);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runOnStartup() {
+        if (!runOnStartup) {
+            return;
+        }
+        executor.execute(() -> run(LocalDate.now()));
+    }
+
+    /**
+     * Plan, then apply everything due on or before the run date.
+     *
+     * @return transitions applied (0 if a run is already in progress)
+     */
+    public int run(LocalDate runDate) {
+        if (!running.compareAndSet(false, true)) {
+            log.info("⏭️ Lifecycle engine already running");
+            return 0;
+        }
+        try {
+            try {
+                plan(runDate);
+            } catch (Exception e) {
+                // Already queued transitions can still be applied
+                log.error("❌ Lifecycle planning failed: {}", e.getMessage(), e);
+            }
+            int applied = 0;
+            for (LifecycleTransitionType type : LifecycleTransitionType.values()) {
+                try {
+                    applied += applyDue(LifecycleTransitionDefinition.of(type), runDate);
+                } catch (Exception e) {
+                    log.error("❌ Lifecycle transitions {} failed: {}", type, e.getMessage(), e);
+                }
+            }
+            return applied;
+        } finally {
+            running.set(false);
+        }
+    }
+
+    /**
+     * Queue transitions for every qualifying row (startup, or after bulk writes).
+     */
+    public void planAll(LifecycleTransitionType type) {
+        LifecycleTransitionDefinition definition = LifecycleTransitionDefinition.of(type);
+        int rows = transactionTemplate.execute(status ->
+            jdbcTemplate.update(definition.planSql(""), type.name()));
+        log.info("🗓️ Planned {} lifecycle transitions ({} rows changed)", type, rows);
+    }
+
+    /**
+     * Queue transitions for specific entities once the current transaction commits.
+     */
+    public void scheduleAfterCommit(LifecycleTransitionType type, Long entityId) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            planEntities(Map.of(type, Set.of(entityId)));
+            return;
+        }
+        @SuppressWarnings("unchecked")
+        Map<LifecycleTransitionType, Set<Long>> pending =
+            (Map<LifecycleTransitionType, Set<Long>>) TransactionSynchronizationManager.getResource(PENDING_SCHEDULE_KEY);
+        if (pending == null) {
+            Map<LifecycleTransitionType, Set<Long>> batch = new EnumMap<>(LifecycleTransitionType.class);
+            TransactionSynchronizationManager.bindResource(PENDING_SCHEDULE_KEY, batch);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    planEntities(batch);
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(PENDING_SCHEDULE_KEY);
+                }
+            });
+            pending = batch;
+        }
+        pending.computeIfAbsent(type, t -> new HashSet<>()).add(entityId);
+    }
+
+    @EventListener
+    public void onPayPropDataSynced(PayPropDataSyncedEvent event) {
+        planAfterBulkWrite();
+    }
+
+    @EventListener
+    public void onHistoricalDataImported(HistoricalDataImportedEvent event) {
+        planAfterBulkWrite();
+    }
+
+    private void planAfterBulkWrite() {
+        // Imports write invoices through JDBC, past the entity listener
+        try {
+            planAll(LifecycleTransitionType.LEASE_ENDED);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not replan lease transitions after import: {}", e.getMessage());
+        }
+    }
+
+    private void plan(LocalDate runDate) {
+        LocalDate horizon = runDate.plusDays(horizonDays);
+        LocalDate from = plannedThrough;
+        if (from == null) {
+            for (LifecycleTransitionType type : LifecycleTransitionType.values()) {
+                planAll(type);
+            }
+        } else if (from.isBefore(horizon)) {
+            for (LifecycleTransitionType type : LifecycleTransitionType.values()) {
+                LifecycleTransitionDefinition definition = LifecycleTransitionDefinition.of(type);
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    definition.planSql(definition.dueWindowRestriction()),
+                    type.name(), definition.sourceDateFor(from.plusDays(1)), definition.sourceDateFor(horizon)));
+            }
+            log.info("🗓️ Planned lifecycle transitions due {} to {}", from.plusDays(1), horizon);
+        }
+        plannedThrough = horizon;
+    }
+
+    private void planEntities(Map<LifecycleTransitionType, Set<Long>> entities) {
+        entities.forEach((type, ids) -> {
+            if (ids.isEmpty()) {
+                return;
+            }
+            LifecycleTransitionDefinition definition = LifecycleTransitionDefinition.of(type);
+            List<Object> params = new ArrayList<>(ids.size() + 1);
+            params.add(type.name());
+            params.addAll(ids);
+            try {
+                transactionTemplate.executeWithoutResult(status -> jdbcTemplate.update(
+                    definition.planSql(definition.idRestriction(ids.size())), params.toArray()));
+            } catch (Exception e) {
+                // The next window or startup plan picks these up
+                log.warn("⚠️ Could not schedule {} for {} entities: {}", type, ids.size(), e.getMessage());
+            }
+        });
+    }
+
+    private int applyDue(LifecycleTransitionDefinition definition, LocalDate runDate) {
+        LifecycleTransitionType type = definition.getType();
+        Date today = Date.valueOf(runDate);
+
+        int[] cleaned = transactionTemplate.execute(status -> new int[] {
+            jdbcTemplate.update(definition.rescheduleSql(), type.name(), today, definition.sourceDateFor(runDate.plusDays(1))),
+            jdbcTemplate.update(definition.skipSql(), type.name(), today)
+        });
+        if (cleaned[0] > 0 || cleaned[1] > 0) {
+            log.info("🔁 {}: {} rescheduled, {} skipped", type, cleaned[0], cleaned[1]);
+        }
+
+        List<Long> appliedIds = new ArrayList<>();
+        int late = 0;
+        while (true) {
+            List<DueTransition> batch = jdbcTemplate.query(definition.dueBatchSql(),
+                (rs, rowNum) -> new DueTransition(rs.getLong(1), rs.getLong(2), rs.getDate(3).toLocalDate()),
+                type.name(), today, batchSize);
+            if (batch.isEmpty()) {
+                break;
+            }
+            transactionTemplate.executeWithoutResult(status -> applyBatch(definition, batch));
+            for (DueTransition transition : batch) {
+                appliedIds.add(transition.entityId);
+                if (transition.dueDate.isBefore(runDate)) {
+                    late++;
+                }
+            }
+            if (batch.size() < batchSize) {
+                break;
+            }
+        }
+
+        if (!appliedIds.isEmpty()) {
+            if (late > 0) {
+                log.warn("⏰ {}: {} transitions were due before {} (missed runs)", type, late, runDate);
+            }
+            log.info("✅ {}: applied {} transitions", type, appliedIds.size());
+            eventPublisher.publishEvent(new LifecycleTransitionsAppliedEvent(this, type, appliedIds, runDate, late));
+        }
+        return appliedIds.size();
+    }
+
+    private void applyBatch(LifecycleTransitionDefinition definition, List<DueTransition> batch) {
+        if (definition.changesState()) {
+            Object[] entityIds = batch.stream().map(t -> t.entityId).toArray();
+            jdbcTemplate.update(definition.applySql(batch.size()), entityIds);
+        }
+        Object[] transitionIds = batch.stream().map(t -> t.id).toArray();
+        jdbcTemplate.update(LifecycleTransitionDefinition.markAppliedSql(batch.size()), transitionIds);
+    }
+
+    private static final class DueTransition {
+        final long id;
+        final long entityId;
+        final LocalDate dueDate;
+
+        DueTransition(long id, long entityId, LocalDate dueDate) {
+            this.id = id;
+            this.entityId = entityId;
+            this.dueDate = dueDate;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package site.easy.to.build.crm.service.lifecycle;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostUpdate;
+import site.easy.to.build.crm.entity.*;
+
+/**
+ * JPA listener on the entities with time-driven transitions. Queues the changed entity for
+ * (re)scheduling once the transaction commits. Instantiated by Hibernate, so the engine
+ * registers itself here on startup; before that (or without Spring) writes are ignored.
+ */
+public class LifecycleScheduleEntityListener {
+
+    private static volatile LifecycleEngineService engine;
+
+    static void register(LifecycleEngineService service) {
+        engine = service;
+    }
+
+    @PostPersist
+    @PostUpdate
+    public void onChange(Object entity) {
+        LifecycleEngineService service = engine;
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof Contract contract) {
+            service.scheduleAfterCommit(LifecycleTransitionType.CONTRACT_EXPIRED, (long) contract.getContractId());
+        } else if (entity instanceof Invoice invoice && invoice.getId() != null) {
+            service.scheduleAfterCommit(LifecycleTransitionType.LEASE_ENDED, invoice.getId());
+        } else if (entity instanceof LettingInstruction instruction && instruction.getId() != null) {
+            service.scheduleAfterCommit(LifecycleTransitionType.INSTRUCTION_LEASE_ENDED, instruction.getId());
+        } else if (entity instanceof PropertyVacancyTask task && task.getId() != null) {
+            service.scheduleAfterCommit(LifecycleTransitionType.VACANCY_TASK_OVERDUE, task.getId());
+        }
+    }
+}
@@ -0,0 +1,171 @@
+package site.easy.to.build.crm.service.lifecycle;
+
+import site.easy.to.build.crm.entity.LifecycleTransitionType;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * Where a transition type's due date comes from and how it is applied, as SQL fragments over
+ * the source table (alias s) and lifecycle_transitions (alias t).
+ *
+ * A transition falls due the day after the source date, matching the old nightly check
+ * ("today is after the end date"). Types without an apply statement only publish the event.
+ */
+final class LifecycleTransitionDefinition {
+
+    private static final Map<LifecycleTransitionType, LifecycleTransitionDefinition> DEFINITIONS;
+
+    static {
+        Map<LifecycleTransitionType, LifecycleTransitionDefinition> definitions = new EnumMap<>(LifecycleTransitionType.class);
+        // Contract dates are ISO strings, so range predicates compare text
+        definitions.put(LifecycleTransitionType.CONTRACT_EXPIRED, new LifecycleTransitionDefinition(
+            LifecycleTransitionType.CONTRACT_EXPIRED, "trigger_contract", "contract_id", "end_date", true,
+            "s.status = 'active'",
+            "UPDATE trigger_contract SET status = 'expired' WHERE status = 'active' AND contract_id IN (%s)"));
+        definitions.put(LifecycleTransitionType.LEASE_ENDED, new LifecycleTransitionDefinition(
+            LifecycleTransitionType.LEASE_ENDED, "invoices", "id", "end_date", false,
+            "s.is_active = 1 AND s.deleted_at IS NULL",
+            null));
+        definitions.put(LifecycleTransitionType.INSTRUCTION_LEASE_ENDED, new LifecycleTransitionDefinition(
+            LifecycleTransitionType.INSTRUCTION_LEASE_ENDED, "letting_instructions", "id", "lease_end_date", false,
+            "s.status = 'ACTIVE_LEASE'",
+            // Same effects as LettingInstruction.closeInstruction("LEASE_ENDED"), metrics included
+            "UPDATE letting_instructions li SET status = 'CLOSED', closure_date = CURRENT_DATE, " +
+            "closure_reason = 'LEASE_ENDED', " +
+            "advertising_end_date = IF(advertising_end_date IS NULL AND advertising_start_date IS NOT NULL, " +
+            "CURRENT_DATE, advertising_end_date), " +
+            "days_to_fill = IF(advertising_start_date IS NOT NULL AND lease_start_date IS NOT NULL, " +
+            "DATEDIFF(lease_start_date, advertising_start_date), days_to_fill), " +
+            "days_vacant = IF(expected_vacancy_date IS NOT NULL AND lease_start_date IS NOT NULL, " +
+            "DATEDIFF(lease_start_date, expected_vacancy_date), days_vacant), " +
+            "number_of_enquiries = (SELECT COUNT(*) FROM trigger_lead l WHERE l.letting_instruction_id = li.id), " +
+            "number_of_viewings = (SELECT COUNT(*) FROM property_viewings v WHERE v.letting_instruction_id = li.id), " +
+            "conversion_rate = COALESCE((SELECT SUM(l.status = BINARY 'converted') * 100.0 / COUNT(*) " +
+            "FROM trigger_lead l WHERE l.letting_instruction_id = li.id HAVING COUNT(*) > 0), conversion_rate), " +
+            "updated_at = NOW() WHERE status = 'ACTIVE_LEASE' AND id IN (%s)"));
+        definitions.put(LifecycleTransitionType.VACANCY_TASK_OVERDUE, new LifecycleTransitionDefinition(
+            LifecycleTransitionType.VACANCY_TASK_OVERDUE, "property_vacancy_tasks", "id", "due_date", false,
+            "s.status IN ('PENDING', 'IN_PROGRESS')",
+            null));
+        DEFINITIONS = Collections.unmodifiableMap(definitions);
+    }
+
+    private final LifecycleTransitionType type;
+    private final String table;
+    private final String idColumn;
+    private final String dateColumn;
+    private final boolean textDate;
+    private final String eligible;
+    private final String applyStatement;
+
+    private LifecycleTransitionDefinition(LifecycleTransitionType type, String table, String idColumn,
+                                          String dateColumn, boolean textDate, String eligible, String applyStatement) {
+        this.type = type;
+        this.table = table;
+        this.idColumn = idColumn;
+        this.dateColumn = dateColumn;
+        this.textDate = textDate;
+        this.eligible = eligible;
+        this.applyStatement = applyStatement;
+    }
+
+    static LifecycleTransitionDefinition of(LifecycleTransitionType type) {
+        return DEFINITIONS.get(type);
+    }
+
+    LifecycleTransitionType getType() {
+        return type;
+    }
+
+    boolean changesState() {
+        return applyStatement != null;
+    }
+
+    /**
+     * Source date parameter for a transition falling due on the given day.
+     */
+    Object sourceDateFor(LocalDate dueDate) {
+        LocalDate sourceDate = dueDate.minusDays(1);
+        return textDate ? sourceDate.toString() : Date.valueOf(sourceDate);
+    }
+
+    /**
+     * Upsert transitions for qualifying source rows matching the restriction (may be empty).
+     * Moving a source date reschedules its row; an applied row stays applied for the same date.
+     * Parameters: transition type, then the restriction's.
+     */
+    String planSql(String restriction) {
+        return "INSERT INTO lifecycle_transitions (transition_type, entity_id, due_date, status, scheduled_at) " +
+               "SELECT ?, s." + idColumn + ", DATE_ADD(s." + dateColumn + ", INTERVAL 1 DAY), 'PENDING', NOW() " +
+               "FROM " + table + " s WHERE " + sourceQualifies() + restriction + " " +
+               "ON DUPLICATE KEY UPDATE " +
+               "status = IF(due_date <> VALUES(due_date) OR status = 'SKIPPED', 'PENDING', status), " +
+               "applied_at = IF(status = 'PENDING', NULL, applied_at), " +
+               "scheduled_at = IF(due_date <> VALUES(due_date), VALUES(scheduled_at), scheduled_at), " +
+               "due_date = VALUES(due_date)";
+    }
+
+    /**
+     * Restriction for planSql: source dates making transitions due in [from, to].
+     */
+    String dueWindowRestriction() {
+        return " AND s." + dateColumn + " >= ? AND s." + dateColumn + " <= ?";
+    }
+
+    String idRestriction(int count) {
+        return " AND s." + idColumn + " IN (" + placeholders(count) + ")";
+    }
+
+    /**
+     * Push due rows whose source date has since moved later. Parameters: type, run date, run date.
+     */
+    String rescheduleSql() {
+        return "UPDATE lifecycle_transitions t JOIN " + table + " s ON s." + idColumn + " = t.entity_id " +
+               "SET t.due_date = DATE_ADD(s." + dateColumn + ", INTERVAL 1 DAY) " +
+               "WHERE t.transition_type = ? AND t.status = 'PENDING' AND t.due_date <= ? " +
+               "AND " + sourceQualifies() + " AND s." + dateColumn + " >= ?";
+    }
+
+    /**
+     * Skip due rows whose source row is gone or no longer qualifies. Parameters: type, run date.
+     */
+    String skipSql() {
+        return "UPDATE lifecycle_transitions t LEFT JOIN " + table + " s ON s." + idColumn + " = t.entity_id " +
+               "AND " + sourceQualifies() + " " +
+               "SET t.status = 'SKIPPED', t.applied_at = NOW() " +
+               "WHERE t.transition_type = ? AND t.status = 'PENDING' AND t.due_date <= ? AND s." + idColumn + " IS NULL";
+    }
+
+    /**
+     * Next batch of due rows (id, entity_id, due_date). Parameters: type, run date, limit.
+     */
+    String dueBatchSql() {
+        return "SELECT t.id, t.entity_id, t.due_date FROM lifecycle_transitions t " +
+               "WHERE t.transition_type = ? AND t.status = 'PENDING' AND t.due_date <= ? " +
+               "ORDER BY t.due_date, t.id LIMIT ?";
+    }
+
+    /**
+     * State change for a batch of entity ids, or null if this type only publishes the event.
+     */
+    String applySql(int count) {
+        return applyStatement != null ? String.format(applyStatement, placeholders(count)) : null;
+    }
+
+    static String markAppliedSql(int count) {
+        return "UPDATE lifecycle_transitions SET status = 'APPLIED', applied_at = NOW() " +
+               "WHERE status = 'PENDING' AND id IN (" + placeholders(count) + ")";
+    }
+
+    private String sourceQualifies() {
+        return "s." + dateColumn + " IS NOT NULL AND " + eligible;
+    }
+
+    static String placeholders(int count) {
+        return String.join(", ", Collections.nCopies(count, "?"));
+    }
+}
@@ -0,0 +1,316 @@
+package site.easy.to.build.crm.service.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationContext;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import site.easy.to.build.crm.entity.Property;
+import site.easy.to.build.crm.service.financial.PropertyFinancialSummaryService;
+import site.easy.to.build.crm.service.payprop.raw.PayPropIncomingPaymentExtractorService;
+import site.easy.to.build.crm.service.portfolio.PortfolioService;
+import site.easy.to.build.crm.service.property.PropertyService;
+import site.easy.to.build.crm.service.statement.ExcelStatementGeneratorService;
+import site.easy.to.build.crm.service.transaction.UnifiedTransactionRebuildService;
+
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * End-to-end Load Harness (loadtest profile only)
+ *
+ * For each scale in loadtest.scales (number of lettable properties): resets the load test
+ * database, generates a synthetic portfolio and times
+ * - rebuildComplete()
+ * - statement generation for a sample of owners (the Option C workbook, written and discarded)
+ * - the owner dashboard data path (accessible properties, portfolios, 12 month property summaries)
+ * - the raw import replay from payprop_report_all_payments into payprop_incoming_payments
+ *
+ * The per-scale timings (the scaling curve) are logged and written to loadtest.output as JSON.
+ * Refuses to run against anything but a local database, and only with loadtest.allow-reset=true,
+ * because every scale starts with reset().
+ */
+@Service
+@Profile("loadtest")
+public class LoadHarnessService {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadHarnessService.class);
+
+    @Autowired
+    private SyntheticPortfolioGenerator generator;
+
+    @Autowired
+    private UnifiedTransactionRebuildService rebuildService;
+
+    @Autowired
+    private ExcelStatementGeneratorService statementGeneratorService;
+
+    @Autowired
+    private PropertyService propertyService;
+
+    @Autowired
+    private PortfolioService portfolioService;
+
+    @Autowired
+    private PropertyFinancialSummaryService propertyFinancialSummaryService;
+
+    @Autowired
+    private PayPropIncomingPaymentExtractorService incomingPaymentExtractorService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Autowired
+    private ApplicationContext applicationContext;
+
+    @Value("${loadtest.scales:250,500,1000,2000}")
+    private List<Integer> scales;
+
+    @Value("${loadtest.seed:42}")
+    private long seed;
+
+    @Value("${loadtest.as-of:2025-06-30}")
+    private String asOf;
+
+    @Value("${loadtest.owner-samples:10}")
+    private int ownerSamples;
+
+    @Value("${loadtest.output:target/load-harness.json}")
+    private String output;
+
+    @Value("${loadtest.allow-reset:false}")
+    private boolean allowReset;
+
+    @Value("${loadtest.run-on-startup:false}")
+    private boolean runOnStartup;
+
+    @Value("${loadtest.exit-after-run:false}")
+    private boolean exitAfterRun;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void runOnStartup() {
+        if (!runOnStartup) {
+            log.info("⏭️ Load harness not started (loadtest.run-on-startup=false)");
+            return;
+        }
+        int exitCode = 0;
+        try {
+            run();
+        } catch (Exception e) {
+            log.error("❌ Load harness failed: {}", e.getMessage(), e);
+            exitCode = 1;
+        }
+        if (exitAfterRun) {
+            int code = exitCode;
+            System.exit(SpringApplication.exit(applicationContext, () -> code));
+        }
+    }
+
+    /**
+     * Run every configured scale and write the scaling curve.
+     */
+    public List<ScalePoint> run() throws Exception {
+        verifyLocalDatabase();
+        LocalDate asOfDate = LocalDate.parse(asOf);
+        List<ScalePoint> curve = new ArrayList<>();
+        for (Integer scale : scales) {
+            curve.add(runScale(scale, asOfDate));
+        }
+        logCurve(curve);
+
+        Path outputPath = Paths.get(output);
+        if (outputPath.getParent() != null) {
+            Files.createDirectories(outputPath.getParent());
+        }
+        Map<String, Object> report = new LinkedHashMap<>();
+        report.put("seed", seed);
+        report.put("asOf", asOf);
+        report.put("ownerSamples", ownerSamples);
+        report.put("finishedAt", LocalDateTime.now().toString());
+        report.put("scales", curve);
+        new ObjectMapper().enable(SerializationFeature.INDENT_OUTPUT).writeValue(outputPath.toFile(), report);
+        log.info("📈 Load harness scaling curve written to {}", outputPath.toAbsolutePath());
+        return curve;
+    }
+
+    private ScalePoint runScale(int propertyCount, LocalDate asOfDate) {
+        log.info("🏋️ Load harness: scale {} properties", propertyCount);
+        generator.reset();
+        SyntheticPortfolioGenerator.GeneratedPortfolio portfolio = generator.generate(propertyCount, seed, asOfDate);
+        ScalePoint point = new ScalePoint(propertyCount, portfolio.getRowCounts(), portfolio.getGenerationMillis());
+
+        long start = System.nanoTime();
+        Map<String, Object> rebuild = rebuildService.rebuildComplete();
+        point.timing("rebuildComplete", List.of(elapsedMillis(start)));
+        point.rowCounts.put("unified_transactions", count("unified_transactions"));
+        log.info("🔄 Rebuild at scale {}: {} historical, {} PayProp records", propertyCount,
+            rebuild.get("historicalRecordsInserted"), rebuild.get("paypropRecordsInserted"));
+
+        List<Long> owners = sampleOwners(portfolio.getOwnerIds());
+        LocalDate from = asOfDate.minusMonths(12).plusDays(1);
+        TransactionTemplate readOnly = new TransactionTemplate(transactionManager);
+        readOnly.setReadOnly(true);
+
+        List<Double> statementMillis = new ArrayList<>();
+        List<Double> dashboardMillis = new ArrayList<>();
+        for (Long ownerId : owners) {
+            statementMillis.add(timed(() -> readOnly.execute(status -> writeStatement(ownerId, from, asOfDate))));
+            dashboardMillis.add(timed(() -> readOnly.execute(status -> loadDashboard(ownerId, from, asOfDate))));
+        }
+        point.timing("statement", statementMillis);
+        point.timing("ownerDashboard", dashboardMillis);
+
+        start = System.nanoTime();
+        PayPropIncomingPaymentExtractorService.ExtractionResult replay = incomingPaymentExtractorService.extractIncomingPayments();
+        point.timing("rawImportReplay", List.of(elapsedMillis(start)));
+        point.rowCounts.put("payprop_incoming_payments", replay.getTotalExtracted());
+
+        log.info("⏱️ Scale {}: {}", propertyCount, point.getTimings());
+        return point;
+    }
+
+    private Integer writeStatement(Long ownerId, LocalDate from, LocalDate to) {
+        try (Workbook workbook = statementGeneratorService.generateStatementForCustomerWithCustomPeriods(
+                ownerId, from, to, 1, "MONTHLY")) {
+            workbook.write(OutputStream.nullOutputStream());
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            return workbook.getNumberOfSheets();
+        } catch (Exception e) {
+            throw new IllegalStateException("Statement for owner " + ownerId + " failed", e);
+        }
+    }
+
+    private Integer loadDashboard(Long ownerId, LocalDate from, LocalDate to) {
+        List<Property> properties = propertyService.findPropertiesAccessibleByCustomer(ownerId);
+        portfolioService.findPortfoliosForPropertyOwnerWithBlocks(ownerId);
+        for (Property property : properties) {
+            propertyFinancialSummaryService.getPropertySummary(property.getId(), from, to);
+        }
+        return properties.size();
+    }
+
+    /**
+     * The largest owners plus an even spread of the rest, the same for every run.
+     */
+    private List<Long> sampleOwners(List<Long> ownerIds) {
+        if (ownerIds.size() <= ownerSamples) {
+            return ownerIds;
+        }
+        Set<Long> sample = new LinkedHashSet<>(ownerIds.subList(0, Math.max(1, ownerSamples / 2)));
+        int step = Math.max(1, ownerIds.size() / ownerSamples);
+        for (int i = step / 2; sample.size() < ownerSamples && i < ownerIds.size(); i += step) {
+            sample.add(ownerIds.get(i));
+        }
+        return new ArrayList<>(sample);
+    }
+
+    private void verifyLocalDatabase() {
+        String url = jdbcTemplate.execute((ConnectionCallback<String>) connection -> connection.getMetaData().getURL());
+        boolean local = url != null && (url.contains("//localhost") || url.contains("//127.0.0.1"));
+        if (!local || !allowReset) {
+            throw new IllegalStateException("Load harness resets the database and only runs against a local "
+                + "database with loadtest.allow-reset=true (url: " + url + ")");
+        }
+    }
+
+    private int count(String table) {
+        Integer rows = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM " + table, Integer.class);
+        return rows != null ? rows : 0;
+    }
+
+    private void logCurve(List<ScalePoint> curve) {
+        log.info("📈 Load harness scaling curve (ms; growth = log(t2/t1)/log(n2/n1), 1.0 is linear)");
+        ScalePoint previous = null;
+        for (ScalePoint point : curve) {
+            StringBuilder line = new StringBuilder(String.format("%6d properties:", point.getProperties()));
+            for (Map.Entry<String, Map<String, Double>> timing : point.getTimings().entrySet()) {
+                double p50 = timing.getValue().get("p50");
+                line.append(String.format("  %s p50=%.1f", timing.getKey(), p50));
+                if (previous != null && previous.getTimings().containsKey(timing.getKey())) {
+                    double before = previous.getTimings().get(timing.getKey()).get("p50");
+                    if (before > 0 && p50 > 0) {
+                        line.append(String.format(" (growth %.2f)", Math.log(p50 / before)
+                            / Math.log((double) point.getProperties() / previous.getProperties())));
+                    }
+                }
+            }
+            log.info(line.toString());
+            previous = point;
+        }
+    }
+
+    private static double timed(Supplier<?> action) {
+        long start = System.nanoTime();
+        action.get();
+        return elapsedMillis(start);
+    }
+
+    private static double elapsedMillis(long startNanos) {
+        return (System.nanoTime() - startNanos) / 1_000_000.0;
+    }
+
+    /**
+     * Timings and row counts of one scale
+     */
+    public static final class ScalePoint {
+        private final int properties;
+        private final Map<String, Integer> rowCounts;
+        private final long generationMillis;
+        private final Map<String, Map<String, Double>> timings = new LinkedHashMap<>();
+
+        ScalePoint(int properties, Map<String, Integer> rowCounts, long generationMillis) {
+            this.properties = properties;
+            this.rowCounts = new LinkedHashMap<>(rowCounts);
+            this.generationMillis = generationMillis;
+        }
+
+        void timing(String operation, List<Double> samples) {
+            if (samples.isEmpty()) {
+                return;
+            }
+            List<Double> sorted = new ArrayList<>(samples);
+            Collections.sort(sorted);
+            Map<String, Double> summary = new LinkedHashMap<>();
+            summary.put("samples", (double) sorted.size());
+            summary.put("p50", percentile(sorted, 50));
+            summary.put("p95", percentile(sorted, 95));
+            summary.put("max", sorted.get(sorted.size() - 1));
+            summary.put("mean", sorted.stream().mapToDouble(Double::doubleValue).average().orElse(0));
+            timings.put(operation, summary);
+        }
+
+        private static double percentile(List<Double> sorted, int percentile) {
+            int index = (int) Math.ceil(percentile / 100.0 * sorted.size()) - 1;
+            return sorted.get(Math.max(0, Math.min(sorted.size() - 1, index)));
+        }
+
+        public int getProperties() { return properties; }
+        public Map<String, Integer> getRowCounts() { return rowCounts; }
+        public long getGenerationMillis() { return generationMillis; }
+        public Map<String, Map<String, Double>> getTimings() { return timings; }
+    }
+}
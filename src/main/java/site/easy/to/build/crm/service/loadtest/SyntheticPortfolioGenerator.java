@@ -0,0 +1,481 @@
+package site.easy.to.build.crm.service.loadtest;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+import org.springframework.stereotype.Service;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Date;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Synthetic Portfolio Generator (loadtest profile only)
+ *
+ * Fills the schema with a deterministic portfolio of the given size: blocks, properties,
+ * owners, tenants, lease invoices, and per lease month either a historical rent/expense/owner
+ * payment (older than 12 months before asOf) or the PayProp equivalent (financial_transactions
+ * plus payprop_report_all_payments rows), with batch allocations for the historical rent.
+ *
+ * Same (propertyCount, seed, asOf) = same rows, so timings are comparable between runs.
+ * Rows are written with plain JDBC batches and explicit ids after reset().
+ */
+@Service
+@Profile("loadtest")
+public class SyntheticPortfolioGenerator {
+
+    private static final Logger log = LoggerFactory.getLogger(SyntheticPortfolioGenerator.class);
+
+    public static final int MONTHS_OF_HISTORY = 36;
+    public static final int PAYPROP_MONTHS = 12;
+
+    private static final int BATCH_SIZE = 1000;
+    private static final int PROPERTIES_PER_BLOCK = 12;
+    private static final BigDecimal COMMISSION_RATE = new BigDecimal("15.00");
+    private static final String LOADTEST_USERNAME = "loadtest";
+    private static final String[] EXPENSE_CATEGORIES = {"cleaning", "maintenance", "utilities", "compliance", "furnishings"};
+    private static final String[] STREETS = {"High Street", "Station Road", "Church Lane", "Park Avenue", "Mill Road", "Victoria Street"};
+
+    /**
+     * Tables emptied by reset(), children first
+     */
+    private static final String[] GENERATED_TABLES = {
+        "unified_rebuild_watermark", "unified_transactions", "transaction_batch_allocations",
+        "payprop_incoming_payments", "payprop_report_all_payments", "financial_transactions",
+        "historical_transactions", "payment_corrections", "invoices", "customer_property_assignments",
+        "properties", "blocks", "customers"
+    };
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private DataSource dataSource;
+
+    /**
+     * Empty every generated table (foreign key checks off on the same connection).
+     */
+    public void reset() {
+        ensureRawTables();
+        jdbcTemplate.execute((ConnectionCallback<Void>) connection -> {
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("SET FOREIGN_KEY_CHECKS = 0");
+                try {
+                    for (String table : GENERATED_TABLES) {
+                        try {
+                            statement.execute("TRUNCATE TABLE " + table);
+                        } catch (java.sql.SQLException e) {
+                            log.debug("Skipping reset of {}: {}", table, e.getMessage());
+                        }
+                    }
+                } finally {
+                    statement.execute("SET FOREIGN_KEY_CHECKS = 1");
+                }
+            }
+            return null;
+        });
+        log.info("🧹 Load test tables reset");
+    }
+
+    /**
+     * Generate a portfolio of propertyCount lettable properties into empty tables (call reset() first).
+     */
+    public GeneratedPortfolio generate(int propertyCount, long seed, LocalDate asOf) {
+        long startTime = System.currentTimeMillis();
+        ensureRawTables();
+        Random random = new Random(seed);
+        Rows rows = new Rows();
+        long userId = ensureLoadTestUser();
+
+        LocalDate historyStart = asOf.minusMonths(MONTHS_OF_HISTORY).withDayOfMonth(1);
+        LocalDate paypropStart = asOf.minusMonths(PAYPROP_MONTHS).plusDays(1);
+        Timestamp createdAt = Timestamp.valueOf(historyStart.atStartOfDay());
+
+        // Owners: a few large landlords and a long tail of single-property owners
+        int ownerCount = Math.max(1, propertyCount / 3);
+        List<Long> ownerIds = new ArrayList<>(ownerCount);
+        for (int i = 0; i < ownerCount; i++) {
+            long ownerId = rows.nextCustomerId++;
+            ownerIds.add(ownerId);
+            rows.customers.add(customer(ownerId, userId, "PROPERTY_OWNER", "Owner " + (i + 1),
+                "owner" + (i + 1) + "@loadtest.invalid", createdAt));
+        }
+
+        // Blocks for roughly half of the properties, each with its block property
+        int blockCount = Math.max(1, propertyCount / (2 * PROPERTIES_PER_BLOCK));
+        for (int b = 1; b <= blockCount; b++) {
+            long blockPropertyId = rows.nextPropertyId++;
+            long ownerId = ownerIds.get(pickOwner(random, ownerCount));
+            rows.blocks.add(new Object[]{(long) b, "Synthetic Block " + b, "BUILDING", blockPropertyId, ownerId,
+                "pending", "Y", createdAt});
+            rows.properties.add(property(blockPropertyId, "SYNB" + b, "Synthetic Block " + b, "BLOCK", null,
+                BigDecimal.ZERO, ownerId, createdAt));
+        }
+
+        for (int p = 0; p < propertyCount; p++) {
+            long propertyId = rows.nextPropertyId++;
+            String paypropId = "SYNP" + propertyId;
+            Long blockId = p < blockCount * PROPERTIES_PER_BLOCK ? (long) (p / PROPERTIES_PER_BLOCK + 1) : null;
+            long ownerId = ownerIds.get(pickOwner(random, ownerCount));
+            String name = (blockId != null ? "Flat " + (p % PROPERTIES_PER_BLOCK + 1) + ", Synthetic Block " + blockId
+                : (p + 1) + " " + STREETS[p % STREETS.length]);
+            BigDecimal rent = money(650 + random.nextInt(1800));
+            rows.properties.add(property(propertyId, paypropId, name, "FLAT", blockId, rent, ownerId, createdAt));
+            rows.assignments.add(new Object[]{ownerId, propertyId, "OWNER", true, Date.valueOf(historyStart),
+                new BigDecimal("100.00"), createdAt});
+
+            generateLeases(rows, random, userId, propertyId, paypropId, name, ownerId, rent,
+                historyStart, paypropStart, asOf);
+        }
+
+        write(rows);
+        GeneratedPortfolio portfolio = new GeneratedPortfolio(propertyCount, ownerIds, rows.counts(),
+            System.currentTimeMillis() - startTime);
+        log.info("🏗️ Generated synthetic portfolio of {} properties in {}ms: {}",
+            propertyCount, portfolio.getGenerationMillis(), portfolio.getRowCounts());
+        return portfolio;
+    }
+
+    /**
+     * Consecutive leases from historyStart until after asOf, each with a new tenant and one
+     * rent payment per month (with the owner payment, commission and the odd expense).
+     */
+    private void generateLeases(Rows rows, Random random, long userId, long propertyId, String paypropId,
+                                String propertyName, long ownerId, BigDecimal baseRent,
+                                LocalDate historyStart, LocalDate paypropStart, LocalDate asOf) {
+        LocalDate leaseStart = historyStart.plusDays(random.nextInt(28));
+        BigDecimal rent = baseRent;
+        while (!leaseStart.isAfter(asOf)) {
+            LocalDate nextStart = leaseStart.plusMonths(6 + random.nextInt(19));
+            boolean openEnded = !nextStart.isBefore(asOf) && random.nextInt(3) > 0;
+            LocalDate leaseEnd = openEnded ? null : nextStart.minusDays(1);
+
+            long tenantId = rows.nextCustomerId++;
+            long invoiceId = rows.nextInvoiceId++;
+            String tenantName = "Tenant " + tenantId;
+            String leaseReference = "SYN-LEASE-" + invoiceId;
+            Timestamp created = Timestamp.valueOf(leaseStart.atStartOfDay());
+            rows.customers.add(customer(tenantId, userId, "TENANT", tenantName,
+                "tenant" + tenantId + "@loadtest.invalid", created));
+            rows.assignments.add(new Object[]{tenantId, propertyId, "TENANT", true, Date.valueOf(leaseStart),
+                null, created});
+            rows.invoices.add(new Object[]{invoiceId, "pending", tenantId, propertyId, userId, "rent", rent, false,
+                "monthly", 1, leaseStart.getDayOfMonth(), Date.valueOf(leaseStart),
+                leaseEnd != null ? Date.valueOf(leaseEnd) : null, "Rent " + propertyName, true, false, "lease",
+                leaseReference, created});
+
+            for (LocalDate due = leaseStart; !due.isAfter(asOf) && (leaseEnd == null || !due.isAfter(leaseEnd));
+                 due = due.plusMonths(1)) {
+                LocalDate paid = due.plusDays(random.nextInt(6));
+                if (paid.isAfter(asOf)) {
+                    break;
+                }
+                BigDecimal commission = rent.multiply(COMMISSION_RATE).divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+                BigDecimal net = rent.subtract(commission);
+                if (paid.isBefore(paypropStart)) {
+                    historicalMonth(rows, random, userId, propertyId, tenantId, ownerId, invoiceId, rent,
+                        commission, net, leaseStart, leaseEnd, paid);
+                } else {
+                    paypropMonth(rows, random, propertyId, paypropId, propertyName, tenantId, tenantName,
+                        ownerId, invoiceId, rent, commission, net, paid);
+                }
+            }
+            rent = rent.add(money(random.nextInt(60))); // renewal uplift
+            leaseStart = nextStart.plusDays(random.nextInt(4) == 0 ? 14 + random.nextInt(30) : 0);
+        }
+    }
+
+    private void historicalMonth(Rows rows, Random random, long userId, long propertyId, long tenantId, long ownerId,
+                                 long invoiceId, BigDecimal rent, BigDecimal commission, BigDecimal net,
+                                 LocalDate leaseStart, LocalDate leaseEnd, LocalDate paid) {
+        Timestamp created = Timestamp.valueOf(paid.atTime(9, 0));
+        String batchReference = "SYN-BATCH-" + ownerId + "-" + paid.getYear() + String.format("%02d", paid.getMonthValue());
+
+        long rentId = rows.nextHistoricalId++;
+        rows.historical.add(historical(rentId, userId, paid, rent, "Rent received", "payment", "rent", propertyId,
+            tenantId, invoiceId, ownerId, leaseStart, leaseEnd, rent, net, commission, created));
+        rows.allocations.add(new Object[]{rentId, batchReference, net, propertyId, ownerId, "OWNER", created});
+        rows.allocations.add(new Object[]{rentId, batchReference, commission, propertyId, null, "COMMISSION", created});
+
+        BigDecimal ownerPayment = net;
+        if (random.nextInt(6) == 0) {
+            BigDecimal expense = money(40 + random.nextInt(400));
+            String category = EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)];
+            long expenseId = rows.nextHistoricalId++;
+            rows.historical.add(historical(expenseId, userId, paid.plusDays(3), expense.negate(),
+                "Synthetic " + category + " invoice", "expense", category, propertyId, null, invoiceId, ownerId,
+                leaseStart, leaseEnd, rent, null, null, created));
+            rows.allocations.add(new Object[]{expenseId, batchReference, expense.negate(), propertyId, null, "EXPENSE", created});
+            ownerPayment = ownerPayment.subtract(expense);
+        }
+        rows.historical.add(historical(rows.nextHistoricalId++, userId, paid.plusDays(7), ownerPayment.negate(),
+            "Owner payment " + batchReference, "payment", "owner_payment", propertyId, null, invoiceId, ownerId,
+            leaseStart, leaseEnd, rent, null, null, created));
+    }
+
+    private void paypropMonth(Rows rows, Random random, long propertyId, String paypropId, String propertyName,
+                              long tenantId, String tenantName, long ownerId, long invoiceId, BigDecimal rent,
+                              BigDecimal commission, BigDecimal net, LocalDate paid) {
+        long n = rows.nextPaymentNumber++;
+        String incomingId = "SYNIN" + n;
+        String ownerPaymentId = "SYNPO" + n;
+        String commissionPaymentId = "SYNCM" + n;
+        String batchId = "SYNBATCH" + ownerId + "_" + paid.getYear() + paid.getMonthValue();
+        LocalDate transfer = paid.plusDays(5);
+        Timestamp created = Timestamp.valueOf(paid.atTime(9, 0));
+        String tenantPaypropId = "SYNT" + tenantId;
+        String tenant = String.valueOf(tenantId);
+
+        rows.financial.add(financial(incomingId, rent, paid, "incoming_payment", "Rent payment from " + tenantName,
+            paypropId, propertyName, tenant, tenantName, "rent", commission, COMMISSION_RATE, net, "INCOMING_PAYMENT",
+            invoiceId, created));
+        rows.financial.add(financial(ownerPaymentId, net, transfer, "payment_to_beneficiary",
+            "Owner payment for " + propertyName, paypropId, propertyName, tenant, tenantName, "Owner", null, null, net,
+            "BATCH_PAYMENT", invoiceId, created));
+        rows.financial.add(financial(commissionPaymentId, commission, transfer, "commission_payment",
+            "Commission for " + propertyName, paypropId, propertyName, tenant, tenantName, "Commission", commission,
+            COMMISSION_RATE, null, "COMMISSION_PAYMENT", invoiceId, created));
+
+        rows.rawPayments.add(rawPayment(ownerPaymentId, net, "Owner " + ownerId, "beneficiary", "Owner",
+            incomingId, rent, paid, paypropId, propertyName, tenantPaypropId, tenantName, batchId, transfer));
+        rows.rawPayments.add(rawPayment(commissionPaymentId, commission, "Agency", "agency", "Commission",
+            incomingId, rent, paid, paypropId, propertyName, tenantPaypropId, tenantName, batchId, transfer));
+
+        if (random.nextInt(8) == 0) {
+            BigDecimal expense = money(40 + random.nextInt(400));
+            rows.financial.add(financial("SYNEX" + n, expense, paid.plusDays(2), "payment_to_contractor",
+                "Contractor invoice for " + propertyName, paypropId, propertyName, null, null,
+                EXPENSE_CATEGORIES[random.nextInt(EXPENSE_CATEGORIES.length)], null, null, null, "EXPENSE_PAYMENT",
+                null, created));
+        }
+    }
+
+    private void write(Rows rows) {
+        batch("INSERT INTO customers (customer_id, user_id, customer_type, name, email, country, is_property_owner, "
+            + "is_tenant, payprop_synced, data_source, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows.customers);
+        batch("INSERT INTO blocks (id, name, block_type, block_property_id, property_owner_id, sync_status, is_active, "
+            + "created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?)", rows.blocks);
+        batch("INSERT INTO properties (id, payprop_id, property_name, property_type, block_id, monthly_payment, "
+            + "commission_percentage, customer_id, property_owner_id, country_code, enable_payments, hold_owner_funds, "
+            + "is_archived, data_source, created_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows.properties);
+        batch("INSERT INTO customer_property_assignments (customer_id, property_id, assignment_type, is_primary, "
+            + "start_date, ownership_percentage, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)", rows.assignments);
+        batch("INSERT INTO invoices (id, sync_status, customer_id, property_id, created_by_user_id, category_id, amount, "
+            + "vat_included, frequency, frequency_months, payment_day, start_date, end_date, description, is_active, "
+            + "is_debit_order, invoice_type, lease_reference, created_at) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows.invoices);
+        batch("INSERT INTO historical_transactions (id, created_by_user_id, transaction_date, amount, description, "
+            + "transaction_type, category, property_id, customer_id, invoice_id, owner_id, lease_start_date, "
+            + "lease_end_date, rent_amount_at_transaction, net_to_owner_amount, commission_amount, commission_rate, "
+            + "beneficiary_type, source, import_batch_id, reconciled, tax_relevant, vat_applicable, validated, "
+            + "created_at, updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)",
+            rows.historical);
+        batch("INSERT INTO transaction_batch_allocations (transaction_id, batch_reference, allocated_amount, "
+            + "property_id, beneficiary_id, allocation_type, created_at) VALUES (?, ?, ?, ?, ?, ?, ?)", rows.allocations);
+        batch("INSERT INTO financial_transactions (pay_prop_transaction_id, amount, transaction_date, transaction_type, "
+            + "description, property_id, property_name, tenant_id, tenant_name, category_name, commission_amount, "
+            + "commission_rate, net_to_owner_amount, data_source, invoice_id, is_actual_transaction, created_at, "
+            + "updated_at) VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows.financial);
+        batch("INSERT INTO payprop_report_all_payments (payprop_id, amount, description, due_date, beneficiary_name, "
+            + "beneficiary_type, category_name, incoming_transaction_id, incoming_transaction_amount, "
+            + "incoming_transaction_reconciliation_date, incoming_transaction_status, incoming_transaction_type, "
+            + "incoming_property_payprop_id, incoming_property_name, incoming_tenant_payprop_id, incoming_tenant_name, "
+            + "payment_batch_id, payment_batch_status, payment_batch_transfer_date, reconciliation_date, sync_status) "
+            + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)", rows.rawPayments);
+    }
+
+    private void batch(String sql, List<Object[]> rows) {
+        for (int from = 0; from < rows.size(); from += BATCH_SIZE) {
+            jdbcTemplate.batchUpdate(sql, rows.subList(from, Math.min(rows.size(), from + BATCH_SIZE)));
+        }
+    }
+
+    private long ensureLoadTestUser() {
+        List<Long> existing = jdbcTemplate.queryForList("SELECT id FROM users WHERE username = ?", Long.class,
+            LOADTEST_USERNAME);
+        if (!existing.isEmpty()) {
+            return existing.get(0);
+        }
+        jdbcTemplate.update("INSERT INTO users (username, email, password, status, created_at, is_password_set) "
+            + "VALUES (?, ?, '!', 'active', ?, 0)", LOADTEST_USERNAME, "loadtest@loadtest.invalid", Timestamp.valueOf(LocalDateTime.now()));
+        return jdbcTemplate.queryForObject("SELECT id FROM users WHERE username = ?", Long.class, LOADTEST_USERNAME);
+    }
+
+    /**
+     * payprop_report_all_payments is created by the PayProp import and payprop_incoming_payments
+     * by the V15 migration, neither through JPA, so a fresh load test schema may lack both.
+     */
+    private void ensureRawTables() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS payprop_report_all_payments (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                payprop_id VARCHAR(50) NOT NULL UNIQUE,
+                amount DECIMAL(10,2),
+                description TEXT,
+                due_date DATE,
+                has_tax TINYINT(1),
+                reference VARCHAR(100),
+                service_fee DECIMAL(10,2),
+                transaction_fee DECIMAL(10,2),
+                tax_amount DECIMAL(10,2),
+                part_of_amount DECIMAL(10,2),
+                beneficiary_payprop_id VARCHAR(50),
+                beneficiary_name VARCHAR(100),
+                beneficiary_type VARCHAR(50),
+                category_payprop_id VARCHAR(50),
+                category_name VARCHAR(100),
+                incoming_transaction_id VARCHAR(50),
+                incoming_transaction_amount DECIMAL(10,2),
+                incoming_transaction_deposit_id VARCHAR(50),
+                incoming_transaction_reconciliation_date DATE,
+                incoming_transaction_status VARCHAR(50),
+                incoming_transaction_type VARCHAR(100),
+                bank_statement_date DATE,
+                bank_statement_id VARCHAR(50),
+                incoming_property_payprop_id VARCHAR(50),
+                incoming_property_name TEXT,
+                incoming_tenant_payprop_id VARCHAR(50),
+                incoming_tenant_name VARCHAR(100),
+                payment_batch_id VARCHAR(50),
+                payment_batch_amount DECIMAL(10,2),
+                payment_batch_status VARCHAR(50),
+                payment_batch_transfer_date DATE,
+                payment_instruction_id VARCHAR(50),
+                secondary_payment_is_child TINYINT(1),
+                secondary_payment_is_parent TINYINT(1),
+                secondary_payment_parent_id VARCHAR(50),
+                reconciliation_date DATE,
+                sync_status VARCHAR(20),
+                imported_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+                INDEX idx_prap_incoming (incoming_transaction_id),
+                INDEX idx_prap_property (incoming_property_payprop_id)
+            )
+        """);
+        Integer incomingTable = jdbcTemplate.queryForObject("SELECT COUNT(*) FROM information_schema.tables "
+            + "WHERE table_schema = DATABASE() AND table_name = 'payprop_incoming_payments'", Integer.class);
+        if (incomingTable == null || incomingTable == 0) {
+            new ResourceDatabasePopulator(new ClassPathResource("db/migration/V15__create_payprop_incoming_payments.sql"))
+                .execute(dataSource);
+        }
+    }
+
+    private static Object[] customer(long id, long userId, String type, String name, String email, Timestamp createdAt) {
+        boolean owner = "PROPERTY_OWNER".equals(type);
+        return new Object[]{id, userId, type, name, email, "United Kingdom", owner, !owner, false, "MANUAL", createdAt};
+    }
+
+    private static Object[] property(long id, String paypropId, String name, String type, Long blockId, BigDecimal rent,
+                                     long ownerId, Timestamp createdAt) {
+        return new Object[]{id, paypropId, name, type, blockId, rent, COMMISSION_RATE, "SYN-P" + id, ownerId, "UK",
+            "Y", "N", "N", "MANUAL", createdAt};
+    }
+
+    private static Object[] historical(long id, long userId, LocalDate date, BigDecimal amount, String description,
+                                       String type, String category, long propertyId, Long tenantId, long invoiceId,
+                                       long ownerId, LocalDate leaseStart, LocalDate leaseEnd, BigDecimal rent,
+                                       BigDecimal net, BigDecimal commission, Timestamp createdAt) {
+        return new Object[]{id, userId, Date.valueOf(date), amount, description, type, category, propertyId, tenantId,
+            invoiceId, ownerId, Date.valueOf(leaseStart), leaseEnd != null ? Date.valueOf(leaseEnd) : null, rent, net,
+            commission, commission != null ? COMMISSION_RATE : null, "owner_payment".equals(category) ? "beneficiary" : null,
+            "historical_import", "SYN-IMPORT", true, false, false, true, createdAt, createdAt};
+    }
+
+    private static Object[] financial(String paypropId, BigDecimal amount, LocalDate date, String type,
+                                      String description, String propertyPaypropId, String propertyName,
+                                      String tenantId, String tenantName, String category, BigDecimal commission,
+                                      BigDecimal commissionRate, BigDecimal net, String dataSource, Long invoiceId,
+                                      Timestamp createdAt) {
+        return new Object[]{paypropId, amount, Date.valueOf(date), type, description, propertyPaypropId, propertyName,
+            tenantId, tenantName, category, commission, commissionRate, net, dataSource, invoiceId, true, createdAt,
+            createdAt};
+    }
+
+    private static Object[] rawPayment(String paypropId, BigDecimal amount, String beneficiary, String beneficiaryType,
+                                       String category, String incomingId, BigDecimal incomingAmount, LocalDate paid,
+                                       String propertyPaypropId, String propertyName, String tenantPaypropId,
+                                       String tenantName, String batchId, LocalDate transfer) {
+        return new Object[]{paypropId, amount, category + " payment", Date.valueOf(paid), beneficiary, beneficiaryType,
+            category, incomingId, incomingAmount, Date.valueOf(paid), "paid", "incoming payment", propertyPaypropId,
+            propertyName, tenantPaypropId, tenantName, batchId, "paid", Date.valueOf(transfer), Date.valueOf(paid),
+            "active"};
+    }
+
+    /**
+     * Skewed towards the first owners, so some landlords hold dozens of properties.
+     */
+    private static int pickOwner(Random random, int ownerCount) {
+        double r = random.nextDouble();
+        return Math.min(ownerCount - 1, (int) (ownerCount * r * r));
+    }
+
+    private static BigDecimal money(int pounds) {
+        return BigDecimal.valueOf(pounds).setScale(2, RoundingMode.UNNECESSARY);
+    }
+
+    /**
+     * Rows collected before writing, in insert order
+     */
+    private static final class Rows {
+        long nextCustomerId = 1;
+        long nextPropertyId = 1;
+        long nextInvoiceId = 1;
+        long nextHistoricalId = 1;
+        long nextPaymentNumber = 1;
+        final List<Object[]> customers = new ArrayList<>();
+        final List<Object[]> blocks = new ArrayList<>();
+        final List<Object[]> properties = new ArrayList<>();
+        final List<Object[]> assignments = new ArrayList<>();
+        final List<Object[]> invoices = new ArrayList<>();
+        final List<Object[]> historical = new ArrayList<>();
+        final List<Object[]> allocations = new ArrayList<>();
+        final List<Object[]> financial = new ArrayList<>();
+        final List<Object[]> rawPayments = new ArrayList<>();
+
+        Map<String, Integer> counts() {
+            Map<String, Integer> counts = new LinkedHashMap<>();
+            counts.put("customers", customers.size());
+            counts.put("blocks", blocks.size());
+            counts.put("properties", properties.size());
+            counts.put("customer_property_assignments", assignments.size());
+            counts.put("invoices", invoices.size());
+            counts.put("historical_transactions", historical.size());
+            counts.put("transaction_batch_allocations", allocations.size());
+            counts.put("financial_transactions", financial.size());
+            counts.put("payprop_report_all_payments", rawPayments.size());
+            return counts;
+        }
+    }
+
+    /**
+     * What generate() wrote
+     */
+    public static final class GeneratedPortfolio {
+        private final int propertyCount;
+        private final List<Long> ownerIds;
+        private final Map<String, Integer> rowCounts;
+        private final long generationMillis;
+
+        GeneratedPortfolio(int propertyCount, List<Long> ownerIds, Map<String, Integer> rowCounts, long generationMillis) {
+            this.propertyCount = propertyCount;
+            this.ownerIds = Collections.unmodifiableList(ownerIds);
+            this.rowCounts = Collections.unmodifiableMap(rowCounts);
+            this.generationMillis = generationMillis;
+        }
+
+        public int getPropertyCount() { return propertyCount; }
+        public List<Long> getOwnerIds() { return ownerIds; }
+        public Map<String, Integer> getRowCounts() { return rowCounts; }
+        public long getGenerationMillis() { return generationMillis; }
+    }
+}
@@ -0,0 +1,195 @@
+package site.easy.to.build.crm.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Service;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Pipeline Metrics
+ *
+ * Micrometer meters for the phases of the heavy pipelines (unified rebuild, PayProp raw import,
+ * statement extraction and sheet building), all tagged with pipeline, phase and outcome:
+ * - crm.pipeline.phase: timer per phase call (p50/p95/p99)
+ * - crm.pipeline.rows: rows produced per call
+ * - crm.pipeline.rows.per.second: throughput per call
+ * - crm.pipeline.allocated: bytes allocated by the calling thread during the call
+ *
+ * Exposed through the actuator metrics endpoint, e.g.
+ * /actuator/metrics/crm.pipeline.phase?tag=pipeline:rebuild&tag=phase:historical
+ *
+ * Allocated bytes only cover the calling thread, so work handed to other threads is not included.
+ */
+@Service
+public class PipelineMetrics {
+
+    public static final String PHASE_TIMER = "crm.pipeline.phase";
+    public static final String ROWS = "crm.pipeline.rows";
+    public static final String THROUGHPUT = "crm.pipeline.rows.per.second";
+    public static final String ALLOCATED = "crm.pipeline.allocated";
+
+    public static final String REBUILD = "rebuild";
+    public static final String PAYPROP_IMPORT = "payprop_import";
+    public static final String STATEMENT_EXTRACT = "statement_extract";
+    public static final String STATEMENT_SHEET = "statement_sheet";
+
+    private static final com.sun.management.ThreadMXBean THREAD_BEAN = allocationTrackingThreadBean();
+
+    private final MeterRegistry registry;
+
+    public PipelineMetrics(MeterRegistry registry) {
+        this.registry = registry;
+    }
+
+    /**
+     * Time a phase, counting its rows from the result.
+     */
+    public <T> T record(String pipeline, String phase, Supplier<T> action, ToLongFunction<? super T> rowCounter) {
+        return record(pipeline, phase, action, rowCounter, null);
+    }
+
+    /**
+     * Time a phase that reports failure in its result rather than by throwing:
+     * results failing the succeeded check are tagged as errors.
+     */
+    public <T> T record(String pipeline, String phase, Supplier<T> action, ToLongFunction<? super T> rowCounter,
+                        Predicate<? super T> succeeded) {
+        Phase sample = start(pipeline, phase);
+        T result;
+        try {
+            result = action.get();
+        } catch (RuntimeException | Error e) {
+            sample.failure();
+            throw e;
+        }
+        if (succeeded != null && !succeeded.test(result)) {
+            sample.failure();
+            return result;
+        }
+        sample.success(rowCounter != null && result != null ? rowCounter.applyAsLong(result) : -1);
+        return result;
+    }
+
+    public <T> T record(String pipeline, String phase, Supplier<T> action) {
+        return record(pipeline, phase, action, null);
+    }
+
+    public void run(String pipeline, String phase, Runnable action) {
+        record(pipeline, phase, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * Start timing a phase whose end is reported separately (e.g. around a proceeding join point).
+     */
+    public Phase start(String pipeline, String phase) {
+        return new Phase(pipeline, phase, System.nanoTime(), allocatedBytes());
+    }
+
+    /**
+     * A running phase: report exactly one of success() or failure().
+     */
+    public final class Phase {
+        private final String pipeline;
+        private final String phase;
+        private final long startNanos;
+        private final long startAllocated;
+
+        private Phase(String pipeline, String phase, long startNanos, long startAllocated) {
+            this.pipeline = pipeline;
+            this.phase = phase;
+            this.startNanos = startNanos;
+            this.startAllocated = startAllocated;
+        }
+
+        /**
+         * @param rows rows produced, or a negative number if the phase has no row count
+         */
+        public void success(long rows) {
+            stop("success", rows);
+        }
+
+        public void failure() {
+            stop("error", -1);
+        }
+
+        private void stop(String outcome, long rows) {
+            long elapsedNanos = System.nanoTime() - startNanos;
+            Tags tags = Tags.of("pipeline", pipeline, "phase", phase, "outcome", outcome);
+
+            Timer.builder(PHASE_TIMER)
+                .description("Duration of a pipeline phase")
+                .tags(tags)
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(elapsedNanos, TimeUnit.NANOSECONDS);
+
+            if (rows >= 0) {
+                DistributionSummary.builder(ROWS)
+                    .description("Rows produced by a pipeline phase")
+                    .baseUnit("rows")
+                    .tags(tags)
+                    .register(registry)
+                    .record(rows);
+                if (elapsedNanos > 0) {
+                    DistributionSummary.builder(THROUGHPUT)
+                        .description("Rows per second of a pipeline phase")
+                        .baseUnit("rows/s")
+                        .tags(tags)
+                        .register(registry)
+                        .record(rows * 1_000_000_000.0 / elapsedNanos);
+                }
+            }
+
+            long endAllocated = allocatedBytes();
+            if (startAllocated >= 0 && endAllocated >= startAllocated) {
+                DistributionSummary.builder(ALLOCATED)
+                    .description("Bytes allocated by the calling thread during a pipeline phase")
+                    .baseUnit("bytes")
+                    .tags(tags)
+                    .register(registry)
+                    .record(endAllocated - startAllocated);
+            }
+        }
+    }
+
+    /**
+     * Rows of a query result: collection or map size, otherwise one.
+     */
+    public static long rowsOf(Object result) {
+        if (result instanceof java.util.Collection) {
+            return ((java.util.Collection<?>) result).size();
+        }
+        if (result instanceof java.util.Map) {
+            return ((java.util.Map<?, ?>) result).size();
+        }
+        return result != null ? 1 : 0;
+    }
+
+    private static long allocatedBytes() {
+        return THREAD_BEAN != null ? THREAD_BEAN.getCurrentThreadAllocatedBytes() : -1;
+    }
+
+    private static com.sun.management.ThreadMXBean allocationTrackingThreadBean() {
+        try {
+            if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean) {
+                com.sun.management.ThreadMXBean bean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+                if (bean.isThreadAllocatedMemorySupported() && bean.isThreadAllocatedMemoryEnabled()) {
+                    return bean;
+                }
+            }
+        } catch (Throwable ignored) {
+            // Not a HotSpot-style JVM: no allocation metrics
+        }
+        return null;
+    }
+}
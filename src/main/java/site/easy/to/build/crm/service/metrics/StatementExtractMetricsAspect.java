@@ -0,0 +1,37 @@
+package site.easy.to.build.crm.service.metrics;
+
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times every public StatementDataExtractService.extract*() call as a statement_extract phase
+ * named after the method, with the size of the returned list/map as its rows.
+ *
+ * Calls between extract methods inside the service are not proxied, so nested queries are
+ * included in the outer call's timing.
+ */
+@Aspect
+@Component
+public class StatementExtractMetricsAspect {
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
+    @Around("execution(public * site.easy.to.build.crm.service.statement.StatementDataExtractService.extract*(..))")
+    public Object timeExtract(ProceedingJoinPoint joinPoint) throws Throwable {
+        PipelineMetrics.Phase phase = pipelineMetrics.start(PipelineMetrics.STATEMENT_EXTRACT,
+            joinPoint.getSignature().getName());
+        Object result;
+        try {
+            result = joinPoint.proceed();
+        } catch (Throwable e) {
+            phase.failure();
+            throw e;
+        }
+        phase.success(PipelineMetrics.rowsOf(result));
+        return result;
+    }
+}
@@ -15,14 +15,11 @@ import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.ss.util.CellRangeAddress;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
-import com.itextpdf.html2pdf.HtmlConverter;
-import com.itextpdf.html2pdf.ConverterProperties;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
-import com.itextpdf.kernel.geom.PageSize;
+import site.easy.to.build.crm.service.document.PdfRenderingService;
 
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigDecimal;
 import java.time.format.DateTimeFormatter;
 import java.util.*;
@@ -38,9 +35,14 @@ public class PaymentAdviceService {
 
     private static final Logger log = LoggerFactory.getLogger(PaymentAdviceService.class);
 
+    private static final String PDF_TEMPLATE = "payment-advice";
+
     @Autowired
     private PaymentBatchRepository paymentBatchRepository;
 
+    @Autowired
+    private PdfRenderingService pdfRenderingService;
+
     @Autowired
     private UnifiedAllocationRepository unifiedAllocationRepository;
 
@@ -776,7 +778,7 @@ public class PaymentAdviceService {
 
     /**
      * Export Payment Advice to PDF format.
-     * Generates a standalone HTML document and converts it to PDF using iText html2pdf.
+     * Renders the pdf/payment-advice template and converts it with the shared PdfRenderingService.
      *
      * @param batchId The payment batch ID
      * @return byte array containing the PDF file
@@ -786,15 +788,10 @@ public class PaymentAdviceService {
 
         PaymentAdviceDTO advice = generatePaymentAdvice(batchId);
 
-        // Generate HTML content
-        String htmlContent = generatePdfHtml(advice);
-
-        try (ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-            ConverterProperties properties = new ConverterProperties();
-            HtmlConverter.convertToPdf(htmlContent, outputStream, properties);
-
+        try {
+            byte[] pdf = pdfRenderingService.renderPdf(PDF_TEMPLATE, Map.of("advice", advice));
             log.info("PDF export complete for batch: {}", batchId);
-            return outputStream.toByteArray();
+            return pdf;
         } catch (Exception e) {
             log.error("Error generating PDF for batch {}: {}", batchId, e.getMessage(), e);
             throw new IOException("Failed to generate PDF: " + e.getMessage(), e);
@@ -802,129 +799,23 @@ public class PaymentAdviceService {
     }
 
     /**
-     * Generate standalone HTML for PDF conversion.
-     * This creates a lightweight HTML document optimized for PDF conversion.
-     * Avoids CSS gradients and complex styling to reduce memory usage.
+     * Export many Payment Advices as one ZIP of PDFs (e.g. a month-end run over every batch).
+     * Advices are built in order while PDFs are converted in parallel on the rendering pool.
+     *
+     * @param batchIds The payment batch IDs
+     * @param out Stream the ZIP is written to
+     * @return number of PDFs written
      */
-    private String generatePdfHtml(PaymentAdviceDTO advice) {
-        StringBuilder html = new StringBuilder();
-
-        html.append("<!DOCTYPE html><html><head><meta charset=\"UTF-8\"/><style>");
-        // Simplified CSS - no gradients, minimal styling
-        html.append("body{font-family:Helvetica,Arial,sans-serif;font-size:10pt;margin:15px;color:#333}");
-        html.append(".header{background:#5a67d8;color:#fff;padding:15px;margin-bottom:15px}");
-        html.append(".header h1{margin:0 0 8px 0;font-size:18pt}");
-        html.append(".header-table{width:100%}.header-table td{vertical-align:top;padding:3px}");
-        html.append(".property{border:1px solid #ccc;margin-bottom:12px;page-break-inside:avoid}");
-        html.append(".property-title{background:#eee;padding:8px;font-weight:bold;font-size:11pt;border-bottom:1px solid #ccc}");
-        html.append(".section-head{padding:6px 8px;font-weight:bold;font-size:9pt}");
-        html.append(".receipts-head{background:#d4edda;color:#155724}");
-        html.append(".expenses-head{background:#f8d7da;color:#721c24}");
-        html.append("table{width:100%;border-collapse:collapse;font-size:9pt}");
-        html.append("th{background:#f5f5f5;padding:5px;text-align:left;border-bottom:1px solid #ddd}");
-        html.append("td{padding:5px;border-bottom:1px solid #eee}");
-        html.append(".r{text-align:right}.g{color:#155724}.rd{color:#721c24}.b{font-weight:bold}");
-        html.append(".receipt-row{background:#f0fff0}.expense-row{background:#fff5f5}");
-        html.append(".total-g{background:#c3e6cb}.total-r{background:#f5c6cb}.total-b{background:#cce5ff}");
-        html.append(".summary{background:#28a745;color:#fff;padding:15px;margin-top:15px}");
-        html.append(".summary h2{margin:0 0 10px 0;font-size:14pt}");
-        html.append(".summary table{font-size:10pt}.summary td{padding:4px;border:none;color:#fff}");
-        html.append(".big{font-size:20pt;font-weight:bold;text-align:right}");
-        html.append(".footer{text-align:center;margin-top:15px;font-size:8pt;color:#666}");
-        html.append("</style></head><body>");
-
-        // Header using table layout (more reliable for PDF)
-        html.append("<div class=\"header\"><h1>PAYMENT ADVICE</h1>");
-        html.append("<table class=\"header-table\"><tr><td width=\"50%\">");
-        html.append("<b>To:</b><br/>").append(escapeHtml(advice.getOwnerName() != null ? advice.getOwnerName() : ""));
-        if (advice.getOwnerAddress() != null) html.append("<br/>").append(escapeHtml(advice.getOwnerAddress()));
-        if (advice.getOwnerEmail() != null) html.append("<br/>").append(escapeHtml(advice.getOwnerEmail()));
-        html.append("</td><td width=\"50%\" style=\"text-align:right\">");
-        html.append("<b>From:</b> ").append(escapeHtml(advice.getAgencyName())).append("<br/>");
-        html.append("<b>Date:</b> ").append(advice.getAdviceDate() != null ? advice.getAdviceDate().format(DateTimeFormatter.ofPattern("dd MMM yyyy")) : "").append("<br/>");
-        html.append("<b>Ref:</b> ").append(escapeHtml(advice.getBatchReference())).append("<br/>");
-        html.append("<b>Status:</b> ").append(escapeHtml(advice.getStatus()));
-        html.append("</td></tr></table></div>");
-
-        // Property breakdowns
-        for (PropertyBreakdownDTO property : advice.getProperties()) {
-            html.append("<div class=\"property\">");
-            html.append("<div class=\"property-title\">").append(escapeHtml(property.getPropertyName() != null ? property.getPropertyName() : "Unknown Property")).append("</div>");
-
-            // Receipts
-            if (!property.getReceipts().isEmpty()) {
-                html.append("<div class=\"section-head receipts-head\">Receipts (Rent Received)</div>");
-                html.append("<table><tr><th>Tenant</th><th>Date</th><th class=\"r\">Gross</th><th class=\"r\">Commission</th><th class=\"r\">Net</th></tr>");
-                for (ReceiptLineDTO receipt : property.getReceipts()) {
-                    html.append("<tr class=\"receipt-row\"><td>").append(escapeHtml(receipt.getTenantName() != null ? receipt.getTenantName() : "")).append("</td>");
-                    html.append("<td>").append(receipt.getPaymentDate() != null ? receipt.getPaymentDate().format(DateTimeFormatter.ofPattern("dd/MM/yy")) : "").append("</td>");
-                    html.append("<td class=\"r\">").append(formatCurrency(receipt.getGrossAmount())).append("</td>");
-                    html.append("<td class=\"r rd\">").append(formatCurrency(receipt.getCommissionAmount())).append("</td>");
-                    html.append("<td class=\"r g b\">").append(formatCurrency(receipt.getNetAmount())).append("</td></tr>");
-                }
-                html.append("<tr class=\"total-g\"><td colspan=\"2\" class=\"b\">Total Receipts</td>");
-                html.append("<td class=\"r b\">").append(formatCurrency(property.getTotalGrossReceipts())).append("</td>");
-                html.append("<td class=\"r b\">").append(formatCurrency(property.getTotalCommission())).append("</td>");
-                html.append("<td class=\"r b\">").append(formatCurrency(property.getTotalNetReceipts())).append("</td></tr></table>");
-            }
+    public int exportToPdfZip(List<String> batchIds, OutputStream out) throws IOException {
+        log.info("Exporting {} Payment Advices to PDF ZIP", batchIds.size());
 
-            // Deductions
-            if (!property.getDeductions().isEmpty()) {
-                html.append("<div class=\"section-head expenses-head\">Expenses &amp; Disbursements</div>");
-                html.append("<table><tr><th>Type</th><th>Date</th><th>Description</th><th class=\"r\">Amount</th></tr>");
-                for (DeductionLineDTO deduction : property.getDeductions()) {
-                    boolean isReversal = deduction.getGrossAmount() != null && deduction.getGrossAmount().compareTo(BigDecimal.ZERO) < 0;
-                    html.append("<tr class=\"").append(isReversal ? "receipt-row" : "expense-row").append("\">");
-                    html.append("<td>").append(escapeHtml(deduction.getType() != null ? deduction.getType() : "")).append("</td>");
-                    html.append("<td>").append(deduction.getTransactionDate() != null ? deduction.getTransactionDate().format(DateTimeFormatter.ofPattern("dd/MM/yy")) : "").append("</td>");
-                    html.append("<td>").append(escapeHtml(deduction.getDescription() != null ? deduction.getDescription() : "")).append("</td>");
-                    html.append("<td class=\"r ").append(isReversal ? "g" : "rd").append(" b\">").append(formatCurrency(deduction.getGrossAmount())).append("</td></tr>");
-                }
-                html.append("<tr class=\"total-r\"><td colspan=\"3\" class=\"b\">Total Expenses</td>");
-                html.append("<td class=\"r b\">").append(formatCurrency(property.getTotalDeductions())).append("</td></tr></table>");
-            }
+        List<PdfRenderingService.PdfJob> jobs = batchIds.stream()
+            .map(batchId -> new PdfRenderingService.PdfJob(
+                "PaymentAdvice_" + batchId + ".pdf",
+                PDF_TEMPLATE,
+                () -> Map.of("advice", generatePaymentAdvice(batchId))))
+            .collect(Collectors.toList());
 
-            // Property balance
-            html.append("<table><tr class=\"total-b\"><td colspan=\"3\" class=\"b\">Property Balance</td>");
-            html.append("<td class=\"r b ").append(property.getBalance().compareTo(BigDecimal.ZERO) >= 0 ? "g" : "rd").append("\">");
-            html.append(formatCurrency(property.getBalance())).append("</td></tr></table>");
-            html.append("</div>");
-        }
-
-        // Settlement summary
-        html.append("<div class=\"summary\"><h2>Settlement Summary</h2>");
-        html.append("<table><tr><td>Gross Income:</td><td class=\"r\">").append(formatCurrency(advice.getTotalGrossReceipts())).append("</td></tr>");
-        html.append("<tr><td>Less Commission:</td><td class=\"r\">(").append(formatCurrency(advice.getTotalCommission())).append(")</td></tr>");
-        html.append("<tr><td>Less Expenses:</td><td class=\"r\">(").append(formatCurrency(advice.getTotalExpenses())).append(")</td></tr>");
-        html.append("<tr style=\"border-top:1px solid #fff\"><td class=\"b\">Net to Owner:</td><td class=\"r b\">").append(formatCurrency(advice.getTotalBalance())).append("</td></tr></table>");
-        html.append("<div class=\"big\">Amount Settled: ").append(formatCurrency(advice.getAmountSettled())).append("</div>");
-        if (advice.getPaymentMethod() != null) html.append("<div style=\"text-align:right;font-size:9pt\">via ").append(escapeHtml(advice.getPaymentMethod())).append("</div>");
-        html.append("</div>");
-
-        // Footer
-        html.append("<div class=\"footer\">Generated by ").append(escapeHtml(advice.getAgencyName())).append("</div>");
-        html.append("</body></html>");
-
-        return html.toString();
-    }
-
-    /**
-     * Escape HTML special characters for safe output.
-     */
-    private String escapeHtml(String text) {
-        if (text == null) return "";
-        return text.replace("&", "&amp;")
-                   .replace("<", "&lt;")
-                   .replace(">", "&gt;")
-                   .replace("\"", "&quot;")
-                   .replace("'", "&#39;");
-    }
-
-    /**
-     * Format a BigDecimal as GBP currency.
-     */
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) return "£0.00";
-        return String.format("£%,.2f", amount);
+        return pdfRenderingService.renderZip(jobs, out);
     }
 }
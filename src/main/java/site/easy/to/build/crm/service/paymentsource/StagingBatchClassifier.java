@@ -0,0 +1,206 @@
+package site.easy.to.build.crm.service.paymentsource;
+
+import site.easy.to.build.crm.entity.TransactionImportStaging;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Classifies every row of a staging batch in one pass.
+ *
+ * Rows are taken in line order and checked, first match wins:
+ *
+ * - DUPLICATE: an earlier row of the batch has the same payment source, date, amount and property
+ * - DUPLICATE: an active historical transaction of the same payment source has the same date and
+ *   amount, and the same property when the row has one (duplicateOf is the oldest such transaction)
+ * - AMBIGUOUS_PROPERTY: no property was matched
+ * - AMBIGUOUS_CUSTOMER: no customer was matched and the property had more than one tenant on the date
+ * - PENDING_REVIEW otherwise
+ *
+ * Rows a reviewer has decided on (APPROVED, REJECTED) or that are already IMPORTED keep their
+ * status, but still count as earlier rows for duplicates.
+ */
+public final class StagingBatchClassifier {
+
+    private static final Set<String> RECLASSIFIABLE = Set.of(
+        TransactionImportStaging.STATUS_PENDING_REVIEW,
+        TransactionImportStaging.STATUS_DUPLICATE,
+        TransactionImportStaging.STATUS_AMBIGUOUS_PROPERTY,
+        TransactionImportStaging.STATUS_AMBIGUOUS_CUSTOMER);
+
+    // Existing historical transactions by payment source, date and amount
+    private final Map<List<Object>, List<Existing>> existingByKey = new HashMap<>();
+    // Tenancies by property id
+    private final Map<Long, List<Tenancy>> tenanciesByProperty = new HashMap<>();
+
+    public StagingBatchClassifier(Collection<Existing> existing, Collection<Tenancy> tenancies) {
+        for (Existing transaction : existing) {
+            existingByKey.computeIfAbsent(
+                    key(transaction.paymentSourceId, transaction.transactionDate, transaction.amount),
+                    k -> new ArrayList<>())
+                .add(transaction);
+        }
+        existingByKey.values().forEach(list -> list.sort(Comparator.comparing(e -> e.id)));
+        for (Tenancy tenancy : tenancies) {
+            tenanciesByProperty.computeIfAbsent(tenancy.propertyId, p -> new ArrayList<>()).add(tenancy);
+        }
+    }
+
+    /**
+     * Classify the rows of one batch. Only rows whose classification changes are returned.
+     */
+    public Map<Long, Result> classify(List<Row> rows) {
+        List<Row> ordered = new ArrayList<>(rows);
+        ordered.sort(Comparator.comparing((Row r) -> r.lineNumber, Comparator.nullsLast(Comparator.naturalOrder()))
+            .thenComparing(r -> r.id));
+
+        Map<Long, Result> changes = new LinkedHashMap<>();
+        Set<List<Object>> seen = new HashSet<>();
+        for (Row row : ordered) {
+            boolean repeated = row.transactionDate != null && row.amount != null
+                && !seen.add(Arrays.asList(row.paymentSourceId, row.transactionDate, normalize(row.amount), row.propertyId));
+
+            String current = row.status == null ? TransactionImportStaging.STATUS_PENDING_REVIEW : row.status;
+            if (!RECLASSIFIABLE.contains(current)) {
+                continue;
+            }
+
+            Result result;
+            Long duplicateOf = repeated ? null : findExisting(row);
+            if (repeated || duplicateOf != null) {
+                result = new Result(TransactionImportStaging.STATUS_DUPLICATE, true, duplicateOf);
+            } else if (row.propertyId == null) {
+                result = new Result(TransactionImportStaging.STATUS_AMBIGUOUS_PROPERTY, false, null);
+            } else if (row.customerId == null && tenantsOn(row.propertyId, row.transactionDate) > 1) {
+                result = new Result(TransactionImportStaging.STATUS_AMBIGUOUS_CUSTOMER, false, null);
+            } else {
+                result = new Result(TransactionImportStaging.STATUS_PENDING_REVIEW, false, null);
+            }
+
+            if (!result.status.equals(row.status) || result.duplicate != row.duplicate
+                    || !Objects.equals(result.duplicateOf, row.duplicateOf)) {
+                changes.put(row.id, result);
+            }
+        }
+        return changes;
+    }
+
+    private Long findExisting(Row row) {
+        if (row.paymentSourceId == null || row.transactionDate == null || row.amount == null) {
+            return null;
+        }
+        List<Existing> candidates = existingByKey.get(key(row.paymentSourceId, row.transactionDate, row.amount));
+        if (candidates == null) {
+            return null;
+        }
+        for (Existing candidate : candidates) {
+            if (row.propertyId == null || row.propertyId.equals(candidate.propertyId)) {
+                return candidate.id;
+            }
+        }
+        return null;
+    }
+
+    private long tenantsOn(Long propertyId, LocalDate date) {
+        return tenanciesByProperty.getOrDefault(propertyId, List.of()).stream()
+            .filter(t -> date == null || t.covers(date))
+            .map(t -> t.customerId)
+            .distinct()
+            .count();
+    }
+
+    private static List<Object> key(Long paymentSourceId, LocalDate date, BigDecimal amount) {
+        return Arrays.asList(paymentSourceId, date, normalize(amount));
+    }
+
+    private static BigDecimal normalize(BigDecimal amount) {
+        return amount == null ? null : amount.stripTrailingZeros();
+    }
+
+    /**
+     * A staged row, as stored.
+     */
+    public static final class Row {
+        final Long id;
+        final Integer lineNumber;
+        final Long paymentSourceId;
+        final LocalDate transactionDate;
+        final BigDecimal amount;
+        final Long propertyId;
+        final Long customerId;
+        final String status;
+        final boolean duplicate;
+        final Long duplicateOf;
+
+        public Row(Long id, Integer lineNumber, Long paymentSourceId, LocalDate transactionDate, BigDecimal amount,
+                   Long propertyId, Long customerId, String status, boolean duplicate, Long duplicateOf) {
+            this.id = id;
+            this.lineNumber = lineNumber;
+            this.paymentSourceId = paymentSourceId;
+            this.transactionDate = transactionDate;
+            this.amount = amount;
+            this.propertyId = propertyId;
+            this.customerId = customerId;
+            this.status = status;
+            this.duplicate = duplicate;
+            this.duplicateOf = duplicateOf;
+        }
+    }
+
+    /**
+     * An active historical transaction that staged rows may duplicate.
+     */
+    public static final class Existing {
+        final Long id;
+        final Long paymentSourceId;
+        final LocalDate transactionDate;
+        final BigDecimal amount;
+        final Long propertyId;
+
+        public Existing(Long id, Long paymentSourceId, LocalDate transactionDate, BigDecimal amount, Long propertyId) {
+            this.id = id;
+            this.paymentSourceId = paymentSourceId;
+            this.transactionDate = transactionDate;
+            this.amount = amount;
+            this.propertyId = propertyId;
+        }
+    }
+
+    /**
+     * A tenant assignment of a property; open-ended when the dates are null.
+     */
+    public static final class Tenancy {
+        final Long propertyId;
+        final Long customerId;
+        final LocalDate startDate;
+        final LocalDate endDate;
+
+        public Tenancy(Long propertyId, Long customerId, LocalDate startDate, LocalDate endDate) {
+            this.propertyId = propertyId;
+            this.customerId = customerId;
+            this.startDate = startDate;
+            this.endDate = endDate;
+        }
+
+        boolean covers(LocalDate date) {
+            return (startDate == null || !date.isBefore(startDate)) && (endDate == null || !date.isAfter(endDate));
+        }
+    }
+
+    public static final class Result {
+        private final String status;
+        private final boolean duplicate;
+        private final Long duplicateOf;
+
+        Result(String status, boolean duplicate, Long duplicateOf) {
+            this.status = status;
+            this.duplicate = duplicate;
+            this.duplicateOf = duplicateOf;
+        }
+
+        public String getStatus() { return status; }
+        public boolean isDuplicate() { return duplicate; }
+        public Long getDuplicateOf() { return duplicateOf; }
+    }
+}
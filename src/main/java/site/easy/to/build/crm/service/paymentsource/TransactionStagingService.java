@@ -3,19 +3,29 @@ package site.easy.to.build.crm.service.paymentsource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import site.easy.to.build.crm.entity.*;
 import site.easy.to.build.crm.repository.TransactionImportStagingRepository;
+import site.easy.to.build.crm.repository.TransactionStagingBatchRepository;
 import site.easy.to.build.crm.repository.HistoricalTransactionRepository;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
 import java.util.stream.Collectors;
 
 /**
  * Service for managing transaction import staging and batch accumulation
+ *
+ * Review works on whole batches with set-based SQL:
+ * - classifyBatch flags duplicates and ambiguous rows for the batch in one pass (StagingBatchClassifier)
+ * - batchApprove/batchReject change status with one UPDATE per chunk of ids
+ * - promoteApprovedTransactions copies approved rows into historical_transactions with one INSERT ... SELECT
+ * - status counters live in transaction_import_staging_batches and move with every status change,
+ *   so getBatchSummary does not count the batch
  */
 @Service
 public class TransactionStagingService {
@@ -28,13 +38,65 @@ public class TransactionStagingService {
     @Autowired
     private HistoricalTransactionRepository historicalTransactionRepository;
 
+    @Autowired
+    private TransactionStagingBatchRepository batchRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private static final int ID_CHUNK_SIZE = 1000;
+
+    // Staged transaction_type to historical_transactions.transaction_type, as HistoricalTransactionImportService maps it
+    private static final String TRANSACTION_TYPE_SQL =
+        "CASE " +
+        "WHEN t.tt LIKE '%maintenance%' OR t.tt LIKE '%repair%' OR t.tt LIKE '%contractor%' " +
+        "  OR t.tt LIKE '%upkeep%' OR t.tt LIKE '%expense%' " +
+        "  OR t.tt IN ('cost', 'expenditure', 'service_payment') THEN 'expense' " +
+        "WHEN t.tt IN ('management_fee', 'commission', 'service_fee') THEN 'fee' " +
+        "WHEN t.tt IN ('rent', 'rental', 'rental_payment', 'parking', 'owner_payment', 'payment_to_beneficiary') THEN 'payment' " +
+        "WHEN t.tt IN ('payment', 'invoice', 'deposit', 'withdrawal', 'transfer', 'fee', 'refund', 'adjustment') THEN t.tt " +
+        "WHEN t.amount < 0 THEN 'expense' " +
+        "ELSE 'payment' END";
+
+    private static final String PROMOTE_SQL =
+        "INSERT INTO historical_transactions (transaction_date, amount, description, transaction_type, category, " +
+        "  source, payment_source_id, property_id, customer_id, import_batch_id, import_staging_id, " +
+        "  bank_reference, payment_method, notes, reconciled, tax_relevant, vat_applicable, validated, status, " +
+        "  created_by_user_id, created_at, updated_at) " +
+        "SELECT t.transaction_date, t.amount, t.description_or_default, " + TRANSACTION_TYPE_SQL + ", t.category, " +
+        "  'historical_import', t.payment_source_id, t.property_id, t.customer_id, t.batch_id, t.id, " +
+        "  LEFT(t.bank_reference, 100), LEFT(t.payment_method, 50), t.notes, FALSE, FALSE, FALSE, FALSE, 'active', " +
+        "  ?, NOW(), NOW() " +
+        "FROM (SELECT s.*, LOWER(TRIM(COALESCE(s.transaction_type, ''))) AS tt, " +
+        "             COALESCE(NULLIF(TRIM(s.description), ''), 'Imported transaction') AS description_or_default " +
+        "      FROM transaction_import_staging s " +
+        "      WHERE s.batch_id = ? AND s.status = 'APPROVED' " +
+        "        AND s.transaction_date IS NOT NULL AND s.amount IS NOT NULL " +
+        "        AND NOT EXISTS (SELECT 1 FROM historical_transactions h WHERE h.import_staging_id = s.id)) t " +
+        "ORDER BY t.line_number, t.id";
+
     /**
      * Save a transaction to staging for review
      */
     @Transactional
     public TransactionImportStaging saveStagingTransaction(TransactionImportStaging staging) {
         log.debug("Saving staging transaction for batch: {}", staging.getBatchId());
-        return stagingRepository.save(staging);
+        TransactionImportStaging saved = stagingRepository.save(staging);
+        addRecords(saved.getBatchId(), saved.getStatus(), 1);
+        return saved;
+    }
+
+    /**
+     * Save many staged transactions (e.g. one pasted statement), updating counters once per status
+     */
+    @Transactional
+    public List<TransactionImportStaging> saveStagingTransactions(List<TransactionImportStaging> stagings) {
+        List<TransactionImportStaging> saved = stagingRepository.saveAll(stagings);
+        saved.stream()
+            .collect(Collectors.groupingBy(t -> Arrays.asList(t.getBatchId(), t.getStatus()), Collectors.counting()))
+            .forEach((key, count) -> addRecords(key.get(0), key.get(1), count));
+        log.debug("Saved {} staging transactions", saved.size());
+        return saved;
     }
 
     /**
@@ -66,30 +128,111 @@ public class TransactionStagingService {
     }
 
     /**
-     * Get batch summary statistics
+     * Get batch summary statistics from the batch counters
      */
     public BatchSummary getBatchSummary(String batchId) {
-        List<Object[]> statusCounts = stagingRepository.getBatchStatusSummary(batchId);
+        TransactionStagingBatch counters = batchRepository.findById(batchId).orElse(null);
+        if (counters == null) {
+            // Batch staged before counters existed
+            rebuildCounters(batchId);
+            counters = batchRepository.findById(batchId).orElseGet(TransactionStagingBatch::new);
+        }
 
         BatchSummary summary = new BatchSummary();
         summary.setBatchId(batchId);
-        summary.setTotalRecords(stagingRepository.countByBatchId(batchId));
+        summary.setTotalRecords(counters.getTotalRecords());
+        summary.setPendingReview(counters.getPendingReview());
+        summary.setApproved(counters.getApproved());
+        summary.setRejected(counters.getRejected());
+        summary.setAmbiguousProperty(counters.getAmbiguousProperty());
+        summary.setAmbiguousCustomer(counters.getAmbiguousCustomer());
+        summary.setDuplicates(counters.getDuplicates());
+        summary.setImported(counters.getImported());
 
-        Map<String, Long> statusMap = new HashMap<>();
-        for (Object[] row : statusCounts) {
-            String status = (String) row[0];
-            Long count = (Long) row[1];
-            statusMap.put(status, count);
-        }
+        return summary;
+    }
+
+    /**
+     * Classify a whole batch: duplicates within the batch, duplicates of existing historical
+     * transactions, and rows with an ambiguous property or customer. Reads the batch, the
+     * candidate historical transactions and the tenancies with one query each, and writes only
+     * the rows whose classification changed.
+     */
+    @Transactional
+    public BatchSummary classifyBatch(String batchId) {
+        long started = System.currentTimeMillis();
+
+        List<StagingBatchClassifier.Row> rows = jdbcTemplate.query(
+            "SELECT id, line_number, payment_source_id, transaction_date, amount, property_id, customer_id, " +
+            "       status, is_duplicate, duplicate_of_transaction_id " +
+            "FROM transaction_import_staging WHERE batch_id = ?",
+            (rs, rowNum) -> new StagingBatchClassifier.Row(
+                rs.getLong("id"),
+                rs.getObject("line_number", Integer.class),
+                rs.getObject("payment_source_id", Long.class),
+                rs.getObject("transaction_date", LocalDate.class),
+                rs.getBigDecimal("amount"),
+                rs.getObject("property_id", Long.class),
+                rs.getObject("customer_id", Long.class),
+                rs.getString("status"),
+                rs.getBoolean("is_duplicate"),
+                rs.getObject("duplicate_of_transaction_id", Long.class)),
+            batchId);
+
+        StagingBatchClassifier classifier = new StagingBatchClassifier(
+            loadExistingCandidates(batchId), loadTenancies(batchId));
+        Map<Long, StagingBatchClassifier.Result> changes = classifier.classify(rows);
+
+        List<Object[]> updates = changes.entrySet().stream()
+            .map(e -> new Object[] {
+                e.getValue().getStatus(), e.getValue().isDuplicate(), e.getValue().getDuplicateOf(), e.getKey() })
+            .collect(Collectors.toList());
+        jdbcTemplate.batchUpdate(
+            "UPDATE transaction_import_staging SET status = ?, is_duplicate = ?, duplicate_of_transaction_id = ? WHERE id = ?",
+            updates);
+
+        rebuildCounters(batchId);
+        jdbcTemplate.update("UPDATE transaction_import_staging_batches SET classified_at = ? WHERE batch_id = ?",
+            LocalDateTime.now(), batchId);
+
+        log.info("Classified staging batch {}: {} rows, {} changed in {}ms",
+            batchId, rows.size(), changes.size(), System.currentTimeMillis() - started);
+        return getBatchSummary(batchId);
+    }
 
-        summary.setPendingReview(statusMap.getOrDefault("PENDING_REVIEW", 0L));
-        summary.setApproved(statusMap.getOrDefault("APPROVED", 0L));
-        summary.setRejected(statusMap.getOrDefault("REJECTED", 0L));
-        summary.setAmbiguousProperty(statusMap.getOrDefault("AMBIGUOUS_PROPERTY", 0L));
-        summary.setAmbiguousCustomer(statusMap.getOrDefault("AMBIGUOUS_CUSTOMER", 0L));
-        summary.setDuplicates(stagingRepository.countByBatchIdAndStatus(batchId, "DUPLICATE"));
+    private List<StagingBatchClassifier.Existing> loadExistingCandidates(String batchId) {
+        return jdbcTemplate.query(
+            "SELECT h.id, h.payment_source_id, h.transaction_date, h.amount, h.property_id " +
+            "FROM historical_transactions h " +
+            "JOIN (SELECT payment_source_id, MIN(transaction_date) AS first_date, MAX(transaction_date) AS last_date " +
+            "      FROM transaction_import_staging WHERE batch_id = ? AND payment_source_id IS NOT NULL " +
+            "      GROUP BY payment_source_id) b " +
+            "  ON b.payment_source_id = h.payment_source_id " +
+            " AND h.transaction_date BETWEEN b.first_date AND b.last_date " +
+            "WHERE h.status = 'active' " +
+            "  AND (h.import_batch_id IS NULL OR h.import_batch_id <> ?)",
+            (rs, rowNum) -> new StagingBatchClassifier.Existing(
+                rs.getLong("id"),
+                rs.getLong("payment_source_id"),
+                rs.getObject("transaction_date", LocalDate.class),
+                rs.getBigDecimal("amount"),
+                rs.getObject("property_id", Long.class)),
+            batchId, batchId);
+    }
 
-        return summary;
+    private List<StagingBatchClassifier.Tenancy> loadTenancies(String batchId) {
+        return jdbcTemplate.query(
+            "SELECT cpa.property_id, cpa.customer_id, cpa.start_date, cpa.end_date " +
+            "FROM customer_property_assignments cpa " +
+            "WHERE cpa.assignment_type = 'TENANT' AND cpa.property_id IN " +
+            "  (SELECT DISTINCT property_id FROM transaction_import_staging " +
+            "   WHERE batch_id = ? AND property_id IS NOT NULL AND customer_id IS NULL)",
+            (rs, rowNum) -> new StagingBatchClassifier.Tenancy(
+                rs.getLong("property_id"),
+                rs.getLong("customer_id"),
+                rs.getObject("start_date", LocalDate.class),
+                rs.getObject("end_date", LocalDate.class)),
+            batchId);
     }
 
     /**
@@ -128,11 +271,13 @@ public class TransactionStagingService {
         TransactionImportStaging staging = stagingRepository.findById(stagingId)
                 .orElseThrow(() -> new IllegalArgumentException("Staging transaction not found: " + stagingId));
 
+        String previousStatus = staging.getStatus();
         staging.setIsDuplicate(true);
         staging.setDuplicateOfTransactionId(duplicateOfTransactionId);
-        staging.setStatus("DUPLICATE");
+        staging.setStatus(TransactionImportStaging.STATUS_DUPLICATE);
 
         stagingRepository.save(staging);
+        moveCounters(staging.getBatchId(), previousStatus, TransactionImportStaging.STATUS_DUPLICATE, 1);
         log.info("Marked staging transaction {} as duplicate of {}", stagingId, duplicateOfTransactionId);
     }
 
@@ -144,8 +289,10 @@ public class TransactionStagingService {
         TransactionImportStaging staging = stagingRepository.findById(stagingId)
                 .orElseThrow(() -> new IllegalArgumentException("Staging transaction not found: " + stagingId));
 
+        String previousStatus = staging.getStatus();
         staging.setStatus(status);
         stagingRepository.save(staging);
+        moveCounters(staging.getBatchId(), previousStatus, status, 1);
         log.debug("Updated staging transaction {} status to {}", stagingId, status);
     }
 
@@ -154,7 +301,7 @@ public class TransactionStagingService {
      */
     @Transactional
     public void approveStagingTransaction(Long stagingId) {
-        updateStatus(stagingId, "APPROVED");
+        updateStatus(stagingId, TransactionImportStaging.STATUS_APPROVED);
     }
 
     /**
@@ -162,7 +309,7 @@ public class TransactionStagingService {
      */
     @Transactional
     public void rejectStagingTransaction(Long stagingId) {
-        updateStatus(stagingId, "REJECTED");
+        updateStatus(stagingId, TransactionImportStaging.STATUS_REJECTED);
     }
 
     /**
@@ -172,6 +319,7 @@ public class TransactionStagingService {
     public void deleteBatch(String batchId) {
         log.info("Deleting staging batch: {}", batchId);
         stagingRepository.deleteByBatchId(batchId);
+        batchRepository.deleteById(batchId);
     }
 
     /**
@@ -180,46 +328,199 @@ public class TransactionStagingService {
     @Transactional
     public void deleteStagingTransaction(Long stagingId) {
         log.debug("Deleting staging transaction: {}", stagingId);
-        stagingRepository.deleteById(stagingId);
+        stagingRepository.findById(stagingId).ifPresent(staging -> {
+            stagingRepository.delete(staging);
+            addRecords(staging.getBatchId(), staging.getStatus(), -1);
+        });
     }
 
     /**
      * Batch approve multiple staging transactions
+     *
+     * @return number of rows whose status changed
      */
     @Transactional
-    public void batchApprove(List<Long> stagingIds) {
+    public int batchApprove(List<Long> stagingIds) {
         log.info("Batch approving {} staging transactions", stagingIds.size());
-
-        for (Long stagingId : stagingIds) {
-            try {
-                approveStagingTransaction(stagingId);
-            } catch (Exception e) {
-                log.error("Failed to approve staging transaction {}: {}", stagingId, e.getMessage());
-            }
-        }
+        return bulkUpdateStatus(stagingIds, TransactionImportStaging.STATUS_APPROVED);
     }
 
     /**
      * Batch reject multiple staging transactions
+     *
+     * @return number of rows whose status changed
      */
     @Transactional
-    public void batchReject(List<Long> stagingIds) {
+    public int batchReject(List<Long> stagingIds) {
         log.info("Batch rejecting {} staging transactions", stagingIds.size());
+        return bulkUpdateStatus(stagingIds, TransactionImportStaging.STATUS_REJECTED);
+    }
 
-        for (Long stagingId : stagingIds) {
-            try {
-                rejectStagingTransaction(stagingId);
-            } catch (Exception e) {
-                log.error("Failed to reject staging transaction {}: {}", stagingId, e.getMessage());
+    /**
+     * Move rows to a status with one UPDATE per chunk of ids. Imported rows are never changed.
+     * The rows that will move are counted per batch and previous status first, and the batch
+     * counters are adjusted by those counts.
+     */
+    private int bulkUpdateStatus(List<Long> stagingIds, String status) {
+        int changed = 0;
+        List<Long> ids = stagingIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+        for (int from = 0; from < ids.size(); from += ID_CHUNK_SIZE) {
+            List<Long> chunk = ids.subList(from, Math.min(from + ID_CHUNK_SIZE, ids.size()));
+            String idList = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            String movable = "WHERE id IN (" + idList + ") AND (status IS NULL OR status NOT IN (?, ?))";
+
+            List<Object> args = new ArrayList<>(chunk);
+            args.add(status);
+            args.add(TransactionImportStaging.STATUS_IMPORTED);
+
+            List<Object[]> moves = jdbcTemplate.query(
+                "SELECT batch_id, status, COUNT(*) AS moved FROM transaction_import_staging " + movable +
+                " GROUP BY batch_id, status FOR UPDATE",
+                (rs, rowNum) -> new Object[] { rs.getString("batch_id"), rs.getString("status"), rs.getLong("moved") },
+                args.toArray());
+
+            List<Object> updateArgs = new ArrayList<>();
+            updateArgs.add(status);
+            updateArgs.addAll(args);
+            changed += jdbcTemplate.update(
+                "UPDATE transaction_import_staging SET status = ? " + movable, updateArgs.toArray());
+
+            for (Object[] move : moves) {
+                moveCounters((String) move[0], (String) move[1], status, (Long) move[2]);
             }
         }
+        log.info("Moved {} of {} staging transactions to {}", changed, stagingIds.size(), status);
+        return changed;
+    }
+
+    /**
+     * Copy every approved row of a batch into historical_transactions with a single
+     * INSERT ... SELECT, then mark those rows IMPORTED. Rows already promoted are skipped,
+     * so running it again only adds rows approved since.
+     *
+     * @return number of historical transactions created
+     */
+    @Transactional
+    public int promoteApprovedTransactions(String batchId, Integer createdByUserId) {
+        if (createdByUserId == null) {
+            throw new IllegalArgumentException("A user is required to promote staged transactions");
+        }
+        long started = System.currentTimeMillis();
+
+        int inserted = jdbcTemplate.update(PROMOTE_SQL, createdByUserId, batchId);
+        int marked = jdbcTemplate.update(
+            "UPDATE transaction_import_staging s " +
+            "JOIN historical_transactions h ON h.import_staging_id = s.id " +
+            "SET s.status = ? WHERE s.batch_id = ? AND s.status = ?",
+            TransactionImportStaging.STATUS_IMPORTED, batchId, TransactionImportStaging.STATUS_APPROVED);
+        moveCounters(batchId, TransactionImportStaging.STATUS_APPROVED, TransactionImportStaging.STATUS_IMPORTED, marked);
+
+        log.info("Promoted staging batch {}: {} historical transactions created, {} rows marked imported in {}ms",
+            batchId, inserted, marked, System.currentTimeMillis() - started);
+        return inserted;
     }
 
     /**
      * Get all approved staging transactions ready for import
      */
     public List<TransactionImportStaging> getApprovedTransactions(String batchId) {
-        return stagingRepository.findByBatchIdAndStatusOrderByLineNumberAsc(batchId, "APPROVED");
+        return stagingRepository.findByBatchIdAndStatusOrderByLineNumberAsc(batchId, TransactionImportStaging.STATUS_APPROVED);
+    }
+
+    // ===== BATCH COUNTERS =====
+
+    private void ensureCounters(String batchId) {
+        jdbcTemplate.update(
+            "INSERT IGNORE INTO transaction_import_staging_batches (batch_id, total_records, pending_review, approved, " +
+            "rejected, ambiguous_property, ambiguous_customer, duplicates, imported, updated_at) " +
+            "VALUES (?, 0, 0, 0, 0, 0, 0, 0, 0, ?)",
+            batchId, LocalDateTime.now());
+    }
+
+    /**
+     * Add (or with a negative count, remove) rows of one status to a batch's counters
+     */
+    private void addRecords(String batchId, String status, long count) {
+        if (batchId == null || count == 0) {
+            return;
+        }
+        ensureCounters(batchId);
+        String column = TransactionStagingBatch.counterColumn(status);
+        String statusSet = column == null ? "" : ", " + column + " = " + column + " + ?";
+        List<Object> args = new ArrayList<>();
+        args.add(count);
+        if (column != null) {
+            args.add(count);
+        }
+        args.add(LocalDateTime.now());
+        args.add(batchId);
+        jdbcTemplate.update(
+            "UPDATE transaction_import_staging_batches SET total_records = total_records + ?" + statusSet +
+            ", updated_at = ? WHERE batch_id = ?",
+            args.toArray());
+    }
+
+    /**
+     * Move count rows of a batch from one status counter to another
+     */
+    private void moveCounters(String batchId, String fromStatus, String toStatus, long count) {
+        String fromColumn = TransactionStagingBatch.counterColumn(fromStatus);
+        String toColumn = TransactionStagingBatch.counterColumn(toStatus);
+        if (batchId == null || count == 0 || Objects.equals(fromColumn, toColumn)) {
+            return;
+        }
+        ensureCounters(batchId);
+        List<String> sets = new ArrayList<>();
+        List<Object> args = new ArrayList<>();
+        if (fromColumn != null) {
+            sets.add(fromColumn + " = " + fromColumn + " - ?");
+            args.add(count);
+        }
+        if (toColumn != null) {
+            sets.add(toColumn + " = " + toColumn + " + ?");
+            args.add(count);
+        }
+        args.add(LocalDateTime.now());
+        args.add(batchId);
+        jdbcTemplate.update(
+            "UPDATE transaction_import_staging_batches SET " + String.join(", ", sets) +
+            ", updated_at = ? WHERE batch_id = ?",
+            args.toArray());
+    }
+
+    /**
+     * Recount a batch's counters from its rows
+     */
+    private void rebuildCounters(String batchId) {
+        Map<String, Long> byColumn = new HashMap<>();
+        long total = 0;
+        for (Object[] row : stagingRepository.getBatchStatusSummary(batchId)) {
+            long count = (Long) row[1];
+            total += count;
+            String column = TransactionStagingBatch.counterColumn((String) row[0]);
+            if (column != null) {
+                byColumn.merge(column, count, Long::sum);
+            }
+        }
+        if (total == 0) {
+            batchRepository.findById(batchId).ifPresent(batchRepository::delete);
+            return;
+        }
+        ensureCounters(batchId);
+        jdbcTemplate.update(
+            "UPDATE transaction_import_staging_batches SET total_records = ?, pending_review = ?, approved = ?, " +
+            "rejected = ?, ambiguous_property = ?, ambiguous_customer = ?, duplicates = ?, imported = ?, updated_at = ? " +
+            "WHERE batch_id = ?",
+            total,
+            byColumn.getOrDefault("pending_review", 0L),
+            byColumn.getOrDefault("approved", 0L),
+            byColumn.getOrDefault("rejected", 0L),
+            byColumn.getOrDefault("ambiguous_property", 0L),
+            byColumn.getOrDefault("ambiguous_customer", 0L),
+            byColumn.getOrDefault("duplicates", 0L),
+            byColumn.getOrDefault("imported", 0L),
+            LocalDateTime.now(),
+            batchId);
     }
 
     /**
@@ -234,6 +535,7 @@ public class TransactionStagingService {
         private long ambiguousProperty;
         private long ambiguousCustomer;
         private long duplicates;
+        private long imported;
 
         // Getters and setters
         public String getBatchId() {
@@ -299,5 +601,13 @@ public class TransactionStagingService {
         public void setDuplicates(long duplicates) {
             this.duplicates = duplicates;
         }
+
+        public long getImported() {
+            return imported;
+        }
+
+        public void setImported(long imported) {
+            this.imported = imported;
+        }
     }
 }
@@ -0,0 +1,167 @@
+package site.easy.to.build.crm.service.payprop;
+
+import site.easy.to.build.crm.entity.Invoice;
+
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * In-memory snapshot of invoices (leases) keyed the way PayPropInvoiceLinkingService matches
+ * transactions: PayProp invoice id, property + PayProp tenant id, property + customer and
+ * property alone. Built from one query, so resolving a transaction is a map lookup.
+ *
+ * Each key holds its leases ordered by start date. When several leases match, the one whose
+ * [start, end] interval contains the transaction date wins (latest start if they overlap);
+ * without a covering lease the most recent one is used - ongoing (no end date) first, then
+ * latest end date - as the repository queries did.
+ *
+ * As with those queries, the PayProp tenant key only holds invoices that are not deleted.
+ */
+public final class LeaseResolutionIndex {
+
+    private static final Comparator<Invoice> MOST_RECENT = Comparator.comparing(
+        Invoice::getEndDate, Comparator.nullsFirst(Comparator.reverseOrder()));
+
+    private static final Comparator<Invoice> BY_START = Comparator.comparing(
+        Invoice::getStartDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final Map<String, Invoice> byPayPropId = new HashMap<>();
+    private final Map<String, Leases> byPropertyAndTenant = new HashMap<>();
+    private final Map<String, Leases> byPropertyAndCustomer = new HashMap<>();
+    private final Map<Long, Leases> byProperty = new HashMap<>();
+    private final int invoiceCount;
+
+    public LeaseResolutionIndex(Collection<Invoice> invoices) {
+        Map<String, List<Invoice>> tenantLeases = new HashMap<>();
+        Map<String, List<Invoice>> customerLeases = new HashMap<>();
+        Map<Long, List<Invoice>> propertyLeases = new HashMap<>();
+
+        for (Invoice invoice : invoices) {
+            if (invoice.getPaypropId() != null) {
+                byPayPropId.put(invoice.getPaypropId(), invoice);
+            }
+            Long propertyId = invoice.getProperty() != null ? invoice.getProperty().getId() : null;
+            if (propertyId == null) {
+                continue;
+            }
+            propertyLeases.computeIfAbsent(propertyId, id -> new ArrayList<>()).add(invoice);
+            if (invoice.getCustomer() != null && invoice.getCustomer().getCustomerId() != null) {
+                customerLeases.computeIfAbsent(key(propertyId, invoice.getCustomer().getCustomerId()),
+                    k -> new ArrayList<>()).add(invoice);
+            }
+            if (invoice.getPaypropCustomerId() != null && invoice.getDeletedAt() == null) {
+                tenantLeases.computeIfAbsent(key(propertyId, invoice.getPaypropCustomerId()),
+                    k -> new ArrayList<>()).add(invoice);
+            }
+        }
+
+        tenantLeases.forEach((k, leases) -> byPropertyAndTenant.put(k, new Leases(leases)));
+        customerLeases.forEach((k, leases) -> byPropertyAndCustomer.put(k, new Leases(leases)));
+        propertyLeases.forEach((k, leases) -> byProperty.put(k, new Leases(leases)));
+        this.invoiceCount = invoices.size();
+    }
+
+    public Invoice findByPayPropId(String payPropInvoiceId) {
+        return payPropInvoiceId != null ? byPayPropId.get(payPropInvoiceId) : null;
+    }
+
+    public Leases findByPropertyAndTenant(Long propertyId, String tenantPayPropId) {
+        return byPropertyAndTenant.getOrDefault(key(propertyId, tenantPayPropId), Leases.EMPTY);
+    }
+
+    public Leases findByPropertyAndCustomer(Long propertyId, Long customerId) {
+        return byPropertyAndCustomer.getOrDefault(key(propertyId, customerId), Leases.EMPTY);
+    }
+
+    public Leases findByProperty(Long propertyId) {
+        return byProperty.getOrDefault(propertyId, Leases.EMPTY);
+    }
+
+    public int getInvoiceCount() {
+        return invoiceCount;
+    }
+
+    private static String key(Long propertyId, Object other) {
+        return propertyId + "|" + other;
+    }
+
+    /**
+     * Leases under one key, ordered by start date, plus the most recent one as fallback.
+     */
+    public static final class Leases {
+
+        static final Leases EMPTY = new Leases(List.of());
+
+        private final List<Invoice> byStart;
+        private final LocalDate[] starts;
+        private final Invoice mostRecent;
+
+        Leases(List<Invoice> leases) {
+            List<Invoice> sorted = new ArrayList<>(leases);
+            sorted.sort(BY_START);
+            this.byStart = Collections.unmodifiableList(sorted);
+            this.starts = new LocalDate[sorted.size()];
+            for (int i = 0; i < sorted.size(); i++) {
+                starts[i] = sorted.get(i).getStartDate();
+            }
+            this.mostRecent = sorted.stream().min(MOST_RECENT).orElse(null);
+        }
+
+        public int size() {
+            return byStart.size();
+        }
+
+        public boolean isEmpty() {
+            return byStart.isEmpty();
+        }
+
+        public List<Invoice> getLeases() {
+            return byStart;
+        }
+
+        public Invoice getMostRecent() {
+            return mostRecent;
+        }
+
+        /**
+         * Lease covering the date (latest start wins), else the most recent lease.
+         */
+        public Invoice resolve(LocalDate date) {
+            if (byStart.size() <= 1 || date == null) {
+                return mostRecent;
+            }
+            Invoice covering = findCovering(date);
+            return covering != null ? covering : mostRecent;
+        }
+
+        /**
+         * Lease whose interval contains the date, or null. A missing start or end date is open.
+         */
+        public Invoice findCovering(LocalDate date) {
+            // Leases starting after the date cannot cover it; walk back from the last one that can
+            for (int i = lastStartingOnOrBefore(date); i >= 0; i--) {
+                Invoice lease = byStart.get(i);
+                if (lease.getEndDate() == null || !lease.getEndDate().isBefore(date)) {
+                    return lease;
+                }
+            }
+            return null;
+        }
+
+        private int lastStartingOnOrBefore(LocalDate date) {
+            int low = 0;
+            int high = starts.length - 1;
+            int found = -1;
+            while (low <= high) {
+                int mid = (low + high) >>> 1;
+                if (starts[mid] == null || !starts[mid].isAfter(date)) {
+                    found = mid;
+                    low = mid + 1;
+                } else {
+                    high = mid - 1;
+                }
+            }
+            return found;
+        }
+    }
+}
@@ -0,0 +1,29 @@
+package site.easy.to.build.crm.service.payprop;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+
+/**
+ * JPA listener on Invoice that marks the lease resolution index stale. Instantiated by
+ * Hibernate, so the linking service registers itself here on startup; before that (or
+ * without Spring) writes are ignored.
+ */
+public class LeaseResolutionIndexEntityListener {
+
+    private static volatile PayPropInvoiceLinkingService linkingService;
+
+    static void register(PayPropInvoiceLinkingService service) {
+        linkingService = service;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object invoice) {
+        PayPropInvoiceLinkingService service = linkingService;
+        if (service != null) {
+            service.invalidateIndexNowAndAfterCommit();
+        }
+    }
+}
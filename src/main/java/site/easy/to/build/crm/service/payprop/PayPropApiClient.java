@@ -14,6 +14,9 @@ import org.springframework.web.client.HttpClientErrorException;
 import org.springframework.web.client.RestTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import site.easy.to.build.crm.service.io.IntervalRateLimiter;
+import site.easy.to.build.crm.service.payprop.bulkhead.PayPropBulkheadRejectedException;
+import site.easy.to.build.crm.service.payprop.bulkhead.PayPropBulkheads;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
@@ -21,14 +24,13 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.function.Function;
-import java.util.concurrent.Semaphore;
-import java.util.concurrent.TimeUnit;
 
 /**
  * PayProp API Client Utility
  * Provides common patterns for API communication with PayProp, including:
  * - Pagination handling
  * - Rate limiting
+ * - Per-endpoint-family bulkheads and circuit breakers (PayPropBulkheads)
  * - Error handling
  * - Response mapping
  */
@@ -44,48 +46,32 @@ public class PayPropApiClient {
 
     // PayProp rate limit: 3 requests per second (conservative to avoid 429 errors)
     private static final int MAX_REQUESTS_PER_SECOND = 3;
-    private static final long RATE_LIMIT_WINDOW_MS = 1000; // 1 second window
 
-    // Global rate limiter using semaphore (3 permits per second)
-    private static final Semaphore rateLimiter = new Semaphore(MAX_REQUESTS_PER_SECOND, true);
-    private static long lastResetTime = System.currentTimeMillis();
+    // Global rate budget, shared by all threads and imports
+    private static final IntervalRateLimiter RATE_BUDGET = IntervalRateLimiter.create(MAX_REQUESTS_PER_SECOND);
 
     @Autowired
     private RestTemplate restTemplate;
     
     @Autowired
     private PayPropOAuth2Service oAuth2Service;
+
+    @Autowired
+    private PayPropBulkheads bulkheads;
     
     @Value("${payprop.api.base-url}")
     private String payPropApiBase;
 
     /**
-     * Acquire a rate limit permit before making an API call.
-     * This enforces PayProp's global rate limit of 5 requests per second across all threads.
-     *
-     * The semaphore refills every second with 5 new permits.
+     * Wait for a request slot before making an API call.
+     * Slots are spaced 1/MAX_REQUESTS_PER_SECOND apart across all threads, so imports running
+     * in parallel share one budget instead of each assuming the full rate. Each caller claims
+     * its slot atomically and waits without holding a lock.
+     * Runs inside the endpoint family's bulkhead, after admission (see PayPropBulkheads).
+     * An interrupted wait throws, so the call is not made.
      */
-    private synchronized void acquireRateLimitPermit() {
-        try {
-            // Check if we need to reset the window (every second)
-            long currentTime = System.currentTimeMillis();
-            if (currentTime - lastResetTime >= RATE_LIMIT_WINDOW_MS) {
-                // Reset window - release all permits back to max
-                int availablePermits = rateLimiter.availablePermits();
-                if (availablePermits < MAX_REQUESTS_PER_SECOND) {
-                    rateLimiter.release(MAX_REQUESTS_PER_SECOND - availablePermits);
-                }
-                lastResetTime = currentTime;
-            }
-
-            // Acquire a permit (blocks if none available)
-            if (!rateLimiter.tryAcquire(2, TimeUnit.SECONDS)) {
-                log.warn("⚠️ Rate limit permit acquisition timed out - proceeding anyway");
-            }
-        } catch (InterruptedException e) {
-            log.warn("⚠️ Rate limit interrupted: {}", e.getMessage());
-            Thread.currentThread().interrupt();
-        }
+    private void acquireRateLimitPermit() {
+        RATE_BUDGET.acquire();
     }
 
     /**
@@ -104,7 +90,7 @@ public class PayPropApiClient {
         
         while (page <= MAX_PAGES) {
             try {
-                // Rate limiting now handled globally in fetchSinglePage via acquireRateLimitPermit()
+                // Rate limiting and bulkheads handled per API call in fetchSinglePage
 
                 // Fetch single page
                 PayPropPageResult result = fetchSinglePage(endpoint, page, DEFAULT_PAGE_SIZE);
@@ -323,14 +309,13 @@ public class PayPropApiClient {
 
         while (retryCount <= maxRetries) {
             try {
-                acquireRateLimitPermit();
-
                 HttpHeaders headers = oAuth2Service.createAuthorizedHeaders();
                 HttpEntity<String> request = new HttpEntity<>(headers);
 
                 log.debug("Fetching page {} from: {}{}", page, url, retryCount > 0 ? " (retry " + retryCount + ")" : "");
 
-                ResponseEntity<Map> response = restTemplate.exchange(url, HttpMethod.GET, request, Map.class);
+                ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                    () -> restTemplate.exchange(url, HttpMethod.GET, request, Map.class));
 
                 if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                     return parsePageResponse(response.getBody());
@@ -338,6 +323,8 @@ public class PayPropApiClient {
                     throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
                 }
 
+            } catch (PayPropBulkheadRejectedException e) {
+                throw e;
             } catch (HttpClientErrorException e) {
                 if (e.getStatusCode() == HttpStatus.TOO_MANY_REQUESTS && retryCount < maxRetries) {
                     log.warn("⏳ Rate limited (429) on page {} - waiting {}ms before retry {}/{}", page, backoffMs, retryCount + 1, maxRetries);
@@ -380,12 +367,8 @@ public class PayPropApiClient {
             HttpHeaders headers = oAuth2Service.createAuthorizedHeaders();
             HttpEntity<String> request = new HttpEntity<>(headers);
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url.toString(), 
-                HttpMethod.GET, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url.toString(), this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url.toString(), HttpMethod.GET, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 return parsePageResponse(response.getBody());
@@ -393,6 +376,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
@@ -412,12 +397,8 @@ public class PayPropApiClient {
             
             String url = payPropApiBase + endpoint;
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url, 
-                HttpMethod.GET, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.GET, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK && response.getBody() != null) {
                 return response.getBody();
@@ -425,6 +406,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
@@ -444,12 +427,8 @@ public class PayPropApiClient {
             
             String url = payPropApiBase + endpoint;
             
-            ResponseEntity<byte[]> response = restTemplate.exchange(
-                url, 
-                HttpMethod.GET, 
-                request, 
-                byte[].class
-            );
+            ResponseEntity<byte[]> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.GET, request, byte[].class));
             
             if (response.getStatusCode() == HttpStatus.OK) {
                 return response.getBody();
@@ -457,6 +436,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Failed to download binary content: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API error downloading binary: {} - {}", e.getStatusCode(), e.getMessage());
             throw new RuntimeException("Failed to download binary content", e);
@@ -478,12 +459,8 @@ public class PayPropApiClient {
             
             log.debug("Executing DELETE request to: {}", url);
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url, 
-                HttpMethod.DELETE, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.DELETE, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK || 
                 response.getStatusCode() == HttpStatus.NO_CONTENT) {
@@ -492,6 +469,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API DELETE error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
@@ -514,12 +493,8 @@ public class PayPropApiClient {
             
             log.debug("Executing POST request to: {}", url);
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url, 
-                HttpMethod.POST, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.POST, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK || 
                 response.getStatusCode() == HttpStatus.CREATED) {
@@ -528,6 +503,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API POST error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
@@ -550,12 +527,8 @@ public class PayPropApiClient {
             
             log.debug("Executing PUT request to: {}", url);
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url, 
-                HttpMethod.PUT, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.PUT, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK || 
                 response.getStatusCode() == HttpStatus.NO_CONTENT) {
@@ -564,6 +537,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API PUT error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
@@ -586,12 +561,8 @@ public class PayPropApiClient {
             
             log.debug("Executing PATCH request to: {}", url);
             
-            ResponseEntity<Map> response = restTemplate.exchange(
-                url, 
-                HttpMethod.PATCH, 
-                request, 
-                Map.class
-            );
+            ResponseEntity<Map> response = bulkheads.execute(url, this::acquireRateLimitPermit,
+                () -> restTemplate.exchange(url, HttpMethod.PATCH, request, Map.class));
             
             if (response.getStatusCode() == HttpStatus.OK || 
                 response.getStatusCode() == HttpStatus.NO_CONTENT) {
@@ -600,6 +571,8 @@ public class PayPropApiClient {
                 throw new RuntimeException("Unexpected response status: " + response.getStatusCode());
             }
             
+        } catch (PayPropBulkheadRejectedException e) {
+            throw e;
         } catch (HttpClientErrorException e) {
             log.error("PayProp API PATCH error: {} - {}", e.getStatusCode(), e.getResponseBodyAsString());
             throw new RuntimeException("PayProp API error: " + e.getResponseBodyAsString(), e);
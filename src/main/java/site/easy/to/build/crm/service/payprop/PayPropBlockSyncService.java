@@ -67,28 +67,7 @@ public class PayPropBlockSyncService {
                 }
             }
 
-            String blockTagName = block.getPayPropTagNames();
-            if (blockTagName == null || blockTagName.trim().isEmpty()) {
-                // Generate tag name if not set
-                if (portfolio != null) {
-                    blockTagName = PayPropTagGenerator.generateBlockTag(portfolio.getName(), block.getName());
-                } else {
-                    // For standalone blocks, use simplified format
-                    blockTagName = PayPropTagGenerator.generateBlockTag(block.getId());
-                }
-                block.setPayPropTagNames(blockTagName);
-            }
-            
-            log.info("📝 Syncing block '{}' with tag name: {}", block.getName(), blockTagName);
-            
-            // Ensure block tag exists in PayProp
-            PayPropTagDTO blockTag = portfolioSyncService.ensurePayPropTagExists(blockTagName);
-            
-            // Update block with PayProp external ID
-            block.setPayPropTags(blockTag.getId());
-            block.setSyncStatus(SyncStatus.synced);
-            block.setLastSyncAt(LocalDateTime.now());
-            blockRepository.save(block);
+            PayPropTagDTO blockTag = ensureBlockTag(block);
             
             // Sync properties assigned to this block
             int propertiesSynced = syncBlockProperties(block, blockTag.getId());
@@ -112,6 +91,39 @@ public class PayPropBlockSyncService {
         }
     }
     
+    /**
+     * Make sure a block has its PayProp tag, creating it if needed, and mark the block synced.
+     * Does not touch property tags; callers apply those themselves.
+     * @param block Block to ensure the tag for
+     * @return PayProp tag of the block
+     */
+    public PayPropTagDTO ensureBlockTag(Block block) throws Exception {
+        Portfolio portfolio = block.getPortfolio();
+        String blockTagName = block.getPayPropTagNames();
+        if (blockTagName == null || blockTagName.trim().isEmpty()) {
+            // Generate tag name if not set
+            if (portfolio != null) {
+                blockTagName = PayPropTagGenerator.generateBlockTag(portfolio.getName(), block.getName());
+            } else {
+                // For standalone blocks, use simplified format
+                blockTagName = PayPropTagGenerator.generateBlockTag(block.getId());
+            }
+            block.setPayPropTagNames(blockTagName);
+        }
+        
+        log.info("📝 Syncing block '{}' with tag name: {}", block.getName(), blockTagName);
+        
+        // Ensure block tag exists in PayProp
+        PayPropTagDTO blockTag = portfolioSyncService.ensurePayPropTagExists(blockTagName);
+        
+        // Update block with PayProp external ID
+        block.setPayPropTags(blockTag.getId());
+        block.setSyncStatus(SyncStatus.synced);
+        block.setLastSyncAt(LocalDateTime.now());
+        blockRepository.save(block);
+        return blockTag;
+    }
+    
     /**
      * Sync all properties assigned to a block
      * @param block Block containing properties to sync
@@ -2,15 +2,19 @@
 package site.easy.to.build.crm.service.payprop;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import site.easy.to.build.crm.entity.*;
 import site.easy.to.build.crm.service.customer.CustomerService;
+import site.easy.to.build.crm.service.payprop.raw.PayPropRawRecordHashService;
+import site.easy.to.build.crm.service.payprop.raw.PayPropRawRecordHashService.MirrorChange;
 import site.easy.to.build.crm.service.property.PropertyService;
 import site.easy.to.build.crm.service.property.TenantService;
 import site.easy.to.build.crm.service.property.PropertyOwnerService;
 
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.function.Predicate;
 
 @Service
 public class PayPropChangeDetection {
@@ -20,18 +24,26 @@ public class PayPropChangeDetection {
     private final TenantService tenantService;
     private final PropertyOwnerService propertyOwnerService;
     private final PayPropSyncService payPropSyncService;
+    private final PayPropRawRecordHashService recordHashService;
+    private final JdbcTemplate jdbcTemplate;
+
+    private static final String PAYPROP_CUSTOMER_TYPES = "'TENANT', 'PROPERTY_OWNER'";
 
     @Autowired
     public PayPropChangeDetection(CustomerService customerService,
                                  PropertyService propertyService,
                                  TenantService tenantService,
                                  PropertyOwnerService propertyOwnerService,
-                                 PayPropSyncService payPropSyncService) {
+                                 PayPropSyncService payPropSyncService,
+                                 PayPropRawRecordHashService recordHashService,
+                                 JdbcTemplate jdbcTemplate) {
         this.customerService = customerService;
         this.propertyService = propertyService;
         this.tenantService = tenantService;
         this.propertyOwnerService = propertyOwnerService;
         this.payPropSyncService = payPropSyncService;
+        this.recordHashService = recordHashService;
+        this.jdbcTemplate = jdbcTemplate;
     }
 
     /**
@@ -104,33 +116,32 @@ public class PayPropChangeDetection {
     }
 
     private List<Property> findModifiedProperties(LocalDateTime since) {
-        return propertyService.findAll().stream()
-            .filter(p -> p.getUpdatedAt() != null && p.getUpdatedAt().isAfter(since))
-            .filter(p -> p.getPayPropId() != null) // Only sync already synced properties
-            .toList();
+        // Only sync already synced properties
+        return loadProperties(jdbcTemplate.queryForList(
+            "SELECT id FROM properties WHERE updated_at > ? AND payprop_id IS NOT NULL", Long.class, since));
     }
 
     private List<Property> findNewProperties(LocalDateTime since) {
-        return propertyService.findAll().stream()
-            .filter(p -> p.getCreatedAt() != null && p.getCreatedAt().isAfter(since))
-            .filter(p -> p.getPayPropId() == null) // Only new properties not yet synced
-            .filter(p -> p.isReadyForPayPropSync()) // Only ready properties
+        // Only new properties not yet synced, and only ready ones
+        return loadProperties(jdbcTemplate.queryForList(
+            "SELECT id FROM properties WHERE created_at > ? AND payprop_id IS NULL", Long.class, since)).stream()
+            .filter(p -> p.isReadyForPayPropSync())
             .toList();
     }
 
     private List<Customer> findModifiedCustomers(LocalDateTime since) {
-        return customerService.findAll().stream()
-            .filter(c -> c.getCreatedAt() != null && c.getCreatedAt().isAfter(since))
-            .filter(c -> c.getPayPropEntityId() != null) // Only sync already synced customers
-            .filter(c -> c.isPayPropEntity()) // Only PayProp-related customers
-            .toList();
+        // Only PayProp-related customers that were already synced
+        return loadCustomers(jdbcTemplate.queryForList("""
+            SELECT customer_id FROM customers
+            WHERE created_at > ? AND payprop_entity_id IS NOT NULL AND customer_type IN (%s)
+            """.formatted(PAYPROP_CUSTOMER_TYPES), Long.class, since));
     }
 
     private List<Customer> findNewCustomers(LocalDateTime since) {
-        return customerService.findAll().stream()
-            .filter(c -> c.getCreatedAt() != null && c.getCreatedAt().isAfter(since))
-            .filter(c -> c.getPayPropEntityId() == null) // Only new customers not yet synced
-            .filter(c -> c.isPayPropEntity()) // Only PayProp-related customers
+        return loadCustomers(jdbcTemplate.queryForList("""
+            SELECT customer_id FROM customers
+            WHERE created_at > ? AND payprop_entity_id IS NULL AND customer_type IN (%s)
+            """.formatted(PAYPROP_CUSTOMER_TYPES), Long.class, since)).stream()
             .filter(c -> {
                 try {
                     return c.isReadyForPayPropSync(); // Only ready customers - SAFE CALL
@@ -143,16 +154,14 @@ public class PayPropChangeDetection {
     }
 
     private List<Tenant> findModifiedTenants(LocalDateTime since) {
-        return tenantService.findAll().stream()
-            .filter(t -> t.getUpdatedAt() != null && t.getUpdatedAt().isAfter(since))
-            .filter(t -> t.getPayPropId() != null) // Only sync already synced tenants
-            .toList();
+        // Only sync already synced tenants
+        return loadTenants(jdbcTemplate.queryForList(
+            "SELECT id FROM tenants WHERE updated_at > ? AND payprop_id IS NOT NULL", Long.class, since));
     }
 
     private List<Tenant> findNewTenants(LocalDateTime since) {
-        return tenantService.findAll().stream()
-            .filter(t -> t.getCreatedAt() != null && t.getCreatedAt().isAfter(since))
-            .filter(t -> t.getPayPropId() == null) // Only new tenants not yet synced
+        return loadTenants(jdbcTemplate.queryForList(
+            "SELECT id FROM tenants WHERE created_at > ? AND payprop_id IS NULL", Long.class, since)).stream()
             .filter(t -> {
                 try {
                     // Use the service method instead of direct entity method
@@ -165,6 +174,20 @@ public class PayPropChangeDetection {
             .toList();
     }
 
+    // Entities are loaded by id after the timestamp query, so the work follows the change volume
+
+    private List<Property> loadProperties(List<Long> ids) {
+        return ids.stream().map(propertyService::findById).filter(Objects::nonNull).toList();
+    }
+
+    private List<Customer> loadCustomers(List<Long> ids) {
+        return ids.stream().map(customerService::findByCustomerId).filter(Objects::nonNull).toList();
+    }
+
+    private List<Tenant> loadTenants(List<Long> ids) {
+        return ids.isEmpty() ? List.of() : tenantService.findByIdIn(ids);
+    }
+
     private boolean isTenanReadyForSync(Tenant tenant) {
         try {
             // Check account type specific requirements
@@ -214,19 +237,25 @@ public class PayPropChangeDetection {
         return detectPayPropChangesSince(getLastSyncTimestamp());
     }
 
+    /**
+     * PayProp changes as recorded by the raw imports: each import diffs its fetch against the
+     * stored record hashes (PayPropRawRecordHashService), so this reads the changed records
+     * instead of asking PayProp again. Deleted records are not reported here.
+     */
     private PayPropChanges detectPayPropChangesSince(LocalDateTime since) {
         PayPropChanges changes = new PayPropChanges();
         
         try {
-            // This would require API calls to PayProp to get modified entities
-            // For now, we'll simulate the detection
+            List<MirrorChange> properties = recordHashService.findChangesSince(PayPropRawRecordHashService.PROPERTIES, since);
+            List<MirrorChange> tenants = recordHashService.findChangesSince(PayPropRawRecordHashService.TENANTS, since);
+            List<MirrorChange> beneficiaries = recordHashService.findChangesSince(PayPropRawRecordHashService.BENEFICIARIES, since);
             
-            changes.setModifiedProperties(detectModifiedPayPropProperties(since));
-            changes.setModifiedTenants(detectModifiedPayPropTenants(since));
-            changes.setModifiedBeneficiaries(detectModifiedPayPropBeneficiaries(since));
-            changes.setNewProperties(detectNewPayPropProperties(since));
-            changes.setNewTenants(detectNewPayPropTenants(since));
-            changes.setNewBeneficiaries(detectNewPayPropBeneficiaries(since));
+            changes.setModifiedProperties(currentRecords(properties, MirrorChange::isChanged));
+            changes.setModifiedTenants(currentRecords(tenants, MirrorChange::isChanged));
+            changes.setModifiedBeneficiaries(currentRecords(beneficiaries, MirrorChange::isChanged));
+            changes.setNewProperties(currentRecords(properties, MirrorChange::isInserted));
+            changes.setNewTenants(currentRecords(tenants, MirrorChange::isInserted));
+            changes.setNewBeneficiaries(currentRecords(beneficiaries, MirrorChange::isInserted));
             
         } catch (Exception e) {
             System.err.println("Failed to detect PayProp changes: " + e.getMessage());
@@ -236,55 +265,14 @@ public class PayPropChangeDetection {
         return changes;
     }
 
-    private List<Map<String, Object>> detectModifiedPayPropProperties(LocalDateTime since) {
-        try {
-            // This would call PayProp API with modified_from_time parameter
-            // For now, return empty list
-            return List.of();
-            
-            // Real implementation would be:
-            // String modifiedFrom = since.format(DateTimeFormatter.ISO_LOCAL_DATE_TIME);
-            // return payPropSyncService.getModifiedProperties(modifiedFrom);
-            
-        } catch (Exception e) {
-            System.err.println("Failed to detect modified PayProp properties: " + e.getMessage());
-            return List.of();
-        }
-    }
-
-    private List<Map<String, Object>> detectModifiedPayPropTenants(LocalDateTime since) {
-        try {
-            // This would call PayProp API with modified_from_time parameter
-            return List.of();
-        } catch (Exception e) {
-            System.err.println("Failed to detect modified PayProp tenants: " + e.getMessage());
-            return List.of();
-        }
-    }
-
-    private List<Map<String, Object>> detectModifiedPayPropBeneficiaries(LocalDateTime since) {
-        try {
-            // This would call PayProp API with modified_from_time parameter
-            return List.of();
-        } catch (Exception e) {
-            System.err.println("Failed to detect modified PayProp beneficiaries: " + e.getMessage());
-            return List.of();
+    private List<Map<String, Object>> currentRecords(List<MirrorChange> changes, Predicate<MirrorChange> filter) {
+        List<Map<String, Object>> records = new ArrayList<>();
+        for (MirrorChange change : changes) {
+            if (filter.test(change) && change.getCurrent() != null) {
+                records.add(change.getCurrent());
+            }
         }
-    }
-
-    private List<Map<String, Object>> detectNewPayPropProperties(LocalDateTime since) {
-        // Would detect new entities in PayProp that don't exist in CRM
-        return List.of();
-    }
-
-    private List<Map<String, Object>> detectNewPayPropTenants(LocalDateTime since) {
-        // Would detect new entities in PayProp that don't exist in CRM
-        return List.of();
-    }
-
-    private List<Map<String, Object>> detectNewPayPropBeneficiaries(LocalDateTime since) {
-        // Would detect new entities in PayProp that don't exist in CRM
-        return List.of();
+        return records;
     }
 
     // ===== UTILITY METHODS =====
@@ -6,8 +6,11 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import site.easy.to.build.crm.entity.*;
 import site.easy.to.build.crm.service.customer.CustomerService;
+import site.easy.to.build.crm.service.payprop.raw.PayPropRawRecordHashService;
+import site.easy.to.build.crm.service.payprop.raw.PayPropRawRecordHashService.MirrorChange;
 import site.easy.to.build.crm.service.property.PropertyService;
 
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.util.*;
 
@@ -17,6 +20,10 @@ public class PayPropConflictResolver {
     private final CustomerService customerService;
     private final PropertyService propertyService;
     private final PayPropSyncLogger syncLogger;
+    private final PayPropRawRecordHashService recordHashService;
+    
+    // Start of the previous detectConflicts() scan
+    private volatile LocalDateTime lastScanAt;
     
     @Value("${payprop.conflict.resolution.strategy:LAST_WRITE_WINS}")
     private String defaultResolutionStrategy;
@@ -30,23 +37,37 @@ public class PayPropConflictResolver {
     @Autowired
     public PayPropConflictResolver(CustomerService customerService,
                                   PropertyService propertyService,
-                                  PayPropSyncLogger syncLogger) {
+                                  PayPropSyncLogger syncLogger,
+                                  PayPropRawRecordHashService recordHashService) {
         this.customerService = customerService;
         this.propertyService = propertyService;
         this.syncLogger = syncLogger;
+        this.recordHashService = recordHashService;
     }
 
     /**
      * Detect conflicts between CRM and PayProp data
      */
     public List<SyncConflict> detectConflicts() {
+        LocalDateTime scanStartedAt = LocalDateTime.now();
+        LocalDateTime since = lastScanAt != null ? lastScanAt : scanStartedAt.minusDays(1);
+        
+        List<SyncConflict> conflicts = detectConflictsSince(since);
+        lastScanAt = scanStartedAt;
+        return conflicts;
+    }
+
+    /**
+     * Detect conflicts in PayProp records the raw imports saw change since the given time
+     */
+    public List<SyncConflict> detectConflictsSince(LocalDateTime since) {
         List<SyncConflict> conflicts = new ArrayList<>();
         
         // Detect property conflicts
-        conflicts.addAll(detectPropertyConflicts());
+        conflicts.addAll(detectPropertyConflicts(since));
         
         // Detect customer conflicts
-        conflicts.addAll(detectCustomerConflicts());
+        conflicts.addAll(detectCustomerConflicts(since));
         
         syncLogger.logConflictDetection(conflicts.size());
         return conflicts;
@@ -92,26 +113,35 @@ public class PayPropConflictResolver {
 
     // ===== CONFLICT DETECTION =====
 
-    private List<SyncConflict> detectPropertyConflicts() {
+    /**
+     * Property records PayProp changed since the last scan, checked field by field against
+     * the local property. Only fields PayProp changed AND the CRM edited differently count.
+     */
+    private List<SyncConflict> detectPropertyConflicts(LocalDateTime since) {
         List<SyncConflict> conflicts = new ArrayList<>();
         
-        // Find properties that exist in both systems with different data
-        List<Property> syncedProperties = propertyService.findPropertiesByPayPropSyncStatus(true);
-        
-        for (Property property : syncedProperties) {
+        for (MirrorChange change : recordHashService.findChangesSince(PayPropRawRecordHashService.PROPERTIES, since)) {
+            if (!change.isChanged() || change.getPrevious() == null) {
+                continue;
+            }
+            Optional<Property> local = propertyService.findByPayPropId(change.getPayPropId());
+            if (local.isEmpty()) {
+                continue;
+            }
+            Property property = local.get();
             try {
-                // Compare with PayProp data (would need to fetch from PayProp API)
-                // For now, simulate conflict detection based on update timestamps
-                if (hasPropertyConflict(property)) {
-                    SyncConflict conflict = new SyncConflict();
-                    conflict.setEntityType("PROPERTY");
-                    conflict.setEntityId(property.getId().toString());
-                    conflict.setPayPropId(property.getPayPropId());
-                    conflict.setConflictType(ConflictType.DATA_MISMATCH);
-                    conflict.setDescription("Property data differs between CRM and PayProp");
-                    conflict.setDetectedAt(LocalDateTime.now());
-                    conflicts.add(conflict);
-                }
+                Map<String, Object> base = change.getPrevious();
+                Map<String, Object> current = change.getCurrent();
+                addFieldConflict(conflicts, "PROPERTY", property.getId(), change, "name",
+                    base.get("name"), current.get("name"), property.getPropertyName());
+                addFieldConflict(conflicts, "PROPERTY", property.getId(), change, "monthly_payment",
+                    base.get("monthly_payment_required"), current.get("monthly_payment_required"), property.getMonthlyPayment());
+                addFieldConflict(conflicts, "PROPERTY", property.getId(), change, "address_line_1",
+                    nested(base, "address", "first_line"), nested(current, "address", "first_line"), property.getAddressLine1());
+                addFieldConflict(conflicts, "PROPERTY", property.getId(), change, "city",
+                    nested(base, "address", "city"), nested(current, "address", "city"), property.getCity());
+                addFieldConflict(conflicts, "PROPERTY", property.getId(), change, "postcode",
+                    nested(base, "address", "postal_code"), nested(current, "address", "postal_code"), property.getPostcode());
             } catch (Exception e) {
                 syncLogger.logEntityError("CONFLICT_DETECTION", property.getId(), e);
             }
@@ -120,24 +150,36 @@ public class PayPropConflictResolver {
         return conflicts;
     }
 
-    private List<SyncConflict> detectCustomerConflicts() {
+    /**
+     * Tenant and beneficiary records PayProp changed since the last scan, checked against the
+     * customer holding the same PayProp entity id.
+     */
+    private List<SyncConflict> detectCustomerConflicts(LocalDateTime since) {
         List<SyncConflict> conflicts = new ArrayList<>();
         
-        // Find customers that exist in both systems with different data
-        List<Customer> syncedCustomers = customerService.findCustomersNeedingPayPropSync();
+        List<MirrorChange> changes = new ArrayList<>(
+            recordHashService.findChangesSince(PayPropRawRecordHashService.TENANTS, since));
+        changes.addAll(recordHashService.findChangesSince(PayPropRawRecordHashService.BENEFICIARIES, since));
         
-        for (Customer customer : syncedCustomers) {
+        for (MirrorChange change : changes) {
+            if (!change.isChanged() || change.getPrevious() == null) {
+                continue;
+            }
+            Customer customer = customerService.findByPayPropEntityId(change.getPayPropId());
+            if (customer == null) {
+                continue;
+            }
             try {
-                if (hasCustomerConflict(customer)) {
-                    SyncConflict conflict = new SyncConflict();
-                    conflict.setEntityType("CUSTOMER");
-                    conflict.setEntityId(customer.getCustomerId().toString());
-                    conflict.setPayPropId(customer.getPayPropEntityId());
-                    conflict.setConflictType(ConflictType.DATA_MISMATCH);
-                    conflict.setDescription("Customer data differs between CRM and PayProp");
-                    conflict.setDetectedAt(LocalDateTime.now());
-                    conflicts.add(conflict);
-                }
+                Map<String, Object> base = change.getPrevious();
+                Map<String, Object> current = change.getCurrent();
+                addFieldConflict(conflicts, "CUSTOMER", customer.getCustomerId(), change, "email",
+                    base.get("email_address"), current.get("email_address"), customer.getEmail());
+                addFieldConflict(conflicts, "CUSTOMER", customer.getCustomerId(), change, "first_name",
+                    base.get("first_name"), current.get("first_name"), customer.getFirstName());
+                addFieldConflict(conflicts, "CUSTOMER", customer.getCustomerId(), change, "last_name",
+                    base.get("last_name"), current.get("last_name"), customer.getLastName());
+                addFieldConflict(conflicts, "CUSTOMER", customer.getCustomerId(), change, "business_name",
+                    base.get("business_name"), current.get("business_name"), customer.getBusinessName());
             } catch (Exception e) {
                 syncLogger.logEntityError("CONFLICT_DETECTION", customer.getCustomerId(), e);
             }
@@ -146,6 +188,68 @@ public class PayPropConflictResolver {
         return conflicts;
     }
 
+    private void addFieldConflict(List<SyncConflict> conflicts, String entityType, Long entityId, MirrorChange change,
+                                  String field, Object baseValue, Object payPropValue, Object crmValue) {
+        if (!isFieldConflict(baseValue, payPropValue, crmValue)) {
+            return;
+        }
+        SyncConflict conflict = new SyncConflict();
+        conflict.setEntityType(entityType);
+        conflict.setEntityId(entityId.toString());
+        conflict.setPayPropId(change.getPayPropId());
+        conflict.setConflictType(ConflictType.DATA_MISMATCH);
+        conflict.setConflictField(field);
+        conflict.setCrmValue(normalizeValue(crmValue));
+        conflict.setPayPropValue(normalizeValue(payPropValue));
+        conflict.setDescription(String.format("%s changed in both systems since the last import", field));
+        conflict.setDetectedAt(LocalDateTime.now());
+        Map<String, Object> metadata = new HashMap<>();
+        metadata.put("baseValue", normalizeValue(baseValue));
+        metadata.put("payPropChangedAt", change.getChangedAt());
+        conflict.setMetadata(metadata);
+        conflicts.add(conflict);
+    }
+
+    /**
+     * Three-way check against the PayProp value from the previous import (base): a conflict
+     * is a field PayProp changed while the CRM holds a third value. A CRM value equal to the
+     * base is simply stale, and one equal to the new PayProp value already agrees.
+     */
+    static boolean isFieldConflict(Object baseValue, Object payPropValue, Object crmValue) {
+        String base = normalizeValue(baseValue);
+        String payProp = normalizeValue(payPropValue);
+        String crm = normalizeValue(crmValue);
+        return !Objects.equals(base, payProp)
+            && !Objects.equals(crm, base)
+            && !Objects.equals(crm, payProp);
+    }
+
+    /**
+     * Compare as trimmed text, blank as null, numbers without trailing zeros (995 == 995.00).
+     */
+    static String normalizeValue(Object value) {
+        if (value == null) {
+            return null;
+        }
+        String text = value.toString().trim();
+        if (text.isEmpty()) {
+            return null;
+        }
+        if (value instanceof Number || text.matches("-?\\d+(\\.\\d+)?")) {
+            try {
+                return new BigDecimal(text).stripTrailingZeros().toPlainString();
+            } catch (NumberFormatException e) {
+                return text;
+            }
+        }
+        return text;
+    }
+
+    private static Object nested(Map<String, Object> record, String parent, String key) {
+        Object child = record.get(parent);
+        return child instanceof Map<?, ?> map ? map.get(key) : null;
+    }
+
     // ===== CONFLICT RESOLUTION =====
 
     private ConflictResolution resolvePropertyConflict(SyncConflict conflict) {
@@ -320,7 +424,7 @@ public class PayPropConflictResolver {
         try {
             // Compare timestamps and apply the most recent change
             LocalDateTime crmLastUpdate = property.getUpdatedAt();
-            LocalDateTime payPropLastUpdate = getPayPropLastUpdate(property.getPayPropId());
+            LocalDateTime payPropLastUpdate = getPayPropLastUpdate(conflict);
             
             if (payPropLastUpdate != null && payPropLastUpdate.isAfter(crmLastUpdate)) {
                 return applyPayPropPropertyData(property, conflict);
@@ -461,30 +565,6 @@ public class PayPropConflictResolver {
 
     // ===== UTILITY METHODS =====
 
-    private boolean hasPropertyConflict(Property property) {
-        // For now, disable conflict detection during import phase
-        // TODO: Add proper PayProp sync timestamp tracking to Property entity
-        return false;
-    }
-
-    private boolean hasCustomerConflict(Customer customer) {
-        // Only consider it a conflict if:
-        // 1. Customer exists in both systems (has PayProp ID)
-        // 2. CRM was updated AFTER the last sync
-        
-        if (customer.getPayPropEntityId() == null) {
-            return false; // Not in PayProp, no conflict
-        }
-        
-        LocalDateTime lastSync = customer.getPayPropLastSync();
-        LocalDateTime lastUpdate = customer.getCreatedAt(); // Use appropriate timestamp
-        
-        // If never synced, or CRM was updated after last sync
-        return lastSync != null && 
-            lastUpdate != null && 
-            lastUpdate.isAfter(lastSync.plusMinutes(5)); // 5min buffer for sync operations
-    }
-
     private boolean hasFieldAuthorityRules(SyncConflict conflict) {
         String field = conflict.getConflictField();
         return field != null && (
@@ -509,10 +589,10 @@ public class PayPropConflictResolver {
         return rules;
     }
 
-    private LocalDateTime getPayPropLastUpdate(String payPropId) {
-        // This would call PayProp API to get the last update timestamp
-        // For now, return null to indicate unknown
-        return null;
+    private LocalDateTime getPayPropLastUpdate(SyncConflict conflict) {
+        // When the raw import saw the PayProp record change (set by detection)
+        Object changedAt = conflict.getMetadata() != null ? conflict.getMetadata().get("payPropChangedAt") : null;
+        return changedAt instanceof LocalDateTime ? (LocalDateTime) changedAt : null;
     }
 
     // ===== ENUMS AND CLASSES =====
@@ -14,6 +14,7 @@ import site.easy.to.build.crm.entity.AccountType;
 import site.easy.to.build.crm.entity.Customer;
 import site.easy.to.build.crm.service.property.PropertyService;
 import site.easy.to.build.crm.service.customer.CustomerService;
+import site.easy.to.build.crm.service.synchronization.TenantCustomerLinkService;
 import java.util.function.Function;
 
 import java.math.BigDecimal;
@@ -46,6 +47,9 @@ public class PayPropEntityResolutionService {
     @Autowired
     private JdbcTemplate jdbcTemplate;
     
+    @Autowired
+    private TenantCustomerLinkService tenantCustomerLinkService;
+    
     /**
      * Scheduled task to resolve orphaned entities daily at 2 AM
      * Can also be called manually via API endpoint
@@ -63,6 +67,11 @@ public class PayPropEntityResolutionService {
             // Resolve orphaned tenants
             report.setTenantResolution(resolveOrphanedTenants());
             
+            // Link tenant records to the customers just created
+            if (report.getTenantResolution().getResolvedCount() > 0) {
+                log.info("🔗 {}", tenantCustomerLinkService.linkAllTenantsToCustomers().getSummary());
+            }
+            
             // Resolve orphaned beneficiaries
             report.setBeneficiaryResolution(resolveOrphanedBeneficiaries());
             
@@ -1,18 +1,25 @@
 package site.easy.to.build.crm.service.payprop;
 
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import site.easy.to.build.crm.entity.Customer;
 import site.easy.to.build.crm.entity.Invoice;
 import site.easy.to.build.crm.entity.Property;
+import site.easy.to.build.crm.event.HistoricalDataImportedEvent;
+import site.easy.to.build.crm.event.PayPropDataSyncedEvent;
 import site.easy.to.build.crm.repository.InvoiceRepository;
 
 import java.time.LocalDate;
-import java.util.Comparator;
 import java.util.List;
-import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * Service for linking PayProp transactions to local Invoice (lease) records
@@ -22,6 +29,15 @@ import java.util.Optional;
  * - Date is informational only, not restrictive
  * - Handles deposits, early payments, late payments
  * - For multiple leases: picks most recent (by end_date)
+ *
+ * LEASE RESOLUTION INDEX:
+ * - Lookups run against an in-memory LeaseResolutionIndex loaded with one query, so
+ *   linking a batch costs no database round trip per transaction
+ * - With several matching leases, the one whose dates cover the transaction wins,
+ *   falling back to the most recent as before
+ * - Rebuilt on next use after invoice writes (JPA listener, again after commit), after
+ *   PayProp syncs and historical imports, and after payprop.lease-index.ttl-seconds
+ *   as a backstop for direct JDBC writes
  */
 @Service
 public class PayPropInvoiceLinkingService {
@@ -31,6 +47,18 @@ public class PayPropInvoiceLinkingService {
     @Autowired
     private InvoiceRepository invoiceRepository;
 
+    @Value("${payprop.lease-index.ttl-seconds:600}")
+    private long indexTtlSeconds;
+
+    private final AtomicLong invoiceVersion = new AtomicLong();
+    private final Object indexLock = new Object();
+    private volatile CachedIndex cachedIndex;
+
+    @PostConstruct
+    void registerEntityListener() {
+        LeaseResolutionIndexEntityListener.register(this);
+    }
+
     /**
      * Find the most appropriate invoice (lease) for a transaction
      * Delegates to the full method with null tenantPayPropId
@@ -55,7 +83,7 @@ public class PayPropInvoiceLinkingService {
      * @param customer The customer (tenant/beneficiary) - may be null
      * @param payPropInvoiceId PayProp invoice ID (may be null)
      * @param tenantPayPropId PayProp tenant ID from the payment (may be null)
-     * @param transactionDate Date of the transaction (informational)
+     * @param transactionDate Date of the transaction (picks between several matching leases)
      * @return Best matching invoice, or null if no match found
      */
     public Invoice findInvoiceForTransaction(Property property,
@@ -69,9 +97,11 @@ public class PayPropInvoiceLinkingService {
             return null;
         }
 
+        LeaseResolutionIndex index = getIndex();
+
         // PRIORITY 1: Try PayProp invoice ID match (exact)
         if (payPropInvoiceId != null && !payPropInvoiceId.trim().isEmpty()) {
-            Invoice invoice = findInvoiceByPayPropId(payPropInvoiceId);
+            Invoice invoice = index.findByPayPropId(payPropInvoiceId);
             if (invoice != null) {
                 log.info("✅ Found invoice by PayProp ID: {} → invoice {}",
                         payPropInvoiceId, invoice.getId());
@@ -83,21 +113,21 @@ public class PayPropInvoiceLinkingService {
         // This is MORE RELIABLE than customer entity matching because it uses the
         // PayProp tenant ID stored on the invoice (payprop_customer_id field)
         if (tenantPayPropId != null && !tenantPayPropId.trim().isEmpty()) {
-            List<Invoice> tenantLeases = invoiceRepository.findByPropertyAndPaypropCustomerId(
-                property, tenantPayPropId);
+            LeaseResolutionIndex.Leases tenantLeases = index.findByPropertyAndTenant(
+                property.getId(), tenantPayPropId);
 
             if (tenantLeases.size() == 1) {
-                Invoice invoice = tenantLeases.get(0);
+                Invoice invoice = tenantLeases.getMostRecent();
                 log.info("✅ Found single lease for property {} + PayProp tenant {}: invoice {}",
                         property.getId(), tenantPayPropId, invoice.getId());
                 return invoice;
             }
 
             if (tenantLeases.size() > 1) {
-                // Multiple leases: query already ordered by end_date DESC NULLS FIRST (ongoing first)
-                Invoice invoice = tenantLeases.get(0);
-                log.info("✅ Found {} leases for property {} + PayProp tenant {}, using most recent: invoice {}",
-                        tenantLeases.size(), property.getId(), tenantPayPropId, invoice.getId());
+                // Multiple leases: the one covering the transaction date, else ongoing/most recent
+                Invoice invoice = tenantLeases.resolve(transactionDate);
+                log.info("✅ Found {} leases for property {} + PayProp tenant {}, using invoice {} for {}",
+                        tenantLeases.size(), property.getId(), tenantPayPropId, invoice.getId(), transactionDate);
                 return invoice;
             }
 
@@ -107,28 +137,22 @@ public class PayPropInvoiceLinkingService {
 
         // PRIORITY 3: Property + Customer entity match (fallback if PayProp ID not on invoice)
         if (customer != null) {
-            List<Invoice> customerLeases = invoiceRepository.findByCustomerAndProperty(
-                customer, property);
+            LeaseResolutionIndex.Leases customerLeases = index.findByPropertyAndCustomer(
+                property.getId(), customer.getCustomerId());
 
             if (customerLeases.size() == 1) {
-                Invoice invoice = customerLeases.get(0);
+                Invoice invoice = customerLeases.getMostRecent();
                 log.info("✅ Found single lease for property {} + customer {}: invoice {}",
                         property.getId(), customer.getCustomerId(), invoice.getId());
                 return invoice;
             }
 
             if (customerLeases.size() > 1) {
-                // Multiple leases: Pick most recent by end_date
-                // nullsFirst = ongoing leases (null end_date) are preferred over ended leases
-                Invoice invoice = customerLeases.stream()
-                    .sorted(Comparator.comparing(Invoice::getEndDate,
-                                               Comparator.nullsFirst(Comparator.reverseOrder())))
-                    .findFirst()
-                    .orElse(null);
-
-                log.info("✅ Found {} leases for property {} + customer {}, using most recent: invoice {}",
+                // Multiple leases: the one covering the transaction date, else ongoing/most recent
+                Invoice invoice = customerLeases.resolve(transactionDate);
+                log.info("✅ Found {} leases for property {} + customer {}, using invoice {} for {}",
                         customerLeases.size(), property.getId(), customer.getCustomerId(),
-                        invoice != null ? invoice.getId() : "null");
+                        invoice.getId(), transactionDate);
                 return invoice;
             }
 
@@ -137,7 +161,7 @@ public class PayPropInvoiceLinkingService {
         }
 
         // PRIORITY 4: Property-only fallback (weakest)
-        List<Invoice> propertyLeases = invoiceRepository.findByProperty(property);
+        LeaseResolutionIndex.Leases propertyLeases = index.findByProperty(property.getId());
 
         if (propertyLeases.isEmpty()) {
             log.warn("❌ No invoices found for property {}", property.getId());
@@ -145,23 +169,17 @@ public class PayPropInvoiceLinkingService {
         }
 
         if (propertyLeases.size() == 1) {
-            Invoice invoice = propertyLeases.get(0);
+            Invoice invoice = propertyLeases.getMostRecent();
             log.info("✅ Found single lease for property {}: invoice {}",
                     property.getId(), invoice.getId());
             return invoice;
         }
 
-        // Multiple leases: Pick most recent by end_date
-        // nullsFirst = ongoing leases (null end_date) are preferred over ended leases
-        Invoice invoice = propertyLeases.stream()
-            .sorted(Comparator.comparing(Invoice::getEndDate,
-                                       Comparator.nullsFirst(Comparator.reverseOrder())))
-            .findFirst()
-            .orElse(null);
-
-        log.info("✅ Found {} leases for property {}, using most recent: invoice {}",
-                propertyLeases.size(), property.getId(),
-                invoice != null ? invoice.getId() : "null");
+        // Multiple leases: the one covering the transaction date, else ongoing/most recent
+        Invoice invoice = propertyLeases.resolve(transactionDate);
+
+        log.info("✅ Found {} leases for property {}, using invoice {} for {}",
+                propertyLeases.size(), property.getId(), invoice.getId(), transactionDate);
         return invoice;
     }
 
@@ -191,11 +209,11 @@ public class PayPropInvoiceLinkingService {
             return null;
         }
 
-        Optional<Invoice> invoice = invoiceRepository.findByPaypropId(payPropInvoiceId);
+        Invoice invoice = getIndex().findByPayPropId(payPropInvoiceId);
 
-        if (invoice.isPresent()) {
+        if (invoice != null) {
             log.debug("Found invoice by PayProp ID: {}", payPropInvoiceId);
-            return invoice.get();
+            return invoice;
         }
 
         log.debug("No invoice found for PayProp ID: {}", payPropInvoiceId);
@@ -244,4 +262,80 @@ public class PayPropInvoiceLinkingService {
                                          String payPropTransactionId) {
         return findInvoiceWithLogging(property, null, tenantPayPropId, transactionDate, payPropTransactionId);
     }
+
+    // ===== LEASE RESOLUTION INDEX =====
+
+    /**
+     * Current index, rebuilt from one query when invoices changed or it expired.
+     */
+    public LeaseResolutionIndex getIndex() {
+        CachedIndex cached = cachedIndex;
+        if (isCurrent(cached)) {
+            return cached.index;
+        }
+        synchronized (indexLock) {
+            cached = cachedIndex;
+            if (isCurrent(cached)) {
+                return cached.index;
+            }
+            // Read the version first: a write during the load leaves the new index stale
+            long version = invoiceVersion.get();
+            long started = System.nanoTime();
+            LeaseResolutionIndex index = new LeaseResolutionIndex(invoiceRepository.findAllForLeaseResolution());
+            cachedIndex = new CachedIndex(index, version, System.nanoTime());
+            log.info("🗂️ Built lease resolution index: {} invoices in {}ms",
+                    index.getInvoiceCount(), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started));
+            return index;
+        }
+    }
+
+    private boolean isCurrent(CachedIndex cached) {
+        return cached != null
+                && cached.version == invoiceVersion.get()
+                && System.nanoTime() - cached.loadedAt < TimeUnit.SECONDS.toNanos(indexTtlSeconds);
+    }
+
+    public void invalidateIndex() {
+        invoiceVersion.incrementAndGet();
+    }
+
+    /**
+     * Invalidate now and, inside a transaction, again after it commits - a concurrent
+     * rebuild could otherwise index the pre-commit invoices.
+     */
+    void invalidateIndexNowAndAfterCommit() {
+        invalidateIndex();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidateIndex();
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onPayPropDataSynced(PayPropDataSyncedEvent event) {
+        log.debug("PayProp sync finished - invalidating lease resolution index");
+        invalidateIndex();
+    }
+
+    @EventListener
+    public void onHistoricalDataImported(HistoricalDataImportedEvent event) {
+        log.debug("Historical import finished - invalidating lease resolution index");
+        invalidateIndex();
+    }
+
+    private static final class CachedIndex {
+        final LeaseResolutionIndex index;
+        final long version;
+        final long loadedAt;
+
+        CachedIndex(LeaseResolutionIndex index, long version, long loadedAt) {
+            this.index = index;
+            this.version = version;
+            this.loadedAt = loadedAt;
+        }
+    }
 }
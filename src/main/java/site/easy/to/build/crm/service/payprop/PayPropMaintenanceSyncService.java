@@ -2,13 +2,17 @@
 package site.easy.to.build.crm.service.payprop;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Lazy;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -70,6 +74,12 @@ public class PayPropMaintenanceSyncService {
     
     @Autowired
     private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PayPropTicketMessageService ticketMessageService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
     
     // ===== IMPORT FROM PAYPROP =====
     
@@ -175,9 +185,10 @@ public class PayPropMaintenanceSyncService {
     
     /**
      * Import all maintenance tickets from PayProp
-     * Runs in separate transaction to prevent rollback of parent transaction on 403 errors
+     * Runs outside the caller's transaction to prevent rollback of parent transaction on 403 errors;
+     * each ticket commits in its own transaction so one failing ticket does not roll back the run
      */
-    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    @Transactional(propagation = Propagation.NOT_SUPPORTED)
     public SyncResult importMaintenanceTickets() {
         log.info("🎫 Starting maintenance tickets import from PayProp...");
 
@@ -206,33 +217,53 @@ public class PayPropMaintenanceSyncService {
                 throw apiError;
             }
 
-            int created = 0, updated = 0, skipped = 0, errors = 0;
-            
+            // Resolved once per run instead of per ticket
+            AssignmentTargets targets = resolveAssignmentTargets();
+            Map<String, TicketSyncState> knownTickets = loadTicketSyncState();
+            TransactionTemplate ticketTransaction = new TransactionTemplate(transactionManager);
+            ticketTransaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+
+            int created = 0, updated = 0, unchanged = 0, skipped = 0, errors = 0;
+            int messageFetches = 0, messagesAdded = 0;
+
             for (Map<String, Object> ticketData : allTickets) {
+                String payPropTicketId = (String) ticketData.get("id");
                 try {
-                    MaintenanceTicketSyncResult result = syncMaintenanceTicketFromPayProp(ticketData);
-                    switch (result) {
-                        case CREATED: created++; break;
-                        case UPDATED: updated++; break;
-                        case SKIPPED: skipped++; break;
-                        case ERROR: errors++; break;
+                    TicketImportOutcome outcome = ticketTransaction.execute(status ->
+                        importTicket(ticketData, payPropTicketId, targets, knownTickets));
+                    if (outcome.result == null) {
+                        unchanged++;
+                    } else {
+                        switch (outcome.result) {
+                            case CREATED: created++; break;
+                            case UPDATED: updated++; break;
+                            case SKIPPED: skipped++; break;
+                            case ERROR: errors++; break;
+                        }
+                    }
+                    if (outcome.messagesFetched) {
+                        messageFetches++;
+                        messagesAdded += outcome.messagesAdded;
                     }
                 } catch (Exception e) {
                     errors++;
-                    log.error("❌ Failed to sync ticket {}: {}", ticketData.get("id"), e.getMessage());
+                    log.error("❌ Failed to sync ticket {}: {}", payPropTicketId, e.getMessage());
                 }
             }
             
-            log.info("🎫 Maintenance tickets import completed: {} created, {} updated, {} skipped, {} errors", 
-                created, updated, skipped, errors);
+            log.info("🎫 Maintenance tickets import completed: {} created, {} updated, {} unchanged, {} skipped, {} errors " +
+                "({} message fetches, {} new messages)",
+                created, updated, unchanged, skipped, errors, messageFetches, messagesAdded);
             
-            Map<String, Object> details = Map.of(
-                "total_processed", allTickets.size(),
-                "created", created,
-                "updated", updated,
-                "skipped", skipped,
-                "errors", errors
-            );
+            Map<String, Object> details = new LinkedHashMap<>();
+            details.put("total_processed", allTickets.size());
+            details.put("created", created);
+            details.put("updated", updated);
+            details.put("unchanged", unchanged);
+            details.put("skipped", skipped);
+            details.put("errors", errors);
+            details.put("message_fetches", messageFetches);
+            details.put("messages_added", messagesAdded);
             
             return errors == 0 ? 
                 SyncResult.success("Maintenance tickets imported successfully", details) :
@@ -250,6 +281,11 @@ public class PayPropMaintenanceSyncService {
      */
     @Transactional(propagation = Propagation.REQUIRES_NEW)
     public MaintenanceTicketSyncResult syncMaintenanceTicketFromPayProp(Map<String, Object> ticketData) {
+        return syncMaintenanceTicketFromPayProp(ticketData, null);
+    }
+
+    private MaintenanceTicketSyncResult syncMaintenanceTicketFromPayProp(Map<String, Object> ticketData,
+                                                                         AssignmentTargets targets) {
         try {
             String payPropTicketId = (String) ticketData.get("id");
             
@@ -269,7 +305,7 @@ public class PayPropMaintenanceSyncService {
             }
             
             // Only create NEW tickets from PayProp
-            Ticket ticket = createTicketFromPayPropData(ticketData);
+            Ticket ticket = createTicketFromPayPropData(ticketData, targets != null ? targets : resolveAssignmentTargets());
             if (ticket == null) {
                 return MaintenanceTicketSyncResult.SKIPPED;
             }
@@ -294,7 +330,7 @@ public class PayPropMaintenanceSyncService {
     /**
      * Create ticket from PayProp data
      */
-    private Ticket createTicketFromPayPropData(Map<String, Object> ticketData) {
+    private Ticket createTicketFromPayPropData(Map<String, Object> ticketData, AssignmentTargets targets) {
         try {
             String payPropTicketId = (String) ticketData.get("id");
             String payPropPropertyId = (String) ticketData.get("property_id");
@@ -302,7 +338,7 @@ public class PayPropMaintenanceSyncService {
             String payPropCategoryId = (String) ticketData.get("category_id");
             
             // Find or create customer for this ticket
-            Customer customer = findOrCreateCustomerForTicket(payPropPropertyId, payPropTenantId);
+            Customer customer = findOrCreateCustomerForTicket(payPropPropertyId, payPropTenantId, targets);
             if (customer == null) {
                 log.warn("⚠️ Could not resolve customer for ticket {}", payPropTicketId);
                 return null;
@@ -388,7 +424,7 @@ public class PayPropMaintenanceSyncService {
             }
             
             // Auto-assign based on customer or property
-            autoAssignTicket(ticket, customer);
+            autoAssignTicket(ticket, customer, targets);
             
             return ticket;
             
@@ -430,7 +466,8 @@ public class PayPropMaintenanceSyncService {
     /**
      * Find or create customer for ticket based on property/tenant info
      */
-    private Customer findOrCreateCustomerForTicket(String payPropPropertyId, String payPropTenantId) {
+    private Customer findOrCreateCustomerForTicket(String payPropPropertyId, String payPropTenantId,
+                                                   AssignmentTargets targets) {
         // Try to find tenant first (they're the ones reporting issues)
         if (payPropTenantId != null) {
             Customer tenant = customerRepository.findByPayPropEntityId(payPropTenantId);
@@ -457,7 +494,7 @@ public class PayPropMaintenanceSyncService {
             }
             
             // Create placeholder customer for unknown property
-            return createPlaceholderCustomerForProperty(payPropPropertyId);
+            return createPlaceholderCustomerForProperty(payPropPropertyId, targets);
         }
         
         return null;
@@ -466,7 +503,7 @@ public class PayPropMaintenanceSyncService {
     /**
      * Create placeholder customer for unknown property
      */
-    private Customer createPlaceholderCustomerForProperty(String payPropPropertyId) {
+    private Customer createPlaceholderCustomerForProperty(String payPropPropertyId, AssignmentTargets targets) {
         try {
             Customer customer = new Customer();
             customer.setName("PayProp Property " + payPropPropertyId);
@@ -479,7 +516,7 @@ public class PayPropMaintenanceSyncService {
             
             // Find a default user to assign
             // You might want to make this configurable
-            User defaultUser = findDefaultUser();
+            User defaultUser = targets.defaultUser;
             if (defaultUser != null) {
                 customer.setUser(defaultUser);
                 customer = customerService.save(customer);
@@ -496,7 +533,7 @@ public class PayPropMaintenanceSyncService {
     /**
      * Auto-assign ticket to appropriate employee
      */
-    private void autoAssignTicket(Ticket ticket, Customer customer) {
+    private void autoAssignTicket(Ticket ticket, Customer customer, AssignmentTargets targets) {
         try {
             // Assign to customer's user if available
             if (customer.getUser() != null) {
@@ -507,7 +544,7 @@ public class PayPropMaintenanceSyncService {
             
             // Emergency tickets go to managers
             if ("emergency".equals(ticket.getUrgencyLevel())) {
-                User manager = findManagerUser();
+                User manager = targets.managerUser;
                 if (manager != null) {
                     ticket.setEmployee(manager);
                     ticket.setManager(manager);
@@ -516,7 +553,7 @@ public class PayPropMaintenanceSyncService {
             }
             
             // Assign to default user
-            User defaultUser = findDefaultUser();
+            User defaultUser = targets.defaultUser;
             if (defaultUser != null) {
                 ticket.setEmployee(defaultUser);
                 ticket.setManager(defaultUser);
@@ -528,31 +565,75 @@ public class PayPropMaintenanceSyncService {
     }
     
     /**
-     * Sync ticket messages from PayProp
+     * Import one PayProp ticket: create it if new, otherwise pick up its new messages when it changed
      */
-    private void syncTicketMessages(Ticket ticket, String payPropTicketId) {
-        try {
-            String endpoint = "/maintenance/tickets/" + payPropTicketId + "/messages";
-            List<Map<String, Object>> messages = apiClient.fetchAllPages(endpoint, Function.identity());
-            
-            for (Map<String, Object> messageData : messages) {
-                // For now, append messages to ticket description
-                // Later, implement proper TicketMessage entity
-                String messageId = (String) messageData.get("id");
-                String message = (String) messageData.get("message");
-                String authorType = (String) messageData.get("author_type");
-                
-                if (message != null) {
-                    String messagePrefix = "tenant".equals(authorType) ? "[Tenant]" : "[PayProp]";
-                    String formattedMessage = String.format("\n\n%s %s: %s", 
-                        messagePrefix, LocalDateTime.now(), message);
-                    
-                    ticket.setDescription(ticket.getDescription() + formattedMessage);
-                }
-            }
-            
-        } catch (Exception e) {
-            log.error("❌ Failed to sync messages for ticket {}: {}", payPropTicketId, e.getMessage());
+    private TicketImportOutcome importTicket(Map<String, Object> ticketData, String payPropTicketId,
+                                             AssignmentTargets targets, Map<String, TicketSyncState> knownTickets) {
+        PayPropTicketChange change = PayPropTicketChange.of(ticketData);
+        TicketSyncState state = payPropTicketId != null ? knownTickets.get(payPropTicketId) : null;
+        TicketImportOutcome outcome = new TicketImportOutcome();
+
+        Ticket ticket = null;
+        if (state == null) {
+            outcome.result = syncMaintenanceTicketFromPayProp(ticketData, targets);
+            if (outcome.result == MaintenanceTicketSyncResult.CREATED) {
+                ticket = ticketService.findByPayPropTicketId(payPropTicketId);
+            }
+        } else if (change.needsMessageSync(state.modifiedAt, state.messageCount)) {
+            // CRM is primary for ticket fields; only new messages come across
+            ticket = ticketRepository.findById(state.ticketId).orElse(null);
+            outcome.result = MaintenanceTicketSyncResult.UPDATED;
+        }
+
+        if (ticket != null) {
+            outcome.messagesFetched = true;
+            outcome.messagesAdded = syncTicketMessages(ticket, payPropTicketId);
+            ticketRepository.updatePayPropSyncState(ticket.getTicketId(),
+                change.getModifiedAt(), change.getMessageCount(), LocalDateTime.now());
+        }
+        return outcome;
+    }
+
+    /**
+     * Sync ticket messages from PayProp into ticket_messages (deduplicated by PayProp message id)
+     *
+     * @return number of new messages
+     */
+    private int syncTicketMessages(Ticket ticket, String payPropTicketId) {
+        String endpoint = "/maintenance/tickets/" + payPropTicketId + "/messages";
+        List<Map<String, Object>> messages = apiClient.fetchAllPages(endpoint, Function.identity());
+        return ticketMessageService.importMessages(ticket, messages);
+    }
+
+    /**
+     * Last synced PayProp signals of every known ticket, keyed by PayProp ticket id
+     */
+    private Map<String, TicketSyncState> loadTicketSyncState() {
+        Map<String, TicketSyncState> states = new HashMap<>();
+        for (Object[] row : ticketRepository.findPayPropSyncState()) {
+            states.put((String) row[0], new TicketSyncState((Integer) row[1], (LocalDateTime) row[2], (Integer) row[3]));
+        }
+        return states;
+    }
+
+    /**
+     * What importing one ticket did; a null result means unchanged since the last sync
+     */
+    private static final class TicketImportOutcome {
+        MaintenanceTicketSyncResult result;
+        boolean messagesFetched;
+        int messagesAdded;
+    }
+
+    private static final class TicketSyncState {
+        final int ticketId;
+        final LocalDateTime modifiedAt;
+        final Integer messageCount;
+
+        TicketSyncState(int ticketId, LocalDateTime modifiedAt, Integer messageCount) {
+            this.ticketId = ticketId;
+            this.modifiedAt = modifiedAt;
+            this.messageCount = messageCount;
         }
     }
     
@@ -836,39 +917,31 @@ public class PayPropMaintenanceSyncService {
     }
     
     /**
-     * Find default user for assignment
+     * Default and manager assignees: the first customer's user, and the first customer user
+     * with ROLE_MANAGER (falling back to the default user)
      */
-    private User findDefaultUser() {
+    private AssignmentTargets resolveAssignmentTargets() {
+        User defaultUser = null;
+        User managerUser = null;
         try {
             // You might want to make this configurable
-            return customerRepository.findAll().stream()
-                .map(Customer::getUser)
-                .filter(Objects::nonNull)
+            defaultUser = customerRepository.findCustomerUsers(PageRequest.of(0, 1)).stream().findFirst().orElse(null);
+            managerUser = customerRepository.findCustomerUsersWithRole("ROLE_MANAGER", PageRequest.of(0, 1)).stream()
                 .findFirst()
-                .orElse(null);
+                .orElse(defaultUser);
         } catch (Exception e) {
-            log.error("❌ Error finding default user: {}", e.getMessage());
-            return null;
+            log.error("❌ Error finding default assignees: {}", e.getMessage());
         }
+        return new AssignmentTargets(defaultUser, managerUser != null ? managerUser : defaultUser);
     }
-    
-    /**
-     * Find manager user for emergency assignments
-     */
-    private User findManagerUser() {
-        try {
-            // Find user with MANAGER role
-            return customerRepository.findAll().stream()
-                .map(Customer::getUser)
-                .filter(Objects::nonNull)
-                .filter(user -> user.getRoles() != null && 
-                              user.getRoles().stream().anyMatch(role -> 
-                                  "ROLE_MANAGER".equals(role.getName())))
-                .findFirst()
-                .orElse(findDefaultUser());
-        } catch (Exception e) {
-            log.error("❌ Error finding manager user: {}", e.getMessage());
-            return findDefaultUser();
+
+    private static final class AssignmentTargets {
+        final User defaultUser;
+        final User managerUser;
+
+        AssignmentTargets(User defaultUser, User managerUser) {
+            this.defaultUser = defaultUser;
+            this.managerUser = managerUser;
         }
     }
 
@@ -64,6 +64,9 @@ public class PayPropPortfolioSyncService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private PayPropTagSyncPipeline tagSyncPipeline;
+
     @Autowired(required = false)
     @Lazy
     private site.easy.to.build.crm.service.integration.PayPropGoogleIntegrationService integrationService;
@@ -936,7 +939,9 @@ public class PayPropPortfolioSyncService {
     // ===== BULK OPERATIONS =====
     
     /**
-     * Sync all portfolios that need synchronization
+     * Sync all portfolios that need synchronization.
+     * Portfolios without a PayProp tag get one first; property membership of every tagged
+     * portfolio is then brought in line by one PayPropTagSyncPipeline run.
      */
     public SyncResult syncAllPortfolios(Long initiatedBy) {
         if (!oAuth2Service.hasValidTokens()) {
@@ -944,46 +949,52 @@ public class PayPropPortfolioSyncService {
         }
         
         List<Portfolio> portfoliosNeedingSync = findPortfoliosNeedingSync();
-        
-        int successCount = 0;
-        int failureCount = 0;
-        int duplicateCount = 0;
         List<String> errors = new ArrayList<>();
+        int tagFailureCount = ensurePortfolioTags(portfoliosNeedingSync, errors);
+        
+        PayPropTagSyncPipeline.Report report = tagSyncPipeline.run(false);
+        errors.addAll(report.getErrors());
+        int failureCount = tagFailureCount + report.getUnitsFailed();
         
-        for (Portfolio portfolio : portfoliosNeedingSync) {
+        String message = String.format("Sync completed. Success: %d, Failed: %d, Tags added: %d, removed: %d", 
+            report.getUnitsCompleted(), failureCount, report.getTagsAdded(), report.getTagsRemoved());
+        Map<String, Object> details = new LinkedHashMap<>(report.toDetails());
+        details.put("totalPortfolios", portfoliosNeedingSync.size());
+        details.put("successCount", report.getUnitsCompleted());
+        details.put("failureCount", failureCount);
+        details.put("errors", errors);
+        
+        return failureCount == 0 ? 
+            SyncResult.success(message, details) : 
+            SyncResult.partial(message, details);
+    }
+    
+    /**
+     * Create or look up the PayProp tag of each portfolio that has none yet, without tagging
+     * properties. Returns the number of portfolios whose tag could not be ensured.
+     */
+    private int ensurePortfolioTags(List<Portfolio> portfolios, List<String> errors) {
+        int failureCount = 0;
+        for (Portfolio portfolio : portfolios) {
+            if (portfolio.getPayPropTags() != null && !portfolio.getPayPropTags().trim().isEmpty()) {
+                continue;
+            }
             try {
-                // Each portfolio sync in its own transaction
-                SyncResult result = syncPortfolioToPayPropInSeparateTransaction(portfolio.getId(), initiatedBy);
-                if (result.isSuccess()) {
-                    successCount++;
-                } else {
-                    failureCount++;
-                    errors.add("Portfolio " + portfolio.getName() + ": " + result.getMessage());
-                }
+                PayPropTagDTO tag = createOrGetPayPropTag(portfolio);
+                portfolio.setPayPropTags(tag.getId());
+                portfolio.setPayPropTagNames(tag.getName());
+                portfolioRepository.save(portfolio);
             } catch (DataIntegrityViolationException e) {
-                log.warn("Portfolio {} already exists during bulk sync, skipping", portfolio.getId());
-                duplicateCount++;
+                log.warn("Portfolio {} already exists when saving PayProp tag, skipping", portfolio.getId());
             } catch (Exception e) {
                 failureCount++;
-                log.error("Failed to sync portfolio {}: {}", portfolio.getName(), e.getMessage());
+                log.error("Failed to ensure PayProp tag for portfolio {}: {}", portfolio.getName(), e.getMessage());
                 errors.add("Portfolio " + portfolio.getName() + ": " + e.getMessage());
-                // Continue with next portfolio
+                portfolio.setSyncStatus(SyncStatus.failed);
+                portfolioRepository.save(portfolio);
             }
         }
-        
-        String message = String.format("Sync completed. Success: %d, Failed: %d, Duplicates: %d", 
-            successCount, failureCount, duplicateCount);
-        Map<String, Object> details = Map.of(
-            "totalPortfolios", portfoliosNeedingSync.size(),
-            "successCount", successCount,
-            "failureCount", failureCount,
-            "duplicateCount", duplicateCount,
-            "errors", errors
-        );
-        
-        return failureCount == 0 ? 
-            SyncResult.success(message, details) : 
-            SyncResult.partial(message, details);
+        return failureCount;
     }
     
     /**
@@ -1065,41 +1076,27 @@ public class PayPropPortfolioSyncService {
         List<PayPropTagDTO> allTags = getAllPayPropTags();
         
         // Filter out tags that are already associated with portfolios
+        Set<String> adoptedTagIds = portfolioRepository.findByPayPropTagsIsNotNull().stream()
+            .flatMap(portfolio -> PayPropTagSyncPipeline.splitTags(portfolio.getPayPropTags()).stream())
+            .collect(Collectors.toSet());
         return allTags.stream()
-            .filter(tag -> {
-                // Check if any portfolio already uses this tag
-                List<Portfolio> existingPortfolios = portfolioRepository.findAll().stream()
-                    .filter(portfolio -> portfolioHasPayPropTag(portfolio, tag.getId()))
-                    .collect(Collectors.toList());
-                return existingPortfolios.isEmpty();
-            })
+            .filter(tag -> !adoptedTagIds.contains(tag.getId()))
             .collect(Collectors.toList());
     }
 
     /**
      * Bulk apply tags to multiple properties
-     * More efficient for portfolio assignment
+     * Only properties PayProp does not already show under the tag are called, concurrently
+     * under the shared API rate budget
      */
     public Map<String, Object> bulkApplyTagToProperties(String tagId, List<String> payPropPropertyIds) {
-        Map<String, Object> result = new HashMap<>();
-        int successCount = 0;
-        int failureCount = 0;
-        List<String> errors = new ArrayList<>();
+        PayPropTagSyncPipeline.Report report = tagSyncPipeline.applyTag(tagId, payPropPropertyIds);
         
-        for (String propertyId : payPropPropertyIds) {
-            try {
-                applyTagToProperty(propertyId, tagId);
-                successCount++;
-            } catch (Exception e) {
-                failureCount++;
-                errors.add("Property " + propertyId + ": " + e.getMessage());
-                log.error("Failed to apply tag {} to property {}: {}", tagId, propertyId, e.getMessage());
-            }
-        }
-        
-        result.put("successCount", successCount);
-        result.put("failureCount", failureCount);
-        result.put("errors", errors);
+        Map<String, Object> result = new HashMap<>();
+        result.put("successCount", report.getTagsAdded() + report.getUnchanged());
+        result.put("failureCount", report.getFailedCalls());
+        result.put("alreadyTagged", report.getUnchanged());
+        result.put("errors", report.getErrors());
         result.put("totalProcessed", payPropPropertyIds.size());
         
         return result;
@@ -1110,8 +1107,8 @@ public class PayPropPortfolioSyncService {
      * Find portfolios that contain a specific PayProp tag
      */
     private List<Portfolio> findPortfoliosByPayPropTag(String tagId) {
-        // This would ideally use a repository method, but implementing manually for now
-        return portfolioRepository.findAll().stream()
+        // LIKE narrows the candidates; exact match on the split tag list
+        return portfolioRepository.findByPayPropTag(tagId).stream()
             .filter(portfolio -> portfolioHasPayPropTag(portfolio, tagId))
             .collect(Collectors.toList());
     }
@@ -1147,11 +1144,7 @@ public class PayPropPortfolioSyncService {
      * Find portfolios needing sync
      */
     private List<Portfolio> findPortfoliosNeedingSync() {
-        // This would ideally use a repository method
-        return portfolioRepository.findAll().stream()
-            .filter(portfolio -> portfolio.getSyncStatus() == SyncStatus.pending || 
-                               portfolio.getSyncStatus() == SyncStatus.failed)
-            .collect(Collectors.toList());
+        return portfolioRepository.findBySyncStatusIn(List.of(SyncStatus.pending, SyncStatus.failed));
     }
     
     private PortfolioSyncLog createSyncLog(Long portfolioId, Long blockId, Long propertyId, 
@@ -1208,10 +1201,9 @@ public class PayPropPortfolioSyncService {
     private Long findValidSystemUserId() {
         // Try to find any valid user ID, or return null
         try {
-            // Find the first active user as a system fallback
-            List<User> users = userRepository.findAll();
-            if (!users.isEmpty()) {
-                User firstUser = users.get(0);
+            // Find the first user as a system fallback
+            User firstUser = userRepository.findFirstByOrderByIdAsc();
+            if (firstUser != null) {
                 log.debug("Using system user ID {} for sync log", firstUser.getId());
                 return firstUser.getId().longValue();
             }
@@ -1326,6 +1318,8 @@ public class PayPropPortfolioSyncService {
     
     /**
      * Sync all portfolios with their blocks (enhanced bulk operation)
+     * Missing portfolio and block tags are created first, then one PayPropTagSyncPipeline run
+     * diffs portfolio, block and standalone block membership together
      */
     public SyncResult syncAllPortfoliosWithBlocks(Long initiatedBy) {
         log.info("🏗️ Starting bulk hierarchical sync for all portfolios with blocks");
@@ -1335,54 +1329,47 @@ public class PayPropPortfolioSyncService {
         }
         
         List<Portfolio> portfoliosNeedingSync = findPortfoliosNeedingSync();
-        
-        int portfolioSuccessCount = 0;
-        int portfolioFailureCount = 0;
-        int totalBlocksSucceeded = 0;
-        int totalBlocksFailed = 0;
         List<String> errors = new ArrayList<>();
+        int portfolioFailureCount = ensurePortfolioTags(portfoliosNeedingSync, errors);
         
-        for (Portfolio portfolio : portfoliosNeedingSync) {
-            try {
-                log.info("🔄 Processing portfolio {} with hierarchical sync", portfolio.getId());
-                
-                SyncResult result = syncPortfolioWithBlocks(portfolio.getId(), initiatedBy);
-                if (result.isSuccess()) {
-                    portfolioSuccessCount++;
-                    
-                    // Extract block stats from result details
-                    Map<String, Object> details = (Map<String, Object>) result.getDetails();
-                    if (details != null) {
-                        totalBlocksSucceeded += ((Number) details.getOrDefault("blocksSucceeded", 0)).intValue();
-                        totalBlocksFailed += ((Number) details.getOrDefault("blocksFailed", 0)).intValue();
+        int blockTagFailureCount = 0;
+        if (blockSyncService != null) {
+            for (Portfolio portfolio : portfoliosNeedingSync) {
+                if (portfolio.getPayPropTags() == null || portfolio.getPayPropTags().trim().isEmpty()) {
+                    continue; // tag could not be created, its blocks cannot be synced
+                }
+                for (Block block : blockRepository.findActiveBlocksByPortfolioId(portfolio.getId())) {
+                    if (block.getPayPropTags() != null && !block.getPayPropTags().trim().isEmpty()) {
+                        continue;
+                    }
+                    try {
+                        blockSyncService.ensureBlockTag(block);
+                    } catch (Exception e) {
+                        blockTagFailureCount++;
+                        log.error("Failed to ensure PayProp tag for block {}: {}", block.getId(), e.getMessage());
+                        errors.add("Block " + block.getName() + ": " + e.getMessage());
                     }
-                    
-                } else {
-                    portfolioFailureCount++;
-                    errors.add("Portfolio " + portfolio.getName() + ": " + result.getMessage());
                 }
-            } catch (Exception e) {
-                portfolioFailureCount++;
-                log.error("Failed to sync portfolio {} hierarchically: {}", portfolio.getName(), e.getMessage());
-                errors.add("Portfolio " + portfolio.getName() + ": " + e.getMessage());
-                // Continue with next portfolio
             }
+        } else {
+            log.warn("⚠️ PayPropBlockSyncService not available, only existing block tags are synced");
         }
         
+        PayPropTagSyncPipeline.Report report = tagSyncPipeline.run(true);
+        errors.addAll(report.getErrors());
+        int failureCount = portfolioFailureCount + blockTagFailureCount + report.getUnitsFailed();
+        
         String message = String.format(
-            "Hierarchical sync completed. Portfolios - Success: %d, Failed: %d. Blocks - Success: %d, Failed: %d", 
-            portfolioSuccessCount, portfolioFailureCount, totalBlocksSucceeded, totalBlocksFailed);
+            "Hierarchical sync completed. Units - Success: %d, Failed: %d. Tags added: %d, removed: %d", 
+            report.getUnitsCompleted(), failureCount, report.getTagsAdded(), report.getTagsRemoved());
         
-        Map<String, Object> details = Map.of(
-            "totalPortfolios", portfoliosNeedingSync.size(),
-            "portfolioSuccessCount", portfolioSuccessCount,
-            "portfolioFailureCount", portfolioFailureCount,
-            "totalBlocksSucceeded", totalBlocksSucceeded,
-            "totalBlocksFailed", totalBlocksFailed,
-            "errors", errors
-        );
+        Map<String, Object> details = new LinkedHashMap<>(report.toDetails());
+        details.put("totalPortfolios", portfoliosNeedingSync.size());
+        details.put("portfolioTagFailureCount", portfolioFailureCount);
+        details.put("blockTagFailureCount", blockTagFailureCount);
+        details.put("errors", errors);
         
-        return portfolioFailureCount == 0 ? 
+        return failureCount == 0 ? 
             SyncResult.success(message, details) : 
             SyncResult.failure(message, details);
     }
@@ -1399,8 +1386,7 @@ public class PayPropPortfolioSyncService {
         }
         
         // Find portfolios that are synced but may have blocks needing sync
-        List<Portfolio> syncedPortfolios = portfolioRepository.findAll().stream()
-            .filter(p -> p.getSyncStatus() == SyncStatus.synced)
+        List<Portfolio> syncedPortfolios = portfolioRepository.findBySyncStatus(SyncStatus.synced).stream()
             .filter(p -> p.getPayPropTags() != null && !p.getPayPropTags().trim().isEmpty())
             .collect(Collectors.toList());
         
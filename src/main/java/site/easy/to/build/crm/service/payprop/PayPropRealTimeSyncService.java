@@ -1,6 +1,5 @@
 package site.easy.to.build.crm.service.payprop;
 
-import com.google.common.util.concurrent.RateLimiter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
@@ -13,6 +12,7 @@ import org.slf4j.LoggerFactory;
 import site.easy.to.build.crm.config.TicketSyncConfig;
 import site.easy.to.build.crm.entity.Ticket;
 import site.easy.to.build.crm.service.ticket.TicketService;
+import site.easy.to.build.crm.service.io.IntervalRateLimiter;
 
 import java.time.LocalDateTime;
 import java.util.HashMap;
@@ -40,7 +40,7 @@ public class PayPropRealTimeSyncService {
     
     @Autowired
     @Qualifier("payPropTicketRateLimiter")
-    private RateLimiter rateLimiter;
+    private IntervalRateLimiter rateLimiter;
     
     @Autowired
     @Qualifier("payPropCircuitBreaker")
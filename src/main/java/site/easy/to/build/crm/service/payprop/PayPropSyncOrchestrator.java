@@ -92,9 +92,19 @@ public class PayPropSyncOrchestrator {
     @Autowired
     private PayPropLeaseCreationService payPropLeaseCreationService;
 
+    @Autowired
+    private site.easy.to.build.crm.service.payprop.raw.PayPropRawRecordHashService recordHashService;
+
     @Value("${payprop.sync.batch-size:25}")
     private int batchSize;
 
+    // Skip PayProp items whose content hash matches what the last successful sync applied
+    @Value("${payprop.sync.skip-unchanged:false}")
+    private boolean skipUnchanged;
+
+    private static final String SYNC_PROPERTIES_SOURCE = "sync:properties";
+    private static final String SYNC_TENANTS_SOURCE = "sync:tenants";
+
     @Autowired
     public PayPropSyncOrchestrator(PayPropSyncService payPropSyncService,
                                   PayPropSyncLogger syncLogger,
@@ -548,6 +558,7 @@ public class PayPropSyncOrchestrator {
             int totalErrors = 0;
             int rentAmountsFound = 0;
             int occupancyDetected = 0;
+            int totalUnchanged = 0;
             
             while (true) {
                 PayPropExportResult exportResult = 
@@ -557,38 +568,48 @@ public class PayPropSyncOrchestrator {
                     break;
                 }
 
+                // Track rent and occupancy data quality over every exported property, skipped or not
                 for (Map<String, Object> propertyData : exportResult.getItems()) {
+                    if (propertyData.get("monthly_payment_required") != null) {
+                        rentAmountsFound++;
+                    }
+                    List<Map<String, Object>> activeTenancies = (List<Map<String, Object>>) propertyData.get("active_tenancies");
+                    if (activeTenancies != null && !activeTenancies.isEmpty()) {
+                        occupancyDetected++;
+                    }
+                }
+
+                List<Map<String, Object>> items = changedItems(SYNC_PROPERTIES_SOURCE, exportResult.getItems(),
+                    "SELECT payprop_id FROM properties WHERE payprop_id IN (%s)");
+                totalUnchanged += exportResult.getItems().size() - items.size();
+                List<Map<String, Object>> synced = new ArrayList<>();
+
+                for (Map<String, Object> propertyData : items) {
                     try {
-                        // Track rent and occupancy data quality
-                        if (propertyData.get("monthly_payment_required") != null) {
-                            rentAmountsFound++;
-                        }
-                        
-                        List<Map<String, Object>> activeTenancies = (List<Map<String, Object>>) propertyData.get("active_tenancies");
-                        if (activeTenancies != null && !activeTenancies.isEmpty()) {
-                            occupancyDetected++;
-                        }
-                        
                         boolean isNew = createOrUpdateProperty(propertyData, initiatedBy);
                         if (isNew) totalCreated++; else totalUpdated++;
                         totalProcessed++;
+                        synced.add(propertyData);
                     } catch (Exception e) {
                         totalErrors++;
                         log.error("Failed to sync property {}: {}", propertyData.get("id"), e.getMessage());
                     }
                 }
+                markSynced(SYNC_PROPERTIES_SOURCE, synced);
                 page++;
             }
 
+            int totalExported = totalProcessed + totalErrors + totalUnchanged;
             Map<String, Object> details = Map.of(
                 "processed", totalProcessed,
                 "created", totalCreated, 
                 "updated", totalUpdated,
+                "unchanged", totalUnchanged,
                 "errors", totalErrors,
                 "rentAmountsFound", rentAmountsFound,
                 "occupancyDetected", occupancyDetected,
-                "rentDataQuality", totalProcessed > 0 ? (rentAmountsFound * 100.0 / totalProcessed) : 0,
-                "occupancyDataQuality", totalProcessed > 0 ? (occupancyDetected * 100.0 / totalProcessed) : 0
+                "rentDataQuality", totalExported > 0 ? (rentAmountsFound * 100.0 / totalExported) : 0,
+                "occupancyDataQuality", totalExported > 0 ? (occupancyDetected * 100.0 / totalExported) : 0
             );
 
             return totalErrors == 0 ? 
@@ -787,6 +808,7 @@ public class PayPropSyncOrchestrator {
             int totalCreated = 0;
             int totalUpdated = 0;
             int totalErrors = 0;
+            int totalUnchanged = 0;
             
             while (true) {
                 PayPropExportResult exportResult = 
@@ -796,11 +818,17 @@ public class PayPropSyncOrchestrator {
                     break;
                 }
 
-                for (Map<String, Object> tenantData : exportResult.getItems()) {
+                List<Map<String, Object>> items = changedItems(SYNC_TENANTS_SOURCE, exportResult.getItems(),
+                    "SELECT payprop_entity_id FROM customers WHERE payprop_entity_id IN (%s)");
+                totalUnchanged += exportResult.getItems().size() - items.size();
+                List<Map<String, Object>> synced = new ArrayList<>();
+
+                for (Map<String, Object> tenantData : items) {
                     try {
                         boolean isNew = createOrUpdateTenantCustomer(tenantData, initiatedBy);
                         if (isNew) totalCreated++; else totalUpdated++;
                         totalProcessed++;
+                        synced.add(tenantData);
                     } catch (Exception e) {
                         totalErrors++;
                         log.error("Failed to sync tenant {}: {}", tenantData.get("id"), e.getMessage(), e);
@@ -812,6 +840,7 @@ public class PayPropSyncOrchestrator {
                         log.error("ROOT CAUSE: {}", rootCause.getMessage());
                     }
                 }
+                markSynced(SYNC_TENANTS_SOURCE, synced);
                 page++;
             }
 
@@ -819,6 +848,7 @@ public class PayPropSyncOrchestrator {
                 "processed", totalProcessed,
                 "created", totalCreated,
                 "updated", totalUpdated,
+                "unchanged", totalUnchanged,
                 "errors", totalErrors
             );
 
@@ -1251,6 +1281,43 @@ public class PayPropSyncOrchestrator {
 
     // ===== ENTITY CREATION/UPDATE METHODS =====
 
+    /**
+     * Items of a page to apply: all of them by default. With payprop.sync.skip-unchanged=true, an
+     * item is left out only if it is unchanged since the last successful sync and its CRM record
+     * still exists (existingIdsSql selects the PayProp ids present locally), so records deleted
+     * or never created in the CRM are always re-applied.
+     */
+    private List<Map<String, Object>> changedItems(String source, List<Map<String, Object>> items, String existingIdsSql) {
+        if (!skipUnchanged || items.isEmpty()) {
+            return items;
+        }
+        List<Map<String, Object>> changed = recordHashService.filterChanged(source, items);
+        if (changed.size() == items.size()) {
+            return changed;
+        }
+        List<String> ids = items.stream()
+            .map(item -> item.get("id"))
+            .filter(Objects::nonNull)
+            .map(Object::toString)
+            .collect(Collectors.toList());
+        Set<String> existing = ids.isEmpty() ? Set.of() : new HashSet<>(jdbcTemplate.queryForList(
+            existingIdsSql.formatted(String.join(",", Collections.nCopies(ids.size(), "?"))),
+            String.class, ids.toArray()));
+
+        Set<Map<String, Object>> changedSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        changedSet.addAll(changed);
+        return items.stream()
+            .filter(item -> changedSet.contains(item)
+                || item.get("id") == null || !existing.contains(item.get("id").toString()))
+            .collect(Collectors.toList());
+    }
+
+    private void markSynced(String source, List<Map<String, Object>> synced) {
+        if (skipUnchanged) {
+            recordHashService.markSynced(source, synced);
+        }
+    }
+
     private boolean createOrUpdateProperty(Map<String, Object> propertyData, Long initiatedBy) {
         String payPropId = (String) propertyData.get("id");
 
@@ -0,0 +1,469 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.entity.SyncStatus;
+import site.easy.to.build.crm.entity.TagSyncProgress;
+import site.easy.to.build.crm.repository.TagSyncProgressRepository;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
+
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * PayProp Tag Sync Pipeline
+ *
+ * Brings PayProp tag membership in line with local portfolio and block assignments in one run:
+ *
+ * 1. Desired membership for every tagged portfolio and block is loaded with a few set-based queries
+ * 2. Actual membership is fetched once per tag from PayProp
+ * 3. TagMembershipDiff works out the adds and removes; properties already tagged cost nothing
+ * 4. The calls run on OutboundIo under the PayProp concurrency cap; every call takes a slot from
+ *    PayPropApiClient's global rate budget, so they only overlap request latency and never exceed
+ *    the rate limit
+ *
+ * Progress is recorded per portfolio (standalone blocks count as their own unit) in
+ * payprop_tag_sync_progress. If a run ends with units PENDING or FAILED, the next run resumes it
+ * and skips the units that completed. Only unfinished units that the new run loads itself count,
+ * and a run is given up (a fresh run starts) once it is older than MAX_RESUME_AGE or all of
+ * those units have been tried MAX_UNIT_ATTEMPTS times, so one unit that keeps failing cannot
+ * pin every later run to the old one.
+ */
+@ConditionalOnProperty(name = "payprop.enabled", havingValue = "true", matchIfMissing = false)
+@Service
+public class PayPropTagSyncPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropTagSyncPipeline.class);
+
+    private static final int MEMBERSHIP_PAGE_SIZE = 25;
+    private static final Duration MEMBERSHIP_FETCH_DEADLINE = Duration.ofMinutes(15);
+    static final int MAX_UNIT_ATTEMPTS = 3;
+    static final Duration MAX_RESUME_AGE = Duration.ofHours(24);
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PayPropApiClient apiClient;
+    private final TagSyncProgressRepository progressRepository;
+    private final OutboundIo outboundIo;
+
+    public PayPropTagSyncPipeline(JdbcTemplate jdbcTemplate,
+                                  PayPropApiClient apiClient,
+                                  TagSyncProgressRepository progressRepository,
+                                  OutboundIo outboundIo) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.apiClient = apiClient;
+        this.progressRepository = progressRepository;
+        this.outboundIo = outboundIo;
+    }
+
+    /**
+     * Sync tag membership of every active tagged portfolio, and of their blocks and standalone
+     * blocks when includeBlocks is set. Resumes the previous run if it did not finish.
+     */
+    public synchronized Report run(boolean includeBlocks) {
+        long started = System.currentTimeMillis();
+        List<TagMembershipDiff.Unit> units = loadUnits(includeBlocks);
+
+        LocalDateTime now = LocalDateTime.now();
+        TagSyncProgress latest = progressRepository.findFirstByOrderByStartedAtDescIdDesc();
+        List<TagSyncProgress> previous = latest != null ? progressRepository.findByRunId(latest.getRunId()) : List.of();
+        Set<String> unitKeys = units.stream().map(TagMembershipDiff.Unit::getKey).collect(Collectors.toSet());
+        boolean resumed = isResumable(previous, unitKeys, now);
+        String runId = resumed ? latest.getRunId() : UUID.randomUUID().toString();
+
+        Map<String, TagSyncProgress> progressByUnit = new HashMap<>();
+        if (resumed) {
+            previous.forEach(p -> progressByUnit.put(p.getUnitKey(), p));
+        }
+        Set<String> completed = progressByUnit.values().stream()
+            .filter(p -> TagSyncProgress.STATUS_COMPLETED.equals(p.getStatus()))
+            .map(TagSyncProgress::getUnitKey)
+            .collect(Collectors.toSet());
+
+        List<TagMembershipDiff.Unit> remaining = units.stream()
+            .filter(unit -> !completed.contains(unit.getKey()))
+            .collect(Collectors.toList());
+        log.info("🏷️ Tag sync run {}{}: {} units ({} already completed)",
+            runId, resumed ? " (resumed)" : "", units.size(), units.size() - remaining.size());
+
+        // Diff against all units so a skipped unit's members are never removed from a shared tag
+        Set<String> tags = remaining.stream()
+            .flatMap(unit -> unit.getTagIds().stream())
+            .collect(Collectors.toCollection(TreeSet::new));
+        Map<String, Set<String>> actualByTag = fetchMemberships(tags);
+        TagMembershipDiff diff = new TagMembershipDiff(units, actualByTag);
+        log.info("🏷️ Tag sync plan: {} tags, {} unknown, {} add calls, {} remove calls",
+            tags.size(), tags.size() - actualByTag.size(), diff.getAddCallCount(), diff.getRemoveCallCount());
+
+        List<TagSyncProgress> attempted = new ArrayList<>();
+        for (TagMembershipDiff.Unit unit : remaining) {
+            TagSyncProgress progress = progressByUnit.computeIfAbsent(unit.getKey(),
+                key -> new TagSyncProgress(runId, key, unit.getPortfolioId(), now));
+            progress.setAttempts(progress.getAttempts() + 1);
+            attempted.add(progress);
+        }
+        progressRepository.saveAll(attempted);
+
+        Report report = new Report(runId, resumed, units.size(), units.size() - remaining.size());
+        List<CompletableFuture<Void>> unitRuns = diff.getChanges().stream()
+            .filter(changes -> !completed.contains(changes.getUnit().getKey()))
+            .map(changes -> applyUnit(changes, progressByUnit.get(changes.getUnit().getKey()), report))
+            .collect(Collectors.toList());
+        CompletableFuture.allOf(unitRuns.toArray(new CompletableFuture[0])).join();
+
+        log.info("✅ Tag sync run {} finished in {}ms: {}", runId, System.currentTimeMillis() - started, report);
+        return report;
+    }
+
+    /**
+     * Make sure the given properties carry a tag, issuing calls only for those PayProp does not
+     * already show under it.
+     */
+    public Report applyTag(String tagId, Collection<String> payPropPropertyIds) {
+        TagMembershipDiff.Unit unit = new TagMembershipDiff.Unit("tag:" + tagId, null);
+        payPropPropertyIds.forEach(propertyId -> unit.addMember(tagId, propertyId));
+        Set<String> actual = fetchMembership(tagId);
+        if (actual != null) {
+            // Only adding here: members this caller did not list are left alone
+            actual = new HashSet<>(actual);
+            actual.retainAll(unit.getDesired(tagId));
+        }
+        Map<String, Set<String>> actualByTag = new HashMap<>();
+        if (actual != null) {
+            actualByTag.put(tagId, actual);
+        }
+
+        TagMembershipDiff.Changes changes = new TagMembershipDiff(List.of(unit), actualByTag).getChanges().get(0);
+        Report report = new Report(null, false, 1, 0);
+        applyUnit(changes, null, report).join();
+        return report;
+    }
+
+    /**
+     * Whether the previous run should be resumed: it is recent and still has an unfinished unit,
+     * among those loaded now, with attempts left. Units the current run does not load (say
+     * standalone blocks left by an includeBlocks run) never keep a run open.
+     */
+    static boolean isResumable(List<TagSyncProgress> previous, Set<String> unitKeys, LocalDateTime now) {
+        if (previous.isEmpty()) {
+            return false;
+        }
+        LocalDateTime runStarted = previous.stream()
+            .map(TagSyncProgress::getStartedAt)
+            .filter(Objects::nonNull)
+            .min(Comparator.naturalOrder())
+            .orElse(null);
+        if (runStarted == null || runStarted.isBefore(now.minus(MAX_RESUME_AGE))) {
+            return false;
+        }
+        return previous.stream().anyMatch(p -> unitKeys.contains(p.getUnitKey())
+            && !TagSyncProgress.STATUS_COMPLETED.equals(p.getStatus())
+            && p.getAttempts() < MAX_UNIT_ATTEMPTS);
+    }
+
+    // ===== DESIRED MEMBERSHIP =====
+
+    List<TagMembershipDiff.Unit> loadUnits(boolean includeBlocks) {
+        Map<Long, TagMembershipDiff.Unit> portfolioUnits = new LinkedHashMap<>();
+        Map<Long, List<String>> portfolioTags = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT id, payprop_tags FROM portfolios " +
+            "WHERE payprop_tags IS NOT NULL AND payprop_tags <> '' AND (is_active IS NULL OR is_active = 'Y') " +
+            "ORDER BY id",
+            rs -> {
+                long portfolioId = rs.getLong("id");
+                TagMembershipDiff.Unit unit = TagMembershipDiff.Unit.forPortfolio(portfolioId);
+                List<String> tagIds = splitTags(rs.getString("payprop_tags"));
+                tagIds.forEach(unit::addTag);
+                portfolioUnits.put(portfolioId, unit);
+                portfolioTags.put(portfolioId, tagIds);
+            });
+
+        Map<Long, List<String>> blockTags = new HashMap<>();
+        Map<Long, TagMembershipDiff.Unit> standaloneUnits = new LinkedHashMap<>();
+        if (includeBlocks) {
+            jdbcTemplate.query(
+                "SELECT id, portfolio_id, payprop_tags FROM blocks " +
+                "WHERE payprop_tags IS NOT NULL AND payprop_tags <> '' AND (is_active IS NULL OR is_active = 'Y') " +
+                "ORDER BY id",
+                rs -> {
+                    long blockId = rs.getLong("id");
+                    long portfolioId = rs.getLong("portfolio_id");
+                    TagMembershipDiff.Unit unit = rs.wasNull()
+                        ? standaloneUnits.computeIfAbsent(blockId, TagMembershipDiff.Unit::forStandaloneBlock)
+                        : portfolioUnits.get(portfolioId);
+                    if (unit == null) {
+                        return; // block of an untagged or inactive portfolio
+                    }
+                    List<String> tagIds = splitTags(rs.getString("payprop_tags"));
+                    tagIds.forEach(unit::addTag);
+                    unit.addBlock(blockId);
+                    blockTags.put(blockId, tagIds);
+                });
+        }
+
+        // Portfolio tags go on every assigned property, block tags on those assigned to the block
+        jdbcTemplate.query(
+            "SELECT ppa.portfolio_id, ppa.block_id, p.payprop_id FROM property_portfolio_assignments ppa " +
+            "JOIN properties p ON p.id = ppa.property_id " +
+            "WHERE ppa.is_active = TRUE AND p.payprop_id IS NOT NULL AND p.payprop_id <> ''",
+            rs -> {
+                TagMembershipDiff.Unit unit = portfolioUnits.get(rs.getLong("portfolio_id"));
+                if (unit == null) {
+                    return;
+                }
+                String propertyId = rs.getString("payprop_id");
+                portfolioTags.get(unit.getPortfolioId()).forEach(tagId -> unit.addMember(tagId, propertyId));
+                long blockId = rs.getLong("block_id");
+                if (!rs.wasNull() && unit.getBlockIds().contains(blockId)) {
+                    blockTags.get(blockId).forEach(tagId -> unit.addMember(tagId, propertyId));
+                }
+            });
+
+        if (!standaloneUnits.isEmpty()) {
+            jdbcTemplate.query(
+                "SELECT pba.block_id, p.payprop_id FROM property_block_assignments pba " +
+                "JOIN properties p ON p.id = pba.property_id " +
+                "WHERE pba.is_active = TRUE AND p.payprop_id IS NOT NULL AND p.payprop_id <> ''",
+                rs -> {
+                    long blockId = rs.getLong("block_id");
+                    TagMembershipDiff.Unit unit = standaloneUnits.get(blockId);
+                    if (unit != null) {
+                        String propertyId = rs.getString("payprop_id");
+                        blockTags.get(blockId).forEach(tagId -> unit.addMember(tagId, propertyId));
+                    }
+                });
+        }
+
+        List<TagMembershipDiff.Unit> units = new ArrayList<>(portfolioUnits.values());
+        units.addAll(standaloneUnits.values());
+        return units;
+    }
+
+    static List<String> splitTags(String payPropTags) {
+        if (payPropTags == null) {
+            return List.of();
+        }
+        return Arrays.stream(payPropTags.split(","))
+            .map(String::trim)
+            .filter(tag -> !tag.isEmpty())
+            .distinct()
+            .collect(Collectors.toList());
+    }
+
+    // ===== ACTUAL MEMBERSHIP =====
+
+    /**
+     * Properties PayProp has under each tag, fetched in parallel. Tags that could not be read
+     * (or were still being read at the deadline) are left out, so the diff only adds to them.
+     */
+    private Map<String, Set<String>> fetchMemberships(Collection<String> tagIds) {
+        Map<String, Set<String>> actualByTag = new ConcurrentHashMap<>();
+        try {
+            outboundIo.fanOut(OutboundIntegration.PAYPROP, tagIds, MEMBERSHIP_FETCH_DEADLINE, tagId -> {
+                Set<String> members = fetchMembership(tagId);
+                if (members != null) {
+                    actualByTag.put(tagId, members);
+                }
+                return members;
+            });
+        } catch (IOException e) {
+            log.warn("⚠️ PayProp tag membership reads stopped after {} of {} tags, adding without diff: {}",
+                actualByTag.size(), tagIds.size(), e.getMessage());
+        }
+        return actualByTag;
+    }
+
+    private Set<String> fetchMembership(String tagId) {
+        Set<String> members = new HashSet<>();
+        try {
+            for (int page = 1; ; page++) {
+                PayPropApiClient.PayPropPageResult result = apiClient.fetchSinglePage(
+                    "/tags/" + tagId + "/entities?entity_type=property", page, MEMBERSHIP_PAGE_SIZE);
+                for (Map<String, Object> entity : result.getItems()) {
+                    Object type = entity.getOrDefault("type", entity.get("entity_type"));
+                    Object id = entity.get("id");
+                    if (id != null && (type == null || "property".equalsIgnoreCase(type.toString()))) {
+                        members.add(id.toString());
+                    }
+                }
+                if (result.size() < MEMBERSHIP_PAGE_SIZE) {
+                    return members;
+                }
+            }
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read PayProp members of tag {}, adding without diff: {}", tagId, e.getMessage());
+            return null;
+        }
+    }
+
+    // ===== APPLY =====
+
+    private CompletableFuture<Void> applyUnit(TagMembershipDiff.Changes changes, TagSyncProgress progress, Report report) {
+        UnitOutcome outcome = new UnitOutcome();
+        List<CompletableFuture<Void>> calls = new ArrayList<>();
+        Executor payPropCalls = outboundIo.executor(OutboundIntegration.PAYPROP);
+
+        changes.getAdds().forEach((propertyId, tagIds) -> calls.add(CompletableFuture.runAsync(() -> {
+            try {
+                apiClient.post("/tags/entities/property/" + propertyId, Map.of("tags", new ArrayList<>(tagIds)));
+                outcome.added.addAndGet(tagIds.size());
+            } catch (Exception e) {
+                outcome.fail("Add " + tagIds + " to property " + propertyId + ": " + e.getMessage());
+            }
+        }, payPropCalls)));
+
+        for (TagMembershipDiff.Removal removal : changes.getRemoves()) {
+            calls.add(CompletableFuture.runAsync(() -> {
+                try {
+                    apiClient.delete("/tags/" + removal.getTagId() + "/entities?entity_type=property&entity_id="
+                        + removal.getPropertyId());
+                    outcome.removed.incrementAndGet();
+                } catch (Exception e) {
+                    outcome.fail("Remove " + removal.getTagId() + " from property " + removal.getPropertyId()
+                        + ": " + e.getMessage());
+                }
+            }, payPropCalls));
+        }
+
+        return CompletableFuture.allOf(calls.toArray(new CompletableFuture[0]))
+            .thenRun(() -> finishUnit(changes, progress, outcome, report));
+    }
+
+    private void finishUnit(TagMembershipDiff.Changes changes, TagSyncProgress progress, UnitOutcome outcome, Report report) {
+        TagMembershipDiff.Unit unit = changes.getUnit();
+        boolean ok = outcome.failed.get() == 0;
+        report.record(unit.getKey(), ok, outcome, changes.getUnchanged());
+
+        try {
+            if (progress != null) {
+                progress.setStatus(ok ? TagSyncProgress.STATUS_COMPLETED : TagSyncProgress.STATUS_FAILED);
+                progress.setTagsAdded(progress.getTagsAdded() + outcome.added.get());
+                progress.setTagsRemoved(progress.getTagsRemoved() + outcome.removed.get());
+                progress.setFailedCalls(outcome.failed.get());
+                progress.setLastError(outcome.lastError);
+                progress.setCompletedAt(LocalDateTime.now());
+                progressRepository.save(progress);
+            }
+            if (unit.getPortfolioId() != null || !unit.getBlockIds().isEmpty()) {
+                markSynced(unit, ok ? SyncStatus.synced : SyncStatus.failed);
+            }
+        } catch (Exception e) {
+            log.error("❌ Could not record tag sync progress for {}: {}", unit.getKey(), e.getMessage());
+        }
+        if (!ok) {
+            log.warn("⚠️ Tag sync {}: {} calls failed, last: {}", unit.getKey(), outcome.failed.get(), outcome.lastError);
+        }
+    }
+
+    private void markSynced(TagMembershipDiff.Unit unit, SyncStatus status) {
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        if (unit.getPortfolioId() != null) {
+            jdbcTemplate.update("UPDATE portfolios SET sync_status = ?, last_sync_at = ? WHERE id = ?",
+                status.name(), now, unit.getPortfolioId());
+        }
+        for (Long blockId : unit.getBlockIds()) {
+            jdbcTemplate.update("UPDATE blocks SET sync_status = ?, last_sync_at = ? WHERE id = ?",
+                status.name(), now, blockId);
+        }
+    }
+
+    private static final class UnitOutcome {
+        final AtomicInteger added = new AtomicInteger();
+        final AtomicInteger removed = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        volatile String lastError;
+
+        void fail(String error) {
+            failed.incrementAndGet();
+            lastError = error;
+        }
+    }
+
+    /**
+     * Totals for one run; units finish on pool threads, so the counters are thread safe.
+     */
+    public static final class Report {
+        private final String runId;
+        private final boolean resumed;
+        private final int units;
+        private final int unitsSkipped;
+        private final AtomicInteger unitsCompleted = new AtomicInteger();
+        private final AtomicInteger unitsFailed = new AtomicInteger();
+        private final AtomicInteger tagsAdded = new AtomicInteger();
+        private final AtomicInteger tagsRemoved = new AtomicInteger();
+        private final AtomicInteger unchanged = new AtomicInteger();
+        private final AtomicInteger failedCalls = new AtomicInteger();
+        private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+        Report(String runId, boolean resumed, int units, int unitsSkipped) {
+            this.runId = runId;
+            this.resumed = resumed;
+            this.units = units;
+            this.unitsSkipped = unitsSkipped;
+        }
+
+        void record(String unitKey, boolean ok, UnitOutcome outcome, int unitUnchanged) {
+            (ok ? unitsCompleted : unitsFailed).incrementAndGet();
+            tagsAdded.addAndGet(outcome.added.get());
+            tagsRemoved.addAndGet(outcome.removed.get());
+            failedCalls.addAndGet(outcome.failed.get());
+            unchanged.addAndGet(unitUnchanged);
+            if (!ok) {
+                errors.add(unitKey + ": " + outcome.lastError);
+            }
+        }
+
+        public String getRunId() { return runId; }
+        public boolean isResumed() { return resumed; }
+        public int getUnits() { return units; }
+        public int getUnitsSkipped() { return unitsSkipped; }
+        public int getUnitsCompleted() { return unitsCompleted.get(); }
+        public int getUnitsFailed() { return unitsFailed.get(); }
+        public int getTagsAdded() { return tagsAdded.get(); }
+        public int getTagsRemoved() { return tagsRemoved.get(); }
+        public int getUnchanged() { return unchanged.get(); }
+        public int getFailedCalls() { return failedCalls.get(); }
+        public List<String> getErrors() { return new ArrayList<>(errors); }
+
+        public boolean isSuccess() {
+            return unitsFailed.get() == 0;
+        }
+
+        public Map<String, Object> toDetails() {
+            Map<String, Object> details = new LinkedHashMap<>();
+            if (runId != null) {
+                details.put("runId", runId);
+                details.put("resumed", resumed);
+            }
+            details.put("units", units);
+            details.put("unitsSkipped", unitsSkipped);
+            details.put("unitsCompleted", getUnitsCompleted());
+            details.put("unitsFailed", getUnitsFailed());
+            details.put("tagsAdded", getTagsAdded());
+            details.put("tagsRemoved", getTagsRemoved());
+            details.put("alreadyTagged", getUnchanged());
+            details.put("failedCalls", getFailedCalls());
+            details.put("errors", getErrors());
+            return details;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("units=%d (skipped %d, completed %d, failed %d), added=%d, removed=%d, unchanged=%d, failedCalls=%d",
+                units, unitsSkipped, getUnitsCompleted(), getUnitsFailed(), getTagsAdded(), getTagsRemoved(),
+                getUnchanged(), getFailedCalls());
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package site.easy.to.build.crm.service.payprop;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Change signals of a PayProp maintenance ticket: its modification time and message count,
+ * compared against what the last sync stored on the CRM ticket. A ticket whose signals did
+ * not move is skipped, including its message fetch. The /maintenance/tickets listing does not
+ * document these fields, so a ticket without them is always re-fetched.
+ */
+public final class PayPropTicketChange {
+
+    private static final String[] MODIFIED_FIELDS = {"modified_at", "updated_at", "last_modified", "modified"};
+    private static final String[] MESSAGE_COUNT_FIELDS = {"message_count", "messages_count", "number_of_messages"};
+    private static final DateTimeFormatter SPACE_SEPARATED = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    private final LocalDateTime modifiedAt;
+    private final Integer messageCount;
+
+    private PayPropTicketChange(LocalDateTime modifiedAt, Integer messageCount) {
+        this.modifiedAt = modifiedAt;
+        this.messageCount = messageCount;
+    }
+
+    public static PayPropTicketChange of(Map<String, Object> ticketData) {
+        LocalDateTime modifiedAt = null;
+        for (String field : MODIFIED_FIELDS) {
+            modifiedAt = parseTimestamp(ticketData.get(field));
+            if (modifiedAt != null) {
+                break;
+            }
+        }
+        Integer messageCount = null;
+        for (String field : MESSAGE_COUNT_FIELDS) {
+            Object value = ticketData.get(field);
+            if (value instanceof Number number) {
+                messageCount = number.intValue();
+                break;
+            }
+            if (value instanceof String text && !text.isBlank()) {
+                try {
+                    messageCount = Integer.valueOf(text.trim());
+                    break;
+                } catch (NumberFormatException ignored) {
+                    // try the next field
+                }
+            }
+        }
+        return new PayPropTicketChange(modifiedAt, messageCount);
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public Integer getMessageCount() {
+        return messageCount;
+    }
+
+    /**
+     * Whether PayProp reports anything to compare.
+     */
+    public boolean hasSignals() {
+        return modifiedAt != null || messageCount != null;
+    }
+
+    /**
+     * Whether the ticket moved since the stored signals were recorded.
+     */
+    public boolean changedSince(LocalDateTime storedModifiedAt, Integer storedMessageCount) {
+        if (modifiedAt != null && !modifiedAt.equals(storedModifiedAt)) {
+            return true;
+        }
+        return messageCount != null && !Objects.equals(messageCount, storedMessageCount);
+    }
+
+    /**
+     * Whether a known ticket's messages must be fetched again: it moved, or there is nothing to
+     * compare (messages are de-duplicated by PayProp id, so re-fetching is safe).
+     */
+    public boolean needsMessageSync(LocalDateTime storedModifiedAt, Integer storedMessageCount) {
+        return !hasSignals() || changedSince(storedModifiedAt, storedMessageCount);
+    }
+
+    /**
+     * PayProp timestamps: ISO local or offset date-times, "yyyy-MM-dd HH:mm:ss" or plain dates.
+     */
+    public static LocalDateTime parseTimestamp(Object value) {
+        if (!(value instanceof String text) || text.isBlank()) {
+            return null;
+        }
+        String trimmed = text.trim();
+        try {
+            if (trimmed.length() == 10) {
+                return LocalDate.parse(trimmed).atStartOfDay();
+            }
+            if (trimmed.endsWith("Z") || trimmed.matches(".*[+-]\\d{2}:\\d{2}$")) {
+                return OffsetDateTime.parse(trimmed).toLocalDateTime();
+            }
+            if (trimmed.indexOf('T') > 0) {
+                return LocalDateTime.parse(trimmed);
+            }
+            return LocalDateTime.parse(trimmed, SPACE_SEPARATED);
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
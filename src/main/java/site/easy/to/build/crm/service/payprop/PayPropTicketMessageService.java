@@ -0,0 +1,102 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import site.easy.to.build.crm.entity.Ticket;
+import site.easy.to.build.crm.entity.TicketMessage;
+import site.easy.to.build.crm.repository.TicketMessageRepository;
+
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Stores PayProp maintenance messages in ticket_messages, once per PayProp message id, for
+ * both the maintenance sync and the MAINTENANCE_MESSAGE webhook.
+ */
+@Service
+public class PayPropTicketMessageService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropTicketMessageService.class);
+
+    private final TicketMessageRepository ticketMessageRepository;
+
+    public PayPropTicketMessageService(TicketMessageRepository ticketMessageRepository) {
+        this.ticketMessageRepository = ticketMessageRepository;
+    }
+
+    /**
+     * Store the messages of one ticket that are not stored yet.
+     *
+     * @return number of messages added
+     */
+    @Transactional
+    public int importMessages(Ticket ticket, List<Map<String, Object>> messages) {
+        Set<String> known = new HashSet<>(ticketMessageRepository.findPayPropMessageIdsByTicket(ticket));
+        LocalDateTime importedAt = LocalDateTime.now();
+        List<TicketMessage> added = new ArrayList<>();
+        for (Map<String, Object> messageData : messages) {
+            TicketMessage message = toMessage(ticket, messageData, importedAt);
+            if (message == null) {
+                continue;
+            }
+            if (message.getPayPropMessageId() != null && !known.add(message.getPayPropMessageId())) {
+                continue;
+            }
+            added.add(message);
+        }
+        if (!added.isEmpty()) {
+            ticketMessageRepository.saveAll(added);
+            log.debug("Stored {} new messages for ticket {}", added.size(), ticket.getTicketId());
+        }
+        return added.size();
+    }
+
+    /**
+     * Store one message unless already stored (webhooks may be delivered more than once).
+     *
+     * @return true if the message was added
+     */
+    @Transactional
+    public boolean importMessage(Ticket ticket, Map<String, Object> messageData) {
+        TicketMessage message = toMessage(ticket, messageData, LocalDateTime.now());
+        if (message == null) {
+            return false;
+        }
+        if (message.getPayPropMessageId() != null
+                && ticketMessageRepository.existsByPayPropMessageId(message.getPayPropMessageId())) {
+            return false;
+        }
+        try {
+            ticketMessageRepository.saveAndFlush(message);
+            return true;
+        } catch (DataIntegrityViolationException e) {
+            // Stored concurrently by the sync
+            return false;
+        }
+    }
+
+    public List<TicketMessage> getMessages(Ticket ticket) {
+        return ticketMessageRepository.findByTicketOrderByMessageDateAscIdAsc(ticket);
+    }
+
+    private static TicketMessage toMessage(Ticket ticket, Map<String, Object> messageData, LocalDateTime importedAt) {
+        Object text = messageData.get("message");
+        if (!(text instanceof String body) || body.isBlank()) {
+            return null;
+        }
+        LocalDateTime written = PayPropTicketChange.parseTimestamp(messageData.get("created_at"));
+
+        TicketMessage message = new TicketMessage();
+        message.setTicket(ticket);
+        message.setPayPropMessageId((String) messageData.get("id"));
+        message.setAuthorType((String) messageData.get("author_type"));
+        message.setMessage(body);
+        message.setIsPrivate(Boolean.TRUE.equals(messageData.get("is_private")));
+        message.setMessageDate(written != null ? written : importedAt);
+        message.setImportedAt(importedAt);
+        return message;
+    }
+}
@@ -0,0 +1,159 @@
+package site.easy.to.build.crm.service.payprop;
+
+import java.util.*;
+
+/**
+ * Desired versus actual PayProp tag membership for a set of sync units.
+ *
+ * A unit is what PayPropTagSyncPipeline records progress for: a portfolio together with the
+ * blocks inside it, or a standalone block. Each unit lists the PayProp property ids that should
+ * carry each of its tags. Comparing that with the properties PayProp reports per tag gives the
+ * calls a run has to make:
+ *
+ * - adds are grouped per property, because one POST can apply several tags to a property
+ * - removes are per tag and property, and only for properties no unit wants under that tag
+ * - a tag whose actual membership is unknown (fetch failed) gets all its desired adds and no removes
+ *
+ * When several units share a tag, each add is issued once, by the first unit that wants it.
+ */
+public final class TagMembershipDiff {
+
+    private final List<Changes> changes = new ArrayList<>();
+
+    public TagMembershipDiff(Collection<Unit> units, Map<String, Set<String>> actualByTag) {
+        Map<String, Set<String>> desiredByTag = new HashMap<>();
+        for (Unit unit : units) {
+            unit.desiredByTag.forEach((tagId, propertyIds) ->
+                desiredByTag.computeIfAbsent(tagId, t -> new HashSet<>()).addAll(propertyIds));
+        }
+
+        Set<String> claimedAdds = new HashSet<>();
+        Set<String> claimedTags = new HashSet<>();
+        for (Unit unit : units) {
+            Map<String, Set<String>> adds = new TreeMap<>();
+            List<Removal> removes = new ArrayList<>();
+            int unchanged = 0;
+
+            for (Map.Entry<String, Set<String>> entry : unit.desiredByTag.entrySet()) {
+                String tagId = entry.getKey();
+                Set<String> actual = actualByTag.get(tagId);
+                for (String propertyId : entry.getValue()) {
+                    if (actual != null && actual.contains(propertyId)) {
+                        unchanged++;
+                    } else if (claimedAdds.add(tagId + "|" + propertyId)) {
+                        adds.computeIfAbsent(propertyId, p -> new TreeSet<>()).add(tagId);
+                    }
+                }
+                if (actual != null && claimedTags.add(tagId)) {
+                    Set<String> desired = desiredByTag.get(tagId);
+                    actual.stream()
+                        .filter(propertyId -> !desired.contains(propertyId))
+                        .sorted()
+                        .forEach(propertyId -> removes.add(new Removal(tagId, propertyId)));
+                }
+            }
+            changes.add(new Changes(unit, adds, removes, unchanged));
+        }
+    }
+
+    public List<Changes> getChanges() {
+        return changes;
+    }
+
+    public int getAddCallCount() {
+        return changes.stream().mapToInt(c -> c.getAdds().size()).sum();
+    }
+
+    public int getRemoveCallCount() {
+        return changes.stream().mapToInt(c -> c.getRemoves().size()).sum();
+    }
+
+    /**
+     * A portfolio (with its blocks) or a standalone block, and the properties each of its tags should have.
+     */
+    public static final class Unit {
+        private final String key;
+        private final Long portfolioId;
+        private final Set<Long> blockIds = new TreeSet<>();
+        private final Map<String, Set<String>> desiredByTag = new LinkedHashMap<>();
+
+        public Unit(String key, Long portfolioId) {
+            this.key = key;
+            this.portfolioId = portfolioId;
+        }
+
+        public static Unit forPortfolio(Long portfolioId) {
+            return new Unit("portfolio:" + portfolioId, portfolioId);
+        }
+
+        public static Unit forStandaloneBlock(Long blockId) {
+            Unit unit = new Unit("block:" + blockId, null);
+            unit.blockIds.add(blockId);
+            return unit;
+        }
+
+        /**
+         * Declare a tag owned by this unit; it stays in the diff even with no properties,
+         * so everything PayProp has under it gets removed.
+         */
+        public Unit addTag(String tagId) {
+            desiredByTag.computeIfAbsent(tagId, t -> new TreeSet<>());
+            return this;
+        }
+
+        public Unit addMember(String tagId, String payPropPropertyId) {
+            desiredByTag.computeIfAbsent(tagId, t -> new TreeSet<>()).add(payPropPropertyId);
+            return this;
+        }
+
+        public Unit addBlock(Long blockId) {
+            blockIds.add(blockId);
+            return this;
+        }
+
+        public String getKey() { return key; }
+        public Long getPortfolioId() { return portfolioId; }
+        public Set<Long> getBlockIds() { return blockIds; }
+        public Set<String> getTagIds() { return desiredByTag.keySet(); }
+        public Set<String> getDesired(String tagId) { return desiredByTag.getOrDefault(tagId, Set.of()); }
+    }
+
+    /**
+     * Calls one unit needs: tags to add per PayProp property id, and tag/property pairs to remove.
+     */
+    public static final class Changes {
+        private final Unit unit;
+        private final Map<String, Set<String>> adds;
+        private final List<Removal> removes;
+        private final int unchanged;
+
+        Changes(Unit unit, Map<String, Set<String>> adds, List<Removal> removes, int unchanged) {
+            this.unit = unit;
+            this.adds = adds;
+            this.removes = removes;
+            this.unchanged = unchanged;
+        }
+
+        public Unit getUnit() { return unit; }
+        public Map<String, Set<String>> getAdds() { return adds; }
+        public List<Removal> getRemoves() { return removes; }
+        public int getUnchanged() { return unchanged; }
+
+        public boolean isEmpty() {
+            return adds.isEmpty() && removes.isEmpty();
+        }
+    }
+
+    public static final class Removal {
+        private final String tagId;
+        private final String propertyId;
+
+        Removal(String tagId, String propertyId) {
+            this.tagId = tagId;
+            this.propertyId = propertyId;
+        }
+
+        public String getTagId() { return tagId; }
+        public String getPropertyId() { return propertyId; }
+    }
+}
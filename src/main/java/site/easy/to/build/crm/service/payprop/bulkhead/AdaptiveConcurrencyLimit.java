@@ -0,0 +1,77 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import java.util.function.LongSupplier;
+
+/**
+ * AIMD concurrency limit for one endpoint family.
+ *
+ * - A healthy call that finished while the family was using its whole limit raises the limit
+ *   by 1/limit, so the limit grows by about one per limit's worth of calls.
+ * - A call slower than the latency target, a 429 or a server failure multiplies the limit by the
+ *   backoff factor. A burst of bad responses only backs off once per cooldown, since they were
+ *   all sent under the same limit.
+ *
+ * The limit stays between min and max.
+ */
+public final class AdaptiveConcurrencyLimit {
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyTargetNanos;
+    private final double backoffFactor;
+    private final long backoffCooldownNanos;
+    private final LongSupplier nanoClock;
+
+    private double limit;
+    private long lastBackoffNanos;
+    private boolean backedOff;
+
+    public AdaptiveConcurrencyLimit(int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos,
+                                    double backoffFactor, long backoffCooldownNanos, LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits must satisfy 1 <= min <= max");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyTargetNanos = latencyTargetNanos;
+        this.backoffFactor = backoffFactor;
+        this.backoffCooldownNanos = backoffCooldownNanos;
+        this.nanoClock = nanoClock;
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+    }
+
+    public synchronized int getLimit() {
+        return (int) limit;
+    }
+
+    /**
+     * Record a call that got a usable answer.
+     *
+     * @param latencyNanos time the call took
+     * @param inFlight calls in flight when it was admitted, including itself
+     */
+    public synchronized void onSuccess(long latencyNanos, int inFlight) {
+        if (latencyNanos > latencyTargetNanos) {
+            backOff();
+        } else if (inFlight >= (int) limit) {
+            limit = Math.min(maxLimit, limit + 1.0 / limit);
+        }
+    }
+
+    /**
+     * Record a 429, timeout or server failure.
+     */
+    public synchronized void onOverload() {
+        backOff();
+    }
+
+    private void backOff() {
+        long now = nanoClock.getAsLong();
+        if (backedOff && now - lastBackoffNanos < backoffCooldownNanos) {
+            return;
+        }
+        limit = Math.max(minLimit, Math.floor(limit * backoffFactor));
+        lastBackoffNanos = now;
+        backedOff = true;
+    }
+}
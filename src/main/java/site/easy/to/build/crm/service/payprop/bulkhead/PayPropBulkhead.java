@@ -0,0 +1,274 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Concurrency cap and circuit state for one PayProp endpoint family.
+ *
+ * Admission:
+ * - The cap is the family's {@link AdaptiveConcurrencyLimit}.
+ * - BATCH callers may only use the cap minus the interactive reserve (at least one permit), and
+ *   wait while any INTERACTIVE caller is waiting.
+ * - Callers that cannot get a permit within the acquire timeout are rejected.
+ *
+ * Circuit:
+ * - CLOSED until failureThreshold consecutive failures (5xx, I/O errors, timeouts), then OPEN.
+ *   Rate limiting (429) shrinks the limit but does not count as a failure.
+ * - OPEN rejects calls straight away until openDuration has passed, then lets a single probe
+ *   through (HALF_OPEN). The probe closes the circuit on success and reopens it on failure.
+ */
+public class PayPropBulkhead {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropBulkhead.class);
+
+    public enum CircuitState { CLOSED, HALF_OPEN, OPEN }
+
+    public enum Outcome {
+        /** Usable answer, including 4xx other than 429 */
+        SUCCESS,
+        /** 429 Too Many Requests */
+        THROTTLED,
+        /** 5xx, I/O error or timeout */
+        FAILURE
+    }
+
+    private final PayPropEndpointFamily family;
+    private final AdaptiveConcurrencyLimit limit;
+    private final int interactiveReserve;
+    private final int failureThreshold;
+    private final long openDurationNanos;
+    private final LongSupplier nanoClock;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition interactiveTurn = lock.newCondition();
+    private final Condition batchTurn = lock.newCondition();
+
+    private int inFlight;
+    private int interactiveWaiting;
+    private int batchWaiting;
+    private CircuitState circuit = CircuitState.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private boolean probeInFlight;
+
+    public PayPropBulkhead(PayPropEndpointFamily family, AdaptiveConcurrencyLimit limit, int interactiveReserve,
+                           int failureThreshold, long openDurationNanos, LongSupplier nanoClock) {
+        this.family = family;
+        this.limit = limit;
+        this.interactiveReserve = Math.max(0, interactiveReserve);
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.openDurationNanos = openDurationNanos;
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Wait for a permit. The returned permit must be completed exactly once.
+     *
+     * @throws PayPropBulkheadRejectedException when the circuit is open or no permit was free in time
+     */
+    public Permit acquire(PayPropCallPriority priority, long timeout, TimeUnit unit) throws InterruptedException {
+        long remaining = unit.toNanos(timeout);
+        boolean interactive = priority == PayPropCallPriority.INTERACTIVE;
+        lock.lock();
+        try {
+            boolean probe = checkCircuit();
+            if (probe) {
+                probeInFlight = true;
+            }
+            if (interactive) {
+                interactiveWaiting++;
+            } else {
+                batchWaiting++;
+            }
+            boolean admitted = false;
+            try {
+                while (!admissible(interactive)) {
+                    if (remaining <= 0L) {
+                        throw new PayPropBulkheadRejectedException(family, false, "no permit within timeout");
+                    }
+                    remaining = (interactive ? interactiveTurn : batchTurn).awaitNanos(remaining);
+                }
+                admitted = true;
+            } finally {
+                if (interactive) {
+                    interactiveWaiting--;
+                } else {
+                    batchWaiting--;
+                }
+                if (!admitted) {
+                    if (probe) {
+                        probeInFlight = false;
+                    }
+                    // A batch caller may have been held back only by this interactive waiter
+                    batchTurn.signalAll();
+                }
+            }
+            inFlight++;
+            return new Permit(priority, inFlight, probe, nanoClock.getAsLong());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns true when this call is the half-open probe.
+     */
+    private boolean checkCircuit() {
+        if (circuit == CircuitState.OPEN) {
+            if (nanoClock.getAsLong() - openedAtNanos < openDurationNanos) {
+                throw new PayPropBulkheadRejectedException(family, true, "circuit open");
+            }
+            circuit = CircuitState.HALF_OPEN;
+        }
+        if (circuit == CircuitState.HALF_OPEN) {
+            if (probeInFlight) {
+                throw new PayPropBulkheadRejectedException(family, true, "circuit half-open, probe in flight");
+            }
+            return true;
+        }
+        return false;
+    }
+
+    private boolean admissible(boolean interactive) {
+        int cap = limit.getLimit();
+        if (interactive) {
+            return inFlight < cap;
+        }
+        return interactiveWaiting == 0 && inFlight < Math.max(1, cap - interactiveReserve);
+    }
+
+    private void complete(Permit permit, Outcome outcome) {
+        long latency = nanoClock.getAsLong() - permit.startNanos;
+        switch (outcome) {
+            case SUCCESS -> limit.onSuccess(latency, permit.inFlightAtStart);
+            case THROTTLED, FAILURE -> limit.onOverload();
+        }
+        lock.lock();
+        try {
+            inFlight--;
+            if (permit.probe) {
+                probeInFlight = false;
+            }
+            recordCircuitOutcome(permit, outcome);
+            if (interactiveWaiting > 0) {
+                interactiveTurn.signalAll();
+            } else if (batchWaiting > 0) {
+                batchTurn.signalAll();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void recordCircuitOutcome(Permit permit, Outcome outcome) {
+        if (outcome == Outcome.FAILURE) {
+            consecutiveFailures++;
+            if (permit.probe || (circuit == CircuitState.CLOSED && consecutiveFailures >= failureThreshold)) {
+                circuit = CircuitState.OPEN;
+                openedAtNanos = nanoClock.getAsLong();
+                log.warn("🔴 PayProp {} circuit opened after {} consecutive failures", family.getKey(), consecutiveFailures);
+            }
+        } else if (outcome == Outcome.SUCCESS) {
+            consecutiveFailures = 0;
+            if (permit.probe) {
+                circuit = CircuitState.CLOSED;
+                log.info("🟢 PayProp {} circuit closed, probe succeeded", family.getKey());
+            }
+        } else if (permit.probe) {
+            // Throttled probe: the service is up but busy, try again after another open period
+            circuit = CircuitState.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    public PayPropEndpointFamily getFamily() {
+        return family;
+    }
+
+    public int getLimit() {
+        return limit.getLimit();
+    }
+
+    public int getInFlight() {
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getWaiting(PayPropCallPriority priority) {
+        lock.lock();
+        try {
+            return priority == PayPropCallPriority.INTERACTIVE ? interactiveWaiting : batchWaiting;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Circuit state as seen by the next caller (OPEN becomes HALF_OPEN once the open period is over).
+     */
+    public CircuitState getCircuitState() {
+        lock.lock();
+        try {
+            if (circuit == CircuitState.OPEN && nanoClock.getAsLong() - openedAtNanos >= openDurationNanos) {
+                return CircuitState.HALF_OPEN;
+            }
+            return circuit;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * A granted slot in the bulkhead.
+     */
+    public final class Permit {
+        private final PayPropCallPriority priority;
+        private final int inFlightAtStart;
+        private final boolean probe;
+        private long startNanos;
+        private final AtomicBoolean completed = new AtomicBoolean();
+
+        private Permit(PayPropCallPriority priority, int inFlightAtStart, boolean probe, long startNanos) {
+            this.priority = priority;
+            this.inFlightAtStart = inFlightAtStart;
+            this.probe = probe;
+            this.startNanos = startNanos;
+        }
+
+        public PayPropCallPriority getPriority() {
+            return priority;
+        }
+
+        /**
+         * Restart the latency clock, e.g. after waiting for the global rate budget, so that only
+         * the remote call counts towards the latency target.
+         */
+        public void startTimer() {
+            startNanos = nanoClock.getAsLong();
+        }
+
+        public long elapsedNanos() {
+            return nanoClock.getAsLong() - startNanos;
+        }
+
+        /**
+         * Release the slot and feed the outcome into the limit and the circuit.
+         */
+        public void complete(Outcome outcome) {
+            if (completed.compareAndSet(false, true)) {
+                PayPropBulkhead.this.complete(this, outcome);
+            }
+        }
+    }
+}
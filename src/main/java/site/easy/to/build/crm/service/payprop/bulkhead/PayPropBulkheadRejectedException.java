@@ -0,0 +1,28 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+/**
+ * Thrown instead of calling PayProp when the endpoint family's circuit is open or its bulkhead
+ * had no free permit in time.
+ */
+public class PayPropBulkheadRejectedException extends RuntimeException {
+
+    private final PayPropEndpointFamily family;
+    private final boolean circuitOpen;
+
+    public PayPropBulkheadRejectedException(PayPropEndpointFamily family, boolean circuitOpen, String reason) {
+        super("PayProp " + family.getKey() + " calls rejected: " + reason);
+        this.family = family;
+        this.circuitOpen = circuitOpen;
+    }
+
+    public PayPropEndpointFamily getFamily() {
+        return family;
+    }
+
+    /**
+     * True when rejected by the circuit, false when the bulkhead was full
+     */
+    public boolean isCircuitOpen() {
+        return circuitOpen;
+    }
+}
@@ -0,0 +1,190 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestClientResponseException;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * PayProp Bulkheads
+ *
+ * One {@link PayPropBulkhead} per {@link PayPropEndpointFamily}, so a slow or failing family
+ * (e.g. report windows during a full import) cannot hold every connection or trip the circuit for
+ * the others. Every PayProp call in PayPropApiClient goes through {@link #execute}.
+ *
+ * Configuration, with per-family overrides under payprop.bulkhead.&lt;family&gt;.*:
+ * - initial-limit / min-limit / max-limit: adaptive concurrency bounds
+ * - latency-target-ms: slower calls shrink the limit
+ * - backoff-factor / backoff-cooldown-ms: multiplicative decrease, at most once per cooldown
+ * - interactive-reserve: permits batch callers leave free for interactive ones
+ * - failure-threshold / open-duration-ms: circuit breaker
+ * - acquire-timeout-ms: how long a caller waits for a permit
+ *
+ * Metrics, all tagged with family:
+ * - payprop.api.calls: timer per call (priority, outcome)
+ * - payprop.api.bulkhead.limit / in.flight / waiting (priority): gauges
+ * - payprop.api.circuit.state: gauge, 0 closed, 1 half-open, 2 open
+ * - payprop.api.bulkhead.rejected: counter (reason circuit_open or bulkhead_full)
+ */
+@Component
+@ConditionalOnProperty(name = "payprop.enabled", havingValue = "true", matchIfMissing = false)
+public class PayPropBulkheads {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropBulkheads.class);
+
+    public static final String CALL_TIMER = "payprop.api.calls";
+    public static final String LIMIT = "payprop.api.bulkhead.limit";
+    public static final String IN_FLIGHT = "payprop.api.bulkhead.in.flight";
+    public static final String WAITING = "payprop.api.bulkhead.waiting";
+    public static final String CIRCUIT_STATE = "payprop.api.circuit.state";
+    public static final String REJECTED = "payprop.api.bulkhead.rejected";
+
+    private static final String PREFIX = "payprop.bulkhead.";
+
+    private final MeterRegistry registry;
+    private final Map<PayPropEndpointFamily, PayPropBulkhead> bulkheads = new EnumMap<>(PayPropEndpointFamily.class);
+    private final Map<PayPropEndpointFamily, Long> acquireTimeoutMs = new EnumMap<>(PayPropEndpointFamily.class);
+
+    public PayPropBulkheads(MeterRegistry registry, Environment environment) {
+        this.registry = registry;
+        for (PayPropEndpointFamily family : PayPropEndpointFamily.values()) {
+            PayPropBulkhead bulkhead = create(family, environment);
+            bulkheads.put(family, bulkhead);
+            acquireTimeoutMs.put(family, setting(environment, family, "acquire-timeout-ms", Long.class, 30000L));
+            registerGauges(bulkhead);
+        }
+        log.info("🚧 PayProp bulkheads ready for {} endpoint families", bulkheads.size());
+    }
+
+    private PayPropBulkhead create(PayPropEndpointFamily family, Environment env) {
+        // Report windows are large and legitimately slow, so they get a looser latency target
+        long defaultLatencyMs = family == PayPropEndpointFamily.REPORT || family == PayPropEndpointFamily.EXPORT
+            ? 15000L : 5000L;
+        AdaptiveConcurrencyLimit limit = new AdaptiveConcurrencyLimit(
+            setting(env, family, "initial-limit", Integer.class, 2),
+            setting(env, family, "min-limit", Integer.class, 1),
+            setting(env, family, "max-limit", Integer.class, 4),
+            TimeUnit.MILLISECONDS.toNanos(setting(env, family, "latency-target-ms", Long.class, defaultLatencyMs)),
+            setting(env, family, "backoff-factor", Double.class, 0.7),
+            TimeUnit.MILLISECONDS.toNanos(setting(env, family, "backoff-cooldown-ms", Long.class, 2000L)),
+            System::nanoTime);
+        return new PayPropBulkhead(family, limit,
+            setting(env, family, "interactive-reserve", Integer.class, 1),
+            setting(env, family, "failure-threshold", Integer.class, 5),
+            TimeUnit.MILLISECONDS.toNanos(setting(env, family, "open-duration-ms", Long.class, 60000L)),
+            System::nanoTime);
+    }
+
+    private static <T> T setting(Environment env, PayPropEndpointFamily family, String name, Class<T> type, T defaultValue) {
+        T value = env.getProperty(PREFIX + family.getKey() + "." + name, type);
+        return value != null ? value : env.getProperty(PREFIX + name, type, defaultValue);
+    }
+
+    private void registerGauges(PayPropBulkhead bulkhead) {
+        String family = bulkhead.getFamily().getKey();
+        Gauge.builder(LIMIT, bulkhead, PayPropBulkhead::getLimit)
+            .description("Adaptive concurrency limit of a PayProp endpoint family")
+            .tag("family", family)
+            .register(registry);
+        Gauge.builder(IN_FLIGHT, bulkhead, PayPropBulkhead::getInFlight)
+            .description("PayProp calls in flight")
+            .tag("family", family)
+            .register(registry);
+        for (PayPropCallPriority priority : PayPropCallPriority.values()) {
+            Gauge.builder(WAITING, bulkhead, b -> b.getWaiting(priority))
+                .description("PayProp calls waiting for a permit")
+                .tags("family", family, "priority", priority.tag())
+                .register(registry);
+        }
+        Gauge.builder(CIRCUIT_STATE, bulkhead, b -> b.getCircuitState().ordinal())
+            .description("PayProp circuit state: 0 closed, 1 half-open, 2 open")
+            .tag("family", family)
+            .register(registry);
+    }
+
+    public PayPropBulkhead get(PayPropEndpointFamily family) {
+        return bulkheads.get(family);
+    }
+
+    /**
+     * Make a PayProp call inside the bulkhead of its endpoint family.
+     *
+     * @param endpoint endpoint path or full URL, used to pick the family
+     * @param beforeCall run after admission and before the call is timed (e.g. the global rate budget)
+     * @param call the HTTP exchange
+     * @throws PayPropBulkheadRejectedException when the family's circuit is open or no permit was free in time
+     */
+    public <T> ResponseEntity<T> execute(String endpoint, Runnable beforeCall, Supplier<ResponseEntity<T>> call) {
+        PayPropEndpointFamily family = PayPropEndpointFamily.of(endpoint);
+        PayPropBulkhead bulkhead = bulkheads.get(family);
+        PayPropCallPriority priority = PayPropCallPriority.current();
+
+        PayPropBulkhead.Permit permit;
+        try {
+            permit = bulkhead.acquire(priority, acquireTimeoutMs.get(family), TimeUnit.MILLISECONDS);
+        } catch (PayPropBulkheadRejectedException e) {
+            Counter.builder(REJECTED)
+                .description("PayProp calls rejected by a bulkhead or open circuit")
+                .tags("family", family.getKey(), "reason", e.isCircuitOpen() ? "circuit_open" : "bulkhead_full")
+                .register(registry)
+                .increment();
+            log.warn("⛔ {}", e.getMessage());
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted waiting for PayProp " + family.getKey() + " bulkhead", e);
+        }
+
+        PayPropBulkhead.Outcome outcome = PayPropBulkhead.Outcome.SUCCESS;
+        try {
+            if (beforeCall != null) {
+                beforeCall.run();
+            }
+            permit.startTimer();
+            ResponseEntity<T> response = call.get();
+            outcome = classify(response.getStatusCode());
+            return response;
+        } catch (RestClientResponseException e) {
+            outcome = classify(e.getStatusCode());
+            throw e;
+        } catch (ResourceAccessException e) {
+            // Connection refused, read timeout and other I/O failures
+            outcome = PayPropBulkhead.Outcome.FAILURE;
+            throw e;
+        } finally {
+            long elapsed = permit.elapsedNanos();
+            permit.complete(outcome);
+            Timer.builder(CALL_TIMER)
+                .description("PayProp API call latency by endpoint family")
+                .tags("family", family.getKey(), "priority", priority.tag(), "outcome", outcome.name().toLowerCase())
+                .publishPercentiles(0.5, 0.95, 0.99)
+                .register(registry)
+                .record(elapsed, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    /**
+     * 429 is throttling and 5xx a failure; any other answer, including 4xx, means PayProp is healthy.
+     */
+    static PayPropBulkhead.Outcome classify(HttpStatusCode status) {
+        if (status.value() == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return PayPropBulkhead.Outcome.THROTTLED;
+        }
+        return status.is5xxServerError() ? PayPropBulkhead.Outcome.FAILURE : PayPropBulkhead.Outcome.SUCCESS;
+    }
+}
@@ -0,0 +1,56 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import org.springframework.web.context.request.RequestContextHolder;
+
+import java.util.function.Supplier;
+
+/**
+ * Priority of a PayProp call inside its bulkhead.
+ *
+ * Calls made while serving an HTTP request are INTERACTIVE; everything else (scheduled syncs,
+ * imports, worker pools) is BATCH. Code can override that for a block with {@link #runAs}.
+ * Interactive callers are admitted first and may use the permits batch callers leave in reserve.
+ */
+public enum PayPropCallPriority {
+
+    INTERACTIVE,
+    BATCH;
+
+    private static final ThreadLocal<PayPropCallPriority> OVERRIDE = new ThreadLocal<>();
+
+    public static PayPropCallPriority current() {
+        PayPropCallPriority override = OVERRIDE.get();
+        if (override != null) {
+            return override;
+        }
+        return RequestContextHolder.getRequestAttributes() != null ? INTERACTIVE : BATCH;
+    }
+
+    /**
+     * Run an action with the given priority for every PayProp call it makes on this thread.
+     */
+    public static <T> T runAs(PayPropCallPriority priority, Supplier<T> action) {
+        PayPropCallPriority previous = OVERRIDE.get();
+        OVERRIDE.set(priority);
+        try {
+            return action.get();
+        } finally {
+            if (previous == null) {
+                OVERRIDE.remove();
+            } else {
+                OVERRIDE.set(previous);
+            }
+        }
+    }
+
+    public static void runAs(PayPropCallPriority priority, Runnable action) {
+        runAs(priority, () -> {
+            action.run();
+            return null;
+        });
+    }
+
+    public String tag() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,64 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import java.util.List;
+
+/**
+ * Groups of PayProp endpoints that get their own bulkhead.
+ *
+ * Families are chosen so that heavy batch traffic (report windows, exports) cannot use up the
+ * concurrency that webhook follow-ups, ticket sync and interactive lookups rely on.
+ */
+public enum PayPropEndpointFamily {
+
+    REPORT("report", "/report", "/reports"),
+    EXPORT("export", "/export"),
+    MAINTENANCE("maintenance", "/maintenance"),
+    TAGS("tags", "/tags"),
+    ENTITY("entity", "/entity"),
+    DOCUMENTS("documents", "/documents", "/attachments"),
+    OTHER("other");
+
+    private final String key;
+    private final List<String> prefixes;
+
+    PayPropEndpointFamily(String key, String... prefixes) {
+        this.key = key;
+        this.prefixes = List.of(prefixes);
+    }
+
+    /**
+     * Name used in configuration (payprop.bulkhead.&lt;key&gt;.*) and metric tags
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Family of an endpoint path such as "/report/all-payments?from_date=..." or a full URL.
+     */
+    public static PayPropEndpointFamily of(String endpoint) {
+        if (endpoint == null) {
+            return OTHER;
+        }
+        String path = endpoint;
+        int scheme = path.indexOf("://");
+        if (scheme >= 0) {
+            int slash = path.indexOf('/', scheme + 3);
+            path = slash >= 0 ? path.substring(slash) : "/";
+            // Strip the API base path, e.g. /api/agency/v1.1
+            int version = path.indexOf("/v1");
+            if (version >= 0) {
+                int next = path.indexOf('/', version + 1);
+                path = next >= 0 ? path.substring(next) : "/";
+            }
+        }
+        for (PayPropEndpointFamily family : values()) {
+            for (String prefix : family.prefixes) {
+                if (path.equals(prefix) || path.startsWith(prefix + "/") || path.startsWith(prefix + "?")) {
+                    return family;
+                }
+            }
+        }
+        return OTHER;
+    }
+}
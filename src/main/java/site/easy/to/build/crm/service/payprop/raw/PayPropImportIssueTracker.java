@@ -42,7 +42,8 @@ public class PayPropImportIssueTracker {
     private DataSource dataSource;
     
     private final ObjectMapper objectMapper = new ObjectMapper();
-    private String currentImportRunId;
+    // Read by raw imports running on the import pool
+    private volatile String currentImportRunId;
     
     /**
      * Start tracking for a new import run
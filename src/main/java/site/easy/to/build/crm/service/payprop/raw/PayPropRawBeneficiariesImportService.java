@@ -33,6 +33,9 @@ public class PayPropRawBeneficiariesImportService {
     @Autowired
     private DataSource dataSource;
     
+    @Autowired
+    private PayPropRawRecordHashService recordHashService;
+    
     @Autowired
     private PayPropImportIssueTracker issueTracker;
     
@@ -52,6 +55,7 @@ public class PayPropRawBeneficiariesImportService {
             log.info("📦 PayProp API returned: {} beneficiaries", beneficiaries.size());
             
             int importedCount = importBeneficiariesToDatabase(beneficiaries);
+            result.setMirrorDiff(recordHashService.recordFetch(PayPropRawRecordHashService.BENEFICIARIES, beneficiaries));
             result.setTotalImported(importedCount);
             
             result.setSuccess(true);
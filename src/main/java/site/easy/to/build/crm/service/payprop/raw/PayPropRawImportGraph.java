@@ -0,0 +1,305 @@
+package site.easy.to.build.crm.service.payprop.raw;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.*;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Dependency graph of raw endpoint imports.
+ *
+ * Each import declares the imports it depends on (which must be added first, so the graph
+ * is acyclic by construction). execute() starts every import whose dependencies succeeded
+ * on the given executor, so independent endpoints fetch concurrently; the API client's
+ * shared rate budget keeps the total request rate unchanged.
+ *
+ * Failures stay per endpoint: a failed import only skips its dependents. resume() reruns
+ * the failed and skipped imports of a previous run, reusing the ones that succeeded.
+ */
+public final class PayPropRawImportGraph {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropRawImportGraph.class);
+
+    public enum NodeStatus { SUCCEEDED, FAILED, SKIPPED, REUSED }
+
+    private final Map<String, Node> nodes = new LinkedHashMap<>();
+
+    public PayPropRawImportGraph add(String name, Supplier<PayPropRawImportResult> importer, String... dependsOn) {
+        if (nodes.containsKey(name)) {
+            throw new IllegalArgumentException("Duplicate import: " + name);
+        }
+        for (String dependency : dependsOn) {
+            if (!nodes.containsKey(dependency)) {
+                throw new IllegalArgumentException(name + " depends on unknown import " + dependency);
+            }
+        }
+        nodes.put(name, new Node(name, importer, List.of(dependsOn)));
+        return this;
+    }
+
+    public Set<String> getNodeNames() {
+        return Collections.unmodifiableSet(nodes.keySet());
+    }
+
+    public List<String> getDependencies(String name) {
+        Node node = nodes.get(name);
+        return node != null ? node.dependsOn : List.of();
+    }
+
+    public GraphRun execute(Executor executor) {
+        return execute(executor, Set.of());
+    }
+
+    /**
+     * Rerun everything that did not succeed in the previous run.
+     */
+    public GraphRun resume(Executor executor, GraphRun previous) {
+        return execute(executor, previous.getSucceeded());
+    }
+
+    /**
+     * Run the graph, treating the given imports as already done.
+     */
+    public GraphRun execute(Executor executor, Set<String> alreadySucceeded) {
+        long runStart = System.nanoTime();
+        Map<String, NodeRun> runs = new LinkedHashMap<>();
+        Map<String, Integer> pending = new HashMap<>();
+        BlockingQueue<NodeRun> completed = new LinkedBlockingQueue<>();
+        int running = 0;
+
+        for (Node node : nodes.values()) {
+            if (alreadySucceeded.contains(node.name)) {
+                runs.put(node.name, new NodeRun(node.name, NodeStatus.REUSED, null, 0, 0));
+            }
+        }
+        for (Node node : nodes.values()) {
+            if (runs.containsKey(node.name)) continue;
+            int open = 0;
+            for (String dependency : node.dependsOn) {
+                if (!runs.containsKey(dependency)) open++;
+            }
+            pending.put(node.name, open);
+        }
+        for (Node node : nodes.values()) {
+            if (Integer.valueOf(0).equals(pending.get(node.name))) {
+                submit(node, executor, completed, runStart);
+                running++;
+            }
+        }
+
+        while (running > 0) {
+            NodeRun finished;
+            try {
+                finished = completed.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while waiting for raw imports", e);
+            }
+            running--;
+            runs.put(finished.name, finished);
+
+            if (finished.status == NodeStatus.SUCCEEDED) {
+                for (Node dependent : dependentsOf(finished.name)) {
+                    Integer open = pending.get(dependent.name);
+                    if (open == null || runs.containsKey(dependent.name)) continue;
+                    pending.put(dependent.name, open - 1);
+                    if (open - 1 == 0) {
+                        submit(dependent, executor, completed, runStart);
+                        running++;
+                    }
+                }
+            } else {
+                skipDependents(finished.name, runs);
+            }
+        }
+
+        // Anything left never became ready (its dependency was skipped)
+        for (Node node : nodes.values()) {
+            runs.putIfAbsent(node.name, new NodeRun(node.name, NodeStatus.SKIPPED, null, 0, 0));
+        }
+
+        Map<String, NodeRun> ordered = new LinkedHashMap<>();
+        for (String name : nodes.keySet()) {
+            ordered.put(name, runs.get(name));
+        }
+        return new GraphRun(ordered, criticalPath(ordered), TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart));
+    }
+
+    private void submit(Node node, Executor executor, BlockingQueue<NodeRun> completed, long runStart) {
+        executor.execute(() -> {
+            long started = System.nanoTime();
+            PayPropRawImportResult result;
+            try {
+                result = node.importer.get();
+            } catch (RuntimeException | Error e) {
+                // Always report back, otherwise execute() would wait for this import forever
+                log.error("❌ Raw import {} threw", node.name, e);
+                result = new PayPropRawImportResult(node.name);
+                result.setErrorMessage(e.getMessage());
+            }
+            long finished = System.nanoTime();
+            NodeStatus status = result != null && result.isSuccess() ? NodeStatus.SUCCEEDED : NodeStatus.FAILED;
+            completed.add(new NodeRun(node.name, status, result, started - runStart, finished - runStart));
+        });
+    }
+
+    private List<Node> dependentsOf(String name) {
+        List<Node> dependents = new ArrayList<>();
+        for (Node node : nodes.values()) {
+            if (node.dependsOn.contains(name)) {
+                dependents.add(node);
+            }
+        }
+        return dependents;
+    }
+
+    private void skipDependents(String name, Map<String, NodeRun> runs) {
+        for (Node dependent : dependentsOf(name)) {
+            if (!runs.containsKey(dependent.name)) {
+                runs.put(dependent.name, new NodeRun(dependent.name, NodeStatus.SKIPPED, null, 0, 0));
+                skipDependents(dependent.name, runs);
+            }
+        }
+    }
+
+    /**
+     * Longest chain of dependent imports by duration (reused imports count as zero).
+     * Nodes are in insertion order, which is a topological order.
+     */
+    private List<String> criticalPath(Map<String, NodeRun> runs) {
+        Map<String, Long> pathNanos = new HashMap<>();
+        Map<String, String> via = new HashMap<>();
+        String end = null;
+        for (Node node : nodes.values()) {
+            long best = 0;
+            for (String dependency : node.dependsOn) {
+                long candidate = pathNanos.get(dependency);
+                if (!via.containsKey(node.name) || candidate > best) {
+                    best = candidate;
+                    via.put(node.name, dependency);
+                }
+            }
+            long total = best + runs.get(node.name).durationNanos();
+            pathNanos.put(node.name, total);
+            if (end == null || total >= pathNanos.get(end)) {
+                end = node.name;
+            }
+        }
+        LinkedList<String> path = new LinkedList<>();
+        for (String name = end; name != null; name = via.get(name)) {
+            path.addFirst(name);
+        }
+        return path;
+    }
+
+    private static final class Node {
+        final String name;
+        final Supplier<PayPropRawImportResult> importer;
+        final List<String> dependsOn;
+
+        Node(String name, Supplier<PayPropRawImportResult> importer, List<String> dependsOn) {
+            this.name = name;
+            this.importer = importer;
+            this.dependsOn = dependsOn;
+        }
+    }
+
+    /**
+     * Outcome of one import in a run. Times are measured from the start of the run.
+     */
+    public static final class NodeRun {
+        private final String name;
+        private final NodeStatus status;
+        private final PayPropRawImportResult result;
+        private final long startedAtNanos;
+        private final long finishedAtNanos;
+
+        NodeRun(String name, NodeStatus status, PayPropRawImportResult result, long startedAtNanos, long finishedAtNanos) {
+            this.name = name;
+            this.status = status;
+            this.result = result;
+            this.startedAtNanos = startedAtNanos;
+            this.finishedAtNanos = finishedAtNanos;
+        }
+
+        public String getName() { return name; }
+        public NodeStatus getStatus() { return status; }
+        public PayPropRawImportResult getResult() { return result; }
+
+        public long getStartedAtMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(startedAtNanos);
+        }
+
+        public long getFinishedAtMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(finishedAtNanos);
+        }
+
+        public long getDurationMillis() {
+            return TimeUnit.NANOSECONDS.toMillis(durationNanos());
+        }
+
+        long durationNanos() {
+            return finishedAtNanos - startedAtNanos;
+        }
+    }
+
+    /**
+     * Outcome of a graph run: per-import status and timing plus the critical path.
+     */
+    public static final class GraphRun {
+        private final Map<String, NodeRun> nodeRuns;
+        private final List<String> criticalPath;
+        private final long wallClockMillis;
+
+        GraphRun(Map<String, NodeRun> nodeRuns, List<String> criticalPath, long wallClockMillis) {
+            this.nodeRuns = Collections.unmodifiableMap(nodeRuns);
+            this.criticalPath = List.copyOf(criticalPath);
+            this.wallClockMillis = wallClockMillis;
+        }
+
+        public Map<String, NodeRun> getNodeRuns() { return nodeRuns; }
+        public List<String> getCriticalPath() { return criticalPath; }
+        public long getWallClockMillis() { return wallClockMillis; }
+
+        public long getCriticalPathMillis() {
+            return criticalPath.stream().mapToLong(name -> nodeRuns.get(name).getDurationMillis()).sum();
+        }
+
+        /**
+         * Sum of import durations - what the run would take one import at a time.
+         */
+        public long getSequentialMillis() {
+            return nodeRuns.values().stream().mapToLong(NodeRun::getDurationMillis).sum();
+        }
+
+        public Set<String> getSucceeded() {
+            return withStatus(NodeStatus.SUCCEEDED, NodeStatus.REUSED);
+        }
+
+        public Set<String> getFailed() {
+            return withStatus(NodeStatus.FAILED);
+        }
+
+        public Set<String> getSkipped() {
+            return withStatus(NodeStatus.SKIPPED);
+        }
+
+        public boolean isSuccess() {
+            return getSucceeded().size() == nodeRuns.size();
+        }
+
+        private Set<String> withStatus(NodeStatus... statuses) {
+            Set<NodeStatus> wanted = EnumSet.copyOf(Arrays.asList(statuses));
+            Set<String> names = new LinkedHashSet<>();
+            nodeRuns.values().forEach(run -> {
+                if (wanted.contains(run.status)) names.add(run.name);
+            });
+            return names;
+        }
+    }
+}
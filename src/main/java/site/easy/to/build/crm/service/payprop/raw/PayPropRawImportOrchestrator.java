@@ -1,23 +1,29 @@
 package site.easy.to.build.crm.service.payprop.raw;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import site.easy.to.build.crm.service.payprop.business.PropertyRentCalculationService;
 import site.easy.to.build.crm.service.payprop.business.PropertyRentCalculationResult;
+import site.easy.to.build.crm.service.metrics.PipelineMetrics;
 
 import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
+import java.util.function.Supplier;
 
 /**
  * PayProp Raw Import Orchestrator
  * 
  * Coordinates the complete raw-first PayProp import process:
  * 1. Raw Data Import - Import all PayProp endpoints with zero business logic
+ *    (independent endpoints run in parallel, see buildImportGraph)
  * 2. Business Logic Application - Calculate authoritative values (£995 vs £1,075)
  * 3. Entity Updates - Update existing Property entities with calculated values
  * 
@@ -71,6 +77,15 @@ public class PayPropRawImportOrchestrator {
     @Autowired
     private PayPropImportIssueTracker issueTracker;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+    
+    @Autowired
+    @Qualifier("rawImportExecutor")
+    private TaskExecutor rawImportExecutor;
+    
+    private volatile PayPropRawImportGraph.GraphRun lastGraphRun;
+
     
     /**
      * Execute complete PayProp raw import and business logic processing
@@ -85,6 +100,33 @@ public class PayPropRawImportOrchestrator {
         // Start issue tracking for this import run
         issueTracker.startImportRun();
         
+        return runCompleteImport(Set.of());
+    }
+    
+    /**
+     * Rerun the endpoints that failed (or were skipped because a dependency failed) in the
+     * last complete import, keeping the ones that succeeded, then apply the business logic.
+     * Runs a full import when there is no failed run to resume.
+     */
+    public PayPropRawImportOrchestrationResult resumeFailedImport() {
+        PayPropRawImportGraph.GraphRun previous = lastGraphRun;
+        if (previous == null || previous.isSuccess()) {
+            log.info("No failed raw import to resume - running a complete import");
+            return executeCompleteImport();
+        }
+        log.info("🔁 Resuming raw import: rerunning {} failed and {} skipped endpoints",
+            previous.getFailed().size(), previous.getSkipped().size());
+        return runCompleteImport(previous.getSucceeded());
+    }
+    
+    /**
+     * Last raw import graph run (per-endpoint status, timings, critical path)
+     */
+    public PayPropRawImportGraph.GraphRun getLastGraphRun() {
+        return lastGraphRun;
+    }
+    
+    private PayPropRawImportOrchestrationResult runCompleteImport(Set<String> alreadyImported) {
         PayPropRawImportOrchestrationResult orchestrationResult = new PayPropRawImportOrchestrationResult();
         orchestrationResult.setStartTime(LocalDateTime.now());
         
@@ -92,128 +134,35 @@ public class PayPropRawImportOrchestrator {
             // PHASE 1: Raw Data Import (Zero Business Logic)
             log.info("📥 PHASE 1: Raw Data Import - Preserving exact PayProp structure");
             
-            PayPropRawImportResult propertiesResult = propertiesImportService.importAllProperties();
-            orchestrationResult.addImportResult("properties", propertiesResult);
-            
-            if (!propertiesResult.isSuccess()) {
-                throw new RuntimeException("Properties import failed: " + propertiesResult.getErrorMessage());
-            }
-            
-            PayPropRawImportResult invoicesResult = invoicesImportService.importAllInvoices();
-            orchestrationResult.addImportResult("invoices", invoicesResult);
-            
-            if (!invoicesResult.isSuccess()) {
-                throw new RuntimeException("Invoice instructions import failed: " + invoicesResult.getErrorMessage());
-            }
-            
-            // Import ALL payment transactions (includes nested incoming payment extraction)
-            PayPropRawImportResult allPaymentsResult = allPaymentsImportService.importAllPayments();
-            orchestrationResult.addImportResult("all_payments", allPaymentsResult);
-
-            if (!allPaymentsResult.isSuccess()) {
-                throw new RuntimeException("All payments import failed: " + allPaymentsResult.getErrorMessage());
-            }
-
-            log.info("✅ All payments imported (includes extraction of incoming tenant payments to payprop_export_incoming_payments)");
-
-            // Import payment distributions
-            PayPropRawImportResult paymentsResult = paymentsImportService.importAllPayments();
-            orchestrationResult.addImportResult("payments", paymentsResult);
-            
-            if (!paymentsResult.isSuccess()) {
-                throw new RuntimeException("Payments import failed: " + paymentsResult.getErrorMessage());
-            }
-            
-            // Import beneficiaries
-            PayPropRawImportResult beneficiariesResult = beneficiariesImportService.importAllBeneficiaries();
-            orchestrationResult.addImportResult("beneficiaries", beneficiariesResult);
-            
-            if (!beneficiariesResult.isSuccess()) {
-                throw new RuntimeException("Beneficiaries import failed: " + beneficiariesResult.getErrorMessage());
-            }
-            
-            // Import tenants
-            PayPropRawImportResult tenantsResult = tenantsImportService.importAllTenants();
-            orchestrationResult.addImportResult("tenants", tenantsResult);
-            
-            if (!tenantsResult.isSuccess()) {
-                throw new RuntimeException("Tenants import failed: " + tenantsResult.getErrorMessage());
-            }
-            
-            // NEW FINANCIAL ENDPOINTS - CAPTURE THE MISSING £995 DATA!
-            log.info("💰 PHASE 1B: NEW FINANCIAL ENDPOINTS - Searching for £995 mystery data!");
-            
-            // COMMENTED OUT: PayProp permission-restricted endpoints (403 errors)
-            // These require higher-tier API access that this account doesn't have
-            
-            /* DISABLED - PayProp API Permission Denied (403)
-            // Import tenant balances (MOST LIKELY to contain £995!)
-            PayPropRawImportResult tenantBalancesResult = tenantBalancesImportService.importAllTenantBalances();
-            orchestrationResult.addImportResult("tenant_balances", tenantBalancesResult);
-            
-            if (!tenantBalancesResult.isSuccess()) {
-                throw new RuntimeException("Tenant balances import failed: " + tenantBalancesResult.getErrorMessage());
-            }
-            
-            // Import tenant statements
-            PayPropRawImportResult tenantStatementResult = tenantStatementImportService.importAllTenantStatements();
-            orchestrationResult.addImportResult("tenant_statements", tenantStatementResult);
-            
-            if (!tenantStatementResult.isSuccess()) {
-                throw new RuntimeException("Tenant statements import failed: " + tenantStatementResult.getErrorMessage());
-            }
-            
-            // Import invoice instructions (alternative to invoices)
-            PayPropRawImportResult invoiceInstructionsResult = invoiceInstructionsImportService.importAllInvoiceInstructions();
-            orchestrationResult.addImportResult("invoice_instructions", invoiceInstructionsResult);
-            
-            if (!invoiceInstructionsResult.isSuccess()) {
-                throw new RuntimeException("Invoice instructions import failed: " + invoiceInstructionsResult.getErrorMessage());
-            }
-            
-            // Import agency income data
-            PayPropRawImportResult agencyIncomeResult = agencyIncomeImportService.importAllAgencyIncome();
-            orchestrationResult.addImportResult("agency_income", agencyIncomeResult);
-            
-            if (!agencyIncomeResult.isSuccess()) {
-                throw new RuntimeException("Agency income import failed: " + agencyIncomeResult.getErrorMessage());
-            }
-            
-            // Import processing summaries
-            PayPropRawImportResult processingSummaryResult = processingSummaryImportService.importAllProcessingSummaries();
-            orchestrationResult.addImportResult("processing_summaries", processingSummaryResult);
-            
-            if (!processingSummaryResult.isSuccess()) {
-                throw new RuntimeException("Processing summaries import failed: " + processingSummaryResult.getErrorMessage());
-            }
-            */
-            
-            // Import beneficiary balances (this one might work)
-            PayPropRawImportResult beneficiaryBalancesResult = beneficiaryBalancesImportService.importAllBeneficiaryBalances();
-            orchestrationResult.addImportResult("beneficiary_balances", beneficiaryBalancesResult);
-            
-            if (!beneficiaryBalancesResult.isSuccess()) {
-                throw new RuntimeException("Beneficiary balances import failed: " + beneficiaryBalancesResult.getErrorMessage());
+            PayPropRawImportGraph.GraphRun graphRun = buildImportGraph().execute(rawImportExecutor, alreadyImported);
+            lastGraphRun = graphRun;
+            orchestrationResult.setGraphRun(graphRun);
+            graphRun.getNodeRuns().values().forEach(run -> {
+                if (run.getResult() != null) {
+                    orchestrationResult.addImportResult(run.getName(), run.getResult());
+                }
+            });
+            logGraphRun(graphRun);
+            
+            if (!graphRun.isSuccess()) {
+                StringBuilder failures = new StringBuilder();
+                for (String endpoint : graphRun.getFailed()) {
+                    PayPropRawImportResult failed = graphRun.getNodeRuns().get(endpoint).getResult();
+                    failures.append(failures.length() > 0 ? "; " : "").append(endpoint).append(": ")
+                        .append(failed != null ? failed.getErrorMessage() : "no result");
+                }
+                throw new RuntimeException("Raw import failed (" + failures + "), skipped: " + graphRun.getSkipped());
             }
             
             log.info("⚠️ NOTE: 5 premium financial endpoints skipped due to PayProp API permissions");
-            
             log.info("✅ PHASE 1 Complete: ALL RAW DATA imported successfully");
-            log.info("   ORIGINAL ENDPOINTS:");
-            log.info("   Properties: {} items (settings.monthly_payment = £995)", propertiesResult.getTotalImported());
-            log.info("   Invoice Instructions: {} items (gross_amount = £1,075)", invoicesResult.getTotalImported());
-            log.info("   All Payment Transactions: {} items (FIND MISSING £1,100 HERE!)", allPaymentsResult.getTotalImported());
-            log.info("   Payment Distributions: {} items", paymentsResult.getTotalImported());
-            log.info("   Beneficiaries: {} items", beneficiariesResult.getTotalImported());
-            log.info("   Tenants: {} items", tenantsResult.getTotalImported());
-            log.info("   NEW FINANCIAL ENDPOINTS:");
-            log.info("   Beneficiary Balances: {} items", beneficiaryBalancesResult.getTotalImported());
-            log.info("   ⚠️ SKIPPED: 5 premium endpoints (tenant-balances, tenant-statement, invoice-instructions, agency-income, processing-summary)");
             
             // PHASE 2: Business Logic Application
             log.info("🧠 PHASE 2: Business Logic - Solving £995 vs £1,075 mystery");
             
-            PropertyRentCalculationResult rentResult = rentCalculationService.calculateAllPropertyRents();
+            PropertyRentCalculationResult rentResult = pipelineMetrics.record(PipelineMetrics.PAYPROP_IMPORT,
+                "rent_calculation", rentCalculationService::calculateAllPropertyRents,
+                result -> result.getTotalProperties());
             orchestrationResult.setRentCalculationResult(rentResult);
             
             if (!rentResult.isSuccess()) {
@@ -249,6 +198,40 @@ public class PayPropRawImportOrchestrator {
         return orchestrationResult;
     }
     
+    /**
+     * Raw endpoint imports and their dependencies.
+     *
+     * The properties import clears the invoice, payment, beneficiary and tenant tables before
+     * reloading properties (and incoming payments reference properties), so everything waits
+     * for it; after that the endpoints are independent of each other.
+     *
+     * Not included - PayProp API permission denied (403) for this account: tenant balances,
+     * tenant statements, invoice instructions, agency income and processing summaries.
+     */
+    private PayPropRawImportGraph buildImportGraph() {
+        return new PayPropRawImportGraph()
+            .add("properties", () -> importPhase("properties", propertiesImportService::importAllProperties))
+            .add("invoices", () -> importPhase("invoices", invoicesImportService::importAllInvoices), "properties")
+            // Includes extraction of incoming tenant payments to payprop_export_incoming_payments
+            .add("all_payments", () -> importPhase("all_payments", allPaymentsImportService::importAllPayments), "properties")
+            .add("payments", () -> importPhase("payments", paymentsImportService::importAllPayments), "properties")
+            .add("beneficiaries", () -> importPhase("beneficiaries", beneficiariesImportService::importAllBeneficiaries), "properties")
+            .add("tenants", () -> importPhase("tenants", tenantsImportService::importAllTenants), "properties")
+            .add("beneficiary_balances", () -> importPhase("beneficiary_balances",
+                beneficiaryBalancesImportService::importAllBeneficiaryBalances), "beneficiaries");
+    }
+    
+    private void logGraphRun(PayPropRawImportGraph.GraphRun graphRun) {
+        for (PayPropRawImportGraph.NodeRun run : graphRun.getNodeRuns().values()) {
+            PayPropRawImportResult result = run.getResult();
+            log.info("   {} {}: {} items, {}ms (started +{}ms)", run.getStatus(), run.getName(),
+                result != null ? result.getTotalImported() : 0, run.getDurationMillis(), run.getStartedAtMillis());
+        }
+        log.info("⏱️ Raw import wall clock {}ms vs {}ms one at a time; critical path {} ({}ms)",
+            graphRun.getWallClockMillis(), graphRun.getSequentialMillis(),
+            String.join(" → ", graphRun.getCriticalPath()), graphRun.getCriticalPathMillis());
+    }
+    
     /**
      * Execute only the raw data import phase (for testing)
      */
@@ -260,11 +243,11 @@ public class PayPropRawImportOrchestrator {
         
         try {
             // Import raw properties (£995 data)
-            PayPropRawImportResult propertiesResult = propertiesImportService.importAllProperties();
+            PayPropRawImportResult propertiesResult = importPhase("properties", propertiesImportService::importAllProperties);
             orchestrationResult.addImportResult("properties", propertiesResult);
             
             // Import raw invoices (£1,075 data) 
-            PayPropRawImportResult invoicesResult = invoicesImportService.importAllInvoices();
+            PayPropRawImportResult invoicesResult = importPhase("invoices", invoicesImportService::importAllInvoices);
             orchestrationResult.addImportResult("invoices", invoicesResult);
             
             orchestrationResult.setSuccess(
@@ -305,6 +288,15 @@ public class PayPropRawImportOrchestrator {
         }
     }
     
+    /**
+     * Time one endpoint import, its rows being the items imported.
+     * The import services return failed results instead of throwing, so those are tagged as errors here.
+     */
+    private PayPropRawImportResult importPhase(String endpoint, Supplier<PayPropRawImportResult> importer) {
+        return pipelineMetrics.record(PipelineMetrics.PAYPROP_IMPORT, endpoint, importer,
+            PayPropRawImportResult::getTotalImported, result -> result != null && result.isSuccess());
+    }
+
     /**
      * Log a comprehensive success summary
      */
@@ -320,8 +312,11 @@ public class PayPropRawImportOrchestrator {
                 entry.getKey(), 
                 importResult.getTotalImported(), 
                 importResult.getDuration().getSeconds());
+            if (importResult.getMirrorDiff() != null) {
+                log.info("         changes: {}", importResult.getMirrorDiff().getSummary());
+            }
         }
-        
+
         if (result.getRentCalculationResult() != null) {
             PropertyRentCalculationResult rentResult = result.getRentCalculationResult();
             log.info("   ");
@@ -350,6 +345,7 @@ public class PayPropRawImportOrchestrator {
         private Map<String, PayPropRawImportResult> importResults;
         private PropertyRentCalculationResult rentCalculationResult;
         private PayPropImportSummary importSummary;
+        private PayPropRawImportGraph.GraphRun graphRun;
         
         public PayPropRawImportOrchestrationResult() {
             this.success = false;
@@ -389,6 +385,9 @@ public class PayPropRawImportOrchestrator {
         public PayPropImportSummary getImportSummary() { return importSummary; }
         public void setImportSummary(PayPropImportSummary importSummary) { this.importSummary = importSummary; }
         
+        public PayPropRawImportGraph.GraphRun getGraphRun() { return graphRun; }
+        public void setGraphRun(PayPropRawImportGraph.GraphRun graphRun) { this.graphRun = graphRun; }
+        
         public String getSummary() {
             if (success) {
                 int totalItems = importResults.values().stream()
@@ -18,6 +18,7 @@ public class PayPropRawImportResult {
     private int totalErrors;
     private String errorMessage;
     private String details;
+    private PayPropRawMirrorDiff mirrorDiff;
     
     public PayPropRawImportResult() {
         this.success = false;
@@ -105,6 +106,17 @@ public class PayPropRawImportResult {
         this.details = details;
     }
     
+    /**
+     * Difference between this fetch and the stored record hashes (null when not tracked)
+     */
+    public PayPropRawMirrorDiff getMirrorDiff() {
+        return mirrorDiff;
+    }
+    
+    public void setMirrorDiff(PayPropRawMirrorDiff mirrorDiff) {
+        this.mirrorDiff = mirrorDiff;
+    }
+    
     // ===== CALCULATED PROPERTIES =====
     
     public Duration getDuration() {
@@ -161,6 +173,9 @@ public class PayPropRawImportResult {
         sb.append(", imported=").append(totalImported);
         sb.append(", errors=").append(totalErrors);
         sb.append(", successRate=").append(String.format("%.1f%%", getSuccessRate()));
+        if (mirrorDiff != null) {
+            sb.append(", changes=").append(mirrorDiff.getChangeCount());
+        }
         if (hasErrors()) {
             sb.append(", errorMessage='").append(errorMessage).append('\'');
         }
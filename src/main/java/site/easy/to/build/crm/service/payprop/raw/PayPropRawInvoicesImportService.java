@@ -36,6 +36,9 @@ public class PayPropRawInvoicesImportService {
     @Autowired
     private DataSource dataSource;
     
+    @Autowired
+    private PayPropRawRecordHashService recordHashService;
+    
     /**
      * Import all invoice instructions from PayProp /export/invoices endpoint
      * Stores raw data with zero transformation
@@ -57,6 +60,7 @@ public class PayPropRawInvoicesImportService {
             
             // Import to database
             int importedCount = importInvoicesToDatabase(invoices);
+            result.setMirrorDiff(recordHashService.recordFetch(PayPropRawRecordHashService.INVOICES, invoices));
             
             result.setTotalFetched(invoices.size());
             result.setTotalImported(importedCount);
@@ -0,0 +1,51 @@
+package site.easy.to.build.crm.service.payprop.raw;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * Difference between one PayProp fetch and the record hashes stored for its raw table
+ * (see PayPropRawRecordHashService). Ids are PayProp ids.
+ */
+public final class PayPropRawMirrorDiff {
+
+    private final String sourceTable;
+    private final Set<String> inserted;
+    private final Set<String> changed;
+    private final Set<String> deleted;
+    private final int unchanged;
+
+    public PayPropRawMirrorDiff(String sourceTable, Set<String> inserted, Set<String> changed,
+                                Set<String> deleted, int unchanged) {
+        this.sourceTable = sourceTable;
+        this.inserted = Collections.unmodifiableSet(new LinkedHashSet<>(inserted));
+        this.changed = Collections.unmodifiableSet(new LinkedHashSet<>(changed));
+        this.deleted = Collections.unmodifiableSet(new LinkedHashSet<>(deleted));
+        this.unchanged = unchanged;
+    }
+
+    public String getSourceTable() { return sourceTable; }
+    public Set<String> getInserted() { return inserted; }
+    public Set<String> getChanged() { return changed; }
+    public Set<String> getDeleted() { return deleted; }
+    public int getUnchanged() { return unchanged; }
+
+    public int getChangeCount() {
+        return inserted.size() + changed.size() + deleted.size();
+    }
+
+    public boolean isEmpty() {
+        return getChangeCount() == 0;
+    }
+
+    public String getSummary() {
+        return String.format("%s: %d new, %d changed, %d deleted, %d unchanged",
+            sourceTable, inserted.size(), changed.size(), deleted.size(), unchanged);
+    }
+
+    @Override
+    public String toString() {
+        return "PayPropRawMirrorDiff{" + getSummary() + "}";
+    }
+}
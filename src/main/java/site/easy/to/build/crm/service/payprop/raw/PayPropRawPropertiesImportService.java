@@ -36,6 +36,9 @@ public class PayPropRawPropertiesImportService {
     @Autowired
     private DataSource dataSource;
     
+    @Autowired
+    private PayPropRawRecordHashService recordHashService;
+    
     /**
      * Import all properties from PayProp /export/properties endpoint
      * Stores raw data with zero transformation
@@ -57,6 +60,7 @@ public class PayPropRawPropertiesImportService {
             
             // Import to database
             int importedCount = importPropertiesToDatabase(properties);
+            result.setMirrorDiff(recordHashService.recordFetch(PayPropRawRecordHashService.PROPERTIES, properties));
             
             result.setTotalFetched(properties.size());
             result.setTotalImported(importedCount);
@@ -0,0 +1,343 @@
+package site.easy.to.build.crm.service.payprop.raw;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * PayProp Raw Record Hash Service
+ *
+ * Keeps a SHA-256 content hash (plus the record JSON) per PayProp record alongside the
+ * payprop_export_* raw tables, so each fetch can be diffed against the mirror in one pass:
+ * one query loads the stored hashes, the diff happens in memory, and only inserted, changed
+ * and deleted records are written back. Unchanged records cost nothing after the fetch.
+ *
+ * The previous record JSON is kept for changed records, which gives PayPropConflictResolver
+ * a base version for field-level (three-way) conflict checks against local edits.
+ *
+ * The business sync uses the same table under "sync:" sources to skip items it already
+ * applied unchanged (filterChanged / markSynced).
+ */
+@Service
+public class PayPropRawRecordHashService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropRawRecordHashService.class);
+
+    public static final String PROPERTIES = "payprop_export_properties";
+    public static final String TENANTS = "payprop_export_tenants";
+    public static final String BENEFICIARIES = "payprop_export_beneficiaries";
+    public static final String INVOICES = "payprop_export_invoices";
+
+    public static final String INSERTED = "INSERTED";
+    public static final String CHANGED = "CHANGED";
+    public static final String DELETED = "DELETED";
+
+    private static final int IN_CLAUSE_CHUNK = 500;
+
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile boolean tableVerified;
+
+    public PayPropRawRecordHashService(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Diff a complete fetch of a raw table against the stored hashes and store the new state.
+     * An empty fetch is treated as "nothing fetched", not as every record deleted.
+     */
+    public PayPropRawMirrorDiff recordFetch(String sourceTable, List<Map<String, Object>> records) {
+        ensureTable();
+
+        Map<String, String> stored = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT payprop_id, content_hash FROM payprop_raw_record_hashes WHERE source_table = ? AND deleted_at IS NULL",
+            rs -> { stored.put(rs.getString(1), rs.getString(2)); }, sourceTable);
+
+        Map<String, Map<String, Object>> byId = indexById(records);
+        Map<String, String> fetched = new LinkedHashMap<>();
+        Map<String, String> json = new HashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : byId.entrySet()) {
+            String canonical = canonicalJson(entry.getValue());
+            json.put(entry.getKey(), canonical);
+            fetched.put(entry.getKey(), sha256(canonical));
+        }
+
+        PayPropRawMirrorDiff diff = diff(sourceTable, stored, records.isEmpty() ? null : fetched);
+
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>();
+        for (String id : diff.getInserted()) {
+            upserts.add(new Object[]{sourceTable, id, fetched.get(id), json.get(id), INSERTED, now, now});
+        }
+        for (String id : diff.getChanged()) {
+            upserts.add(new Object[]{sourceTable, id, fetched.get(id), json.get(id), CHANGED, now, now});
+        }
+        if (!upserts.isEmpty()) {
+            // previous_json is assigned before record_json, so it takes the old value
+            jdbcTemplate.batchUpdate("""
+                INSERT INTO payprop_raw_record_hashes
+                    (source_table, payprop_id, content_hash, record_json, change_type, first_seen_at, changed_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?)
+                ON DUPLICATE KEY UPDATE
+                    previous_json = record_json,
+                    record_json = VALUES(record_json),
+                    content_hash = VALUES(content_hash),
+                    change_type = VALUES(change_type),
+                    changed_at = VALUES(changed_at),
+                    deleted_at = NULL
+                """, upserts);
+        }
+
+        if (!diff.getDeleted().isEmpty()) {
+            List<Object[]> deletes = new ArrayList<>();
+            for (String id : diff.getDeleted()) {
+                deletes.add(new Object[]{now, now, sourceTable, id});
+            }
+            jdbcTemplate.batchUpdate("""
+                UPDATE payprop_raw_record_hashes
+                SET previous_json = record_json, change_type = 'DELETED', changed_at = ?, deleted_at = ?
+                WHERE source_table = ? AND payprop_id = ?
+                """, deletes);
+        }
+
+        log.info("🔍 Mirror diff {}", diff.getSummary());
+        return diff;
+    }
+
+    /**
+     * Records of one page whose content differs from what was last marked synced for the source.
+     */
+    public List<Map<String, Object>> filterChanged(String source, List<Map<String, Object>> records) {
+        if (records.isEmpty()) {
+            return records;
+        }
+        ensureTable();
+        Map<String, Map<String, Object>> byId = indexById(records);
+        Map<String, String> stored = loadHashes(source, byId.keySet());
+
+        List<Map<String, Object>> changed = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            String id = idOf(record);
+            if (id == null || !contentHash(record).equals(stored.get(id))) {
+                changed.add(record);
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Remember the content of records the business sync applied successfully.
+     */
+    public void markSynced(String source, Collection<Map<String, Object>> records) {
+        if (records.isEmpty()) {
+            return;
+        }
+        ensureTable();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        List<Object[]> upserts = new ArrayList<>();
+        for (Map<String, Object> record : records) {
+            String id = idOf(record);
+            if (id != null) {
+                upserts.add(new Object[]{source, id, contentHash(record), now, now});
+            }
+        }
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO payprop_raw_record_hashes
+                (source_table, payprop_id, content_hash, change_type, first_seen_at, changed_at)
+            VALUES (?, ?, ?, 'CHANGED', ?, ?)
+            ON DUPLICATE KEY UPDATE content_hash = VALUES(content_hash), changed_at = VALUES(changed_at)
+            """, upserts);
+    }
+
+    /**
+     * Forget the stored hashes of a source, so the next fetch or sync treats everything as new.
+     */
+    public int reset(String source) {
+        ensureTable();
+        int removed = jdbcTemplate.update("DELETE FROM payprop_raw_record_hashes WHERE source_table = ?", source);
+        log.info("🧹 Cleared {} record hashes for {}", removed, source);
+        return removed;
+    }
+
+    /**
+     * Records of a raw table inserted, changed or deleted by fetches since the given time.
+     */
+    public List<MirrorChange> findChangesSince(String sourceTable, LocalDateTime since) {
+        ensureTable();
+        return jdbcTemplate.query("""
+            SELECT payprop_id, change_type, record_json, previous_json, changed_at
+            FROM payprop_raw_record_hashes
+            WHERE source_table = ? AND changed_at > ?
+            ORDER BY changed_at
+            """, (rs, rowNum) -> new MirrorChange(
+                rs.getString("payprop_id"),
+                rs.getString("change_type"),
+                parseJson(rs.getString("record_json")),
+                parseJson(rs.getString("previous_json")),
+                rs.getTimestamp("changed_at").toLocalDateTime()),
+            sourceTable, Timestamp.valueOf(since));
+    }
+
+    /**
+     * Compare stored and fetched hashes (by PayProp id). A null fetched map means nothing was
+     * fetched: nothing is reported deleted.
+     */
+    static PayPropRawMirrorDiff diff(String sourceTable, Map<String, String> stored, Map<String, String> fetched) {
+        Set<String> inserted = new LinkedHashSet<>();
+        Set<String> changed = new LinkedHashSet<>();
+        Set<String> deleted = new LinkedHashSet<>();
+        int unchanged = 0;
+
+        if (fetched != null) {
+            for (Map.Entry<String, String> entry : fetched.entrySet()) {
+                String previous = stored.get(entry.getKey());
+                if (previous == null) {
+                    inserted.add(entry.getKey());
+                } else if (!previous.equals(entry.getValue())) {
+                    changed.add(entry.getKey());
+                } else {
+                    unchanged++;
+                }
+            }
+            for (String id : stored.keySet()) {
+                if (!fetched.containsKey(id)) {
+                    deleted.add(id);
+                }
+            }
+        }
+        return new PayPropRawMirrorDiff(sourceTable, inserted, changed, deleted, unchanged);
+    }
+
+    /**
+     * SHA-256 of the record's canonical JSON (map keys sorted at every level).
+     */
+    public static String contentHash(Map<String, Object> record) {
+        return sha256(canonicalJson(record));
+    }
+
+    private static String canonicalJson(Map<String, Object> record) {
+        try {
+            return CANONICAL_JSON.writeValueAsString(record);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("PayProp record is not serializable: " + record.get("id"), e);
+        }
+    }
+
+    private static String sha256(String value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String idOf(Map<String, Object> record) {
+        Object id = record.get("id");
+        return id != null ? id.toString() : null;
+    }
+
+    private static Map<String, Map<String, Object>> indexById(List<Map<String, Object>> records) {
+        Map<String, Map<String, Object>> byId = new LinkedHashMap<>();
+        for (Map<String, Object> record : records) {
+            String id = idOf(record);
+            if (id != null) {
+                byId.put(id, record);
+            }
+        }
+        return byId;
+    }
+
+    private Map<String, String> loadHashes(String source, Collection<String> ids) {
+        Map<String, String> hashes = new HashMap<>();
+        List<String> idList = new ArrayList<>(ids);
+        for (int from = 0; from < idList.size(); from += IN_CLAUSE_CHUNK) {
+            List<String> chunk = idList.subList(from, Math.min(from + IN_CLAUSE_CHUNK, idList.size()));
+            String placeholders = String.join(",", Collections.nCopies(chunk.size(), "?"));
+            List<Object> args = new ArrayList<>();
+            args.add(source);
+            args.addAll(chunk);
+            jdbcTemplate.query("SELECT payprop_id, content_hash FROM payprop_raw_record_hashes WHERE source_table = ? AND payprop_id IN ("
+                + placeholders + ")", rs -> { hashes.put(rs.getString(1), rs.getString(2)); }, args.toArray());
+        }
+        return hashes;
+    }
+
+    private static Map<String, Object> parseJson(String json) {
+        if (json == null) {
+            return null;
+        }
+        try {
+            return CANONICAL_JSON.readValue(json, new TypeReference<Map<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            log.warn("Unreadable record JSON in payprop_raw_record_hashes: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    private void ensureTable() {
+        if (tableVerified) return;
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS payprop_raw_record_hashes (
+                source_table VARCHAR(64) NOT NULL,
+                payprop_id VARCHAR(64) NOT NULL,
+                content_hash CHAR(64) NOT NULL,
+                record_json MEDIUMTEXT,
+                previous_json MEDIUMTEXT,
+                change_type VARCHAR(16) NOT NULL,
+                first_seen_at DATETIME(3) NOT NULL,
+                changed_at DATETIME(3) NOT NULL,
+                deleted_at DATETIME(3),
+                PRIMARY KEY (source_table, payprop_id),
+                KEY idx_raw_record_hashes_changed (source_table, changed_at)
+            )
+        """);
+        tableVerified = true;
+    }
+
+    /**
+     * One record change found in the mirror. previous is the record before the change (null
+     * for new records); for deleted records current is the last version PayProp returned.
+     */
+    public static final class MirrorChange {
+        private final String payPropId;
+        private final String changeType;
+        private final Map<String, Object> current;
+        private final Map<String, Object> previous;
+        private final LocalDateTime changedAt;
+
+        public MirrorChange(String payPropId, String changeType, Map<String, Object> current,
+                            Map<String, Object> previous, LocalDateTime changedAt) {
+            this.payPropId = payPropId;
+            this.changeType = changeType;
+            this.current = current;
+            this.previous = previous;
+            this.changedAt = changedAt;
+        }
+
+        public String getPayPropId() { return payPropId; }
+        public String getChangeType() { return changeType; }
+        public Map<String, Object> getCurrent() { return current; }
+        public Map<String, Object> getPrevious() { return previous; }
+        public LocalDateTime getChangedAt() { return changedAt; }
+
+        public boolean isInserted() { return INSERTED.equals(changeType); }
+        public boolean isChanged() { return CHANGED.equals(changeType); }
+        public boolean isDeleted() { return DELETED.equals(changeType); }
+    }
+}
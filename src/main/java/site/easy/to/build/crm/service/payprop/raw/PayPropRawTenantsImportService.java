@@ -34,6 +34,9 @@ public class PayPropRawTenantsImportService {
     @Autowired
     private DataSource dataSource;
     
+    @Autowired
+    private PayPropRawRecordHashService recordHashService;
+    
     @Transactional
     public PayPropRawImportResult importAllTenants() {
         log.info("🔄 Starting raw tenants import from PayProp");
@@ -50,6 +53,7 @@ public class PayPropRawTenantsImportService {
             log.info("📦 PayProp API returned: {} tenants", tenants.size());
             
             int importedCount = importTenantsToDatabase(tenants);
+            result.setMirrorDiff(recordHashService.recordFetch(PayPropRawRecordHashService.TENANTS, tenants));
             result.setTotalImported(importedCount);
             
             result.setSuccess(true);
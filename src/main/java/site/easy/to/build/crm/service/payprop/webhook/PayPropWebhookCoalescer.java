@@ -0,0 +1,89 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import java.util.*;
+
+/**
+ * Plans the processing of a batch of inbox events.
+ *
+ * Events are grouped into lanes by entity (events without an entity get a lane each). A lane
+ * is applied in arrival order; different lanes can run in parallel. Within a lane, consecutive
+ * events of a coalescable endpoint (see PayPropWebhookEvents.isCoalescable) are merged into one
+ * sync: their data maps are overlaid in order, skipping nulls, which is what applying them one
+ * by one would have left behind.
+ */
+public final class PayPropWebhookCoalescer {
+
+    private PayPropWebhookCoalescer() {
+    }
+
+    /**
+     * @param events inbox events in arrival (id) order
+     * @return lanes, each in arrival order
+     */
+    public static List<List<CoalescedEvent>> plan(List<PayPropWebhookEvent> events) {
+        Map<String, List<CoalescedEvent>> lanes = new LinkedHashMap<>();
+        for (PayPropWebhookEvent event : events) {
+            String laneKey = event.getEntityKey() != null ? event.getEntityKey() : "event:" + event.getEventKey();
+            List<CoalescedEvent> lane = lanes.computeIfAbsent(laneKey, k -> new ArrayList<>());
+            CoalescedEvent last = lane.isEmpty() ? null : lane.get(lane.size() - 1);
+            if (last != null && PayPropWebhookEvents.isCoalescable(event.getEndpoint())
+                    && last.getEndpoint().equals(event.getEndpoint())) {
+                last.add(event);
+            } else {
+                lane.add(new CoalescedEvent(event));
+            }
+        }
+        return new ArrayList<>(lanes.values());
+    }
+
+    /**
+     * One sync covering one or more consecutive events of the same endpoint and entity.
+     */
+    public static final class CoalescedEvent {
+        private final List<PayPropWebhookEvent> events = new ArrayList<>();
+        private final Map<String, Object> data = new LinkedHashMap<>();
+
+        CoalescedEvent(PayPropWebhookEvent first) {
+            add(first);
+        }
+
+        void add(PayPropWebhookEvent event) {
+            events.add(event);
+            event.getData().forEach((key, value) -> {
+                if (value != null) {
+                    data.put(key, value);
+                }
+            });
+        }
+
+        public String getEndpoint() {
+            return events.get(0).getEndpoint();
+        }
+
+        /**
+         * Action of the latest event.
+         */
+        public String getAction() {
+            return events.get(events.size() - 1).getAction();
+        }
+
+        public Map<String, Object> getData() {
+            return Collections.unmodifiableMap(data);
+        }
+
+        /**
+         * The latest event, which is recorded as processed; the others are recorded as coalesced.
+         */
+        public PayPropWebhookEvent getSurvivor() {
+            return events.get(events.size() - 1);
+        }
+
+        public List<PayPropWebhookEvent> getEvents() {
+            return Collections.unmodifiableList(events);
+        }
+
+        public int getCoalescedCount() {
+            return events.size() - 1;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * One PayProp webhook event as stored in payprop_webhook_inbox.
+ *
+ * - endpoint: the webhook path it arrived on (e.g. maintenance-ticket-updated)
+ * - eventKey: idempotency key (see PayPropWebhookEvents.eventKey), unique in the inbox
+ * - entityKey: the CRM entity the event changes (e.g. ticket:123), null if none; events of
+ *   one entity are applied in arrival order
+ * - data: the event's data object (for tag webhooks, the whole payload)
+ *
+ * id, receivedAt and attempts are set once the event has been stored.
+ */
+public final class PayPropWebhookEvent {
+
+    private final Long id;
+    private final String eventKey;
+    private final String endpoint;
+    private final String action;
+    private final String entityKey;
+    private final Map<String, Object> data;
+    private final LocalDateTime receivedAt;
+    private final int attempts;
+
+    public PayPropWebhookEvent(Long id, String eventKey, String endpoint, String action, String entityKey,
+                               Map<String, Object> data, LocalDateTime receivedAt, int attempts) {
+        this.id = id;
+        this.eventKey = eventKey;
+        this.endpoint = endpoint;
+        this.action = action;
+        this.entityKey = entityKey;
+        this.data = Collections.unmodifiableMap(new LinkedHashMap<>(data));
+        this.receivedAt = receivedAt;
+        this.attempts = attempts;
+    }
+
+    public Long getId() { return id; }
+    public String getEventKey() { return eventKey; }
+    public String getEndpoint() { return endpoint; }
+    public String getAction() { return action; }
+    public String getEntityKey() { return entityKey; }
+    public Map<String, Object> getData() { return data; }
+    public LocalDateTime getReceivedAt() { return receivedAt; }
+    public int getAttempts() { return attempts; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PayPropWebhookEvent)) return false;
+        return eventKey.equals(((PayPropWebhookEvent) o).eventKey);
+    }
+
+    @Override
+    public int hashCode() {
+        return eventKey.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return "PayPropWebhookEvent{id=" + id + ", endpoint=" + endpoint + ", action=" + action
+            + ", entity=" + entityKey + "}";
+    }
+}
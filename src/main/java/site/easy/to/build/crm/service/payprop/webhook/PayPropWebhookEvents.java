@@ -0,0 +1,161 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+
+/**
+ * PayProp webhook endpoints and how their payloads become inbox events.
+ *
+ * Tag webhooks carry one change per payload. The other webhooks carry an "events" list
+ * ({type, action, data}); each endpoint takes the events of its type (and action) - the same
+ * filters the controller applied when it processed webhooks inline.
+ */
+public final class PayPropWebhookEvents {
+
+    public static final String TAG_CREATED = "tag-created";
+    public static final String TAG_UPDATED = "tag-updated";
+    public static final String TAG_DELETED = "tag-deleted";
+    public static final String TAG_APPLIED = "tag-applied";
+    public static final String TAG_REMOVED = "tag-removed";
+    public static final String MAINTENANCE_TICKET_CREATED = "maintenance-ticket-created";
+    public static final String MAINTENANCE_TICKET_UPDATED = "maintenance-ticket-updated";
+    public static final String MAINTENANCE_MESSAGE = "maintenance-message";
+    public static final String OUTGOING_PAYMENT_BATCH = "outgoing-payment-batch";
+    public static final String PAYMENT_CREATED = "payment-created";
+    public static final String PAYMENT_UPDATED = "payment-updated";
+    public static final String PAYMENT_INSTRUCTION = "payment-instruction";
+
+    private static final Set<String> TAG_ENDPOINTS =
+        Set.of(TAG_CREATED, TAG_UPDATED, TAG_DELETED, TAG_APPLIED, TAG_REMOVED);
+
+    /**
+     * Endpoints whose events only set the fields they carry, so consecutive events for the
+     * same entity can be merged into one (later values win).
+     */
+    private static final Set<String> COALESCABLE_ENDPOINTS =
+        Set.of(TAG_UPDATED, MAINTENANCE_TICKET_UPDATED, OUTGOING_PAYMENT_BATCH, PAYMENT_UPDATED);
+
+    // endpoint -> {event type, event action (null = any)}
+    private static final Map<String, String[]> EVENT_FILTERS = new LinkedHashMap<>();
+    static {
+        EVENT_FILTERS.put(MAINTENANCE_TICKET_CREATED, new String[]{"maintenance_ticket", "create"});
+        EVENT_FILTERS.put(MAINTENANCE_TICKET_UPDATED, new String[]{"maintenance_ticket", "update"});
+        EVENT_FILTERS.put(MAINTENANCE_MESSAGE, new String[]{"maintenance_message", null});
+        EVENT_FILTERS.put(OUTGOING_PAYMENT_BATCH, new String[]{"outgoing_payment_batch", null});
+        EVENT_FILTERS.put(PAYMENT_CREATED, new String[]{"payment", "create"});
+        EVENT_FILTERS.put(PAYMENT_UPDATED, new String[]{"payment", "update"});
+        EVENT_FILTERS.put(PAYMENT_INSTRUCTION, new String[]{"payment_instruction", null});
+    }
+
+    // Sorted keys, so a redelivered event serialises (and hashes) the same
+    private static final ObjectMapper CANONICAL_JSON = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+
+    private PayPropWebhookEvents() {
+    }
+
+    public static boolean isQueued(String endpoint) {
+        return TAG_ENDPOINTS.contains(endpoint) || EVENT_FILTERS.containsKey(endpoint);
+    }
+
+    public static boolean isCoalescable(String endpoint) {
+        return COALESCABLE_ENDPOINTS.contains(endpoint);
+    }
+
+    /**
+     * Events of one webhook delivery (not yet stored: no id, receivedAt or attempts).
+     */
+    @SuppressWarnings("unchecked")
+    public static List<PayPropWebhookEvent> split(String endpoint, Map<String, Object> payload) {
+        if (payload == null || !isQueued(endpoint)) {
+            return List.of();
+        }
+        if (TAG_ENDPOINTS.contains(endpoint)) {
+            Object tagId = payload.get("tagId");
+            if (tagId == null) {
+                return List.of();
+            }
+            return List.of(newEvent(endpoint, (String) payload.get("action"), "tag:" + tagId, payload, payload));
+        }
+
+        Object eventList = payload.get("events");
+        if (!(eventList instanceof List)) {
+            return List.of();
+        }
+        String[] filter = EVENT_FILTERS.get(endpoint);
+        List<PayPropWebhookEvent> events = new ArrayList<>();
+        for (Object item : (List<Object>) eventList) {
+            if (!(item instanceof Map)) continue;
+            Map<String, Object> event = (Map<String, Object>) item;
+            String action = (String) event.get("action");
+            if (!filter[0].equals(event.get("type")) || (filter[1] != null && !filter[1].equals(action))) {
+                continue;
+            }
+            if (!(event.get("data") instanceof Map)) continue;
+            Map<String, Object> data = (Map<String, Object>) event.get("data");
+            events.add(newEvent(endpoint, action, entityKey(endpoint, data), event, data));
+        }
+        return events;
+    }
+
+    /**
+     * The CRM entity an event changes, or null if it has none.
+     */
+    static String entityKey(String endpoint, Map<String, Object> data) {
+        Object id;
+        String prefix;
+        switch (endpoint) {
+            case MAINTENANCE_TICKET_CREATED, MAINTENANCE_TICKET_UPDATED -> { prefix = "ticket:"; id = data.get("id"); }
+            case MAINTENANCE_MESSAGE -> { prefix = "ticket:"; id = data.get("maintenance_ticket_id"); }
+            case OUTGOING_PAYMENT_BATCH -> { prefix = "batch:"; id = data.get("id"); }
+            case PAYMENT_CREATED, PAYMENT_UPDATED -> { prefix = "payment:"; id = data.get("id"); }
+            default -> { return null; }
+        }
+        return id != null ? prefix + id : null;
+    }
+
+    /**
+     * Idempotency key: PayProp's event id when the event has one, otherwise a hash of the
+     * endpoint and the event content - a redelivery of the same event maps to the same key.
+     */
+    public static String eventKey(String endpoint, Map<String, Object> event) {
+        Object eventId = event.get("event_id") != null ? event.get("event_id") : event.get("id");
+        String source = eventId != null && event.containsKey("data")
+            ? endpoint + "|id:" + eventId
+            : endpoint + "|" + toJson(event);
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(source.getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    public static String toJson(Map<String, Object> value) {
+        try {
+            return CANONICAL_JSON.writeValueAsString(value);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Webhook payload is not serialisable: " + e.getMessage(), e);
+        }
+    }
+
+    public static Map<String, Object> fromJson(String json) {
+        try {
+            return CANONICAL_JSON.readValue(json, new TypeReference<LinkedHashMap<String, Object>>() {});
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Stored webhook payload is not valid JSON: " + e.getMessage(), e);
+        }
+    }
+
+    private static PayPropWebhookEvent newEvent(String endpoint, String action, String entityKey,
+                                                Map<String, Object> event, Map<String, Object> data) {
+        return new PayPropWebhookEvent(null, eventKey(endpoint, event), endpoint, action, entityKey, data, null, 0);
+    }
+}
@@ -0,0 +1,428 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.orm.jpa.EntityManagerFactoryUtils;
+import org.springframework.orm.jpa.EntityManagerHolder;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import site.easy.to.build.crm.service.payprop.webhook.PayPropWebhookCoalescer.CoalescedEvent;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * PayProp Webhook Inbox Service
+ *
+ * Webhooks are written to payprop_webhook_inbox (one row per event) and acknowledged straight
+ * away; a scheduled worker drains the inbox on the webhookInboxExecutor pool:
+ * - idempotent: each event has a unique event key, so redeliveries are stored once
+ * - coalescing: repeated updates of the same entity in a batch become one sync
+ *   (see PayPropWebhookCoalescer); events of one entity keep their order
+ * - retries: failed events go back to PENDING with a growing delay, FAILED after max-attempts;
+ *   later events of the same entity are not claimed while it waits for its retry;
+ *   events claimed by a worker that died are released after a timeout
+ *
+ * Metrics: crm.webhook.inbox.received / duplicates / coalesced / processed (counters),
+ * crm.webhook.inbox.lag (receive to processed timer), crm.webhook.inbox.pending and
+ * crm.webhook.inbox.oldest.pending.seconds (gauges, refreshed after each drain).
+ *
+ * With payprop.webhook.inbox.enabled=false events are processed inside the request as before.
+ */
+@ConditionalOnProperty(name = "payprop.enabled", havingValue = "true", matchIfMissing = false)
+@Service
+public class PayPropWebhookInboxService {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropWebhookInboxService.class);
+
+    private static final int STALE_CLAIM_MINUTES = 15;
+    private static final int MAX_BATCHES_PER_POLL = 50;
+    private static final int MAX_ERROR_LENGTH = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final PayPropWebhookProcessor processor;
+    private final TaskExecutor executor;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+
+    @Value("${payprop.webhook.inbox.enabled:true}")
+    private boolean enabled;
+
+    @Value("${payprop.webhook.inbox.batch-size:200}")
+    private int batchSize;
+
+    @Value("${payprop.webhook.inbox.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${payprop.webhook.inbox.retry-delay-seconds:30}")
+    private int retryDelaySeconds;
+
+    @Value("${payprop.webhook.inbox.retention-days:14}")
+    private int retentionDays;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong pendingCount = new AtomicLong();
+    private final AtomicLong oldestPendingSeconds = new AtomicLong();
+    private volatile boolean tableVerified;
+
+    public PayPropWebhookInboxService(JdbcTemplate jdbcTemplate,
+                                      PayPropWebhookProcessor processor,
+                                      @Qualifier("webhookInboxExecutor") TaskExecutor executor,
+                                      EntityManagerFactory entityManagerFactory,
+                                      MeterRegistry meterRegistry) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.processor = processor;
+        this.executor = executor;
+        this.entityManagerFactory = entityManagerFactory;
+        this.meterRegistry = meterRegistry;
+        Gauge.builder("crm.webhook.inbox.pending", pendingCount, AtomicLong::get)
+            .description("PayProp webhook events waiting in the inbox")
+            .register(meterRegistry);
+        Gauge.builder("crm.webhook.inbox.oldest.pending.seconds", oldestPendingSeconds, AtomicLong::get)
+            .description("Age of the oldest PayProp webhook event waiting in the inbox")
+            .baseUnit("seconds")
+            .register(meterRegistry);
+    }
+
+    /**
+     * Accept one webhook delivery: store its events, or process them now if the inbox is disabled.
+     *
+     * @return null if the payload holds no event for this endpoint, otherwise the response body
+     */
+    public Map<String, Object> receive(String endpoint, Map<String, Object> payload) {
+        List<PayPropWebhookEvent> events = PayPropWebhookEvents.split(endpoint, payload);
+        if (events.isEmpty()) {
+            return null;
+        }
+        counter("crm.webhook.inbox.received", endpoint).increment(events.size());
+
+        if (!enabled) {
+            List<String> messages = new ArrayList<>();
+            for (PayPropWebhookEvent event : events) {
+                messages.add(processor.process(endpoint, event.getAction(), event.getData()));
+            }
+            return Map.of("success", true, "message", String.join("; ", messages), "processed", events.size());
+        }
+
+        ensureTable();
+        Timestamp now = Timestamp.valueOf(LocalDateTime.now());
+        // One statement per event (deliveries hold a handful): batched counts are not reliable
+        // with rewriteBatchedStatements, and the count tells a redelivery apart
+        int accepted = 0;
+        for (PayPropWebhookEvent event : events) {
+            accepted += jdbcTemplate.update("""
+                INSERT IGNORE INTO payprop_webhook_inbox
+                    (event_key, endpoint, action, entity_key, payload, status, attempts, received_at)
+                VALUES (?, ?, ?, ?, ?, 'PENDING', 0, ?)
+            """, event.getEventKey(), endpoint, event.getAction(), event.getEntityKey(),
+                PayPropWebhookEvents.toJson(event.getData()), now);
+        }
+        int duplicates = events.size() - accepted;
+        if (duplicates > 0) {
+            counter("crm.webhook.inbox.duplicates", endpoint).increment(duplicates);
+            log.info("📥 PayProp {} webhook: {} new event(s), {} duplicate(s) ignored", endpoint, accepted, duplicates);
+        } else {
+            log.info("📥 PayProp {} webhook: {} event(s) queued", endpoint, accepted);
+        }
+        return Map.of("success", true, "message", "Webhook accepted", "queued", accepted, "duplicates", duplicates);
+    }
+
+    /**
+     * Drain the inbox until it is empty (or MAX_BATCHES_PER_POLL batches have been processed).
+     */
+    @Scheduled(fixedDelayString = "${payprop.webhook.inbox.poll-interval-ms:2000}")
+    public void drain() {
+        if (!enabled || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ensureTable();
+            releaseStaleClaims();
+            for (int batch = 0; batch < MAX_BATCHES_PER_POLL; batch++) {
+                if (drainBatch() == 0) {
+                    break;
+                }
+            }
+            refreshBacklog();
+        } catch (Exception e) {
+            log.error("❌ PayProp webhook inbox drain failed: {}", e.getMessage(), e);
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * Claim one batch of due events, process it lane by lane and record the outcome.
+     *
+     * @return number of events claimed
+     */
+    int drainBatch() {
+        String claimToken = UUID.randomUUID().toString();
+        int claimed = jdbcTemplate.update("""
+            UPDATE payprop_webhook_inbox
+            SET status = 'PROCESSING', claim_token = ?, claimed_at = NOW(3), attempts = attempts + 1
+            WHERE status = 'PENDING' AND (next_attempt_at IS NULL OR next_attempt_at <= NOW(3))
+              AND (entity_key IS NULL OR entity_key NOT IN (
+                  SELECT entity_key FROM (
+                      SELECT DISTINCT entity_key FROM payprop_webhook_inbox
+                      WHERE status = 'PENDING' AND next_attempt_at > NOW(3) AND entity_key IS NOT NULL
+                  ) waiting))
+            ORDER BY id
+            LIMIT ?
+        """, claimToken, batchSize);
+        if (claimed == 0) {
+            return 0;
+        }
+
+        List<PayPropWebhookEvent> events = jdbcTemplate.query("""
+            SELECT id, event_key, endpoint, action, entity_key, payload, received_at, attempts
+            FROM payprop_webhook_inbox
+            WHERE claim_token = ?
+            ORDER BY id
+        """, EVENT_ROW_MAPPER, claimToken);
+
+        List<List<CoalescedEvent>> lanes = PayPropWebhookCoalescer.plan(events);
+        CompletableFuture.allOf(lanes.stream()
+            .map(lane -> CompletableFuture.runAsync(() -> processLane(lane), executor))
+            .toArray(CompletableFuture[]::new)).join();
+
+        log.debug("PayProp webhook inbox: {} event(s) processed in {} lane(s)", events.size(), lanes.size());
+        return claimed;
+    }
+
+    private void processLane(List<CoalescedEvent> lane) {
+        for (int i = 0; i < lane.size(); i++) {
+            CoalescedEvent item = lane.get(i);
+            try {
+                String message = withEntityManager(() ->
+                    processor.process(item.getEndpoint(), item.getAction(), item.getData()));
+                markProcessed(item);
+                log.debug("PayProp {} webhook {}: {}", item.getEndpoint(), item.getSurvivor().getEntityKey(), message);
+            } catch (Exception e) {
+                log.warn("⚠️ PayProp {} webhook {} failed (attempt {}): {}", item.getEndpoint(),
+                    item.getSurvivor().getEntityKey(), item.getSurvivor().getAttempts(), e.getMessage());
+                Timestamp retryAt = markFailed(item, e);
+                // Later events of this entity wait for the failed one
+                release(lane.subList(i + 1, lane.size()), retryAt);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Run with one persistence context for the whole event, as the handlers had when they ran
+     * inside the web request (open-in-view), so lazy associations still load.
+     */
+    private <T> T withEntityManager(java.util.function.Supplier<T> action) {
+        if (TransactionSynchronizationManager.hasResource(entityManagerFactory)) {
+            return action.get();
+        }
+        EntityManager entityManager = entityManagerFactory.createEntityManager();
+        TransactionSynchronizationManager.bindResource(entityManagerFactory, new EntityManagerHolder(entityManager));
+        try {
+            return action.get();
+        } finally {
+            TransactionSynchronizationManager.unbindResource(entityManagerFactory);
+            EntityManagerFactoryUtils.closeEntityManager(entityManager);
+        }
+    }
+
+    private void markProcessed(CoalescedEvent item) {
+        PayPropWebhookEvent survivor = item.getSurvivor();
+        jdbcTemplate.update("""
+            UPDATE payprop_webhook_inbox
+            SET status = 'DONE', processed_at = NOW(3), claim_token = NULL, last_error = NULL
+            WHERE id = ?
+        """, survivor.getId());
+        if (item.getCoalescedCount() > 0) {
+            List<Object[]> coalesced = item.getEvents().stream()
+                .filter(event -> event != survivor)
+                .map(event -> new Object[]{survivor.getId(), event.getId()})
+                .collect(Collectors.toList());
+            jdbcTemplate.batchUpdate("""
+                UPDATE payprop_webhook_inbox
+                SET status = 'COALESCED', processed_at = NOW(3), claim_token = NULL, coalesced_into = ?
+                WHERE id = ?
+            """, coalesced);
+            counter("crm.webhook.inbox.coalesced", item.getEndpoint()).increment(item.getCoalescedCount());
+        }
+
+        counter("crm.webhook.inbox.processed", item.getEndpoint(), "outcome", "success").increment(item.getEvents().size());
+        Timer lag = Timer.builder("crm.webhook.inbox.lag")
+            .description("Time from receiving a PayProp webhook event to applying it")
+            .tags("endpoint", item.getEndpoint())
+            .publishPercentiles(0.5, 0.95, 0.99)
+            .register(meterRegistry);
+        LocalDateTime now = LocalDateTime.now();
+        for (PayPropWebhookEvent event : item.getEvents()) {
+            if (event.getReceivedAt() != null) {
+                lag.record(Duration.between(event.getReceivedAt(), now));
+            }
+        }
+    }
+
+    /**
+     * @return when the failed event is retried, so later events of the entity can wait for it
+     */
+    private Timestamp markFailed(CoalescedEvent item, Exception error) {
+        String message = String.valueOf(error.getMessage());
+        if (message.length() > MAX_ERROR_LENGTH) {
+            message = message.substring(0, MAX_ERROR_LENGTH);
+        }
+        List<Object[]> rows = new ArrayList<>();
+        for (PayPropWebhookEvent event : item.getEvents()) {
+            rows.add(new Object[]{maxAttempts, retryDelaySeconds, message, event.getId()});
+        }
+        jdbcTemplate.batchUpdate("""
+            UPDATE payprop_webhook_inbox
+            SET status = IF(attempts >= ?, 'FAILED', 'PENDING'),
+                next_attempt_at = NOW(3) + INTERVAL (attempts * ?) SECOND,
+                claim_token = NULL,
+                last_error = ?
+            WHERE id = ?
+        """, rows);
+        counter("crm.webhook.inbox.processed", item.getEndpoint(), "outcome", "error").increment(item.getEvents().size());
+        return jdbcTemplate.queryForObject(
+            "SELECT next_attempt_at FROM payprop_webhook_inbox WHERE id = ?",
+            Timestamp.class, item.getSurvivor().getId());
+    }
+
+    /**
+     * Put claimed events back without counting the attempt. They become due together with the
+     * failed event they queue behind, so they are not applied ahead of it.
+     */
+    private void release(List<CoalescedEvent> items, Timestamp notBefore) {
+        List<Object[]> rows = items.stream()
+            .flatMap(item -> item.getEvents().stream())
+            .map(event -> new Object[]{notBefore, event.getId()})
+            .collect(Collectors.toList());
+        if (rows.isEmpty()) return;
+        jdbcTemplate.batchUpdate("""
+            UPDATE payprop_webhook_inbox
+            SET status = 'PENDING', claim_token = NULL, attempts = GREATEST(attempts - 1, 0),
+                next_attempt_at = ?
+            WHERE id = ?
+        """, rows);
+    }
+
+    private void releaseStaleClaims() {
+        int released = jdbcTemplate.update("""
+            UPDATE payprop_webhook_inbox
+            SET status = 'PENDING', claim_token = NULL
+            WHERE status = 'PROCESSING' AND claimed_at < NOW(3) - INTERVAL ? MINUTE
+        """, STALE_CLAIM_MINUTES);
+        if (released > 0) {
+            log.warn("⚠️ Released {} PayProp webhook event(s) claimed over {} minutes ago", released, STALE_CLAIM_MINUTES);
+        }
+    }
+
+    @Scheduled(cron = "${payprop.webhook.inbox.purge-cron:0 30 3 * * ?}")
+    public void purgeProcessed() {
+        if (!enabled) return;
+        ensureTable();
+        int purged = jdbcTemplate.update("""
+            DELETE FROM payprop_webhook_inbox
+            WHERE status IN ('DONE', 'COALESCED') AND processed_at < NOW(3) - INTERVAL ? DAY
+        """, retentionDays);
+        if (purged > 0) {
+            log.info("🧹 Purged {} processed PayProp webhook event(s) older than {} days", purged, retentionDays);
+        }
+    }
+
+    /**
+     * Event counts by status and the current backlog, for the webhook statistics endpoint.
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        if (!enabled) {
+            return stats;
+        }
+        ensureTable();
+        Map<String, Long> byStatus = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT status, COUNT(*) FROM payprop_webhook_inbox GROUP BY status",
+            rs -> { byStatus.put(rs.getString(1), rs.getLong(2)); });
+        stats.put("by_status", byStatus);
+        refreshBacklog();
+        stats.put("pending", pendingCount.get());
+        stats.put("oldest_pending_seconds", oldestPendingSeconds.get());
+        return stats;
+    }
+
+    private void refreshBacklog() {
+        jdbcTemplate.query("""
+            SELECT COUNT(*), COALESCE(TIMESTAMPDIFF(SECOND, MIN(received_at), NOW(3)), 0)
+            FROM payprop_webhook_inbox
+            WHERE status IN ('PENDING', 'PROCESSING')
+        """, rs -> {
+            pendingCount.set(rs.getLong(1));
+            oldestPendingSeconds.set(rs.getLong(2));
+        });
+    }
+
+    private Counter counter(String name, String endpoint, String... tags) {
+        return Counter.builder(name)
+            .tag("endpoint", endpoint)
+            .tags(tags)
+            .register(meterRegistry);
+    }
+
+    private void ensureTable() {
+        if (tableVerified) return;
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS payprop_webhook_inbox (
+                id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                event_key CHAR(64) NOT NULL,
+                endpoint VARCHAR(64) NOT NULL,
+                action VARCHAR(64),
+                entity_key VARCHAR(191),
+                payload MEDIUMTEXT NOT NULL,
+                status VARCHAR(16) NOT NULL,
+                attempts INT NOT NULL DEFAULT 0,
+                received_at DATETIME(3) NOT NULL,
+                claim_token VARCHAR(36),
+                claimed_at DATETIME(3),
+                next_attempt_at DATETIME(3),
+                processed_at DATETIME(3),
+                coalesced_into BIGINT,
+                last_error VARCHAR(1000),
+                UNIQUE KEY uk_webhook_inbox_event_key (event_key),
+                KEY idx_webhook_inbox_status (status, id),
+                KEY idx_webhook_inbox_claim (claim_token)
+            )
+        """);
+        tableVerified = true;
+    }
+
+    private static final RowMapper<PayPropWebhookEvent> EVENT_ROW_MAPPER = (rs, rowNum) -> {
+        Timestamp receivedAt = rs.getTimestamp("received_at");
+        return new PayPropWebhookEvent(
+            rs.getLong("id"),
+            rs.getString("event_key"),
+            rs.getString("endpoint"),
+            rs.getString("action"),
+            rs.getString("entity_key"),
+            PayPropWebhookEvents.fromJson(rs.getString("payload")),
+            receivedAt != null ? receivedAt.toLocalDateTime() : null,
+            rs.getInt("attempts"));
+    };
+}
@@ -0,0 +1,728 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.entity.*;
+import site.easy.to.build.crm.repository.BatchPaymentRepository;
+import site.easy.to.build.crm.repository.TicketRepository;
+import site.easy.to.build.crm.service.customer.CustomerService;
+import site.easy.to.build.crm.service.email.EmailService;
+import site.easy.to.build.crm.service.payprop.PayPropPortfolioSyncService;
+import site.easy.to.build.crm.service.payprop.PayPropTicketMessageService;
+import site.easy.to.build.crm.service.payprop.PayPropTagDTO;
+import site.easy.to.build.crm.service.payprop.SyncResult;
+import site.easy.to.build.crm.service.property.PropertyService;
+import site.easy.to.build.crm.service.ticket.TicketService;
+import site.easy.to.build.crm.service.user.UserService;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+
+import static site.easy.to.build.crm.service.payprop.webhook.PayPropWebhookEvents.*;
+
+/**
+ * PayProp Webhook Processor
+ *
+ * Applies one PayProp webhook event to the CRM: tag changes (portfolio sync), maintenance
+ * tickets and messages, outgoing payment batches and payment notifications. Called by
+ * PayPropWebhookInboxService from the inbox worker (or inline when the inbox is disabled).
+ *
+ * Throws when an event could not be applied, so the inbox retries it.
+ */
+@ConditionalOnProperty(name = "payprop.enabled", havingValue = "true", matchIfMissing = false)
+@Service
+public class PayPropWebhookProcessor {
+
+    private static final Logger log = LoggerFactory.getLogger(PayPropWebhookProcessor.class);
+
+    private final PayPropPortfolioSyncService syncService;
+    private final TicketService ticketService;
+    private final CustomerService customerService;
+    private final UserService userService;
+    private final EmailService emailService;
+    private final PropertyService propertyService;
+    private final BatchPaymentRepository batchPaymentRepository;
+    private final TicketRepository ticketRepository;
+    private final PayPropTicketMessageService ticketMessageService;
+
+    @Autowired
+    public PayPropWebhookProcessor(PayPropPortfolioSyncService syncService,
+                                   TicketService ticketService,
+                                   CustomerService customerService,
+                                   UserService userService,
+                                   EmailService emailService,
+                                   PropertyService propertyService,
+                                   BatchPaymentRepository batchPaymentRepository,
+                                   TicketRepository ticketRepository,
+                                   PayPropTicketMessageService ticketMessageService) {
+        this.syncService = syncService;
+        this.ticketService = ticketService;
+        this.customerService = customerService;
+        this.userService = userService;
+        this.emailService = emailService;
+        this.propertyService = propertyService;
+        this.batchPaymentRepository = batchPaymentRepository;
+        this.ticketRepository = ticketRepository;
+        this.ticketMessageService = ticketMessageService;
+    }
+
+    /**
+     * Apply one event (data is the event's data object, or the whole payload for tag webhooks).
+     *
+     * @return a short description of what was done
+     */
+    public String process(String endpoint, String action, Map<String, Object> data) {
+        switch (endpoint) {
+            case TAG_CREATED: return processTagChange("TAG_CREATED", data);
+            case TAG_UPDATED: return processTagChange("TAG_UPDATED", data);
+            case TAG_DELETED: return processTagChange("TAG_DELETED", data);
+            case TAG_APPLIED: return processTagChange("TAG_APPLIED", data);
+            case TAG_REMOVED: return processTagChange("TAG_REMOVED", data);
+            case MAINTENANCE_TICKET_CREATED: {
+                Ticket ticket = createTicketFromPayPropData(data);
+                sendMaintenanceTicketAlerts(ticket);
+                return "Maintenance ticket " + ticket.getTicketId() + " created";
+            }
+            case MAINTENANCE_TICKET_UPDATED:
+                updateTicketFromPayPropData(data);
+                return "Maintenance ticket updated";
+            case MAINTENANCE_MESSAGE:
+                processMaintenanceMessage(data);
+                return "Maintenance message processed";
+            case OUTGOING_PAYMENT_BATCH: {
+                String batchId = (String) data.get("id");
+                log.info("Processing payment batch: ID={}, Action={}", batchId, action);
+                BatchPayment batchPayment = processBatchPaymentWebhook(batchId, action, data);
+                return "Batch payment " + batchPayment.getPayPropBatchId() + " processed";
+            }
+            case PAYMENT_CREATED:
+                log.info("Processing payment: ID={}, BatchID={}", data.get("id"), extractBatchId(data));
+                processPaymentNotification(data);
+                return "Payment processed";
+            case PAYMENT_UPDATED:
+                log.info("Updating payment: ID={}, BatchID={}, Status={}", data.get("id"), extractBatchId(data), data.get("status"));
+                updatePaymentNotification(data);
+                return "Payment updated";
+            case PAYMENT_INSTRUCTION:
+                // Log for discovery - payment instructions may become batched payments
+                log.info("Payment instruction action: {}, data fields: {}", action, data.keySet());
+                return "Payment instruction logged";
+            default:
+                throw new IllegalArgumentException("Unknown PayProp webhook endpoint: " + endpoint);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private String processTagChange(String changeType, Map<String, Object> data) {
+        String tagId = (String) data.get("tagId");
+        PayPropTagDTO tagData = null;
+        if ("TAG_CREATED".equals(changeType) || "TAG_UPDATED".equals(changeType)) {
+            tagData = new PayPropTagDTO();
+            tagData.setId(tagId);
+            tagData.setName((String) data.get("tagName"));
+            tagData.setDescription((String) data.get("description"));
+            tagData.setColor((String) data.get("color"));
+        }
+        List<String> propertyIds = (List<String>) data.get("propertyIds");
+
+        try {
+            SyncResult result = syncService.handlePayPropTagChange(tagId, changeType, tagData, propertyIds);
+            if (!result.isSuccess()) {
+                // Same as before the inbox: reported, not retried
+                log.warn("PayProp {} webhook for tag {} not applied: {}", changeType, tagId, result.getMessage());
+            }
+            return result.getMessage();
+        } catch (DataIntegrityViolationException e) {
+            log.warn("Duplicate constraint during {} webhook for tag {}, treating as success", changeType, tagId);
+            return "Tag change processed (duplicate data handled gracefully)";
+        }
+    }
+
+    private BatchPayment processBatchPaymentWebhook(String batchId, String action, Map<String, Object> data) {
+        // Find existing or create new
+        BatchPayment batchPayment = batchPaymentRepository.findByPayPropBatchId(batchId)
+            .orElseGet(() -> {
+                BatchPayment newBatch = new BatchPayment();
+                newBatch.setPayPropBatchId(batchId);
+                newBatch.setCreatedAt(LocalDateTime.now());
+                log.info("Creating new batch payment record for ID: {}", batchId);
+                return newBatch;
+            });
+        
+        if (batchPayment.getId() != null) {
+            log.info("Updating existing batch payment record for ID: {}", batchId);
+        }
+        
+        // Update with whatever fields PayProp sends
+        // Status
+        String status = extractString(data, "status", "batch_status", "state");
+        if (status != null) {
+            batchPayment.setStatus(status.toUpperCase());
+        }
+        
+        // Total amount
+        BigDecimal totalAmount = extractBigDecimal(data, "total_amount", "amount", "total");
+        if (totalAmount != null) {
+            batchPayment.setTotalAmount(totalAmount);
+        }
+        
+        // Financial breakdown
+        BigDecimal totalIn = extractBigDecimal(data, "total_in", "inflow", "credits");
+        if (totalIn != null) {
+            batchPayment.setTotalIn(totalIn);
+        }
+        
+        BigDecimal totalOut = extractBigDecimal(data, "total_out", "outflow", "debits");
+        if (totalOut != null) {
+            batchPayment.setTotalOut(totalOut);
+        }
+        
+        BigDecimal commission = extractBigDecimal(data, "total_commission", "commission", "fees");
+        if (commission != null) {
+            batchPayment.setTotalCommission(commission);
+        }
+        
+        // Dates - try various field names
+        LocalDate batchDate = extractDate(data, "batch_date", "date", "processing_date");
+        if (batchDate != null) {
+            batchPayment.setBatchDate(batchDate);
+        }
+        
+        LocalDateTime processedDate = extractDateTime(data, "processed_date", "processed_at", "completed_at");
+        if (processedDate != null) {
+            batchPayment.setProcessedDate(processedDate);
+        }
+        
+        // Counts
+        Integer recordCount = extractInteger(data, "record_count", "payment_count", "count", "total_payments");
+        if (recordCount != null) {
+            batchPayment.setRecordCount(recordCount);
+        }
+        
+        // Description
+        String description = extractString(data, "description", "notes", "comment");
+        if (description != null) {
+            batchPayment.setDescription(description);
+        }
+        
+        // Store raw webhook data as JSON string for debugging
+        try {
+            String rawData = data.toString();
+            if (rawData.length() > 255) {
+                rawData = rawData.substring(0, 252) + "...";
+            }
+            batchPayment.setDescription("Webhook " + action + ": " + rawData);
+        } catch (Exception e) {
+            log.warn("Could not store raw webhook data: {}", e.getMessage());
+        }
+        
+        batchPayment.setPayPropWebhookReceived(LocalDateTime.now());
+        batchPayment.setUpdatedAt(LocalDateTime.now());
+        
+        BatchPayment saved = batchPaymentRepository.save(batchPayment);
+        log.info("Batch payment saved: ID={}, Status={}, Amount={}", 
+            saved.getPayPropBatchId(), saved.getStatus(), saved.getTotalAmount());
+        
+        return saved;
+    }
+
+    /**
+     * Extract batch ID from payment data (try multiple field names)
+     */
+    private String extractBatchId(Map<String, Object> paymentData) {
+        // Try different possible field names
+        String[] possibleFields = {"batch_id", "payment_batch_id", "batch", "batch_reference"};
+        
+        for (String field : possibleFields) {
+            Object value = paymentData.get(field);
+            if (value != null && !value.toString().isEmpty()) {
+                return value.toString();
+            }
+        }
+        
+        return null;
+    }
+
+    /**
+     * Extract BigDecimal from data, trying multiple field names
+     */
+    private BigDecimal extractBigDecimal(Map<String, Object> data, String... fieldNames) {
+        for (String field : fieldNames) {
+            Object value = data.get(field);
+            if (value != null) {
+                try {
+                    if (value instanceof Number) {
+                        return new BigDecimal(value.toString());
+                    } else if (value instanceof String) {
+                        // Remove currency symbols and commas
+                        String cleanValue = value.toString().replaceAll("[^0-9.-]", "");
+                        return new BigDecimal(cleanValue);
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not parse BigDecimal from field {}: {}", field, value);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extract LocalDate from data, trying multiple field names
+     */
+    private LocalDate extractDate(Map<String, Object> data, String... fieldNames) {
+        for (String field : fieldNames) {
+            Object value = data.get(field);
+            if (value != null && value instanceof String) {
+                try {
+                    return LocalDate.parse((String) value);
+                } catch (Exception e) {
+                    try {
+                        // Try with custom formatter if needed
+                        return LocalDate.parse((String) value, DateTimeFormatter.ofPattern("yyyy-MM-dd"));
+                    } catch (Exception e2) {
+                        log.warn("Could not parse LocalDate from field {}: {}", field, value);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extract LocalDateTime from data, trying multiple field names
+     */
+    private LocalDateTime extractDateTime(Map<String, Object> data, String... fieldNames) {
+        for (String field : fieldNames) {
+            Object value = data.get(field);
+            if (value != null && value instanceof String) {
+                try {
+                    return LocalDateTime.parse((String) value);
+                } catch (Exception e) {
+                    try {
+                        // Try parsing as date only
+                        LocalDate date = LocalDate.parse((String) value);
+                        return date.atStartOfDay();
+                    } catch (Exception e2) {
+                        log.warn("Could not parse LocalDateTime from field {}: {}", field, value);
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extract Integer from data, trying multiple field names
+     */
+    private Integer extractInteger(Map<String, Object> data, String... fieldNames) {
+        for (String field : fieldNames) {
+            Object value = data.get(field);
+            if (value != null) {
+                try {
+                    if (value instanceof Number) {
+                        return ((Number) value).intValue();
+                    } else if (value instanceof String) {
+                        return Integer.parseInt(value.toString());
+                    }
+                } catch (Exception e) {
+                    log.warn("Could not parse Integer from field {}: {}", field, value);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Extract String from data, trying multiple field names
+     */
+    private String extractString(Map<String, Object> data, String... fieldNames) {
+        for (String field : fieldNames) {
+            Object value = data.get(field);
+            if (value != null && !value.toString().isEmpty()) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Process payment notification (store batch ID if present)
+     */
+    private void processPaymentNotification(Map<String, Object> paymentData) {
+        try {
+            String paymentId = (String) paymentData.get("id");
+            String batchId = extractBatchId(paymentData);
+            
+            // Log discovered batch relationship
+            if (batchId != null) {
+                log.info("Payment {} is part of batch {}", paymentId, batchId);
+                
+                // Ensure batch exists
+                BatchPayment batch = batchPaymentRepository.findByPayPropBatchId(batchId).orElse(null);
+                if (batch == null) {
+                    log.info("Creating batch record for newly discovered batch ID: {}", batchId);
+                    batch = new BatchPayment();
+                    batch.setPayPropBatchId(batchId);
+                    batch.setCreatedAt(LocalDateTime.now());
+                    batch.setUpdatedAt(LocalDateTime.now());
+                    batch.setDescription("Created from payment webhook");
+                    batchPaymentRepository.save(batch);
+                }
+            }
+            
+            // TODO: Create/update Payment entity when available
+            log.info("Would process payment notification: Payment={}, Batch={}", paymentId, batchId);
+            
+        } catch (Exception e) {
+            log.error("Error processing payment notification: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * Update payment notification
+     */
+    private void updatePaymentNotification(Map<String, Object> paymentData) {
+        try {
+            String paymentId = (String) paymentData.get("id");
+            String status = (String) paymentData.get("status");
+            
+            // TODO: Update Payment entity when available
+            log.info("Would update payment: Payment={}, Status={}", paymentId, status);
+            
+        } catch (Exception e) {
+            log.error("Error updating payment notification: {}", e.getMessage());
+        }
+    }
+
+    // ===== MAINTENANCE TICKET HELPER METHODS =====
+
+    private Ticket createTicketFromPayPropData(Map<String, Object> data) {
+        String payPropTicketId = (String) data.get("id");
+        String payPropPropertyId = (String) data.get("property_id");
+        String payPropTenantId = (String) data.get("tenant_id");
+        String description = (String) data.get("description");
+        String category = (String) data.get("category");
+        Boolean isEmergency = (Boolean) data.get("is_emergency");
+        String subject = (String) data.get("subject");
+
+        // Check if ticket already exists
+        List<Ticket> existingTickets = ticketService.findAll().stream()
+            .filter(t -> payPropTicketId.equals(t.getPayPropTicketId()))
+            .toList();
+        
+        if (!existingTickets.isEmpty()) {
+            log.info("Ticket with PayProp ID {} already exists", payPropTicketId);
+            return existingTickets.get(0);
+        }
+
+        // Find customer for this property
+        Customer customer = findCustomerForProperty(payPropPropertyId, payPropTenantId);
+        if (customer == null) {
+            log.warn("No customer found for PayProp property: {}, creating placeholder", payPropPropertyId);
+            customer = createPlaceholderCustomer(payPropPropertyId, payPropTenantId);
+        }
+
+        // Create new ticket
+        Ticket ticket = new Ticket();
+        ticket.setSubject(subject != null ? subject : "Maintenance Request - PayProp #" + payPropTicketId);
+        ticket.setDescription(description);
+        ticket.setType("maintenance");
+        ticket.setStatus("open");
+        ticket.setPriority(Boolean.TRUE.equals(isEmergency) ? "emergency" : "medium");
+        ticket.setUrgencyLevel(Boolean.TRUE.equals(isEmergency) ? "emergency" : "routine");
+        
+        // PayProp integration fields
+        ticket.setPayPropTicketId(payPropTicketId);
+        ticket.setPayPropPropertyId(payPropPropertyId);
+        ticket.setPayPropTenantId(payPropTenantId);
+        ticket.setPayPropCategoryId(category);
+        ticket.setPayPropSynced(true);
+        ticket.setPayPropLastSync(LocalDateTime.now());
+        
+        // Set maintenance category
+        ticket.setMaintenanceCategory(mapPayPropCategory(category));
+        
+        // Set customer relationship
+        ticket.setCustomer(customer);
+        ticket.setCreatedAt(LocalDateTime.now());
+        
+        // Auto-assign based on emergency status or category
+        assignTicketToEmployee(ticket, customer, isEmergency);
+
+        // ✅ IMPORTANT: Use direct repository save to bypass real-time sync
+        // We don't want to sync back to PayProp immediately since this came FROM PayProp
+        return ticketRepository.save(ticket);
+    }
+
+    private void updateTicketFromPayPropData(Map<String, Object> data) {
+        String payPropTicketId = (String) data.get("id");
+        String status = (String) data.get("status");
+        String description = (String) data.get("description");
+
+        List<Ticket> tickets = ticketService.findAll().stream()
+            .filter(t -> payPropTicketId.equals(t.getPayPropTicketId()))
+            .toList();
+            
+        if (tickets.isEmpty()) {
+            log.warn("Ticket with PayProp ID {} not found for update", payPropTicketId);
+            return;
+        }
+        
+        Ticket ticket = tickets.get(0);
+
+        // Update fields
+        if (description != null && !description.equals(ticket.getDescription())) {
+            ticket.setDescription(description);
+        }
+
+        // Map PayProp status to our status
+        if (status != null) {
+            String mappedStatus = mapPayPropStatus(status);
+            if (!mappedStatus.equals(ticket.getStatus())) {
+                ticket.setStatus(mappedStatus);
+            }
+        }
+
+        ticket.setPayPropLastSync(LocalDateTime.now());
+        
+        // ✅ IMPORTANT: Use direct repository save to bypass real-time sync
+        ticketRepository.save(ticket);
+
+        log.info("Updated ticket {} from PayProp webhook", ticket.getTicketId());
+    }
+
+    private void processMaintenanceMessage(Map<String, Object> data) {
+        String payPropTicketId = (String) data.get("maintenance_ticket_id");
+
+        Ticket ticket = payPropTicketId != null ? ticketRepository.findByPayPropTicketId(payPropTicketId) : null;
+        if (ticket == null) {
+            log.warn("Ticket with PayProp ID {} not found for message", payPropTicketId);
+            return;
+        }
+
+        if (ticketMessageService.importMessage(ticket, data)) {
+            log.info("Added message {} to ticket {} from PayProp", data.get("id"), ticket.getTicketId());
+        } else {
+            log.debug("Message {} for ticket {} already stored", data.get("id"), ticket.getTicketId());
+        }
+    }
+
+    private Customer findCustomerForProperty(String payPropPropertyId, String payPropTenantId) {
+        // Try to find customer by PayProp entity ID (property or tenant)
+        if (payPropTenantId != null) {
+            List<Customer> tenantCustomers = customerService.findAll().stream()
+                .filter(c -> payPropTenantId.equals(c.getPayPropEntityId()))
+                .filter(c -> Boolean.TRUE.equals(c.getIsTenant()))
+                .toList();
+            if (!tenantCustomers.isEmpty()) {
+                return tenantCustomers.get(0);
+            }
+        }
+        
+        if (payPropPropertyId != null) {
+            List<Customer> propertyCustomers = customerService.findAll().stream()
+                .filter(c -> payPropPropertyId.equals(c.getPayPropEntityId()))
+                .filter(c -> Boolean.TRUE.equals(c.getIsPropertyOwner()))
+                .toList();
+            if (!propertyCustomers.isEmpty()) {
+                return propertyCustomers.get(0);
+            }
+        }
+        
+        return null;
+    }
+
+    private Customer createPlaceholderCustomer(String payPropPropertyId, String payPropTenantId) {
+        // Create a placeholder customer for unknown properties
+        Customer customer = new Customer();
+        customer.setName("PayProp Property " + payPropPropertyId);
+        customer.setEmail("noreply+" + payPropPropertyId + "@yourcompany.com");
+        customer.setCustomerType(CustomerType.PROPERTY_OWNER);
+        customer.setIsPropertyOwner(true);
+        customer.setPayPropEntityId(payPropPropertyId);
+        customer.setDescription("Auto-created from PayProp maintenance request");
+        customer.setCreatedAt(LocalDateTime.now());
+        
+        // Set a default user (you'll need to implement this based on your system)
+        List<User> users = userService.findAll();
+        if (!users.isEmpty()) {
+            customer.setUser(users.get(0)); // Assign to first available user
+        }
+        
+        return customerService.save(customer);
+    }
+
+    private void assignTicketToEmployee(Ticket ticket, Customer customer, Boolean isEmergency) {
+        User assignedUser = null;
+        
+        // Assignment logic based on:
+        // 1. Emergency status
+        // 2. Customer's assigned account manager
+        // 3. Default assignment
+        
+        if (Boolean.TRUE.equals(isEmergency)) {
+            // Try to find manager for emergency handling
+            List<User> managers = userService.findAll().stream()
+                .filter(u -> u.getRoles() != null && !u.getRoles().isEmpty() && 
+                            u.getRoles().stream().anyMatch(role -> 
+                                role != null && "ROLE_MANAGER".equals(role.getName())))
+                .toList();
+            if (!managers.isEmpty()) {
+                assignedUser = managers.get(0);
+            }
+        }
+        
+        // Assign to customer's user if available
+        if (assignedUser == null && customer.getUser() != null) {
+            assignedUser = customer.getUser();
+        }
+        
+        // Fallback to first available user
+        if (assignedUser == null) {
+            List<User> allUsers = userService.findAll();
+            if (!allUsers.isEmpty()) {
+                assignedUser = allUsers.get(0);
+            }
+        }
+        
+        if (assignedUser != null) {
+            ticket.setEmployee(assignedUser);
+            ticket.setManager(assignedUser);
+        }
+    }
+
+    private void sendMaintenanceTicketAlerts(Ticket ticket) {
+        try {
+            Authentication auth = SecurityContextHolder.getContext().getAuthentication();
+            
+            // Alert property owner
+            Customer propertyOwner = findPropertyOwnerForTicket(ticket);
+            if (propertyOwner != null) {
+                emailService.sendMaintenanceTicketAlert(propertyOwner, ticket, auth);
+            }
+            
+            // Alert assigned employee if they have email
+            if (ticket.getEmployee() != null) {
+                // Create a customer record for the employee to send email
+                Customer employeeAsCustomer = createCustomerForUser(ticket.getEmployee());
+                if (employeeAsCustomer != null) {
+                    emailService.sendNotificationEmail(
+                        employeeAsCustomer,
+                        "New Maintenance Ticket Assigned - #" + ticket.getTicketId(),
+                        String.format("A new maintenance ticket has been assigned to you.\n\n" +
+                                    "Ticket #: %d\nDescription: %s\nPriority: %s\n\n" +
+                                    "Please review and take appropriate action.",
+                                    ticket.getTicketId(), ticket.getDescription(), ticket.getPriorityDisplayName()),
+                        auth
+                    );
+                }
+            }
+            
+        } catch (Exception e) {
+            log.error("Error sending maintenance ticket alerts: {}", e.getMessage());
+        }
+    }
+
+    private Customer findPropertyOwnerForTicket(Ticket ticket) {
+        try {
+            // First, try to find property by PayProp property ID
+            if (ticket.getPayPropPropertyId() != null) {
+                Optional<Property> propertyOpt = propertyService.findByPayPropId(ticket.getPayPropPropertyId());
+                if (propertyOpt.isPresent()) {
+                    Property property = propertyOpt.get();
+                    
+                    // Method 1: Use direct property owner ID if available
+                    if (property.getPropertyOwnerId() != null) {
+                        Customer owner = customerService.findByCustomerId(property.getPropertyOwnerId());
+                        if (owner != null && Boolean.TRUE.equals(owner.getIsPropertyOwner())) {
+                            return owner;
+                        }
+                    }
+                    
+                    // Method 2: Use junction table to find property owner
+                    List<Customer> owners = customerService.findByEntityTypeAndEntityId("Property", property.getId());
+                    Optional<Customer> propertyOwner = owners.stream()
+                        .filter(customer -> Boolean.TRUE.equals(customer.getIsPropertyOwner()))
+                        .findFirst();
+                    if (propertyOwner.isPresent()) {
+                        return propertyOwner.get();
+                    }
+                }
+            }
+            
+            // Method 3: Check if customer associated with ticket is a property owner
+            if (ticket.getCustomer() != null && Boolean.TRUE.equals(ticket.getCustomer().getIsPropertyOwner())) {
+                return ticket.getCustomer();
+            }
+            
+            // Method 4: Find by PayProp tenant ID -> property -> owner
+            if (ticket.getPayPropTenantId() != null) {
+                Customer tenant = customerService.findByPayPropEntityId(ticket.getPayPropTenantId());
+                if (tenant != null && tenant.getAssignedPropertyId() != null) {
+                    // Find property owner for this property
+                    List<Customer> owners = customerService.findByEntityTypeAndEntityId("Property", tenant.getAssignedPropertyId());
+                    Optional<Customer> propertyOwner = owners.stream()
+                        .filter(customer -> Boolean.TRUE.equals(customer.getIsPropertyOwner()))
+                        .findFirst();
+                    if (propertyOwner.isPresent()) {
+                        return propertyOwner.get();
+                    }
+                }
+            }
+            
+            log.warn("No property owner found for ticket {} with PayProp property ID {}", 
+                    ticket.getTicketId(), ticket.getPayPropPropertyId());
+            return null;
+            
+        } catch (Exception e) {
+            log.error("Error finding property owner for ticket {}: {}", ticket.getTicketId(), e.getMessage());
+            return null;
+        }
+    }
+
+    private Customer createCustomerForUser(User user) {
+        // Create a temporary customer object for email purposes
+        // This is for sending emails to employees
+        Customer customer = new Customer();
+        customer.setName(user.getName());
+        customer.setEmail(user.getEmail());
+        customer.setCustomerType(CustomerType.REGULAR_CUSTOMER);
+        return customer;
+    }
+
+    private String mapPayPropCategory(String category) {
+        if (category == null) return "general";
+        
+        switch (category.toLowerCase()) {
+            case "plumbing": return "plumbing";
+            case "electrical": return "electrical";
+            case "heating": return "heating";
+            case "appliance": return "appliance";
+            case "external": return "external";
+            case "internal": return "internal";
+            default: return "general";
+        }
+    }
+
+    private String mapPayPropStatus(String payPropStatus) {
+        if (payPropStatus == null) return "open";
+        
+        switch (payPropStatus.toLowerCase()) {
+            case "new": return "open";
+            case "in_progress": return "work-in-progress";
+            case "on_hold": return "on-hold";
+            case "resolved": return "resolved";
+            case "rejected": return "closed";
+            default: return "open";
+        }
+    }
+}
@@ -0,0 +1,566 @@
+package site.easy.to.build.crm.service.portfolio;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import site.easy.to.build.crm.dto.StatementTransactionDto;
+import site.easy.to.build.crm.entity.AssignmentType;
+import site.easy.to.build.crm.entity.Invoice;
+import site.easy.to.build.crm.entity.Portfolio;
+import site.easy.to.build.crm.entity.PortfolioAnalytics;
+import site.easy.to.build.crm.entity.Property;
+import site.easy.to.build.crm.entity.UnifiedTransaction;
+import site.easy.to.build.crm.repository.CustomerPropertyAssignmentRepository;
+import site.easy.to.build.crm.repository.InvoiceRepository;
+import site.easy.to.build.crm.repository.PortfolioAnalyticsRepository;
+import site.easy.to.build.crm.repository.PortfolioRepository;
+import site.easy.to.build.crm.repository.PropertyPortfolioAssignmentRepository;
+import site.easy.to.build.crm.repository.UnifiedTransactionRepository;
+import site.easy.to.build.crm.service.invoice.RentCalculationService;
+import site.easy.to.build.crm.service.statements.StatementTransactionConverter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Portfolio Analytics Engine
+ *
+ * Computes PortfolioAnalytics from shared, bulk-loaded aggregates instead of
+ * per-property service calls (getCurrentTenant + getPropertyFinancialSummary):
+ * - Occupancy: one query for every property with a current tenant assignment
+ * - Rent due: leases loaded in property-id chunks, evaluated in memory
+ * - Rent received / expenses: one keyset-paged pass over unified_transactions
+ * - Vacancy length: one query for the last ended tenancy of every property
+ *
+ * Each property's aggregate is computed once and shared by every portfolio containing it.
+ * Portfolios are then computed in parallel on the bounded portfolioAnalyticsExecutor and
+ * saved in batches. Per-portfolio timings are recorded under portfolio.analytics.calculation
+ * (one untagged timer, so the number of series does not grow with the portfolio count).
+ */
+@Service
+public class PortfolioAnalyticsEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioAnalyticsEngine.class);
+
+    // Far enough back to catch all leases (matches UnifiedFinancialDataService arrears window)
+    private static final LocalDate START_OF_TIME = LocalDate.of(2000, 1, 1);
+    private static final int PROPERTY_ID_CHUNK_SIZE = 1000;
+    private static final int TRANSACTION_PAGE_SIZE = 5000;
+
+    private final PortfolioRepository portfolioRepository;
+    private final PortfolioAnalyticsRepository analyticsRepository;
+    private final PropertyPortfolioAssignmentRepository propertyPortfolioAssignmentRepository;
+    private final CustomerPropertyAssignmentRepository customerPropertyAssignmentRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final UnifiedTransactionRepository unifiedTransactionRepository;
+    private final StatementTransactionConverter transactionConverter;
+    private final RentCalculationService rentCalculationService;
+    private final TaskExecutor executor;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final Timer calculationTimer;
+
+    @Value("${payprop.enabled:false}")
+    private boolean payPropEnabled;
+
+    @Value("${portfolio.analytics.save-batch-size:50}")
+    private int saveBatchSize;
+
+    public PortfolioAnalyticsEngine(PortfolioRepository portfolioRepository,
+                                    PortfolioAnalyticsRepository analyticsRepository,
+                                    PropertyPortfolioAssignmentRepository propertyPortfolioAssignmentRepository,
+                                    CustomerPropertyAssignmentRepository customerPropertyAssignmentRepository,
+                                    InvoiceRepository invoiceRepository,
+                                    UnifiedTransactionRepository unifiedTransactionRepository,
+                                    StatementTransactionConverter transactionConverter,
+                                    RentCalculationService rentCalculationService,
+                                    @Qualifier("portfolioAnalyticsExecutor") TaskExecutor executor,
+                                    PlatformTransactionManager transactionManager,
+                                    MeterRegistry meterRegistry) {
+        this.portfolioRepository = portfolioRepository;
+        this.analyticsRepository = analyticsRepository;
+        this.propertyPortfolioAssignmentRepository = propertyPortfolioAssignmentRepository;
+        this.customerPropertyAssignmentRepository = customerPropertyAssignmentRepository;
+        this.invoiceRepository = invoiceRepository;
+        this.unifiedTransactionRepository = unifiedTransactionRepository;
+        this.transactionConverter = transactionConverter;
+        this.rentCalculationService = rentCalculationService;
+        this.executor = executor;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.meterRegistry = meterRegistry;
+        this.calculationTimer = Timer.builder("portfolio.analytics.calculation")
+            .description("Time to compute analytics for one portfolio from shared aggregates")
+            .register(meterRegistry);
+    }
+
+    // ===== PUBLIC API =====
+
+    /**
+     * Calculate and save analytics for every active portfolio.
+     * Used by the nightly scheduler.
+     */
+    public RunResult calculateAllPortfolios(LocalDate startDate, LocalDate endDate) {
+        long runStart = System.nanoTime();
+        List<Portfolio> portfolios = portfolioRepository.findActivePortfolios();
+        RunResult result = new RunResult(portfolios.size());
+
+        if (portfolios.isEmpty()) {
+            return result;
+        }
+
+        Map<Long, List<Property>> propertiesByPortfolio = timePhase("properties", () ->
+            loadPropertiesByPortfolio(portfolios.stream().map(Portfolio::getId).collect(Collectors.toList())));
+
+        Collection<Property> allProperties = distinctProperties(propertiesByPortfolio.values());
+        AggregateSnapshot snapshot = loadAggregates(allProperties, startDate, endDate, false);
+
+        Map<Long, PortfolioAnalytics> existing = analyticsRepository.findByCalculationDate(endDate).stream()
+            .collect(Collectors.toMap(PortfolioAnalytics::getPortfolioId, a -> a, (a, b) -> a));
+
+        List<CompletableFuture<PortfolioAnalytics>> futures = portfolios.stream()
+            .map(portfolio -> CompletableFuture
+                .supplyAsync(() -> computeTimed(portfolio,
+                        propertiesByPortfolio.getOrDefault(portfolio.getId(), Collections.emptyList()),
+                        snapshot,
+                        existing.getOrDefault(portfolio.getId(), new PortfolioAnalytics(portfolio.getId(), endDate))),
+                    executor)
+                .exceptionally(e -> {
+                    log.error("Failed to calculate analytics for portfolio {}: {}", portfolio.getId(), e.getMessage());
+                    result.failed.add(portfolio.getId());
+                    return null;
+                }))
+            .collect(Collectors.toList());
+
+        List<PortfolioAnalytics> computed = futures.stream()
+            .map(CompletableFuture::join)
+            .filter(Objects::nonNull)
+            .collect(Collectors.toList());
+
+        timePhase("save", () -> {
+            saveInBatches(computed);
+            return null;
+        });
+
+        result.succeeded = computed.size();
+        result.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+        meterRegistry.timer("portfolio.analytics.run").record(result.durationMs, TimeUnit.MILLISECONDS);
+
+        log.info("Portfolio analytics run complete: {} portfolios, {} properties, {} succeeded, {} failed in {} ms",
+            portfolios.size(), allProperties.size(), result.succeeded, result.failed.size(), result.durationMs);
+
+        return result;
+    }
+
+    /**
+     * Calculate and save analytics for a single portfolio, using the same aggregate
+     * pipeline scoped to that portfolio's properties.
+     */
+    public PortfolioAnalytics calculatePortfolio(Portfolio portfolio, LocalDate startDate, LocalDate endDate) {
+        List<Property> properties = loadPropertiesByPortfolio(List.of(portfolio.getId()))
+            .getOrDefault(portfolio.getId(), Collections.emptyList());
+
+        AggregateSnapshot snapshot = loadAggregates(distinctProperties(List.of(properties)), startDate, endDate, true);
+
+        PortfolioAnalytics analytics = analyticsRepository
+            .findByPortfolioIdAndCalculationDate(portfolio.getId(), endDate)
+            .orElse(new PortfolioAnalytics(portfolio.getId(), endDate));
+
+        computeTimed(portfolio, properties, snapshot, analytics);
+        return analyticsRepository.save(analytics);
+    }
+
+    // ===== BULK LOADING =====
+
+    private Map<Long, List<Property>> loadPropertiesByPortfolio(Collection<Long> portfolioIds) {
+        Map<Long, List<Property>> result = new HashMap<>();
+        for (Object[] row : propertyPortfolioAssignmentRepository.findActivePropertiesForPortfolios(portfolioIds)) {
+            result.computeIfAbsent((Long) row[0], k -> new ArrayList<>()).add((Property) row[1]);
+        }
+        return result;
+    }
+
+    private Collection<Property> distinctProperties(Collection<List<Property>> propertyLists) {
+        Map<Long, Property> byId = new LinkedHashMap<>();
+        for (List<Property> properties : propertyLists) {
+            for (Property property : properties) {
+                byId.putIfAbsent(property.getId(), property);
+            }
+        }
+        return byId.values();
+    }
+
+    /**
+     * Load occupancy, rent due and transaction aggregates for the given properties.
+     *
+     * @param scoped true to restrict the transaction scan to these properties (single portfolio),
+     *               false to scan the whole date range once (all portfolios)
+     */
+    AggregateSnapshot loadAggregates(Collection<Property> properties, LocalDate startDate, LocalDate endDate, boolean scoped) {
+        AggregateSnapshot snapshot = new AggregateSnapshot();
+
+        List<Long> activePropertyIds = new ArrayList<>();
+        for (Property property : properties) {
+            if (property.isActive()) {
+                activePropertyIds.add(property.getId());
+                snapshot.byProperty.put(property.getId(), new PropertyAggregate(property));
+            }
+        }
+
+        // Occupancy "as of today", matching PropertyService.getCurrentTenant
+        snapshot.occupiedPropertyIds.addAll(timePhase("occupancy", () ->
+            customerPropertyAssignmentRepository.findPropertyIdsWithActiveAssignment(AssignmentType.TENANT, snapshot.asOf)));
+
+        // A vacant property has been vacant since its last tenancy ended
+        timePhase("vacancy", () -> {
+            for (Object[] row : customerPropertyAssignmentRepository.findLastEndDateByProperty(AssignmentType.TENANT, snapshot.asOf)) {
+                snapshot.lastTenancyEnd.put((Long) row[0], (LocalDate) row[1]);
+            }
+            return null;
+        });
+
+        if (activePropertyIds.isEmpty()) {
+            return snapshot;
+        }
+
+        timePhase("rent-due", () -> {
+            loadRentDue(snapshot, activePropertyIds, startDate, endDate);
+            return null;
+        });
+
+        timePhase("transactions", () -> {
+            loadTransactionTotals(snapshot, activePropertyIds, startDate, endDate, scoped);
+            return null;
+        });
+
+        snapshot.byProperty.values().forEach(PropertyAggregate::finish);
+        return snapshot;
+    }
+
+    private void loadRentDue(AggregateSnapshot snapshot, List<Long> propertyIds, LocalDate startDate, LocalDate endDate) {
+        Map<Long, List<Invoice>> leasesByProperty = new HashMap<>();
+        for (int i = 0; i < propertyIds.size(); i += PROPERTY_ID_CHUNK_SIZE) {
+            List<Long> chunk = propertyIds.subList(i, Math.min(i + PROPERTY_ID_CHUNK_SIZE, propertyIds.size()));
+            for (Invoice lease : invoiceRepository.findByPropertyIdsAndDateRange(chunk, START_OF_TIME, endDate)) {
+                if (lease.getProperty() != null) {
+                    leasesByProperty.computeIfAbsent(lease.getProperty().getId(), k -> new ArrayList<>()).add(lease);
+                }
+            }
+        }
+
+        leasesByProperty.forEach((propertyId, leases) -> {
+            PropertyAggregate aggregate = snapshot.byProperty.get(propertyId);
+            if (aggregate == null) {
+                return;
+            }
+            try {
+                aggregate.rentDue = rentCalculationService.calculateTotalRentDue(leases, startDate, endDate);
+                aggregate.cumulativeRentDue = rentCalculationService.calculateTotalRentDue(leases, START_OF_TIME, endDate);
+            } catch (Exception e) {
+                log.warn("Error calculating rent due for property {}: {}", propertyId, e.getMessage());
+            }
+        });
+    }
+
+    private void loadTransactionTotals(AggregateSnapshot snapshot, List<Long> propertyIds,
+                                       LocalDate startDate, LocalDate endDate, boolean scoped) {
+        long afterId = 0L;
+        long scanned = 0;
+        List<UnifiedTransaction> page;
+        do {
+            page = scoped
+                ? unifiedTransactionRepository.findPageForPropertiesInDateRangeAfterId(
+                    afterId, propertyIds, START_OF_TIME, endDate, PageRequest.of(0, TRANSACTION_PAGE_SIZE))
+                : unifiedTransactionRepository.findPageInDateRangeAfterId(
+                    afterId, START_OF_TIME, endDate, PageRequest.of(0, TRANSACTION_PAGE_SIZE));
+
+            for (UnifiedTransaction tx : page) {
+                afterId = tx.getId();
+                PropertyAggregate aggregate = tx.getPropertyId() != null ? snapshot.byProperty.get(tx.getPropertyId()) : null;
+                if (aggregate == null || tx.getAmount() == null || tx.getTransactionDate() == null) {
+                    continue;
+                }
+                aggregate.add(transactionConverter.convertUnifiedToDto(tx), !tx.getTransactionDate().isBefore(startDate));
+            }
+            scanned += page.size();
+        } while (page.size() == TRANSACTION_PAGE_SIZE);
+
+        meterRegistry.counter("portfolio.analytics.transactions.scanned").increment(scanned);
+        log.debug("Scanned {} unified transactions for portfolio analytics", scanned);
+    }
+
+    // ===== COMPUTATION =====
+
+    private PortfolioAnalytics computeTimed(Portfolio portfolio, List<Property> properties,
+                                            AggregateSnapshot snapshot, PortfolioAnalytics analytics) {
+        return calculationTimer.record(() -> compute(portfolio, properties, snapshot, analytics));
+    }
+
+    /**
+     * Populate analytics for one portfolio. Pure in-memory work over the snapshot, safe to run
+     * concurrently for different portfolios.
+     */
+    PortfolioAnalytics compute(Portfolio portfolio, List<Property> properties,
+                               AggregateSnapshot snapshot, PortfolioAnalytics analytics) {
+        analytics.setTotalProperties(properties.size());
+
+        int occupiedCount = 0;
+        int vacantCount = 0;
+        int lettablePropertyCount = 0; // Properties that count for occupancy (excludes parking, block properties)
+        int totalTenants = 0;
+        int syncedProperties = 0;
+        int totalVacantDays = 0;
+        int vacanciesWithKnownStart = 0; // Vacant properties that have had a tenancy before
+
+        BigDecimal totalRent = BigDecimal.ZERO;
+        BigDecimal actualIncome = BigDecimal.ZERO;
+        BigDecimal totalRentDue = BigDecimal.ZERO;
+        BigDecimal totalRentReceived = BigDecimal.ZERO;
+        BigDecimal totalExpenses = BigDecimal.ZERO;
+        BigDecimal totalCommission = BigDecimal.ZERO;
+        BigDecimal totalArrears = BigDecimal.ZERO;
+        BigDecimal totalPurchasePrice = BigDecimal.ZERO;
+        BigDecimal totalCurrentValue = BigDecimal.ZERO;
+
+        for (Property property : properties) {
+            if (!property.isActive()) {
+                continue;
+            }
+
+            boolean isOccupied = snapshot.occupiedPropertyIds.contains(property.getId());
+
+            if (property.countsForOccupancy()) {
+                lettablePropertyCount++;
+                if (isOccupied) {
+                    occupiedCount++;
+                    totalTenants++;
+                } else {
+                    vacantCount++;
+                    LocalDate vacantSince = snapshot.lastTenancyEnd.get(property.getId());
+                    if (vacantSince != null) {
+                        totalVacantDays += (int) ChronoUnit.DAYS.between(vacantSince, snapshot.asOf);
+                        vacanciesWithKnownStart++;
+                    }
+                }
+            } else if (isOccupied) {
+                // Parking/block properties with tenants still count toward total tenants
+                totalTenants++;
+            }
+
+            PropertyAggregate aggregate = snapshot.byProperty.get(property.getId());
+            if (aggregate != null) {
+                totalRentDue = totalRentDue.add(aggregate.rentDue);
+                totalRentReceived = totalRentReceived.add(aggregate.rentReceived);
+                totalExpenses = totalExpenses.add(aggregate.expenses);
+                totalCommission = totalCommission.add(aggregate.commission);
+                totalArrears = totalArrears.add(aggregate.arrears());
+                if (isOccupied) {
+                    actualIncome = actualIncome.add(aggregate.rentReceived);
+                }
+            }
+
+            if (property.getMonthlyPayment() != null) {
+                totalRent = totalRent.add(property.getMonthlyPayment());
+            }
+            if (property.getPurchasePrice() != null) {
+                totalPurchasePrice = totalPurchasePrice.add(property.getPurchasePrice());
+            }
+            if (property.getEstimatedCurrentValue() != null) {
+                totalCurrentValue = totalCurrentValue.add(property.getEstimatedCurrentValue());
+            }
+
+            if (payPropEnabled && property.isPayPropSynced()) {
+                syncedProperties++;
+            }
+        }
+
+        analytics.setOccupiedProperties(occupiedCount);
+        analytics.setVacantProperties(vacantCount);
+        analytics.setTotalMonthlyRent(totalRent);
+        analytics.setActualMonthlyIncome(actualIncome);
+        analytics.setLostMonthlyIncome(totalRent.subtract(actualIncome));
+        analytics.setTotalTenants(totalTenants);
+
+        if (payPropEnabled) {
+            analytics.setPropertiesSynced(syncedProperties);
+            analytics.setPropertiesPendingSync(properties.size() - syncedProperties);
+        } else {
+            analytics.setPropertiesSynced(0);
+            analytics.setPropertiesPendingSync(0);
+        }
+
+        if (lettablePropertyCount > 0) {
+            analytics.setOccupancyRate(BigDecimal.valueOf(occupiedCount)
+                .divide(BigDecimal.valueOf(lettablePropertyCount), 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+        } else {
+            analytics.setOccupancyRate(BigDecimal.ZERO);
+        }
+
+        if (portfolio.getTargetMonthlyIncome() != null) {
+            analytics.setTargetMonthlyIncome(portfolio.getTargetMonthlyIncome());
+            analytics.setIncomeVariance(actualIncome.subtract(portfolio.getTargetMonthlyIncome()));
+        }
+        if (portfolio.getTargetOccupancyRate() != null) {
+            analytics.setTargetOccupancyRate(portfolio.getTargetOccupancyRate());
+            analytics.setOccupancyVariance(analytics.getOccupancyRate().subtract(portfolio.getTargetOccupancyRate()));
+        }
+
+        analytics.setRentDue(totalRentDue);
+        analytics.setRentReceived(totalRentReceived);
+        analytics.setTotalExpenses(totalExpenses);
+        analytics.setTotalCommission(totalCommission);
+
+        // Net Income = Rent Received - Expenses - Commission
+        BigDecimal netIncome = totalRentReceived.subtract(totalExpenses).subtract(totalCommission);
+        analytics.setNetIncome(netIncome);
+        analytics.setTotalArrears(totalArrears);
+
+        analytics.setTotalPurchasePrice(totalPurchasePrice);
+        analytics.setTotalCurrentValue(totalCurrentValue);
+        BigDecimal capitalGain = totalCurrentValue.subtract(totalPurchasePrice);
+        analytics.setTotalCapitalGain(capitalGain);
+
+        if (totalPurchasePrice.compareTo(BigDecimal.ZERO) > 0) {
+            analytics.setCapitalGainPercentage(capitalGain
+                .divide(totalPurchasePrice, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+        } else {
+            analytics.setCapitalGainPercentage(BigDecimal.ZERO);
+        }
+
+        // Gross Yield = (Annual Rent / Portfolio Value) × 100, Net Yield = (Net Income / Portfolio Value) × 100
+        if (totalCurrentValue.compareTo(BigDecimal.ZERO) > 0) {
+            analytics.setGrossYield(totalRentReceived
+                .divide(totalCurrentValue, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+            analytics.setNetYield(netIncome
+                .divide(totalCurrentValue, 4, RoundingMode.HALF_UP)
+                .multiply(BigDecimal.valueOf(100)));
+        } else {
+            analytics.setGrossYield(BigDecimal.ZERO);
+            analytics.setNetYield(BigDecimal.ZERO);
+        }
+
+        analytics.setCurrentVacancies(vacantCount);
+        analytics.setTotalVacantDays(totalVacantDays);
+        if (vacanciesWithKnownStart > 0) {
+            analytics.setAverageDaysVacant(BigDecimal.valueOf(totalVacantDays)
+                .divide(BigDecimal.valueOf(vacanciesWithKnownStart), 1, RoundingMode.HALF_UP));
+        } else {
+            analytics.setAverageDaysVacant(BigDecimal.ZERO);
+        }
+
+        analytics.setLastSyncCheck(LocalDateTime.now());
+        return analytics;
+    }
+
+    // ===== PERSISTENCE =====
+
+    private void saveInBatches(List<PortfolioAnalytics> analytics) {
+        int batchSize = Math.max(1, saveBatchSize);
+        for (int i = 0; i < analytics.size(); i += batchSize) {
+            List<PortfolioAnalytics> batch = analytics.subList(i, Math.min(i + batchSize, analytics.size()));
+            transactionTemplate.executeWithoutResult(status -> analyticsRepository.saveAll(batch));
+        }
+    }
+
+    private <T> T timePhase(String phase, Supplier<T> work) {
+        return meterRegistry.timer("portfolio.analytics.phase", "phase", phase).record(work);
+    }
+
+    // ===== AGGREGATE TYPES =====
+
+    /**
+     * Shared, read-only (after loading) per-property aggregates for one calculation window
+     */
+    static class AggregateSnapshot {
+        final LocalDate asOf = LocalDate.now();
+        final Set<Long> occupiedPropertyIds = new HashSet<>();
+        final Map<Long, LocalDate> lastTenancyEnd = new HashMap<>();
+        final Map<Long, PropertyAggregate> byProperty = new HashMap<>();
+    }
+
+    /**
+     * Per-property financial totals, mirroring UnifiedFinancialDataService.getPropertyFinancialSummary
+     */
+    static class PropertyAggregate {
+        private final BigDecimal commissionPercentage;
+
+        BigDecimal rentDue = BigDecimal.ZERO;
+        BigDecimal cumulativeRentDue = BigDecimal.ZERO;
+        BigDecimal rentReceived = BigDecimal.ZERO;
+        BigDecimal cumulativeRentReceived = BigDecimal.ZERO;
+        BigDecimal expenses = BigDecimal.ZERO;
+        BigDecimal commission = BigDecimal.ZERO;
+
+        PropertyAggregate(Property property) {
+            // Block properties ALWAYS have 0% commission (communal funds, not rent)
+            boolean isBlockProperty = Boolean.TRUE.equals(property.getIsBlockProperty()) ||
+                                      "BLOCK".equalsIgnoreCase(property.getPropertyType());
+            if (isBlockProperty) {
+                this.commissionPercentage = BigDecimal.ZERO;
+            } else {
+                this.commissionPercentage = property.getCommissionPercentage() != null
+                    ? property.getCommissionPercentage()
+                    : BigDecimal.valueOf(15.0);
+            }
+        }
+
+        void add(StatementTransactionDto tx, boolean inPeriod) {
+            if (tx.isRentPayment()) {
+                cumulativeRentReceived = cumulativeRentReceived.add(tx.getAmount());
+                if (inPeriod) {
+                    rentReceived = rentReceived.add(tx.getAmount());
+                }
+            } else if (inPeriod && tx.isExpense()) {
+                expenses = expenses.add(tx.getAmount().abs());
+            }
+        }
+
+        void finish() {
+            commission = rentReceived
+                .multiply(commissionPercentage)
+                .divide(BigDecimal.valueOf(100), 2, RoundingMode.HALF_UP);
+        }
+
+        BigDecimal arrears() {
+            return cumulativeRentDue.subtract(cumulativeRentReceived);
+        }
+    }
+
+    /**
+     * Outcome of a full analytics run
+     */
+    public static class RunResult {
+        private final int portfolios;
+        private final List<Long> failed = Collections.synchronizedList(new ArrayList<>());
+        private int succeeded;
+        private long durationMs;
+
+        RunResult(int portfolios) {
+            this.portfolios = portfolios;
+        }
+
+        public int getPortfolios() { return portfolios; }
+        public int getSucceeded() { return succeeded; }
+        public List<Long> getFailed() { return failed; }
+        public long getDurationMs() { return durationMs; }
+    }
+}
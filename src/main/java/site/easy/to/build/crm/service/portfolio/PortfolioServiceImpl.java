@@ -15,12 +15,9 @@ import site.easy.to.build.crm.service.payprop.PayPropOAuth2Service;
 import site.easy.to.build.crm.util.AuthenticationUtils;
 import site.easy.to.build.crm.util.AuthorizationUtil;
 import site.easy.to.build.crm.service.payprop.PayPropTagDTO;
-import site.easy.to.build.crm.service.financial.UnifiedFinancialDataService;
 import site.easy.to.build.crm.dto.StatementTransactionDto;
 // Removed TagNamespaceService import - using direct tag generation to match PayPropPortfolioSyncService
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
@@ -61,9 +58,9 @@ public class PortfolioServiceImpl implements PortfolioService {
     @Autowired(required = false)
     private PayPropOAuth2Service payPropOAuth2Service;
 
-    // Add UnifiedFinancialDataService for actual transaction data
-    @Autowired(required = false)
-    private UnifiedFinancialDataService unifiedFinancialDataService;
+    // Bulk analytics engine (occupancy, rent due and unified transaction aggregates)
+    @Autowired
+    private PortfolioAnalyticsEngine portfolioAnalyticsEngine;
 
     // Removed TagNamespaceService autowiring - using direct tag generation to match PayPropPortfolioSyncService
 
@@ -609,236 +606,17 @@ public class PortfolioServiceImpl implements PortfolioService {
             return null;
         }
 
-        // Get or create analytics record (using endDate as calculation date)
-        PortfolioAnalytics analytics = analyticsRepository
-            .findByPortfolioIdAndCalculationDate(portfolioId, endDate)
-            .orElse(new PortfolioAnalytics(portfolioId, endDate));
-
-        // 🔧 CRITICAL FIX: Use junction table instead of direct FK
-        List<Property> properties = getPropertiesForPortfolio(portfolioId);
-
-        System.out.println("📊 Calculating analytics for portfolio " + portfolioId + " with " + properties.size() + " properties");
-        System.out.println("📅 Date range: " + startDate + " to " + endDate);
-
-        // Property counts
-        analytics.setTotalProperties(properties.size());
-
-        int occupiedCount = 0;
-        int vacantCount = 0;
-        int lettablePropertyCount = 0; // Properties that count for occupancy (excludes parking, block properties)
-        BigDecimal totalRent = BigDecimal.ZERO;
-        BigDecimal actualIncome = BigDecimal.ZERO;
-        int totalTenants = 0;
-        int syncedProperties = 0;
-
-        // Initialize comprehensive financial metrics
-        BigDecimal totalRentDue = BigDecimal.ZERO;
-        BigDecimal totalRentReceived = BigDecimal.ZERO;
-        BigDecimal totalExpenses = BigDecimal.ZERO;
-        BigDecimal totalCommission = BigDecimal.ZERO;
-        BigDecimal totalPurchasePrice = BigDecimal.ZERO;
-        BigDecimal totalCurrentValue = BigDecimal.ZERO;
-        int totalVacantDays = 0;
-
-        for (Property property : properties) {
-            if (property.isActive()) {
-                // Check occupancy using customer_property_assignments table
-                Customer currentTenant = propertyService.getCurrentTenant(property.getId());
-                boolean isOccupied = (currentTenant != null);
-
-                // Only count lettable properties (not parking, not block properties) for occupancy
-                if (property.countsForOccupancy()) {
-                    lettablePropertyCount++;
-                    if (isOccupied) {
-                        occupiedCount++;
-                        totalTenants++;
-                    } else {
-                        vacantCount++;
-                    }
-                } else if (isOccupied) {
-                    // Parking/block properties with tenants still count toward total tenants
-                    totalTenants++;
-                }
-
-                // === COMPREHENSIVE FINANCIAL METRICS (Last 12 months) ===
-                if (unifiedFinancialDataService != null) {
-                    try {
-                        // Get property financial summary with full calculations
-                        Map<String, Object> propSummary = unifiedFinancialDataService
-                            .getPropertyFinancialSummary(property, startDate, endDate);
-
-                        // Rent Due & Received
-                        BigDecimal propRentDue = (BigDecimal) propSummary.getOrDefault("rentDue", BigDecimal.ZERO);
-                        BigDecimal propRentReceived = (BigDecimal) propSummary.getOrDefault("rentReceived", BigDecimal.ZERO);
-                        BigDecimal propExpenses = (BigDecimal) propSummary.getOrDefault("totalExpenses", BigDecimal.ZERO);
-                        BigDecimal propCommission = (BigDecimal) propSummary.getOrDefault("totalCommissions", BigDecimal.ZERO);
-
-                        totalRentDue = totalRentDue.add(propRentDue);
-                        totalRentReceived = totalRentReceived.add(propRentReceived);
-                        totalExpenses = totalExpenses.add(propExpenses);
-                        totalCommission = totalCommission.add(propCommission);
-
-                        // For monthly income (backward compatibility)
-                        if (isOccupied) {
-                            actualIncome = actualIncome.add(propRentReceived);
-                        }
-                    } catch (Exception e) {
-                        System.err.println("Error calculating financials for property " + property.getId() + ": " + e.getMessage());
-                    }
-                }
-
-                // Calculate total rent potential (expected rent from all properties)
-                if (property.getMonthlyPayment() != null) {
-                    totalRent = totalRent.add(property.getMonthlyPayment());
-                }
-
-                // === VALUATION METRICS ===
-                if (property.getPurchasePrice() != null) {
-                    totalPurchasePrice = totalPurchasePrice.add(property.getPurchasePrice());
-                }
-                if (property.getEstimatedCurrentValue() != null) {
-                    totalCurrentValue = totalCurrentValue.add(property.getEstimatedCurrentValue());
-                }
-
-                // === VACANT PERIOD TRACKING ===
-                if (!isOccupied) {
-                    // TODO: Calculate actual vacant days from letting_instructions or customer_property_assignments history
-                    // For now, placeholder - would need to query vacancy start date
-                }
-
-                // PayProp sync status (only check if PayProp is enabled)
-                if (payPropEnabled && property.isPayPropSynced()) {
-                    syncedProperties++;
-                }
-            }
-        }
-        
-        analytics.setOccupiedProperties(occupiedCount);
-        analytics.setVacantProperties(vacantCount);
-        analytics.setTotalMonthlyRent(totalRent);
-        analytics.setActualMonthlyIncome(actualIncome);
-        analytics.setLostMonthlyIncome(totalRent.subtract(actualIncome));
-        analytics.setTotalTenants(totalTenants);
-        
-        // Only set sync stats if PayProp is enabled
-        if (payPropEnabled) {
-            analytics.setPropertiesSynced(syncedProperties);
-            analytics.setPropertiesPendingSync(properties.size() - syncedProperties);
-        } else {
-            analytics.setPropertiesSynced(0);
-            analytics.setPropertiesPendingSync(0);
-        }
-        
-        // Calculate occupancy rate based on lettable properties only (excludes parking, block properties)
-        if (lettablePropertyCount > 0) {
-            BigDecimal occupancyRate = BigDecimal.valueOf(occupiedCount)
-                .divide(BigDecimal.valueOf(lettablePropertyCount), 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-            analytics.setOccupancyRate(occupancyRate);
-        } else {
-            analytics.setOccupancyRate(BigDecimal.ZERO);
-        }
-        
-        // Calculate variances against targets
-        if (portfolio.getTargetMonthlyIncome() != null) {
-            analytics.setTargetMonthlyIncome(portfolio.getTargetMonthlyIncome());
-            analytics.setIncomeVariance(actualIncome.subtract(portfolio.getTargetMonthlyIncome()));
-        }
-        
-        if (portfolio.getTargetOccupancyRate() != null) {
-            analytics.setTargetOccupancyRate(portfolio.getTargetOccupancyRate());
-            analytics.setOccupancyVariance(analytics.getOccupancyRate().subtract(portfolio.getTargetOccupancyRate()));
-        }
-
-        // === SET NEW COMPREHENSIVE FINANCIAL METRICS ===
-        analytics.setRentDue(totalRentDue);
-        analytics.setRentReceived(totalRentReceived);
-        analytics.setTotalExpenses(totalExpenses);
-        analytics.setTotalCommission(totalCommission);
-
-        // Net Income = Rent Received - Expenses - Commission
-        BigDecimal netIncome = totalRentReceived.subtract(totalExpenses).subtract(totalCommission);
-        analytics.setNetIncome(netIncome);
-
-        // === CUMULATIVE ARREARS (All time to calculationDate) ===
-        BigDecimal cumulativeArrears = BigDecimal.ZERO;
-        try {
-            for (Property property : properties) {
-                if (property.isActive() && unifiedFinancialDataService != null) {
-                    // Get cumulative arrears up to calculation date
-                    LocalDate startOfTime = LocalDate.of(2000, 1, 1);
-                    Map<String, Object> propSummary = unifiedFinancialDataService
-                        .getPropertyFinancialSummary(property, startOfTime, endDate);
-
-                    BigDecimal propArrears = (BigDecimal) propSummary.getOrDefault("rentArrears", BigDecimal.ZERO);
-                    cumulativeArrears = cumulativeArrears.add(propArrears);
-                }
-            }
-            analytics.setTotalArrears(cumulativeArrears);
-        } catch (Exception e) {
-            System.err.println("Error calculating cumulative arrears: " + e.getMessage());
-            analytics.setTotalArrears(BigDecimal.ZERO);
-        }
-
-        // === VALUATION METRICS ===
-        analytics.setTotalPurchasePrice(totalPurchasePrice);
-        analytics.setTotalCurrentValue(totalCurrentValue);
-
-        // Capital Gain
-        BigDecimal capitalGain = totalCurrentValue.subtract(totalPurchasePrice);
-        analytics.setTotalCapitalGain(capitalGain);
-
-        // Capital Gain Percentage
-        if (totalPurchasePrice.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal capitalGainPercentage = capitalGain
-                .divide(totalPurchasePrice, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-            analytics.setCapitalGainPercentage(capitalGainPercentage);
-        } else {
-            analytics.setCapitalGainPercentage(BigDecimal.ZERO);
-        }
-
-        // === YIELD CALCULATIONS ===
-        // Gross Yield = (Annual Rent / Portfolio Value) × 100
-        if (totalCurrentValue.compareTo(BigDecimal.ZERO) > 0) {
-            BigDecimal annualRent = totalRentReceived; // Already 12 months
-            BigDecimal grossYield = annualRent
-                .divide(totalCurrentValue, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-            analytics.setGrossYield(grossYield);
-
-            // Net Yield = (Annual Net Income / Portfolio Value) × 100
-            BigDecimal netYield = netIncome
-                .divide(totalCurrentValue, 4, RoundingMode.HALF_UP)
-                .multiply(BigDecimal.valueOf(100));
-            analytics.setNetYield(netYield);
-        } else {
-            analytics.setGrossYield(BigDecimal.ZERO);
-            analytics.setNetYield(BigDecimal.ZERO);
-        }
-
-        // === VACANT PERIOD TRACKING ===
-        analytics.setCurrentVacancies(vacantCount);
-        analytics.setTotalVacantDays(totalVacantDays); // TODO: Calculate from actual vacancy data
-
-        if (vacantCount > 0) {
-            // Average days vacant per vacant property
-            BigDecimal avgDaysVacant = BigDecimal.valueOf(totalVacantDays)
-                .divide(BigDecimal.valueOf(vacantCount), 1, RoundingMode.HALF_UP);
-            analytics.setAverageDaysVacant(avgDaysVacant);
-        } else {
-            analytics.setAverageDaysVacant(BigDecimal.ZERO);
-        }
-
-        analytics.setLastSyncCheck(LocalDateTime.now());
+        // Occupancy, rent due and transaction totals are bulk-loaded for the portfolio's
+        // properties in a few grouped queries instead of per-property service calls
+        PortfolioAnalytics analytics = portfolioAnalyticsEngine.calculatePortfolio(portfolio, startDate, endDate);
 
-        System.out.println("📊 Portfolio Analytics Complete:");
-        System.out.println("   Rent Due: £" + totalRentDue + ", Rent Received: £" + totalRentReceived);
-        System.out.println("   Expenses: £" + totalExpenses + ", Commission: £" + totalCommission);
-        System.out.println("   Net Income: £" + netIncome + ", Arrears: £" + cumulativeArrears);
-        System.out.println("   Portfolio Value: £" + totalCurrentValue + ", Gross Yield: " + analytics.getGrossYield() + "%");
+        System.out.println("📊 Portfolio Analytics Complete for portfolio " + portfolioId + " (" + startDate + " to " + endDate + "):");
+        System.out.println("   Rent Due: £" + analytics.getRentDue() + ", Rent Received: £" + analytics.getRentReceived());
+        System.out.println("   Expenses: £" + analytics.getTotalExpenses() + ", Commission: £" + analytics.getTotalCommission());
+        System.out.println("   Net Income: £" + analytics.getNetIncome() + ", Arrears: £" + analytics.getTotalArrears());
+        System.out.println("   Portfolio Value: £" + analytics.getTotalCurrentValue() + ", Gross Yield: " + analytics.getGrossYield() + "%");
 
-        return analyticsRepository.save(analytics);
+        return analytics;
     }
 
     // ===== LEGACY METHODS (KEPT FOR BACKWARDS COMPATIBILITY) =====
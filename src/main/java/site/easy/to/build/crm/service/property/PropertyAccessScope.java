@@ -0,0 +1,77 @@
+package site.easy.to.build.crm.service.property;
+
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Objects;
+import java.util.Set;
+
+/**
+ * The properties a customer can see, resolved once by PropertyAccessScopeService.
+ *
+ * - Delegated users and managers with a managed owner see that owner's OWNER assignments
+ * - Everyone else sees their own OWNER and MANAGER assignments
+ *
+ * ownerId is the customer whose data is shown (the managed owner for delegates, else the customer).
+ * propertyNames are kept for PayProp INCOMING_PAYMENT rows, which are matched by property name.
+ */
+public final class PropertyAccessScope {
+
+    private final Long customerId;
+    private final Long ownerId;
+    private final boolean delegated;
+    private final Set<Long> propertyIds;
+    private final Set<String> propertyNames;
+
+    public PropertyAccessScope(Long customerId, Long ownerId, boolean delegated,
+                               Set<Long> propertyIds, Set<String> propertyNames) {
+        this.customerId = customerId;
+        this.ownerId = ownerId;
+        this.delegated = delegated;
+        this.propertyIds = Collections.unmodifiableSet(new LinkedHashSet<>(propertyIds));
+        this.propertyNames = Collections.unmodifiableSet(new LinkedHashSet<>(propertyNames));
+    }
+
+    /**
+     * Scope of an unknown customer: nothing visible.
+     */
+    public static PropertyAccessScope empty(Long customerId) {
+        return new PropertyAccessScope(customerId, customerId, false, Set.of(), Set.of());
+    }
+
+    public Long getCustomerId() { return customerId; }
+    public Long getOwnerId() { return ownerId; }
+    public boolean isDelegated() { return delegated; }
+    public Set<Long> getPropertyIds() { return propertyIds; }
+    public Set<String> getPropertyNames() { return propertyNames; }
+
+    public boolean isEmpty() {
+        return propertyIds.isEmpty();
+    }
+
+    public boolean canAccess(Long propertyId) {
+        return propertyId != null && propertyIds.contains(propertyId);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PropertyAccessScope)) return false;
+        PropertyAccessScope that = (PropertyAccessScope) o;
+        return delegated == that.delegated
+            && Objects.equals(customerId, that.customerId)
+            && Objects.equals(ownerId, that.ownerId)
+            && propertyIds.equals(that.propertyIds)
+            && propertyNames.equals(that.propertyNames);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(customerId, ownerId, delegated, propertyIds, propertyNames);
+    }
+
+    @Override
+    public String toString() {
+        return "PropertyAccessScope{customer=" + customerId + ", owner=" + ownerId
+            + (delegated ? " (delegated)" : "") + ", properties=" + propertyIds.size() + "}";
+    }
+}
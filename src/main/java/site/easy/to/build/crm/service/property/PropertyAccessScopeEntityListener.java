@@ -0,0 +1,47 @@
+package site.easy.to.build.crm.service.property;
+
+import jakarta.persistence.PostPersist;
+import jakarta.persistence.PostRemove;
+import jakarta.persistence.PostUpdate;
+import site.easy.to.build.crm.entity.Customer;
+import site.easy.to.build.crm.entity.CustomerPropertyAssignment;
+import site.easy.to.build.crm.entity.Property;
+
+/**
+ * JPA listener on CustomerPropertyAssignment, Customer and Property that drops the cached
+ * PropertyAccessScopes a write can change. Instantiated by Hibernate, so the scope service
+ * registers itself here on startup; before that (or without Spring) writes are ignored.
+ */
+public class PropertyAccessScopeEntityListener {
+
+    private static volatile PropertyAccessScopeService scopeService;
+
+    static void register(PropertyAccessScopeService service) {
+        scopeService = service;
+    }
+
+    @PostPersist
+    @PostUpdate
+    @PostRemove
+    public void onChange(Object entity) {
+        PropertyAccessScopeService service = scopeService;
+        if (service == null) {
+            return;
+        }
+        if (entity instanceof CustomerPropertyAssignment) {
+            CustomerPropertyAssignment assignment = (CustomerPropertyAssignment) entity;
+            Long customerId = assignment.getCustomer() != null ? assignment.getCustomer().getCustomerId() : null;
+            Long propertyId = assignment.getProperty() != null ? assignment.getProperty().getId() : null;
+            service.invalidateNowAndAfterCommit(() -> {
+                service.invalidateCustomer(customerId);
+                service.invalidateProperty(propertyId);
+            });
+        } else if (entity instanceof Customer) {
+            Long customerId = ((Customer) entity).getCustomerId();
+            service.invalidateNowAndAfterCommit(() -> service.invalidateCustomer(customerId));
+        } else if (entity instanceof Property) {
+            Long propertyId = ((Property) entity).getId();
+            service.invalidateNowAndAfterCommit(() -> service.invalidateProperty(propertyId));
+        }
+    }
+}
@@ -0,0 +1,194 @@
+package site.easy.to.build.crm.service.property;
+
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import site.easy.to.build.crm.event.HistoricalDataImportedEvent;
+import site.easy.to.build.crm.event.PayPropDataSyncedEvent;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Property Access Scope Service
+ *
+ * Resolves which properties a customer can see (see PropertyAccessScope) with one customer
+ * lookup and one assignment query, and caches the result per customer. Owner portal pages
+ * resolve the same scope many times per render; after the first call it is a map lookup.
+ *
+ * Invalidation:
+ * - JPA writes to assignments and customers (delegation) via PropertyAccessScopeEntityListener,
+ *   again after the surrounding transaction commits
+ * - property renames (names match PayProp incoming payments), same listener
+ * - everything after a PayProp sync or historical import, which write assignments over JDBC
+ * - entries expire after property.access-scope.ttl-seconds as a backstop for other JDBC writes
+ */
+@Service
+public class PropertyAccessScopeService {
+
+    private static final Logger log = LoggerFactory.getLogger(PropertyAccessScopeService.class);
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long ttlNanos;
+    private final Map<Long, CachedScope> cache = new ConcurrentHashMap<>();
+
+    public PropertyAccessScopeService(JdbcTemplate jdbcTemplate,
+                                      @Value("${property.access-scope.ttl-seconds:300}") long ttlSeconds) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+    }
+
+    @PostConstruct
+    void registerEntityListener() {
+        PropertyAccessScopeEntityListener.register(this);
+    }
+
+    /**
+     * The customer's visible properties (cached).
+     */
+    public PropertyAccessScope getScope(Long customerId) {
+        if (customerId == null) {
+            return PropertyAccessScope.empty(null);
+        }
+        long now = System.nanoTime();
+        CachedScope cached = cache.get(customerId);
+        if (cached != null && now - cached.loadedAt < ttlNanos) {
+            return cached.scope;
+        }
+        PropertyAccessScope scope = loadScope(customerId);
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        cache.put(customerId, new CachedScope(scope, now));
+        return scope;
+    }
+
+    public Set<Long> getVisiblePropertyIds(Long customerId) {
+        return getScope(customerId).getPropertyIds();
+    }
+
+    /**
+     * The owner whose data the customer sees: the managed owner for delegated users and
+     * managers, otherwise the customer itself.
+     */
+    public Long resolveOwnerId(Long customerId) {
+        return getScope(customerId).getOwnerId();
+    }
+
+    /**
+     * Scope of the owner the customer acts for (their own scope unless delegated).
+     */
+    public PropertyAccessScope getOwnerScope(Long customerId) {
+        PropertyAccessScope scope = getScope(customerId);
+        return scope.isDelegated() ? getScope(scope.getOwnerId()) : scope;
+    }
+
+    public boolean canAccessProperty(Long customerId, Long propertyId) {
+        return getScope(customerId).canAccess(propertyId);
+    }
+
+    /**
+     * Drop the customer's scope and the scopes of everyone acting for them.
+     */
+    public void invalidateCustomer(Long customerId) {
+        if (customerId == null) return;
+        cache.remove(customerId);
+        cache.values().removeIf(cached -> customerId.equals(cached.scope.getOwnerId()));
+    }
+
+    /**
+     * Drop every scope containing the property.
+     */
+    public void invalidateProperty(Long propertyId) {
+        if (propertyId == null) return;
+        cache.values().removeIf(cached -> cached.scope.canAccess(propertyId));
+    }
+
+    public void invalidateAll() {
+        cache.clear();
+    }
+
+    /**
+     * Run an invalidation now and, inside a transaction, again after it commits - a page
+     * rendering concurrently could otherwise re-cache the pre-commit scope.
+     */
+    void invalidateNowAndAfterCommit(Runnable invalidation) {
+        invalidation.run();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidation.run();
+                }
+            });
+        }
+    }
+
+    @EventListener
+    public void onPayPropDataSynced(PayPropDataSyncedEvent event) {
+        log.debug("PayProp sync finished - clearing property access scopes");
+        invalidateAll();
+    }
+
+    @EventListener
+    public void onHistoricalDataImported(HistoricalDataImportedEvent event) {
+        log.debug("Historical import finished - clearing property access scopes");
+        invalidateAll();
+    }
+
+    /**
+     * Resolve the scope from the database (same rules as the former per-call lookups in
+     * PropertyServiceImpl.findPropertiesAccessibleByCustomer).
+     */
+    protected PropertyAccessScope loadScope(Long customerId) {
+        List<Map<String, Object>> customer = jdbcTemplate.queryForList(
+            "SELECT customer_type, manages_owner_id FROM customers WHERE customer_id = ?", customerId);
+        if (customer.isEmpty()) {
+            return PropertyAccessScope.empty(customerId);
+        }
+        String customerType = (String) customer.get(0).get("customer_type");
+        Object managesOwnerId = customer.get(0).get("manages_owner_id");
+
+        boolean delegated = ("DELEGATED_USER".equals(customerType) || "MANAGER".equals(customerType))
+            && managesOwnerId != null;
+        Long ownerId = delegated ? ((Number) managesOwnerId).longValue() : customerId;
+        String assignmentTypes = delegated ? "'OWNER'" : "'OWNER', 'MANAGER'";
+
+        Set<Long> propertyIds = new LinkedHashSet<>();
+        Set<String> propertyNames = new LinkedHashSet<>();
+        jdbcTemplate.query("""
+            SELECT DISTINCT p.id, p.property_name
+            FROM customer_property_assignments cpa
+            JOIN properties p ON p.id = cpa.property_id
+            WHERE cpa.customer_id = ?
+              AND cpa.assignment_type IN (""" + assignmentTypes + ")", rs -> {
+            propertyIds.add(rs.getLong(1));
+            if (rs.getString(2) != null) {
+                propertyNames.add(rs.getString(2));
+            }
+        }, ownerId);
+
+        PropertyAccessScope scope = new PropertyAccessScope(customerId, ownerId, delegated, propertyIds, propertyNames);
+        log.debug("Resolved {}", scope);
+        return scope;
+    }
+
+    private static final class CachedScope {
+        final PropertyAccessScope scope;
+        final long loadedAt;
+
+        CachedScope(PropertyAccessScope scope, long loadedAt) {
+            this.scope = scope;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
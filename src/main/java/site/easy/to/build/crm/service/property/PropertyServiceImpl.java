@@ -38,6 +38,7 @@ public class PropertyServiceImpl implements PropertyService {
     private final PropertyBlockAssignmentRepository propertyBlockAssignmentRepository;
     private final BlockRepository blockRepository;
     private final JdbcTemplate jdbcTemplate;
+    private final PropertyAccessScopeService accessScopeService;
 
     @Value("${crm.data.source:LEGACY}")
     private String dataSource;
@@ -47,12 +48,14 @@ public class PropertyServiceImpl implements PropertyService {
                             CustomerPropertyAssignmentRepository assignmentRepository,
                             PropertyBlockAssignmentRepository propertyBlockAssignmentRepository,
                             BlockRepository blockRepository,
-                            JdbcTemplate jdbcTemplate) {
+                            JdbcTemplate jdbcTemplate,
+                            PropertyAccessScopeService accessScopeService) {
         this.propertyRepository = propertyRepository;
         this.assignmentRepository = assignmentRepository;
         this.propertyBlockAssignmentRepository = propertyBlockAssignmentRepository;
         this.blockRepository = blockRepository;
         this.jdbcTemplate = jdbcTemplate;
+        this.accessScopeService = accessScopeService;
     }
 
     // ✅ Core CRUD operations
@@ -422,33 +425,12 @@ public class PropertyServiceImpl implements PropertyService {
     @Override
     public List<Property> findPropertiesAccessibleByCustomer(Long customerId) {
         try {
-            System.out.println("🔍 [PropertyService] Finding properties accessible by Customer ID: " + customerId);
-
-            // Check if this customer is a delegated user or manager
-            String sql = "SELECT customer_type, manages_owner_id FROM customers WHERE customer_id = ?";
-            List<Map<String, Object>> result = jdbcTemplate.queryForList(sql, customerId);
-
-            if (result.isEmpty()) {
-                System.out.println("❌ [PropertyService] Customer not found: " + customerId);
+            // Delegated users/managers see their owner's properties, owners their OWNER/MANAGER assignments
+            PropertyAccessScope scope = accessScopeService.getScope(customerId);
+            if (scope.isEmpty()) {
                 return new ArrayList<>();
             }
-
-            Map<String, Object> customerData = result.get(0);
-            String customerType = (String) customerData.get("customer_type");
-            Object managesOwnerIdObj = customerData.get("manages_owner_id");
-
-            System.out.println("📊 [PropertyService] Customer type: " + customerType + ", manages_owner_id: " + managesOwnerIdObj);
-
-            // If delegated user or manager with an assigned owner, return that owner's properties
-            if (("DELEGATED_USER".equals(customerType) || "MANAGER".equals(customerType)) && managesOwnerIdObj != null) {
-                Long managesOwnerId = ((Number) managesOwnerIdObj).longValue();
-                System.out.println("✅ [PropertyService] Delegated user/manager - returning properties for owner ID: " + managesOwnerId);
-                return findPropertiesOwnedByCustomer(managesOwnerId);
-            }
-
-            // Otherwise, return properties owned by this customer
-            System.out.println("✅ [PropertyService] Regular owner - returning properties for customer ID: " + customerId);
-            return findPropertiesByCustomerAssignments(customerId);
+            return propertyRepository.findAllById(scope.getPropertyIds());
 
         } catch (Exception e) {
             System.err.println("❌ [PropertyService] Error finding accessible properties for customer " + customerId + ": " + e.getMessage());
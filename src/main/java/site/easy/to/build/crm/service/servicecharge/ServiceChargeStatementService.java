@@ -1,10 +1,5 @@
 package site.easy.to.build.crm.service.servicecharge;
 
-import com.itextpdf.html2pdf.ConverterProperties;
-import com.itextpdf.html2pdf.HtmlConverter;
-import com.itextpdf.kernel.geom.PageSize;
-import com.itextpdf.kernel.pdf.PdfDocument;
-import com.itextpdf.kernel.pdf.PdfWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -19,15 +14,15 @@ import site.easy.to.build.crm.repository.BlockRepository;
 import site.easy.to.build.crm.repository.InvoiceRepository;
 import site.easy.to.build.crm.repository.PropertyRepository;
 import site.easy.to.build.crm.repository.UnifiedTransactionRepository;
+import site.easy.to.build.crm.service.document.PdfRenderingService;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.time.LocalDate;
-import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -46,7 +41,6 @@ import java.util.stream.Collectors;
 public class ServiceChargeStatementService {
 
     private static final Logger log = LoggerFactory.getLogger(ServiceChargeStatementService.class);
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd/MM/yyyy");
 
     @Autowired
     private BlockRepository blockRepository;
@@ -60,6 +54,9 @@ public class ServiceChargeStatementService {
     @Autowired
     private UnifiedTransactionRepository unifiedTransactionRepository;
 
+    @Autowired
+    private PdfRenderingService pdfRenderingService;
+
     /**
      * Get all blocks with block properties for the dropdown selector.
      *
@@ -365,173 +362,6 @@ public class ServiceChargeStatementService {
      * Generate PDF from statement data.
      */
     private byte[] generatePdf(ServiceChargeStatementDTO statement) throws IOException {
-        String html = generatePdfHtml(statement);
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        PdfWriter writer = new PdfWriter(baos);
-        PdfDocument pdf = new PdfDocument(writer);
-        pdf.setDefaultPageSize(PageSize.A4);
-
-        ConverterProperties props = new ConverterProperties();
-        HtmlConverter.convertToPdf(html, pdf, props);
-
-        return baos.toByteArray();
-    }
-
-    /**
-     * Generate HTML for PDF export.
-     */
-    private String generatePdfHtml(ServiceChargeStatementDTO statement) {
-        StringBuilder html = new StringBuilder();
-
-        html.append("<!DOCTYPE html><html><head>");
-        html.append("<meta charset=\"UTF-8\">");
-        html.append("<style>");
-        html.append("body { font-family: Arial, sans-serif; font-size: 10pt; margin: 20px; }");
-        html.append("h1 { font-size: 16pt; margin-bottom: 5px; }");
-        html.append("h2 { font-size: 12pt; color: #333; margin-top: 20px; margin-bottom: 10px; }");
-        html.append(".header { margin-bottom: 20px; }");
-        html.append(".header-row { display: flex; justify-content: space-between; margin-bottom: 15px; }");
-        html.append(".header-left { }");
-        html.append(".header-right { text-align: right; }");
-        html.append(".info-label { font-weight: bold; color: #666; }");
-        html.append(".summary-box { background: #f5f5f5; padding: 15px; margin: 20px 0; border-radius: 5px; }");
-        html.append(".summary-row { display: flex; justify-content: space-between; padding: 5px 0; }");
-        html.append(".summary-total { border-top: 2px solid #333; font-weight: bold; margin-top: 10px; padding-top: 10px; }");
-        html.append("table { width: 100%; border-collapse: collapse; margin-top: 10px; }");
-        html.append("th { background: #333; color: white; padding: 8px; text-align: left; font-size: 9pt; }");
-        html.append("th.amount { text-align: right; }");
-        html.append("td { padding: 6px 8px; border-bottom: 1px solid #ddd; font-size: 9pt; }");
-        html.append("td.amount { text-align: right; }");
-        html.append("td.income { color: #28a745; }");
-        html.append("td.expense { color: #dc3545; }");
-        html.append("tr.opening-balance { background: #e3f2fd; font-weight: bold; }");
-        html.append("tr.closing-balance { background: #e8f5e9; font-weight: bold; }");
-        html.append("tr.totals { background: #fff3cd; font-weight: bold; border-top: 2px solid #333; }");
-        html.append(".footer { margin-top: 30px; font-size: 8pt; color: #666; text-align: center; }");
-        html.append("</style>");
-        html.append("</head><body>");
-
-        // Header
-        html.append("<div class=\"header\">");
-        html.append("<h1>Service Charge Statement</h1>");
-        html.append("<div class=\"header-row\">");
-        html.append("<div class=\"header-left\">");
-        html.append("<p><span class=\"info-label\">Block:</span> ").append(escapeHtml(statement.getBlockName())).append("</p>");
-        html.append("<p><span class=\"info-label\">Property:</span> ").append(escapeHtml(statement.getBlockPropertyName())).append("</p>");
-        if (statement.getServiceChargePayer() != null) {
-            html.append("<p><span class=\"info-label\">Service Charge Payer:</span> ").append(escapeHtml(statement.getServiceChargePayer())).append("</p>");
-        }
-        html.append("</div>");
-        html.append("<div class=\"header-right\">");
-        html.append("<p><span class=\"info-label\">Statement Date:</span> ").append(formatDate(statement.getStatementDate())).append("</p>");
-        html.append("<p><span class=\"info-label\">Period:</span> ").append(formatDate(statement.getPeriodStart())).append(" - ").append(formatDate(statement.getPeriodEnd())).append("</p>");
-        html.append("</div>");
-        html.append("</div>");
-        html.append("</div>");
-
-        // Summary box
-        html.append("<div class=\"summary-box\">");
-        html.append("<h2 style=\"margin-top: 0;\">Summary</h2>");
-        html.append("<div class=\"summary-row\"><span>Opening Balance</span><span>").append(formatCurrency(statement.getOpeningBalance())).append("</span></div>");
-        html.append("<div class=\"summary-row\"><span>Total Income</span><span style=\"color: #28a745;\">").append(formatCurrency(statement.getTotalIncome())).append("</span></div>");
-        html.append("<div class=\"summary-row\"><span>Total Expenses</span><span style=\"color: #dc3545;\">(").append(formatCurrency(statement.getTotalExpenses())).append(")</span></div>");
-        html.append("<div class=\"summary-row summary-total\"><span>Closing Balance</span><span>").append(formatCurrency(statement.getClosingBalance())).append("</span></div>");
-        html.append("</div>");
-
-        // Transaction table
-        html.append("<h2>Transaction Details</h2>");
-        html.append("<table>");
-        html.append("<thead><tr>");
-        html.append("<th>Date</th>");
-        html.append("<th>Description</th>");
-        html.append("<th>Category</th>");
-        html.append("<th class=\"amount\">In</th>");
-        html.append("<th class=\"amount\">Out</th>");
-        html.append("<th class=\"amount\">Balance</th>");
-        html.append("</tr></thead>");
-        html.append("<tbody>");
-
-        // Opening balance row
-        html.append("<tr class=\"opening-balance\">");
-        html.append("<td></td>");
-        html.append("<td>Opening Balance</td>");
-        html.append("<td></td>");
-        html.append("<td class=\"amount\"></td>");
-        html.append("<td class=\"amount\"></td>");
-        html.append("<td class=\"amount\">").append(formatCurrency(statement.getOpeningBalance())).append("</td>");
-        html.append("</tr>");
-
-        // Transaction rows
-        for (ServiceChargeTransactionLineDTO txn : statement.getTransactions()) {
-            html.append("<tr>");
-            html.append("<td>").append(formatDate(txn.getTransactionDate())).append("</td>");
-            html.append("<td>").append(escapeHtml(txn.getDescription())).append("</td>");
-            html.append("<td>").append(escapeHtml(txn.getCategory())).append("</td>");
-
-            if (txn.isIncome()) {
-                html.append("<td class=\"amount income\">").append(formatCurrency(txn.getAmountIn())).append("</td>");
-                html.append("<td class=\"amount\"></td>");
-            } else {
-                html.append("<td class=\"amount\"></td>");
-                html.append("<td class=\"amount expense\">").append(formatCurrency(txn.getAmountOut())).append("</td>");
-            }
-
-            html.append("<td class=\"amount\">").append(formatCurrency(txn.getRunningBalance())).append("</td>");
-            html.append("</tr>");
-        }
-
-        // Totals row
-        html.append("<tr class=\"totals\">");
-        html.append("<td></td>");
-        html.append("<td>Totals</td>");
-        html.append("<td></td>");
-        html.append("<td class=\"amount income\">").append(formatCurrency(statement.getTotalIncome())).append("</td>");
-        html.append("<td class=\"amount expense\">").append(formatCurrency(statement.getTotalExpenses())).append("</td>");
-        html.append("<td class=\"amount\"></td>");
-        html.append("</tr>");
-
-        // Closing balance row
-        html.append("<tr class=\"closing-balance\">");
-        html.append("<td></td>");
-        html.append("<td>Closing Balance</td>");
-        html.append("<td></td>");
-        html.append("<td class=\"amount\"></td>");
-        html.append("<td class=\"amount\"></td>");
-        html.append("<td class=\"amount\">").append(formatCurrency(statement.getClosingBalance())).append("</td>");
-        html.append("</tr>");
-
-        html.append("</tbody></table>");
-
-        // Footer
-        html.append("<div class=\"footer\">");
-        html.append("<p>").append(statement.getAgencyName()).append(" | Reg: ").append(statement.getAgencyRegistrationNumber()).append("</p>");
-        html.append("<p>").append(statement.getAgencyAddress()).append("</p>");
-        html.append("</div>");
-
-        html.append("</body></html>");
-
-        return html.toString();
-    }
-
-    private String formatDate(LocalDate date) {
-        return date != null ? date.format(DATE_FORMATTER) : "";
-    }
-
-    private String formatCurrency(BigDecimal amount) {
-        if (amount == null) {
-            return "£0.00";
-        }
-        return String.format("£%,.2f", amount);
-    }
-
-    private String escapeHtml(String text) {
-        if (text == null) {
-            return "";
-        }
-        return text.replace("&", "&amp;")
-                .replace("<", "&lt;")
-                .replace(">", "&gt;")
-                .replace("\"", "&quot;");
+        return pdfRenderingService.renderPdf("service-charge-statement", Map.of("statement", statement));
     }
 }
@@ -9,16 +9,20 @@ import com.google.api.services.drive.model.File;
 import com.google.api.services.drive.model.FileList;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
 
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.security.GeneralSecurityException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service for cleaning up old Google Sheets statements from service account's Drive
@@ -26,9 +30,19 @@ import java.util.List;
 @Service
 public class GoogleDriveCleanupService {
 
+    // Deletes run concurrently under the Drive cap; a large cleanup can still take a while
+    private static final Duration CLEANUP_DEADLINE = Duration.ofMinutes(30);
+    private static final long NOT_DELETED = -1L;
+
     @Value("${google.service-account-key:}")
     private String serviceAccountKey;
 
+    private final OutboundIo outboundIo;
+
+    public GoogleDriveCleanupService(OutboundIo outboundIo) {
+        this.outboundIo = outboundIo;
+    }
+
     /**
      * Get formatted service account key with proper newlines
      */
@@ -134,10 +148,8 @@ public class GoogleDriveCleanupService {
         LocalDateTime cutoffDate = LocalDateTime.now().minusDays(daysToKeep);
         System.out.println("🗑️ Deleting spreadsheets created before: " + cutoffDate);
 
-        int deletedCount = 0;
-        long freedSpace = 0;
-
-        for (DriveFileInfo file : allFiles) {
+        // Each delete handles its own failure, so one bad file does not cancel the rest
+        List<Long> deletedSizes = outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, allFiles, CLEANUP_DEADLINE, file -> {
             try {
                 // Parse created time
                 LocalDateTime createdTime = LocalDateTime.parse(
@@ -152,12 +164,21 @@ public class GoogleDriveCleanupService {
                         .setSupportsAllDrives(true)
                         .execute();
 
-                    deletedCount++;
-                    freedSpace += file.getSize();
+                    return file.getSize();
                 }
             } catch (Exception e) {
                 System.err.println("❌ Failed to delete " + file.getName() + ": " + e.getMessage());
             }
+            return NOT_DELETED;
+        });
+
+        int deletedCount = 0;
+        long freedSpace = 0;
+        for (long size : deletedSizes) {
+            if (size != NOT_DELETED) {
+                deletedCount++;
+                freedSpace += size;
+            }
         }
 
         System.out.println("✅ Deleted " + deletedCount + " old spreadsheets");
@@ -188,24 +209,25 @@ public class GoogleDriveCleanupService {
 
         System.out.println("⚠️ WARNING: Deleting ALL " + allFiles.size() + " spreadsheets!");
 
-        int deletedCount = 0;
-        for (DriveFileInfo file : allFiles) {
+        AtomicInteger deletedCount = new AtomicInteger();
+        outboundIo.fanOut(OutboundIntegration.GOOGLE_DRIVE, allFiles, CLEANUP_DEADLINE, file -> {
             try {
                 driveService.files().delete(file.getId())
                     .setSupportsAllDrives(true)
                     .execute();
-                deletedCount++;
 
-                if (deletedCount % 10 == 0) {
-                    System.out.println("🗑️ Deleted " + deletedCount + "/" + allFiles.size() + " files...");
+                int deleted = deletedCount.incrementAndGet();
+                if (deleted % 10 == 0) {
+                    System.out.println("🗑️ Deleted " + deleted + "/" + allFiles.size() + " files...");
                 }
             } catch (Exception e) {
                 System.err.println("❌ Failed to delete " + file.getName() + ": " + e.getMessage());
             }
-        }
+            return null;
+        });
 
-        System.out.println("✅ Deleted " + deletedCount + " spreadsheets");
-        return deletedCount;
+        System.out.println("✅ Deleted " + deletedCount.get() + " spreadsheets");
+        return deletedCount.get();
     }
 
     // Inner classes for data transfer
@@ -23,6 +23,9 @@ import site.easy.to.build.crm.repository.CustomerRepository;
 import site.easy.to.build.crm.repository.PaymentBatchRepository;
 import site.easy.to.build.crm.repository.TransactionBatchAllocationRepository;
 import site.easy.to.build.crm.repository.UnifiedAllocationRepository;
+import site.easy.to.build.crm.service.invoice.RentSchedule;
+import site.easy.to.build.crm.service.invoice.RentScheduleEngine;
+import site.easy.to.build.crm.service.metrics.PipelineMetrics;
 import site.easy.to.build.crm.entity.UnifiedAllocation;
 import site.easy.to.build.crm.entity.UnifiedTransaction;
 
@@ -52,6 +55,9 @@ public class ExcelStatementGeneratorService {
     @Autowired
     private StatementDataExtractService dataExtractService;
 
+    @Autowired
+    private RentScheduleEngine rentScheduleEngine;
+
     @Autowired
     private site.easy.to.build.crm.config.CommissionConfig commissionConfig;
 
@@ -70,6 +76,9 @@ public class ExcelStatementGeneratorService {
     @Autowired
     private site.easy.to.build.crm.repository.UnifiedTransactionRepository unifiedTransactionRepository;
 
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
     /**
      * Log current memory usage for debugging statement generation issues
      * Search keyword: [STMT-DEBUG] for easy log filtering
@@ -152,13 +161,13 @@ public class ExcelStatementGeneratorService {
         // Create sheets - all using shared styles
         log.info("📄 Creating LEASE_MASTER sheet...");
         long sheetStart = System.currentTimeMillis();
-        createLeaseMasterSheet(workbook, leaseMaster, styles);
+        recordSheet("lease_master", workbook, () -> createLeaseMasterSheet(workbook, leaseMaster, styles));
         log.info("✅ LEASE_MASTER sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("LEASE_MASTER_SHEET");
 
         log.info("📄 Creating TRANSACTIONS sheet...");
         sheetStart = System.currentTimeMillis();
-        createTransactionsSheet(workbook, transactions, styles);
+        recordSheet("transactions", workbook, transactions, rows -> createTransactionsSheet(workbook, rows, styles));
         log.info("✅ TRANSACTIONS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("TRANSACTIONS_SHEET");
 
@@ -170,31 +179,31 @@ public class ExcelStatementGeneratorService {
 
         log.info("📄 Creating RENT_DUE sheet...");
         sheetStart = System.currentTimeMillis();
-        createRentDueSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_due", workbook, () -> createRentDueSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_DUE sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("RENT_DUE_SHEET");
 
         log.info("📄 Creating RENT_RECEIVED sheet...");
         sheetStart = System.currentTimeMillis();
-        createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_received", workbook, () -> createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_RECEIVED sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("RENT_RECEIVED_SHEET");
 
         log.info("📄 Creating EXPENSES sheet...");
         sheetStart = System.currentTimeMillis();
-        createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("expenses", workbook, () -> createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ EXPENSES sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("EXPENSES_SHEET");
 
         log.info("📄 Creating OWNER_PAYMENTS sheet...");
         sheetStart = System.currentTimeMillis();
-        createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("owner_payments", workbook, () -> createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ OWNER_PAYMENTS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("OWNER_PAYMENTS_SHEET");
 
         log.info("📄 Creating MONTHLY_STATEMENT sheet...");
         sheetStart = System.currentTimeMillis();
-        createMonthlyStatementSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("monthly_statement", workbook, () -> createMonthlyStatementSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ MONTHLY_STATEMENT sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("MONTHLY_STATEMENT_SHEET");
 
@@ -245,12 +254,12 @@ public class ExcelStatementGeneratorService {
         // Create data sheets - all using shared styles
         log.info("📄 Creating LEASE_MASTER sheet for customer {}...", customerId);
         long sheetStart = System.currentTimeMillis();
-        createLeaseMasterSheet(workbook, leaseMaster, styles);
+        recordSheet("lease_master", workbook, () -> createLeaseMasterSheet(workbook, leaseMaster, styles));
         log.info("✅ LEASE_MASTER sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         log.info("📄 Creating TRANSACTIONS sheet...");
         sheetStart = System.currentTimeMillis();
-        createTransactionsSheet(workbook, transactions, styles);
+        recordSheet("transactions", workbook, transactions, rows -> createTransactionsSheet(workbook, rows, styles));
         log.info("✅ TRANSACTIONS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // MEMORY: Clear transactions list - no longer needed
@@ -261,29 +270,29 @@ public class ExcelStatementGeneratorService {
 
         log.info("📄 Creating RENT_DUE sheet...");
         sheetStart = System.currentTimeMillis();
-        createRentDueSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_due", workbook, () -> createRentDueSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_DUE sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         log.info("📄 Creating RENT_RECEIVED sheet...");
         sheetStart = System.currentTimeMillis();
-        createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_received", workbook, () -> createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_RECEIVED sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         log.info("📄 Creating EXPENSES sheet...");
         sheetStart = System.currentTimeMillis();
-        createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("expenses", workbook, () -> createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ EXPENSES sheet created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("CUSTOMER_DATA_SHEETS_COMPLETE");
 
         log.info("📄 Creating OWNER_PAYMENTS sheet...");
         sheetStart = System.currentTimeMillis();
-        createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("owner_payments", workbook, () -> createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ OWNER_PAYMENTS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create PROPERTY_ACCOUNT sheet for block property account balance tracking
         log.info("📄 Creating PROPERTY_ACCOUNT sheet...");
         sheetStart = System.currentTimeMillis();
-        createPropertyAccountSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("property_account", workbook, () -> createPropertyAccountSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ PROPERTY_ACCOUNT sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create separate monthly statement sheets for each month in the period (using shared styles)
@@ -297,7 +306,7 @@ public class ExcelStatementGeneratorService {
             sheetCount++;
             log.debug("📄 Creating monthly sheet {}/{}: {} to {}", sheetCount, periods.size(),
                 period.getStartDate(), period.getEndDate());
-            createMonthlyStatementSheetForPeriod(workbook, leaseMaster, period, styles);
+            recordSheet("monthly_statement", workbook, () -> createMonthlyStatementSheetForPeriod(workbook, leaseMaster, period, styles));
 
             // Log memory every 3 sheets to track growth
             if (sheetCount % 3 == 0) {
@@ -353,11 +362,11 @@ public class ExcelStatementGeneratorService {
         // Create sheets with custom periods - all using shared styles
         log.info("📄 Creating sheets with custom periods...");
         long sheetStart = System.currentTimeMillis();
-        createLeaseMasterSheet(workbook, leaseMaster, styles);
+        recordSheet("lease_master", workbook, () -> createLeaseMasterSheet(workbook, leaseMaster, styles));
         log.info("✅ LEASE_MASTER created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createTransactionsSheet(workbook, transactions, styles);
+        recordSheet("transactions", workbook, transactions, rows -> createTransactionsSheet(workbook, rows, styles));
         log.info("✅ TRANSACTIONS created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // MEMORY: Clear transactions list - no longer needed
@@ -367,23 +376,23 @@ public class ExcelStatementGeneratorService {
         logMemoryUsage("CUSTOM_TRANSACTIONS_CLEARED");
 
         sheetStart = System.currentTimeMillis();
-        createRentDueSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles);
+        recordSheet("rent_due", workbook, () -> createRentDueSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles));
         log.info("✅ RENT_DUE (custom) created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_received", workbook, () -> createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_RECEIVED created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("expenses", workbook, () -> createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ EXPENSES created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("owner_payments", workbook, () -> createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ OWNER_PAYMENTS created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createMonthlyStatementSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles);
+        recordSheet("monthly_statement", workbook, () -> createMonthlyStatementSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles));
         log.info("✅ MONTHLY_STATEMENT (custom) created in {}ms", System.currentTimeMillis() - sheetStart);
 
         long totalTime = System.currentTimeMillis() - startTime;
@@ -430,7 +439,8 @@ public class ExcelStatementGeneratorService {
 
         // MEMORY OPTIMIZATION: Use SXSSF (streaming) to write rows to disk instead of memory
         // Keep only 20 rows in memory, flush older rows to temp file
-        SXSSFWorkbook workbook = new SXSSFWorkbook(20);
+        // Formula results are cached in the file as rows are flushed (see FormulaStampingWorkbook)
+        SXSSFWorkbook workbook = new FormulaStampingWorkbook(20);
         workbook.setCompressTempFiles(true); // Compress temp files to save disk space
 
         // MEMORY OPTIMIZATION: Create styles ONCE and reuse across all sheets
@@ -456,11 +466,11 @@ public class ExcelStatementGeneratorService {
         // MEMORY OPTIMIZATION: All sheets now use shared WorkbookStyles (was ~48 styles, now 6)
         log.info("📄 Creating data sheets...");
         long sheetStart = System.currentTimeMillis();
-        createLeaseMasterSheet(workbook, leaseMaster, styles);
+        recordSheet("lease_master", workbook, () -> createLeaseMasterSheet(workbook, leaseMaster, styles));
         log.info("✅ LEASE_MASTER created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createTransactionsSheet(workbook, transactions, styles);
+        recordSheet("transactions", workbook, transactions, rows -> createTransactionsSheet(workbook, rows, styles));
         log.info("✅ TRANSACTIONS created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // MEMORY: Clear transactions list - no longer needed, data is in Excel sheet
@@ -469,28 +479,28 @@ public class ExcelStatementGeneratorService {
         requestGC("DATA_SHEETS");
 
         sheetStart = System.currentTimeMillis();
-        createRentDueSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles);
+        recordSheet("rent_due", workbook, () -> createRentDueSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, periodStartDay, styles));
         log.info("✅ RENT_DUE (custom) created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("rent_received", workbook, () -> createRentReceivedSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ RENT_RECEIVED created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // GC hint after rent sheets
         requestGC("RENT_SHEETS");
 
         sheetStart = System.currentTimeMillis();
-        createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("expenses", workbook, () -> createExpensesSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ EXPENSES created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("owner_payments", workbook, () -> createOwnerPaymentsSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ OWNER_PAYMENTS created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create PROPERTY_ACCOUNT sheet for block property account balance tracking
         log.info("📄 Creating PROPERTY_ACCOUNT sheet...");
         sheetStart = System.currentTimeMillis();
-        createPropertyAccountSheet(workbook, leaseMaster, startDate, endDate, styles);
+        recordSheet("property_account", workbook, () -> createPropertyAccountSheet(workbook, leaseMaster, startDate, endDate, styles));
         log.info("✅ PROPERTY_ACCOUNT created in {}ms", System.currentTimeMillis() - sheetStart);
         logMemoryUsage("CUSTOMER_CUSTOM_DATA_SHEETS");
 
@@ -511,7 +521,7 @@ public class ExcelStatementGeneratorService {
                 period.periodEnd.format(DateTimeFormatter.ofPattern("MMM dd, yyyy"))
             );
             log.debug("📄 Creating statement sheet {}/{}: {}", sheetCount, statementPeriods.size(), sheetName);
-            createMonthlyStatementSheetForCustomPeriod(workbook, leaseMaster, period, sheetName, styles, customerId);
+            recordSheet("monthly_statement", workbook, () -> createMonthlyStatementSheetForCustomPeriod(workbook, leaseMaster, period, sheetName, styles, customerId));
 
             // Log memory and request GC every 3 sheets
             if (sheetCount % 3 == 0) {
@@ -525,12 +535,12 @@ public class ExcelStatementGeneratorService {
         // Create summary sheet (totals across all statement periods) - using shared styles
         log.info("📄 Creating summary sheet...");
         sheetStart = System.currentTimeMillis();
-        createSummarySheetForCustomPeriods(workbook, leaseMaster, statementPeriods, startDate, endDate, styles);
+        recordSheet("summary", workbook, () -> createSummarySheetForCustomPeriods(workbook, leaseMaster, statementPeriods, startDate, endDate, styles));
         log.info("✅ SUMMARY sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create SUMMARY_CHECK sheet (calculates from monthly period tabs for verification)
         sheetStart = System.currentTimeMillis();
-        createSummaryCheckSheet(workbook, leaseMaster, statementPeriods, styles);
+        recordSheet("summary_check", workbook, () -> createSummaryCheckSheet(workbook, leaseMaster, statementPeriods, styles));
         log.info("✅ SUMMARY_CHECK sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create allocation tracking sheets for this owner - using shared styles
@@ -539,20 +549,20 @@ public class ExcelStatementGeneratorService {
         log.info("📄 Creating allocation sheets for owner {} (resolved from {})...", resolvedOwnerId, customerId);
 
         sheetStart = System.currentTimeMillis();
-        createIncomeAllocationsSheet(workbook, resolvedOwnerId, styles);
+        recordSheet("income_allocations", workbook, () -> createIncomeAllocationsSheet(workbook, resolvedOwnerId, styles));
         log.info("✅ INCOME_ALLOCATIONS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createExpenseAllocationsSheet(workbook, resolvedOwnerId, styles);
+        recordSheet("expense_allocations", workbook, () -> createExpenseAllocationsSheet(workbook, resolvedOwnerId, styles));
         log.info("✅ EXPENSE_ALLOCATIONS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         sheetStart = System.currentTimeMillis();
-        createOwnerPaymentsSummarySheet(workbook, resolvedOwnerId, styles);
+        recordSheet("owner_payments_summary", workbook, () -> createOwnerPaymentsSummarySheet(workbook, resolvedOwnerId, styles));
         log.info("✅ OWNER_PAYMENTS_SUMMARY sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         // Create PAYMENT_ALLOCATIONS sheet with flat data for all payment allocations
         sheetStart = System.currentTimeMillis();
-        createPaymentAllocationsSheet(workbook, resolvedOwnerId, startDate, endDate, styles);
+        recordSheet("payment_allocations", workbook, () -> createPaymentAllocationsSheet(workbook, resolvedOwnerId, startDate, endDate, styles));
         log.info("✅ PAYMENT_ALLOCATIONS sheet created in {}ms", System.currentTimeMillis() - sheetStart);
 
         long totalTime = System.currentTimeMillis() - startTime;
@@ -616,142 +626,6 @@ public class ExcelStatementGeneratorService {
         return earliest;
     }
 
-    /**
-     * Find the cycle start date that falls within a given period.
-     * Used for proration calculations when lease ends mid-cycle.
-     *
-     * @param leaseStart The lease start date (first cycle)
-     * @param periodStart Start of the period to search
-     * @param periodEnd End of the period to search
-     * @param cycleMonths Months per billing cycle
-     * @return The cycle start date within the period, or null if none found
-     */
-    private LocalDate findCycleStartInPeriod(LocalDate leaseStart, LocalDate periodStart,
-                                              LocalDate periodEnd, int cycleMonths) {
-        if (leaseStart == null || periodStart == null || periodEnd == null) {
-            return null;
-        }
-
-        // Start from lease start and find the cycle that falls in the period
-        LocalDate cycleStart = leaseStart;
-
-        // Skip cycles before the period
-        while (cycleStart.isBefore(periodStart)) {
-            cycleStart = cycleStart.plusMonths(cycleMonths);
-        }
-
-        // Check if this cycle is within the period
-        if (!cycleStart.isAfter(periodEnd)) {
-            return cycleStart;
-        }
-
-        return null;
-    }
-
-    /**
-     * Calculate the total rent due for a lease during a specific period.
-     * Uses the RENT IN ADVANCE model - full cycle rent is due when a cycle STARTS.
-     *
-     * For monthly leases: rent is due for each month the lease is active.
-     * For multi-month leases: rent is due when a cycle anniversary falls in the period.
-     *
-     * Handles proration when lease ends mid-cycle.
-     *
-     * @param lease The lease master DTO with lease details
-     * @param periodStart Start of the statement period
-     * @param periodEnd End of the statement period
-     * @return Total rent due for this lease in the period
-     */
-    private java.math.BigDecimal calculateRentDueForPeriod(LeaseMasterDTO lease, LocalDate periodStart, LocalDate periodEnd) {
-        LocalDate leaseStart = lease.getStartDate();
-        LocalDate leaseEnd = lease.getEndDate();
-        java.math.BigDecimal monthlyRent = lease.getMonthlyRent();
-        int cycleMonths = lease.getFrequencyMonths() != null ? lease.getFrequencyMonths() : 1;
-
-        // Handle null or invalid inputs
-        if (leaseStart == null || monthlyRent == null || periodStart == null || periodEnd == null) {
-            return java.math.BigDecimal.ZERO;
-        }
-
-        // If lease hasn't started yet, no rent due
-        if (leaseStart.isAfter(periodEnd)) {
-            return java.math.BigDecimal.ZERO;
-        }
-
-        // If lease ended before period started, no rent due
-        if (leaseEnd != null && leaseEnd.isBefore(periodStart)) {
-            return java.math.BigDecimal.ZERO;
-        }
-
-        java.math.BigDecimal totalRentDue = java.math.BigDecimal.ZERO;
-
-        if (cycleMonths == 1) {
-            // Monthly billing - iterate through each month in the period
-            YearMonth currentMonth = YearMonth.from(periodStart);
-            YearMonth endMonth = YearMonth.from(periodEnd);
-
-            while (!currentMonth.isAfter(endMonth)) {
-                LocalDate monthStart = currentMonth.atDay(1);
-                LocalDate monthEnd = currentMonth.atEndOfMonth();
-
-                // Check if lease is active in this month
-                boolean leaseActiveInMonth = !leaseStart.isAfter(monthEnd) &&
-                    (leaseEnd == null || !leaseEnd.isBefore(monthStart));
-
-                if (leaseActiveInMonth) {
-                    // Calculate effective dates for this month
-                    LocalDate effectiveStart = leaseStart.isAfter(monthStart) ? leaseStart : monthStart;
-                    LocalDate effectiveEnd = (leaseEnd != null && leaseEnd.isBefore(monthEnd)) ? leaseEnd : monthEnd;
-
-                    // Check if full month or partial
-                    if (effectiveStart.equals(monthStart) && effectiveEnd.equals(monthEnd)) {
-                        // Full month
-                        totalRentDue = totalRentDue.add(monthlyRent);
-                    } else {
-                        // Partial month - prorate
-                        int daysInMonth = monthEnd.getDayOfMonth();
-                        int leaseDays = (int) java.time.temporal.ChronoUnit.DAYS.between(effectiveStart, effectiveEnd) + 1;
-                        double proratedRent = monthlyRent.doubleValue() * leaseDays / daysInMonth;
-                        totalRentDue = totalRentDue.add(java.math.BigDecimal.valueOf(Math.round(proratedRent * 100.0) / 100.0));
-                    }
-                }
-
-                currentMonth = currentMonth.plusMonths(1);
-            }
-        } else {
-            // Multi-month billing - rent is due when a cycle starts in the period
-            // Pass leaseEnd to prevent counting cycles that start after the lease has ended
-            long cyclesInPeriod = dataExtractService.countCycleStartDatesInPeriod(
-                leaseStart, periodStart, periodEnd, cycleMonths, leaseEnd);
-
-            if (cyclesInPeriod > 0) {
-                // Find the cycle start date to check for proration
-                LocalDate cycleStartDate = findCycleStartInPeriod(leaseStart, periodStart, periodEnd, cycleMonths);
-                if (cycleStartDate != null) {
-                    LocalDate cycleEndDate = cycleStartDate.plusMonths(cycleMonths).minusDays(1);
-
-                    // Check if lease ends mid-cycle
-                    if (leaseEnd != null && leaseEnd.isBefore(cycleEndDate)) {
-                        // Lease ends mid-cycle - prorate
-                        double monthlyRate = monthlyRent.doubleValue() / cycleMonths;
-                        long fullMonths = java.time.temporal.ChronoUnit.MONTHS.between(cycleStartDate, leaseEnd.plusDays(1));
-                        LocalDate lastFullMonthEnd = cycleStartDate.plusMonths(fullMonths);
-                        long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(lastFullMonthEnd, leaseEnd) + 1;
-                        int daysInFinalMonth = leaseEnd.lengthOfMonth();
-
-                        double proratedRent = (fullMonths * monthlyRate) + ((double) remainingDays / daysInFinalMonth * monthlyRate);
-                        totalRentDue = java.math.BigDecimal.valueOf(Math.round(proratedRent * 100.0) / 100.0);
-                    } else {
-                        // Full cycle rent
-                        totalRentDue = monthlyRent.multiply(java.math.BigDecimal.valueOf(cyclesInPeriod));
-                    }
-                }
-            }
-        }
-
-        return totalRentDue;
-    }
-
     /**
      * Generate individual rent due periods for a lease within a statement period.
      * Returns one RentDuePeriod per billing cycle that falls within the period.
@@ -767,138 +641,17 @@ public class ExcelStatementGeneratorService {
     private List<RentDuePeriod> generateRentDuePeriodsForLease(LeaseMasterDTO lease, LocalDate periodStart, LocalDate periodEnd) {
         List<RentDuePeriod> periods = new ArrayList<>();
 
-        LocalDate leaseStart = lease.getStartDate();
-        LocalDate leaseEnd = lease.getEndDate();
-        java.math.BigDecimal monthlyRent = lease.getMonthlyRent();
-        int cycleMonths = lease.getFrequencyMonths() != null ? lease.getFrequencyMonths() : 1;
-
-        // Get payment day - use lease start day if not explicitly set
-        int paymentDay = lease.getPaymentDay() != null ? lease.getPaymentDay() :
-                         (leaseStart != null ? leaseStart.getDayOfMonth() : 1);
-
-        // Handle null or invalid inputs
-        if (leaseStart == null || monthlyRent == null || periodStart == null || periodEnd == null) {
-            return periods;
-        }
-
-        // If lease hasn't started yet, no periods
-        if (leaseStart.isAfter(periodEnd)) {
+        if (periodStart == null || periodEnd == null) {
             return periods;
         }
 
-        // If lease ended before period started, no periods
-        if (leaseEnd != null && leaseEnd.isBefore(periodStart)) {
-            return periods;
-        }
-
-        if (cycleMonths == 1) {
-            // Monthly billing using payment day cycle (e.g., 22nd to 21st)
-            // IMPORTANT: Only include cycles where the CYCLE START DATE falls within the statement period
-            // Rent for cycles that started before the period is captured in opening_balance
-
-            // Start from lease start date
-            LocalDate cycleStart = leaseStart;
-
-            // If lease started before statement period, find the first cycle that STARTS within/after period start
-            if (leaseStart.isBefore(periodStart)) {
-                // Move to the payment day on or after the statement start
-                YearMonth targetMonth = YearMonth.from(periodStart);
-                int maxDayInMonth = targetMonth.lengthOfMonth();
-                int effectivePaymentDay = Math.min(paymentDay, maxDayInMonth);
-                cycleStart = targetMonth.atDay(effectivePaymentDay);
-
-                // If this cycle start is before periodStart, move to next month
-                if (cycleStart.isBefore(periodStart)) {
-                    targetMonth = targetMonth.plusMonths(1);
-                    maxDayInMonth = targetMonth.lengthOfMonth();
-                    effectivePaymentDay = Math.min(paymentDay, maxDayInMonth);
-                    cycleStart = targetMonth.atDay(effectivePaymentDay);
-                }
-            }
-
-            // Generate cycles until we pass the statement end date
-            while (!cycleStart.isAfter(periodEnd)) {
-                // Calculate cycle end (day before next cycle start)
-                YearMonth nextMonth = YearMonth.from(cycleStart).plusMonths(1);
-                int maxDayInNextMonth = nextMonth.lengthOfMonth();
-                int effectivePaymentDay = Math.min(paymentDay, maxDayInNextMonth);
-                LocalDate nextCycleStart = nextMonth.atDay(effectivePaymentDay);
-                LocalDate cycleEnd = nextCycleStart.minusDays(1);
-
-                // Check if cycle start is within statement period AND lease is active
-                boolean cycleStartsInPeriod = !cycleStart.isBefore(periodStart) && !cycleStart.isAfter(periodEnd);
-                boolean cycleOverlapsLease = !cycleEnd.isBefore(leaseStart) &&
-                    (leaseEnd == null || !cycleStart.isAfter(leaseEnd));
-
-                if (cycleStartsInPeriod && cycleOverlapsLease) {
-                    // For display purposes, show effective dates constrained by lease dates
-                    LocalDate displayStart = cycleStart.isBefore(leaseStart) ? leaseStart : cycleStart;
-                    LocalDate displayEnd = (leaseEnd != null && leaseEnd.isBefore(cycleEnd)) ? leaseEnd : cycleEnd;
-
-                    // RENT IN ADVANCE MODEL:
-                    // - Full month rent due at START of tenancy (no proration for moving in mid-cycle)
-                    // - Only prorate if lease ENDS mid-cycle (tenant leaving early)
-                    boolean leaseEndsMidCycle = leaseEnd != null && leaseEnd.isBefore(cycleEnd) && !leaseEnd.isBefore(cycleStart);
-                    java.math.BigDecimal rentForPeriod;
-
-                    if (leaseEndsMidCycle) {
-                        // Prorate only at lease END - tenant pays for days until they leave
-                        int totalCycleDays = (int) java.time.temporal.ChronoUnit.DAYS.between(cycleStart, cycleEnd) + 1;
-                        int leaseDays = (int) java.time.temporal.ChronoUnit.DAYS.between(cycleStart, leaseEnd) + 1;
-                        double proratedRent = monthlyRent.doubleValue() * leaseDays / totalCycleDays;
-                        rentForPeriod = java.math.BigDecimal.valueOf(Math.round(proratedRent * 100.0) / 100.0);
-                    } else {
-                        // Full month rent - either ongoing lease or lease started mid-cycle (full rent due)
-                        rentForPeriod = monthlyRent;
-                    }
-
-                    periods.add(new RentDuePeriod(displayStart, displayEnd, rentForPeriod, !leaseEndsMidCycle));
-                }
-
-                // Move to next cycle
-                cycleStart = nextCycleStart;
-            }
-        } else {
-            // Multi-month billing - rent is due when a cycle starts in the period
-            // Find all cycle start dates that fall within the period
-            LocalDate cycleStart = leaseStart;
-
-            // Skip cycles before the period
-            while (cycleStart.isBefore(periodStart)) {
-                cycleStart = cycleStart.plusMonths(cycleMonths);
-            }
-
-            // Add each cycle that starts within the period
-            while (!cycleStart.isAfter(periodEnd)) {
-                LocalDate cycleEnd = cycleStart.plusMonths(cycleMonths).minusDays(1);
-                LocalDate displayEnd = cycleEnd;
-
-                // RENT IN ADVANCE MODEL:
-                // - Full cycle rent due at START (no proration for starting mid-cycle)
-                // - Only prorate if lease ENDS mid-cycle
-                java.math.BigDecimal rentForPeriod;
-                boolean isFullPeriod = true;
-
-                if (leaseEnd != null && leaseEnd.isBefore(cycleEnd) && !leaseEnd.isBefore(cycleStart)) {
-                    // Lease ends mid-cycle - prorate only at END
-                    isFullPeriod = false;
-                    double monthlyRate = monthlyRent.doubleValue() / cycleMonths;
-                    long fullMonths = java.time.temporal.ChronoUnit.MONTHS.between(cycleStart, leaseEnd.plusDays(1));
-                    LocalDate lastFullMonthEnd = cycleStart.plusMonths(fullMonths);
-                    long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(lastFullMonthEnd, leaseEnd) + 1;
-                    int daysInFinalMonth = leaseEnd.lengthOfMonth();
-
-                    double proratedRent = (fullMonths * monthlyRate) + ((double) remainingDays / daysInFinalMonth * monthlyRate);
-                    rentForPeriod = java.math.BigDecimal.valueOf(Math.round(proratedRent * 100.0) / 100.0);
-                    displayEnd = leaseEnd; // Adjust end date for display
-                } else {
-                    // Full cycle rent - either ongoing lease or lease started mid-cycle
-                    rentForPeriod = monthlyRent;
-                }
-
-                periods.add(new RentDuePeriod(cycleStart, displayEnd, rentForPeriod, isFullPeriod));
-                cycleStart = cycleStart.plusMonths(cycleMonths);
-            }
+        // RENT IN ADVANCE MODEL (see RentSchedule):
+        // - Full cycle rent due at START of tenancy (no proration for moving in mid-cycle)
+        // - Only prorate if lease ENDS mid-cycle (tenant leaving early)
+        // Rent for cycles that started before the period is captured in opening_balance
+        RentSchedule schedule = rentScheduleEngine.scheduleFor(lease, periodEnd);
+        for (RentSchedule.Charge charge : schedule.chargesBetween(periodStart, periodEnd)) {
+            periods.add(new RentDuePeriod(charge.getDueDate(), charge.getPeriodEnd(), charge.getAmount(), charge.isFullCycle()));
         }
 
         return periods;
@@ -1123,6 +876,42 @@ public class ExcelStatementGeneratorService {
         return periods;
     }
 
+    /**
+     * Build sheet(s) as a timed statement_sheet phase, its rows being the rows of the sheets it added.
+     */
+    private void recordSheet(String sheet, Workbook workbook, Runnable builder) {
+        int sheetsBefore = workbook.getNumberOfSheets();
+        pipelineMetrics.record(PipelineMetrics.STATEMENT_SHEET, sheet, () -> {
+            builder.run();
+            return workbook;
+        }, built -> {
+            long rows = 0;
+            for (int i = sheetsBefore; i < built.getNumberOfSheets(); i++) {
+                rows += built.getSheetAt(i).getLastRowNum() + 1;
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Same, for inputs the caller releases afterwards (not effectively final, so not capturable).
+     */
+    private <T> void recordSheet(String sheet, Workbook workbook, T input, java.util.function.Consumer<T> builder) {
+        recordSheet(sheet, workbook, () -> builder.accept(input));
+    }
+
+    /**
+     * Write the database-free data sheets (LEASE_MASTER, TRANSACTIONS, RENT_DUE) for the given rows.
+     * Lets the benchmark module time sheet building on XSSF and SXSSF without a database.
+     */
+    void writeDataSheets(Workbook workbook, List<LeaseMasterDTO> leaseMaster, List<TransactionDTO> transactions,
+                         LocalDate startDate, LocalDate endDate) {
+        WorkbookStyles styles = new WorkbookStyles(workbook);
+        recordSheet("lease_master", workbook, () -> createLeaseMasterSheet(workbook, leaseMaster, styles));
+        recordSheet("transactions", workbook, () -> createTransactionsSheet(workbook, transactions, styles));
+        recordSheet("rent_due", workbook, () -> createRentDueSheetWithCustomPeriods(workbook, leaseMaster, startDate, endDate, 1, styles));
+    }
+
     /**
      * Create LEASE_MASTER sheet with raw lease data
      * NO CALCULATIONS - Just data from database
@@ -1374,41 +1163,11 @@ public class ExcelStatementGeneratorService {
                         );
                         rentDueCell.setCellFormula(proratedFormula);
                     } else {
-                        // Multi-month billing: check if a cycle start date falls in this month
-                        // Pass leaseEnd to prevent counting cycles that start after the lease has ended
-                        long cyclesInMonth = dataExtractService.countCycleStartDatesInPeriod(
-                            leaseStart, monthStart, monthEnd, cycleMonths, leaseEnd);
-
-                        if (cyclesInMonth > 0) {
-                            // Cycle starts in this month - calculate rent with proration if lease ends mid-cycle
-                            LocalDate cycleStartDate = findCycleStartInPeriod(leaseStart, monthStart, monthEnd, cycleMonths);
-                            LocalDate cycleEndDate = cycleStartDate.plusMonths(cycleMonths).minusDays(1);
-                            LocalDate leaseEndDate = lease.getEndDate();
-
-                            double rentDue;
-                            if (leaseEndDate != null && leaseEndDate.isBefore(cycleEndDate)) {
-                                // Lease ends mid-cycle - prorate
-                                // Calculate: (full months × monthly rate) + (remaining days / days in final month × monthly rate)
-                                double monthlyRate = lease.getMonthlyRent().doubleValue() / cycleMonths;
-                                long fullMonths = java.time.temporal.ChronoUnit.MONTHS.between(cycleStartDate, leaseEndDate.plusDays(1));
-                                LocalDate lastFullMonthEnd = cycleStartDate.plusMonths(fullMonths);
-                                long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(lastFullMonthEnd, leaseEndDate) + 1;
-                                int daysInFinalMonth = leaseEndDate.lengthOfMonth();
-
-                                rentDue = (fullMonths * monthlyRate) + ((double) remainingDays / daysInFinalMonth * monthlyRate);
-                                rentDue = Math.round(rentDue * 100.0) / 100.0; // Round to 2 decimal places
-
-                                log.debug("Prorated rent for lease {}: {} months + {} days = £{}",
-                                    lease.getLeaseReference(), fullMonths, remainingDays, rentDue);
-                            } else {
-                                // Full cycle - no proration needed
-                                rentDue = lease.getMonthlyRent().doubleValue() * cyclesInMonth;
-                            }
-                            rentDueCell.setCellValue(rentDue);
-                        } else {
-                            // No cycle start in this month - £0 due
-                            rentDueCell.setCellValue(0);
-                        }
+                        // Multi-month billing: rent falls due in this month only if a cycle starts in it
+                        // (prorated by the schedule when the lease ends mid-cycle, £0 otherwise)
+                        java.math.BigDecimal rentDue = rentScheduleEngine.scheduleFor(lease, monthEnd)
+                            .rentDueBetween(monthStart, monthEnd);
+                        rentDueCell.setCellValue(rentDue.doubleValue());
                     }
                 } else {
                     // Lease not active - rent due is £0
@@ -2248,7 +2007,7 @@ public class ExcelStatementGeneratorService {
                         // Pass frequencyMonths and leaseEndDate for proration if lease ends mid-cycle
                         java.math.BigDecimal openingBalance = dataExtractService.calculateTenantOpeningBalance(
                             lease.getLeaseId(), leaseStart, monthStart, lease.getMonthlyRent(),
-                            lease.getFrequencyMonths(), lease.getEndDate());
+                            lease.getFrequencyMonths(), lease.getEndDate(), lease.getPaymentDay());
                         openingBalanceCell.setCellValue(openingBalance != null ? openingBalance.doubleValue() : 0);
                     } else {
                         // For subsequent months, opening balance is 0 (cumulative handles the carry-forward)
@@ -2494,7 +2253,7 @@ public class ExcelStatementGeneratorService {
                 Cell openingBalanceCell = row.createCell(col++);
                 java.math.BigDecimal openingBalance = dataExtractService.calculateTenantOpeningBalance(
                     lease.getLeaseId(), leaseStart, monthStart, lease.getMonthlyRent(),
-                    lease.getFrequencyMonths(), lease.getEndDate());
+                    lease.getFrequencyMonths(), lease.getEndDate(), lease.getPaymentDay());
                 openingBalanceCell.setCellValue(openingBalance != null ? openingBalance.doubleValue() : 0);
                 openingBalanceCell.setCellStyle(currencyStyle);
 
@@ -2656,9 +2415,8 @@ public class ExcelStatementGeneratorService {
                 } else {
                     // Multi-month billing - check if a cycle start date falls within this period
                     // Pass leaseEnd to prevent counting cycles that start after the lease has ended
-                    long cyclesInPeriod = dataExtractService.countCycleStartDatesInPeriod(
-                        leaseStart, period.periodStart, period.periodEnd, frequencyMonths, leaseEnd);
-                    isCycleStart = cyclesInPeriod > 0;
+                    isCycleStart = rentScheduleEngine.scheduleFor(lease, period.periodEnd)
+                        .countChargesBetween(period.periodStart, period.periodEnd) > 0;
                 }
 
                 // A: lease_id
@@ -3132,7 +2890,7 @@ public class ExcelStatementGeneratorService {
             // Calculate opening balance (arrears brought forward from before this period)
             java.math.BigDecimal openingBalance = dataExtractService.calculateTenantOpeningBalance(
                 lease.getLeaseId(), leaseStart, period.periodStart, lease.getMonthlyRent(),
-                lease.getFrequencyMonths(), lease.getEndDate());
+                lease.getFrequencyMonths(), lease.getEndDate(), lease.getPaymentDay());
             if (openingBalance == null) {
                 openingBalance = java.math.BigDecimal.ZERO;
             }
@@ -5011,7 +4769,7 @@ public class ExcelStatementGeneratorService {
                 Cell openingBalanceCell = row.createCell(col++);
                 java.math.BigDecimal openingBalance = dataExtractService.calculateTenantOpeningBalance(
                     lease.getLeaseId(), lease.getStartDate(), startDate, lease.getMonthlyRent(),
-                    lease.getFrequencyMonths(), lease.getEndDate());
+                    lease.getFrequencyMonths(), lease.getEndDate(), lease.getPaymentDay());
                 openingBalanceCell.setCellValue(openingBalance != null ? openingBalance.doubleValue() : 0);
                 openingBalanceCell.setCellStyle(currencyStyle);
 
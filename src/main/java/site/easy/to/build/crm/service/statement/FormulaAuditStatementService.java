@@ -1,10 +1,10 @@
 package site.easy.to.build.crm.service.statement;
 
 import org.apache.poi.ss.usermodel.*;
-import org.apache.poi.xssf.streaming.SXSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import site.easy.to.build.crm.config.CommissionConfig;
 import site.easy.to.build.crm.dto.statement.*;
@@ -13,6 +13,8 @@ import site.easy.to.build.crm.entity.CustomerType;
 import site.easy.to.build.crm.repository.CustomerRepository;
 import site.easy.to.build.crm.repository.PaymentBatchRepository;
 import site.easy.to.build.crm.repository.UnifiedAllocationRepository;
+import site.easy.to.build.crm.service.invoice.RentSchedule;
+import site.easy.to.build.crm.service.invoice.RentScheduleEngine;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -65,6 +67,9 @@ public class FormulaAuditStatementService {
     @Autowired
     private StatementDataExtractService dataExtractService;
 
+    @Autowired
+    private RentScheduleEngine rentScheduleEngine;
+
     @Autowired
     private CommissionConfig commissionConfig;
 
@@ -77,6 +82,10 @@ public class FormulaAuditStatementService {
     @Autowired
     private UnifiedAllocationRepository unifiedAllocationRepository;
 
+    // Compare formula results with Java-side totals while the workbook is written (logs mismatches)
+    @Value("${statements.formula.verify:false}")
+    private boolean verifyFormulas;
+
     // Period sheet headers — slim v2 layout
     private static final String[] PERIOD_HEADERS = {
         "lease_id", "lease_reference", "property_name", "customer_name", "tenant_name",
@@ -129,8 +138,10 @@ public class FormulaAuditStatementService {
         log.info("Formula Audit v2: Customer {} from {} to {} (day={}, freq={})",
                 customerId, startDate, endDate, periodStartDay, statementFrequency);
 
-        SXSSFWorkbook workbook = new SXSSFWorkbook(100);
+        // Formula results are cached in the file as rows are flushed (see FormulaStampingWorkbook)
+        FormulaStampingWorkbook workbook = new FormulaStampingWorkbook(100);
         workbook.setCompressTempFiles(true);
+        workbook.setVerify(verifyFormulas);
         Styles styles = new Styles(workbook);
 
         // 1. Extract data
@@ -148,6 +159,8 @@ public class FormulaAuditStatementService {
         List<TransactionDTO> expenseTransactions = dataExtractService.extractAllExpensesForCustomer(customerId);
         log.info("Formula Audit v2: {} expense transactions", expenseTransactions.size());
 
+        JavaTotals javaTotals = workbook.isVerify() ? new JavaTotals(rentTransactions, expenseTransactions) : null;
+
         // 2. Create LEASE_MASTER sheet
         createLeaseMasterSheet(workbook, allLeases, styles);
 
@@ -205,7 +218,7 @@ public class FormulaAuditStatementService {
             int periodIdx = i;
             createPeriodSheet(workbook, sheetName, leases, period, prevSheetName,
                     startDate, styles, customerId, rentDataRows, expenseDataRows,
-                    blockPropertyLeases, serviceChargeCache, periodIdx);
+                    blockPropertyLeases, serviceChargeCache, periodIdx, javaTotals);
         }
 
         // 7. Create TOTALS sheet (with allocation reconciliation and service charge summary)
@@ -529,14 +542,14 @@ public class FormulaAuditStatementService {
      *   Row N+2: PERIOD TOTAL (SUM formulas)
      *   Then: PAYMENT RECONCILIATION section
      */
-    private void createPeriodSheet(Workbook workbook, String sheetName,
+    private void createPeriodSheet(FormulaStampingWorkbook workbook, String sheetName,
                                    List<LeaseMasterDTO> leases, Period period,
                                    String prevSheetName, LocalDate overallStartDate,
                                    Styles styles, Long customerId,
                                    int rentDataRows, int expenseDataRows,
                                    List<LeaseMasterDTO> blockPropertyLeases,
                                    Map<String, ServiceChargeDataDTO> serviceChargeCache,
-                                   int periodIdx) {
+                                   int periodIdx, JavaTotals javaTotals) {
 
         Sheet sheet = workbook.createSheet(sheetName);
 
@@ -617,13 +630,16 @@ public class FormulaAuditStatementService {
 
             // I: opening_balance — chained from previous sheet or calculated for first period
             Cell obCell = row.createCell(COL_OPENING_BAL);
+            double javaOpeningBalance = 0;
             if (prevSheetName != null) {
                 obCell.setCellFormula(String.format("'%s'!M%d", prevSheetName, excelRow));
             } else {
                 BigDecimal openingBal = dataExtractService.calculateTenantOpeningBalance(
                         lease.getLeaseId(), lease.getStartDate(), overallStartDate,
-                        lease.getMonthlyRent(), lease.getFrequencyMonths(), lease.getEndDate());
-                obCell.setCellValue(openingBal != null ? openingBal.doubleValue() : 0);
+                        lease.getMonthlyRent(), lease.getFrequencyMonths(), lease.getEndDate(),
+                        lease.getPaymentDay());
+                javaOpeningBalance = openingBal != null ? openingBal.doubleValue() : 0;
+                obCell.setCellValue(javaOpeningBalance);
             }
             obCell.setCellStyle(styles.currency);
 
@@ -637,6 +653,9 @@ public class FormulaAuditStatementService {
                     RENT_SHEET_NAME, rentLastRow, periodStartDate,
                     RENT_SHEET_NAME, rentLastRow, periodEndDate);
                 totalRentCell.setCellFormula(formula);
+                if (javaTotals != null) {
+                    workbook.expect(totalRentCell, javaTotals.rent(leaseRef, period), "total_rent " + leaseRef);
+                }
             } else {
                 totalRentCell.setCellValue(0);
             }
@@ -655,6 +674,13 @@ public class FormulaAuditStatementService {
             Cell cbCell = row.createCell(COL_CLOSING_BAL);
             cbCell.setCellFormula(String.format("I%d+L%d", excelRow, excelRow));
             cbCell.setCellStyle(styles.currency);
+            if (javaTotals != null) {
+                double opening = prevSheetName != null ? javaTotals.closingBalance(lease.getLeaseId()) : javaOpeningBalance;
+                double rentReceived = leaseRef.isEmpty() ? 0 : javaTotals.rent(leaseRef, period);
+                double closing = opening + leaseRentDue.doubleValue() - rentReceived;
+                javaTotals.setClosingBalance(lease.getLeaseId(), closing);
+                workbook.expect(cbCell, closing, "closing_balance " + leaseRef);
+            }
 
             // N: commission_rate
             Cell commRateCell = row.createCell(COL_COMM_RATE);
@@ -676,6 +702,9 @@ public class FormulaAuditStatementService {
                     EXPENSE_SHEET_NAME, expenseLastRow, periodStartDate,
                     EXPENSE_SHEET_NAME, expenseLastRow, periodEndDate);
                 totalExpCell.setCellFormula(formula);
+                if (javaTotals != null) {
+                    workbook.expect(totalExpCell, javaTotals.expenses(leaseRef, period), "total_expenses " + leaseRef);
+                }
             } else {
                 totalExpCell.setCellValue(0);
             }
@@ -1386,83 +1415,9 @@ public class FormulaAuditStatementService {
     private List<RentDuePeriodInfo> generateRentDuePeriodsForLease(LeaseMasterDTO lease,
                                                                      LocalDate periodStart, LocalDate periodEnd) {
         List<RentDuePeriodInfo> periods = new ArrayList<>();
-
-        LocalDate leaseStart = lease.getStartDate();
-        LocalDate leaseEnd = lease.getEndDate();
-        BigDecimal monthlyRent = lease.getMonthlyRent();
-        int cycleMonths = lease.getFrequencyMonths() != null ? lease.getFrequencyMonths() : 1;
-        int paymentDay = lease.getPaymentDay() != null ? lease.getPaymentDay() :
-                (leaseStart != null ? leaseStart.getDayOfMonth() : 1);
-
-        if (leaseStart == null || monthlyRent == null) return periods;
-        if (leaseStart.isAfter(periodEnd)) return periods;
-        if (leaseEnd != null && leaseEnd.isBefore(periodStart)) return periods;
-
-        if (cycleMonths == 1) {
-            LocalDate cycleStart = leaseStart;
-            if (leaseStart.isBefore(periodStart)) {
-                YearMonth targetMonth = YearMonth.from(periodStart);
-                int effectiveDay = Math.min(paymentDay, targetMonth.lengthOfMonth());
-                cycleStart = targetMonth.atDay(effectiveDay);
-                if (cycleStart.isBefore(periodStart)) {
-                    targetMonth = targetMonth.plusMonths(1);
-                    effectiveDay = Math.min(paymentDay, targetMonth.lengthOfMonth());
-                    cycleStart = targetMonth.atDay(effectiveDay);
-                }
-            }
-
-            while (!cycleStart.isAfter(periodEnd)) {
-                YearMonth nextMonth = YearMonth.from(cycleStart).plusMonths(1);
-                int effectiveDay = Math.min(paymentDay, nextMonth.lengthOfMonth());
-                LocalDate nextCycleStart = nextMonth.atDay(effectiveDay);
-                LocalDate cycleEnd = nextCycleStart.minusDays(1);
-
-                boolean inPeriod = !cycleStart.isBefore(periodStart) && !cycleStart.isAfter(periodEnd);
-                boolean overlapsLease = !cycleEnd.isBefore(leaseStart) &&
-                        (leaseEnd == null || !cycleStart.isAfter(leaseEnd));
-
-                if (inPeriod && overlapsLease) {
-                    LocalDate displayStart = cycleStart.isBefore(leaseStart) ? leaseStart : cycleStart;
-                    LocalDate displayEnd = (leaseEnd != null && leaseEnd.isBefore(cycleEnd)) ? leaseEnd : cycleEnd;
-
-                    boolean leaseEndsMidCycle = leaseEnd != null && leaseEnd.isBefore(cycleEnd) && !leaseEnd.isBefore(cycleStart);
-                    BigDecimal rent;
-                    if (leaseEndsMidCycle) {
-                        int totalDays = (int) ChronoUnit.DAYS.between(cycleStart, cycleEnd) + 1;
-                        int leaseDays = (int) ChronoUnit.DAYS.between(cycleStart, leaseEnd) + 1;
-                        rent = BigDecimal.valueOf(Math.round(monthlyRent.doubleValue() * leaseDays / totalDays * 100.0) / 100.0);
-                    } else {
-                        rent = monthlyRent;
-                    }
-                    periods.add(new RentDuePeriodInfo(displayStart, displayEnd, rent));
-                }
-                cycleStart = nextCycleStart;
-            }
-        } else {
-            LocalDate cycleStart = leaseStart;
-            while (cycleStart.isBefore(periodStart)) {
-                cycleStart = cycleStart.plusMonths(cycleMonths);
-            }
-            while (!cycleStart.isAfter(periodEnd)) {
-                // Stop if cycle starts after lease has ended
-                if (leaseEnd != null && cycleStart.isAfter(leaseEnd)) break;
-                LocalDate cycleEnd = cycleStart.plusMonths(cycleMonths).minusDays(1);
-                BigDecimal rent;
-                if (leaseEnd != null && leaseEnd.isBefore(cycleEnd) && !leaseEnd.isBefore(cycleStart)) {
-                    double monthlyRate = monthlyRent.doubleValue() / cycleMonths;
-                    long fullMonths = ChronoUnit.MONTHS.between(cycleStart, leaseEnd.plusDays(1));
-                    LocalDate lastFullEnd = cycleStart.plusMonths(fullMonths);
-                    long remDays = ChronoUnit.DAYS.between(lastFullEnd, leaseEnd) + 1;
-                    int daysInFinal = leaseEnd.lengthOfMonth();
-                    double prorated = (fullMonths * monthlyRate) + ((double) remDays / daysInFinal * monthlyRate);
-                    rent = BigDecimal.valueOf(Math.round(prorated * 100.0) / 100.0);
-                } else {
-                    rent = monthlyRent;
-                }
-                periods.add(new RentDuePeriodInfo(cycleStart,
-                        leaseEnd != null && leaseEnd.isBefore(cycleEnd) ? leaseEnd : cycleEnd, rent));
-                cycleStart = cycleStart.plusMonths(cycleMonths);
-            }
+        RentSchedule schedule = rentScheduleEngine.scheduleFor(lease, periodEnd);
+        for (RentSchedule.Charge charge : schedule.chargesBetween(periodStart, periodEnd)) {
+            periods.add(new RentDuePeriodInfo(charge.getDueDate(), charge.getPeriodEnd(), charge.getAmount()));
         }
         return periods;
     }
@@ -1477,6 +1432,58 @@ public class FormulaAuditStatementService {
         Period(LocalDate start, LocalDate end) { this.start = start; this.end = end; }
     }
 
+    /**
+     * Java-side totals for the optional formula check (statements.formula.verify).
+     * Mirrors the period-sheet formulas: SUMIFS by lease reference and date range,
+     * and the closing balance chained from one period sheet to the next.
+     */
+    private static class JavaTotals {
+        private final Map<String, List<TransactionDTO>> rentByLease;
+        private final Map<String, List<TransactionDTO>> expensesByLease;
+        private final Map<Long, Double> closingBalances = new HashMap<>();
+
+        JavaTotals(List<TransactionDTO> rent, List<TransactionDTO> expenses) {
+            this.rentByLease = byLeaseReference(rent);
+            this.expensesByLease = byLeaseReference(expenses);
+        }
+
+        double rent(String leaseRef, Period period) {
+            return sum(rentByLease, leaseRef, period);
+        }
+
+        double expenses(String leaseRef, Period period) {
+            return sum(expensesByLease, leaseRef, period);
+        }
+
+        double closingBalance(Long leaseId) {
+            return closingBalances.getOrDefault(leaseId, 0.0);
+        }
+
+        void setClosingBalance(Long leaseId, double balance) {
+            closingBalances.put(leaseId, balance);
+        }
+
+        // Sheets store absolute amounts and SUMIFS matches lease references case-insensitively
+        private static double sum(Map<String, List<TransactionDTO>> byLease, String leaseRef, Period period) {
+            double total = 0;
+            for (TransactionDTO txn : byLease.getOrDefault(leaseRef.toLowerCase(Locale.ROOT), Collections.emptyList())) {
+                LocalDate date = txn.getTransactionDate();
+                if (date != null && txn.getAmount() != null && !date.isBefore(period.start) && !date.isAfter(period.end)) {
+                    total += Math.abs(txn.getAmount().doubleValue());
+                }
+            }
+            return total;
+        }
+
+        private static Map<String, List<TransactionDTO>> byLeaseReference(List<TransactionDTO> transactions) {
+            Map<String, List<TransactionDTO>> byLease = new HashMap<>();
+            for (TransactionDTO txn : transactions) {
+                byLease.computeIfAbsent(str(txn.getLeaseReference()).toLowerCase(Locale.ROOT), k -> new ArrayList<>()).add(txn);
+            }
+            return byLease;
+        }
+    }
+
     private static class RentDuePeriodInfo {
         final LocalDate periodStart;
         final LocalDate periodEnd;
@@ -1522,7 +1529,7 @@ public class FormulaAuditStatementService {
         return sanitized;
     }
 
-    private String str(String value) { return value != null ? value : ""; }
+    private static String str(String value) { return value != null ? value : ""; }
 
     private String colLetter(int colIndex) {
         if (colIndex < 26) return String.valueOf((char) ('A' + colIndex));
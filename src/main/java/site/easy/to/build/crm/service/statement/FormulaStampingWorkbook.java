@@ -0,0 +1,261 @@
+package site.easy.to.build.crm.service.statement;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.FormulaError;
+import org.apache.poi.xssf.model.SharedStringsTable;
+import org.apache.poi.xssf.streaming.GZIPSheetDataWriter;
+import org.apache.poi.xssf.streaming.SXSSFRow;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.streaming.SheetDataWriter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.*;
+
+/**
+ * Streaming workbook that writes cached values for its formula cells.
+ *
+ * Each row is passed through {@link StatementFormulaEvaluator} as SXSSF flushes it to the temp
+ * file, and the computed result is stored as the formula's cached value. Viewers that do not
+ * recalculate on open (mobile previews, Google Sheets import, LibreOffice with "never
+ * recalculate") show correct numbers immediately; Excel still recalculates on edit.
+ *
+ * Sheets must be filled one after another (as our generators do): creating a sheet flushes
+ * every earlier sheet, and flushing at write time goes in sheet order rather than SXSSF's
+ * hash order, so cross-sheet references always see final rows.
+ *
+ * Optional check: {@link #expect} registers the value the Java side calculated for a formula
+ * cell. When the formula is evaluated the two are compared and disagreements are logged.
+ */
+public class FormulaStampingWorkbook extends SXSSFWorkbook {
+
+    private static final Logger log = LoggerFactory.getLogger(FormulaStampingWorkbook.class);
+
+    private static final double CHECK_TOLERANCE = 0.005;
+    private static final int MAX_LOGGED_MISMATCHES = 20;
+
+    private final StatementFormulaEvaluator evaluator = new StatementFormulaEvaluator();
+    private final Map<String, Expectation> expectations = new HashMap<>();
+    private final List<String> mismatches = new ArrayList<>();
+    private boolean verify;
+
+    private int stampedCells;
+    private int uncachedCells;
+    private int checkedCells;
+    private int uncheckedCells;
+
+    public FormulaStampingWorkbook(int rowAccessWindowSize) {
+        super(rowAccessWindowSize);
+    }
+
+    /**
+     * Enable the Java-vs-formula check. When disabled, {@link #expect} is a no-op.
+     */
+    public void setVerify(boolean verify) {
+        this.verify = verify;
+    }
+
+    public boolean isVerify() {
+        return verify;
+    }
+
+    /**
+     * Register the value the Java side calculated for a formula cell (checked when the row is flushed).
+     */
+    public void expect(Cell cell, double javaValue, String label) {
+        if (!verify) return;
+        expectations.put(cellKey(cell.getSheet().getSheetName(), cell.getRowIndex(), cell.getColumnIndex()),
+            new Expectation(javaValue, label));
+    }
+
+    public int getStampedCells() { return stampedCells; }
+    public int getUncachedCells() { return uncachedCells; }
+    public int getCheckedCells() { return checkedCells; }
+    public List<String> getMismatches() { return Collections.unmodifiableList(mismatches); }
+
+    // ===== SXSSF HOOKS =====
+
+    @Override
+    protected SheetDataWriter createSheetDataWriter() throws IOException {
+        return isCompressTempFiles()
+            ? new StampingGzipWriter(getSharedStringSource())
+            : new StampingWriter(getSharedStringSource());
+    }
+
+    @Override
+    public SXSSFSheet createSheet() {
+        flushSheetsInOrder();
+        return super.createSheet();
+    }
+
+    @Override
+    public SXSSFSheet createSheet(String sheetname) {
+        flushSheetsInOrder();
+        return super.createSheet(sheetname);
+    }
+
+    @Override
+    protected void flushSheets() throws IOException {
+        flushSheetsInOrder();
+        logSummary();
+        super.flushSheets();
+    }
+
+    private void flushSheetsInOrder() {
+        try {
+            for (int i = 0; i < getNumberOfSheets(); i++) {
+                SXSSFSheet sheet = getSheetAt(i);
+                sheet.flushRows();
+                evaluator.markComplete(sheet.getSheetName());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // ===== STAMPING =====
+
+    private void stampRow(int rowIndex, SXSSFRow row) {
+        String sheetName = row.getSheet().getSheetName();
+        int width = Math.max(row.getLastCellNum(), 0);
+        Object[] values = new Object[width];
+        String[] formulas = null;
+        Cell[] formulaCells = null;
+
+        for (Iterator<Cell> it = row.cellIterator(); it.hasNext(); ) {
+            Cell cell = it.next();
+            int col = cell.getColumnIndex();
+            switch (cell.getCellType()) {
+                case NUMERIC: values[col] = cell.getNumericCellValue(); break;
+                case STRING: values[col] = cell.getStringCellValue(); break;
+                case BOOLEAN: values[col] = cell.getBooleanCellValue(); break;
+                case ERROR: values[col] = FormulaError.forInt(cell.getErrorCellValue()); break;
+                case FORMULA:
+                    if (formulas == null) {
+                        formulas = new String[width];
+                        formulaCells = new Cell[width];
+                    }
+                    formulas[col] = cell.getCellFormula();
+                    formulaCells[col] = cell;
+                    break;
+                default: break;
+            }
+        }
+
+        Object[] results;
+        try {
+            results = evaluator.addRow(sheetName, rowIndex, values, formulas);
+        } catch (RuntimeException e) {
+            log.debug("Formula evaluation failed for {} row {}: {}", sheetName, rowIndex + 1, e.getMessage());
+            if (formulas != null) uncachedCells += countNonNull(formulas);
+            return;
+        }
+        if (formulas == null) return;
+
+        for (int col = 0; col < width; col++) {
+            if (formulaCells[col] == null) continue;
+            Object result = results[col];
+            if (result == null) {
+                uncachedCells++;
+            } else {
+                stamp(formulaCells[col], result);
+                stampedCells++;
+            }
+            if (verify && !expectations.isEmpty()) {
+                check(sheetName, rowIndex, col, result);
+            }
+        }
+    }
+
+    private static void stamp(Cell cell, Object result) {
+        if (result instanceof Double) cell.setCellValue((Double) result);
+        else if (result instanceof String) cell.setCellValue((String) result);
+        else if (result instanceof Boolean) cell.setCellValue((Boolean) result);
+        else if (result instanceof FormulaError) cell.setCellErrorValue(((FormulaError) result).getCode());
+    }
+
+    private void check(String sheetName, int rowIndex, int col, Object result) {
+        Expectation expected = expectations.remove(cellKey(sheetName, rowIndex, col));
+        if (expected == null) return;
+        if (!(result instanceof Double)) {
+            uncheckedCells++;
+            return;
+        }
+        checkedCells++;
+        double formulaValue = (Double) result;
+        if (Math.abs(formulaValue - expected.value) > CHECK_TOLERANCE) {
+            mismatches.add(String.format("'%s'!%s%d %s: java=%.2f formula=%.2f",
+                sheetName, columnLetters(col), rowIndex + 1, expected.label, expected.value, formulaValue));
+        }
+    }
+
+    private void logSummary() {
+        log.info("Formula cache: {} formula cells stamped, {} left for recalculation", stampedCells, uncachedCells);
+        if (!verify) return;
+
+        if (mismatches.isEmpty()) {
+            log.info("Formula check: {} cells compared, all match Java totals ({} not computable)",
+                checkedCells, uncheckedCells + expectations.size());
+        } else {
+            log.warn("⚠️ Formula check: {} of {} cells differ from Java totals", mismatches.size(), checkedCells);
+            mismatches.stream().limit(MAX_LOGGED_MISMATCHES).forEach(m -> log.warn("   {}", m));
+        }
+    }
+
+    private static int countNonNull(String[] formulas) {
+        int count = 0;
+        for (String formula : formulas) if (formula != null) count++;
+        return count;
+    }
+
+    private static String cellKey(String sheetName, int rowIndex, int col) {
+        return sheetName + "!" + rowIndex + ":" + col;
+    }
+
+    private static String columnLetters(int col) {
+        StringBuilder letters = new StringBuilder();
+        for (int c = col + 1; c > 0; c = (c - 1) / 26) {
+            letters.insert(0, (char) ('A' + (c - 1) % 26));
+        }
+        return letters.toString();
+    }
+
+    private static final class Expectation {
+        private final double value;
+        private final String label;
+
+        Expectation(double value, String label) {
+            this.value = value;
+            this.label = label;
+        }
+    }
+
+    // ===== WRITERS =====
+
+    private class StampingWriter extends SheetDataWriter {
+        StampingWriter(SharedStringsTable sharedStrings) throws IOException {
+            super(sharedStrings);
+        }
+
+        @Override
+        public void writeRow(int rowNum, SXSSFRow row) throws IOException {
+            stampRow(rowNum, row);
+            super.writeRow(rowNum, row);
+        }
+    }
+
+    private class StampingGzipWriter extends GZIPSheetDataWriter {
+        StampingGzipWriter(SharedStringsTable sharedStrings) throws IOException {
+            super(sharedStrings);
+        }
+
+        @Override
+        public void writeRow(int rowNum, SXSSFRow row) throws IOException {
+            stampRow(rowNum, row);
+            super.writeRow(rowNum, row);
+        }
+    }
+}
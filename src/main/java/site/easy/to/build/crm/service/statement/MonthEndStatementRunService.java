@@ -0,0 +1,384 @@
+package site.easy.to.build.crm.service.statement;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import site.easy.to.build.crm.entity.Customer;
+import site.easy.to.build.crm.repository.CustomerRepository;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Month-End Statement Run
+ *
+ * Generates the Option C (SXSSF) owner statement for every property owner for one period:
+ * - Lease master, rent received and expenses are loaded once for all owners
+ *   (StatementDataExtractService.loadSnapshot) and partitioned by owner in memory
+ * - Workbooks are rendered in parallel on the bounded statementRunExecutor pool, each in its own
+ *   read-only transaction, and written straight to files in the run directory
+ * - Each finished owner is appended to manifest.csv; re-running the same period after a crash
+ *   skips owners already in the manifest (delete the run directory or pass force to start over)
+ * - Optionally the run directory is zipped when the run completes
+ *
+ * Only one run at a time. Progress and the last result are available from getStatus().
+ */
+@Service
+public class MonthEndStatementRunService {
+
+    private static final Logger log = LoggerFactory.getLogger(MonthEndStatementRunService.class);
+
+    private static final String MANIFEST_FILE = "manifest.csv";
+    private static final String MANIFEST_HEADER = "owner_id,file,bytes,millis,completed_at";
+    private static final int SLOWEST_OWNERS_LOGGED = 5;
+
+    private final StatementDataExtractService dataExtractService;
+    private final ExcelStatementGeneratorService excelGenerator;
+    private final CustomerRepository customerRepository;
+    private final TaskExecutor executor;
+    private final TransactionTemplate readOnlyTransaction;
+    private final TaskExecutor coordinator = new SimpleAsyncTaskExecutor("StatementRunCoordinator-");
+    private final AtomicBoolean running = new AtomicBoolean(false);
+
+    private volatile RunReport lastReport;
+
+    @Value("${statements.bulk.output-dir:${java.io.tmpdir}/statement-runs}")
+    private String outputDir;
+
+    public MonthEndStatementRunService(StatementDataExtractService dataExtractService,
+                                       ExcelStatementGeneratorService excelGenerator,
+                                       CustomerRepository customerRepository,
+                                       @Qualifier("statementRunExecutor") TaskExecutor executor,
+                                       PlatformTransactionManager transactionManager) {
+        this.dataExtractService = dataExtractService;
+        this.excelGenerator = excelGenerator;
+        this.customerRepository = customerRepository;
+        this.executor = executor;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    // ===== PUBLIC API =====
+
+    /**
+     * Start a run in the background.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public RunReport startRun(LocalDate periodStart, LocalDate periodEnd, boolean zip, boolean force) {
+        RunReport report = acquire(periodStart, periodEnd);
+        CompletableFuture.runAsync(() -> execute(report, zip, force), coordinator);
+        return report;
+    }
+
+    /**
+     * Run on the calling thread and return when every owner is done.
+     *
+     * @throws IllegalStateException if a run is already in progress
+     */
+    public RunReport run(LocalDate periodStart, LocalDate periodEnd, boolean zip, boolean force) {
+        RunReport report = acquire(periodStart, periodEnd);
+        execute(report, zip, force);
+        return report;
+    }
+
+    /**
+     * The run in progress, or the last completed run (null if none since startup).
+     */
+    public RunReport getStatus() {
+        return lastReport;
+    }
+
+    // ===== RUN =====
+
+    private RunReport acquire(LocalDate periodStart, LocalDate periodEnd) {
+        if (periodStart == null || periodEnd == null || periodEnd.isBefore(periodStart)) {
+            throw new IllegalArgumentException("Invalid statement period: " + periodStart + " to " + periodEnd);
+        }
+        if (!running.compareAndSet(false, true)) {
+            throw new IllegalStateException("A statement run is already in progress");
+        }
+        RunReport report = new RunReport(periodStart, periodEnd,
+            Paths.get(outputDir).resolve("statements_" + periodStart + "_" + periodEnd));
+        lastReport = report;
+        return report;
+    }
+
+    private void execute(RunReport report, boolean zip, boolean force) {
+        long runStart = System.nanoTime();
+        try {
+            Path runDir = report.runDirectory;
+            Files.createDirectories(runDir);
+            Manifest manifest = Manifest.open(runDir.resolve(MANIFEST_FILE), force);
+
+            List<Long> owners = dataExtractService.findStatementOwnerIds();
+            List<Long> pending = owners.stream()
+                .filter(id -> !manifest.isComplete(id, runDir))
+                .collect(Collectors.toList());
+            report.owners = owners.size();
+            report.resumed = owners.size() - pending.size();
+
+            log.info("🚀 Month-end statement run {} to {}: {} owners ({} already done) -> {}",
+                report.periodStart, report.periodEnd, owners.size(), report.resumed, runDir);
+
+            if (!pending.isEmpty()) {
+                StatementDataSnapshot snapshot = dataExtractService.loadSnapshot(pending);
+                Map<Long, String> names = customerRepository.findAllById(pending).stream()
+                    .collect(Collectors.toMap(Customer::getCustomerId,
+                        c -> c.getName() != null ? c.getName() : "owner", (a, b) -> a));
+
+                List<CompletableFuture<Void>> futures = pending.stream()
+                    .map(ownerId -> CompletableFuture
+                        .runAsync(() -> renderOwner(ownerId, names.getOrDefault(ownerId, "owner"),
+                            snapshot, manifest, report), executor)
+                        .exceptionally(e -> {
+                            Throwable cause = e.getCause() != null ? e.getCause() : e;
+                            log.error("❌ Statement for owner {} failed: {}", ownerId, cause.getMessage(), cause);
+                            report.failed.add(ownerId);
+                            return null;
+                        }))
+                    .collect(Collectors.toList());
+                futures.forEach(CompletableFuture::join);
+            }
+
+            if (zip) {
+                report.zipFile = zipRunDirectory(runDir);
+            }
+        } catch (Exception e) {
+            log.error("❌ Month-end statement run failed: {}", e.getMessage(), e);
+            report.error = e.getMessage();
+        } finally {
+            report.durationMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - runStart);
+            report.running = false;
+            running.set(false);
+            logSummary(report);
+        }
+    }
+
+    private void renderOwner(Long ownerId, String ownerName, StatementDataSnapshot snapshot,
+                             Manifest manifest, RunReport report) {
+        long start = System.nanoTime();
+        Path target = report.runDirectory.resolve(fileName(ownerId, ownerName, report.periodStart, report.periodEnd));
+        Path partial = target.resolveSibling(target.getFileName() + ".part");
+
+        Workbook workbook = snapshot.apply(() -> readOnlyTransaction.execute(status ->
+            excelGenerator.generateStatementForCustomerWithCustomPeriods(ownerId, report.periodStart,
+                report.periodEnd, report.periodStart.getDayOfMonth(), "MONTHLY")));
+        try {
+            try (OutputStream out = Files.newOutputStream(partial)) {
+                workbook.write(out);
+            }
+            Files.move(partial, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            if (workbook instanceof SXSSFWorkbook) {
+                ((SXSSFWorkbook) workbook).dispose();
+            }
+            try { workbook.close(); } catch (IOException ignored) {}
+        }
+
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        long bytes = target.toFile().length();
+        manifest.record(ownerId, target.getFileName().toString(), bytes, millis);
+        report.recordOwner(new OwnerTiming(ownerId, ownerName, target.getFileName().toString(), millis, bytes));
+
+        log.info("✅ Owner {} ({}) statement in {}ms, {} KB [{}/{}]",
+            ownerId, ownerName, millis, bytes / 1024, report.generated.get() + report.resumed, report.owners);
+    }
+
+    private Path zipRunDirectory(Path runDir) throws IOException {
+        Path zipFile = runDir.resolveSibling(runDir.getFileName() + ".zip");
+        Path partial = zipFile.resolveSibling(zipFile.getFileName() + ".part");
+        List<Path> files;
+        try (Stream<Path> listing = Files.list(runDir)) {
+            files = listing.filter(p -> p.getFileName().toString().endsWith(".xlsx")).sorted().collect(Collectors.toList());
+        }
+        try (ZipOutputStream zip = new ZipOutputStream(Files.newOutputStream(partial), StandardCharsets.UTF_8)) {
+            for (Path file : files) {
+                zip.putNextEntry(new ZipEntry(file.getFileName().toString()));
+                Files.copy(file, zip);
+                zip.closeEntry();
+            }
+        }
+        Files.move(partial, zipFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        log.info("📦 Zipped {} statements into {}", files.size(), zipFile);
+        return zipFile;
+    }
+
+    private void logSummary(RunReport report) {
+        log.info("🏁 Month-end statement run {} to {}: {} generated, {} resumed, {} failed of {} owners in {}s ({} statements/min)",
+            report.periodStart, report.periodEnd, report.generated.get(), report.resumed, report.failed.size(),
+            report.owners, report.durationMs / 1000, String.format("%.1f", report.getStatementsPerMinute()));
+
+        List<OwnerTiming> slowest = report.getOwnerTimings().stream()
+            .sorted(Comparator.comparingLong(OwnerTiming::getMillis).reversed())
+            .limit(SLOWEST_OWNERS_LOGGED)
+            .collect(Collectors.toList());
+        for (OwnerTiming timing : slowest) {
+            log.info("   🐢 Owner {} ({}): {}ms", timing.getOwnerId(), timing.getOwnerName(), timing.getMillis());
+        }
+        if (!report.failed.isEmpty()) {
+            log.warn("⚠️ Failed owners (re-run the same period to retry): {}", report.failed);
+        }
+    }
+
+    static String fileName(Long ownerId, String ownerName, LocalDate periodStart, LocalDate periodEnd) {
+        return String.format("statement_%d_%s_%s_%s.xlsx",
+            ownerId, ownerName.replaceAll("[^a-zA-Z0-9]", "_"), periodStart, periodEnd);
+    }
+
+    // ===== MANIFEST =====
+
+    /**
+     * Append-only record of finished owners: one CSV line per owner, written after the
+     * statement file has been moved into place.
+     */
+    static final class Manifest {
+        private final Path path;
+        private final Map<Long, String> completed = new HashMap<>();
+
+        private Manifest(Path path) {
+            this.path = path;
+        }
+
+        static Manifest open(Path path, boolean reset) throws IOException {
+            Manifest manifest = new Manifest(path);
+            if (reset || !Files.exists(path)) {
+                Files.write(path, List.of(MANIFEST_HEADER), StandardCharsets.UTF_8);
+                return manifest;
+            }
+            for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+                String[] parts = line.split(",");
+                if (parts.length < 2 || line.equals(MANIFEST_HEADER)) continue;
+                try {
+                    manifest.completed.put(Long.parseLong(parts[0]), parts[1]);
+                } catch (NumberFormatException e) {
+                    // Partially written last line from a crash - that owner is simply redone
+                }
+            }
+            return manifest;
+        }
+
+        boolean isComplete(Long ownerId, Path runDir) {
+            String file = completed.get(ownerId);
+            return file != null && Files.exists(runDir.resolve(file));
+        }
+
+        synchronized void record(Long ownerId, String file, long bytes, long millis) {
+            completed.put(ownerId, file);
+            String line = ownerId + "," + file + "," + bytes + "," + millis + "," + LocalDateTime.now();
+            try (BufferedWriter writer = Files.newBufferedWriter(path, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND, StandardOpenOption.SYNC)) {
+                writer.write(line);
+                writer.newLine();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    // ===== REPORT =====
+
+    /**
+     * Progress and outcome of a run (live while the run is in progress).
+     */
+    public static class RunReport {
+        private final LocalDate periodStart;
+        private final LocalDate periodEnd;
+        private final Path runDirectory;
+        private final LocalDateTime startedAt = LocalDateTime.now();
+        private final AtomicInteger generated = new AtomicInteger();
+        private final List<Long> failed = Collections.synchronizedList(new ArrayList<>());
+        private final List<OwnerTiming> ownerTimings = Collections.synchronizedList(new ArrayList<>());
+        private volatile int owners;
+        private volatile int resumed;
+        private volatile long durationMs;
+        private volatile boolean running = true;
+        private volatile Path zipFile;
+        private volatile String error;
+
+        RunReport(LocalDate periodStart, LocalDate periodEnd, Path runDirectory) {
+            this.periodStart = periodStart;
+            this.periodEnd = periodEnd;
+            this.runDirectory = runDirectory;
+        }
+
+        void recordOwner(OwnerTiming timing) {
+            ownerTimings.add(timing);
+            generated.incrementAndGet();
+        }
+
+        public LocalDate getPeriodStart() { return periodStart; }
+        public LocalDate getPeriodEnd() { return periodEnd; }
+        public String getOutputDirectory() { return runDirectory.toString(); }
+        public String getZipFile() { return zipFile != null ? zipFile.toString() : null; }
+        public LocalDateTime getStartedAt() { return startedAt; }
+        public boolean isRunning() { return running; }
+        public int getOwners() { return owners; }
+        public int getGenerated() { return generated.get(); }
+        public int getResumed() { return resumed; }
+        public List<Long> getFailed() { synchronized (failed) { return new ArrayList<>(failed); } }
+        public long getDurationMs() { return durationMs; }
+        public String getError() { return error; }
+
+        public List<OwnerTiming> getOwnerTimings() {
+            synchronized (ownerTimings) { return new ArrayList<>(ownerTimings); }
+        }
+
+        public double getStatementsPerMinute() {
+            long elapsed = running
+                ? java.time.Duration.between(startedAt, LocalDateTime.now()).toMillis()
+                : durationMs;
+            return elapsed > 0 ? generated.get() * 60_000.0 / elapsed : 0;
+        }
+    }
+
+    /**
+     * Render time and output size for one owner's statement.
+     */
+    public static class OwnerTiming {
+        private final Long ownerId;
+        private final String ownerName;
+        private final String file;
+        private final long millis;
+        private final long bytes;
+
+        OwnerTiming(Long ownerId, String ownerName, String file, long millis, long bytes) {
+            this.ownerId = ownerId;
+            this.ownerName = ownerName;
+            this.file = file;
+            this.millis = millis;
+            this.bytes = bytes;
+        }
+
+        public Long getOwnerId() { return ownerId; }
+        public String getOwnerName() { return ownerName; }
+        public String getFile() { return file; }
+        public long getMillis() { return millis; }
+        public long getBytes() { return bytes; }
+    }
+}
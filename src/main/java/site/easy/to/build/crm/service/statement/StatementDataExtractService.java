@@ -4,6 +4,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 import site.easy.to.build.crm.dto.statement.CustomerDTO;
 import site.easy.to.build.crm.dto.statement.LeaseAllocationSummaryDTO;
 import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
@@ -34,15 +35,20 @@ import site.easy.to.build.crm.repository.UnifiedAllocationRepository;
 import site.easy.to.build.crm.repository.PayPropTenantCompleteRepository;
 import site.easy.to.build.crm.repository.PropertyRepository;
 import site.easy.to.build.crm.repository.UnifiedTransactionRepository;
+import site.easy.to.build.crm.service.invoice.RentSchedule;
+import site.easy.to.build.crm.service.invoice.RentScheduleEngine;
 import site.easy.to.build.crm.service.property.PropertyService;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 /**
@@ -102,6 +108,9 @@ public class StatementDataExtractService {
     @Autowired
     private PaymentBatchRepository paymentBatchRepository;
 
+    @Autowired
+    private RentScheduleEngine rentScheduleEngine;
+
     /**
      * Extract lease master data (all leases)
      *
@@ -190,6 +199,11 @@ public class StatementDataExtractService {
      * @return List of lease master records for this customer
      */
     public List<LeaseMasterDTO> extractLeaseMasterForCustomer(Long customerId) {
+        StatementDataSnapshot snapshot = StatementDataSnapshot.current();
+        if (snapshot != null && snapshot.covers(customerId)) {
+            return snapshot.leaseMasterFor(customerId);
+        }
+
         log.info("[STMT-DEBUG] 🔍 START extractLeaseMasterForCustomer({})", customerId);
         logMemoryUsage("EXTRACT_LEASE_START");
 
@@ -255,48 +269,11 @@ public class StatementDataExtractService {
 
         for (Invoice invoice : invoices) {
             dtoCount++;
-            LeaseMasterDTO dto = new LeaseMasterDTO();
-
-            // Lease details
-            dto.setLeaseId(invoice.getId());
-            dto.setLeaseReference(invoice.getLeaseReference());
-            dto.setStartDate(invoice.getStartDate());
-            dto.setEndDate(invoice.getEndDate());
-            dto.setMonthlyRent(invoice.getAmount());
-            dto.setFrequency(invoice.getFrequency() != null ? invoice.getFrequency().name() : "MONTHLY");
-            dto.setFrequencyMonths(invoice.getFrequencyMonths());  // Numeric cycle length for rent_due calculations
-            dto.setPaymentDay(invoice.getPaymentDay());
-
-            // Property details
-            Property property = invoice.getProperty();
-            if (property != null) {
-                dto.setPropertyId(property.getId());
-                dto.setPropertyName(property.getPropertyName());
-                dto.setPropertyAddress(property.getFullAddress());
-                // Commission rates from property (not global defaults)
-                dto.setCommissionPercentage(property.getCommissionPercentage());
-                dto.setServiceFeePercentage(property.getServiceFeePercentage());
-
-                // Block property support
-                dto.setIsBlockProperty(property.getIsBlockProperty());
-                dto.setIsParking(property.isParking());
-                dto.setPropertyAccountBalance(property.getAccountBalance());
-                if (property.getBlock() != null) {
-                    dto.setBlockId(property.getBlock().getId());
-                    dto.setBlockName(property.getBlock().getName());
-                }
-            }
-
             // Customer details (always same customer in this method)
-            dto.setCustomerId(customer.getCustomerId());
-            dto.setCustomerName(customer.getName());
-
-            // Tenant details (occupant)
-            String tenantName = extractTenantName(invoice);
-            dto.setTenantName(tenantName);
+            LeaseMasterDTO dto = toLeaseMasterDTO(invoice, customer, extractTenantName(invoice));
 
             log.info("✅ Lease {} - Tenant Name: '{}' (Customer: {})",
-                invoice.getLeaseReference(), tenantName, dto.getCustomerName());
+                invoice.getLeaseReference(), dto.getTenantName(), dto.getCustomerName());
 
             leaseMaster.add(dto);
 
@@ -320,6 +297,50 @@ public class StatementDataExtractService {
         return leaseMaster;
     }
 
+    /**
+     * Lease master row for a lease invoice, reported under the given owner.
+     */
+    private LeaseMasterDTO toLeaseMasterDTO(Invoice invoice, Customer owner, String tenantName) {
+        LeaseMasterDTO dto = new LeaseMasterDTO();
+
+        // Lease details
+        dto.setLeaseId(invoice.getId());
+        dto.setLeaseReference(invoice.getLeaseReference());
+        dto.setStartDate(invoice.getStartDate());
+        dto.setEndDate(invoice.getEndDate());
+        dto.setMonthlyRent(invoice.getAmount());
+        dto.setFrequency(invoice.getFrequency() != null ? invoice.getFrequency().name() : "MONTHLY");
+        dto.setFrequencyMonths(invoice.getFrequencyMonths());  // Numeric cycle length for rent_due calculations
+        dto.setPaymentDay(invoice.getPaymentDay());
+
+        // Property details
+        Property property = invoice.getProperty();
+        if (property != null) {
+            dto.setPropertyId(property.getId());
+            dto.setPropertyName(property.getPropertyName());
+            dto.setPropertyAddress(property.getFullAddress());
+            // Commission rates from property (not global defaults)
+            dto.setCommissionPercentage(property.getCommissionPercentage());
+            dto.setServiceFeePercentage(property.getServiceFeePercentage());
+
+            // Block property support
+            dto.setIsBlockProperty(property.getIsBlockProperty());
+            dto.setIsParking(property.isParking());
+            dto.setPropertyAccountBalance(property.getAccountBalance());
+            if (property.getBlock() != null) {
+                dto.setBlockId(property.getBlock().getId());
+                dto.setBlockName(property.getBlock().getName());
+            }
+        }
+
+        dto.setCustomerId(owner.getCustomerId());
+        dto.setCustomerName(owner.getName());
+
+        // Tenant details (occupant)
+        dto.setTenantName(tenantName);
+        return dto;
+    }
+
     /**
      * Extract all transactions linked to leases
      *
@@ -554,6 +575,11 @@ public class StatementDataExtractService {
      * @return List of ALL INCOMING transactions for this customer (from earliest to present)
      */
     public List<TransactionDTO> extractAllRentReceivedForCustomer(Long customerId) {
+        StatementDataSnapshot snapshot = StatementDataSnapshot.current();
+        if (snapshot != null && snapshot.covers(customerId)) {
+            return snapshot.rentReceivedFor(customerId);
+        }
+
         log.info("[STMT-DEBUG] ✨ START extractAllRentReceivedForCustomer({}) - NO DATE FILTER", customerId);
         logMemoryUsage("EXTRACT_ALL_RENT_RECEIVED_START");
 
@@ -577,33 +603,9 @@ public class StatementDataExtractService {
         List<TransactionDTO> transactionDTOs = new ArrayList<>();
 
         for (UnifiedTransaction ut : transactions) {
-            // Filter out non-rent INCOMING records (e.g. PROPERTY_ACCOUNT_ALLOCATION for block properties)
-            String category = ut.getCategory();
-            if (category != null) {
-                String lower = category.toLowerCase();
-                if (lower.equals("property_account_allocation")) {
-                    continue;
-                }
+            if (isRentReceived(ut)) {
+                transactionDTOs.add(toTransactionDTO(ut));
             }
-
-            TransactionDTO dto = new TransactionDTO();
-
-            dto.setTransactionId(ut.getId());
-            dto.setTransactionDate(ut.getTransactionDate());
-            dto.setInvoiceId(ut.getInvoiceId());
-            dto.setPropertyId(ut.getPropertyId());
-            dto.setPropertyName(ut.getPropertyName());
-            dto.setCustomerId(ut.getCustomerId());
-            dto.setCategory(ut.getCategory());
-            dto.setTransactionType(ut.getTransactionType());
-            dto.setAmount(ut.getAmount());
-            dto.setDescription(ut.getDescription());
-            dto.setLeaseReference(ut.getLeaseReference());
-            dto.setLeaseStartDate(ut.getLeaseStartDate());
-            dto.setLeaseEndDate(ut.getLeaseEndDate());
-            dto.setRentAmountAtTransaction(ut.getRentAmountAtTransaction());
-
-            transactionDTOs.add(dto);
         }
 
         log.info("[STMT-DEBUG] ✨ COMPLETE extractAllRentReceivedForCustomer - {} records", transactionDTOs.size());
@@ -617,6 +619,11 @@ public class StatementDataExtractService {
      * Filters out owner/commission/disbursement categories — only real expenses.
      */
     public List<TransactionDTO> extractAllExpensesForCustomer(Long customerId) {
+        StatementDataSnapshot snapshot = StatementDataSnapshot.current();
+        if (snapshot != null && snapshot.covers(customerId)) {
+            return snapshot.expensesFor(customerId);
+        }
+
         log.info("[STMT-DEBUG] START extractAllExpensesForCustomer({}) - NO DATE FILTER", customerId);
 
         Customer customer = customerRepository.findById(customerId).orElse(null);
@@ -636,40 +643,9 @@ public class StatementDataExtractService {
         List<TransactionDTO> transactionDTOs = new ArrayList<>();
 
         for (UnifiedTransaction ut : transactions) {
-            // Filter out non-expense categories (owner payments, commission)
-            // Disbursements ARE included — they're real deductions from owner payments (block fund contributions)
-            // Also skip NULL/empty categories (zero-amount placeholder records) and zero amounts
-            String category = ut.getCategory();
-            if (category == null || category.trim().isEmpty()) {
-                continue;
-            }
-            String lower = category.toLowerCase();
-            if (lower.equals("owner") || lower.equals("commission") ||
-                lower.contains("owner_payment")) {
-                continue;
+            if (isExpense(ut)) {
+                transactionDTOs.add(toTransactionDTO(ut));
             }
-            // Skip zero-amount records (placeholder/noise)
-            if (ut.getAmount() == null || ut.getAmount().compareTo(BigDecimal.ZERO) == 0) {
-                continue;
-            }
-
-            TransactionDTO dto = new TransactionDTO();
-            dto.setTransactionId(ut.getId());
-            dto.setTransactionDate(ut.getTransactionDate());
-            dto.setInvoiceId(ut.getInvoiceId());
-            dto.setPropertyId(ut.getPropertyId());
-            dto.setPropertyName(ut.getPropertyName());
-            dto.setCustomerId(ut.getCustomerId());
-            dto.setCategory(ut.getCategory());
-            dto.setTransactionType(ut.getTransactionType());
-            dto.setAmount(ut.getAmount());
-            dto.setDescription(ut.getDescription());
-            dto.setLeaseReference(ut.getLeaseReference());
-            dto.setLeaseStartDate(ut.getLeaseStartDate());
-            dto.setLeaseEndDate(ut.getLeaseEndDate());
-            dto.setRentAmountAtTransaction(ut.getRentAmountAtTransaction());
-
-            transactionDTOs.add(dto);
         }
 
         log.info("[STMT-DEBUG] COMPLETE extractAllExpensesForCustomer - {} expense records (filtered from {} outgoing)",
@@ -677,6 +653,52 @@ public class StatementDataExtractService {
         return transactionDTOs;
     }
 
+    /**
+     * INCOMING rows that belong on the RENT_RECEIVED sheet.
+     * Filters out non-rent INCOMING records (e.g. PROPERTY_ACCOUNT_ALLOCATION for block properties).
+     */
+    private boolean isRentReceived(UnifiedTransaction ut) {
+        String category = ut.getCategory();
+        return category == null || !category.toLowerCase().equals("property_account_allocation");
+    }
+
+    /**
+     * OUTGOING rows that are real expenses.
+     * Filters out owner payments and commission; disbursements ARE included — they're real
+     * deductions from owner payments (block fund contributions). Also skips NULL/empty
+     * categories and zero amounts (placeholder records).
+     */
+    private boolean isExpense(UnifiedTransaction ut) {
+        String category = ut.getCategory();
+        if (category == null || category.trim().isEmpty()) {
+            return false;
+        }
+        String lower = category.toLowerCase();
+        if (lower.equals("owner") || lower.equals("commission") || lower.contains("owner_payment")) {
+            return false;
+        }
+        return ut.getAmount() != null && ut.getAmount().compareTo(BigDecimal.ZERO) != 0;
+    }
+
+    private TransactionDTO toTransactionDTO(UnifiedTransaction ut) {
+        TransactionDTO dto = new TransactionDTO();
+        dto.setTransactionId(ut.getId());
+        dto.setTransactionDate(ut.getTransactionDate());
+        dto.setInvoiceId(ut.getInvoiceId());
+        dto.setPropertyId(ut.getPropertyId());
+        dto.setPropertyName(ut.getPropertyName());
+        dto.setCustomerId(ut.getCustomerId());
+        dto.setCategory(ut.getCategory());
+        dto.setTransactionType(ut.getTransactionType());
+        dto.setAmount(ut.getAmount());
+        dto.setDescription(ut.getDescription());
+        dto.setLeaseReference(ut.getLeaseReference());
+        dto.setLeaseStartDate(ut.getLeaseStartDate());
+        dto.setLeaseEndDate(ut.getLeaseEndDate());
+        dto.setRentAmountAtTransaction(ut.getRentAmountAtTransaction());
+        return dto;
+    }
+
     /**
      * Extract OUTGOING transactions only (landlord payments, fees, expenses)
      *
@@ -1450,11 +1472,22 @@ public class StatementDataExtractService {
     public java.math.BigDecimal calculateTenantOpeningBalance(Long leaseId, LocalDate leaseStartDate,
                                                                LocalDate asOfDate, java.math.BigDecimal rentAmount,
                                                                Integer frequencyMonths, LocalDate leaseEndDate) {
-        // Default to monthly if not specified
-        int cycleMonths = (frequencyMonths != null && frequencyMonths > 0) ? frequencyMonths : 1;
+        return calculateTenantOpeningBalance(leaseId, leaseStartDate, asOfDate, rentAmount, frequencyMonths,
+            leaseEndDate, null);
+    }
 
+    /**
+     * Calculate the tenant opening balance using the lease's payment day for cycle dates,
+     * so it lines up exactly with the per-cycle rent rows shown for the statement period.
+     *
+     * @param paymentDay Day of month rent is due (null = lease start day)
+     */
+    public java.math.BigDecimal calculateTenantOpeningBalance(Long leaseId, LocalDate leaseStartDate,
+                                                               LocalDate asOfDate, java.math.BigDecimal rentAmount,
+                                                               Integer frequencyMonths, LocalDate leaseEndDate,
+                                                               Integer paymentDay) {
         log.debug("Calculating tenant opening balance for lease {} from {} to {} (rent: {}, cycle: {} months, end: {})",
-            leaseId, leaseStartDate, asOfDate, rentAmount, cycleMonths, leaseEndDate);
+            leaseId, leaseStartDate, asOfDate, rentAmount, frequencyMonths, leaseEndDate);
 
         if (leaseStartDate == null || asOfDate == null || rentAmount == null) {
             log.warn("Cannot calculate opening balance - missing required data for lease {}", leaseId);
@@ -1466,60 +1499,15 @@ public class StatementDataExtractService {
             return java.math.BigDecimal.ZERO;
         }
 
-        // RENT IN ADVANCE: Count cycle start dates that occurred BEFORE asOfDate
-        // Full rent is due when a cycle STARTS, so we count complete cycles that have started
-        long cyclesDue;
-        java.math.BigDecimal totalRentDue;
-
-        // If lease has ended before asOfDate, cap cycles at lease end date
-        if (leaseEndDate != null && leaseEndDate.isBefore(asOfDate)) {
-            // Find the last cycle that started before or on the lease end date
-            LocalDate lastCycleStart = leaseStartDate;
-            while (lastCycleStart.plusMonths(cycleMonths).isBefore(leaseEndDate) ||
-                   lastCycleStart.plusMonths(cycleMonths).isEqual(leaseEndDate)) {
-                lastCycleStart = lastCycleStart.plusMonths(cycleMonths);
-            }
-
-            LocalDate cycleEndDate = lastCycleStart.plusMonths(cycleMonths).minusDays(1);
-
-            // If lease ended before this cycle's natural end, prorate
-            if (leaseEndDate.isBefore(cycleEndDate)) {
-                // Full cycles before the last one + prorated final cycle
-                long fullCyclesBefore = countCycleStartDatesBefore(leaseStartDate, lastCycleStart, cycleMonths);
-                java.math.BigDecimal fullCyclesRent = rentAmount.multiply(java.math.BigDecimal.valueOf(fullCyclesBefore));
-
-                // Prorate the final partial cycle
-                double monthlyRate = rentAmount.doubleValue() / cycleMonths;
-                long fullMonthsInPartial = java.time.temporal.ChronoUnit.MONTHS.between(lastCycleStart, leaseEndDate);
-                LocalDate afterFullMonths = lastCycleStart.plusMonths(fullMonthsInPartial);
-                long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(afterFullMonths, leaseEndDate) + 1;
-                int daysInMonth = leaseEndDate.lengthOfMonth();
-
-                double proratedAmount = (fullMonthsInPartial * monthlyRate) +
-                                       ((double) remainingDays / daysInMonth * monthlyRate);
-                proratedAmount = Math.round(proratedAmount * 100.0) / 100.0;
-
-                totalRentDue = fullCyclesRent.add(java.math.BigDecimal.valueOf(proratedAmount));
-                cyclesDue = fullCyclesBefore;
-
-                log.debug("Lease {} ended mid-cycle: {} full cycles + prorated {} months {} days = {}",
-                    leaseId, fullCyclesBefore, fullMonthsInPartial, remainingDays, totalRentDue);
-            } else {
-                // Lease ended at cycle boundary - count cycles that started up to and including lastCycleStart
-                cyclesDue = countCycleStartDatesBefore(leaseStartDate, lastCycleStart.plusDays(1), cycleMonths);
-                totalRentDue = rentAmount.multiply(java.math.BigDecimal.valueOf(cyclesDue));
-
-                log.debug("Lease {} ended at cycle boundary: {} full cycles = {}",
-                    leaseId, cyclesDue, totalRentDue);
-            }
-        } else {
-            // Ongoing lease or statement period is before lease end - count cycles before asOfDate
-            cyclesDue = countCycleStartDatesBefore(leaseStartDate, asOfDate, cycleMonths);
-            totalRentDue = rentAmount.multiply(java.math.BigDecimal.valueOf(cyclesDue));
-        }
+        // RENT IN ADVANCE: every cycle that started BEFORE asOfDate is due in full,
+        // except a final cycle cut short by the lease end date, which is prorated
+        RentSchedule schedule = rentScheduleEngine.scheduleFor(leaseId, leaseStartDate, leaseEndDate,
+            rentAmount, frequencyMonths, paymentDay, asOfDate);
+        LocalDate lastDay = asOfDate.minusDays(1);
+        java.math.BigDecimal totalRentDue = schedule.rentDueBetween(leaseStartDate, lastDay);
 
         log.debug("Lease {}: rent due before {} = {} (cycles started: {})",
-            leaseId, asOfDate, totalRentDue, cyclesDue);
+            leaseId, asOfDate, totalRentDue, schedule.countChargesBetween(leaseStartDate, lastDay));
 
         // Get total rent received before asOfDate
         java.math.BigDecimal totalReceived = getTotalRentReceivedBefore(leaseId, asOfDate);
@@ -1535,100 +1523,6 @@ public class StatementDataExtractService {
         return openingBalance;
     }
 
-    /**
-     * Calculate total rent due with proration for partial final cycle.
-     *
-     * @param leaseStartDate Lease start date
-     * @param endDate End date for calculation (exclusive)
-     * @param cycleRent Full cycle rent amount
-     * @param cycleMonths Months per cycle
-     * @return Total rent due including prorated final cycle
-     */
-    private java.math.BigDecimal calculateRentDueWithProration(LocalDate leaseStartDate, LocalDate endDate,
-                                                                java.math.BigDecimal cycleRent, int cycleMonths) {
-        if (leaseStartDate == null || endDate == null || !endDate.isAfter(leaseStartDate)) {
-            return java.math.BigDecimal.ZERO;
-        }
-
-        // Count full cycles
-        long fullCycles = 0;
-        LocalDate cycleStart = leaseStartDate;
-        LocalDate lastCycleStart = leaseStartDate;
-
-        while (true) {
-            LocalDate nextCycleStart = cycleStart.plusMonths(cycleMonths);
-            if (!nextCycleStart.isBefore(endDate)) {
-                // This cycle extends past endDate - need to check for proration
-                lastCycleStart = cycleStart;
-                break;
-            }
-            fullCycles++;
-            cycleStart = nextCycleStart;
-            lastCycleStart = cycleStart;
-        }
-
-        // Calculate rent for full cycles
-        java.math.BigDecimal totalRent = cycleRent.multiply(java.math.BigDecimal.valueOf(fullCycles));
-
-        // Check if there's a partial final cycle to prorate
-        LocalDate cycleEndDate = lastCycleStart.plusMonths(cycleMonths);
-        if (endDate.isAfter(lastCycleStart) && endDate.isBefore(cycleEndDate)) {
-            // Prorate: (full months × monthly rate) + (remaining days / days in month × monthly rate)
-            double monthlyRate = cycleRent.doubleValue() / cycleMonths;
-
-            // Count full months in the partial cycle
-            long fullMonthsInPartial = java.time.temporal.ChronoUnit.MONTHS.between(lastCycleStart, endDate);
-            LocalDate afterFullMonths = lastCycleStart.plusMonths(fullMonthsInPartial);
-
-            // Count remaining days
-            long remainingDays = java.time.temporal.ChronoUnit.DAYS.between(afterFullMonths, endDate);
-            int daysInMonth = afterFullMonths.lengthOfMonth();
-
-            double proratedAmount = (fullMonthsInPartial * monthlyRate) +
-                                   ((double) remainingDays / daysInMonth * monthlyRate);
-            proratedAmount = Math.round(proratedAmount * 100.0) / 100.0;
-
-            totalRent = totalRent.add(java.math.BigDecimal.valueOf(proratedAmount));
-
-            log.debug("Prorated final cycle: {} full months + {} days = £{}",
-                fullMonthsInPartial, remainingDays, proratedAmount);
-        } else if (!endDate.isBefore(cycleEndDate.plusDays(1))) {
-            // The cycle that started at lastCycleStart is fully within the period
-            // This happens when endDate is at or after the cycle end
-            totalRent = totalRent.add(cycleRent);
-        }
-
-        return totalRent;
-    }
-
-    /**
-     * Count how many cycle start dates occurred BEFORE a given date.
-     *
-     * RENT IN ADVANCE: Rent is due on lease start and every cycleMonths thereafter.
-     *
-     * @param leaseStartDate The first cycle start date (lease start)
-     * @param beforeDate Count cycles starting strictly before this date
-     * @param cycleMonths Months per billing cycle
-     * @return Number of cycles that have started (and thus rent is due)
-     */
-    private long countCycleStartDatesBefore(LocalDate leaseStartDate, LocalDate beforeDate, int cycleMonths) {
-        if (beforeDate.isBefore(leaseStartDate) || beforeDate.equals(leaseStartDate)) {
-            return 0;  // No cycles have started yet
-        }
-
-        // First cycle starts on lease start date - if we're past that, at least 1 cycle is due
-        long cycleCount = 1;
-
-        // Count subsequent cycle start dates
-        LocalDate nextCycleStart = leaseStartDate.plusMonths(cycleMonths);
-        while (nextCycleStart.isBefore(beforeDate)) {
-            cycleCount++;
-            nextCycleStart = nextCycleStart.plusMonths(cycleMonths);
-        }
-
-        return cycleCount;
-    }
-
     /**
      * Count how many cycle start dates fall WITHIN a given period (inclusive of both start and end).
      *
@@ -1665,26 +1559,9 @@ public class StatementDataExtractService {
             return 0;
         }
 
-        long cycleCount = 0;
-
-        // Start from lease start date and iterate through all cycle start dates
-        LocalDate cycleStart = leaseStartDate;
-
-        // Skip cycles that are before the period start
-        while (cycleStart.isBefore(periodStart)) {
-            cycleStart = cycleStart.plusMonths(cycleMonths);
-        }
-
-        // Count cycles within the period [periodStart, periodEnd]
-        // but skip cycle starts that fall after the lease end date
-        while (!cycleStart.isAfter(periodEnd)) {
-            if (leaseEndDate == null || !cycleStart.isAfter(leaseEndDate)) {
-                cycleCount++;
-            }
-            cycleStart = cycleStart.plusMonths(cycleMonths);
-        }
-
-        return cycleCount;
+        // Closed form: cycle k starts in month (start month + k × cycleMonths) on the start day
+        return RentSchedule.countCycleStarts(leaseStartDate, leaseStartDate.getDayOfMonth(),
+            RentSchedule.cycleMonths(cycleMonths), periodStart, periodEnd, leaseEndDate);
     }
 
     /**
@@ -3247,6 +3124,124 @@ public class StatementDataExtractService {
         return jdbcTemplate.queryForList(sql, leaseIds.toArray());
     }
 
+    // ===== BULK STATEMENT RUNS =====
+
+    /**
+     * Property owners that should receive a statement: PROPERTY_OWNER customers with at
+     * least one OWNER property assignment.
+     */
+    public List<Long> findStatementOwnerIds() {
+        return jdbcTemplate.queryForList(
+            "SELECT DISTINCT c.customer_id FROM customers c " +
+            "JOIN customer_property_assignments cpa ON cpa.customer_id = c.customer_id " +
+            "WHERE c.customer_type = 'PROPERTY_OWNER' AND cpa.assignment_type = 'OWNER' " +
+            "ORDER BY c.customer_id", Long.class);
+    }
+
+    /**
+     * Load lease master, rent received and expense rows for many owners in one pass and
+     * partition them by owner in memory (see StatementDataSnapshot).
+     *
+     * Uses the same rules as the per-customer extract methods: properties assigned as OWNER or
+     * MANAGER, leases with a lease reference, and INCOMING_PAYMENT rows matched by property name.
+     * Runs in one read-only transaction so lazy lease/property/tenant fields are resolved here,
+     * not on the rendering threads.
+     */
+    @Transactional(readOnly = true)
+    public StatementDataSnapshot loadSnapshot(Collection<Long> customerIds) {
+        long start = System.currentTimeMillis();
+        Set<Long> wanted = new LinkedHashSet<>(customerIds);
+
+        // Owner -> properties, and the reverse lookups used to partition transactions
+        Map<Long, Set<Long>> propertyIdsByOwner = new HashMap<>();
+        Map<Long, List<Long>> ownersByPropertyId = new HashMap<>();
+        Map<String, List<Long>> ownersByPropertyName = new HashMap<>();
+        jdbcTemplate.query(
+            "SELECT cpa.customer_id, p.id, p.property_name FROM customer_property_assignments cpa " +
+            "JOIN properties p ON p.id = cpa.property_id " +
+            "WHERE cpa.assignment_type IN ('OWNER', 'MANAGER')",
+            rs -> {
+                Long ownerId = rs.getLong(1);
+                if (!wanted.contains(ownerId)) {
+                    return;
+                }
+                Long propertyId = rs.getLong(2);
+                if (propertyIdsByOwner.computeIfAbsent(ownerId, k -> new LinkedHashSet<>()).add(propertyId)) {
+                    ownersByPropertyId.computeIfAbsent(propertyId, k -> new ArrayList<>()).add(ownerId);
+                    String propertyName = rs.getString(3);
+                    if (propertyName != null) {
+                        ownersByPropertyName.computeIfAbsent(propertyName, k -> new ArrayList<>()).add(ownerId);
+                    }
+                }
+            });
+
+        // Lease master: all lease invoices once, grouped by property
+        Map<Long, List<Invoice>> invoicesByProperty = invoiceRepository.findAll().stream()
+            .filter(i -> i.getProperty() != null)
+            .filter(i -> i.getLeaseReference() != null && !i.getLeaseReference().trim().isEmpty())
+            .collect(Collectors.groupingBy(i -> i.getProperty().getId()));
+
+        Map<Long, String> tenantNames = new HashMap<>();
+        Map<Long, List<LeaseMasterDTO>> leaseMaster = new HashMap<>();
+        for (Customer owner : customerRepository.findAllById(wanted)) {
+            List<LeaseMasterDTO> leases = new ArrayList<>();
+            for (Long propertyId : propertyIdsByOwner.getOrDefault(owner.getCustomerId(), Set.of())) {
+                for (Invoice invoice : invoicesByProperty.getOrDefault(propertyId, List.of())) {
+                    String tenantName = tenantNames.computeIfAbsent(invoice.getId(), id -> extractTenantName(invoice));
+                    leases.add(toLeaseMasterDTO(invoice, owner, tenantName));
+                }
+            }
+            leaseMaster.put(owner.getCustomerId(), leases);
+        }
+
+        // Transactions: one query per flow direction, partitioned by owning property
+        Map<Long, List<TransactionDTO>> rentReceived = partitionByOwner(
+            unifiedTransactionRepository.findByFlowDirection(UnifiedTransaction.FlowDirection.INCOMING),
+            this::isRentReceived, ownersByPropertyId, ownersByPropertyName);
+        Map<Long, List<TransactionDTO>> expenses = partitionByOwner(
+            unifiedTransactionRepository.findByFlowDirection(UnifiedTransaction.FlowDirection.OUTGOING),
+            this::isExpense, ownersByPropertyId, ownersByPropertyName);
+
+        log.info("📦 Statement snapshot loaded for {} owners: {} leases, {} rent rows, {} expense rows in {}ms",
+            leaseMaster.size(),
+            leaseMaster.values().stream().mapToInt(List::size).sum(),
+            rentReceived.values().stream().mapToInt(List::size).sum(),
+            expenses.values().stream().mapToInt(List::size).sum(),
+            System.currentTimeMillis() - start);
+
+        return new StatementDataSnapshot(leaseMaster, rentReceived, expenses);
+    }
+
+    private Map<Long, List<TransactionDTO>> partitionByOwner(List<UnifiedTransaction> transactions,
+                                                             java.util.function.Predicate<UnifiedTransaction> include,
+                                                             Map<Long, List<Long>> ownersByPropertyId,
+                                                             Map<String, List<Long>> ownersByPropertyName) {
+        // Same order as findByCustomerOwnedPropertiesAndFlowDirection
+        transactions.sort(Comparator.comparing(UnifiedTransaction::getTransactionDate,
+                Comparator.nullsFirst(Comparator.naturalOrder()))
+            .thenComparing(UnifiedTransaction::getId, Comparator.nullsFirst(Comparator.naturalOrder())));
+
+        Map<Long, List<TransactionDTO>> byOwner = new HashMap<>();
+        for (UnifiedTransaction ut : transactions) {
+            if (!include.test(ut)) {
+                continue;
+            }
+            Set<Long> owners = new LinkedHashSet<>(ownersByPropertyId.getOrDefault(ut.getPropertyId(), List.of()));
+            if ("INCOMING_PAYMENT".equals(ut.getPaypropDataSource())
+                    && ut.getPropertyName() != null) {
+                owners.addAll(ownersByPropertyName.getOrDefault(ut.getPropertyName(), List.of()));
+            }
+            if (owners.isEmpty()) {
+                continue;
+            }
+            TransactionDTO dto = toTransactionDTO(ut);
+            for (Long ownerId : owners) {
+                byOwner.computeIfAbsent(ownerId, k -> new ArrayList<>()).add(dto);
+            }
+        }
+        return byOwner;
+    }
+
     // ===== BATCH-GROUPED PAYMENT EXTRACTION =====
 
     /**
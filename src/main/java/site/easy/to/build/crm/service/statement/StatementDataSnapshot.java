@@ -0,0 +1,81 @@
+package site.easy.to.build.crm.service.statement;
+
+import site.easy.to.build.crm.dto.statement.LeaseMasterDTO;
+import site.easy.to.build.crm.dto.statement.TransactionDTO;
+
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * Statement Data Snapshot
+ *
+ * Lease master, rent received and expense rows for many owners, loaded in one pass
+ * (StatementDataExtractService.loadSnapshot) and partitioned by owner in memory.
+ *
+ * A bulk statement run binds the snapshot to each worker thread while it renders an owner's
+ * workbook. The per-customer extract methods (extractLeaseMasterForCustomer,
+ * extractAllRentReceivedForCustomer, extractAllExpensesForCustomer) then read from it
+ * instead of re-querying, so the generators themselves are unchanged.
+ *
+ * Read-only after loading; every accessor returns a fresh list (generators clear theirs).
+ */
+public final class StatementDataSnapshot {
+
+    private static final ThreadLocal<StatementDataSnapshot> CURRENT = new ThreadLocal<>();
+
+    private final Map<Long, List<LeaseMasterDTO>> leaseMaster;
+    private final Map<Long, List<TransactionDTO>> rentReceived;
+    private final Map<Long, List<TransactionDTO>> expenses;
+
+    StatementDataSnapshot(Map<Long, List<LeaseMasterDTO>> leaseMaster,
+                          Map<Long, List<TransactionDTO>> rentReceived,
+                          Map<Long, List<TransactionDTO>> expenses) {
+        this.leaseMaster = leaseMaster;
+        this.rentReceived = rentReceived;
+        this.expenses = expenses;
+    }
+
+    /**
+     * Snapshot bound to the current thread, or null outside a bulk run.
+     */
+    public static StatementDataSnapshot current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run the task with this snapshot bound to the current thread.
+     */
+    public <T> T apply(Supplier<T> task) {
+        StatementDataSnapshot previous = CURRENT.get();
+        CURRENT.set(this);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public boolean covers(Long customerId) {
+        return leaseMaster.containsKey(customerId);
+    }
+
+    public Set<Long> getCustomerIds() {
+        return Collections.unmodifiableSet(leaseMaster.keySet());
+    }
+
+    public List<LeaseMasterDTO> leaseMasterFor(Long customerId) {
+        return new ArrayList<>(leaseMaster.getOrDefault(customerId, Collections.emptyList()));
+    }
+
+    public List<TransactionDTO> rentReceivedFor(Long customerId) {
+        return new ArrayList<>(rentReceived.getOrDefault(customerId, Collections.emptyList()));
+    }
+
+    public List<TransactionDTO> expensesFor(Long customerId) {
+        return new ArrayList<>(expenses.getOrDefault(customerId, Collections.emptyList()));
+    }
+}
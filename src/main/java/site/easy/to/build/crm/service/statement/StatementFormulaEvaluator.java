@@ -0,0 +1,948 @@
+package site.easy.to.build.crm.service.statement;
+
+import org.apache.poi.ss.usermodel.DateUtil;
+import org.apache.poi.ss.usermodel.FormulaError;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.*;
+
+/**
+ * Statement Formula Evaluator
+ *
+ * Evaluates the formula subset our statement generators write, so the result can be stored
+ * as the cell's cached value (Excel/LibreOffice/Sheets previews then open without a full
+ * recalculation of thousands of SUMIFS).
+ *
+ * Supported:
+ * - Operators: + - * / &, comparisons (= <> < > <= >=), unary minus
+ * - References: A1, $A$1, A1:B5, A:L, Sheet!A1, 'Sheet name'!A1
+ * - Functions: SUM, SUMIFS, SUMIF, IF, IFERROR, MAX, MIN, ABS, ROUND, AND, OR, NOT,
+ *   ISBLANK, VLOOKUP (exact match), DATE, EOMONTH, DAY
+ *
+ * Rows are fed in sheet order, one row at a time ({@link #addRow}), exactly as SXSSF flushes them.
+ * A formula is only evaluated from cells that are already final: earlier rows and sheets, and
+ * other cells in the same row. Anything else (forward references, unsupported functions) leaves
+ * the cell uncached and Excel calculates it as before.
+ *
+ * SUMIFS/SUMIF equality criteria and VLOOKUP use per-column hash indexes over completed sheets,
+ * so a period sheet costs one hash probe per lease instead of a scan of RENT_RECEIVED.
+ *
+ * Not thread-safe: one instance per workbook.
+ */
+public class StatementFormulaEvaluator {
+
+    /** Stored in place of a formula value that could not be computed. */
+    private static final Object UNRESOLVED = new Object();
+
+    private final Map<String, SheetValues> sheets = new HashMap<>();
+    private final Map<String, Map<Object, int[]>> matchIndexes = new HashMap<>();
+
+    /**
+     * Record one row and evaluate its formula cells.
+     *
+     * @param sheetName Sheet the row belongs to
+     * @param rowIndex 0-based row index; rows of a sheet must arrive in ascending order
+     * @param cells Literal cell values (Double, String, Boolean, FormulaError or null for blank), by column
+     * @param formulas Formula text by column (null where the cell is not a formula); may be null
+     * @return Computed value by column for formula cells (Double, String, Boolean or FormulaError),
+     *         null where the formula was not evaluated
+     */
+    public Object[] addRow(String sheetName, int rowIndex, Object[] cells, String[] formulas) {
+        SheetValues sheet = sheets.computeIfAbsent(key(sheetName), k -> new SheetValues());
+        sheet.finalizedThrough = Math.max(sheet.finalizedThrough, rowIndex - 1);
+
+        Object[] values = cells.clone();
+        Object[] results = new Object[cells.length];
+        if (formulas != null) {
+            RowContext row = new RowContext(key(sheetName), rowIndex, values, formulas);
+            for (int col = 0; col < formulas.length; col++) {
+                if (formulas[col] != null) {
+                    Object value = row.valueOf(col);
+                    results[col] = value == UNRESOLVED ? null : value;
+                }
+            }
+        }
+
+        sheet.put(rowIndex, values);
+        sheet.finalizedThrough = Math.max(sheet.finalizedThrough, rowIndex);
+        return results;
+    }
+
+    /**
+     * Mark a sheet as fully written: rows past the last recorded row are blank.
+     */
+    public void markComplete(String sheetName) {
+        sheets.computeIfAbsent(key(sheetName), k -> new SheetValues()).complete = true;
+    }
+
+    /**
+     * Evaluate a single formula as if it were in the given cell (no same-row formula cells).
+     */
+    public Object evaluate(String formula, String sheetName, int rowIndex) {
+        return addRow(sheetName, rowIndex, new Object[1], new String[]{formula})[0];
+    }
+
+    private static String key(String sheetName) {
+        return sheetName.toUpperCase(Locale.ROOT);
+    }
+
+    // ===== ROW EVALUATION =====
+
+    private final class RowContext {
+        private final String sheet;
+        private final int rowIndex;
+        private final Object[] values;
+        private final String[] formulas;
+        private final byte[] state; // 0 = final, 1 = pending formula, 2 = evaluating
+
+        RowContext(String sheet, int rowIndex, Object[] values, String[] formulas) {
+            this.sheet = sheet;
+            this.rowIndex = rowIndex;
+            this.values = values;
+            this.formulas = formulas;
+            this.state = new byte[values.length];
+            for (int col = 0; col < formulas.length && col < values.length; col++) {
+                if (formulas[col] != null) state[col] = 1;
+            }
+        }
+
+        Object valueOf(int col) {
+            if (col >= values.length) return null;
+            if (state[col] == 2) return UNRESOLVED; // circular
+            if (state[col] == 1) {
+                state[col] = 2;
+                values[col] = evaluateFormula(formulas[col]);
+                state[col] = 0;
+            }
+            return values[col];
+        }
+
+        private Object evaluateFormula(String formula) {
+            try {
+                Object value = new Evaluation(this).eval(new Parser(formula).parse());
+                if (value == null) return 0.0; // a formula pointing at a blank cell shows 0
+                if (value instanceof Double && !Double.isFinite((Double) value)) return FormulaError.NUM;
+                return value;
+            } catch (ErrorValue e) {
+                return e.error;
+            } catch (Unresolved e) {
+                return UNRESOLVED;
+            }
+        }
+    }
+
+    // ===== VALUES =====
+
+    private static final class SheetValues {
+        private final ArrayList<Object[]> rows = new ArrayList<>();
+        private int finalizedThrough = -1;
+        private boolean complete;
+
+        void put(int rowIndex, Object[] values) {
+            while (rows.size() <= rowIndex) rows.add(null);
+            rows.set(rowIndex, values);
+        }
+
+        int lastRow() {
+            return rows.size() - 1;
+        }
+
+        boolean isFinal(int rowIndex) {
+            return complete || rowIndex <= finalizedThrough;
+        }
+
+        Object get(int rowIndex, int col) {
+            if (rowIndex >= rows.size()) return null;
+            Object[] row = rows.get(rowIndex);
+            Object value = (row == null || col >= row.length) ? null : row[col];
+            if (value == UNRESOLVED) throw Unresolved.INSTANCE;
+            return value;
+        }
+    }
+
+    /** A formula error (#N/A, #DIV/0!...) raised during evaluation; IFERROR catches it. */
+    private static final class ErrorValue extends RuntimeException {
+        private final FormulaError error;
+
+        ErrorValue(FormulaError error) {
+            super(error.getString(), null, false, false);
+            this.error = error;
+        }
+    }
+
+    /** The formula depends on something we cannot (or choose not to) compute. */
+    private static final class Unresolved extends RuntimeException {
+        static final Unresolved INSTANCE = new Unresolved();
+
+        private Unresolved() {
+            super("unresolved", null, false, false);
+        }
+    }
+
+    // ===== AST =====
+
+    private interface Node {}
+
+    private static final class Literal implements Node {
+        final Object value;
+        Literal(Object value) { this.value = value; }
+    }
+
+    private static final class Area implements Node {
+        final String sheet; // null = current sheet
+        final int firstRow, firstCol, lastRow, lastCol; // lastRow = Integer.MAX_VALUE for whole columns
+        Area(String sheet, int firstRow, int firstCol, int lastRow, int lastCol) {
+            this.sheet = sheet;
+            this.firstRow = Math.min(firstRow, lastRow);
+            this.firstCol = Math.min(firstCol, lastCol);
+            this.lastRow = Math.max(firstRow, lastRow);
+            this.lastCol = Math.max(firstCol, lastCol);
+        }
+        boolean isSingleCell() { return firstRow == lastRow && firstCol == lastCol; }
+    }
+
+    private static final class Unary implements Node {
+        final char op;
+        final Node operand;
+        Unary(char op, Node operand) { this.op = op; this.operand = operand; }
+    }
+
+    private static final class Binary implements Node {
+        final String op;
+        final Node left, right;
+        Binary(String op, Node left, Node right) { this.op = op; this.left = left; this.right = right; }
+    }
+
+    private static final class Call implements Node {
+        final String name;
+        final List<Node> args;
+        Call(String name, List<Node> args) { this.name = name; this.args = args; }
+    }
+
+    // ===== PARSER =====
+
+    /**
+     * Recursive-descent parser, Excel precedence: comparison < & < + - < * / < unary.
+     */
+    private static final class Parser {
+        private final String text;
+        private int pos;
+
+        Parser(String formula) {
+            String f = formula.trim();
+            this.text = f.startsWith("=") ? f.substring(1) : f;
+        }
+
+        Node parse() {
+            Node node = comparison();
+            skipSpaces();
+            if (pos != text.length()) throw Unresolved.INSTANCE;
+            return node;
+        }
+
+        private Node comparison() {
+            Node left = concat();
+            while (true) {
+                skipSpaces();
+                String op = null;
+                for (String candidate : new String[]{"<=", ">=", "<>", "=", "<", ">"}) {
+                    if (text.startsWith(candidate, pos)) { op = candidate; break; }
+                }
+                if (op == null) return left;
+                pos += op.length();
+                left = new Binary(op, left, concat());
+            }
+        }
+
+        private Node concat() {
+            Node left = additive();
+            while (accept('&')) left = new Binary("&", left, additive());
+            return left;
+        }
+
+        private Node additive() {
+            Node left = term();
+            while (true) {
+                if (accept('+')) left = new Binary("+", left, term());
+                else if (accept('-')) left = new Binary("-", left, term());
+                else return left;
+            }
+        }
+
+        private Node term() {
+            Node left = unary();
+            while (true) {
+                if (accept('*')) left = new Binary("*", left, unary());
+                else if (accept('/')) left = new Binary("/", left, unary());
+                else return left;
+            }
+        }
+
+        private Node unary() {
+            if (accept('-')) return new Unary('-', unary());
+            if (accept('+')) return unary();
+            return primary();
+        }
+
+        private Node primary() {
+            skipSpaces();
+            if (pos >= text.length()) throw Unresolved.INSTANCE;
+            char c = text.charAt(pos);
+
+            if (c == '(') {
+                pos++;
+                Node inner = comparison();
+                expect(')');
+                return inner;
+            }
+            if (c == '"') return new Literal(stringLiteral());
+            if (Character.isDigit(c) || c == '.') return new Literal(number());
+            if (c == '\'') {
+                String sheet = quotedSheetName();
+                expect('!');
+                return area(sheet, word());
+            }
+            if (Character.isLetter(c) || c == '$' || c == '_') {
+                String word = word();
+                if (peek('!')) {
+                    pos++;
+                    return area(word, word());
+                }
+                if (peek('(')) {
+                    pos++;
+                    return new Call(word.toUpperCase(Locale.ROOT), arguments());
+                }
+                if (word.equalsIgnoreCase("TRUE")) return new Literal(Boolean.TRUE);
+                if (word.equalsIgnoreCase("FALSE")) return new Literal(Boolean.FALSE);
+                return area(null, word);
+            }
+            throw Unresolved.INSTANCE;
+        }
+
+        private List<Node> arguments() {
+            List<Node> args = new ArrayList<>();
+            skipSpaces();
+            if (accept(')')) return args;
+            do {
+                args.add(comparison());
+            } while (accept(','));
+            expect(')');
+            return args;
+        }
+
+        // A1 | A1:B5 | A:L (word already consumed)
+        private Node area(String sheet, String first) {
+            int[] start = parseCell(first);
+            if (peek(':')) {
+                pos++;
+                int[] end = parseCell(word());
+                boolean wholeColumns = start[0] < 0 && end[0] < 0;
+                if (!wholeColumns && (start[0] < 0 || end[0] < 0)) throw Unresolved.INSTANCE;
+                return wholeColumns
+                    ? new Area(sheet, 0, start[1], Integer.MAX_VALUE, end[1])
+                    : new Area(sheet, start[0], start[1], end[0], end[1]);
+            }
+            if (start[0] < 0) throw Unresolved.INSTANCE;
+            return new Area(sheet, start[0], start[1], start[0], start[1]);
+        }
+
+        // "$B$12" -> {11, 1}; "B" -> {-1, 1}
+        private static int[] parseCell(String ref) {
+            String r = ref.replace("$", "").toUpperCase(Locale.ROOT);
+            int i = 0;
+            int col = 0;
+            while (i < r.length() && r.charAt(i) >= 'A' && r.charAt(i) <= 'Z') {
+                col = col * 26 + (r.charAt(i) - 'A' + 1);
+                i++;
+            }
+            if (i == 0 || i > 3) throw Unresolved.INSTANCE;
+            if (i == r.length()) return new int[]{-1, col - 1};
+            int row;
+            try {
+                row = Integer.parseInt(r.substring(i));
+            } catch (NumberFormatException e) {
+                throw Unresolved.INSTANCE;
+            }
+            if (row < 1) throw Unresolved.INSTANCE;
+            return new int[]{row - 1, col - 1};
+        }
+
+        private String word() {
+            skipSpaces();
+            int start = pos;
+            while (pos < text.length()) {
+                char c = text.charAt(pos);
+                if (Character.isLetterOrDigit(c) || c == '$' || c == '_' || c == '.') pos++;
+                else break;
+            }
+            if (start == pos) throw Unresolved.INSTANCE;
+            return text.substring(start, pos);
+        }
+
+        private String quotedSheetName() {
+            StringBuilder name = new StringBuilder();
+            pos++; // opening quote
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '\'') {
+                    if (pos < text.length() && text.charAt(pos) == '\'') {
+                        name.append('\'');
+                        pos++;
+                    } else {
+                        return name.toString();
+                    }
+                } else {
+                    name.append(c);
+                }
+            }
+            throw Unresolved.INSTANCE;
+        }
+
+        private String stringLiteral() {
+            StringBuilder value = new StringBuilder();
+            pos++; // opening quote
+            while (pos < text.length()) {
+                char c = text.charAt(pos++);
+                if (c == '"') {
+                    if (pos < text.length() && text.charAt(pos) == '"') {
+                        value.append('"');
+                        pos++;
+                    } else {
+                        return value.toString();
+                    }
+                } else {
+                    value.append(c);
+                }
+            }
+            throw Unresolved.INSTANCE;
+        }
+
+        private Double number() {
+            int start = pos;
+            while (pos < text.length() && (Character.isDigit(text.charAt(pos)) || text.charAt(pos) == '.')) pos++;
+            if (pos < text.length() && (text.charAt(pos) == 'E' || text.charAt(pos) == 'e')) {
+                pos++;
+                if (pos < text.length() && (text.charAt(pos) == '+' || text.charAt(pos) == '-')) pos++;
+                while (pos < text.length() && Character.isDigit(text.charAt(pos))) pos++;
+            }
+            try {
+                return Double.parseDouble(text.substring(start, pos));
+            } catch (NumberFormatException e) {
+                throw Unresolved.INSTANCE;
+            }
+        }
+
+        private boolean accept(char c) {
+            skipSpaces();
+            if (pos < text.length() && text.charAt(pos) == c) {
+                pos++;
+                return true;
+            }
+            return false;
+        }
+
+        private boolean peek(char c) {
+            return pos < text.length() && text.charAt(pos) == c;
+        }
+
+        private void expect(char c) {
+            if (!accept(c)) throw Unresolved.INSTANCE;
+        }
+
+        private void skipSpaces() {
+            while (pos < text.length() && text.charAt(pos) == ' ') pos++;
+        }
+    }
+
+    // ===== EVALUATION =====
+
+    private final class Evaluation {
+        private final RowContext row;
+
+        Evaluation(RowContext row) {
+            this.row = row;
+        }
+
+        Object eval(Node node) {
+            if (node instanceof Literal) return ((Literal) node).value;
+            if (node instanceof Area) {
+                Area area = (Area) node;
+                if (!area.isSingleCell()) throw Unresolved.INSTANCE; // implicit intersection
+                Object value = cell(area.sheet, area.firstRow, area.firstCol);
+                if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+                return value;
+            }
+            if (node instanceof Unary) {
+                return -toNumber(eval(((Unary) node).operand));
+            }
+            if (node instanceof Binary) return binary((Binary) node);
+            if (node instanceof Call) return call((Call) node);
+            throw Unresolved.INSTANCE;
+        }
+
+        private Object binary(Binary node) {
+            Object left = eval(node.left);
+            Object right = eval(node.right);
+            switch (node.op) {
+                case "+": return toNumber(left) + toNumber(right);
+                case "-": return toNumber(left) - toNumber(right);
+                case "*": return toNumber(left) * toNumber(right);
+                case "/": {
+                    double divisor = toNumber(right);
+                    double dividend = toNumber(left);
+                    if (divisor == 0) throw new ErrorValue(FormulaError.DIV0);
+                    return dividend / divisor;
+                }
+                case "&": return toText(left) + toText(right);
+                case "=": return compare(left, right) == 0;
+                case "<>": return compare(left, right) != 0;
+                case "<": return compare(left, right) < 0;
+                case ">": return compare(left, right) > 0;
+                case "<=": return compare(left, right) <= 0;
+                case ">=": return compare(left, right) >= 0;
+                default: throw Unresolved.INSTANCE;
+            }
+        }
+
+        private Object call(Call call) {
+            List<Node> args = call.args;
+            switch (call.name) {
+                case "SUM": return aggregate(args, 0, Double::sum, 0.0);
+                case "MAX": return aggregate(args, Double.NEGATIVE_INFINITY, Math::max, 0.0);
+                case "MIN": return aggregate(args, Double.POSITIVE_INFINITY, Math::min, 0.0);
+                case "SUMIFS": return sumIfs(args);
+                case "SUMIF": return sumIf(args);
+                case "IF": {
+                    arity(args, 2, 3);
+                    if (toBoolean(eval(args.get(0)))) return eval(args.get(1));
+                    return args.size() > 2 ? eval(args.get(2)) : Boolean.FALSE;
+                }
+                case "IFERROR": {
+                    arity(args, 2, 2);
+                    try {
+                        return eval(args.get(0));
+                    } catch (ErrorValue e) {
+                        return eval(args.get(1));
+                    }
+                }
+                case "AND":
+                case "OR": {
+                    arity(args, 1, Integer.MAX_VALUE);
+                    boolean and = call.name.equals("AND");
+                    boolean result = and;
+                    for (Node arg : args) {
+                        boolean value = toBoolean(eval(arg));
+                        result = and ? result && value : result || value;
+                    }
+                    return result;
+                }
+                case "NOT": arity(args, 1, 1); return !toBoolean(eval(args.get(0)));
+                case "ISBLANK": {
+                    arity(args, 1, 1);
+                    try {
+                        return args.get(0) instanceof Area && eval(args.get(0)) == null;
+                    } catch (ErrorValue e) {
+                        return Boolean.FALSE;
+                    }
+                }
+                case "ABS": arity(args, 1, 1); return Math.abs(toNumber(eval(args.get(0))));
+                case "ROUND": {
+                    arity(args, 2, 2);
+                    double value = toNumber(eval(args.get(0)));
+                    int digits = (int) toNumber(eval(args.get(1)));
+                    if (!Double.isFinite(value)) throw new ErrorValue(FormulaError.NUM);
+                    return BigDecimal.valueOf(value).setScale(digits, RoundingMode.HALF_UP).doubleValue();
+                }
+                case "DATE": {
+                    arity(args, 3, 3);
+                    int year = (int) toNumber(eval(args.get(0)));
+                    int month = (int) toNumber(eval(args.get(1)));
+                    int day = (int) toNumber(eval(args.get(2)));
+                    if (year < 1900) year += 1900;
+                    LocalDate date = LocalDate.of(year, 1, 1).plusMonths(month - 1L).plusDays(day - 1L);
+                    return toSerial(date);
+                }
+                case "EOMONTH": {
+                    arity(args, 2, 2);
+                    LocalDate start = toDate(eval(args.get(0)));
+                    int months = (int) toNumber(eval(args.get(1)));
+                    return toSerial(YearMonth.from(start).plusMonths(months).atEndOfMonth());
+                }
+                case "DAY": arity(args, 1, 1); return (double) toDate(eval(args.get(0))).getDayOfMonth();
+                case "VLOOKUP": return vlookup(args);
+                default: throw Unresolved.INSTANCE;
+            }
+        }
+
+        // SUM/MAX/MIN: range cells count only when numeric, direct values are coerced
+        private Object aggregate(List<Node> args, double identity,
+                                 java.util.function.DoubleBinaryOperator op, double emptyResult) {
+            double result = identity;
+            boolean any = false;
+            for (Node arg : args) {
+                if (arg instanceof Area) {
+                    Area area = (Area) arg;
+                    ResolvedArea resolved = resolve(area);
+                    for (int r = area.firstRow; r <= resolved.lastRow; r++) {
+                        for (int c = area.firstCol; c <= area.lastCol; c++) {
+                            Object value = resolved.get(r, c);
+                            if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+                            if (value instanceof Double) {
+                                result = op.applyAsDouble(result, (Double) value);
+                                any = true;
+                            }
+                        }
+                    }
+                } else {
+                    result = op.applyAsDouble(result, toNumber(eval(arg)));
+                    any = true;
+                }
+            }
+            return any ? result : emptyResult;
+        }
+
+        private Object sumIfs(List<Node> args) {
+            if (args.size() < 3 || args.size() % 2 == 0) throw Unresolved.INSTANCE;
+            Area sumArea = column(args.get(0));
+            int height = height(sumArea);
+            List<Area> ranges = new ArrayList<>();
+            List<Criterion> criteria = new ArrayList<>();
+            for (int i = 1; i < args.size(); i += 2) {
+                Area range = column(args.get(i));
+                if (height(range) != height) throw new ErrorValue(FormulaError.VALUE);
+                ranges.add(range);
+                criteria.add(Criterion.of(eval(args.get(i + 1))));
+            }
+            return sumMatching(sumArea, ranges, criteria);
+        }
+
+        private Object sumIf(List<Node> args) {
+            arity(args, 2, 3);
+            Area range = column(args.get(0));
+            Area sumArea = range;
+            if (args.size() == 3) {
+                Area top = column(args.get(2));
+                // Excel sizes the sum range from the criteria range, anchored at its top-left cell
+                sumArea = new Area(top.sheet, top.firstRow, top.firstCol,
+                    range.lastRow == Integer.MAX_VALUE ? Integer.MAX_VALUE : top.firstRow + (range.lastRow - range.firstRow),
+                    top.firstCol);
+            }
+            return sumMatching(sumArea, List.of(range), List.of(Criterion.of(eval(args.get(1)))));
+        }
+
+        private double sumMatching(Area sumArea, List<Area> ranges, List<Criterion> criteria) {
+            ResolvedArea sums = resolve(sumArea);
+            List<ResolvedArea> resolvedRanges = new ArrayList<>();
+            for (Area range : ranges) resolvedRanges.add(resolve(range));
+
+            // Probe a hash index with the first equality criterion when the range is final
+            int[] candidates = null;
+            for (int i = 0; i < criteria.size() && candidates == null; i++) {
+                if (criteria.get(i).isEquality() && resolvedRanges.get(i).sheet.complete) {
+                    candidates = matchIndex(ranges.get(i), resolvedRanges.get(i))
+                        .getOrDefault(criteria.get(i).indexKey(), new int[0]);
+                }
+            }
+
+            // Rows past the sum range's last recorded row are blank and add nothing
+            double total = 0;
+            int limit = sums.lastRow - sumArea.firstRow;
+            int count = candidates != null ? candidates.length : limit + 1;
+            for (int n = 0; n < count; n++) {
+                int offset = candidates != null ? candidates[n] : n;
+                if (offset > limit) continue;
+                boolean matches = true;
+                for (int i = 0; i < criteria.size() && matches; i++) {
+                    Area range = ranges.get(i);
+                    matches = criteria.get(i).matches(resolvedRanges.get(i).get(range.firstRow + offset, range.firstCol));
+                }
+                if (!matches) continue;
+                Object value = sums.get(sumArea.firstRow + offset, sumArea.firstCol);
+                if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+                if (value instanceof Double) total += (Double) value;
+            }
+            return total;
+        }
+
+        private Object vlookup(List<Node> args) {
+            arity(args, 3, 4);
+            Object lookup = eval(args.get(0));
+            if (!(args.get(1) instanceof Area)) throw Unresolved.INSTANCE;
+            Area table = (Area) args.get(1);
+            int colIndex = (int) toNumber(eval(args.get(2)));
+            boolean exact = args.size() == 4 && !toBoolean(eval(args.get(3)));
+            if (!exact) throw Unresolved.INSTANCE; // approximate match is not generated
+            if (colIndex < 1) throw new ErrorValue(FormulaError.VALUE);
+            if (colIndex > table.lastCol - table.firstCol + 1) throw new ErrorValue(FormulaError.REF);
+
+            Area keyColumn = new Area(table.sheet, table.firstRow, table.firstCol, table.lastRow, table.firstCol);
+            ResolvedArea resolved = resolve(keyColumn);
+            Object key = Criterion.normalize(lookup == null ? 0.0 : lookup);
+            int offset = -1;
+            if (resolved.sheet.complete) {
+                int[] rows = matchIndex(keyColumn, resolved).get(key);
+                if (rows != null) offset = rows[0];
+            } else {
+                for (int r = table.firstRow; r <= resolved.lastRow; r++) {
+                    if (key.equals(Criterion.normalize(resolved.get(r, table.firstCol)))) {
+                        offset = r - table.firstRow;
+                        break;
+                    }
+                }
+            }
+            if (offset < 0) throw new ErrorValue(FormulaError.NA);
+            Object value = resolved.get(table.firstRow + offset, table.firstCol + colIndex - 1);
+            if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+            return value == null ? 0.0 : value; // VLOOKUP of an empty cell returns 0
+        }
+
+        // Row offsets within the range, grouped by normalized cell value
+        private Map<Object, int[]> matchIndex(Area range, ResolvedArea resolved) {
+            String indexKey = resolved.sheetKey + "|" + range.firstCol + "|" + range.firstRow + "|" + range.lastRow;
+            Map<Object, int[]> index = matchIndexes.get(indexKey);
+            if (index != null) return index;
+
+            Map<Object, List<Integer>> grouped = new HashMap<>();
+            for (int r = range.firstRow; r <= resolved.lastRow; r++) {
+                Object value = resolved.get(r, range.firstCol);
+                if (value == null) continue;
+                grouped.computeIfAbsent(Criterion.normalize(value), k -> new ArrayList<>()).add(r - range.firstRow);
+            }
+            index = new HashMap<>(grouped.size() * 2);
+            for (Map.Entry<Object, List<Integer>> entry : grouped.entrySet()) {
+                index.put(entry.getKey(), entry.getValue().stream().mapToInt(Integer::intValue).toArray());
+            }
+            matchIndexes.put(indexKey, index);
+            return index;
+        }
+
+        // ----- references -----
+
+        private Object cell(String sheetName, int rowIndex, int col) {
+            String sheetKey = sheetName == null ? row.sheet : key(sheetName);
+            if (sheetKey.equals(row.sheet) && rowIndex == row.rowIndex) {
+                Object value = row.valueOf(col);
+                if (value == UNRESOLVED) throw Unresolved.INSTANCE;
+                return value;
+            }
+            SheetValues sheet = sheets.get(sheetKey);
+            if (sheet == null || !sheet.isFinal(rowIndex)) throw Unresolved.INSTANCE;
+            return sheet.get(rowIndex, col);
+        }
+
+        private ResolvedArea resolve(Area area) {
+            String sheetKey = area.sheet == null ? row.sheet : key(area.sheet);
+            SheetValues sheet = sheets.get(sheetKey);
+            if (sheet == null) throw Unresolved.INSTANCE;
+            boolean coversCurrentRow = sheetKey.equals(row.sheet)
+                && area.firstRow <= row.rowIndex && area.lastRow >= row.rowIndex;
+            if (coversCurrentRow || (!sheet.complete && area.lastRow > sheet.finalizedThrough)) {
+                throw Unresolved.INSTANCE;
+            }
+            return new ResolvedArea(sheetKey, sheet, Math.min(area.lastRow, sheet.lastRow()));
+        }
+
+        private Area column(Node node) {
+            if (!(node instanceof Area)) throw Unresolved.INSTANCE;
+            Area area = (Area) node;
+            if (area.firstCol != area.lastCol) throw Unresolved.INSTANCE;
+            return area;
+        }
+
+        private int height(Area area) {
+            return area.lastRow == Integer.MAX_VALUE ? Integer.MAX_VALUE : area.lastRow - area.firstRow + 1;
+        }
+
+        private void arity(List<Node> args, int min, int max) {
+            if (args.size() < min || args.size() > max) throw Unresolved.INSTANCE;
+        }
+    }
+
+    private static final class ResolvedArea {
+        final String sheetKey;
+        final SheetValues sheet;
+        final int lastRow; // last row holding data (rows beyond are blank)
+
+        ResolvedArea(String sheetKey, SheetValues sheet, int lastRow) {
+            this.sheetKey = sheetKey;
+            this.sheet = sheet;
+            this.lastRow = lastRow;
+        }
+
+        Object get(int rowIndex, int col) {
+            return rowIndex > lastRow ? null : sheet.get(rowIndex, col);
+        }
+    }
+
+    // ===== CRITERIA =====
+
+    /**
+     * SUMIFS/SUMIF criterion: 5, "OWNER", ">="&DATE(2024,1,1), "<>" ...
+     */
+    private static final class Criterion {
+        final String op;
+        final Object operand; // Double, Boolean or lower-case String
+
+        private Criterion(String op, Object operand) {
+            this.op = op;
+            this.operand = operand;
+        }
+
+        static Criterion of(Object value) {
+            if (value == null) return new Criterion("=", 0.0); // an empty criteria cell means 0
+            if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+            if (!(value instanceof String)) return new Criterion("=", value);
+
+            String text = (String) value;
+            String op = "=";
+            for (String candidate : new String[]{"<=", ">=", "<>", "=", "<", ">"}) {
+                if (text.startsWith(candidate)) {
+                    op = candidate;
+                    text = text.substring(candidate.length());
+                    break;
+                }
+            }
+            if (text.indexOf('*') >= 0 || text.indexOf('?') >= 0) throw Unresolved.INSTANCE; // wildcards not generated
+            Double number = parseNumber(text);
+            if (number != null) return new Criterion(op, number);
+            if (text.equalsIgnoreCase("TRUE") || text.equalsIgnoreCase("FALSE")) {
+                return new Criterion(op, Boolean.valueOf(text.toUpperCase(Locale.ROOT)));
+            }
+            return new Criterion(op, text.toLowerCase(Locale.ROOT));
+        }
+
+        boolean isEquality() {
+            return op.equals("=") && !"".equals(operand);
+        }
+
+        Object indexKey() {
+            return operand;
+        }
+
+        boolean matches(Object cell) {
+            switch (op) {
+                case "=": return equalsCell(cell);
+                case "<>": return !equalsCell(cell);
+                default: {
+                    int cmp;
+                    if (operand instanceof Double && cell instanceof Double) {
+                        cmp = Double.compare((Double) cell, (Double) operand);
+                    } else if (operand instanceof String && cell instanceof String) {
+                        cmp = ((String) cell).compareToIgnoreCase((String) operand);
+                    } else {
+                        return false;
+                    }
+                    switch (op) {
+                        case "<": return cmp < 0;
+                        case ">": return cmp > 0;
+                        case "<=": return cmp <= 0;
+                        default: return cmp >= 0;
+                    }
+                }
+            }
+        }
+
+        private boolean equalsCell(Object cell) {
+            if ("".equals(operand)) return cell == null || "".equals(cell);
+            return cell != null && operand.equals(normalize(cell));
+        }
+
+        /** Hash key used for equality matching: numbers (including numeric text), booleans, lower-case text. */
+        static Object normalize(Object value) {
+            if (value == null) return "";
+            if (value instanceof Double) return ((Double) value) == 0.0 ? 0.0 : value;
+            if (value instanceof String) {
+                Double number = parseNumber((String) value);
+                return number != null ? number : ((String) value).toLowerCase(Locale.ROOT);
+            }
+            return value;
+        }
+
+        private static Double parseNumber(String text) {
+            String t = text.trim();
+            if (t.isEmpty()) return null;
+            char first = t.charAt(0);
+            if (!Character.isDigit(first) && first != '-' && first != '+' && first != '.') return null;
+            try {
+                double d = Double.parseDouble(t);
+                return d == 0.0 ? 0.0 : d;
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+    }
+
+    // ===== COERCION =====
+
+    private static double toNumber(Object value) {
+        if (value == null) return 0;
+        if (value instanceof Double) return (Double) value;
+        if (value instanceof Boolean) return ((Boolean) value) ? 1 : 0;
+        if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+        Double number = Criterion.parseNumber((String) value);
+        if (number == null) throw new ErrorValue(FormulaError.VALUE);
+        return number;
+    }
+
+    private static boolean toBoolean(Object value) {
+        if (value == null) return false;
+        if (value instanceof Boolean) return (Boolean) value;
+        if (value instanceof Double) return (Double) value != 0;
+        if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+        String text = (String) value;
+        if (text.equalsIgnoreCase("TRUE")) return true;
+        if (text.equalsIgnoreCase("FALSE")) return false;
+        throw new ErrorValue(FormulaError.VALUE);
+    }
+
+    private static String toText(Object value) {
+        if (value == null) return "";
+        if (value instanceof Boolean) return ((Boolean) value) ? "TRUE" : "FALSE";
+        if (value instanceof FormulaError) throw new ErrorValue((FormulaError) value);
+        if (value instanceof Double) {
+            double d = (Double) value;
+            if (d == Math.rint(d) && Math.abs(d) < 1e15) return Long.toString((long) d);
+            return BigDecimal.valueOf(d).stripTrailingZeros().toPlainString();
+        }
+        return (String) value;
+    }
+
+    // Excel ordering: blank adopts the other side's type; numbers < text < booleans; text ignores case
+    private static int compare(Object left, Object right) {
+        if (left instanceof FormulaError) throw new ErrorValue((FormulaError) left);
+        if (right instanceof FormulaError) throw new ErrorValue((FormulaError) right);
+        if (left == null) left = blankLike(right);
+        if (right == null) right = blankLike(left);
+        int leftRank = rank(left);
+        int rightRank = rank(right);
+        if (leftRank != rightRank) return Integer.compare(leftRank, rightRank);
+        if (left instanceof Double) return Double.compare((Double) left, (Double) right);
+        if (left instanceof Boolean) return Boolean.compare((Boolean) left, (Boolean) right);
+        return ((String) left).compareToIgnoreCase((String) right);
+    }
+
+    private static Object blankLike(Object other) {
+        if (other instanceof String) return "";
+        if (other instanceof Boolean) return Boolean.FALSE;
+        return 0.0;
+    }
+
+    private static int rank(Object value) {
+        if (value instanceof Double) return 0;
+        if (value instanceof String) return 1;
+        return 2;
+    }
+
+    private static double toSerial(LocalDate date) {
+        return DateUtil.getExcelDate(date);
+    }
+
+    private static LocalDate toDate(Object value) {
+        double serial = toNumber(value);
+        if (serial < 1 || !DateUtil.isValidExcelDate(serial)) throw new ErrorValue(FormulaError.NUM);
+        return DateUtil.getLocalDateTime(Math.floor(serial)).toLocalDate();
+    }
+}
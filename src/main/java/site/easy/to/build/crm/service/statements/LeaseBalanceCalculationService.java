@@ -7,6 +7,7 @@ import site.easy.to.build.crm.entity.Payment;
 import site.easy.to.build.crm.repository.PaymentRepository;
 import site.easy.to.build.crm.repository.FinancialTransactionRepository;
 import site.easy.to.build.crm.repository.HistoricalTransactionRepository;
+import site.easy.to.build.crm.service.invoice.RentScheduleEngine;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -30,6 +31,9 @@ public class LeaseBalanceCalculationService {
     @Autowired
     private FinancialTransactionRepository financialTransactionRepository;
 
+    @Autowired
+    private RentScheduleEngine rentScheduleEngine;
+
     /**
      * Calculate rent due for a lease within a specific date range
      * Handles prorating for partial periods
@@ -68,13 +72,14 @@ public class LeaseBalanceCalculationService {
         // Calculate based on frequency
         switch (lease.getFrequency()) {
             case monthly:
-                return calculateMonthlyRentDue(lease.getAmount(), effectiveStart, effectiveEnd);
-            case weekly:
-                return calculateWeeklyRentDue(lease.getAmount(), effectiveStart, effectiveEnd);
             case quarterly:
-                return calculateQuarterlyRentDue(lease.getAmount(), effectiveStart, effectiveEnd);
             case yearly:
-                return calculateYearlyRentDue(lease.getAmount(), effectiveStart, effectiveEnd);
+                // Month-based cycles: rent in advance from the shared rent schedule
+                return rentScheduleEngine.scheduleFor(lease.getId(), leaseStart, leaseEnd, lease.getAmount(),
+                        cycleMonths(lease), lease.getPaymentDay(), periodEnd)
+                    .rentDueBetween(periodStart, periodEnd);
+            case weekly:
+                return calculateWeeklyRentDue(lease.getAmount(), effectiveStart, effectiveEnd);
             case one_time:
                 // If lease start is within period, charge full amount
                 if (!leaseStart.isBefore(periodStart) && !leaseStart.isAfter(periodEnd)) {
@@ -89,28 +94,22 @@ public class LeaseBalanceCalculationService {
     }
 
     /**
-     * Calculate monthly rent due (with prorating for partial months)
+     * Billing cycle length in months, preferring the lease's own frequencyMonths
+     * (e.g. 6 for semi-annual PayProp leases) over the frequency enum default
      */
-    private BigDecimal calculateMonthlyRentDue(BigDecimal monthlyAmount, LocalDate start, LocalDate end) {
-        // Count number of months
-        long days = ChronoUnit.DAYS.between(start, end) + 1; // Inclusive
-
-        // If less than a month, prorate
-        if (days < 28) {
-            // Prorate based on days (assume 30 days per month for simplicity)
-            BigDecimal dailyRate = monthlyAmount.divide(new BigDecimal("30"), 6, RoundingMode.HALF_UP);
-            return dailyRate.multiply(new BigDecimal(days)).setScale(2, RoundingMode.HALF_UP);
+    private int cycleMonths(Invoice lease) {
+        Integer frequencyMonths = lease.getFrequencyMonths();
+        if (frequencyMonths != null && frequencyMonths > 1) {
+            return frequencyMonths;
         }
-
-        // Calculate number of full months
-        long months = ChronoUnit.MONTHS.between(start, end);
-
-        // If the period is partial (doesn't end on month boundary), add one more month
-        if (end.getDayOfMonth() >= start.getDayOfMonth() || months == 0) {
-            months = months + 1;
+        switch (lease.getFrequency()) {
+            case quarterly:
+                return 3;
+            case yearly:
+                return 12;
+            default:
+                return 1;
         }
-
-        return monthlyAmount.multiply(new BigDecimal(months));
     }
 
     /**
@@ -125,31 +124,6 @@ public class LeaseBalanceCalculationService {
         return weeklyAmount.multiply(new BigDecimal(weeks));
     }
 
-    /**
-     * Calculate quarterly rent due
-     */
-    private BigDecimal calculateQuarterlyRentDue(BigDecimal quarterlyAmount, LocalDate start, LocalDate end) {
-        long months = ChronoUnit.MONTHS.between(start, end);
-        long quarters = months / 3;
-        if (months % 3 > 0) {
-            quarters++; // Include partial quarter
-        }
-        return quarterlyAmount.multiply(new BigDecimal(Math.max(1, quarters)));
-    }
-
-    /**
-     * Calculate yearly rent due
-     */
-    private BigDecimal calculateYearlyRentDue(BigDecimal yearlyAmount, LocalDate start, LocalDate end) {
-        long days = ChronoUnit.DAYS.between(start, end) + 1;
-        if (days >= 365) {
-            return yearlyAmount;
-        }
-        // Prorate for partial year
-        BigDecimal dailyRate = yearlyAmount.divide(new BigDecimal("365"), 6, RoundingMode.HALF_UP);
-        return dailyRate.multiply(new BigDecimal(days)).setScale(2, RoundingMode.HALF_UP);
-    }
-
     /**
      * Calculate daily rent due
      */
@@ -2,7 +2,10 @@ package site.easy.to.build.crm.service.synchronization;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import site.easy.to.build.crm.entity.Customer;
@@ -10,9 +13,13 @@ import site.easy.to.build.crm.entity.Tenant;
 import site.easy.to.build.crm.repository.TenantRepository;
 import site.easy.to.build.crm.service.customer.CustomerService;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
 
 /**
  * Service to maintain bidirectional synchronization between Tenants and Customers tables.
@@ -27,72 +34,129 @@ import java.util.Map;
  * - Based on matching payprop_id ↔ payprop_entity_id
  * - Runs during full sync and can be triggered manually
  * - Idempotent - safe to run multiple times
+ * - Set-based: one join and one bulk UPDATE, cheap enough to run after every import
  */
 @Service
 public class TenantCustomerLinkService {
 
     private static final Logger log = LoggerFactory.getLogger(TenantCustomerLinkService.class);
 
+    // Tenants with a PayProp id, joined to the customers sharing it; n > 1 means the match is ambiguous
+    private static final String MATCH_JOIN =
+        "FROM tenants t " +
+        "LEFT JOIN (SELECT payprop_entity_id, MIN(customer_id) AS customer_id, COUNT(*) AS n " +
+        "           FROM customers WHERE payprop_entity_id IS NOT NULL AND payprop_entity_id <> '' " +
+        "           GROUP BY payprop_entity_id) m ON m.payprop_entity_id = t.payprop_id " +
+        "WHERE t.payprop_id IS NOT NULL AND t.payprop_id <> '' ";
+
+    private static final String STATUS_SQL =
+        "SELECT COUNT(*) AS total, " +
+        "       COALESCE(SUM(t.customer_id IS NOT NULL), 0) AS linked, " +
+        "       COALESCE(SUM(t.customer_id IS NULL AND m.n = 1), 0) AS match_available, " +
+        "       COALESCE(SUM(t.customer_id IS NULL AND m.n > 1), 0) AS ambiguous " +
+        MATCH_JOIN;
+
+    private static final String LINK_SQL =
+        "UPDATE tenants t " +
+        "JOIN (SELECT payprop_entity_id, MIN(customer_id) AS customer_id " +
+        "      FROM customers WHERE payprop_entity_id IS NOT NULL AND payprop_entity_id <> '' " +
+        "      GROUP BY payprop_entity_id HAVING COUNT(*) = 1) m ON m.payprop_entity_id = t.payprop_id " +
+        "SET t.customer_id = m.customer_id, t.updated_at = NOW() " +
+        "WHERE t.customer_id IS NULL";
+
+    // Unlinked tenants left after the update, for the report
+    private static final String UNLINKED_SQL =
+        "SELECT t.payprop_id, COALESCE(m.n, 0) AS n " + MATCH_JOIN + "AND t.customer_id IS NULL ";
+
+    private static final int REPORT_SAMPLE_SIZE = 50;
+    private static final int ID_BATCH_SIZE = 500;
+
     @Autowired
     private TenantRepository tenantRepository;
 
     @Autowired
     private CustomerService customerService;
 
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
     /**
      * Link all unlinked tenants to their corresponding customer records.
      * This is the main method called during sync operations.
      *
+     * Linking is one UPDATE joining tenants to customers on payprop_id = payprop_entity_id, so
+     * it costs a couple of indexed queries however many tenants there are. PayProp ids shared by
+     * more than one customer are left unlinked and reported as ambiguous.
+     *
      * @return LinkResult with statistics
      */
     @Transactional
     public LinkResult linkAllTenantsToCustomers() {
+        return link(null);
+    }
+
+    /**
+     * Link tenants by PayProp ID list (useful for batch operations).
+     *
+     * @param payPropIds List of PayProp tenant IDs to link
+     * @return LinkResult with statistics
+     */
+    @Transactional
+    public LinkResult linkTenantsByPayPropIds(List<String> payPropIds) {
+        log.info("🔗 Linking {} specific tenants to customers", payPropIds.size());
+        return link(payPropIds);
+    }
+
+    private LinkResult link(List<String> payPropIds) {
         log.info("🔗 Starting tenant-customer synchronization...");
 
         LinkResult result = new LinkResult();
         long startTime = System.currentTimeMillis();
 
         try {
-            // Find all tenants with payprop_id
-            List<Tenant> allTenants = tenantRepository.findByPayPropIdIsNotNull();
-            result.setTotalTenantsChecked(allTenants.size());
-
-            log.info("📊 Found {} tenants with PayProp IDs to check", allTenants.size());
-
-            for (Tenant tenant : allTenants) {
-                try {
-                    boolean linked = linkSingleTenant(tenant);
-                    if (linked) {
-                        result.incrementLinked();
-                        log.debug("✅ Linked tenant {} to customer", tenant.getPayPropId());
-                    } else {
-                        result.incrementAlreadyLinked();
-                        log.debug("ℹ️ Tenant {} already linked", tenant.getPayPropId());
-                    }
-                } catch (CustomerNotFoundException e) {
-                    result.incrementNoMatchingCustomer();
-                    log.warn("⚠️ No matching customer for tenant {} ({})",
-                        getTenantDisplayName(tenant), tenant.getPayPropId());
-                } catch (Exception e) {
-                    result.incrementErrors();
-                    log.error("❌ Failed to link tenant {}: {}",
-                        tenant.getPayPropId(), e.getMessage(), e);
+            // Tenants saved earlier in this transaction must be visible to the SQL below
+            entityManager.flush();
+
+            if (payPropIds == null) {
+                LinkStatus before = queryStatus("");
+                result.setTotalTenantsChecked(before.total);
+                result.setAlreadyLinked(before.linked);
+                result.setNewlyLinked(jdbcTemplate.update(LINK_SQL));
+                collectUnlinked("", new Object[0], result);
+            } else {
+                List<String> ids = payPropIds.stream().filter(Objects::nonNull).distinct().collect(Collectors.toList());
+                for (int from = 0; from < ids.size(); from += ID_BATCH_SIZE) {
+                    List<String> batch = ids.subList(from, Math.min(from + ID_BATCH_SIZE, ids.size()));
+                    String filter = "AND t.payprop_id IN (" + String.join(",", Collections.nCopies(batch.size(), "?")) + ") ";
+                    Object[] args = batch.toArray();
+                    LinkStatus before = queryStatus(filter, args);
+                    result.setTotalTenantsChecked(result.getTotalTenantsChecked() + before.total);
+                    result.setAlreadyLinked(result.getAlreadyLinked() + before.linked);
+                    result.setNewlyLinked(result.getNewlyLinked() + jdbcTemplate.update(LINK_SQL + " " + filter, args));
+                    collectUnlinked(filter, args, result);
                 }
             }
 
             long duration = System.currentTimeMillis() - startTime;
             result.setDurationMs(duration);
-            result.setSuccess(result.getErrors() == 0);
+            result.setSuccess(true);
 
             log.info("✅ Tenant-customer linking completed in {}ms", duration);
-            log.info("📊 Results: {} newly linked, {} already linked, {} no match, {} errors",
+            log.info("📊 Results: {} newly linked, {} already linked, {} no match, {} ambiguous",
                 result.getNewlyLinked(), result.getAlreadyLinked(),
-                result.getNoMatchingCustomer(), result.getErrors());
+                result.getNoMatchingCustomer(), result.getAmbiguous());
+            if (!result.getAmbiguousPayPropIds().isEmpty()) {
+                log.warn("⚠️ Tenants matching several customers: {}", result.getAmbiguousPayPropIds());
+            }
 
             return result;
 
         } catch (Exception e) {
             log.error("❌ Tenant-customer linking failed", e);
+            result.incrementErrors();
             result.setSuccess(false);
             result.setErrorMessage(e.getMessage());
             result.setDurationMs(System.currentTimeMillis() - startTime);
@@ -100,6 +164,22 @@ public class TenantCustomerLinkService {
         }
     }
 
+    private void collectUnlinked(String filter, Object[] args, LinkResult result) {
+        jdbcTemplate.query(UNLINKED_SQL + filter + "ORDER BY t.payprop_id", rs -> {
+            String payPropId = rs.getString("payprop_id");
+            if (rs.getInt("n") > 1) {
+                result.addAmbiguous(payPropId);
+            } else {
+                result.addNoMatchingCustomer(payPropId);
+            }
+        }, args);
+    }
+
+    private LinkStatus queryStatus(String filter, Object... args) {
+        return jdbcTemplate.queryForObject(STATUS_SQL + filter, (rs, rowNum) -> new LinkStatus(
+            rs.getInt("total"), rs.getInt("linked"), rs.getInt("match_available"), rs.getInt("ambiguous")), args);
+    }
+
     /**
      * Link a specific tenant to their customer record.
      *
@@ -138,82 +218,26 @@ public class TenantCustomerLinkService {
         return true;
     }
 
-    /**
-     * Link tenants by PayProp ID list (useful for batch operations).
-     *
-     * @param payPropIds List of PayProp tenant IDs to link
-     * @return LinkResult with statistics
-     */
-    @Transactional
-    public LinkResult linkTenantsByPayPropIds(List<String> payPropIds) {
-        log.info("🔗 Linking {} specific tenants to customers", payPropIds.size());
-
-        LinkResult result = new LinkResult();
-        long startTime = System.currentTimeMillis();
-
-        for (String payPropId : payPropIds) {
-            try {
-                Tenant tenant = tenantRepository.findByPayPropId(payPropId)
-                    .orElseThrow(() -> new IllegalArgumentException("Tenant not found: " + payPropId));
-
-                boolean linked = linkSingleTenant(tenant);
-                if (linked) {
-                    result.incrementLinked();
-                } else {
-                    result.incrementAlreadyLinked();
-                }
-
-            } catch (CustomerNotFoundException e) {
-                result.incrementNoMatchingCustomer();
-                log.warn("⚠️ No matching customer for payprop_id={}", payPropId);
-            } catch (Exception e) {
-                result.incrementErrors();
-                log.error("❌ Failed to link tenant {}: {}", payPropId, e.getMessage());
-            }
-        }
-
-        result.setTotalTenantsChecked(payPropIds.size());
-        result.setDurationMs(System.currentTimeMillis() - startTime);
-        result.setSuccess(result.getErrors() == 0);
-
-        return result;
-    }
-
     /**
      * Check linking status without making changes.
      *
      * @return Map with statistics
      */
     public Map<String, Integer> checkLinkingStatus() {
-        Map<String, Integer> status = new HashMap<>();
+        LinkStatus current = queryStatus("");
+        int unlinked = current.total - current.linked;
+        int noMatch = unlinked - current.matchAvailable - current.ambiguous;
 
-        List<Tenant> allTenants = tenantRepository.findByPayPropIdIsNotNull();
-        int totalWithPayProp = allTenants.size();
-        int linked = 0;
-        int unlinked = 0;
-        int matchAvailable = 0;
-
-        for (Tenant tenant : allTenants) {
-            if (tenant.getCustomer() != null) {
-                linked++;
-            } else {
-                unlinked++;
-                // Check if matching customer exists
-                Customer customer = customerService.findByPayPropEntityId(tenant.getPayPropId());
-                if (customer != null) {
-                    matchAvailable++;
-                }
-            }
-        }
-
-        status.put("totalTenantsWithPayPropId", totalWithPayProp);
-        status.put("linked", linked);
+        Map<String, Integer> status = new HashMap<>();
+        status.put("totalTenantsWithPayPropId", current.total);
+        status.put("linked", current.linked);
         status.put("unlinked", unlinked);
-        status.put("unlinkedWithMatchAvailable", matchAvailable);
-        status.put("unlinkedWithNoMatch", unlinked - matchAvailable);
+        status.put("unlinkedWithMatchAvailable", current.matchAvailable);
+        status.put("unlinkedAmbiguous", current.ambiguous);
+        status.put("unlinkedWithNoMatch", noMatch);
 
-        log.info("📊 Linking Status: {} total, {} linked, {} unlinked ({} can be linked, {} no match)",
-            totalWithPayProp, linked, unlinked, matchAvailable, unlinked - matchAvailable);
+        log.info("📊 Linking Status: {} total, {} linked, {} unlinked ({} can be linked, {} ambiguous, {} no match)",
+            current.total, current.linked, unlinked, current.matchAvailable, current.ambiguous, noMatch);
 
         return status;
     }
@@ -236,6 +260,9 @@ public class TenantCustomerLinkService {
         private int newlyLinked;
         private int alreadyLinked;
         private int noMatchingCustomer;
+        private int ambiguous;
+        private final List<String> unmatchedPayPropIds = new ArrayList<>();
+        private final List<String> ambiguousPayPropIds = new ArrayList<>();
         private int errors;
         private long durationMs;
         private String errorMessage;
@@ -247,14 +274,36 @@ public class TenantCustomerLinkService {
         public void setTotalTenantsChecked(int total) { this.totalTenantsChecked = total; }
 
         public int getNewlyLinked() { return newlyLinked; }
+        public void setNewlyLinked(int newlyLinked) { this.newlyLinked = newlyLinked; }
         public void incrementLinked() { this.newlyLinked++; }
 
         public int getAlreadyLinked() { return alreadyLinked; }
+        public void setAlreadyLinked(int alreadyLinked) { this.alreadyLinked = alreadyLinked; }
         public void incrementAlreadyLinked() { this.alreadyLinked++; }
 
         public int getNoMatchingCustomer() { return noMatchingCustomer; }
         public void incrementNoMatchingCustomer() { this.noMatchingCustomer++; }
 
+        public int getAmbiguous() { return ambiguous; }
+
+        // Reports keep the first REPORT_SAMPLE_SIZE ids; the counts cover every row
+        public List<String> getUnmatchedPayPropIds() { return unmatchedPayPropIds; }
+        public List<String> getAmbiguousPayPropIds() { return ambiguousPayPropIds; }
+
+        void addNoMatchingCustomer(String payPropId) {
+            noMatchingCustomer++;
+            if (unmatchedPayPropIds.size() < REPORT_SAMPLE_SIZE) {
+                unmatchedPayPropIds.add(payPropId);
+            }
+        }
+
+        void addAmbiguous(String payPropId) {
+            ambiguous++;
+            if (ambiguousPayPropIds.size() < REPORT_SAMPLE_SIZE) {
+                ambiguousPayPropIds.add(payPropId);
+            }
+        }
+
         public int getErrors() { return errors; }
         public void incrementErrors() { this.errors++; }
 
@@ -265,8 +314,22 @@ public class TenantCustomerLinkService {
         public void setErrorMessage(String message) { this.errorMessage = message; }
 
         public String getSummary() {
-            return String.format("Checked %d tenants: %d newly linked, %d already linked, %d no match, %d errors",
-                totalTenantsChecked, newlyLinked, alreadyLinked, noMatchingCustomer, errors);
+            return String.format("Checked %d tenants: %d newly linked, %d already linked, %d no match, %d ambiguous, %d errors",
+                totalTenantsChecked, newlyLinked, alreadyLinked, noMatchingCustomer, ambiguous, errors);
+        }
+    }
+
+    private static final class LinkStatus {
+        final int total;
+        final int linked;
+        final int matchAvailable;
+        final int ambiguous;
+
+        LinkStatus(int total, int linked, int matchAvailable, int ambiguous) {
+            this.total = total;
+            this.linked = linked;
+            this.matchAvailable = matchAvailable;
+            this.ambiguous = ambiguous;
         }
     }
 
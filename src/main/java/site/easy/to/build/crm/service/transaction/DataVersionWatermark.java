@@ -0,0 +1,158 @@
+package site.easy.to.build.crm.service.transaction;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Predicate;
+
+/**
+ * Data Version Watermark
+ *
+ * Cheap fingerprint of the source tables behind unified_transactions / unified_allocations:
+ * row count, max id and (where the table has one) max updated_at per table.
+ *
+ * Captured before a full rebuild and stored when it succeeds. On startup the current watermark
+ * is compared with the stored one to decide whether the unified tables need rebuilding at all.
+ */
+public final class DataVersionWatermark {
+
+    /**
+     * What startup has to do to bring the unified tables up to date.
+     */
+    public enum Plan {
+        /** Source tables unchanged since the last successful rebuild */
+        SKIP,
+        /** Only new/updated rows in historical_transactions / financial_transactions */
+        INCREMENTAL,
+        /** Anything else (deletes, allocation/correction changes, no previous watermark) */
+        FULL
+    }
+
+    private final Map<String, TableVersion> tables;
+
+    public DataVersionWatermark(Collection<TableVersion> tables) {
+        Map<String, TableVersion> byName = new LinkedHashMap<>();
+        for (TableVersion table : tables) {
+            byName.put(table.getTable(), table);
+        }
+        this.tables = Collections.unmodifiableMap(byName);
+    }
+
+    public Collection<TableVersion> getTables() {
+        return tables.values();
+    }
+
+    public TableVersion get(String table) {
+        return tables.get(table);
+    }
+
+    /**
+     * Tables whose version differs from the previous watermark (all tables if there is none).
+     */
+    public List<String> changedSince(DataVersionWatermark previous) {
+        List<String> changed = new ArrayList<>();
+        for (TableVersion current : tables.values()) {
+            TableVersion before = previous != null ? previous.get(current.getTable()) : null;
+            if (!current.equals(before)) {
+                changed.add(current.getTable());
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Earliest max updated_at of the given tables in this watermark, or null if any is unknown.
+     */
+    public LocalDateTime earliestUpdate(Collection<String> tableNames) {
+        LocalDateTime earliest = null;
+        for (String name : tableNames) {
+            TableVersion table = tables.get(name);
+            if (table == null || table.getMaxUpdatedAt() == null) {
+                return null;
+            }
+            if (earliest == null || table.getMaxUpdatedAt().isBefore(earliest)) {
+                earliest = table.getMaxUpdatedAt();
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * Decide the startup plan.
+     *
+     * @param previous watermark stored by the last successful rebuild (null if none)
+     * @param current watermark of the source tables now
+     * @param incrementalTables tables rebuildIncremental can replay from updated_at
+     * @param appendOrUpdateOnly whether a changed incremental table only gained/updated rows
+     *                           since the previous watermark (no deletes, no rows missing updated_at)
+     * @param unifiedEmpty whether unified_transactions is currently empty
+     */
+    public static Plan plan(DataVersionWatermark previous, DataVersionWatermark current,
+                            Set<String> incrementalTables,
+                            Predicate<String> appendOrUpdateOnly,
+                            boolean unifiedEmpty) {
+        if (previous == null || unifiedEmpty) {
+            return Plan.FULL;
+        }
+        List<String> changed = current.changedSince(previous);
+        if (changed.isEmpty()) {
+            return Plan.SKIP;
+        }
+        for (String table : changed) {
+            if (!incrementalTables.contains(table) || !appendOrUpdateOnly.test(table)) {
+                return Plan.FULL;
+            }
+        }
+        return previous.earliestUpdate(incrementalTables) != null ? Plan.INCREMENTAL : Plan.FULL;
+    }
+
+    @Override
+    public String toString() {
+        return tables.values().toString();
+    }
+
+    /**
+     * Version of one source table. A table that could not be read has rowCount -1.
+     */
+    public static final class TableVersion {
+        private final String table;
+        private final long rowCount;
+        private final long maxId;
+        private final LocalDateTime maxUpdatedAt;
+
+        public TableVersion(String table, long rowCount, long maxId, LocalDateTime maxUpdatedAt) {
+            this.table = table;
+            this.rowCount = rowCount;
+            this.maxId = maxId;
+            this.maxUpdatedAt = maxUpdatedAt;
+        }
+
+        public static TableVersion unavailable(String table) {
+            return new TableVersion(table, -1, -1, null);
+        }
+
+        public String getTable() { return table; }
+        public long getRowCount() { return rowCount; }
+        public long getMaxId() { return maxId; }
+        public LocalDateTime getMaxUpdatedAt() { return maxUpdatedAt; }
+        public boolean isAvailable() { return rowCount >= 0; }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof TableVersion)) return false;
+            TableVersion that = (TableVersion) o;
+            return rowCount == that.rowCount && maxId == that.maxId
+                && table.equals(that.table) && Objects.equals(maxUpdatedAt, that.maxUpdatedAt);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(table, rowCount, maxId, maxUpdatedAt);
+        }
+
+        @Override
+        public String toString() {
+            return table + "[rows=" + rowCount + ", maxId=" + maxId + ", maxUpdated=" + maxUpdatedAt + "]";
+        }
+    }
+}
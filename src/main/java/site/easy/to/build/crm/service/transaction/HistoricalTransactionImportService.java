@@ -836,7 +836,7 @@ public class HistoricalTransactionImportService {
     /**
      * Parse CSV line handling quoted values
      */
-    private String[] parseCsvLine(String line) {
+    static String[] parseCsvLine(String line) {
         List<String> values = new ArrayList<>();
         StringBuilder currentValue = new StringBuilder();
         boolean inQuotes = false;
@@ -1681,7 +1681,7 @@ public class HistoricalTransactionImportService {
      * Generate unique fingerprint for transaction
      * Used for in-memory duplicate detection within same paste
      */
-    private String generateTransactionFingerprint(HistoricalTransaction transaction) {
+    static String generateTransactionFingerprint(HistoricalTransaction transaction) {
         return String.format("%s|%s|%s|%s|%s|%s",
             transaction.getTransactionDate(),
             transaction.getAmount(),
@@ -0,0 +1,177 @@
+package site.easy.to.build.crm.service.transaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Unified Data Watermark Service
+ *
+ * Captures and persists the DataVersionWatermark of the unified rebuild's source tables.
+ * The watermark of the last successful full rebuild is kept in unified_rebuild_watermark
+ * (one row per source table), so startup can tell whether anything changed since.
+ *
+ * Allocation edits move transaction_batch_allocations.updated_at, and since allocations are only
+ * rebuilt in full, any allocation change plans a FULL rebuild.
+ *
+ * Note: payprop_report_all_payments has no updated_at, so only inserts/deletes are visible
+ * there. PayProp syncs run rebuildComplete() themselves, which records a fresh watermark.
+ */
+@Service
+public class UnifiedDataWatermarkService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnifiedDataWatermarkService.class);
+
+    public static final String HISTORICAL_TRANSACTIONS = "historical_transactions";
+    public static final String FINANCIAL_TRANSACTIONS = "financial_transactions";
+
+    /**
+     * Tables rebuildIncremental() replays from updated_at
+     */
+    public static final Set<String> INCREMENTAL_TABLES =
+        Collections.unmodifiableSet(new LinkedHashSet<>(List.of(HISTORICAL_TRANSACTIONS, FINANCIAL_TRANSACTIONS)));
+
+    /**
+     * Source tables of the rebuild and their update timestamp column (null if none)
+     */
+    private static final Map<String, String> SOURCE_TABLES = new LinkedHashMap<>();
+    static {
+        SOURCE_TABLES.put(HISTORICAL_TRANSACTIONS, "updated_at");
+        SOURCE_TABLES.put(FINANCIAL_TRANSACTIONS, "updated_at");
+        SOURCE_TABLES.put("transaction_batch_allocations", "updated_at");
+        SOURCE_TABLES.put("payment_corrections", "updated_at");
+        SOURCE_TABLES.put("payprop_report_all_payments", null);
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile boolean tableVerified;
+
+    /**
+     * Current watermark of the source tables.
+     */
+    public DataVersionWatermark capture() {
+        List<DataVersionWatermark.TableVersion> versions = new ArrayList<>();
+        for (Map.Entry<String, String> source : SOURCE_TABLES.entrySet()) {
+            versions.add(captureTable(source.getKey(), source.getValue()));
+        }
+        return new DataVersionWatermark(versions);
+    }
+
+    private DataVersionWatermark.TableVersion captureTable(String table, String updatedColumn) {
+        String sql = "SELECT COUNT(*), COALESCE(MAX(id), 0), "
+            + (updatedColumn != null ? "MAX(" + updatedColumn + ")" : "NULL")
+            + " FROM " + table;
+        try {
+            return jdbcTemplate.queryForObject(sql, (rs, rowNum) -> new DataVersionWatermark.TableVersion(
+                table, rs.getLong(1), rs.getLong(2), toLocalDateTime(rs.getTimestamp(3))));
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read data version of {}: {}", table, e.getMessage());
+            return DataVersionWatermark.TableVersion.unavailable(table);
+        }
+    }
+
+    /**
+     * Watermark recorded by the last successful full rebuild, or null if there is none.
+     */
+    public DataVersionWatermark loadLastRebuild() {
+        ensureTable();
+        try {
+            List<DataVersionWatermark.TableVersion> versions = jdbcTemplate.query(
+                "SELECT source_table, row_count, max_id, max_updated_at FROM unified_rebuild_watermark",
+                (rs, rowNum) -> new DataVersionWatermark.TableVersion(rs.getString(1), rs.getLong(2),
+                    rs.getLong(3), toLocalDateTime(rs.getTimestamp(4))));
+            // A watermark missing any current source table cannot prove anything
+            Set<String> recorded = new HashSet<>();
+            versions.forEach(v -> recorded.add(v.getTable()));
+            return recorded.containsAll(SOURCE_TABLES.keySet()) ? new DataVersionWatermark(versions) : null;
+        } catch (Exception e) {
+            log.warn("⚠️ Could not read unified rebuild watermark: {}", e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Store the watermark of a successful rebuild (captured before the rebuild started).
+     */
+    public void record(DataVersionWatermark watermark, String batchId) {
+        ensureTable();
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> rows = new ArrayList<>();
+        for (DataVersionWatermark.TableVersion table : watermark.getTables()) {
+            rows.add(new Object[]{table.getTable(), table.getRowCount(), table.getMaxId(),
+                table.getMaxUpdatedAt() != null ? Timestamp.valueOf(table.getMaxUpdatedAt()) : null,
+                batchId, Timestamp.valueOf(now)});
+        }
+        jdbcTemplate.batchUpdate("""
+            INSERT INTO unified_rebuild_watermark
+                (source_table, row_count, max_id, max_updated_at, batch_id, recorded_at)
+            VALUES (?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                row_count = VALUES(row_count),
+                max_id = VALUES(max_id),
+                max_updated_at = VALUES(max_updated_at),
+                batch_id = VALUES(batch_id),
+                recorded_at = VALUES(recorded_at)
+        """, rows);
+        log.info("💾 Recorded unified rebuild watermark for batch {}: {}", batchId, watermark);
+    }
+
+    /**
+     * Whether an incremental table only gained or updated rows since the previous watermark:
+     * no row at or below the previous max id has been deleted, and every newer row carries an
+     * updated_at after the previous max (so rebuildIncremental will pick it up).
+     */
+    public boolean isAppendOrUpdateOnly(DataVersionWatermark.TableVersion previous) {
+        if (previous == null || previous.getMaxUpdatedAt() == null || !INCREMENTAL_TABLES.contains(previous.getTable())) {
+            return false;
+        }
+        String sql = "SELECT COALESCE(SUM(id <= ?), 0), "
+            + "COALESCE(SUM(id > ? AND (updated_at IS NULL OR updated_at <= ?)), 0) FROM " + previous.getTable();
+        try {
+            Timestamp since = Timestamp.valueOf(previous.getMaxUpdatedAt());
+            return Boolean.TRUE.equals(jdbcTemplate.queryForObject(sql, (rs, rowNum) ->
+                    rs.getLong(1) == previous.getRowCount() && rs.getLong(2) == 0,
+                previous.getMaxId(), previous.getMaxId(), since));
+        } catch (Exception e) {
+            log.warn("⚠️ Could not check changes in {}: {}", previous.getTable(), e.getMessage());
+            return false;
+        }
+    }
+
+    public boolean isUnifiedEmpty() {
+        try {
+            Integer any = jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM (SELECT 1 FROM unified_transactions LIMIT 1) t", Integer.class);
+            return any == null || any == 0;
+        } catch (Exception e) {
+            return true;
+        }
+    }
+
+    private void ensureTable() {
+        if (tableVerified) return;
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS unified_rebuild_watermark (
+                source_table VARCHAR(64) NOT NULL PRIMARY KEY,
+                row_count BIGINT NOT NULL,
+                max_id BIGINT NOT NULL,
+                max_updated_at DATETIME(6),
+                batch_id VARCHAR(50),
+                recorded_at DATETIME NOT NULL
+            )
+        """);
+        tableVerified = true;
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,127 @@
+package site.easy.to.build.crm.service.transaction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
+
+/**
+ * Unified Rebuild on Startup
+ *
+ * Replaces the unconditional rebuildComplete() on boot. Compares the source tables' current
+ * DataVersionWatermark with the one stored by the last successful rebuild and:
+ * - SKIP: nothing changed, the unified tables are served as they are
+ * - INCREMENTAL: only new/updated historical or financial transactions, replayed with
+ *   rebuildIncremental() from the previous watermark's updated_at
+ * - FULL: rebuildComplete() in the background, so startup is not blocked
+ *
+ * Both run on unifiedRebuildExecutor, the single worker that also serves the rebuild event
+ * listener, so a startup rebuild cannot overlap one triggered by a PayProp sync.
+ *
+ * Mode (unified.rebuild.startup-mode): auto (default), full (always rebuild in the background), skip.
+ */
+@Service
+public class UnifiedRebuildStartupService {
+
+    private static final Logger log = LoggerFactory.getLogger(UnifiedRebuildStartupService.class);
+
+    @Autowired
+    private UnifiedTransactionRebuildService rebuildService;
+
+    @Autowired
+    private UnifiedDataWatermarkService watermarkService;
+
+    @Value("${unified.rebuild.startup-mode:auto}")
+    private String startupMode;
+
+    @Autowired
+    @Qualifier("unifiedRebuildExecutor")
+    private TaskExecutor rebuildExecutor;
+
+    /**
+     * Bring the unified tables up to date after startup.
+     *
+     * @return the plan taken and, for incremental runs, the rebuild result
+     */
+    public Map<String, Object> reconcileOnStartup() {
+        Map<String, Object> result = new HashMap<>();
+        result.put("mode", startupMode);
+
+        if ("skip".equalsIgnoreCase(startupMode)) {
+            log.info("⏭️ Unified rebuild on startup disabled (unified.rebuild.startup-mode=skip)");
+            result.put("plan", "DISABLED");
+            return result;
+        }
+
+        DataVersionWatermark current = watermarkService.capture();
+        DataVersionWatermark previous = watermarkService.loadLastRebuild();
+
+        DataVersionWatermark.Plan plan;
+        if ("full".equalsIgnoreCase(startupMode)) {
+            plan = DataVersionWatermark.Plan.FULL;
+        } else {
+            boolean unifiedEmpty = watermarkService.isUnifiedEmpty();
+            plan = DataVersionWatermark.plan(previous, current, UnifiedDataWatermarkService.INCREMENTAL_TABLES,
+                table -> watermarkService.isAppendOrUpdateOnly(previous.get(table)), unifiedEmpty);
+            result.put("changedTables", current.changedSince(previous));
+            result.put("unifiedEmpty", unifiedEmpty);
+        }
+        result.put("plan", plan.name());
+        log.info("🔎 Unified data version: {} (last rebuild: {}) -> {}",
+            current, previous != null ? previous : "none", plan);
+
+        switch (plan) {
+            case SKIP:
+                log.info("✅ Source data unchanged since last rebuild - skipping unified rebuild");
+                break;
+
+            case INCREMENTAL:
+                LocalDateTime since = previous.earliestUpdate(UnifiedDataWatermarkService.INCREMENTAL_TABLES);
+                // Waits its turn behind any rebuild already queued, then reports back to startup
+                Map<String, Object> incremental = runOnRebuildExecutor(() -> rebuildService.rebuildIncremental(since));
+                result.put("incrementalResult", incremental);
+                watermarkService.record(current, (String) incremental.get("batchId"));
+                break;
+
+            case FULL:
+                log.info("🕒 Full unified rebuild deferred to background");
+                rebuildExecutor.execute(() -> {
+                    try {
+                        Map<String, Object> rebuildResult = rebuildService.rebuildComplete();
+                        log.info("✅ Background unified rebuild finished: {} historical, {} PayProp records in {}s",
+                            rebuildResult.get("historicalRecordsInserted"),
+                            rebuildResult.get("paypropRecordsInserted"),
+                            rebuildResult.get("durationSeconds"));
+                    } catch (Exception e) {
+                        log.error("❌ Background unified rebuild failed: {}", e.getMessage(), e);
+                    }
+                });
+                break;
+        }
+        return result;
+    }
+
+    private Map<String, Object> runOnRebuildExecutor(Callable<Map<String, Object>> rebuild) {
+        FutureTask<Map<String, Object>> task = new FutureTask<>(rebuild);
+        rebuildExecutor.execute(task);
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for unified rebuild", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause()
+                : new IllegalStateException("Unified rebuild failed", e.getCause());
+        }
+    }
+}
@@ -8,13 +8,17 @@ import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import site.easy.to.build.crm.entity.UnifiedTransaction;
 import site.easy.to.build.crm.repository.UnifiedTransactionRepository;
+import site.easy.to.build.crm.service.metrics.PipelineMetrics;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.function.Supplier;
 
 /**
  * Service for rebuilding the unified_transactions table from source systems
@@ -41,6 +45,12 @@ public class UnifiedTransactionRebuildService {
     @Autowired
     private PaymentCorrectionService paymentCorrectionService;
 
+    @Autowired
+    private UnifiedDataWatermarkService watermarkService;
+
+    @Autowired
+    private PipelineMetrics pipelineMetrics;
+
     /**
      * Complete rebuild of unified_transactions table
      * Deletes all records and rebuilds from source tables
@@ -57,11 +67,14 @@ public class UnifiedTransactionRebuildService {
         result.put("batchId", batchId);
         result.put("startTime", LocalDateTime.now());
 
+        // Source data version as of the start - anything written during the rebuild shows up as a change next time
+        DataVersionWatermark watermark = watermarkService.capture();
+
         try {
             // Step 1: Rebuild unified_incoming_transactions (optional - for allocation linking)
             log.info("📋 Step 1: Rebuilding unified_incoming_transactions...");
             try {
-                int incomingCount = rebuildUnifiedIncomingTransactions();
+                int incomingCount = recordPhase("incoming", this::rebuildUnifiedIncomingTransactions);
                 result.put("incomingTransactionsRebuilt", incomingCount);
                 log.info("✅ Rebuilt {} incoming transactions with lease linkage", incomingCount);
             } catch (Exception e) {
@@ -71,27 +84,29 @@ public class UnifiedTransactionRebuildService {
 
             // Step 2: Truncate unified_transactions (disable FK checks for safety)
             log.info("📋 Step 2: Truncating unified_transactions...");
-            jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 0");
-            jdbcTemplate.execute("TRUNCATE TABLE unified_transactions");
-            jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 1");
+            pipelineMetrics.run(PipelineMetrics.REBUILD, "truncate", () -> {
+                jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 0");
+                jdbcTemplate.execute("TRUNCATE TABLE unified_transactions");
+                jdbcTemplate.execute("SET FOREIGN_KEY_CHECKS = 1");
+            });
             log.info("✅ Table truncated");
 
             // Step 3: Insert from historical_transactions
             log.info("📋 Step 3: Inserting from historical_transactions...");
-            int historicalCount = insertFromHistoricalTransactions(batchId);
+            int historicalCount = recordPhase("historical", () -> insertFromHistoricalTransactions(batchId));
             result.put("historicalRecordsInserted", historicalCount);
             log.info("✅ Inserted {} records from historical_transactions", historicalCount);
 
             // Step 4: Insert from financial_transactions
             log.info("📋 Step 4: Inserting from financial_transactions...");
-            int paypropCount = insertFromFinancialTransactions(batchId);
+            int paypropCount = recordPhase("payprop", () -> insertFromFinancialTransactions(batchId));
             result.put("paypropRecordsInserted", paypropCount);
             log.info("✅ Inserted {} records from financial_transactions", paypropCount);
 
             // Step 5: Migrate allocations to unified layer (optional - for allocation tracking)
             log.info("📋 Step 5: Migrating allocations to unified_transactions...");
             try {
-                int migratedAllocations = migrateAllocationsToUnified();
+                int migratedAllocations = recordPhase("migrate_allocations", this::migrateAllocationsToUnified);
                 result.put("migratedAllocations", migratedAllocations);
                 log.info("✅ Migrated {} allocations to unified_transaction_id", migratedAllocations);
             } catch (Exception e) {
@@ -102,7 +117,7 @@ public class UnifiedTransactionRebuildService {
             // Step 6: Sync allocations to unified_allocations table (optional)
             log.info("📋 Step 6: Syncing allocations to unified_allocations...");
             try {
-                int syncedAllocations = syncAllocationsToUnifiedAllocations(batchId);
+                int syncedAllocations = recordPhase("sync_allocations", () -> syncAllocationsToUnifiedAllocations(batchId));
                 result.put("syncedAllocations", syncedAllocations);
                 log.info("✅ Synced {} allocations to unified_allocations", syncedAllocations);
             } catch (Exception e) {
@@ -113,7 +128,7 @@ public class UnifiedTransactionRebuildService {
             // Step 7: Apply payment corrections (overrides for PayProp misallocations)
             log.info("📋 Step 7: Applying payment corrections...");
             try {
-                int correctionsApplied = paymentCorrectionService.applyCorrections();
+                int correctionsApplied = recordPhase("corrections", paymentCorrectionService::applyCorrections);
                 result.put("correctionsApplied", correctionsApplied);
                 log.info("✅ Applied {} payment correction(s)", correctionsApplied);
             } catch (Exception e) {
@@ -124,7 +139,7 @@ public class UnifiedTransactionRebuildService {
             // Step 8: Sync PayProp payment batches to payment_batches table
             log.info("📋 Step 8: Syncing PayProp payment batches...");
             try {
-                int batchesSynced = syncPayPropPaymentBatches();
+                int batchesSynced = recordPhase("payment_batches", this::syncPayPropPaymentBatches);
                 result.put("paymentBatchesSynced", batchesSynced);
                 log.info("✅ Synced {} PayProp payment batches", batchesSynced);
             } catch (Exception e) {
@@ -134,7 +149,7 @@ public class UnifiedTransactionRebuildService {
 
             // Step 9: Verify rebuild
             log.info("📋 Step 9: Verifying rebuild...");
-            Map<String, Object> verification = verifyRebuild();
+            Map<String, Object> verification = pipelineMetrics.record(PipelineMetrics.REBUILD, "verify", this::verifyRebuild);
             result.put("verification", verification);
 
             result.put("status", "SUCCESS");
@@ -144,6 +159,12 @@ public class UnifiedTransactionRebuildService {
             long durationSeconds = ChronoUnit.SECONDS.between(startTime, (LocalDateTime) result.get("endTime"));
             result.put("durationSeconds", durationSeconds);
 
+            try {
+                watermarkService.record(watermark, batchId);
+            } catch (Exception e) {
+                log.warn("⚠️ Could not record rebuild watermark (next startup will rebuild): {}", e.getMessage());
+            }
+
             int totalRecords = historicalCount + paypropCount;
             log.info("🎉 Rebuild complete! Historical: {}, PayProp: {}, Total: {}, Duration: {}s",
                 historicalCount, paypropCount, totalRecords, durationSeconds);
@@ -159,6 +180,13 @@ public class UnifiedTransactionRebuildService {
         }
     }
 
+    /**
+     * Time one rebuild step, its return value being the rows it wrote
+     */
+    private int recordPhase(String phase, Supplier<Integer> step) {
+        return pipelineMetrics.record(PipelineMetrics.REBUILD, phase, step, Integer::longValue);
+    }
+
     /**
      * Insert transactions from historical_transactions table
      */
@@ -1133,6 +1161,11 @@ public class UnifiedTransactionRebuildService {
      * Incremental update - only rebuild transactions changed since last rebuild
      * Use this after PayProp sync or historical import
      *
+     * Changed rows are deleted and re-inserted, which gives them new ids. Everything that points
+     * at unified_transactions (transaction_batch_allocations, unified_allocations,
+     * expense_documents) is moved to the new ids in the same transaction, so allocations never
+     * reference a deleted row.
+     *
      * @param since Only update records modified after this timestamp
      */
     @Transactional
@@ -1147,6 +1180,19 @@ public class UnifiedTransactionRebuildService {
         result.put("startTime", LocalDateTime.now());
 
         try {
+            // Step 0: Remember the ids of the rows about to be replaced
+            Map<String, Long> replacedIds = new HashMap<>();
+            jdbcTemplate.query("""
+                SELECT id, source_system, source_record_id FROM unified_transactions
+                WHERE (source_system = 'HISTORICAL'
+                       AND source_record_id IN (SELECT id FROM historical_transactions WHERE updated_at > ?))
+                   OR (source_system = 'PAYPROP'
+                       AND source_record_id IN (SELECT id FROM financial_transactions WHERE updated_at > ?))
+            """, rs -> {
+                replacedIds.putIfAbsent(sourceKey(rs.getString("source_system"), rs.getLong("source_record_id")),
+                    rs.getLong("id"));
+            }, since, since);
+
             // Step 1: Delete records from changed source transactions
             log.info("📋 Step 1: Deleting changed records...");
 
@@ -1184,6 +1230,12 @@ public class UnifiedTransactionRebuildService {
             result.put("insertedPayprop", insertedPayprop);
             log.info("✅ Inserted {} payprop records", insertedPayprop);
 
+            // Step 4: Point allocations and documents at the re-inserted rows
+            log.info("📋 Step 4: Relinking allocations to re-inserted transactions...");
+            int relinked = relinkReplacedTransactions(replacedIds, batchId, since);
+            result.put("relinkedReferences", relinked);
+            log.info("✅ Relinked {} references to re-inserted transactions", relinked);
+
             result.put("status", "SUCCESS");
             result.put("endTime", LocalDateTime.now());
 
@@ -1201,6 +1253,70 @@ public class UnifiedTransactionRebuildService {
         }
     }
 
+    private static String sourceKey(String sourceSystem, long sourceRecordId) {
+        return sourceSystem + ":" + sourceRecordId;
+    }
+
+    /**
+     * Move references from replaced unified_transactions ids to the rows re-inserted for the same
+     * source record (or to NULL when the record no longer qualifies), then link allocations of
+     * changed historical transactions that had no unified row before. New ids are always above
+     * the old ones, so the updates cannot chain into each other.
+     */
+    private int relinkReplacedTransactions(Map<String, Long> replacedIds, String batchId, LocalDateTime since) {
+        Map<String, Long> newIds = new HashMap<>();
+        jdbcTemplate.query("""
+            SELECT id, source_system, source_record_id FROM unified_transactions
+            WHERE rebuild_batch_id = ?
+            ORDER BY id
+        """, rs -> {
+            newIds.putIfAbsent(sourceKey(rs.getString("source_system"), rs.getLong("source_record_id")), rs.getLong("id"));
+        }, batchId);
+
+        List<Object[]> moves = new ArrayList<>();
+        replacedIds.forEach((key, oldId) -> moves.add(new Object[]{newIds.get(key), oldId}));
+
+        int relinked = 0;
+        if (!moves.isEmpty()) {
+            for (String table : List.of("transaction_batch_allocations", "unified_allocations", "expense_documents")) {
+                try {
+                    relinked += Arrays.stream(jdbcTemplate.batchUpdate(
+                        "UPDATE " + table + " SET unified_transaction_id = ? WHERE unified_transaction_id = ?", moves))
+                        .sum();
+                } catch (Exception e) {
+                    log.warn("⚠️ Could not relink {} to re-inserted transactions: {}", table, e.getMessage());
+                }
+            }
+        }
+
+        // Allocations of changed historical transactions that were not in the unified table before
+        relinked += jdbcTemplate.update("""
+            UPDATE transaction_batch_allocations tba
+            SET unified_transaction_id = (
+                SELECT ut.id
+                FROM unified_transactions ut
+                WHERE ut.source_table = 'historical_transactions'
+                  AND ut.source_record_id = tba.transaction_id
+                ORDER BY ut.id
+                LIMIT 1
+            )
+            WHERE tba.unified_transaction_id IS NULL
+              AND tba.transaction_id IN (SELECT id FROM historical_transactions WHERE updated_at > ?)
+        """, since);
+        try {
+            relinked += jdbcTemplate.update("""
+                UPDATE unified_allocations ua
+                JOIN transaction_batch_allocations tba ON ua.source = 'MANUAL' AND ua.source_record_id = tba.id
+                SET ua.unified_transaction_id = tba.unified_transaction_id
+                WHERE ua.unified_transaction_id IS NULL
+                  AND tba.unified_transaction_id IS NOT NULL
+            """);
+        } catch (Exception e) {
+            log.warn("⚠️ Could not link unified_allocations to new transactions: {}", e.getMessage());
+        }
+        return relinked;
+    }
+
     private int insertUpdatedHistoricalTransactions(LocalDateTime since, String batchId) {
         String sql = """
             INSERT INTO unified_transactions (
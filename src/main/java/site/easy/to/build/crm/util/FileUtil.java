@@ -1,6 +1,12 @@
 package site.easy.to.build.crm.util;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Component;
 import site.easy.to.build.crm.entity.File;
@@ -11,9 +17,13 @@ import site.easy.to.build.crm.google.service.drive.GoogleDriveApiService;
 import site.easy.to.build.crm.service.drive.GoogleDriveFileService;
 import site.easy.to.build.crm.service.file.FileService;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.lang.reflect.Constructor;
 import java.lang.reflect.InvocationTargetException;
+import java.nio.charset.StandardCharsets;
 import java.security.GeneralSecurityException;
 import java.util.*;
 
@@ -53,19 +63,58 @@ public class FileUtil {
             String attachmentData = attachment.getData();
             String replaceString = attachmentData.replaceAll("_", "/");
             String attachmentDataBase64 = replaceString.replaceAll("-", "+");
-            byte[] binaryData = Base64.getDecoder().decode(attachmentDataBase64);
-            File file = createFile(attachment.getName(), binaryData, attachment.getMimeType(), entity);
-            fileService.save(file);
+            File file = createFile(attachment.getName(), attachment.getMimeType(), entity);
+            // Decode while streaming into the blob store rather than into a byte array
+            try (InputStream content = Base64.getDecoder().wrap(
+                    new ByteArrayInputStream(attachmentDataBase64.getBytes(StandardCharsets.US_ASCII)))) {
+                fileService.saveContent(file, content);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
             files.add(file);
         }
         setFiles(entity, files);
     }
 
-    private <T> File createFile(String fileName, byte[] binaryData, String mimeType, T entity) {
+    /**
+     * Existing files as attachments (base64 content) for the edit forms, which post them back.
+     */
+    public List<Attachment> toAttachments(List<File> files) {
+        List<Attachment> attachments = new ArrayList<>();
+        for (File file : files) {
+            try {
+                attachments.add(new Attachment(file.getFileName(), fileService.readBase64(file), file.getFileType()));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return attachments;
+    }
+
+    /**
+     * Stream a file's content from the blob store (inline, so images render in detail pages).
+     */
+    public ResponseEntity<Resource> contentResponse(File file) {
+        try {
+            InputStream content = fileService.openContent(file);
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(file.getFileType() != null ? MediaType.parseMediaType(file.getFileType()) : MediaType.APPLICATION_OCTET_STREAM)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                    ContentDisposition.inline().filename(file.getFileName(), StandardCharsets.UTF_8).build().toString());
+            if (file.getFileSize() != null) {
+                response.contentLength(file.getFileSize());
+            }
+            return response.body(new InputStreamResource(content));
+        } catch (IOException e) {
+            return ResponseEntity.notFound().build();
+        }
+    }
+
+    private <T> File createFile(String fileName, String mimeType, T entity) {
         try {
             Class<?> entityClass = entity.getClass();
-            Constructor<?> constructor = File.class.getConstructor(String.class, byte[].class, String.class, entityClass);
-            return (File) constructor.newInstance(fileName, binaryData, mimeType, entity);
+            Constructor<?> constructor = File.class.getConstructor(String.class, String.class, entityClass);
+            return (File) constructor.newInstance(fileName, mimeType, entity);
         } catch (NoSuchMethodException | InstantiationException | IllegalAccessException |
                  InvocationTargetException e) {
             throw new RuntimeException(e);
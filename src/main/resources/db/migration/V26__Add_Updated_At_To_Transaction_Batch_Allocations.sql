@@ -0,0 +1,15 @@
+-- V26: Add updated_at to transaction_batch_allocations
+-- Purpose: let the unified rebuild watermark see allocation edits made in place
+-- (row count and max id only catch inserts and deletes)
+
+ALTER TABLE transaction_batch_allocations
+ADD COLUMN IF NOT EXISTS updated_at DATETIME(6) NULL;
+
+-- Keep it current for raw SQL writers too, not only JPA
+ALTER TABLE transaction_batch_allocations
+MODIFY COLUMN updated_at DATETIME(6) NULL DEFAULT CURRENT_TIMESTAMP(6) ON UPDATE CURRENT_TIMESTAMP(6);
+
+-- Existing rows: last known change is their creation
+UPDATE transaction_batch_allocations
+SET updated_at = COALESCE(created_at, NOW(6))
+WHERE updated_at IS NULL;
@@ -0,0 +1,107 @@
+package site.easy.to.build.crm.google.service.gmail;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.env.MockEnvironment;
+import site.easy.to.build.crm.entity.OAuthUser;
+import site.easy.to.build.crm.google.model.gmail.EmailPage;
+import site.easy.to.build.crm.service.io.OutboundIntegration;
+import site.easy.to.build.crm.service.io.OutboundIo;
+
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for GmailEmailService page-token caching (standalone tests without Spring context)
+ */
+public class GmailEmailServiceTest {
+
+    private static final int PAGES = 20;
+
+    private final List<String> calls = new ArrayList<>();
+
+    /**
+     * Mailbox of PAGES pages where the token of page n is "t" + n; records every API call.
+     */
+    private GoogleGmailApiService stubApi() {
+        return (GoogleGmailApiService) Proxy.newProxyInstance(getClass().getClassLoader(),
+                new Class<?>[]{GoogleGmailApiService.class}, (proxy, method, args) -> {
+                    calls.add(method.getName());
+                    int page = args[2] == null ? 1 : Integer.parseInt(((String) args[2]).substring(1));
+                    String next = page < PAGES ? "t" + (page + 1) : null;
+                    switch (method.getName()) {
+                        case "getNextPageToken":
+                            return next;
+                        case "listAndReadEmails":
+                            EmailPage emailPage = new EmailPage();
+                            emailPage.setEmails(new ArrayList<>());
+                            emailPage.setNextPageToken(next);
+                            return emailPage;
+                        default:
+                            throw new UnsupportedOperationException(method.getName());
+                    }
+                });
+    }
+
+    /**
+     * Runs readahead on the calling thread, so tests see its tokens as soon as the page returns.
+     */
+    private OutboundIo inlineIo() {
+        return new OutboundIo(new MockEnvironment()) {
+            @Override
+            public boolean trySubmit(OutboundIntegration integration, Runnable task) {
+                task.run();
+                return true;
+            }
+        };
+    }
+
+    private OAuthUser user(int id) {
+        OAuthUser oAuthUser = new OAuthUser();
+        oAuthUser.setId(id);
+        return oAuthUser;
+    }
+
+    @Test
+    public void testWalksWithTokenOnlyCallsAndRemembers() throws Exception {
+        GmailEmailService service = new GmailEmailService(stubApi(), inlineIo(), 0, 600);
+
+        assertEquals("t10", service.getPageTokenForPage(user(1), 10, 10, "inbox"));
+        assertEquals(9, calls.stream().filter("getNextPageToken"::equals).count());
+        assertFalse(calls.contains("listAndReadEmails"));
+
+        calls.clear();
+        assertEquals("t12", service.getPageTokenForPage(user(1), 12, 10, "inbox"));
+        assertEquals("t4", service.getPageTokenForPage(user(1), 4, 10, "inbox"));
+        assertEquals(2, calls.size());
+    }
+
+    @Test
+    public void testReadaheadMakesLaterPagesOneCall() throws Exception {
+        GmailEmailService service = new GmailEmailService(stubApi(), inlineIo(), 5, 600);
+
+        service.getEmailsPerPage(user(1), 10, null, "inbox", 1);
+        calls.clear();
+
+        assertEquals("t7", service.getPageTokenForPage(user(1), 7, 10, "inbox"));
+        assertTrue(calls.isEmpty());
+    }
+
+    @Test
+    public void testTokensAreScopedPerUserAndCleared() throws Exception {
+        GmailEmailService service = new GmailEmailService(stubApi(), inlineIo(), 0, 600);
+        service.getPageTokenForPage(user(1), 3, 10, "inbox");
+        calls.clear();
+
+        service.getPageTokenForPage(user(2), 3, 10, "inbox");
+        assertEquals(2, calls.size());
+
+        service.invalidatePageTokens(user(1));
+        service.getPageTokenForPage(user(1), 3, 10, "inbox");
+        assertEquals(4, calls.size());
+        assertNull(service.getPageTokenForPage(user(1), 1, 10, "inbox"));
+        assertNull(service.getPageTokenForPage(user(1), PAGES + 5, 10, "inbox"));
+    }
+}
@@ -0,0 +1,94 @@
+package site.easy.to.build.crm.service.document;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
+import site.easy.to.build.crm.dto.expense.ExpenseInvoiceDTO;
+import site.easy.to.build.crm.dto.paymentadvice.PaymentAdviceDTO;
+import site.easy.to.build.crm.dto.servicecharge.ServiceChargeStatementDTO;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PdfRenderingService (standalone tests without Spring context)
+ */
+public class PdfRenderingServiceTest {
+
+    private final PdfRenderingService pdfRenderingService = new PdfRenderingService(new SyncTaskExecutor(), 0);
+
+    @Test
+    public void testPaymentAdviceTemplateRendersSparseAdvice() {
+        PaymentAdviceDTO advice = new PaymentAdviceDTO();
+        advice.setOwnerName("Jane <Owner>");
+        advice.setAdviceDate(LocalDate.of(2025, 3, 31));
+        advice.setAmountSettled(new BigDecimal("1234.5"));
+
+        String html = pdfRenderingService.renderHtml("payment-advice", Map.of("advice", advice));
+
+        assertTrue(html.contains("Jane &lt;Owner&gt;"));
+        assertTrue(html.contains("£1,234.50"));
+        assertFalse(html.contains(">null<"));
+    }
+
+    @Test
+    public void testExpenseInvoiceTemplateRendersSparseInvoice() {
+        ExpenseInvoiceDTO invoice = new ExpenseInvoiceDTO();
+        invoice.setInvoiceNumber("EXP-001");
+        invoice.setLineItems(List.of(new ExpenseInvoiceDTO.ExpenseLineItemDTO("Boiler repair", new BigDecimal("150"))));
+
+        String html = pdfRenderingService.renderHtml("expense-invoice", Map.of("invoice", invoice));
+
+        assertTrue(html.contains("EXP-001"));
+        assertTrue(html.contains("Boiler repair"));
+        assertFalse(html.contains(">null<"));
+    }
+
+    @Test
+    public void testServiceChargeTemplateRendersEmptyStatement() {
+        String html = pdfRenderingService.renderHtml("service-charge-statement",
+            Map.of("statement", new ServiceChargeStatementDTO()));
+
+        assertTrue(html.contains("<html"));
+        assertFalse(html.contains(">null<"));
+    }
+
+    @Test
+    public void testRenderZipWritesEntriesInOrderAndSkipsFailures() throws Exception {
+        List<PdfRenderingService.PdfJob> jobs = new ArrayList<>();
+        for (String number : List.of("A", "B", "C")) {
+            jobs.add(new PdfRenderingService.PdfJob("Invoice_" + number + ".pdf", "expense-invoice", () -> {
+                if ("B".equals(number)) {
+                    throw new IllegalStateException("missing transaction");
+                }
+                ExpenseInvoiceDTO invoice = new ExpenseInvoiceDTO();
+                invoice.setInvoiceNumber(number);
+                return Map.of("invoice", invoice);
+            }));
+        }
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int written = pdfRenderingService.renderZip(jobs, out);
+
+        assertEquals(2, written);
+        List<String> names = new ArrayList<>();
+        try (ZipInputStream zip = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                names.add(entry.getName());
+                byte[] header = zip.readNBytes(4);
+                assertEquals("%PDF", new String(header, StandardCharsets.US_ASCII));
+            }
+        }
+        assertEquals(List.of("Invoice_A.pdf", "Invoice_C.pdf"), names);
+    }
+}
@@ -0,0 +1,48 @@
+package site.easy.to.build.crm.service.drive;
+
+import org.junit.jupiter.api.Test;
+import site.easy.to.build.crm.entity.GoogleDriveFile;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for CustomerDocumentPage (standalone tests without Spring context)
+ */
+public class CustomerDocumentPageTest {
+
+    private static GoogleDriveFile file(String name, String category) {
+        GoogleDriveFile file = new GoogleDriveFile();
+        file.setFileName(name);
+        file.setFileCategory(category);
+        return file;
+    }
+
+    @Test
+    public void testGroupsPageByCategoryInIndexOrder() {
+        GoogleDriveFile epc = file("epc.pdf", "EPC");
+        GoogleDriveFile eicr = file("eicr.pdf", "EICR");
+        GoogleDriveFile loose = file("note.txt", null);
+        CustomerDocumentPage page = new CustomerDocumentPage(List.of(eicr, epc, loose),
+            Map.of("EICR", 1L, "EPC", 4L, "Uncategorized", 1L), 0, 3, 6);
+
+        Map<String, List<GoogleDriveFile>> grouped = page.getFilesByCategory();
+        assertEquals(List.of("EICR", "EPC", "Uncategorized"), List.copyOf(grouped.keySet()));
+        assertEquals(List.of(loose), grouped.get(CustomerDocumentPage.UNCATEGORIZED));
+        assertEquals(4L, page.getCategoryCounts().get("EPC"));
+    }
+
+    @Test
+    public void testPaging() {
+        CustomerDocumentPage first = new CustomerDocumentPage(List.of(), Map.of(), 0, 100, 201);
+        assertEquals(3, first.getTotalPages());
+        assertTrue(first.hasNext());
+        assertFalse(first.hasPrevious());
+
+        CustomerDocumentPage last = new CustomerDocumentPage(List.of(), Map.of(), 2, 100, 201);
+        assertFalse(last.hasNext());
+        assertTrue(last.hasPrevious());
+    }
+}
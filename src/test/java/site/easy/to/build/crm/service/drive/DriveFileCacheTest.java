@@ -0,0 +1,144 @@
+package site.easy.to.build.crm.service.drive;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DriveFileCache against a local fake Drive (standalone tests without Spring context)
+ */
+public class DriveFileCacheTest {
+
+    @TempDir
+    Path cacheDir;
+
+    /**
+     * In-memory Drive: file id -> content, MD5 taken from the content.
+     */
+    private static class FakeDrive implements DriveFileSource {
+        final Map<String, String> files = new ConcurrentHashMap<>();
+        final AtomicInteger downloads = new AtomicInteger();
+        volatile CountDownLatch downloadGate;
+
+        @Override
+        public DriveFileInfo getFileInfo(String fileId) {
+            String content = files.get(fileId);
+            return new DriveFileInfo(fileId, fileId + ".pdf", "application/pdf", (long) content.length(),
+                1_700_000_000_000L, Integer.toHexString(content.hashCode()), 1L);
+        }
+
+        @Override
+        public void download(String fileId, OutputStream outputStream) throws IOException {
+            downloads.incrementAndGet();
+            if (downloadGate != null) {
+                try {
+                    downloadGate.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            outputStream.write(files.get(fileId).getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testRepeatViewsServedFromDisk() throws Exception {
+        FakeDrive drive = new FakeDrive();
+        drive.files.put("f1", "tenancy agreement");
+        DriveFileCache cache = new DriveFileCache(drive, cacheDir.toString(), 1_000_000, 0, 0);
+
+        DriveFileCache.CachedDriveFile first = cache.get("f1");
+        DriveFileCache.CachedDriveFile second = cache.get("f1");
+
+        assertEquals(1, drive.downloads.get());
+        assertEquals(first.getETag(), second.getETag());
+        assertEquals("tenancy agreement", Files.readString(second.getPath()));
+
+        // Edited in Drive: new MD5, new blob and ETag
+        drive.files.put("f1", "tenancy agreement v2");
+        DriveFileCache.CachedDriveFile edited = cache.get("f1");
+        assertEquals(2, drive.downloads.get());
+        assertNotEquals(first.getETag(), edited.getETag());
+        assertEquals("tenancy agreement v2", Files.readString(edited.getPath()));
+
+        // A new cache over the same directory reuses the blobs
+        DriveFileCache restarted = new DriveFileCache(drive, cacheDir.toString(), 1_000_000, 0, 0);
+        assertEquals(2, restarted.getBlobCount());
+        restarted.get("f1");
+        assertEquals(0, restarted.getDownloadCount());
+    }
+
+    @Test
+    public void testConcurrentViewersShareOneDownload() throws Exception {
+        FakeDrive drive = new FakeDrive();
+        drive.files.put("f1", "inventory");
+        drive.downloadGate = new CountDownLatch(1);
+        DriveFileCache cache = new DriveFileCache(drive, cacheDir.toString(), 1_000_000, 60, 0);
+
+        ExecutorService viewers = Executors.newFixedThreadPool(4);
+        try {
+            Future<?>[] results = new Future<?>[4];
+            for (int i = 0; i < results.length; i++) {
+                results[i] = viewers.submit(() -> cache.get("f1"));
+            }
+            Thread.sleep(100);
+            drive.downloadGate.countDown();
+            for (Future<?> result : results) {
+                result.get(5, TimeUnit.SECONDS);
+            }
+        } finally {
+            viewers.shutdownNow();
+        }
+
+        assertEquals(1, drive.downloads.get());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedBlobsEvicted() throws Exception {
+        FakeDrive drive = new FakeDrive();
+        drive.files.put("a", "aaaaaaaaaa");
+        drive.files.put("b", "bbbbbbbbbb");
+        drive.files.put("c", "cccccccccc");
+        DriveFileCache cache = new DriveFileCache(drive, cacheDir.toString(), 25, 60, 0);
+
+        cache.get("a");
+        cache.get("b");
+        cache.get("a");
+        cache.get("c");
+
+        assertEquals(2, cache.getBlobCount());
+        assertEquals(20, cache.getTotalBytes());
+        cache.get("a");
+        assertEquals(3, drive.downloads.get());
+        cache.get("b");
+        assertEquals(4, drive.downloads.get());
+    }
+
+    @Test
+    public void testRecentlyServedBlobsNotEvicted() throws Exception {
+        FakeDrive drive = new FakeDrive();
+        drive.files.put("a", "aaaaaaaaaa");
+        drive.files.put("b", "bbbbbbbbbb");
+        drive.files.put("c", "cccccccccc");
+        DriveFileCache cache = new DriveFileCache(drive, cacheDir.toString(), 25, 60, 60);
+
+        DriveFileCache.CachedDriveFile a = cache.get("a");
+        cache.get("b");
+        cache.get("c");
+
+        // Still within the grace period, so a response may be about to stream it
+        assertTrue(Files.exists(a.getPath()));
+        assertEquals(3, cache.getBlobCount());
+        assertEquals(30, cache.getTotalBytes());
+    }
+}
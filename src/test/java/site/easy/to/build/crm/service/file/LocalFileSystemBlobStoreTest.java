@@ -0,0 +1,85 @@
+package site.easy.to.build.crm.service.file;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LocalFileSystemBlobStore (standalone tests without Spring context)
+ */
+public class LocalFileSystemBlobStoreTest {
+
+    @TempDir
+    Path root;
+
+    private static InputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testIdenticalContentStoredOnce() throws Exception {
+        LocalFileSystemBlobStore store = new LocalFileSystemBlobStore(root.toString());
+
+        StoredBlob first = store.put(stream("signed contract"));
+        StoredBlob second = store.put(stream("signed contract"));
+        StoredBlob other = store.put(stream("inventory"));
+
+        assertEquals(first.getHash(), second.getHash());
+        assertFalse(first.isDeduplicated());
+        assertTrue(second.isDeduplicated());
+        assertNotEquals(first.getHash(), other.getHash());
+        assertEquals(15, first.getSize());
+        // Hex SHA-256
+        assertEquals(64, first.getHash().length());
+        try (Stream<Path> files = Files.walk(root)) {
+            assertEquals(2, files.filter(Files::isRegularFile).count());
+        }
+        try (InputStream in = store.open(first.getHash())) {
+            assertEquals("signed contract", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+    }
+
+    @Test
+    public void testDeleteAndMissingContent() throws Exception {
+        LocalFileSystemBlobStore store = new LocalFileSystemBlobStore(root.toString());
+        StoredBlob blob = store.put(stream("photo"));
+
+        assertTrue(store.exists(blob.getHash()));
+        store.delete(blob.getHash());
+        assertFalse(store.exists(blob.getHash()));
+        assertThrows(FileNotFoundException.class, () -> store.open(blob.getHash()));
+        assertThrows(IllegalArgumentException.class, () -> store.open("../../etc/passwd"));
+    }
+
+    @Test
+    public void testDeduplicatedPutKeepsContentFromTheSweep() throws Exception {
+        LocalFileSystemBlobStore store = new LocalFileSystemBlobStore(root.toString());
+        StoredBlob blob = store.put(stream("tenancy agreement"));
+        Path stored = root.resolve(blob.getHash().substring(0, 2)).resolve(blob.getHash().substring(2, 4))
+            .resolve(blob.getHash());
+        Instant cutoff = Instant.now().minus(Duration.ofHours(24));
+        Files.setLastModifiedTime(stored, FileTime.from(cutoff.minus(Duration.ofHours(1))));
+
+        // An upload of the same bytes refreshes the modification time
+        assertTrue(store.put(stream("tenancy agreement")).isDeduplicated());
+        assertFalse(store.deleteIfUnmodifiedSince(blob.getHash(), cutoff));
+        assertTrue(store.exists(blob.getHash()));
+
+        Files.setLastModifiedTime(stored, FileTime.from(cutoff.minus(Duration.ofHours(1))));
+        assertTrue(store.deleteIfUnmodifiedSince(blob.getHash(), cutoff));
+        assertFalse(store.exists(blob.getHash()));
+        assertFalse(store.deleteIfUnmodifiedSince(blob.getHash(), cutoff));
+    }
+}
@@ -0,0 +1,135 @@
+package site.easy.to.build.crm.service.invoice;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.YearMonth;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for RentSchedule and RentScheduleEngine (standalone tests without Spring context)
+ */
+public class RentScheduleTest {
+
+    private static final BigDecimal RENT = new BigDecimal("1000.00");
+
+    @Test
+    public void testMonthlyRentInAdvance() {
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 15), null, RENT, 1, null,
+            LocalDate.of(2024, 12, 31));
+
+        // Cycles due 15 Jan, 15 Feb, 15 Mar
+        assertEquals(new BigDecimal("3000.00"), schedule.rentDueBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31)));
+        // 15 Mar is inclusive, 15 Apr is outside
+        assertEquals(2, schedule.countChargesBetween(LocalDate.of(2024, 2, 15), LocalDate.of(2024, 4, 14)));
+        assertEquals(0, schedule.rentDueBetween(LocalDate.of(2024, 1, 16), LocalDate.of(2024, 2, 14)).signum());
+    }
+
+    @Test
+    public void testPaymentDayIsClampedToMonthLength() {
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 31), null, RENT, 1, 31,
+            LocalDate.of(2024, 5, 31));
+
+        List<RentSchedule.Charge> charges = schedule.getCharges();
+        assertEquals(LocalDate.of(2024, 1, 31), charges.get(0).getDueDate());
+        assertEquals(LocalDate.of(2024, 2, 29), charges.get(1).getDueDate());
+        // Back to the 31st, not stuck on the 29th
+        assertEquals(LocalDate.of(2024, 3, 31), charges.get(2).getDueDate());
+        assertEquals(LocalDate.of(2024, 4, 30), charges.get(3).getDueDate());
+        assertEquals(LocalDate.of(2024, 3, 30), charges.get(1).getPeriodEnd());
+    }
+
+    @Test
+    public void testFirstCycleRunsToPaymentDay() {
+        // Moves in on the 10th, rent due on the 1st: first cycle is 10 Jan - 31 Jan at full rent
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 10), null, RENT, 1, 1,
+            LocalDate.of(2024, 3, 31));
+
+        List<RentSchedule.Charge> charges = schedule.getCharges();
+        assertEquals(LocalDate.of(2024, 1, 31), charges.get(0).getPeriodEnd());
+        assertEquals(RENT, charges.get(0).getAmount());
+        assertEquals(LocalDate.of(2024, 2, 1), charges.get(1).getDueDate());
+    }
+
+    @Test
+    public void testMultiMonthLeaseProratesFinalCycle() {
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 9, 14),
+            new BigDecimal("6000.00"), 6, null, null);
+
+        List<RentSchedule.Charge> charges = schedule.getCharges();
+        assertEquals(2, charges.size());
+        assertTrue(charges.get(0).isFullCycle());
+        assertFalse(charges.get(1).isFullCycle());
+        // 2 full months of the 6-month cycle at £1000/month
+        assertEquals(0, new BigDecimal("2000").compareTo(charges.get(1).getAmount()));
+        assertEquals(LocalDate.of(2024, 9, 14), charges.get(1).getPeriodEnd());
+    }
+
+    @Test
+    public void testMonthlyFinalCycleProratedByDaysInCycle() {
+        // Final cycle 15 Mar - 14 Apr has 31 days, lease ends 24 Mar: 10/31 of the rent.
+        // RentCalculationService used a 30-day month before the schedule (10/30 = £333.33)
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 3, 24), RENT, 1, null, null);
+
+        List<RentSchedule.Charge> charges = schedule.getCharges();
+        assertEquals(3, charges.size());
+        assertEquals(new BigDecimal("322.58"), charges.get(2).getAmount());
+        assertEquals(new BigDecimal("2322.58"), schedule.rentDueBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+
+        // Same 10 days in a 29-day cycle (15 Feb - 14 Mar 2024) come to 10/29
+        RentSchedule february = RentSchedule.build(LocalDate.of(2024, 1, 15), LocalDate.of(2024, 2, 24), RENT, 1, null, null);
+        assertEquals(new BigDecimal("344.83"), february.getCharges().get(1).getAmount());
+    }
+
+    @Test
+    public void testNoChargeAfterLeaseEnd() {
+        RentSchedule schedule = RentSchedule.build(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 3, 31), RENT, 1, null, null);
+
+        assertEquals(3, schedule.size());
+        assertEquals(new BigDecimal("3000.00"), schedule.rentDueBetween(LocalDate.of(2024, 1, 1), LocalDate.of(2024, 12, 31)));
+    }
+
+    @Test
+    public void testClosedFormCountMatchesIteration() {
+        LocalDate leaseStart = LocalDate.of(2023, 8, 29);
+        for (int cycleMonths : new int[] {1, 3, 6, 12}) {
+            for (int offset = 0; offset < 900; offset += 17) {
+                LocalDate periodStart = leaseStart.minusDays(40).plusDays(offset);
+                LocalDate periodEnd = periodStart.plusDays(offset % 200);
+
+                long expected = 0;
+                for (long k = 0; k < 100; k++) {
+                    LocalDate due = k == 0 ? leaseStart : atDay(YearMonth.from(leaseStart).plusMonths(k * cycleMonths), 29);
+                    if (!due.isBefore(periodStart) && !due.isAfter(periodEnd)) {
+                        expected++;
+                    }
+                }
+
+                assertEquals(expected, RentSchedule.countCycleStarts(leaseStart, 29, cycleMonths, periodStart, periodEnd, null),
+                    "cycle=" + cycleMonths + " period=" + periodStart + ".." + periodEnd);
+            }
+        }
+    }
+
+    @Test
+    public void testEngineCachesPerLeaseVersion() {
+        RentScheduleEngine engine = new RentScheduleEngine();
+        LocalDate start = LocalDate.of(2024, 1, 1);
+
+        RentSchedule first = engine.scheduleFor(1L, start, null, RENT, 1, null, LocalDate.of(2024, 6, 30));
+        RentSchedule again = engine.scheduleFor(1L, start, null, RENT, 1, null, LocalDate.of(2024, 6, 30));
+        RentSchedule rentChanged = engine.scheduleFor(1L, start, null, new BigDecimal("1100.00"), 1, null,
+            LocalDate.of(2024, 6, 30));
+
+        assertSame(first, again);
+        assertNotSame(first, rentChanged);
+        assertEquals(new BigDecimal("6600.00"), rentChanged.rentDueBetween(start, LocalDate.of(2024, 6, 30)));
+    }
+
+    private static LocalDate atDay(YearMonth month, int day) {
+        return month.atDay(Math.min(day, month.lengthOfMonth()));
+    }
+}
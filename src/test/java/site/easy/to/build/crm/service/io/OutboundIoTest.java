@@ -0,0 +1,163 @@
+package site.easy.to.build.crm.service.io;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for OutboundIo and IntervalRateLimiter (standalone tests without Spring context)
+ */
+public class OutboundIoTest {
+
+    private final OutboundIo io = new OutboundIo(
+        Map.of(OutboundIntegration.GOOGLE_DRIVE, 3, OutboundIntegration.GMAIL, 1), false, Duration.ofSeconds(10));
+
+    @AfterEach
+    public void tearDown() {
+        io.shutdown();
+    }
+
+    @Test
+    public void testFanOutKeepsItemOrderAndRespectsTheCap() throws IOException {
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger peak = new AtomicInteger();
+
+        List<Integer> results = io.fanOut(OutboundIntegration.GOOGLE_DRIVE, List.of(1, 2, 3, 4, 5, 6, 7, 8), null, item -> {
+            peak.accumulateAndGet(running.incrementAndGet(), Math::max);
+            sleep(20L * (9 - item));
+            running.decrementAndGet();
+            return item * 10;
+        });
+
+        assertEquals(List.of(10, 20, 30, 40, 50, 60, 70, 80), results);
+        assertTrue(peak.get() > 1, "calls should overlap");
+        assertTrue(peak.get() <= 3, "cap exceeded: " + peak.get());
+        assertEquals(0, io.getInFlight(OutboundIntegration.GOOGLE_DRIVE));
+    }
+
+    @Test
+    public void testFirstFailureIsRethrownAndCancelsTheRest() {
+        AtomicBoolean slowCallInterrupted = new AtomicBoolean();
+        CountDownLatch slowCallRunning = new CountDownLatch(1);
+
+        IOException thrown = assertThrows(IOException.class, () ->
+            io.fanOut(OutboundIntegration.GOOGLE_DRIVE, List.of("slow", "broken"), null, item -> {
+                if (item.equals("broken")) {
+                    // Fail only once "slow" is running, so it is interrupted rather than cancelled unstarted
+                    try {
+                        slowCallRunning.await(5, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    throw new IOException("404 folder not found");
+                }
+                slowCallRunning.countDown();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    slowCallInterrupted.set(true);
+                }
+                return item;
+            }));
+
+        assertEquals("404 folder not found", thrown.getMessage());
+        assertTrue(slowCallInterrupted.get());
+        assertEquals(0, io.getInFlight(OutboundIntegration.GOOGLE_DRIVE));
+    }
+
+    @Test
+    public void testDeadlineCancelsRunningCalls() {
+        AtomicBoolean interrupted = new AtomicBoolean();
+        long started = System.nanoTime();
+
+        OutboundIoDeadlineException thrown = assertThrows(OutboundIoDeadlineException.class, () ->
+            io.call(OutboundIntegration.GOOGLE_DRIVE, Duration.ofMillis(100), () -> {
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+                return "late";
+            }));
+
+        assertEquals(OutboundIntegration.GOOGLE_DRIVE, thrown.getIntegration());
+        assertTrue(interrupted.get());
+        assertTrue(System.nanoTime() - started < TimeUnit.SECONDS.toNanos(2));
+    }
+
+    @Test
+    public void testNestedFanOutOfTheSameIntegrationRunsInline() throws IOException {
+        // Gmail has a single permit: a nested scope waiting for a second one would never finish
+        List<List<String>> results = io.fanOut(OutboundIntegration.GMAIL, List.of("a", "b"), Duration.ofSeconds(5),
+            outer -> io.fanOut(OutboundIntegration.GMAIL, List.of(1, 2), null, inner -> outer + inner));
+
+        assertEquals(List.of(List.of("a1", "a2"), List.of("b1", "b2")), results);
+    }
+
+    @Test
+    public void testTrySubmitSkipsWhenSaturated() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(1);
+
+        assertTrue(io.trySubmit(OutboundIntegration.GMAIL, () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            done.countDown();
+        }));
+        assertFalse(io.trySubmit(OutboundIntegration.GMAIL, () -> fail("should not run")));
+
+        release.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void testRateLimiterSpacesPermits() {
+        IntervalRateLimiter limiter = IntervalRateLimiter.create(20.0);
+        long started = System.nanoTime();
+
+        assertEquals(0.0, limiter.acquire());
+        for (int i = 0; i < 4; i++) {
+            limiter.acquire();
+        }
+
+        // Four intervals of 50ms after the first permit
+        assertTrue(System.nanoTime() - started >= TimeUnit.MILLISECONDS.toNanos(190));
+        assertEquals(20.0, limiter.getRate());
+    }
+
+    @Test
+    public void testRateLimiterRejectsWhenInterruptedWhileWaiting() {
+        IntervalRateLimiter limiter = IntervalRateLimiter.create(1.0);
+        limiter.acquire();
+
+        Thread.currentThread().interrupt();
+        try {
+            assertThrows(RejectedExecutionException.class, limiter::acquire);
+            assertTrue(Thread.currentThread().isInterrupted());
+        } finally {
+            Thread.interrupted();
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package site.easy.to.build.crm.service.lifecycle;
+
+import org.junit.jupiter.api.Test;
+import site.easy.to.build.crm.entity.LifecycleTransitionType;
+
+import java.sql.Date;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LifecycleTransitionDefinition (standalone tests without Spring context)
+ */
+public class LifecycleTransitionDefinitionTest {
+
+    @Test
+    public void testEveryTypeHasDefinition() {
+        for (LifecycleTransitionType type : LifecycleTransitionType.values()) {
+            assertNotNull(LifecycleTransitionDefinition.of(type), type.name());
+        }
+        assertTrue(LifecycleTransitionDefinition.of(LifecycleTransitionType.CONTRACT_EXPIRED).changesState());
+        assertFalse(LifecycleTransitionDefinition.of(LifecycleTransitionType.LEASE_ENDED).changesState());
+        assertNull(LifecycleTransitionDefinition.of(LifecycleTransitionType.VACANCY_TASK_OVERDUE).applySql(3));
+    }
+
+    @Test
+    public void testDueTheDayAfterSourceDate() {
+        LocalDate due = LocalDate.of(2026, 3, 1);
+
+        // Contract end dates are stored as ISO text
+        assertEquals("2026-02-28",
+            LifecycleTransitionDefinition.of(LifecycleTransitionType.CONTRACT_EXPIRED).sourceDateFor(due));
+        assertEquals(Date.valueOf(LocalDate.of(2026, 2, 28)),
+            LifecycleTransitionDefinition.of(LifecycleTransitionType.LEASE_ENDED).sourceDateFor(due));
+    }
+
+    @Test
+    public void testBatchStatementsBindEveryId() {
+        LifecycleTransitionDefinition contracts = LifecycleTransitionDefinition.of(LifecycleTransitionType.CONTRACT_EXPIRED);
+
+        assertTrue(contracts.applySql(3).endsWith("contract_id IN (?, ?, ?)"));
+        assertTrue(contracts.planSql(contracts.idRestriction(2)).contains("s.contract_id IN (?, ?)"));
+        assertTrue(LifecycleTransitionDefinition.markAppliedSql(1).endsWith("id IN (?)"));
+    }
+
+    @Test
+    public void testInstructionCloseAppliesCloseInstructionEffects() {
+        String sql = LifecycleTransitionDefinition.of(LifecycleTransitionType.INSTRUCTION_LEASE_ENDED).applySql(2);
+
+        assertTrue(sql.contains("closure_reason = 'LEASE_ENDED'"));
+        assertTrue(sql.contains("advertising_end_date = IF(advertising_end_date IS NULL"));
+        for (String metric : new String[] {"days_to_fill", "days_vacant", "number_of_enquiries",
+                "number_of_viewings", "conversion_rate"}) {
+            assertTrue(sql.contains(metric + " = "), metric);
+        }
+        assertTrue(sql.endsWith("id IN (?, ?)"));
+    }
+}
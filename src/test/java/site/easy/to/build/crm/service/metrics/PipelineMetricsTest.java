@@ -0,0 +1,67 @@
+package site.easy.to.build.crm.service.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PipelineMetrics (standalone tests without Spring context)
+ */
+public class PipelineMetricsTest {
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final PipelineMetrics metrics = new PipelineMetrics(registry);
+
+    @Test
+    public void testRecordsTimerAndRows() {
+        List<Integer> result = metrics.record("rebuild", "historical", () -> List.of(1, 2, 3), list -> list.size());
+        metrics.record("rebuild", "historical", () -> List.of(4), list -> list.size());
+
+        assertEquals(List.of(1, 2, 3), result);
+        Timer timer = registry.get(PipelineMetrics.PHASE_TIMER)
+            .tags("pipeline", "rebuild", "phase", "historical", "outcome", "success").timer();
+        assertEquals(2, timer.count());
+        DistributionSummary rows = registry.get(PipelineMetrics.ROWS).tags("phase", "historical").summary();
+        assertEquals(2, rows.count());
+        assertEquals(4.0, rows.totalAmount());
+        assertEquals(2, registry.get(PipelineMetrics.THROUGHPUT).tags("phase", "historical").summary().count());
+    }
+
+    @Test
+    public void testFailureIsTaggedAndRethrown() {
+        IllegalStateException thrown = assertThrows(IllegalStateException.class, () ->
+            metrics.run("payprop_import", "tenants", () -> {
+                throw new IllegalStateException("API down");
+            }));
+
+        assertEquals("API down", thrown.getMessage());
+        assertEquals(1, registry.get(PipelineMetrics.PHASE_TIMER)
+            .tags("phase", "tenants", "outcome", "error").timer().count());
+        assertNull(registry.find(PipelineMetrics.ROWS).tags("phase", "tenants").summary());
+    }
+
+    @Test
+    public void testFailedResultIsTaggedAsError() {
+        String result = metrics.record("payprop_import", "invoices", () -> "failed", value -> 0L,
+            value -> !"failed".equals(value));
+
+        assertEquals("failed", result);
+        assertEquals(1, registry.get(PipelineMetrics.PHASE_TIMER)
+            .tags("phase", "invoices", "outcome", "error").timer().count());
+        assertNull(registry.find(PipelineMetrics.PHASE_TIMER).tags("phase", "invoices", "outcome", "success").timer());
+    }
+
+    @Test
+    public void testRowsOfResults() {
+        assertEquals(3, PipelineMetrics.rowsOf(List.of("a", "b", "c")));
+        assertEquals(1, PipelineMetrics.rowsOf(Map.of("a", 1)));
+        assertEquals(1, PipelineMetrics.rowsOf("single"));
+        assertEquals(0, PipelineMetrics.rowsOf(null));
+    }
+}
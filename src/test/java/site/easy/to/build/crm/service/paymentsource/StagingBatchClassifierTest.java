@@ -0,0 +1,86 @@
+package site.easy.to.build.crm.service.paymentsource;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StagingBatchClassifier (standalone tests without Spring context)
+ */
+public class StagingBatchClassifierTest {
+
+    private static final LocalDate DATE = LocalDate.of(2025, 3, 1);
+
+    private static StagingBatchClassifier.Row row(long id, int line, Long propertyId, Long customerId, String amount, String status) {
+        return new StagingBatchClassifier.Row(id, line, 1L, DATE, new BigDecimal(amount), propertyId, customerId,
+            status, false, null);
+    }
+
+    @Test
+    public void testRepeatedLineInBatchIsDuplicateOfTheEarlierOne() {
+        StagingBatchClassifier classifier = new StagingBatchClassifier(List.of(), List.of());
+
+        Map<Long, StagingBatchClassifier.Result> changes = classifier.classify(List.of(
+            row(2, 2, 10L, 5L, "100.00", "PENDING_REVIEW"),
+            row(1, 1, 10L, 5L, "100.0", "PENDING_REVIEW")));
+
+        assertEquals(1, changes.size());
+        assertEquals("DUPLICATE", changes.get(2L).getStatus());
+        assertTrue(changes.get(2L).isDuplicate());
+        assertNull(changes.get(2L).getDuplicateOf());
+    }
+
+    @Test
+    public void testMatchesOldestExistingTransactionOfTheSameSource() {
+        StagingBatchClassifier classifier = new StagingBatchClassifier(List.of(
+            new StagingBatchClassifier.Existing(90L, 1L, DATE, new BigDecimal("100.00"), 10L),
+            new StagingBatchClassifier.Existing(80L, 1L, DATE, new BigDecimal("100.00"), 10L),
+            new StagingBatchClassifier.Existing(70L, 2L, DATE, new BigDecimal("100.00"), 10L)), List.of());
+
+        Map<Long, StagingBatchClassifier.Result> changes = classifier.classify(List.of(
+            row(1, 1, 10L, 5L, "100.00", "PENDING_REVIEW"),
+            row(2, 2, 11L, 5L, "100.00", "PENDING_REVIEW")));
+
+        assertEquals("DUPLICATE", changes.get(1L).getStatus());
+        assertEquals(80L, changes.get(1L).getDuplicateOf());
+        // Different property: not a duplicate, already pending review
+        assertFalse(changes.containsKey(2L));
+    }
+
+    @Test
+    public void testAmbiguousPropertyAndCustomer() {
+        StagingBatchClassifier classifier = new StagingBatchClassifier(List.of(), List.of(
+            new StagingBatchClassifier.Tenancy(10L, 5L, null, null),
+            new StagingBatchClassifier.Tenancy(10L, 6L, DATE.minusYears(1), null),
+            new StagingBatchClassifier.Tenancy(11L, 7L, null, null),
+            new StagingBatchClassifier.Tenancy(11L, 8L, null, DATE.minusDays(1))));
+
+        Map<Long, StagingBatchClassifier.Result> changes = classifier.classify(List.of(
+            row(1, 1, null, null, "10.00", "PENDING_REVIEW"),
+            row(2, 2, 10L, null, "20.00", "PENDING_REVIEW"),
+            row(3, 3, 11L, null, "30.00", "AMBIGUOUS_CUSTOMER")));
+
+        assertEquals("AMBIGUOUS_PROPERTY", changes.get(1L).getStatus());
+        assertEquals("AMBIGUOUS_CUSTOMER", changes.get(2L).getStatus());
+        // Only one tenancy of property 11 covers the date
+        assertEquals("PENDING_REVIEW", changes.get(3L).getStatus());
+    }
+
+    @Test
+    public void testReviewedRowsKeepTheirStatusButStillCountForDuplicates() {
+        StagingBatchClassifier classifier = new StagingBatchClassifier(List.of(), List.of());
+
+        Map<Long, StagingBatchClassifier.Result> changes = classifier.classify(List.of(
+            row(1, 1, 10L, 5L, "100.00", "APPROVED"),
+            row(2, 2, 10L, 5L, "100.00", "REJECTED"),
+            row(3, 3, 10L, 5L, "100.00", "PENDING_REVIEW")));
+
+        assertEquals(1, changes.size());
+        assertEquals("DUPLICATE", changes.get(3L).getStatus());
+    }
+}
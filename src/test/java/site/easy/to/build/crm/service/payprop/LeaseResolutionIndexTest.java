@@ -0,0 +1,84 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.junit.jupiter.api.Test;
+import site.easy.to.build.crm.entity.Customer;
+import site.easy.to.build.crm.entity.Invoice;
+import site.easy.to.build.crm.entity.Property;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for LeaseResolutionIndex (standalone tests without Spring context)
+ */
+public class LeaseResolutionIndexTest {
+
+    private static Invoice lease(long id, long propertyId, long customerId, String tenantPayPropId,
+                                 LocalDate start, LocalDate end) {
+        Property property = new Property();
+        property.setId(propertyId);
+        Customer customer = new Customer();
+        customer.setCustomerId(customerId);
+
+        Invoice invoice = new Invoice();
+        invoice.setId(id);
+        invoice.setProperty(property);
+        invoice.setCustomer(customer);
+        invoice.setPaypropCustomerId(tenantPayPropId);
+        invoice.setStartDate(start);
+        invoice.setEndDate(end);
+        return invoice;
+    }
+
+    @Test
+    public void testTransactionDatePicksCoveringLease() {
+        Invoice first = lease(1, 10, 100, "t1", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31));
+        Invoice second = lease(2, 10, 100, "t1", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+        Invoice ongoing = lease(3, 10, 200, "t2", LocalDate.of(2024, 1, 1), null);
+        LeaseResolutionIndex index = new LeaseResolutionIndex(List.of(second, ongoing, first));
+
+        LeaseResolutionIndex.Leases tenantLeases = index.findByPropertyAndTenant(10L, "t1");
+        assertEquals(2, tenantLeases.size());
+        assertSame(first, tenantLeases.resolve(LocalDate.of(2022, 6, 1)));
+        assertSame(second, tenantLeases.resolve(LocalDate.of(2023, 6, 1)));
+
+        LeaseResolutionIndex.Leases propertyLeases = index.findByProperty(10L);
+        assertSame(ongoing, propertyLeases.resolve(LocalDate.of(2025, 3, 1)));
+        assertSame(first, propertyLeases.resolve(LocalDate.of(2022, 12, 31)));
+        assertSame(second, index.findByPropertyAndCustomer(10L, 100L).resolve(LocalDate.of(2023, 1, 1)));
+    }
+
+    @Test
+    public void testFallsBackToMostRecentLease() {
+        Invoice ended = lease(1, 10, 100, "t1", LocalDate.of(2022, 1, 1), LocalDate.of(2022, 12, 31));
+        Invoice later = lease(2, 10, 100, "t1", LocalDate.of(2023, 1, 1), LocalDate.of(2023, 12, 31));
+        Invoice ongoing = lease(3, 10, 100, "t1", LocalDate.of(2024, 6, 1), null);
+        LeaseResolutionIndex.Leases leases = new LeaseResolutionIndex(List.of(ended, later, ongoing))
+            .findByPropertyAndTenant(10L, "t1");
+
+        // Deposit paid before any lease started, and no date at all: ongoing lease first
+        assertSame(ongoing, leases.resolve(LocalDate.of(2021, 11, 1)));
+        assertSame(ongoing, leases.resolve(null));
+        // Gap between leases
+        assertNull(leases.findCovering(LocalDate.of(2024, 3, 1)));
+        assertSame(ongoing, leases.resolve(LocalDate.of(2024, 3, 1)));
+    }
+
+    @Test
+    public void testDeletedInvoicesSkipTenantKeyOnly() {
+        Invoice deleted = lease(1, 10, 100, "t1", LocalDate.of(2022, 1, 1), null);
+        deleted.setDeletedAt(LocalDateTime.of(2023, 1, 1, 0, 0));
+        deleted.setPaypropId("inv1");
+        LeaseResolutionIndex index = new LeaseResolutionIndex(List.of(deleted));
+
+        assertTrue(index.findByPropertyAndTenant(10L, "t1").isEmpty());
+        assertSame(deleted, index.findByPropertyAndCustomer(10L, 100L).getMostRecent());
+        assertSame(deleted, index.findByProperty(10L).getMostRecent());
+        assertSame(deleted, index.findByPayPropId("inv1"));
+        assertNull(index.findByPayPropId("missing"));
+        assertTrue(index.findByProperty(99L).isEmpty());
+    }
+}
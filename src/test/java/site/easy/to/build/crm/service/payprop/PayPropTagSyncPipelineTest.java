@@ -0,0 +1,67 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.junit.jupiter.api.Test;
+import site.easy.to.build.crm.entity.TagSyncProgress;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropTagSyncPipeline resume decisions (standalone tests without Spring context)
+ */
+public class PayPropTagSyncPipelineTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.of(2025, 3, 1, 12, 0);
+
+    @Test
+    public void testRecentRunWithUnfinishedUnitIsResumed() {
+        List<TagSyncProgress> previous = List.of(
+            progress("portfolio:1", TagSyncProgress.STATUS_COMPLETED, 1, NOW.minusHours(1)),
+            progress("portfolio:2", TagSyncProgress.STATUS_FAILED, 1, NOW.minusHours(1)));
+
+        assertTrue(PayPropTagSyncPipeline.isResumable(previous, Set.of("portfolio:1", "portfolio:2"), NOW));
+    }
+
+    @Test
+    public void testUnitOutOfAttemptsStartsFreshRun() {
+        List<TagSyncProgress> previous = List.of(
+            progress("portfolio:2", TagSyncProgress.STATUS_FAILED, PayPropTagSyncPipeline.MAX_UNIT_ATTEMPTS,
+                NOW.minusHours(1)));
+
+        assertFalse(PayPropTagSyncPipeline.isResumable(previous, Set.of("portfolio:2"), NOW));
+    }
+
+    @Test
+    public void testOldRunStartsFreshRun() {
+        List<TagSyncProgress> previous = List.of(
+            progress("portfolio:2", TagSyncProgress.STATUS_PENDING, 1,
+                NOW.minus(PayPropTagSyncPipeline.MAX_RESUME_AGE).minusMinutes(1)));
+
+        assertFalse(PayPropTagSyncPipeline.isResumable(previous, Set.of("portfolio:2"), NOW));
+    }
+
+    @Test
+    public void testUnitsNotLoadedByThisRunDoNotKeepRunOpen() {
+        // Standalone block left unfinished by an includeBlocks run; this run only loads portfolios
+        List<TagSyncProgress> previous = List.of(
+            progress("portfolio:1", TagSyncProgress.STATUS_COMPLETED, 1, NOW.minusHours(1)),
+            progress("block:7", TagSyncProgress.STATUS_FAILED, 1, NOW.minusHours(1)));
+
+        assertFalse(PayPropTagSyncPipeline.isResumable(previous, Set.of("portfolio:1"), NOW));
+    }
+
+    @Test
+    public void testNoPreviousRunIsNotResumed() {
+        assertFalse(PayPropTagSyncPipeline.isResumable(List.of(), Set.of("portfolio:1"), NOW));
+    }
+
+    private static TagSyncProgress progress(String unitKey, String status, int attempts, LocalDateTime startedAt) {
+        TagSyncProgress progress = new TagSyncProgress("run-1", unitKey, null, startedAt);
+        progress.setStatus(status);
+        progress.setAttempts(attempts);
+        return progress;
+    }
+}
@@ -0,0 +1,52 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropTicketChange (standalone tests without Spring context)
+ */
+public class PayPropTicketChangeTest {
+
+    @Test
+    public void testChangedWhenModifiedTimeOrMessageCountMoves() {
+        LocalDateTime stored = LocalDateTime.of(2026, 5, 1, 9, 30);
+        PayPropTicketChange change = PayPropTicketChange.of(Map.of("modified_at", "2026-05-01 09:30:00", "message_count", 3));
+
+        assertTrue(change.hasSignals());
+        assertFalse(change.changedSince(stored, 3));
+        assertTrue(change.changedSince(stored, 2));
+        assertTrue(change.changedSince(stored.minusMinutes(1), 3));
+        // Never synced before
+        assertTrue(change.changedSince(null, null));
+        assertFalse(change.needsMessageSync(stored, 3));
+        assertTrue(change.needsMessageSync(stored, 2));
+    }
+
+    @Test
+    public void testWithoutSignalsNothingChanges() {
+        PayPropTicketChange change = PayPropTicketChange.of(Map.of("id", "t1", "status", "new"));
+
+        assertFalse(change.hasSignals());
+        assertFalse(change.changedSince(null, null));
+        // Nothing to compare: the known ticket's messages are fetched every sync
+        assertTrue(change.needsMessageSync(LocalDateTime.of(2026, 5, 1, 9, 30), 3));
+        assertTrue(change.needsMessageSync(null, null));
+    }
+
+    @Test
+    public void testTimestampFormats() {
+        LocalDateTime expected = LocalDateTime.of(2026, 5, 1, 9, 30);
+
+        assertEquals(expected, PayPropTicketChange.parseTimestamp("2026-05-01T09:30:00"));
+        assertEquals(expected, PayPropTicketChange.parseTimestamp("2026-05-01 09:30:00"));
+        assertEquals(expected, PayPropTicketChange.parseTimestamp("2026-05-01T09:30:00Z"));
+        assertEquals(expected.toLocalDate().atStartOfDay(), PayPropTicketChange.parseTimestamp("2026-05-01"));
+        assertNull(PayPropTicketChange.parseTimestamp("yesterday"));
+        assertNull(PayPropTicketChange.parseTimestamp(null));
+    }
+}
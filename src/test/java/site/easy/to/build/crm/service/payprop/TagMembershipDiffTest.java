@@ -0,0 +1,75 @@
+package site.easy.to.build.crm.service.payprop;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for TagMembershipDiff (standalone tests without Spring context)
+ */
+public class TagMembershipDiffTest {
+
+    @Test
+    public void testOnlyMissingMembersAreAddedAndStrayMembersRemoved() {
+        TagMembershipDiff.Unit portfolio = TagMembershipDiff.Unit.forPortfolio(1L)
+            .addMember("T1", "p1").addMember("T1", "p2").addMember("T1", "p3");
+
+        TagMembershipDiff diff = new TagMembershipDiff(List.of(portfolio),
+            Map.of("T1", Set.of("p1", "p2", "p9")));
+        TagMembershipDiff.Changes changes = diff.getChanges().get(0);
+
+        assertEquals(Map.of("p3", Set.of("T1")), changes.getAdds());
+        assertEquals(1, changes.getRemoves().size());
+        assertEquals("p9", changes.getRemoves().get(0).getPropertyId());
+        assertEquals(2, changes.getUnchanged());
+        assertEquals(1, diff.getAddCallCount());
+        assertEquals(1, diff.getRemoveCallCount());
+    }
+
+    @Test
+    public void testPortfolioAndBlockTagsShareOneAddPerProperty() {
+        TagMembershipDiff.Unit portfolio = TagMembershipDiff.Unit.forPortfolio(1L)
+            .addMember("PORT", "p1").addMember("BLOCK", "p1").addBlock(10L);
+
+        TagMembershipDiff diff = new TagMembershipDiff(List.of(portfolio), Map.of());
+        TagMembershipDiff.Changes changes = diff.getChanges().get(0);
+
+        assertEquals(Map.of("p1", Set.of("BLOCK", "PORT")), changes.getAdds());
+        // Actual membership unknown: never remove
+        assertTrue(changes.getRemoves().isEmpty());
+    }
+
+    @Test
+    public void testSharedTagIsAddedOnceAndKeepsMembersOfEveryUnit() {
+        TagMembershipDiff.Unit first = TagMembershipDiff.Unit.forPortfolio(1L).addMember("T", "p1");
+        TagMembershipDiff.Unit second = TagMembershipDiff.Unit.forStandaloneBlock(5L)
+            .addMember("T", "p1").addMember("T", "p2");
+
+        TagMembershipDiff diff = new TagMembershipDiff(List.of(first, second), Map.of("T", Set.of("p2", "p3")));
+
+        assertEquals(Map.of("p1", Set.of("T")), diff.getChanges().get(0).getAdds());
+        assertTrue(diff.getChanges().get(1).getAdds().isEmpty());
+        assertEquals(1, diff.getRemoveCallCount());
+        assertEquals("p3", diff.getChanges().get(0).getRemoves().get(0).getPropertyId());
+    }
+
+    @Test
+    public void testDeclaredTagWithoutMembersIsEmptied() {
+        TagMembershipDiff.Unit portfolio = TagMembershipDiff.Unit.forPortfolio(1L).addTag("T");
+
+        TagMembershipDiff diff = new TagMembershipDiff(List.of(portfolio), Map.of("T", Set.of("p1", "p2")));
+
+        assertEquals(0, diff.getAddCallCount());
+        assertEquals(2, diff.getRemoveCallCount());
+    }
+
+    @Test
+    public void testSplitTags() {
+        assertEquals(List.of("a", "b"), PayPropTagSyncPipeline.splitTags(" a, b ,,a"));
+        assertTrue(PayPropTagSyncPipeline.splitTags(null).isEmpty());
+    }
+}
@@ -0,0 +1,167 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropBulkhead and AdaptiveConcurrencyLimit (standalone tests without Spring context)
+ */
+public class PayPropBulkheadTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final AtomicLong clock = new AtomicLong(1_000_000 * MS);
+
+    private AdaptiveConcurrencyLimit limit(int initial, int min, int max) {
+        return new AdaptiveConcurrencyLimit(initial, min, max, 100 * MS, 0.5, 1000 * MS, clock::get);
+    }
+
+    private PayPropBulkhead bulkhead(AdaptiveConcurrencyLimit limit, int reserve) {
+        return new PayPropBulkhead(PayPropEndpointFamily.REPORT, limit, reserve, 3, 60_000 * MS, clock::get);
+    }
+
+    @Test
+    public void testLimitGrowsOnlyWhenSaturatedAndHealthy() {
+        AdaptiveConcurrencyLimit limit = limit(2, 1, 4);
+
+        limit.onSuccess(10 * MS, 1);
+        assertEquals(2, limit.getLimit());
+
+        // 2 -> 2.5 -> 2.9 -> 3.24
+        limit.onSuccess(10 * MS, 2);
+        limit.onSuccess(10 * MS, 2);
+        assertEquals(2, limit.getLimit());
+        limit.onSuccess(10 * MS, 2);
+        assertEquals(3, limit.getLimit());
+
+        for (int i = 0; i < 20; i++) {
+            limit.onSuccess(10 * MS, 4);
+        }
+        assertEquals(4, limit.getLimit());
+    }
+
+    @Test
+    public void testLimitBacksOffOncePerCooldownOnLatencyAndThrottling() {
+        AdaptiveConcurrencyLimit limit = limit(4, 1, 8);
+
+        limit.onSuccess(500 * MS, 4);
+        assertEquals(2, limit.getLimit());
+
+        // Same burst: no second decrease inside the cooldown
+        limit.onOverload();
+        assertEquals(2, limit.getLimit());
+
+        clock.addAndGet(1000 * MS);
+        limit.onOverload();
+        assertEquals(1, limit.getLimit());
+
+        clock.addAndGet(1000 * MS);
+        limit.onOverload();
+        assertEquals(1, limit.getLimit());
+    }
+
+    @Test
+    public void testCircuitOpensHalfOpensAndCloses() throws Exception {
+        PayPropBulkhead bulkhead = bulkhead(limit(4, 4, 4), 0);
+
+        for (int i = 0; i < 3; i++) {
+            bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS).complete(PayPropBulkhead.Outcome.FAILURE);
+        }
+        assertEquals(PayPropBulkhead.CircuitState.OPEN, bulkhead.getCircuitState());
+        PayPropBulkheadRejectedException rejected = assertThrows(PayPropBulkheadRejectedException.class,
+            () -> bulkhead.acquire(PayPropCallPriority.INTERACTIVE, 0, TimeUnit.MILLISECONDS));
+        assertTrue(rejected.isCircuitOpen());
+
+        clock.addAndGet(60_000 * MS);
+        PayPropBulkhead.Permit probe = bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS);
+        // Only one probe while half-open
+        assertThrows(PayPropBulkheadRejectedException.class,
+            () -> bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS));
+        probe.complete(PayPropBulkhead.Outcome.FAILURE);
+        assertEquals(PayPropBulkhead.CircuitState.OPEN, bulkhead.getCircuitState());
+
+        clock.addAndGet(60_000 * MS);
+        bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS).complete(PayPropBulkhead.Outcome.SUCCESS);
+        assertEquals(PayPropBulkhead.CircuitState.CLOSED, bulkhead.getCircuitState());
+    }
+
+    @Test
+    public void testThrottlingDoesNotOpenTheCircuit() throws Exception {
+        PayPropBulkhead bulkhead = bulkhead(limit(4, 1, 4), 0);
+
+        for (int i = 0; i < 10; i++) {
+            bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS).complete(PayPropBulkhead.Outcome.THROTTLED);
+        }
+
+        assertEquals(PayPropBulkhead.CircuitState.CLOSED, bulkhead.getCircuitState());
+        assertEquals(2, bulkhead.getLimit());
+    }
+
+    @Test
+    public void testBatchLeavesReserveForInteractive() throws Exception {
+        PayPropBulkhead bulkhead = bulkhead(limit(2, 2, 2), 1);
+
+        PayPropBulkhead.Permit batch = bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS);
+        PayPropBulkheadRejectedException full = assertThrows(PayPropBulkheadRejectedException.class,
+            () -> bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS));
+        assertFalse(full.isCircuitOpen());
+
+        PayPropBulkhead.Permit interactive = bulkhead.acquire(PayPropCallPriority.INTERACTIVE, 0, TimeUnit.MILLISECONDS);
+        assertEquals(2, bulkhead.getInFlight());
+
+        interactive.complete(PayPropBulkhead.Outcome.SUCCESS);
+        batch.complete(PayPropBulkhead.Outcome.SUCCESS);
+        // Completing twice releases only once
+        batch.complete(PayPropBulkhead.Outcome.SUCCESS);
+        assertEquals(0, bulkhead.getInFlight());
+    }
+
+    @Test
+    public void testWaitingInteractiveCallerIsAdmittedBeforeWaitingBatchCaller() throws Exception {
+        PayPropBulkhead bulkhead = bulkhead(limit(1, 1, 1), 0);
+        PayPropBulkhead.Permit held = bulkhead.acquire(PayPropCallPriority.BATCH, 0, TimeUnit.MILLISECONDS);
+
+        AtomicReference<String> firstAdmitted = new AtomicReference<>();
+        CountDownLatch done = new CountDownLatch(2);
+        Thread batch = waiter(bulkhead, PayPropCallPriority.BATCH, firstAdmitted, done);
+        batch.start();
+        awaitWaiting(bulkhead, PayPropCallPriority.BATCH);
+        Thread interactive = waiter(bulkhead, PayPropCallPriority.INTERACTIVE, firstAdmitted, done);
+        interactive.start();
+        awaitWaiting(bulkhead, PayPropCallPriority.INTERACTIVE);
+
+        held.complete(PayPropBulkhead.Outcome.SUCCESS);
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals("INTERACTIVE", firstAdmitted.get());
+    }
+
+    private static Thread waiter(PayPropBulkhead bulkhead, PayPropCallPriority priority,
+                                 AtomicReference<String> firstAdmitted, CountDownLatch done) {
+        return new Thread(() -> {
+            try {
+                PayPropBulkhead.Permit permit = bulkhead.acquire(priority, 5, TimeUnit.SECONDS);
+                firstAdmitted.compareAndSet(null, priority.name());
+                permit.complete(PayPropBulkhead.Outcome.SUCCESS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                done.countDown();
+            }
+        });
+    }
+
+    private static void awaitWaiting(PayPropBulkhead bulkhead, PayPropCallPriority priority) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (bulkhead.getWaiting(priority) == 0) {
+            assertTrue(System.nanoTime() < deadline, "caller never started waiting");
+            Thread.sleep(5);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package site.easy.to.build.crm.service.payprop.bulkhead;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.mock.env.MockEnvironment;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+import org.springframework.web.client.ResourceAccessException;
+import org.springframework.web.client.RestTemplate;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropBulkheads against a local stub of the PayProp API that injects errors,
+ * throttling and latency (standalone tests without Spring context)
+ */
+public class PayPropBulkheadsStubServerTest {
+
+    private static final String API_BASE_PATH = "/api/agency/v1.1";
+
+    private HttpServer server;
+    private ExecutorService handlers;
+    private String baseUrl;
+    private final Map<String, AtomicInteger> hits = new ConcurrentHashMap<>();
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private PayPropBulkheads bulkheads;
+    private RestTemplate restTemplate;
+
+    @BeforeEach
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        // Slow handlers must not hold up the others
+        handlers = Executors.newCachedThreadPool();
+        server.setExecutor(handlers);
+        stub("/report/all-payments", 500, 0);
+        stub("/export/payments", 429, 0);
+        stub("/maintenance/tickets", 200, 0);
+        stub("/maintenance/categories", 200, 250);
+        stub("/entity/property", 200, 2000);
+        server.start();
+        baseUrl = "http://127.0.0.1:" + server.getAddress().getPort() + API_BASE_PATH;
+
+        MockEnvironment environment = new MockEnvironment()
+            .withProperty("payprop.bulkhead.initial-limit", "4")
+            .withProperty("payprop.bulkhead.max-limit", "4")
+            .withProperty("payprop.bulkhead.latency-target-ms", "100")
+            .withProperty("payprop.bulkhead.backoff-cooldown-ms", "0")
+            .withProperty("payprop.bulkhead.failure-threshold", "3")
+            .withProperty("payprop.bulkhead.acquire-timeout-ms", "1000");
+        bulkheads = new PayPropBulkheads(registry, environment);
+
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setReadTimeout(500);
+        restTemplate = new RestTemplate(requestFactory);
+    }
+
+    @AfterEach
+    public void tearDown() {
+        server.stop(0);
+        handlers.shutdownNow();
+    }
+
+    private void stub(String path, int status, long delayMs) {
+        hits.put(path, new AtomicInteger());
+        server.createContext(API_BASE_PATH + path, exchange -> respond(exchange, path, status, delayMs));
+    }
+
+    private void respond(HttpExchange exchange, String path, int status, long delayMs) throws IOException {
+        hits.get(path).incrementAndGet();
+        try {
+            Thread.sleep(delayMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        byte[] body = "{}".getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().add("Content-Type", "application/json");
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    private ResponseEntity<Map> call(String endpoint) {
+        String url = baseUrl + endpoint;
+        return bulkheads.execute(url, null, () -> restTemplate.exchange(url, HttpMethod.GET, null, Map.class));
+    }
+
+    @Test
+    public void testServerErrorsOpenOnlyTheirFamilysCircuit() {
+        for (int i = 0; i < 3; i++) {
+            assertThrows(HttpServerErrorException.class, () -> call("/report/all-payments?rows=25"));
+        }
+
+        PayPropBulkheadRejectedException rejected = assertThrows(PayPropBulkheadRejectedException.class,
+            () -> call("/report/all-payments?rows=25"));
+        assertEquals(PayPropEndpointFamily.REPORT, rejected.getFamily());
+        assertEquals(3, hits.get("/report/all-payments").get());
+        assertEquals(PayPropBulkhead.CircuitState.OPEN, bulkheads.get(PayPropEndpointFamily.REPORT).getCircuitState());
+
+        // Maintenance has its own circuit
+        assertEquals(200, call("/maintenance/tickets").getStatusCode().value());
+
+        assertEquals(3, registry.get(PayPropBulkheads.CALL_TIMER)
+            .tags("family", "report", "outcome", "failure").timer().count());
+        assertEquals(1.0, registry.get(PayPropBulkheads.REJECTED)
+            .tags("family", "report", "reason", "circuit_open").counter().count());
+        assertEquals(2.0, registry.get(PayPropBulkheads.CIRCUIT_STATE).tag("family", "report").gauge().value());
+        assertEquals(0.0, registry.get(PayPropBulkheads.CIRCUIT_STATE).tag("family", "maintenance").gauge().value());
+    }
+
+    @Test
+    public void testThrottlingShrinksTheLimitWithoutOpeningTheCircuit() {
+        for (int i = 0; i < 5; i++) {
+            assertThrows(HttpClientErrorException.class, () -> call("/export/payments"));
+        }
+
+        PayPropBulkhead export = bulkheads.get(PayPropEndpointFamily.EXPORT);
+        assertEquals(1, export.getLimit());
+        assertEquals(PayPropBulkhead.CircuitState.CLOSED, export.getCircuitState());
+        assertEquals(5, hits.get("/export/payments").get());
+        assertEquals(5, registry.get(PayPropBulkheads.CALL_TIMER)
+            .tags("family", "export", "outcome", "throttled").timer().count());
+        assertEquals(4.0, registry.get(PayPropBulkheads.LIMIT).tag("family", "tags").gauge().value());
+    }
+
+    @Test
+    public void testSlowResponsesShrinkTheLimitAndTimeoutsCountAsFailures() {
+        call("/maintenance/categories");
+        assertEquals(2, bulkheads.get(PayPropEndpointFamily.MAINTENANCE).getLimit());
+
+        assertThrows(ResourceAccessException.class, () -> call("/entity/property/123"));
+        assertEquals(2, bulkheads.get(PayPropEndpointFamily.ENTITY).getLimit());
+        assertEquals(1, registry.get(PayPropBulkheads.CALL_TIMER)
+            .tags("family", "entity", "outcome", "failure").timer().count());
+    }
+
+    @Test
+    public void testEndpointFamilies() {
+        assertEquals(PayPropEndpointFamily.REPORT, PayPropEndpointFamily.of("/report/icdn?from_date=2024-01-01"));
+        assertEquals(PayPropEndpointFamily.EXPORT, PayPropEndpointFamily.of("/export/invoice-instructions"));
+        assertEquals(PayPropEndpointFamily.TAGS, PayPropEndpointFamily.of("/tags/abc/entities"));
+        assertEquals(PayPropEndpointFamily.TAGS, PayPropEndpointFamily.of("/tags?rows=25"));
+        assertEquals(PayPropEndpointFamily.DOCUMENTS, PayPropEndpointFamily.of("/attachments/xyz"));
+        assertEquals(PayPropEndpointFamily.MAINTENANCE, PayPropEndpointFamily.of(baseUrl + "/maintenance/tickets?page=2"));
+        assertEquals(PayPropEndpointFamily.OTHER, PayPropEndpointFamily.of("/meta/me"));
+        assertEquals(PayPropEndpointFamily.OTHER, PayPropEndpointFamily.of("/tagsx"));
+    }
+}
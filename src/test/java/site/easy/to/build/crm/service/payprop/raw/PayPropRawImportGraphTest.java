@@ -0,0 +1,115 @@
+package site.easy.to.build.crm.service.payprop.raw;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropRawImportGraph (standalone tests without Spring context)
+ */
+public class PayPropRawImportGraphTest {
+
+    private final ExecutorService executor = Executors.newFixedThreadPool(3);
+    private final Map<String, Integer> calls = new ConcurrentHashMap<>();
+
+    @AfterEach
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private Supplier<PayPropRawImportResult> importer(String name, boolean success) {
+        return () -> {
+            calls.merge(name, 1, Integer::sum);
+            PayPropRawImportResult result = new PayPropRawImportResult(name);
+            result.setSuccess(success);
+            if (!success) {
+                result.setErrorMessage(name + " failed");
+            }
+            return result;
+        };
+    }
+
+    @Test
+    public void testIndependentImportsRunConcurrently() {
+        // Both children wait for each other, so the run only finishes if they overlap
+        CountDownLatch bothStarted = new CountDownLatch(2);
+        Supplier<PayPropRawImportResult> child = () -> {
+            bothStarted.countDown();
+            try {
+                assertTrue(bothStarted.await(5, TimeUnit.SECONDS));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            PayPropRawImportResult result = new PayPropRawImportResult("child");
+            result.setSuccess(true);
+            return result;
+        };
+
+        PayPropRawImportGraph.GraphRun run = new PayPropRawImportGraph()
+            .add("properties", importer("properties", true))
+            .add("invoices", child, "properties")
+            .add("tenants", child, "properties")
+            .execute(executor);
+
+        assertTrue(run.isSuccess());
+        assertEquals(Set.of("properties", "invoices", "tenants"), run.getSucceeded());
+        assertEquals("properties", run.getCriticalPath().get(0));
+        assertEquals(2, run.getCriticalPath().size());
+    }
+
+    @Test
+    public void testFailureSkipsOnlyDependents() {
+        PayPropRawImportGraph.GraphRun run = new PayPropRawImportGraph()
+            .add("properties", importer("properties", true))
+            .add("beneficiaries", importer("beneficiaries", false), "properties")
+            .add("beneficiary_balances", importer("beneficiary_balances", true), "beneficiaries")
+            .add("tenants", importer("tenants", true), "properties")
+            .execute(executor);
+
+        assertFalse(run.isSuccess());
+        assertEquals(Set.of("beneficiaries"), run.getFailed());
+        assertEquals(Set.of("beneficiary_balances"), run.getSkipped());
+        assertEquals(Set.of("properties", "tenants"), run.getSucceeded());
+        assertNull(calls.get("beneficiary_balances"));
+    }
+
+    @Test
+    public void testResumeRerunsFailedAndSkippedOnly() {
+        PayPropRawImportGraph graph = new PayPropRawImportGraph()
+            .add("properties", importer("properties", true))
+            .add("invoices", importer("invoices", true), "properties")
+            .add("beneficiaries", importer("beneficiaries", false), "properties");
+        PayPropRawImportGraph.GraphRun failed = graph.execute(executor);
+
+        PayPropRawImportGraph retry = new PayPropRawImportGraph()
+            .add("properties", importer("properties", true))
+            .add("invoices", importer("invoices", true), "properties")
+            .add("beneficiaries", importer("beneficiaries", true), "properties");
+        PayPropRawImportGraph.GraphRun resumed = retry.resume(executor, failed);
+
+        assertTrue(resumed.isSuccess());
+        assertEquals(PayPropRawImportGraph.NodeStatus.REUSED, resumed.getNodeRuns().get("properties").getStatus());
+        assertEquals(PayPropRawImportGraph.NodeStatus.SUCCEEDED, resumed.getNodeRuns().get("beneficiaries").getStatus());
+        assertEquals(1, calls.get("properties"));
+        assertEquals(1, calls.get("invoices"));
+        assertEquals(2, calls.get("beneficiaries"));
+    }
+
+    @Test
+    public void testUnknownDependencyIsRejected() {
+        PayPropRawImportGraph graph = new PayPropRawImportGraph();
+        assertThrows(IllegalArgumentException.class, () -> graph.add("invoices", importer("invoices", true), "properties"));
+        assertEquals(List.of(), graph.getDependencies("invoices"));
+    }
+}
@@ -0,0 +1,55 @@
+package site.easy.to.build.crm.service.payprop.raw;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropRawRecordHashService hashing and mirror diff (standalone tests without Spring context)
+ */
+public class PayPropRawRecordHashServiceTest {
+
+    @Test
+    public void testHashIgnoresKeyOrder() {
+        Map<String, Object> first = new LinkedHashMap<>();
+        first.put("id", "p1");
+        first.put("name", "Flat 1");
+        first.put("address", new LinkedHashMap<>(Map.of("city", "Leeds", "postal_code", "LS1 1AA")));
+
+        Map<String, Object> second = new LinkedHashMap<>();
+        second.put("address", new LinkedHashMap<>(Map.of("postal_code", "LS1 1AA", "city", "Leeds")));
+        second.put("name", "Flat 1");
+        second.put("id", "p1");
+
+        assertEquals(PayPropRawRecordHashService.contentHash(first), PayPropRawRecordHashService.contentHash(second));
+
+        second.put("name", "Flat 1A");
+        assertNotEquals(PayPropRawRecordHashService.contentHash(first), PayPropRawRecordHashService.contentHash(second));
+    }
+
+    @Test
+    public void testDiffClassifiesRecords() {
+        Map<String, String> stored = Map.of("a", "h1", "b", "h2", "c", "h3");
+        Map<String, String> fetched = Map.of("a", "h1", "b", "h2-new", "d", "h4");
+
+        PayPropRawMirrorDiff diff = PayPropRawRecordHashService.diff("payprop_export_tenants", stored, fetched);
+
+        assertEquals(Set.of("d"), diff.getInserted());
+        assertEquals(Set.of("b"), diff.getChanged());
+        assertEquals(Set.of("c"), diff.getDeleted());
+        assertEquals(1, diff.getUnchanged());
+        assertEquals(3, diff.getChangeCount());
+    }
+
+    @Test
+    public void testNothingFetchedDeletesNothing() {
+        PayPropRawMirrorDiff diff = PayPropRawRecordHashService.diff("payprop_export_properties", Map.of("a", "h1"), null);
+
+        assertTrue(diff.isEmpty());
+        assertEquals(0, diff.getUnchanged());
+    }
+}
@@ -0,0 +1,93 @@
+package site.easy.to.build.crm.service.payprop.webhook;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import site.easy.to.build.crm.service.payprop.webhook.PayPropWebhookCoalescer.CoalescedEvent;
+
+import java.io.InputStream;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PayPropWebhookEvents and PayPropWebhookCoalescer, replaying a recorded burst of
+ * PayProp webhook deliveries (standalone tests without Spring context)
+ */
+public class PayPropWebhookCoalescerTest {
+
+    /**
+     * Split the recorded deliveries and store them as the inbox would: numbered in arrival
+     * order, redeliveries (same event key) dropped.
+     */
+    private List<PayPropWebhookEvent> replay(String resource) throws Exception {
+        List<Map<String, Object>> deliveries;
+        try (InputStream in = getClass().getResourceAsStream(resource)) {
+            deliveries = new ObjectMapper().readValue(in, new TypeReference<List<Map<String, Object>>>() {});
+        }
+        Map<String, PayPropWebhookEvent> inbox = new LinkedHashMap<>();
+        long id = 1;
+        for (Map<String, Object> delivery : deliveries) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> payload = (Map<String, Object>) delivery.get("payload");
+            for (PayPropWebhookEvent event : PayPropWebhookEvents.split((String) delivery.get("endpoint"), payload)) {
+                if (!inbox.containsKey(event.getEventKey())) {
+                    inbox.put(event.getEventKey(), new PayPropWebhookEvent(id++, event.getEventKey(), event.getEndpoint(),
+                        event.getAction(), event.getEntityKey(), event.getData(), null, 0));
+                }
+            }
+        }
+        return new ArrayList<>(inbox.values());
+    }
+
+    @Test
+    public void testSplitFiltersByEndpointAndDropsRedeliveries() throws Exception {
+        List<PayPropWebhookEvent> events = replay("/payprop-webhooks/burst.json");
+
+        // 13 deliveries: one exact redelivery, one payment event on the batch endpoint and one
+        // create event on the update endpoint are not queued
+        assertEquals(12, events.size());
+        assertTrue(events.stream().noneMatch(e -> "payment:PAY9".equals(e.getEntityKey())));
+        assertTrue(events.stream().noneMatch(e -> "ticket:T2".equals(e.getEntityKey())));
+    }
+
+    @Test
+    public void testRepeatedUpdatesCoalesceInOrder() throws Exception {
+        List<List<CoalescedEvent>> lanes = PayPropWebhookCoalescer.plan(replay("/payprop-webhooks/burst.json"));
+
+        List<CoalescedEvent> ticket = lanes.stream()
+            .filter(lane -> "ticket:T1".equals(lane.get(0).getSurvivor().getEntityKey()))
+            .findFirst().orElseThrow();
+        // create, update, message, then the two later updates merged into one
+        assertEquals(List.of("maintenance-ticket-created", "maintenance-ticket-updated", "maintenance-message",
+                "maintenance-ticket-updated"),
+            ticket.stream().map(CoalescedEvent::getEndpoint).toList());
+        CoalescedEvent merged = ticket.get(3);
+        assertEquals(1, merged.getCoalescedCount());
+        assertEquals("resolved", merged.getData().get("status"));
+        assertFalse(merged.getData().containsKey("description"));
+
+        CoalescedEvent batch = lanes.stream().flatMap(List::stream)
+            .filter(e -> "batch:B1".equals(e.getSurvivor().getEntityKey())).findFirst().orElseThrow();
+        assertEquals("update", batch.getAction());
+        assertEquals("1500.00", batch.getData().get("total_amount"));
+        assertEquals("processed", batch.getData().get("status"));
+    }
+
+    @Test
+    public void testTagApplicationsAreNotMerged() throws Exception {
+        List<List<CoalescedEvent>> lanes = PayPropWebhookCoalescer.plan(replay("/payprop-webhooks/burst.json"));
+
+        List<CoalescedEvent> tag = lanes.stream()
+            .filter(lane -> "tag:TAG1".equals(lane.get(0).getSurvivor().getEntityKey()))
+            .findFirst().orElseThrow();
+        assertEquals(3, tag.size());
+        assertEquals("North Portfolio", tag.get(0).getData().get("tagName"));
+        assertEquals(List.of("P1"), tag.get(1).getData().get("propertyIds"));
+        assertEquals(List.of("P2"), tag.get(2).getData().get("propertyIds"));
+
+        // Events without an entity get a lane each
+        assertTrue(lanes.stream().anyMatch(lane -> lane.size() == 1
+            && "payment-instruction".equals(lane.get(0).getEndpoint())));
+    }
+}
@@ -0,0 +1,108 @@
+package site.easy.to.build.crm.service.property;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for PropertyAccessScopeService caching and invalidation (standalone tests without Spring context)
+ */
+public class PropertyAccessScopeServiceTest {
+
+    private static final Long OWNER = 1L;
+    private static final Long DELEGATE = 2L;
+    private static final Long OTHER_OWNER = 3L;
+
+    /**
+     * Scopes from a map instead of the database, counting loads
+     */
+    private static class StubScopeService extends PropertyAccessScopeService {
+        final Map<Long, PropertyAccessScope> scopes = new HashMap<>();
+        final Map<Long, Integer> loads = new HashMap<>();
+
+        StubScopeService(long ttlSeconds) {
+            super(null, ttlSeconds);
+            scopes.put(OWNER, new PropertyAccessScope(OWNER, OWNER, false, Set.of(10L, 11L), Set.of("Flat 1", "Flat 2")));
+            scopes.put(DELEGATE, new PropertyAccessScope(DELEGATE, OWNER, true, Set.of(10L, 11L), Set.of("Flat 1", "Flat 2")));
+            scopes.put(OTHER_OWNER, new PropertyAccessScope(OTHER_OWNER, OTHER_OWNER, false, Set.of(20L), Set.of("House 1")));
+        }
+
+        @Override
+        protected PropertyAccessScope loadScope(Long customerId) {
+            loads.merge(customerId, 1, Integer::sum);
+            return scopes.getOrDefault(customerId, PropertyAccessScope.empty(customerId));
+        }
+    }
+
+    @Test
+    public void testScopeIsResolvedOnce() {
+        StubScopeService service = new StubScopeService(300);
+
+        assertTrue(service.canAccessProperty(OWNER, 10L));
+        assertFalse(service.canAccessProperty(OWNER, 20L));
+        assertEquals(Set.of(10L, 11L), service.getVisiblePropertyIds(OWNER));
+
+        assertEquals(1, service.loads.get(OWNER));
+    }
+
+    @Test
+    public void testDelegateResolvesToOwner() {
+        StubScopeService service = new StubScopeService(300);
+
+        assertEquals(OWNER, service.resolveOwnerId(DELEGATE));
+        assertEquals(OWNER, service.getOwnerScope(DELEGATE).getCustomerId());
+        assertEquals(OTHER_OWNER, service.resolveOwnerId(OTHER_OWNER));
+    }
+
+    @Test
+    public void testInvalidateOwnerDropsDelegates() {
+        StubScopeService service = new StubScopeService(300);
+        service.getScope(OWNER);
+        service.getScope(DELEGATE);
+        service.getScope(OTHER_OWNER);
+
+        service.invalidateCustomer(OWNER);
+        service.getScope(OWNER);
+        service.getScope(DELEGATE);
+        service.getScope(OTHER_OWNER);
+
+        assertEquals(2, service.loads.get(OWNER));
+        assertEquals(2, service.loads.get(DELEGATE));
+        assertEquals(1, service.loads.get(OTHER_OWNER));
+    }
+
+    @Test
+    public void testInvalidatePropertyDropsScopesContainingIt() {
+        StubScopeService service = new StubScopeService(300);
+        service.getScope(OWNER);
+        service.getScope(OTHER_OWNER);
+
+        service.invalidateProperty(20L);
+        service.getScope(OWNER);
+        service.getScope(OTHER_OWNER);
+
+        assertEquals(1, service.loads.get(OWNER));
+        assertEquals(2, service.loads.get(OTHER_OWNER));
+    }
+
+    @Test
+    public void testExpiredScopeIsReloaded() {
+        StubScopeService service = new StubScopeService(0);
+        service.getScope(OWNER);
+        service.getScope(OWNER);
+
+        assertEquals(2, service.loads.get(OWNER));
+    }
+
+    @Test
+    public void testUnknownCustomerSeesNothing() {
+        StubScopeService service = new StubScopeService(300);
+
+        assertTrue(service.getScope(99L).isEmpty());
+        assertTrue(service.getScope(null).isEmpty());
+    }
+}
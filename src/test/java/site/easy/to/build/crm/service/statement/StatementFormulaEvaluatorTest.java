@@ -0,0 +1,144 @@
+package site.easy.to.build.crm.service.statement;
+
+import org.apache.poi.ss.usermodel.*;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for StatementFormulaEvaluator and FormulaStampingWorkbook (standalone tests without Spring context)
+ */
+public class StatementFormulaEvaluatorTest {
+
+    private static double serial(int year, int month, int day) {
+        return DateUtil.getExcelDate(LocalDate.of(year, month, day));
+    }
+
+    private StatementFormulaEvaluator rentReceived() {
+        StatementFormulaEvaluator evaluator = new StatementFormulaEvaluator();
+        evaluator.addRow("RENT_RECEIVED", 0, new Object[]{"transaction_id", "transaction_date", "lease_reference", "property_name", "amount"}, null);
+        evaluator.addRow("RENT_RECEIVED", 1, new Object[]{1.0, serial(2024, 1, 5), "LEASE-1", "Flat 1", 1000.0}, null);
+        evaluator.addRow("RENT_RECEIVED", 2, new Object[]{2.0, serial(2024, 2, 5), "LEASE-1", "Flat 1", 1000.0}, null);
+        evaluator.addRow("RENT_RECEIVED", 3, new Object[]{3.0, serial(2024, 1, 20), "lease-2", "Flat 2", 750.0}, null);
+        evaluator.addRow("RENT_RECEIVED", 4, new Object[]{4.0, serial(2024, 1, 31), "LEASE-1", "Flat 1", 50.0}, null);
+        evaluator.markComplete("RENT_RECEIVED");
+        return evaluator;
+    }
+
+    @Test
+    public void testSumifsWithDateCriteria() {
+        StatementFormulaEvaluator evaluator = rentReceived();
+        Object[] results = evaluator.addRow("Jan 2024", 1,
+            new Object[]{"LEASE-1", 1000.0, null, null},
+            new String[]{null, null,
+                "SUMIFS(RENT_RECEIVED!$E$2:$E$5,RENT_RECEIVED!$C$2:$C$5,A2,RENT_RECEIVED!$B$2:$B$5,\">=\"&DATE(2024,1,1),RENT_RECEIVED!$B$2:$B$5,\"<=\"&DATE(2024,1,31))",
+                "B2-C2"});
+
+        assertEquals(1050.0, results[2]);
+        // Same-row reference to another formula cell
+        assertEquals(-50.0, results[3]);
+    }
+
+    @Test
+    public void testLeaseReferenceMatchIgnoresCaseAndWholeColumns() {
+        StatementFormulaEvaluator evaluator = rentReceived();
+        assertEquals(750.0, evaluator.evaluate("SUMIF(RENT_RECEIVED!C:C,\"LEASE-2\",RENT_RECEIVED!E:E)", "X", 0));
+        assertEquals(2050.0, evaluator.evaluate("SUMIFS(RENT_RECEIVED!E:E, RENT_RECEIVED!C:C, \"<>lease-2\")", "X", 1));
+        assertEquals(2800.0, evaluator.evaluate("SUM(RENT_RECEIVED!E:E)", "X", 2));
+    }
+
+    @Test
+    public void testCrossSheetChainAndQuotedNames() {
+        StatementFormulaEvaluator evaluator = new StatementFormulaEvaluator();
+        evaluator.addRow("Jan 01 - Jan 31, 2024", 1, new Object[]{100.0, 25.0, null},
+            new String[]{null, null, "A2+B2"});
+        evaluator.markComplete("Jan 01 - Jan 31, 2024");
+
+        Object[] results = evaluator.addRow("Feb 01 - Feb 29, 2024", 1, new Object[]{null, 10.0, null},
+            new String[]{"'Jan 01 - Jan 31, 2024'!C2", null, "A2+B2"});
+        assertEquals(125.0, results[0]);
+        assertEquals(135.0, results[2]);
+
+        // Totals row over rows already recorded
+        assertEquals(135.0, evaluator.evaluate("SUM(C2:C2)", "Feb 01 - Feb 29, 2024", 2));
+    }
+
+    @Test
+    public void testForwardAndUnsupportedReferencesStayUncached() {
+        StatementFormulaEvaluator evaluator = rentReceived();
+        // Row 5 of the current sheet is not written yet
+        assertNull(evaluator.evaluate("A5*2", "TOTALS", 0));
+        // Sheet that does not exist yet
+        assertNull(evaluator.evaluate("SUMMARY!B2", "TOTALS", 1));
+        // Function outside the supported subset
+        assertNull(evaluator.evaluate("SUMPRODUCT(RENT_RECEIVED!E2:E5)", "TOTALS", 2));
+    }
+
+    @Test
+    public void testLookupsDatesAndErrors() {
+        StatementFormulaEvaluator evaluator = new StatementFormulaEvaluator();
+        evaluator.addRow("LEASE_MASTER", 0, new Object[]{"lease_id", "start", "end"}, null);
+        evaluator.addRow("LEASE_MASTER", 1, new Object[]{7.0, serial(2024, 1, 10), null}, null);
+        evaluator.markComplete("LEASE_MASTER");
+
+        assertEquals(serial(2024, 1, 10), evaluator.evaluate("VLOOKUP(7,LEASE_MASTER!A:C,2,FALSE)", "RENT_DUE", 0));
+        // VLOOKUP of an empty cell returns 0, so ISBLANK is FALSE (as in Excel)
+        assertEquals(Boolean.FALSE, evaluator.evaluate("ISBLANK(VLOOKUP(7,LEASE_MASTER!A:C,3,FALSE))", "RENT_DUE", 1));
+        assertEquals(FormulaError.NA, evaluator.evaluate("VLOOKUP(8,LEASE_MASTER!A:C,2,FALSE)", "RENT_DUE", 2));
+        assertEquals(0.0, evaluator.evaluate("IFERROR(VLOOKUP(8,LEASE_MASTER!A:C,2,FALSE),0)", "RENT_DUE", 3));
+
+        assertEquals(serial(2024, 2, 29), evaluator.evaluate("EOMONTH(DATE(2024,2,10),0)", "RENT_DUE", 4));
+        assertEquals(29.0, evaluator.evaluate("DAY(EOMONTH(DATE(2024,2,10),0))", "RENT_DUE", 5));
+        assertEquals(333.33, evaluator.evaluate("ROUND(1000/3, 2)", "RENT_DUE", 6));
+        assertEquals(FormulaError.DIV0, evaluator.evaluate("1/0", "RENT_DUE", 7));
+        // Untaken IF branch is not evaluated
+        assertEquals(5.0, evaluator.evaluate("IF(AND(1<2,NOT(FALSE)),5,1/0)", "RENT_DUE", 8));
+    }
+
+    @Test
+    public void testWorkbookStampsCachedValuesAndChecksJavaTotals() throws Exception {
+        byte[] bytes;
+        try (FormulaStampingWorkbook workbook = new FormulaStampingWorkbook(2)) {
+            workbook.setCompressTempFiles(true);
+            workbook.setVerify(true);
+
+            Sheet data = workbook.createSheet("DATA");
+            for (int i = 0; i < 5; i++) {
+                data.createRow(i).createCell(0).setCellValue(i + 1);
+            }
+
+            Sheet summary = workbook.createSheet("SUMMARY");
+            Row row = summary.createRow(0);
+            Cell total = row.createCell(0);
+            total.setCellFormula("SUM(DATA!A1:A5)");
+            workbook.expect(total, 15.0, "total");
+            Cell doubled = row.createCell(1);
+            doubled.setCellFormula("A1*2");
+            workbook.expect(doubled, 31.0, "doubled");
+            row.createCell(2).setCellFormula("\"Total: \"&A1");
+
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            workbook.write(out);
+            workbook.dispose();
+            bytes = out.toByteArray();
+
+            assertEquals(3, workbook.getStampedCells());
+            assertEquals(2, workbook.getCheckedCells());
+            assertEquals(1, workbook.getMismatches().size());
+            assertTrue(workbook.getMismatches().get(0).contains("doubled"));
+        }
+
+        try (XSSFWorkbook read = new XSSFWorkbook(new ByteArrayInputStream(bytes))) {
+            Row row = read.getSheet("SUMMARY").getRow(0);
+            assertEquals("SUM(DATA!A1:A5)", row.getCell(0).getCellFormula());
+            assertEquals(15.0, row.getCell(0).getNumericCellValue());
+            assertEquals(30.0, row.getCell(1).getNumericCellValue());
+            assertEquals("Total: 15", row.getCell(2).getStringCellValue());
+        }
+    }
+}
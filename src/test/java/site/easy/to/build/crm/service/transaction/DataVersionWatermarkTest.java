@@ -0,0 +1,75 @@
+package site.easy.to.build.crm.service.transaction;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Unit tests for DataVersionWatermark startup planning (standalone tests without Spring context)
+ */
+public class DataVersionWatermarkTest {
+
+    private static final LocalDateTime T1 = LocalDateTime.of(2025, 1, 1, 10, 0);
+    private static final LocalDateTime T2 = LocalDateTime.of(2025, 1, 2, 10, 0);
+    private static final Set<String> INCREMENTAL = Set.of("historical_transactions", "financial_transactions");
+
+    private static DataVersionWatermark watermark(long historicalRows, LocalDateTime historicalUpdated,
+                                                  long allocationRows) {
+        return new DataVersionWatermark(List.of(
+            new DataVersionWatermark.TableVersion("historical_transactions", historicalRows, historicalRows, historicalUpdated),
+            new DataVersionWatermark.TableVersion("financial_transactions", 50, 60, T1),
+            new DataVersionWatermark.TableVersion("transaction_batch_allocations", allocationRows, allocationRows, null)));
+    }
+
+    @Test
+    public void testUnchangedSourcesSkip() {
+        DataVersionWatermark previous = watermark(100, T1, 10);
+        assertEquals(DataVersionWatermark.Plan.SKIP,
+            DataVersionWatermark.plan(previous, watermark(100, T1, 10), INCREMENTAL, t -> true, false));
+    }
+
+    @Test
+    public void testNewTransactionsOnlyRunIncremental() {
+        DataVersionWatermark previous = watermark(100, T1, 10);
+        DataVersionWatermark current = watermark(105, T2, 10);
+        assertEquals(List.of("historical_transactions"), current.changedSince(previous));
+        assertEquals(DataVersionWatermark.Plan.INCREMENTAL,
+            DataVersionWatermark.plan(previous, current, INCREMENTAL, t -> true, false));
+        assertEquals(T1, previous.earliestUpdate(INCREMENTAL));
+    }
+
+    @Test
+    public void testDeletesAllocationsOrMissingWatermarkRunFull() {
+        DataVersionWatermark previous = watermark(100, T1, 10);
+        // Rows deleted (or new rows without updated_at)
+        assertEquals(DataVersionWatermark.Plan.FULL,
+            DataVersionWatermark.plan(previous, watermark(99, T2, 10), INCREMENTAL, t -> false, false));
+        // Allocations are only rebuilt by a full rebuild
+        assertEquals(DataVersionWatermark.Plan.FULL,
+            DataVersionWatermark.plan(previous, watermark(100, T1, 11), INCREMENTAL, t -> true, false));
+        // Never rebuilt, or unified table emptied
+        assertEquals(DataVersionWatermark.Plan.FULL,
+            DataVersionWatermark.plan(null, previous, INCREMENTAL, t -> true, false));
+        assertEquals(DataVersionWatermark.Plan.FULL,
+            DataVersionWatermark.plan(previous, previous, INCREMENTAL, t -> true, true));
+    }
+
+    @Test
+    public void testAllocationEditedInPlaceRunsFull() {
+        DataVersionWatermark previous = new DataVersionWatermark(List.of(
+            new DataVersionWatermark.TableVersion("historical_transactions", 100, 100, T1),
+            new DataVersionWatermark.TableVersion("transaction_batch_allocations", 10, 10, T1)));
+        // Same rows and ids, only updated_at moved
+        DataVersionWatermark current = new DataVersionWatermark(List.of(
+            new DataVersionWatermark.TableVersion("historical_transactions", 100, 100, T1),
+            new DataVersionWatermark.TableVersion("transaction_batch_allocations", 10, 10, T2)));
+
+        assertEquals(List.of("transaction_batch_allocations"), current.changedSince(previous));
+        assertEquals(DataVersionWatermark.Plan.FULL,
+            DataVersionWatermark.plan(previous, current, INCREMENTAL, t -> true, false));
+    }
+}